@@ -7,9 +7,11 @@ package com.joolun.web.api;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.constant.MallConstants;
 import com.joolun.mall.entity.Coupon;
 import com.joolun.mall.entity.UserCoupon;
 import com.joolun.mall.service.CouponService;
+import com.joolun.mall.service.DelayTaskService;
 import com.joolun.mall.service.UserCouponService;
 import com.joolun.weixin.utils.ThirdSessionHolder;
 import lombok.AllArgsConstructor;
@@ -20,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -38,6 +41,7 @@ public class CouponApi {
 
     private final CouponService couponService;
     private final UserCouponService userCouponService;
+    private final DelayTaskService delayTaskService;
 
     /**
      * 获取我的优惠券列表 (分页)
@@ -220,6 +224,12 @@ public class CouponApi {
         userCoupon.setExpireTime(coupon.getExpireTime());
         userCouponService.save(userCoupon);
 
+        // 到期自动置为已过期
+        if (userCoupon.getExpireTime() != null) {
+            delayTaskService.scheduleAt(MallConstants.DELAY_TASK_COUPON_EXPIRE, userCoupon.getId(),
+                    userCoupon.getExpireTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+
         return AjaxResult.success(userCoupon);
     }
 
@@ -6,10 +6,12 @@
  */
 package com.joolun.web.api;
 
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.joolun.common.core.domain.AjaxResult;
 import com.joolun.mall.config.CommonConstants;
 import com.joolun.mall.entity.GoodsSpu;
+import com.joolun.mall.service.GoodsSearchService;
 import com.joolun.mall.service.GoodsSpuService;
 import com.joolun.weixin.constant.MyReturnCode;
 import lombok.AllArgsConstructor;
@@ -32,9 +34,10 @@ import org.springframework.web.bind.annotation.RestController;
 public class GoodsSpuApi {
 
     private final GoodsSpuService goodsSpuService;
+    private final GoodsSearchService goodsSearchService;
 
 	/**
-	* 分页查询
+	* 分页查询，带关键词时走搜索索引
 	* @param page 分页对象
 	* @param goodsSpu spu商品
 	* @return
@@ -42,6 +45,9 @@ public class GoodsSpuApi {
     @GetMapping("/page")
     public AjaxResult getGoodsSpuPage(Page page, GoodsSpu goodsSpu, String couponUserId) {
 		goodsSpu.setShelf(CommonConstants.YES);
+		if (StrUtil.isNotBlank(goodsSpu.getName())) {
+			return AjaxResult.success(goodsSearchService.page(page, goodsSpu));
+		}
         return AjaxResult.success(goodsSpuService.page1(page, goodsSpu));
     }
 
@@ -4,6 +4,7 @@ import com.joolun.common.core.domain.AjaxResult;
 import com.joolun.mall.entity.SearchKeywordRecord;
 import com.joolun.mall.entity.SearchKeywordStats;
 import com.joolun.mall.service.SearchKeywordService;
+import com.joolun.mall.service.SearchSuggestService;
 import com.joolun.weixin.entity.ThirdSession;
 import com.joolun.weixin.entity.WxUser;
 import com.joolun.weixin.service.WxUserService;
@@ -27,6 +28,7 @@ import java.util.Map;
 public class SearchKeywordApi {
 
     private final SearchKeywordService searchKeywordService;
+    private final SearchSuggestService searchSuggestService;
     private final MerchantUserHelper merchantUserHelper;
     private final WxUserService wxUserService;
 
@@ -79,11 +81,13 @@ public class SearchKeywordApi {
                 resultCount
             );
 
+            // 结果数以服务端商品索引为准
+            boolean noResult = record.getResultCount() == 0;
             Map<String, Object> result = Map.of(
                 "id", record.getId(),
                 "recorded", true,
-                "noResult", resultCount == 0,
-                "message", resultCount == 0 ? "已记录您的需求，有新品上架会通知您" : "搜索记录成功"
+                "noResult", noResult,
+                "message", noResult ? "已记录您的需求，有新品上架会通知您" : "搜索记录成功"
             );
 
             return AjaxResult.success(result);
@@ -114,7 +118,7 @@ public class SearchKeywordApi {
 
     /**
      * 获取搜索建议
-     * 根据输入前缀返回搜索建议
+     * 根据输入前缀（汉字、全拼或首字母）返回搜索建议
      *
      * @param prefix 搜索前缀
      * @param limit 返回数量
@@ -124,12 +128,18 @@ public class SearchKeywordApi {
     public AjaxResult getSuggestions(
             @RequestParam("prefix") String prefix,
             @RequestParam(value = "limit", defaultValue = "5") Integer limit) {
-        if (prefix == null || prefix.trim().length() < 2) {
+        if (prefix == null || prefix.trim().isEmpty()) {
             return AjaxResult.success(List.of());
         }
 
         try {
-            // 从已有的热门关键词中匹配
+            if (searchSuggestService.isReady()) {
+                return AjaxResult.success(searchSuggestService.suggest(prefix.trim(), limit));
+            }
+            // 联想词典尚未构建完成时，从已有的热门关键词中匹配
+            if (prefix.trim().length() < 2) {
+                return AjaxResult.success(List.of());
+            }
             List<SearchKeywordStats> allHot = searchKeywordService.getHotKeywords(100);
             List<String> suggestions = allHot.stream()
                 .filter(s -> s.getKeyword().contains(prefix.trim()))
@@ -1,5 +1,6 @@
 package com.joolun.web.controller.monitor;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -16,10 +17,14 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.joolun.common.constant.CacheConstants;
 import com.joolun.common.core.domain.AjaxResult;
 import com.joolun.common.utils.StringUtils;
+import com.joolun.framework.config.CompactRedisSerializer;
+import com.joolun.framework.config.RedisSerializerBenchmark;
+import com.joolun.framework.web.service.TokenService;
 import com.joolun.system.domain.SysCache;
 
 /**
@@ -34,6 +39,12 @@ public class CacheController
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private CompactRedisSerializer<Object> redisValueSerializer;
+
     private final static List<SysCache> caches = new ArrayList<SysCache>();
     {
         caches.add(new SysCache(CacheConstants.LOGIN_TOKEN_KEY, "用户信息"));
@@ -89,17 +100,44 @@ public class CacheController
     @GetMapping("/getValue/{cacheName}/{cacheKey}")
     public AjaxResult getCacheValue(@PathVariable String cacheName, @PathVariable String cacheKey)
     {
-        String cacheValue = redisTemplate.opsForValue().get(cacheKey);
+        // 值可能是二进制格式，按原始字节读取后统一转为 JSON 展示
+        byte[] raw = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands()
+                .get(cacheKey.getBytes(StandardCharsets.UTF_8)));
+        String cacheValue = redisValueSerializer.toDisplayString(raw);
         SysCache sysCache = new SysCache(cacheName, cacheKey, cacheValue);
         return AjaxResult.success(sysCache);
     }
 
+    /**
+     * 值序列化统计（读写格式分布、压缩比）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/serializerStats")
+    public AjaxResult serializerStats()
+    {
+        return AjaxResult.success(redisValueSerializer.getStats());
+    }
+
+    /**
+     * JSON 与二进制序列化的体积/吞吐对比
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/serializerBenchmark")
+    public AjaxResult serializerBenchmark(@RequestParam(defaultValue = "20000") int iterations)
+    {
+        return AjaxResult.success(RedisSerializerBenchmark.run(Math.max(1000, Math.min(iterations, 200000))));
+    }
+
     @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
     @DeleteMapping("/clearCacheName/{cacheName}")
     public AjaxResult clearCacheName(@PathVariable String cacheName)
     {
         Collection<String> cacheKeys = redisTemplate.keys(cacheName + "*");
         redisTemplate.delete(cacheKeys);
+        if (CacheConstants.LOGIN_TOKEN_KEY.startsWith(cacheName))
+        {
+            tokenService.invalidateAllLoginUsers();
+        }
         return AjaxResult.success();
     }
 
@@ -108,6 +146,10 @@ public class CacheController
     public AjaxResult clearCacheKey(@PathVariable String cacheKey)
     {
         redisTemplate.delete(cacheKey);
+        if (cacheKey.startsWith(CacheConstants.LOGIN_TOKEN_KEY))
+        {
+            tokenService.delLoginUser(cacheKey.substring(CacheConstants.LOGIN_TOKEN_KEY.length()));
+        }
         return AjaxResult.success();
     }
 
@@ -117,6 +159,7 @@ public class CacheController
     {
         Collection<String> cacheKeys = redisTemplate.keys("*");
         redisTemplate.delete(cacheKeys);
+        tokenService.invalidateAllLoginUsers();
         return AjaxResult.success();
     }
 }
@@ -0,0 +1,31 @@
+package com.joolun.web.controller.monitor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.joolun.common.core.controller.BaseController;
+import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.service.DelayTaskService;
+
+/**
+ * 延时任务监控
+ */
+@RestController
+@RequestMapping("/monitor/delayTask")
+public class DelayTaskController extends BaseController
+{
+    @Autowired
+    private DelayTaskService delayTaskService;
+
+    /**
+     * 延时任务运行指标（吞吐、到期延迟、队列积压、重试与死信数）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:job:list')")
+    @GetMapping("/stats")
+    public AjaxResult stats()
+    {
+        return success(delayTaskService.getStats());
+    }
+}
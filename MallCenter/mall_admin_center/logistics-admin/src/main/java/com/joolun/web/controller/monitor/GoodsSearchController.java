@@ -0,0 +1,43 @@
+package com.joolun.web.controller.monitor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.joolun.common.core.controller.BaseController;
+import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.service.GoodsSearchService;
+
+/**
+ * 商品搜索索引监控
+ */
+@RestController
+@RequestMapping("/monitor/goodsSearch")
+public class GoodsSearchController extends BaseController
+{
+    @Autowired
+    private GoodsSearchService goodsSearchService;
+
+    /**
+     * 索引运行指标（文档数、词项数、已删除占比、同步与重建时间）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/stats")
+    public AjaxResult stats()
+    {
+        return success(goodsSearchService.getStats());
+    }
+
+    /**
+     * 手动全量重建（如直接修改数据库商品数据后）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @PostMapping("/rebuild")
+    public AjaxResult rebuild()
+    {
+        goodsSearchService.rebuild();
+        return success(goodsSearchService.getStats());
+    }
+}
@@ -0,0 +1,43 @@
+package com.joolun.web.controller.monitor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.joolun.common.core.controller.BaseController;
+import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.service.HomeSnapshotService;
+
+/**
+ * 首页快照监控
+ */
+@RestController
+@RequestMapping("/monitor/homeSnapshot")
+public class HomeSnapshotController extends BaseController
+{
+    @Autowired
+    private HomeSnapshotService homeSnapshotService;
+
+    /**
+     * 首页快照运行指标（版本、大小、构建次数与耗时）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/stats")
+    public AjaxResult stats()
+    {
+        return success(homeSnapshotService.getStats());
+    }
+
+    /**
+     * 手动触发重建（如修改系统参数后立即生效）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @PostMapping("/refresh")
+    public AjaxResult refresh()
+    {
+        homeSnapshotService.markDirty("manual");
+        return success();
+    }
+}
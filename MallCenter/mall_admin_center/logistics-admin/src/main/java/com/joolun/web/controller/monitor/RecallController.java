@@ -0,0 +1,31 @@
+package com.joolun.web.controller.monitor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.joolun.common.core.controller.BaseController;
+import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.service.MultiRecallService;
+
+/**
+ * 多路召回监控
+ */
+@RestController
+@RequestMapping("/monitor/recall")
+public class RecallController extends BaseController
+{
+    @Autowired
+    private MultiRecallService multiRecallService;
+
+    /**
+     * 各路召回运行指标（按时返回/超时次数、召回数量、延迟分位数）与候选池状态
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/stats")
+    public AjaxResult stats()
+    {
+        return success(multiRecallService.getRecallChannelStats());
+    }
+}
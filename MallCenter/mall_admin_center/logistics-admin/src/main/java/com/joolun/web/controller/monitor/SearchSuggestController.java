@@ -0,0 +1,43 @@
+package com.joolun.web.controller.monitor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.joolun.common.core.controller.BaseController;
+import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.service.SearchSuggestService;
+
+/**
+ * 搜索联想词典监控
+ */
+@RestController
+@RequestMapping("/monitor/searchSuggest")
+public class SearchSuggestController extends BaseController
+{
+    @Autowired
+    private SearchSuggestService searchSuggestService;
+
+    /**
+     * 词典运行指标（词条数、键数、内存占用、待合并词条、重建耗时）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @GetMapping("/stats")
+    public AjaxResult stats()
+    {
+        return success(searchSuggestService.getStats());
+    }
+
+    /**
+     * 手动全量重建（如批量上架商品后立即生效）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:cache:list')")
+    @PostMapping("/rebuild")
+    public AjaxResult rebuild()
+    {
+        searchSuggestService.rebuild();
+        return success(searchSuggestService.getStats());
+    }
+}
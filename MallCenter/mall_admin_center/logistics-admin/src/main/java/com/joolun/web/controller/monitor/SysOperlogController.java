@@ -16,6 +16,7 @@ import com.joolun.common.core.domain.AjaxResult;
 import com.joolun.common.core.page.TableDataInfo;
 import com.joolun.common.enums.BusinessType;
 import com.joolun.common.utils.poi.ExcelUtil;
+import com.joolun.framework.manager.LogBatchWriter;
 import com.joolun.system.domain.SysOperLog;
 import com.joolun.system.service.ISysOperLogService;
 
@@ -31,6 +32,9 @@ public class SysOperlogController extends BaseController
     @Autowired
     private ISysOperLogService operLogService;
 
+    @Autowired
+    private LogBatchWriter logBatchWriter;
+
     @PreAuthorize("@ss.hasPermi('monitor:operlog:list')")
     @GetMapping("/list")
     public TableDataInfo list(SysOperLog operLog)
@@ -66,4 +70,14 @@ public class SysOperlogController extends BaseController
         operLogService.cleanOperLog();
         return success();
     }
+
+    /**
+     * 日志批量写入器运行指标（队列积压、丢弃数等）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:operlog:list')")
+    @GetMapping("/writerStats")
+    public AjaxResult writerStats()
+    {
+        return success(logBatchWriter.getStats());
+    }
 }
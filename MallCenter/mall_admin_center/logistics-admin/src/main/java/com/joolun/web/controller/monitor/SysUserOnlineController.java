@@ -20,6 +20,8 @@ import com.joolun.common.core.page.TableDataInfo;
 import com.joolun.common.core.redis.RedisCache;
 import com.joolun.common.enums.BusinessType;
 import com.joolun.common.utils.StringUtils;
+import com.joolun.framework.web.service.TokenService;
+import com.joolun.framework.web.service.TokenSessionCache;
 import com.joolun.system.domain.SysUserOnline;
 import com.joolun.system.service.ISysUserOnlineService;
 
@@ -38,6 +40,12 @@ public class SysUserOnlineController extends BaseController
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private TokenSessionCache tokenSessionCache;
+
     @PreAuthorize("@ss.hasPermi('monitor:online:list')")
     @GetMapping("/list")
     public TableDataInfo list(String ipaddr, String userName)
@@ -77,7 +85,17 @@ public class SysUserOnlineController extends BaseController
     @DeleteMapping("/{tokenId}")
     public AjaxResult forceLogout(@PathVariable String tokenId)
     {
-        redisCache.deleteObject(CacheConstants.LOGIN_TOKEN_KEY + tokenId);
+        tokenService.delLoginUser(tokenId);
         return success();
     }
+
+    /**
+     * 登录会话本地缓存运行指标（命中率、失效广播、续期写回）
+     */
+    @PreAuthorize("@ss.hasPermi('monitor:online:list')")
+    @GetMapping("/cacheStats")
+    public AjaxResult cacheStats()
+    {
+        return success(tokenSessionCache.getStats());
+    }
 }
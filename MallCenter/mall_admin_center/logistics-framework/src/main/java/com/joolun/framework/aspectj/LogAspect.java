@@ -12,6 +12,7 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.NamedThreadLocal;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.BindingResult;
@@ -27,8 +28,7 @@ import com.joolun.common.utils.SecurityUtils;
 import com.joolun.common.utils.ServletUtils;
 import com.joolun.common.utils.StringUtils;
 import com.joolun.common.utils.ip.IpUtils;
-import com.joolun.framework.manager.AsyncManager;
-import com.joolun.framework.manager.factory.AsyncFactory;
+import com.joolun.framework.manager.LogBatchWriter;
 import com.joolun.system.domain.SysOperLog;
 
 /**
@@ -48,6 +48,9 @@ public class LogAspect
     /** 计算操作消耗时间 */
     private static final ThreadLocal<Long> TIME_THREADLOCAL = new NamedThreadLocal<Long>("Cost Time");
 
+    @Autowired
+    private LogBatchWriter logBatchWriter;
+
     /**
      * 处理请求前执行
      */
@@ -119,8 +122,8 @@ public class LogAspect
             getControllerMethodDescription(joinPoint, controllerLog, operLog, jsonResult);
             // 设置消耗时间
             operLog.setCostTime(System.currentTimeMillis() - TIME_THREADLOCAL.get());
-            // 保存数据库
-            AsyncManager.me().execute(AsyncFactory.recordOper(operLog));
+            // 放入批量写入缓冲区
+            logBatchWriter.recordOper(operLog);
         }
         catch (Exception exp)
         {
@@ -0,0 +1,226 @@
+package com.joolun.framework.config;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * LZ4 块格式压缩/解压（单块、无帧头）
+ *
+ * 输出与标准 LZ4 block format 兼容：token(高4位字面量长度/低4位匹配长度-4) + 字面量 + 2字节小端偏移 + 扩展匹配长度；
+ * 采用单次贪心哈希匹配，侧重速度而非压缩率，适合缓存值这类几 KB ~ 几百 KB 的数据。
+ *
+ * @author ruoyi
+ */
+final class Lz4BlockCodec
+{
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MIN_MATCH = 4;
+
+    /** 末尾至少保留的字面量字节数 */
+    private static final int LAST_LITERALS = 5;
+
+    /** 最后一个匹配的起点距末尾的最小距离 */
+    private static final int MF_LIMIT = 12;
+
+    private static final int MAX_DISTANCE = 65535;
+
+    private static final int HASH_LOG = 12;
+
+    private Lz4BlockCodec()
+    {
+    }
+
+    /**
+     * 最坏情况下的压缩输出长度
+     */
+    static int maxCompressedLength(int length)
+    {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * 压缩 src[off, off+len)
+     */
+    static byte[] compress(byte[] src, int off, int len)
+    {
+        byte[] dst = new byte[maxCompressedLength(len)];
+        int end = off + len;
+        int anchor = off;
+        int op = 0;
+        if (len > MF_LIMIT)
+        {
+            // 表内存放 位置+1，0 表示空槽
+            int[] table = new int[1 << HASH_LOG];
+            int mfLimit = end - MF_LIMIT;
+            int matchLimit = end - LAST_LITERALS;
+            int ip = off;
+            while (ip < mfLimit)
+            {
+                int sequence = readInt(src, ip);
+                int h = hash(sequence);
+                int ref = table[h] - 1;
+                table[h] = ip + 1;
+                if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence)
+                {
+                    ip++;
+                    continue;
+                }
+                // 向前回溯扩展匹配
+                while (ip > anchor && ref > off && src[ip - 1] == src[ref - 1])
+                {
+                    ip--;
+                    ref--;
+                }
+                int matchLen = MIN_MATCH;
+                while (ip + matchLen < matchLimit && src[ref + matchLen] == src[ip + matchLen])
+                {
+                    matchLen++;
+                }
+                op = writeSequence(dst, op, src, anchor, ip - anchor, ip - ref, matchLen);
+                ip += matchLen;
+                anchor = ip;
+                if (ip < mfLimit)
+                {
+                    table[hash(readInt(src, ip - 2))] = ip - 1;
+                }
+            }
+        }
+        op = writeLastLiterals(dst, op, src, anchor, end - anchor);
+        return Arrays.copyOf(dst, op);
+    }
+
+    /**
+     * 解压 src[off, off+len)，解压后长度必须恰好为 originalLength
+     *
+     * @throws IllegalArgumentException 数据损坏时
+     */
+    static byte[] decompress(byte[] src, int off, int len, int originalLength)
+    {
+        byte[] dst = new byte[originalLength];
+        int ip = off;
+        int end = off + len;
+        int op = 0;
+        try
+        {
+            while (ip < end)
+            {
+                int token = src[ip++] & 0xFF;
+                int literalLen = token >>> 4;
+                if (literalLen == 15)
+                {
+                    int b;
+                    do
+                    {
+                        b = src[ip++] & 0xFF;
+                        literalLen += b;
+                    }
+                    while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLen);
+                ip += literalLen;
+                op += literalLen;
+                if (ip >= end)
+                {
+                    break;
+                }
+                int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+                ip += 2;
+                int matchLen = token & 0x0F;
+                if (matchLen == 15)
+                {
+                    int b;
+                    do
+                    {
+                        b = src[ip++] & 0xFF;
+                        matchLen += b;
+                    }
+                    while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+                int ref = op - offset;
+                if (offset == 0 || ref < 0)
+                {
+                    throw new IllegalArgumentException("LZ4 数据损坏：非法偏移 " + offset);
+                }
+                if (offset >= matchLen)
+                {
+                    System.arraycopy(dst, ref, dst, op, matchLen);
+                }
+                else
+                {
+                    // 重叠拷贝（如游程），必须逐字节
+                    for (int i = 0; i < matchLen; i++)
+                    {
+                        dst[op + i] = dst[ref + i];
+                    }
+                }
+                op += matchLen;
+            }
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            throw new IllegalArgumentException("LZ4 数据损坏：长度越界", e);
+        }
+        if (op != originalLength)
+        {
+            throw new IllegalArgumentException("LZ4 数据损坏：解压长度 " + op + " 与原始长度 " + originalLength + " 不符");
+        }
+        return dst;
+    }
+
+    private static int writeSequence(byte[] dst, int op, byte[] src, int literalStart, int literalLen, int offset, int matchLen)
+    {
+        int tokenPos = op++;
+        int ml = matchLen - MIN_MATCH;
+        int token = (Math.min(literalLen, 15) << 4) | Math.min(ml, 15);
+        dst[tokenPos] = (byte) token;
+        if (literalLen >= 15)
+        {
+            op = writeLength(dst, op, literalLen - 15);
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLen);
+        op += literalLen;
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        if (ml >= 15)
+        {
+            op = writeLength(dst, op, ml - 15);
+        }
+        return op;
+    }
+
+    private static int writeLastLiterals(byte[] dst, int op, byte[] src, int literalStart, int literalLen)
+    {
+        dst[op++] = (byte) (Math.min(literalLen, 15) << 4);
+        if (literalLen >= 15)
+        {
+            op = writeLength(dst, op, literalLen - 15);
+        }
+        System.arraycopy(src, literalStart, dst, op, literalLen);
+        return op + literalLen;
+    }
+
+    private static int writeLength(byte[] dst, int op, int remaining)
+    {
+        while (remaining >= 255)
+        {
+            dst[op++] = (byte) 255;
+            remaining -= 255;
+        }
+        dst[op++] = (byte) remaining;
+        return op;
+    }
+
+    private static int readInt(byte[] buf, int pos)
+    {
+        return (int) INT_LE.get(buf, pos);
+    }
+
+    private static int hash(int sequence)
+    {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -1,5 +1,6 @@
 package com.joolun.framework.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -7,6 +8,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -19,6 +21,23 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 @EnableCaching
 public class RedisConfig extends CachingConfigurerSupport
 {
+    /** 值写入格式 json | binary，读取始终兼容两种格式 */
+    @Value("${redis.serializer.writeFormat:json}")
+    private String writeFormat;
+
+    /** 二进制内容超过该字节数时尝试 LZ4 压缩，0 表示不压缩 */
+    @Value("${redis.serializer.compressThreshold:1024}")
+    private int compressThreshold;
+
+    /**
+     * 两个模板共用的值序列化器
+     */
+    @Bean
+    public CompactRedisSerializer<Object> redisValueSerializer()
+    {
+        return new CompactRedisSerializer<>(Object.class, "binary".equalsIgnoreCase(writeFormat), compressThreshold);
+    }
+
     @Bean
     @SuppressWarnings(value = { "unchecked", "rawtypes" })
     public RedisTemplate<Object, Object> redisTemplate(RedisConnectionFactory connectionFactory)
@@ -26,7 +45,7 @@ public class RedisConfig extends CachingConfigurerSupport
         RedisTemplate<Object, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
-        FastJson2JsonRedisSerializer serializer = new FastJson2JsonRedisSerializer(Object.class);
+        CompactRedisSerializer<Object> serializer = redisValueSerializer();
 
         // 使用StringRedisSerializer来序列化和反序列化redis的key值
         template.setKeySerializer(new StringRedisSerializer());
@@ -47,7 +66,7 @@ public class RedisConfig extends CachingConfigurerSupport
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
-        FastJson2JsonRedisSerializer serializer = new FastJson2JsonRedisSerializer(Object.class);
+        CompactRedisSerializer<Object> serializer = redisValueSerializer();
 
         template.setKeySerializer(new StringRedisSerializer());
         template.setValueSerializer(serializer);
@@ -58,6 +77,17 @@ public class RedisConfig extends CachingConfigurerSupport
         return template;
     }
 
+    /**
+     * 发布/订阅监听容器（登录会话失效广播等）
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory)
+    {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
     @Bean
     public DefaultRedisScript<Long> limitScript()
     {
@@ -0,0 +1,189 @@
+package com.joolun.framework.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import com.joolun.common.core.domain.entity.SysDept;
+import com.joolun.common.core.domain.entity.SysDictData;
+import com.joolun.common.core.domain.entity.SysRole;
+import com.joolun.common.core.domain.entity.SysUser;
+import com.joolun.common.core.domain.model.LoginUser;
+
+/**
+ * Redis值序列化对比压测
+ *
+ * 以实际缓存的对象（登录会话、字典、配置、计数）对比原 JSON 序列化与紧凑二进制序列化（含/不含 LZ4）
+ * 的体积与单线程吞吐，先预热再计时，结果仅作为同机横向对比参考。
+ *
+ * @author ruoyi
+ */
+public final class RedisSerializerBenchmark
+{
+    private RedisSerializerBenchmark()
+    {
+    }
+
+    /**
+     * 运行对比
+     *
+     * @param iterations 每个组合的计时迭代次数
+     * @return 每种样本 × 序列化器的体积与 ops/s
+     */
+    public static List<Map<String, Object>> run(int iterations)
+    {
+        Map<String, Object> samples = new LinkedHashMap<>();
+        samples.put("loginUser", sampleLoginUser());
+        samples.put("dictList", sampleDictList(40));
+        samples.put("dictListLarge", sampleDictList(400));
+        samples.put("configValue", "sys.account.captchaEnabled=true");
+        samples.put("counter", 42);
+
+        Map<String, RedisSerializer<Object>> serializers = new LinkedHashMap<>();
+        serializers.put("json", new FastJson2JsonRedisSerializer<>(Object.class));
+        serializers.put("binary", new CompactRedisSerializer<>(Object.class, true, 0));
+        serializers.put("binary+lz4", new CompactRedisSerializer<>(Object.class, true, 256));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        int warmup = Math.max(1000, iterations / 5);
+        for (Map.Entry<String, Object> sample : samples.entrySet())
+        {
+            Integer jsonSize = null;
+            for (Map.Entry<String, RedisSerializer<Object>> entry : serializers.entrySet())
+            {
+                RedisSerializer<Object> serializer = entry.getValue();
+                Object value = sample.getValue();
+                byte[] bytes = serializer.serialize(value);
+                if (jsonSize == null)
+                {
+                    jsonSize = bytes.length;
+                }
+                measure(serializer, value, bytes, warmup);
+                long[] nanos = measure(serializer, value, bytes, iterations);
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("sample", sample.getKey());
+                row.put("serializer", entry.getKey());
+                row.put("bytes", bytes.length);
+                row.put("sizeVsJson", Math.round(bytes.length * 1000.0 / jsonSize) / 1000.0);
+                row.put("serializeOpsPerSec", opsPerSec(iterations, nanos[0]));
+                row.put("deserializeOpsPerSec", opsPerSec(iterations, nanos[1]));
+                results.add(row);
+            }
+        }
+        return results;
+    }
+
+    private static long[] measure(RedisSerializer<Object> serializer, Object value, byte[] bytes, int iterations)
+    {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            sink += serializer.serialize(value).length;
+        }
+        long serializeNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+        {
+            sink += serializer.deserialize(bytes) != null ? 1 : 0;
+        }
+        long deserializeNanos = System.nanoTime() - start;
+        // 防止 JIT 将循环整体消除
+        if (sink == Long.MIN_VALUE)
+        {
+            throw new IllegalStateException();
+        }
+        return new long[] { serializeNanos, deserializeNanos };
+    }
+
+    private static long opsPerSec(int iterations, long nanos)
+    {
+        return nanos <= 0 ? 0 : Math.round(iterations * 1_000_000_000.0 / nanos);
+    }
+
+    private static LoginUser sampleLoginUser()
+    {
+        SysDept dept = new SysDept();
+        dept.setDeptId(103L);
+        dept.setDeptName("研发部门");
+        dept.setLeader("若依");
+
+        List<SysRole> roles = new ArrayList<>();
+        for (long i = 1; i <= 3; i++)
+        {
+            SysRole role = new SysRole();
+            role.setRoleId(i);
+            role.setRoleName("角色" + i);
+            role.setRoleKey("role_" + i);
+            role.setRoleSort((int) i);
+            role.setDataScope("1");
+            role.setStatus("0");
+            roles.add(role);
+        }
+
+        SysUser user = new SysUser();
+        user.setUserId(1L);
+        user.setDeptId(103L);
+        user.setUserName("admin");
+        user.setNickName("管理员");
+        user.setEmail("admin@example.com");
+        user.setPhonenumber("15888888888");
+        user.setSex("1");
+        user.setPassword("$2a$10$7JB720yubVSZvUI0rEqK/.VqGOZTH.ulu33dHOiBE8ByOhJIrdAu2");
+        user.setStatus("0");
+        user.setDelFlag("0");
+        user.setLoginIp("127.0.0.1");
+        user.setLoginDate(new Date());
+        user.setCreateBy("admin");
+        user.setCreateTime(new Date());
+        user.setDept(dept);
+        user.setRoles(roles);
+
+        Set<String> permissions = new HashSet<>();
+        for (String module : Arrays.asList("system:user", "system:role", "system:menu", "system:dept", "system:dict",
+                "system:config", "monitor:online", "monitor:cache", "mall:goods", "mall:order"))
+        {
+            for (String action : Arrays.asList("list", "query", "add", "edit", "remove"))
+            {
+                permissions.add(module + ":" + action);
+            }
+        }
+
+        LoginUser loginUser = new LoginUser(1L, 103L, user, permissions);
+        loginUser.setToken("6f1c8a52-2b5e-4f0e-9a3b-7d7e0c1f4b21");
+        loginUser.setLoginTime(System.currentTimeMillis());
+        loginUser.setExpireTime(System.currentTimeMillis() + 30 * 60 * 1000L);
+        loginUser.setIpaddr("127.0.0.1");
+        loginUser.setLoginLocation("内网IP");
+        loginUser.setBrowser("Chrome 12");
+        loginUser.setOs("Windows 10");
+        return loginUser;
+    }
+
+    private static List<SysDictData> sampleDictList(int size)
+    {
+        List<SysDictData> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            SysDictData data = new SysDictData();
+            data.setDictCode((long) i + 1);
+            data.setDictSort((long) i);
+            data.setDictLabel("状态" + i);
+            data.setDictValue(String.valueOf(i));
+            data.setDictType("sys_normal_disable");
+            data.setListClass(i % 2 == 0 ? "primary" : "danger");
+            data.setIsDefault(i == 0 ? "Y" : "N");
+            data.setStatus("0");
+            data.setCreateBy("admin");
+            data.setCreateTime(new Date());
+            list.add(data);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,224 @@
+package com.joolun.framework.manager;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import com.joolun.common.config.JooLunConfig;
+import com.joolun.common.utils.ip.AddressUtils;
+import com.joolun.common.utils.ip.IpUtils;
+
+/**
+ * 日志IP归属地解析
+ *
+ * 归属地查询是远程 HTTP 调用，不能放在请求线程或日志写入线程上同步执行：
+ * 命中缓存（以及内网IP、未开启地址查询）时直接返回，否则先以空归属地入库，
+ * 由独立的小线程池查询后放入回填队列，再由 {@link LogBatchWriter} 的写入线程按 IP 回填已写入的日志。
+ * 同一 IP 同时只查询一次。
+ *
+ * @author ruoyi
+ */
+@Component
+public class IpLocationResolver
+{
+    private static final Logger log = LoggerFactory.getLogger(IpLocationResolver.class);
+
+    /** 待回填的归属地占位值，与表字段默认值一致 */
+    public static final String PENDING = "";
+
+    @Value("${operlog.writer.locationThreads:2}")
+    private int threads;
+
+    @Value("${operlog.writer.locationCacheSize:4096}")
+    private int cacheSize;
+
+    /** IP -> 归属地（LRU） */
+    private Map<String, String> cache;
+
+    /** 查询中的IP -> 该IP最早一条待回填日志的时间 */
+    private final Map<String, Date> pending = new ConcurrentHashMap<String, Date>();
+
+    /** 查询完成、待回填的结果 */
+    private final Queue<LocationFill> fills = new ConcurrentLinkedQueue<LocationFill>();
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void init()
+    {
+        final int maxEntries = Math.max(16, cacheSize);
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, String>(256, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+            {
+                return size() > maxEntries;
+            }
+        });
+        final AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1024), r -> {
+                    Thread t = new Thread(r, "log-ip-location-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取归属地，不阻塞
+     *
+     * @param ip IP地址
+     * @param eventTime 日志时间，用于限定回填范围
+     * @return 归属地；需要远程查询时返回 {@link #PENDING}，查询完成后回填
+     */
+    public String lookup(String ip, Date eventTime)
+    {
+        if (IpUtils.internalIp(ip))
+        {
+            return "内网IP";
+        }
+        if (!JooLunConfig.isAddressEnabled())
+        {
+            return AddressUtils.UNKNOWN;
+        }
+        String location = cache.get(ip);
+        if (location != null)
+        {
+            hits.incrementAndGet();
+            return location;
+        }
+        Date previous = pending.putIfAbsent(ip, eventTime);
+        if (previous == null)
+        {
+            try
+            {
+                executor.execute(() -> resolve(ip));
+            }
+            catch (RejectedExecutionException e)
+            {
+                // 查询线程池已满或已关闭，本条日志保留空归属地
+                pending.remove(ip);
+                rejected.incrementAndGet();
+            }
+        }
+        else if (eventTime.before(previous))
+        {
+            pending.replace(ip, previous, eventTime);
+        }
+        return PENDING;
+    }
+
+    /**
+     * 仅从缓存取归属地（写入线程入库前补齐，不触发查询）
+     */
+    public String cached(String ip)
+    {
+        return ip == null ? null : cache.get(ip);
+    }
+
+    /**
+     * 取出一条待回填结果，由写入线程调用
+     */
+    public LocationFill pollFill()
+    {
+        return fills.poll();
+    }
+
+    private void resolve(String ip)
+    {
+        lookups.incrementAndGet();
+        String location = AddressUtils.getRealAddressByIP(ip);
+        // 先写缓存再入回填队列：写入线程处理回填之后入库的日志都能从缓存补齐
+        cache.put(ip, location);
+        Date since = pending.remove(ip);
+        if (since != null)
+        {
+            fills.offer(new LocationFill(ip, location, since));
+        }
+    }
+
+    public void shutdown()
+    {
+        executor.shutdownNow();
+        try
+        {
+            if (!executor.awaitTermination(2, TimeUnit.SECONDS))
+            {
+                log.warn("IP归属地查询线程未在 2s 内退出, 未完成 {} 个", pending.size());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        stats.put("locationCacheSize", cache.size());
+        stats.put("locationCacheHits", hits.get());
+        stats.put("locationLookups", lookups.get());
+        stats.put("locationPending", pending.size());
+        stats.put("locationRejected", rejected.get());
+        stats.put("locationFillsQueued", fills.size());
+        return stats;
+    }
+
+    /**
+     * 一次归属地回填：将 since 之后该 IP 空归属地的日志更新为 location
+     */
+    public static class LocationFill
+    {
+        private final String ip;
+
+        private final String location;
+
+        private final Date since;
+
+        LocationFill(String ip, String location, Date since)
+        {
+            this.ip = ip;
+            this.location = location;
+            this.since = since;
+        }
+
+        public String getIp()
+        {
+            return ip;
+        }
+
+        public String getLocation()
+        {
+            return location;
+        }
+
+        public Date getSince()
+        {
+            return since;
+        }
+    }
+}
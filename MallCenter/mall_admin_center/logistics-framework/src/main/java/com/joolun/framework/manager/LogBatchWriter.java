@@ -0,0 +1,460 @@
+package com.joolun.framework.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import com.joolun.system.domain.SysLogininfor;
+import com.joolun.system.domain.SysOperLog;
+import com.joolun.system.service.ISysLogininforService;
+import com.joolun.system.service.ISysOperLogService;
+
+/**
+ * 操作日志/登录日志批量写入器
+ *
+ * 请求线程只将日志放入有界无锁环形缓冲区，由单个后台线程在达到批量大小或刷新间隔时
+ * 以多行 insert 批量落库；缓冲区满时按溢出策略丢弃或由调用线程同步写入。
+ * IP归属地由 {@link IpLocationResolver} 异步查询，写入线程只读缓存，查询结果到达后按 IP 回填。
+ * 应用退出时由 {@link ShutdownManager} 调用 {@link #shutdown()} 排空缓冲区。
+ *
+ * @author ruoyi
+ */
+@Component
+public class LogBatchWriter
+{
+    private static final Logger log = LoggerFactory.getLogger(LogBatchWriter.class);
+
+    /** 溢出策略：丢弃新日志并计数 */
+    public static final String POLICY_DISCARD = "discard";
+
+    /** 溢出策略：由调用线程同步写入 */
+    public static final String POLICY_CALLER_RUNS = "caller_runs";
+
+    /** 停止时等待写入线程排空的最长时间 */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    @Value("${operlog.writer.capacity:8192}")
+    private int capacity;
+
+    @Value("${operlog.writer.batchSize:200}")
+    private int batchSize;
+
+    @Value("${operlog.writer.flushInterval:1000}")
+    private long flushInterval;
+
+    @Value("${operlog.writer.overflowPolicy:discard}")
+    private String overflowPolicy;
+
+    @Autowired
+    private ISysOperLogService operLogService;
+
+    @Autowired
+    private ISysLogininforService logininforService;
+
+    @Autowired
+    private IpLocationResolver locationResolver;
+
+    private LogRingBuffer<SysOperLog> operBuffer;
+
+    private LogRingBuffer<SysLogininfor> logininforBuffer;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    private final AtomicLong operEnqueued = new AtomicLong();
+
+    private final AtomicLong operDropped = new AtomicLong();
+
+    private final AtomicLong logininforEnqueued = new AtomicLong();
+
+    private final AtomicLong logininforDropped = new AtomicLong();
+
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    private final AtomicLong rowsFailed = new AtomicLong();
+
+    private final AtomicLong locationFills = new AtomicLong();
+
+    private volatile long lastFlushCostMillis;
+
+    private volatile int maxDepth;
+
+    @PostConstruct
+    public void init()
+    {
+        operBuffer = new LogRingBuffer<SysOperLog>(capacity);
+        logininforBuffer = new LogRingBuffer<SysLogininfor>(capacity);
+        running = true;
+        writerThread = new Thread(this::runLoop, "log-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("日志批量写入器启动, capacity={}, batchSize={}, flushInterval={}ms, overflowPolicy={}",
+                operBuffer.capacity(), batchSize, flushInterval, overflowPolicy);
+    }
+
+    /**
+     * 记录操作日志
+     *
+     * @param operLog 操作日志信息
+     */
+    public void recordOper(SysOperLog operLog)
+    {
+        if (operLog.getOperTime() == null)
+        {
+            operLog.setOperTime(new Date());
+        }
+        if (operLog.getOperLocation() == null)
+        {
+            operLog.setOperLocation(locationResolver.lookup(operLog.getOperIp(), operLog.getOperTime()));
+        }
+        if (offer(operBuffer, operLog, operEnqueued))
+        {
+            return;
+        }
+        overflow(operLog, operDropped, this::writeOperDirectly);
+    }
+
+    /**
+     * 记录登录日志
+     *
+     * @param logininfor 访问日志对象
+     */
+    public void recordLogininfor(SysLogininfor logininfor)
+    {
+        if (logininfor.getLoginTime() == null)
+        {
+            logininfor.setLoginTime(new Date());
+        }
+        if (logininfor.getLoginLocation() == null)
+        {
+            logininfor.setLoginLocation(locationResolver.lookup(logininfor.getIpaddr(), logininfor.getLoginTime()));
+        }
+        if (offer(logininforBuffer, logininfor, logininforEnqueued))
+        {
+            return;
+        }
+        overflow(logininfor, logininforDropped, this::writeLogininforDirectly);
+    }
+
+    private <T> boolean offer(LogRingBuffer<T> buffer, T record, AtomicLong enqueued)
+    {
+        if (!running || !buffer.offer(record))
+        {
+            return false;
+        }
+        enqueued.incrementAndGet();
+        int depth = buffer.size();
+        if (depth > maxDepth)
+        {
+            maxDepth = depth;
+        }
+        if (depth >= batchSize)
+        {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    private <T> void overflow(T record, AtomicLong dropped, Consumer<T> direct)
+    {
+        // 已停止时同步写入，避免退出阶段的日志丢失
+        if (!running || POLICY_CALLER_RUNS.equalsIgnoreCase(overflowPolicy))
+        {
+            callerRuns.incrementAndGet();
+            direct.accept(record);
+            return;
+        }
+        long count = dropped.incrementAndGet();
+        if (count == 1 || count % 1000 == 0)
+        {
+            log.warn("日志缓冲区已满, 已丢弃 {} 条日志, 当前容量 {}", count, operBuffer.capacity());
+        }
+    }
+
+    /**
+     * 写入线程主循环：攒够一批立即写入，否则最多等待一个刷新间隔
+     */
+    private void runLoop()
+    {
+        List<SysOperLog> operBatch = new ArrayList<SysOperLog>(batchSize);
+        List<SysLogininfor> logininforBatch = new ArrayList<SysLogininfor>(batchSize);
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        long deadline = System.nanoTime() + intervalNanos;
+        while (running)
+        {
+            try
+            {
+                operBuffer.drainTo(operBatch, batchSize - operBatch.size());
+                logininforBuffer.drainTo(logininforBatch, batchSize - logininforBatch.size());
+                boolean due = System.nanoTime() - deadline >= 0;
+                if (operBatch.size() >= batchSize || (due && !operBatch.isEmpty()))
+                {
+                    flushOper(operBatch);
+                }
+                if (logininforBatch.size() >= batchSize || (due && !logininforBatch.isEmpty()))
+                {
+                    flushLogininfor(logininforBatch);
+                }
+                applyLocationFills();
+                if (due)
+                {
+                    deadline = System.nanoTime() + intervalNanos;
+                }
+                if (operBuffer.isEmpty() && logininforBuffer.isEmpty())
+                {
+                    LockSupport.parkNanos(this, Math.max(0, deadline - System.nanoTime()));
+                }
+            }
+            catch (Throwable t)
+            {
+                log.error("日志批量写入线程异常", t);
+            }
+        }
+        drain(operBatch, logininforBatch);
+    }
+
+    /**
+     * 排空缓冲区与未提交批次
+     */
+    private void drain(List<SysOperLog> operBatch, List<SysLogininfor> logininforBatch)
+    {
+        while (operBuffer.drainTo(operBatch, batchSize - operBatch.size()) > 0 || !operBatch.isEmpty())
+        {
+            flushOper(operBatch);
+        }
+        while (logininforBuffer.drainTo(logininforBatch, batchSize - logininforBatch.size()) > 0
+                || !logininforBatch.isEmpty())
+        {
+            flushLogininfor(logininforBatch);
+        }
+        applyLocationFills();
+    }
+
+    /**
+     * 按 IP 回填已入库日志的归属地。与批量写入在同一线程执行：回填之前入库的行由此更新，
+     * 之后入库的行在写入前已从缓存补齐
+     */
+    private void applyLocationFills()
+    {
+        IpLocationResolver.LocationFill fill;
+        while ((fill = locationResolver.pollFill()) != null)
+        {
+            try
+            {
+                SysOperLog operLog = new SysOperLog();
+                operLog.setOperIp(fill.getIp());
+                operLog.setOperLocation(fill.getLocation());
+                operLog.setOperTime(fill.getSince());
+                SysLogininfor logininfor = new SysLogininfor();
+                logininfor.setIpaddr(fill.getIp());
+                logininfor.setLoginLocation(fill.getLocation());
+                logininfor.setLoginTime(fill.getSince());
+                operLogService.updateOperLocation(operLog);
+                logininforService.updateLoginLocation(logininfor);
+                locationFills.incrementAndGet();
+            }
+            catch (Exception e)
+            {
+                log.warn("日志归属地回填失败, ip={}: {}", fill.getIp(), e.getMessage());
+            }
+        }
+    }
+
+    private void flushOper(List<SysOperLog> batch)
+    {
+        long start = System.currentTimeMillis();
+        for (SysOperLog operLog : batch)
+        {
+            fillOperLocation(operLog);
+        }
+        try
+        {
+            operLogService.batchInsertOperlog(batch);
+            rowsWritten.addAndGet(batch.size());
+        }
+        catch (Exception e)
+        {
+            log.warn("操作日志批量写入失败, 逐条重试 {} 条: {}", batch.size(), e.getMessage());
+            for (SysOperLog operLog : batch)
+            {
+                insertOper(operLog);
+            }
+        }
+        finally
+        {
+            batches.incrementAndGet();
+            lastFlushCostMillis = System.currentTimeMillis() - start;
+            batch.clear();
+        }
+    }
+
+    private void flushLogininfor(List<SysLogininfor> batch)
+    {
+        long start = System.currentTimeMillis();
+        for (SysLogininfor logininfor : batch)
+        {
+            fillLoginLocation(logininfor);
+        }
+        try
+        {
+            logininforService.batchInsertLogininfor(batch);
+            rowsWritten.addAndGet(batch.size());
+        }
+        catch (Exception e)
+        {
+            log.warn("登录日志批量写入失败, 逐条重试 {} 条: {}", batch.size(), e.getMessage());
+            for (SysLogininfor logininfor : batch)
+            {
+                insertLogininfor(logininfor);
+            }
+        }
+        finally
+        {
+            batches.incrementAndGet();
+            lastFlushCostMillis = System.currentTimeMillis() - start;
+            batch.clear();
+        }
+    }
+
+    private void writeOperDirectly(SysOperLog operLog)
+    {
+        fillOperLocation(operLog);
+        insertOper(operLog);
+    }
+
+    private void writeLogininforDirectly(SysLogininfor logininfor)
+    {
+        fillLoginLocation(logininfor);
+        insertLogininfor(logininfor);
+    }
+
+    /**
+     * 入队后查询已完成的，从缓存补齐归属地
+     */
+    private void fillOperLocation(SysOperLog operLog)
+    {
+        if (IpLocationResolver.PENDING.equals(operLog.getOperLocation()))
+        {
+            String location = locationResolver.cached(operLog.getOperIp());
+            if (location != null)
+            {
+                operLog.setOperLocation(location);
+            }
+        }
+    }
+
+    private void fillLoginLocation(SysLogininfor logininfor)
+    {
+        if (IpLocationResolver.PENDING.equals(logininfor.getLoginLocation()))
+        {
+            String location = locationResolver.cached(logininfor.getIpaddr());
+            if (location != null)
+            {
+                logininfor.setLoginLocation(location);
+            }
+        }
+    }
+
+    private void insertOper(SysOperLog operLog)
+    {
+        try
+        {
+            operLogService.batchInsertOperlog(Collections.singletonList(operLog));
+            rowsWritten.incrementAndGet();
+        }
+        catch (Exception e)
+        {
+            rowsFailed.incrementAndGet();
+            log.error("操作日志写入失败: {}", e.getMessage());
+        }
+    }
+
+    private void insertLogininfor(SysLogininfor logininfor)
+    {
+        try
+        {
+            logininforService.batchInsertLogininfor(Collections.singletonList(logininfor));
+            rowsWritten.incrementAndGet();
+        }
+        catch (Exception e)
+        {
+            rowsFailed.incrementAndGet();
+            log.error("登录日志写入失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 停止写入线程并排空缓冲区，之后的日志改为同步写入
+     */
+    public void shutdown()
+    {
+        if (!running)
+        {
+            return;
+        }
+        // 先停止归属地查询，已完成的查询结果由写入线程排空时回填
+        locationResolver.shutdown();
+        running = false;
+        LockSupport.unpark(writerThread);
+        try
+        {
+            writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive())
+        {
+            log.warn("日志批量写入线程未在 {}ms 内退出, 剩余 {} 条", SHUTDOWN_TIMEOUT_MILLIS,
+                    operBuffer.size() + logininforBuffer.size());
+        }
+    }
+
+    /**
+     * 写入器运行指标
+     */
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        long batchCount = batches.get();
+        stats.put("running", running);
+        stats.put("capacity", operBuffer.capacity());
+        stats.put("batchSize", batchSize);
+        stats.put("flushInterval", flushInterval);
+        stats.put("overflowPolicy", overflowPolicy);
+        stats.put("operDepth", operBuffer.size());
+        stats.put("logininforDepth", logininforBuffer.size());
+        stats.put("maxDepth", maxDepth);
+        stats.put("operEnqueued", operEnqueued.get());
+        stats.put("operDropped", operDropped.get());
+        stats.put("logininforEnqueued", logininforEnqueued.get());
+        stats.put("logininforDropped", logininforDropped.get());
+        stats.put("callerRuns", callerRuns.get());
+        stats.put("batches", batchCount);
+        stats.put("rowsWritten", rowsWritten.get());
+        stats.put("rowsFailed", rowsFailed.get());
+        stats.put("avgBatchRows", batchCount == 0 ? 0 : rowsWritten.get() / batchCount);
+        stats.put("lastFlushCostMillis", lastFlushCostMillis);
+        stats.put("locationFills", locationFills.get());
+        stats.putAll(locationResolver.getStats());
+        return stats;
+    }
+}
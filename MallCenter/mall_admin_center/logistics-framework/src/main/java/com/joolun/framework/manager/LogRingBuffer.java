@@ -0,0 +1,137 @@
+package com.joolun.framework.manager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形缓冲区（多生产者单消费者）
+ *
+ * 每个槽位携带序号，生产者通过CAS抢占写入位置，消费者按序号判断槽位是否已发布，
+ * 入队与出队均不加锁；缓冲区满时 offer 立即返回 false，由调用方决定溢出策略。
+ *
+ * @author ruoyi
+ */
+public class LogRingBuffer<E>
+{
+    private final int capacity;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> elements;
+
+    /** 槽位序号：等于写位置表示可写，等于写位置+1表示已发布可读 */
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public LogRingBuffer(int capacity)
+    {
+        if (capacity < 2)
+        {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.elements = new AtomicReferenceArray<E>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++)
+        {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队，可由任意线程调用
+     *
+     * @param e 元素
+     * @return 缓冲区已满时返回 false
+     */
+    public boolean offer(E e)
+    {
+        while (true)
+        {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0)
+            {
+                if (tail.compareAndSet(pos, pos + 1))
+                {
+                    elements.lazySet(index, e);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            }
+            else if (diff < 0)
+            {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * 出队，仅允许单个消费者线程调用
+     *
+     * @return 队首元素，为空时返回 null
+     */
+    public E poll()
+    {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1)
+        {
+            return null;
+        }
+        E e = elements.get(index);
+        elements.lazySet(index, null);
+        head.lazySet(pos + 1);
+        sequences.set(index, pos + capacity);
+        return e;
+    }
+
+    /**
+     * 批量出队，仅允许单个消费者线程调用
+     *
+     * @param target 目标列表
+     * @param max 最大出队数量
+     * @return 实际出队数量
+     */
+    public int drainTo(List<E> target, int max)
+    {
+        int count = 0;
+        E e;
+        while (count < max && (e = poll()) != null)
+        {
+            target.add(e);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 当前积压数量（近似值）
+     */
+    public int size()
+    {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+}
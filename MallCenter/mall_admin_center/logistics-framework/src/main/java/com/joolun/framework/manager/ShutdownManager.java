@@ -2,8 +2,10 @@ package com.joolun.framework.manager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import jakarta.annotation.PreDestroy;
+import com.joolun.framework.web.service.TokenSessionCache;
 
 /**
  * 确保应用退出时能关闭后台线程
@@ -15,10 +17,18 @@ public class ShutdownManager
 {
     private static final Logger logger = LoggerFactory.getLogger("sys-user");
 
+    @Autowired
+    private LogBatchWriter logBatchWriter;
+
+    @Autowired
+    private TokenSessionCache tokenSessionCache;
+
     @PreDestroy
     public void destroy()
     {
         shutdownAsyncManager();
+        shutdownLogBatchWriter();
+        shutdownTokenSessionCache();
     }
 
     /**
@@ -36,4 +46,36 @@ public class ShutdownManager
             logger.error(e.getMessage(), e);
         }
     }
+
+    /**
+     * 排空日志批量写入缓冲区（在异步任务线程池关闭之后，确保其产生的登录日志一并落库）
+     */
+    private void shutdownLogBatchWriter()
+    {
+        try
+        {
+            logger.info("====排空日志批量写入缓冲区====");
+            logBatchWriter.shutdown();
+        }
+        catch (Exception e)
+        {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写回尚未落入 Redis 的会话续期
+     */
+    private void shutdownTokenSessionCache()
+    {
+        try
+        {
+            logger.info("====写回登录会话续期====");
+            tokenSessionCache.shutdown();
+        }
+        catch (Exception e)
+        {
+            logger.error(e.getMessage(), e);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.joolun.framework.manager.factory;
 
+import java.util.Date;
 import java.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,13 +8,11 @@ import com.joolun.common.constant.Constants;
 import com.joolun.common.utils.LogUtils;
 import com.joolun.common.utils.ServletUtils;
 import com.joolun.common.utils.StringUtils;
-import com.joolun.common.utils.ip.AddressUtils;
 import com.joolun.common.utils.ip.IpUtils;
 import com.joolun.common.utils.spring.SpringUtils;
+import com.joolun.framework.manager.LogBatchWriter;
 import com.joolun.system.domain.SysLogininfor;
 import com.joolun.system.domain.SysOperLog;
-import com.joolun.system.service.ISysLogininforService;
-import com.joolun.system.service.ISysOperLogService;
 import eu.bitwalker.useragentutils.UserAgent;
 
 /**
@@ -28,56 +27,48 @@ public class AsyncFactory
     /**
      * 记录登录信息
      * 
+     * 直接放入日志批量写入缓冲区，不再为每条登录日志调度异步任务；归属地由写入器异步查询后回填
+     * 
      * @param username 用户名
      * @param status 状态
      * @param message 消息
      * @param args 列表
-     * @return 任务task
      */
-    public static TimerTask recordLogininfor(final String username, final String status, final String message,
+    public static void recordLogininfor(final String username, final String status, final String message,
             final Object... args)
     {
         final UserAgent userAgent = UserAgent.parseUserAgentString(ServletUtils.getRequest().getHeader("User-Agent"));
         final String ip = IpUtils.getIpAddr();
-        return new TimerTask()
+        StringBuilder s = new StringBuilder();
+        s.append(LogUtils.getBlock(ip));
+        s.append(LogUtils.getBlock(username));
+        s.append(LogUtils.getBlock(status));
+        s.append(LogUtils.getBlock(message));
+        // 打印信息到日志
+        sys_user_logger.info(s.toString(), args);
+        // 获取客户端操作系统
+        String os = userAgent.getOperatingSystem().getName();
+        // 获取客户端浏览器
+        String browser = userAgent.getBrowser().getName();
+        // 封装对象
+        SysLogininfor logininfor = new SysLogininfor();
+        logininfor.setUserName(username);
+        logininfor.setIpaddr(ip);
+        logininfor.setBrowser(browser);
+        logininfor.setOs(os);
+        logininfor.setMsg(message);
+        logininfor.setLoginTime(new Date());
+        // 日志状态
+        if (StringUtils.equalsAny(status, Constants.LOGIN_SUCCESS, Constants.LOGOUT, Constants.REGISTER))
         {
-            @Override
-            public void run()
-            {
-                String address = AddressUtils.getRealAddressByIP(ip);
-                StringBuilder s = new StringBuilder();
-                s.append(LogUtils.getBlock(ip));
-                s.append(address);
-                s.append(LogUtils.getBlock(username));
-                s.append(LogUtils.getBlock(status));
-                s.append(LogUtils.getBlock(message));
-                // 打印信息到日志
-                sys_user_logger.info(s.toString(), args);
-                // 获取客户端操作系统
-                String os = userAgent.getOperatingSystem().getName();
-                // 获取客户端浏览器
-                String browser = userAgent.getBrowser().getName();
-                // 封装对象
-                SysLogininfor logininfor = new SysLogininfor();
-                logininfor.setUserName(username);
-                logininfor.setIpaddr(ip);
-                logininfor.setLoginLocation(address);
-                logininfor.setBrowser(browser);
-                logininfor.setOs(os);
-                logininfor.setMsg(message);
-                // 日志状态
-                if (StringUtils.equalsAny(status, Constants.LOGIN_SUCCESS, Constants.LOGOUT, Constants.REGISTER))
-                {
-                    logininfor.setStatus(Constants.SUCCESS);
-                }
-                else if (Constants.LOGIN_FAIL.equals(status))
-                {
-                    logininfor.setStatus(Constants.FAIL);
-                }
-                // 插入数据
-                SpringUtils.getBean(ISysLogininforService.class).insertLogininfor(logininfor);
-            }
-        };
+            logininfor.setStatus(Constants.SUCCESS);
+        }
+        else if (Constants.LOGIN_FAIL.equals(status))
+        {
+            logininfor.setStatus(Constants.FAIL);
+        }
+        // 放入批量写入缓冲区
+        SpringUtils.getBean(LogBatchWriter.class).recordLogininfor(logininfor);
     }
 
     /**
@@ -93,9 +84,8 @@ public class AsyncFactory
             @Override
             public void run()
             {
-                // 远程查询操作地点
-                operLog.setOperLocation(AddressUtils.getRealAddressByIP(operLog.getOperIp()));
-                SpringUtils.getBean(ISysOperLogService.class).insertOperlog(operLog);
+                // 操作地点由批量写入线程查询
+                SpringUtils.getBean(LogBatchWriter.class).recordOper(operLog);
             }
         };
     }
@@ -15,7 +15,6 @@ import com.joolun.common.core.domain.model.LoginUser;
 import com.joolun.common.utils.MessageUtils;
 import com.joolun.common.utils.ServletUtils;
 import com.joolun.common.utils.StringUtils;
-import com.joolun.framework.manager.AsyncManager;
 import com.joolun.framework.manager.factory.AsyncFactory;
 import com.joolun.framework.web.service.TokenService;
 
@@ -46,7 +45,7 @@ public class LogoutSuccessHandlerImpl implements LogoutSuccessHandler
             // 删除用户缓存记录
             tokenService.delLoginUser(loginUser.getToken());
             // 记录用户退出日志
-            AsyncManager.me().execute(AsyncFactory.recordLogininfor(userName, Constants.LOGOUT, MessageUtils.message("user.logout.success")));
+            AsyncFactory.recordLogininfor(userName, Constants.LOGOUT, MessageUtils.message("user.logout.success"));
         }
         ServletUtils.renderString(response, JSON.toJSONString(AjaxResult.success(MessageUtils.message("user.logout.success"))));
     }
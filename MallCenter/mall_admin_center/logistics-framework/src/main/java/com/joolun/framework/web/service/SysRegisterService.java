@@ -13,7 +13,6 @@ import com.joolun.common.exception.user.CaptchaExpireException;
 import com.joolun.common.utils.MessageUtils;
 import com.joolun.common.utils.SecurityUtils;
 import com.joolun.common.utils.StringUtils;
-import com.joolun.framework.manager.AsyncManager;
 import com.joolun.framework.manager.factory.AsyncFactory;
 import com.joolun.system.service.ISysConfigService;
 import com.joolun.system.service.ISysUserService;
@@ -84,7 +83,7 @@ public class SysRegisterService
             }
             else
             {
-                AsyncManager.me().execute(AsyncFactory.recordLogininfor(username, Constants.REGISTER, MessageUtils.message("user.register.success")));
+                AsyncFactory.recordLogininfor(username, Constants.REGISTER, MessageUtils.message("user.register.success"));
             }
         }
         return msg;
@@ -54,6 +54,9 @@ public class TokenService
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private TokenSessionCache sessionCache;
+
     /**
      * 获取用户身份信息
      *
@@ -67,12 +70,10 @@ public class TokenService
         {
             try
             {
-                Claims claims = parseToken(token);
-                // 解析对应的权限以及用户信息
-                String uuid = (String) claims.get(Constants.LOGIN_USER_KEY);
-                String userKey = getTokenKey(uuid);
-                LoginUser user = redisCache.getCacheObject(userKey);
-                return user;
+                // 解析对应的权限以及用户信息（优先本地缓存）
+                String uuid = sessionCache.resolveUuid(token,
+                        t -> (String) parseToken(t).get(Constants.LOGIN_USER_KEY));
+                return sessionCache.get(uuid);
             }
             catch (Exception e)
             {
@@ -83,13 +84,15 @@ public class TokenService
     }
 
     /**
-     * 设置用户身份信息
+     * 设置用户身份信息（权限变更等），其他实例的本地缓存随之失效
      */
     public void setLoginUser(LoginUser loginUser)
     {
         if (StringUtils.isNotNull(loginUser) && StringUtils.isNotEmpty(loginUser.getToken()))
         {
             refreshToken(loginUser);
+            sessionCache.invalidate(loginUser.getToken());
+            sessionCache.put(loginUser);
         }
     }
 
@@ -102,9 +105,18 @@ public class TokenService
         {
             String userKey = getTokenKey(token);
             redisCache.deleteObject(userKey);
+            sessionCache.invalidate(token);
         }
     }
 
+    /**
+     * 使全部实例的本地登录会话缓存失效（批量清理登录令牌后调用）
+     */
+    public void invalidateAllLoginUsers()
+    {
+        sessionCache.invalidateAll();
+    }
+
     /**
      * 创建令牌
      *
@@ -125,6 +137,7 @@ public class TokenService
 
     /**
      * 验证令牌有效期，相差不足20分钟，自动刷新缓存
+     * 启用本地缓存时只更新本地有效期，由后台批量写回 Redis
      *
      * @param loginUser
      * @return 令牌
@@ -135,7 +148,15 @@ public class TokenService
         long currentTime = System.currentTimeMillis();
         if (expireTime - currentTime <= MILLIS_MINUTE_TEN)
         {
-            refreshToken(loginUser);
+            if (sessionCache.isEnabled())
+            {
+                extendExpireTime(loginUser);
+                sessionCache.scheduleRefresh(loginUser);
+            }
+            else
+            {
+                refreshToken(loginUser);
+            }
         }
     }
 
@@ -146,11 +167,17 @@ public class TokenService
      */
     public void refreshToken(LoginUser loginUser)
     {
-        loginUser.setLoginTime(System.currentTimeMillis());
-        loginUser.setExpireTime(loginUser.getLoginTime() + expireTime * MILLIS_MINUTE);
+        extendExpireTime(loginUser);
         // 根据uuid将loginUser缓存
         String userKey = getTokenKey(loginUser.getToken());
         redisCache.setCacheObject(userKey, loginUser, expireTime, TimeUnit.MINUTES);
+        sessionCache.put(loginUser);
+    }
+
+    private void extendExpireTime(LoginUser loginUser)
+    {
+        loginUser.setLoginTime(System.currentTimeMillis());
+        loginUser.setExpireTime(loginUser.getLoginTime() + expireTime * MILLIS_MINUTE);
     }
 
     /**
@@ -0,0 +1,534 @@
+package com.joolun.framework.web.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import com.joolun.common.constant.CacheConstants;
+import com.joolun.common.core.domain.entity.SysUser;
+import com.joolun.common.core.domain.model.LoginUser;
+import com.joolun.common.utils.bean.BeanUtils;
+import com.joolun.common.utils.uuid.IdUtils;
+
+/**
+ * 登录会话本地缓存（L1）
+ *
+ * 按令牌 uuid 在进程内缓存 {@link LoginUser}，并缓存 JWT 串到 uuid 的解析结果，
+ * 稳态下一次认证请求只有两次本地 Map 查找，不再访问 Redis、不再验签和反序列化。
+ * - 退出登录、强退、权限变更时删除本地条目并通过 Redis 发布/订阅通知其他实例
+ * - 本地条目最长存活 localTtl 秒，作为丢失失效消息时的兜底；登录已过期的条目直接视为未命中
+ * - 本地条目是只读快照：写入时复制，读取时返回副本，请求内修改 LoginUser 不会影响其他请求，
+ *   只有经 {@link TokenService#setLoginUser} / refreshToken 写回后才替换快照
+ * - 有效期续期以新有效期替换本地快照并登记，由后台线程按 refreshFlushInterval 批量写回 Redis
+ *   （仅在键仍存在时写入，不会复活已退出的会话）
+ * - 条目数超过 maxSize 时淘汰最久未访问的条目
+ *
+ * @author ruoyi
+ */
+@Component
+public class TokenSessionCache
+{
+    private static final Logger log = LoggerFactory.getLogger(TokenSessionCache.class);
+
+    /** 会话失效广播频道，消息格式: 发送实例ID|uuid，uuid 为 * 表示全部 */
+    public static final String INVALIDATE_CHANNEL = "login_tokens:invalidate";
+
+    private static final String ALL = "*";
+
+    @Value("${token.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${token.cache.maxSize:10000}")
+    private int maxSize;
+
+    @Value("${token.cache.localTtl:60}")
+    private long localTtlSeconds;
+
+    @Value("${token.cache.refreshFlushInterval:1000}")
+    private long refreshFlushInterval;
+
+    @Value("${token.expireTime}")
+    private int expireTime;
+
+    @Autowired
+    private RedisTemplate<Object, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final String nodeId = IdUtils.fastSimpleUUID();
+
+    private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<String, Entry>();
+
+    /** JWT 串 -> uuid（已验签） */
+    private final ConcurrentHashMap<String, String> tokenIds = new ConcurrentHashMap<String, String>();
+
+    /** 待写回 Redis 的续期会话 */
+    private final ConcurrentHashMap<String, LoginUser> pendingRefresh = new ConcurrentHashMap<String, LoginUser>();
+
+    private ScheduledExecutorService flusher;
+
+    /** 每次失效递增；加载期间发生过失效的结果不写入本地 */
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong loadNulls = new AtomicLong();
+
+    private final AtomicLong tokenParseHits = new AtomicLong();
+
+    private final AtomicLong tokenParses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong invalidationsSent = new AtomicLong();
+
+    private final AtomicLong invalidationsReceived = new AtomicLong();
+
+    private final AtomicLong refreshQueued = new AtomicLong();
+
+    private final AtomicLong refreshWritten = new AtomicLong();
+
+    private final AtomicLong refreshFlushes = new AtomicLong();
+
+    private final AtomicLong refreshFailed = new AtomicLong();
+
+    private volatile long lastFlushCostMillis;
+
+    private static final class Entry
+    {
+        /** 快照，创建后不再修改 */
+        final LoginUser user;
+
+        final long loadedAt;
+
+        volatile long lastAccess;
+
+        Entry(LoginUser user, long loadedAt, long lastAccess)
+        {
+            this.user = user;
+            this.loadedAt = loadedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if (!enabled)
+        {
+            log.info("登录会话本地缓存未启用");
+            return;
+        }
+        listenerContainer.addMessageListener((message, pattern) -> onInvalidate(
+                new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(INVALIDATE_CHANNEL));
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-refresh-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, refreshFlushInterval, refreshFlushInterval,
+                TimeUnit.MILLISECONDS);
+        log.info("登录会话本地缓存启动, maxSize={}, localTtl={}s, refreshFlushInterval={}ms",
+                maxSize, localTtlSeconds, refreshFlushInterval);
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * JWT 串解析为 uuid，已解析过的直接返回
+     *
+     * @param token JWT 串
+     * @param parser 验签并取出 uuid，失败时抛出异常
+     */
+    public String resolveUuid(String token, Function<String, String> parser)
+    {
+        if (!enabled)
+        {
+            return parser.apply(token);
+        }
+        String uuid = tokenIds.get(token);
+        if (uuid != null)
+        {
+            tokenParseHits.incrementAndGet();
+            return uuid;
+        }
+        tokenParses.incrementAndGet();
+        uuid = parser.apply(token);
+        if (uuid != null)
+        {
+            if (tokenIds.size() >= maxSize)
+            {
+                // JWT 映射没有访问时间，超限时整体清空，代价只是重新验签
+                tokenIds.clear();
+            }
+            tokenIds.put(token, uuid);
+        }
+        return uuid;
+    }
+
+    /**
+     * 取会话，本地未命中或已过期时从 Redis 加载
+     *
+     * @return 调用方独占的副本，修改后需通过 {@link #put} 写回才对其他请求可见
+     */
+    public LoginUser get(String uuid)
+    {
+        if (!enabled)
+        {
+            return load(uuid);
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = sessions.get(uuid);
+        if (entry != null && isFresh(entry, now))
+        {
+            entry.lastAccess = now;
+            hits.incrementAndGet();
+            return copyOf(entry.user);
+        }
+        misses.incrementAndGet();
+        long epoch = invalidationEpoch.get();
+        LoginUser user = load(uuid);
+        if (user == null)
+        {
+            loadNulls.incrementAndGet();
+            sessions.remove(uuid);
+            return null;
+        }
+        if (epoch == invalidationEpoch.get())
+        {
+            put(user);
+        }
+        return user;
+    }
+
+    /**
+     * 写入本地条目（Redis 已同步写入之后调用），保存的是副本，调用方之后的修改不影响缓存
+     */
+    public void put(LoginUser user)
+    {
+        if (!enabled || user.getToken() == null)
+        {
+            return;
+        }
+        if (sessions.size() >= maxSize && !sessions.containsKey(user.getToken()))
+        {
+            evict();
+        }
+        long now = System.currentTimeMillis();
+        sessions.put(user.getToken(), new Entry(copyOf(user), now, now));
+    }
+
+    /**
+     * 登记续期，由后台线程批量写回 Redis
+     *
+     * 只取调用方副本上的新有效期，套用到当前快照上生成新快照：请求内对副本的其他修改
+     * 不会随续期写回，期间其他请求经 setLoginUser 写入的资料也不会被覆盖。
+     * 本地条目已失效（退出、强退）时不登记。
+     *
+     * @param user 已更新 loginTime / expireTime 的副本
+     */
+    public void scheduleRefresh(LoginUser user)
+    {
+        Entry renewed = sessions.computeIfPresent(user.getToken(), (uuid, entry) -> {
+            LoginUser snapshot = copyOf(entry.user);
+            snapshot.setLoginTime(user.getLoginTime());
+            snapshot.setExpireTime(user.getExpireTime());
+            return new Entry(snapshot, entry.loadedAt, entry.lastAccess);
+        });
+        if (renewed != null)
+        {
+            pendingRefresh.put(user.getToken(), renewed.user);
+            refreshQueued.incrementAndGet();
+        }
+    }
+
+    /**
+     * 删除本地会话并通知其他实例
+     */
+    public void invalidate(String uuid)
+    {
+        evictLocal(uuid);
+        publish(uuid);
+    }
+
+    /**
+     * 清空全部实例的本地会话（如批量清理登录令牌缓存后）
+     */
+    public void invalidateAll()
+    {
+        clearLocal();
+        publish(ALL);
+    }
+
+    private void publish(String uuid)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        try
+        {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + "|" + uuid);
+            invalidationsSent.incrementAndGet();
+        }
+        catch (Exception e)
+        {
+            // 其他实例最迟在 localTtl 后重新加载
+            log.warn("会话失效广播失败, uuid={}: {}", uuid, e.getMessage());
+        }
+    }
+
+    private void onInvalidate(String message)
+    {
+        int sep = message.indexOf('|');
+        if (sep < 0 || nodeId.equals(message.substring(0, sep)))
+        {
+            return;
+        }
+        invalidationsReceived.incrementAndGet();
+        String uuid = message.substring(sep + 1);
+        if (ALL.equals(uuid))
+        {
+            clearLocal();
+        }
+        else
+        {
+            evictLocal(uuid);
+        }
+    }
+
+    private void evictLocal(String uuid)
+    {
+        invalidationEpoch.incrementAndGet();
+        sessions.remove(uuid);
+        pendingRefresh.remove(uuid);
+        tokenIds.values().remove(uuid);
+    }
+
+    private void clearLocal()
+    {
+        invalidationEpoch.incrementAndGet();
+        sessions.clear();
+        pendingRefresh.clear();
+        tokenIds.clear();
+    }
+
+    private boolean isFresh(Entry entry, long now)
+    {
+        Long userExpire = entry.user.getExpireTime();
+        if (userExpire != null && userExpire <= now)
+        {
+            return false;
+        }
+        return now - entry.loadedAt < TimeUnit.SECONDS.toMillis(localTtlSeconds);
+    }
+
+    /**
+     * 先清理过期条目，仍超限时淘汰最久未访问的 1/10
+     */
+    private synchronized void evict()
+    {
+        if (sessions.size() < maxSize)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int before = sessions.size();
+        sessions.entrySet().removeIf(e -> !isFresh(e.getValue(), now));
+        if (sessions.size() >= maxSize)
+        {
+            List<Map.Entry<String, Entry>> entries = new ArrayList<Map.Entry<String, Entry>>(sessions.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            int target = Math.max(1, maxSize / 10);
+            for (int i = 0; i < target && i < entries.size(); i++)
+            {
+                sessions.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+        evictions.addAndGet(before - sessions.size());
+    }
+
+    /**
+     * 复制会话：LoginUser、权限集合与 SysUser 各自新建，角色、部门等关联对象仍共享（请求内不修改）
+     */
+    private static LoginUser copyOf(LoginUser source)
+    {
+        LoginUser copy = new LoginUser();
+        BeanUtils.copyProperties(source, copy);
+        if (source.getPermissions() != null)
+        {
+            copy.setPermissions(new HashSet<String>(source.getPermissions()));
+        }
+        if (source.getUser() != null)
+        {
+            SysUser user = new SysUser();
+            BeanUtils.copyProperties(source.getUser(), user);
+            copy.setUser(user);
+        }
+        return copy;
+    }
+
+    private LoginUser load(String uuid)
+    {
+        Object value = redisTemplate.opsForValue().get(CacheConstants.LOGIN_TOKEN_KEY + uuid);
+        return (LoginUser) value;
+    }
+
+    private void flushSafely()
+    {
+        try
+        {
+            flush();
+        }
+        catch (Throwable t)
+        {
+            log.error("会话续期写回异常", t);
+        }
+    }
+
+    /**
+     * 批量写回续期会话（管道执行，键不存在时不写入）
+     */
+    public void flush()
+    {
+        if (pendingRefresh.isEmpty())
+        {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<LoginUser> batch = new ArrayList<LoginUser>(pendingRefresh.size());
+        for (String uuid : new ArrayList<String>(pendingRefresh.keySet()))
+        {
+            LoginUser user = pendingRefresh.remove(uuid);
+            if (user != null)
+            {
+                batch.add(user);
+            }
+        }
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            redisTemplate.executePipelined(new SessionCallback<Object>()
+            {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations)
+                {
+                    RedisOperations<Object, Object> ops = (RedisOperations<Object, Object>) operations;
+                    for (LoginUser user : batch)
+                    {
+                        ops.opsForValue().setIfPresent(CacheConstants.LOGIN_TOKEN_KEY + user.getToken(), user,
+                                expireTime, TimeUnit.MINUTES);
+                    }
+                    return null;
+                }
+            });
+            refreshWritten.addAndGet(batch.size());
+        }
+        catch (Exception e)
+        {
+            refreshFailed.addAndGet(batch.size());
+            log.warn("会话续期批量写回失败, {} 条下次重试: {}", batch.size(), e.getMessage());
+            for (LoginUser user : batch)
+            {
+                // 期间已有新的续期或已失效的不再放回
+                if (sessions.containsKey(user.getToken()))
+                {
+                    pendingRefresh.putIfAbsent(user.getToken(), user);
+                }
+            }
+        }
+        finally
+        {
+            refreshFlushes.incrementAndGet();
+            lastFlushCostMillis = System.currentTimeMillis() - start;
+        }
+    }
+
+    /**
+     * 停止后台线程并写回剩余续期
+     */
+    public void shutdown()
+    {
+        if (flusher == null)
+        {
+            return;
+        }
+        flusher.shutdown();
+        try
+        {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    /**
+     * 缓存运行指标
+     */
+    public Map<String, Object> getStats()
+    {
+        Map<String, Object> stats = new LinkedHashMap<String, Object>();
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        long parseHits = tokenParseHits.get();
+        long parseLookups = parseHits + tokenParses.get();
+        stats.put("enabled", enabled);
+        stats.put("nodeId", nodeId);
+        stats.put("maxSize", maxSize);
+        stats.put("localTtl", localTtlSeconds);
+        stats.put("size", sessions.size());
+        stats.put("tokenIdSize", tokenIds.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups == 0 ? 0 : (double) hitCount / lookups);
+        stats.put("loadNulls", loadNulls.get());
+        stats.put("tokenParseHitRate", parseLookups == 0 ? 0 : (double) parseHits / parseLookups);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidationsSent", invalidationsSent.get());
+        stats.put("invalidationsReceived", invalidationsReceived.get());
+        stats.put("refreshPending", pendingRefresh.size());
+        stats.put("refreshQueued", refreshQueued.get());
+        stats.put("refreshWritten", refreshWritten.get());
+        stats.put("refreshFlushes", refreshFlushes.get());
+        stats.put("refreshFailed", refreshFailed.get());
+        stats.put("lastFlushCostMillis", lastFlushCostMillis);
+        return stats;
+    }
+}
@@ -0,0 +1,57 @@
+package com.joolun.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * CTR 模型在线学习配置
+ *
+ * 点击反馈先进入队列，按小批量批量查询商品、每个用户只构建一次特征后做 FTRL-Proximal 更新；
+ * 每个小批量结束发布一次权重快照供打分使用，模型状态按固定间隔以二进制检查点写入 Redis。
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mall.recommend.ctr")
+public class CtrLearningConfig {
+
+    /**
+     * FTRL 学习率参数 alpha
+     */
+    private double alpha = 0.05;
+
+    /**
+     * FTRL 学习率平滑参数 beta
+     */
+    private double beta = 1.0;
+
+    /**
+     * L1 正则系数
+     */
+    private double l1 = 0.0;
+
+    /**
+     * L2 正则系数
+     */
+    private double l2 = 0.001;
+
+    /**
+     * 小批量大小
+     */
+    private int batchSize = 256;
+
+    /**
+     * 反馈队列长度，队列满时丢弃新反馈
+     */
+    private int queueCapacity = 20000;
+
+    /**
+     * 反馈队列定时训练间隔（毫秒），不足一个小批量的反馈也在此时训练
+     */
+    private long flushInterval = 1000;
+
+    /**
+     * 检查点写入间隔（毫秒），模型无更新时跳过
+     */
+    private long checkpointInterval = 60000;
+}
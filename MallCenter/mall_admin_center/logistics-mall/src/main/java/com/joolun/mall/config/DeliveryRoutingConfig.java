@@ -0,0 +1,58 @@
+package com.joolun.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配送路径规划配置
+ *
+ * 批量调度把订单与车辆建成带容量与时间窗的车辆路径问题，由节约算法构造初始解，
+ * 再在时间预算内多线程做自适应大邻域搜索与局部搜索。
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mall.delivery.routing")
+public class DeliveryRoutingConfig {
+
+    /**
+     * 仓库坐标，所有路线由此出发并返回
+     */
+    private double depotLat = 31.2304;
+    private double depotLng = 121.4737;
+
+    /**
+     * 平均车速（公里/小时）
+     */
+    private double speedKmh = 30;
+
+    /**
+     * 每单服务时长（分钟）
+     */
+    private double serviceMinutes = 10;
+
+    /**
+     * 规划时长（分钟），从规划起点起算，车辆须在此之前回仓；没有时间窗或时间窗已过期的订单按此区间处理
+     */
+    private int horizonMinutes = 720;
+
+    /**
+     * 规划起点相对最早时间窗的提前量（分钟），用于次日等未来日期的调度
+     */
+    private int leadMinutes = 60;
+
+    /**
+     * 求解时间预算（毫秒）
+     */
+    private long timeBudgetMs = 2000;
+
+    /**
+     * 并行重启线程数，不大于 0 时取 CPU 核数
+     */
+    private int threads = 0;
+
+    /**
+     * 无法安排的订单按 优先级 * 该值 计入目标（与公里同量纲），足够大时优先保证订单都被安排
+     */
+    private double unassignedPenalty = 1000;
+}
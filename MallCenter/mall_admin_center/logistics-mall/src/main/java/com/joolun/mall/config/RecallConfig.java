@@ -0,0 +1,64 @@
+package com.joolun.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 多路召回配置
+ *
+ * 每路召回有独立的延迟预算，超出预算的通道本次结果丢弃，只融合按时返回的通道；
+ * 整体等待不超过 deadlineMillis，召回延迟由预算决定而不是最慢的通道。
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mall.recommend.recall")
+public class RecallConfig {
+
+    /**
+     * 整体召回截止时间（毫秒）
+     */
+    private long deadlineMillis = 300;
+
+    /**
+     * 未单独配置的通道的默认预算（毫秒）
+     */
+    private long defaultBudgetMillis = 100;
+
+    /**
+     * 各通道预算（毫秒），key 为通道名：popularity、collaborative、category、recent_view、
+     * new_arrival、high_rating、semantic、cluster_rule
+     */
+    private Map<String, Long> budgets = new HashMap<>(Map.of(
+            "popularity", 20L,
+            "new_arrival", 20L,
+            "high_rating", 20L,
+            "category", 60L,
+            "recent_view", 60L,
+            "collaborative", 80L,
+            "cluster_rule", 80L,
+            "semantic", 300L));
+
+    /**
+     * 候选池刷新间隔（毫秒）
+     */
+    private long poolRefreshInterval = 60000;
+
+    /**
+     * 召回线程数
+     */
+    private int threads = 16;
+
+    /**
+     * 召回任务队列长度，队列满时该通道本次跳过
+     */
+    private int queueCapacity = 512;
+
+    public long budgetOf(String channel) {
+        Long budget = budgets.get(channel);
+        return budget != null ? budget : defaultBudgetMillis;
+    }
+}
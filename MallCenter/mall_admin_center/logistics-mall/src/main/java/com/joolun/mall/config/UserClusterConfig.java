@@ -0,0 +1,72 @@
+package com.joolun.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 用户聚类配置
+ *
+ * 全量聚类使用 k-means|| 初始化、小批量 k-means 预热与带三角不等式剪枝的并行 Lloyd 迭代；
+ * 两次全量聚类之间，新增画像按固定间隔增量分配到当前版本最近的聚类中心。
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mall.recommend.cluster")
+public class UserClusterConfig {
+
+    /**
+     * 聚类计算并行度，不大于 0 时取 CPU 核数
+     */
+    private int parallelism = 0;
+
+    /**
+     * k-means|| 采样轮数
+     */
+    private int initRounds = 5;
+
+    /**
+     * k-means|| 每轮期望采样数为 oversampling * k
+     */
+    private double oversampling = 2.0;
+
+    /**
+     * 用户数不少于该值时先做小批量 k-means 预热
+     */
+    private int miniBatchThreshold = 50000;
+
+    /**
+     * 小批量大小；启用小批量时，k-means|| 初始化只在 3 倍该大小的随机子样本上进行
+     */
+    private int miniBatchSize = 4096;
+
+    /**
+     * 小批量迭代次数
+     */
+    private int miniBatchIterations = 100;
+
+    /**
+     * 精确迭代最大次数
+     */
+    private int maxIterations = 100;
+
+    /**
+     * 收敛阈值：质心最大偏移量
+     */
+    private double convergenceThreshold = 0.001;
+
+    /**
+     * 新用户增量分配间隔（毫秒），不大于 0 时关闭
+     */
+    private long incrementalInterval = 600000;
+
+    /**
+     * 每次增量分配处理的最多画像数
+     */
+    private int incrementalBatchSize = 1000;
+
+    /**
+     * 分配结果批量写入大小
+     */
+    private int saveBatchSize = 500;
+}
@@ -12,6 +12,14 @@ public interface MallConstants {
 	 * 商品规格类型：0统一规格；1多规格
 	 */
 	String SPU_SPEC_TYPE_1 = "1";
+	/**
+	 * 商品上架状态：压测专用。不出现在上架商品列表、首页快照与搜索结果中，仅压测用户下单可购买
+	 */
+	String GOODS_SHELF_LOAD_TEST = "9";
+	/**
+	 * 压测用户ID前缀（秒杀压测造数），仅此类用户可购买压测专用商品
+	 */
+	String LOAD_TEST_USER_PREFIX = "flash-sim-";
 	/**
 	 * 收藏类型1、商品
 	 */
@@ -29,13 +37,77 @@ public interface MallConstants {
 	 */
 	long ORDER_TIME_OUT_2 = 7;
 	/**
-	 * redis订单key
+	 * redis订单key（旧版自动取消倒计时，已改为延时任务，仅启动迁移使用）
 	 */
 	String REDIS_ORDER_KEY_IS_PAY_0 = "mall:order:is_pay_0:";
 	/**
-	 * redis订单key
+	 * redis订单key（旧版自动收货倒计时，已改为延时任务，仅启动迁移使用）
 	 */
 	String REDIS_ORDER_KEY_STATUS_2 = "mall:order:status_2:";
+	/**
+	 * redis商品库存计数key前缀（+商品ID）
+	 */
+	String REDIS_STOCK_KEY = "mall:stock:spu:";
+	/**
+	 * redis已加载库存计数的商品ID集合
+	 */
+	String REDIS_STOCK_SPU_SET = "mall:stock:spus";
+	/**
+	 * redis订单库存预扣记录key前缀（+订单号），hash：商品ID -> 数量
+	 */
+	String REDIS_STOCK_RESERVATION_KEY = "mall:stock:reservation:";
+	/**
+	 * redis未落库预扣订单，zset：订单号 -> 预扣时间（毫秒）
+	 */
+	String REDIS_STOCK_PENDING_KEY = "mall:stock:pending";
+	/**
+	 * redis待加回库存记录key前缀（+记录ID），hash：商品ID -> 数量；MySQL 已回补/调整、Redis 计数尚未加回
+	 */
+	String REDIS_STOCK_RESTORE_KEY = "mall:stock:restore:";
+	/**
+	 * redis待加回库存记录，zset：记录ID -> 登记时间（毫秒）
+	 */
+	String REDIS_STOCK_RESTORING_KEY = "mall:stock:restoring";
+	/**
+	 * 延时任务：待执行 zset，任务ID -> 到期时间（毫秒）；任务ID = 类型:业务ID
+	 */
+	String REDIS_DELAY_QUEUE_KEY = "mall:delay:queue";
+	/**
+	 * 延时任务：已领取 zset，任务ID -> 租约到期时间（毫秒）
+	 */
+	String REDIS_DELAY_LEASE_KEY = "mall:delay:lease";
+	/**
+	 * 延时任务：领取记录 hash，任务ID -> 节点ID|到期时间
+	 */
+	String REDIS_DELAY_OWNER_KEY = "mall:delay:owner";
+	/**
+	 * 延时任务：失败次数 hash，任务ID -> 次数
+	 */
+	String REDIS_DELAY_ATTEMPTS_KEY = "mall:delay:attempts";
+	/**
+	 * 延时任务：超过重试次数的死信 zset，任务ID -> 进入时间（毫秒）
+	 */
+	String REDIS_DELAY_DEAD_KEY = "mall:delay:dead";
+	/**
+	 * 首页内容变更广播频道，通知其他节点重建首页快照、更新商品搜索索引
+	 */
+	String REDIS_HOME_CHANGED_CHANNEL = "mall:home:changed";
+	/**
+	 * 延时任务类型：未支付订单自动取消
+	 */
+	String DELAY_TASK_ORDER_CANCEL = "order_cancel";
+	/**
+	 * 延时任务类型：订单自动收货
+	 */
+	String DELAY_TASK_ORDER_RECEIVE = "order_receive";
+	/**
+	 * 延时任务类型：用户优惠券过期
+	 */
+	String DELAY_TASK_COUPON_EXPIRE = "coupon_expire";
+	/**
+	 * 延时任务类型：商家通知短信发送
+	 */
+	String DELAY_TASK_NOTIFICATION_SMS = "notification_sms";
 	/**
 	 * 应用类型1小程序
 	 */
@@ -159,6 +159,15 @@ public class DeliverySchedulingController {
         return R.ok(simulationService.getSimulationStats());
     }
 
+    @PostMapping("/simulation/routing-benchmark")
+    @Operation(summary = "路径规划基准测试", description = "生成 R/C/RC 三类带时间窗实例，对比逐单贪心、节约算法与 ALNS 的里程和耗时 (不落库)")
+    public R<Map<String, Object>> runRoutingBenchmark(
+            @RequestParam(defaultValue = "100") int customers,
+            @RequestParam(defaultValue = "2000") long timeBudgetMs,
+            @RequestParam(defaultValue = "0") int threads) {
+        return R.ok(simulationService.runRoutingBenchmark(customers, timeBudgetMs, threads));
+    }
+
     // ==================== 特征工程API ====================
 
     @GetMapping("/feature/stats")
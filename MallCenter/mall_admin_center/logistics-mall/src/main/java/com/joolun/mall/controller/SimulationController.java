@@ -1,11 +1,19 @@
 package com.joolun.mall.controller;
 
 import com.joolun.common.core.domain.R;
+import com.joolun.mall.service.CtrLearningSimulationService;
+import com.joolun.mall.service.DelayTaskSimulationService;
+import com.joolun.mall.service.FlashSaleSimulationService;
+import com.joolun.mall.service.GoodsSearchSimulationService;
+import com.joolun.mall.service.HomeSnapshotSimulationService;
+import com.joolun.mall.service.SearchSuggestSimulationService;
 import com.joolun.mall.service.SimulationDataGenerator;
+import com.joolun.mall.service.UserClusterSimulationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -24,6 +32,13 @@ import java.util.Map;
 public class SimulationController {
 
     private final SimulationDataGenerator simulationDataGenerator;
+    private final FlashSaleSimulationService flashSaleSimulationService;
+    private final DelayTaskSimulationService delayTaskSimulationService;
+    private final HomeSnapshotSimulationService homeSnapshotSimulationService;
+    private final GoodsSearchSimulationService goodsSearchSimulationService;
+    private final SearchSuggestSimulationService searchSuggestSimulationService;
+    private final CtrLearningSimulationService ctrLearningSimulationService;
+    private final UserClusterSimulationService userClusterSimulationService;
 
     /**
      * 生成完整模拟数据
@@ -121,4 +136,183 @@ public class SimulationController {
             return R.fail("获取生成统计失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 秒杀下单压测
+     * 默认 10000 个买家通过真实下单流程抢购 10 个压测专用商品，校验不超卖且 MySQL 与 Redis 库存一致
+     * 会写入订单等业务数据，需登录且具备压测权限；买家数上限 20000，并发上限 500
+     */
+    @PostMapping("/flash-sale")
+    @PreAuthorize("@ss.hasPermi('mall:simulation:benchmark')")
+    @Operation(summary = "秒杀下单压测", description = "临时上架少量商品，模拟大量买家并发走真实下单与落库流程，校验库存不超卖、MySQL 与 Redis 库存一致，并统计吞吐与耗时")
+    public R<Map<String, Object>> runFlashSale(
+            @RequestParam(defaultValue = "10000") int buyers,
+            @RequestParam(defaultValue = "10") int skus,
+            @RequestParam(defaultValue = "100") int stockPerSku,
+            @RequestParam(defaultValue = "200") int concurrency) {
+        try {
+            log.info("开始秒杀压测: buyers={}, skus={}, stockPerSku={}, concurrency={}", buyers, skus, stockPerSku, concurrency);
+
+            Map<String, Object> result = flashSaleSimulationService.runFlashSale(buyers, skus, stockPerSku, concurrency);
+
+            if (Boolean.TRUE.equals(result.get("oversold")) || Boolean.FALSE.equals(result.get("consistent"))) {
+                return R.fail(result, "秒杀压测发现库存不一致");
+            }
+            return R.ok(result, "秒杀压测完成，未超卖");
+        } catch (Exception e) {
+            log.error("秒杀压测失败", e);
+            return R.fail("秒杀压测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 延时任务压测
+     * 默认调度十万个任务，在 60 秒内均匀到期；使用独立队列，需登录且具备压测权限，任务数上限一百万
+     */
+    @PostMapping("/delay-task")
+    @PreAuthorize("@ss.hasPermi('mall:simulation:benchmark')")
+    @Operation(summary = "延时任务压测", description = "批量调度大量延时任务，统计调度/执行吞吐、到期延迟及重复与遗漏")
+    public R<Map<String, Object>> runDelayTaskLoad(
+            @RequestParam(defaultValue = "100000") int tasks,
+            @RequestParam(defaultValue = "60") int spreadSeconds,
+            @RequestParam(defaultValue = "120") int waitSeconds) {
+        try {
+            log.info("开始延时任务压测: tasks={}, spreadSeconds={}", tasks, spreadSeconds);
+
+            Map<String, Object> result = delayTaskSimulationService.runDelayTaskLoad(tasks, spreadSeconds, waitSeconds);
+
+            if (!Integer.valueOf(0).equals(result.get("missing"))) {
+                return R.fail(result, "延时任务压测存在未执行的任务");
+            }
+            return R.ok(result, "延时任务压测完成");
+        } catch (Exception e) {
+            log.error("延时任务压测失败", e);
+            return R.fail("延时任务压测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 首页接口压测
+     * 对比实时组装与快照读取的每秒请求数
+     * 实时组装会查询数据库，需登录且具备压测权限；快照请求上限一百万，并发上限 256
+     */
+    @PostMapping("/home-init")
+    @PreAuthorize("@ss.hasPermi('mall:simulation:benchmark')")
+    @Operation(summary = "首页接口压测", description = "同一并发下对比实时组装首页数据与读取预序列化快照的吞吐与耗时")
+    public R<Map<String, Object>> runHomeInitBenchmark(
+            @RequestParam(defaultValue = "2000") int assembleRequests,
+            @RequestParam(defaultValue = "200000") int snapshotRequests,
+            @RequestParam(defaultValue = "64") int concurrency) {
+        try {
+            log.info("开始首页接口压测: assembleRequests={}, snapshotRequests={}, concurrency={}",
+                    assembleRequests, snapshotRequests, concurrency);
+
+            Map<String, Object> result = homeSnapshotSimulationService.runHomeInitBenchmark(
+                    assembleRequests, snapshotRequests, concurrency);
+
+            return R.ok(result, "首页接口压测完成");
+        } catch (Exception e) {
+            log.error("首页接口压测失败", e);
+            return R.fail("首页接口压测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 商品搜索压测
+     * 默认十万个模拟商品，统计倒排索引查询延迟
+     * 需登录且具备压测权限；商品数与查询数上限二十万，并发上限 64
+     */
+    @PostMapping("/goods-search")
+    @PreAuthorize("@ss.hasPermi('mall:simulation:benchmark')")
+    @Operation(summary = "商品搜索压测", description = "构建模拟商品索引，并发执行汉字/拼音/多词查询，统计延迟分位数并与子串扫描对照")
+    public R<Map<String, Object>> runGoodsSearchBenchmark(
+            @RequestParam(defaultValue = "100000") int skus,
+            @RequestParam(defaultValue = "20000") int queries,
+            @RequestParam(defaultValue = "0") int concurrency) {
+        try {
+            log.info("开始商品搜索压测: skus={}, queries={}, concurrency={}", skus, queries, concurrency);
+
+            Map<String, Object> result = goodsSearchSimulationService.runSearchBenchmark(skus, queries, concurrency);
+
+            return R.ok(result, "商品搜索压测完成");
+        } catch (Exception e) {
+            log.error("商品搜索压测失败", e);
+            return R.fail("商品搜索压测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 搜索联想压测
+     * 默认一百万词条，统计前缀联想延迟
+     * 需登录且具备压测权限；词条数上限一百万，查询与增量更新数上限二十万
+     */
+    @PostMapping("/search-suggest")
+    @PreAuthorize("@ss.hasPermi('mall:simulation:benchmark')")
+    @Operation(summary = "搜索联想压测", description = "构建模拟联想词典，按汉字/全拼/首字母前缀统计联想延迟与权重累加耗时")
+    public R<Map<String, Object>> runSearchSuggestBenchmark(
+            @RequestParam(defaultValue = "1000000") int terms,
+            @RequestParam(defaultValue = "100000") int queries,
+            @RequestParam(defaultValue = "100000") int increments) {
+        try {
+            log.info("开始搜索联想压测: terms={}, queries={}, increments={}", terms, queries, increments);
+
+            Map<String, Object> result = searchSuggestSimulationService.runSuggestBenchmark(terms, queries, increments);
+
+            return R.ok(result, "搜索联想压测完成");
+        } catch (Exception e) {
+            log.error("搜索联想压测失败", e);
+            return R.fail("搜索联想压测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * CTR在线学习压测
+     * 默认一百万条模拟点击日志，对比SGD与FTRL的训练吞吐和留出集AUC
+     * 需登录且具备压测权限；样本数上限一百万，线程数不超过 CPU 核数
+     */
+    @PostMapping("/ctr-learning")
+    @PreAuthorize("@ss.hasPermi('mall:simulation:benchmark')")
+    @Operation(summary = "CTR在线学习压测", description = "生成模拟点击日志，对比SGD、FTRL单线程与多线程无锁训练的吞吐和AUC")
+    public R<Map<String, Object>> runCtrLearningBenchmark(
+            @RequestParam(defaultValue = "1000000") int samples,
+            @RequestParam(defaultValue = "0") int threads,
+            @RequestParam(defaultValue = "256") int batchSize) {
+        try {
+            log.info("开始CTR在线学习压测: samples={}, threads={}, batchSize={}", samples, threads, batchSize);
+
+            Map<String, Object> result = ctrLearningSimulationService.runLearningBenchmark(samples, threads, batchSize);
+
+            return R.ok(result, "CTR在线学习压测完成");
+        } catch (Exception e) {
+            log.error("CTR在线学习压测失败", e);
+            return R.fail("CTR在线学习压测失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 用户聚类压测
+     * 默认一百万模拟用户，对比旧版单线程K-Means与并行聚类引擎的耗时和簇内平方和
+     * 需登录且具备压测权限；用户数上限一百万，旧版基线用户数上限十万，并行度不超过 CPU 核数
+     */
+    @PostMapping("/user-cluster")
+    @PreAuthorize("@ss.hasPermi('mall:simulation:benchmark')")
+    @Operation(summary = "用户聚类压测", description = "生成模拟用户特征，对比旧版K-Means与k-means||初始化、小批量预热、剪枝并行Lloyd迭代的耗时，以及增量分配吞吐")
+    public R<Map<String, Object>> runUserClusterBenchmark(
+            @RequestParam(defaultValue = "1000000") int users,
+            @RequestParam(defaultValue = "6") int k,
+            @RequestParam(defaultValue = "0") int parallelism,
+            @RequestParam(defaultValue = "100000") int baselineUsers) {
+        try {
+            log.info("开始用户聚类压测: users={}, k={}, parallelism={}, baselineUsers={}",
+                    users, k, parallelism, baselineUsers);
+
+            Map<String, Object> result = userClusterSimulationService.runClusterBenchmark(
+                    users, k, parallelism, baselineUsers);
+
+            return R.ok(result, "用户聚类压测完成");
+        } catch (Exception e) {
+            log.error("用户聚类压测失败", e);
+            return R.fail("用户聚类压测失败: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package com.joolun.mall.dto;
+
+import lombok.Getter;
+
+/**
+ * 首页快照
+ * 预序列化的首页聚合响应（AjaxResult 格式的 UTF-8 JSON），构建后不可变
+ */
+@Getter
+public class HomeSnapshot {
+
+    /**
+     * 快照版本，内容变化时递增
+     */
+    private final long version;
+
+    /**
+     * 内容摘要，作为 HTTP ETag（含引号）
+     */
+    private final String etag;
+
+    /**
+     * 响应体
+     */
+    private final byte[] body;
+
+    /**
+     * 构建时间
+     */
+    private final long buildTime;
+
+    /**
+     * 构建时是否有模块加载失败（使用了默认值）
+     */
+    private final boolean degraded;
+
+    public HomeSnapshot(long version, String etag, byte[] body, long buildTime, boolean degraded) {
+        this.version = version;
+        this.etag = etag;
+        this.body = body;
+        this.buildTime = buildTime;
+        this.degraded = degraded;
+    }
+
+    /**
+     * 判断请求头 If-None-Match 是否命中当前快照
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package com.joolun.mall.event;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 商品变更事件
+ * 商品或分类写入后发布：触发搜索索引增量更新，同时作为首页内容变更触发首页快照重建
+ */
+@Getter
+public class GoodsChangedEvent extends HomeContentChangedEvent {
+
+    /**
+     * 变更的商品ID，为空表示范围未知（按更新时间增量同步）
+     */
+    private final List<String> spuIds;
+
+    /**
+     * 是否需要整体重建（分类名称等影响所有商品的变更）
+     */
+    private final boolean fullRebuild;
+
+    private GoodsChangedEvent(Object source, String reason, List<String> spuIds, boolean fullRebuild) {
+        super(source, reason);
+        this.spuIds = spuIds;
+        this.fullRebuild = fullRebuild;
+    }
+
+    /**
+     * 指定商品变更
+     */
+    public static GoodsChangedEvent ofSpus(Object source, String reason, Collection<String> spuIds) {
+        return new GoodsChangedEvent(source, reason, List.copyOf(spuIds), false);
+    }
+
+    /**
+     * 变更范围未知（如条件批量更新）
+     */
+    public static GoodsChangedEvent ofUnknown(Object source, String reason) {
+        return new GoodsChangedEvent(source, reason, Collections.emptyList(), false);
+    }
+
+    /**
+     * 分类变更
+     */
+    public static GoodsChangedEvent ofCategory(Object source, String reason) {
+        return new GoodsChangedEvent(source, reason, Collections.emptyList(), true);
+    }
+}
@@ -0,0 +1,112 @@
+package com.joolun.mall.event;
+
+import cn.hutool.core.util.IdUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.system.event.SysConfigChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 首页内容变更跨节点广播
+ * 首页快照与商品搜索索引缓存在各节点内存中，本地事件只刷新本节点。事务提交后把 HomeContentChangedEvent
+ * （含 GoodsChangedEvent）经 Redis 发布/订阅转发，其他节点收到后重新发布为本地事件。
+ * 广播失败或丢失时，其他节点最迟在定时刷新（首页快照 mall.home.snapshot.refreshInterval、
+ * 搜索索引 mall.search.syncInterval）后更新。
+ * mall.* 参数变更同样转为首页内容变更事件。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HomeContentBroadcaster {
+
+    private static final String MALL_CONFIG_PREFIX = "mall.";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> onMessage(
+                new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(MallConstants.REDIS_HOME_CHANGED_CHANNEL));
+    }
+
+    /**
+     * 参数配置变更：同步转为首页内容变更事件，调用方有事务时随事务提交后生效
+     */
+    @EventListener
+    public void onSysConfigChanged(SysConfigChangedEvent event) {
+        String key = event.getConfigKey();
+        if (key == null || key.startsWith(MALL_CONFIG_PREFIX)) {
+            eventPublisher.publishEvent(new HomeContentChangedEvent(event.getSource(),
+                    "config:" + (key == null ? "all" : key)));
+        }
+    }
+
+    /**
+     * 事务提交后转发到其他节点，无事务时立即转发；来自其他节点的事件不再转发
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHomeContentChanged(HomeContentChangedEvent event) {
+        if (event.getSource() == this) {
+            return;
+        }
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("node", nodeId);
+        message.put("reason", event.getReason());
+        if (event instanceof GoodsChangedEvent) {
+            GoodsChangedEvent goodsEvent = (GoodsChangedEvent) event;
+            message.put("goods", true);
+            message.put("fullRebuild", goodsEvent.isFullRebuild());
+            goodsEvent.getSpuIds().forEach(message.putArray("spuIds")::add);
+        }
+        try {
+            redisTemplate.convertAndSend(MallConstants.REDIS_HOME_CHANGED_CHANNEL, message.toString());
+        } catch (Exception e) {
+            log.warn("首页内容变更广播失败，其他节点等待定时刷新: reason={}, error={}", event.getReason(), e.getMessage());
+        }
+    }
+
+    private void onMessage(String body) {
+        try {
+            JsonNode message = objectMapper.readTree(body);
+            if (nodeId.equals(message.path("node").asText())) {
+                return;
+            }
+            String reason = "remote:" + message.path("reason").asText();
+            HomeContentChangedEvent event;
+            if (!message.path("goods").asBoolean()) {
+                event = new HomeContentChangedEvent(this, reason);
+            } else if (message.path("fullRebuild").asBoolean()) {
+                event = GoodsChangedEvent.ofCategory(this, reason);
+            } else {
+                List<String> spuIds = new ArrayList<>();
+                message.path("spuIds").forEach(id -> spuIds.add(id.asText()));
+                event = spuIds.isEmpty() ? GoodsChangedEvent.ofUnknown(this, reason)
+                        : GoodsChangedEvent.ofSpus(this, reason, spuIds);
+            }
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            log.warn("首页内容变更广播处理失败: message={}", body, e);
+        }
+    }
+}
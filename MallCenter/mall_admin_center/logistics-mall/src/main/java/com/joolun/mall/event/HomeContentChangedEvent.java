@@ -0,0 +1,23 @@
+package com.joolun.mall.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 首页内容变更事件
+ * 商品、分类、广告、装修配置及 mall.* 参数写入后发布，触发首页快照异步重建；
+ * 事务提交后由 {@link HomeContentBroadcaster} 转发到其他节点
+ */
+@Getter
+public class HomeContentChangedEvent extends ApplicationEvent {
+
+    /**
+     * 变更来源，仅用于日志
+     */
+    private final String reason;
+
+    public HomeContentChangedEvent(Object source, String reason) {
+        super(source);
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,44 @@
+package com.joolun.mall.job;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.entity.UserCoupon;
+import com.joolun.mall.service.DelayTaskHandler;
+import com.joolun.mall.service.UserCouponService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户优惠券过期
+ * 条件更新：仅未使用且已到过期时间的优惠券置为已过期，重复执行无副作用
+ */
+@Slf4j
+@Component
+public class CouponExpireTaskHandler implements DelayTaskHandler {
+
+    private final UserCouponService userCouponService;
+
+    public CouponExpireTaskHandler(@Lazy UserCouponService userCouponService) {
+        this.userCouponService = userCouponService;
+    }
+
+    @Override
+    public String getType() {
+        return MallConstants.DELAY_TASK_COUPON_EXPIRE;
+    }
+
+    @Override
+    public void handle(String userCouponId) {
+        boolean expired = userCouponService.update(Wrappers.<UserCoupon>lambdaUpdate()
+                .set(UserCoupon::getStatus, MallConstants.COUPON_USER_STATUS_2)
+                .eq(UserCoupon::getId, userCouponId)
+                .eq(UserCoupon::getStatus, MallConstants.COUPON_USER_STATUS_0)
+                .le(UserCoupon::getExpireTime, LocalDateTime.now()));
+        if (expired) {
+            log.debug("用户优惠券已过期: id={}", userCouponId);
+        }
+    }
+}
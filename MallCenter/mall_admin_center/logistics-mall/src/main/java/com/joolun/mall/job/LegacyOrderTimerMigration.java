@@ -0,0 +1,72 @@
+package com.joolun.mall.job;
+
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.service.DelayTaskService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 旧版订单倒计时迁移
+ * 升级前通过 Redis key 过期通知实现的自动取消/自动收货倒计时（mall:order:is_pay_0::{订单ID}、
+ * mall:order:status_2::{订单ID}），启动后按剩余 TTL 转为延时任务并删除原 key。
+ * 多节点同时迁移时任务按类型+订单ID去重，结果一致。
+ */
+@Slf4j
+@Component
+public class LegacyOrderTimerMigration {
+
+    /** 启动后延迟执行，避免拖慢启动 */
+    private static final long START_DELAY_SECONDS = 10;
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final DelayTaskService delayTaskService;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    public LegacyOrderTimerMigration(RedisTemplate<String, String> redisTemplate,
+                                     DelayTaskService delayTaskService,
+                                     @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.redisTemplate = redisTemplate;
+        this.delayTaskService = delayTaskService;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduledExecutorService.schedule(() -> {
+            migrate(MallConstants.REDIS_ORDER_KEY_IS_PAY_0, MallConstants.DELAY_TASK_ORDER_CANCEL);
+            migrate(MallConstants.REDIS_ORDER_KEY_STATUS_2, MallConstants.DELAY_TASK_ORDER_RECEIVE);
+        }, START_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void migrate(String keyPrefix, String taskType) {
+        int migrated = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + "*").count(500).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                //key 格式：前缀 + ":" + 订单ID
+                String orderId = key.substring(keyPrefix.length()).replaceFirst("^:", "");
+                Long ttl = redisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+                if (ttl == null || ttl == -2) {
+                    continue;
+                }
+                delayTaskService.scheduleAt(taskType, orderId, System.currentTimeMillis() + Math.max(ttl, 0));
+                redisTemplate.delete(key);
+                migrated++;
+            }
+        } catch (Exception e) {
+            log.error("旧版订单倒计时迁移失败: prefix={}", keyPrefix, e);
+        }
+        if (migrated > 0) {
+            log.info("旧版订单倒计时已迁移为延时任务: type={}, count={}", taskType, migrated);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.joolun.mall.job;
+
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.entity.MerchantNotification;
+import com.joolun.mall.service.DelayTaskHandler;
+import com.joolun.mall.service.MerchantNotificationService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商家通知短信发送
+ * 已发送成功的通知跳过；发送失败抛出异常，由延时任务服务退避重试
+ */
+@Component
+public class NotificationSmsTaskHandler implements DelayTaskHandler {
+
+    /** 短信状态：已发 */
+    private static final int SMS_STATUS_SENT = 2;
+
+    private final MerchantNotificationService merchantNotificationService;
+
+    public NotificationSmsTaskHandler(@Lazy MerchantNotificationService merchantNotificationService) {
+        this.merchantNotificationService = merchantNotificationService;
+    }
+
+    @Override
+    public String getType() {
+        return MallConstants.DELAY_TASK_NOTIFICATION_SMS;
+    }
+
+    @Override
+    public void handle(String notificationId) {
+        MerchantNotification notification = merchantNotificationService.getById(Long.valueOf(notificationId));
+        if (notification == null || notification.getPhone() == null
+                || Integer.valueOf(SMS_STATUS_SENT).equals(notification.getSmsStatus())) {
+            return;
+        }
+        if (!merchantNotificationService.sendSms(notification.getId())) {
+            throw new IllegalStateException("短信发送失败: notificationId=" + notificationId);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.joolun.mall.job;
+
+import com.joolun.mall.config.CommonConstants;
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.entity.OrderInfo;
+import com.joolun.mall.service.DelayTaskHandler;
+import com.joolun.mall.service.OrderInfoService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * 未支付订单自动取消
+ * 只有待支付且未取消的订单会被取消，重复执行无副作用
+ */
+@Component
+public class OrderCancelTaskHandler implements DelayTaskHandler {
+
+    private final OrderInfoService orderInfoService;
+
+    public OrderCancelTaskHandler(@Lazy OrderInfoService orderInfoService) {
+        this.orderInfoService = orderInfoService;
+    }
+
+    @Override
+    public String getType() {
+        return MallConstants.DELAY_TASK_ORDER_CANCEL;
+    }
+
+    @Override
+    public void handle(String orderId) {
+        OrderInfo orderInfo = orderInfoService.getById(orderId);
+        if (orderInfo != null && CommonConstants.NO.equals(orderInfo.getIsPay())) {
+            orderInfoService.orderCancel(orderInfo);
+        }
+    }
+}
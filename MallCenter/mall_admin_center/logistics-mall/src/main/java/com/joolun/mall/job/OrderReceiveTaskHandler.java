@@ -0,0 +1,36 @@
+package com.joolun.mall.job;
+
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.entity.OrderInfo;
+import com.joolun.mall.enums.OrderInfoEnum;
+import com.joolun.mall.service.DelayTaskHandler;
+import com.joolun.mall.service.OrderInfoService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单自动收货
+ * 只有待收货的订单会被确认收货，重复执行无副作用
+ */
+@Component
+public class OrderReceiveTaskHandler implements DelayTaskHandler {
+
+    private final OrderInfoService orderInfoService;
+
+    public OrderReceiveTaskHandler(@Lazy OrderInfoService orderInfoService) {
+        this.orderInfoService = orderInfoService;
+    }
+
+    @Override
+    public String getType() {
+        return MallConstants.DELAY_TASK_ORDER_RECEIVE;
+    }
+
+    @Override
+    public void handle(String orderId) {
+        OrderInfo orderInfo = orderInfoService.getById(orderId);
+        if (orderInfo != null && OrderInfoEnum.STATUS_2.getValue().equals(orderInfo.getStatus())) {
+            orderInfoService.orderReceive(orderInfo);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.joolun.mall.job;
+
+import com.joolun.mall.service.StockReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存对账定时任务
+ * 处理超时未落库的预扣记录，并以 MySQL 为准修正 Redis 库存计数的漂移
+ * 使用框架的 scheduledExecutorService 调度，不依赖 @EnableScheduling
+ */
+@Slf4j
+@Component
+public class StockReconcileJob {
+
+    private final StockReservationService stockReservationService;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    @Value("${mall.stock.reconcileInterval:60000}")
+    private long reconcileInterval;
+
+    public StockReconcileJob(StockReservationService stockReservationService,
+                             @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.stockReservationService = stockReservationService;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduledExecutorService.scheduleWithFixedDelay(this::reconcile,
+                reconcileInterval, reconcileInterval, TimeUnit.MILLISECONDS);
+        log.info("库存对账任务启动, interval={}ms", reconcileInterval);
+    }
+
+    /**
+     * 执行一次对账，异常只记录日志，避免中断后续调度
+     */
+    public void reconcile() {
+        try {
+            Map<String, Object> result = stockReservationService.reconcile();
+            log.debug("库存对账完成: {}", result);
+        } catch (Exception e) {
+            log.error("库存对账失败", e);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.joolun.mall.entity.GoodsSpu;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -39,4 +40,17 @@ public interface GoodsSpuMapper extends BaseMapper<GoodsSpu> {
 	@Select("SELECT DISTINCT category_first FROM goods_spu WHERE shelf = '1' AND category_first IS NOT NULL")
 	List<String> selectDistinctCategories();
 
+	/**
+	 * 原子扣减库存（库存不足时不扣减，返回0）
+	 * 同时递增乐观锁版本，使持有旧版本的后台编辑失败而不是覆盖库存
+	 */
+	@Update("UPDATE goods_spu SET stock = stock - #{quantity}, version = version + 1 WHERE id = #{spuId} AND stock >= #{quantity}")
+	int deductStock(@Param("spuId") String spuId, @Param("quantity") int quantity);
+
+	/**
+	 * 原子回补库存
+	 */
+	@Update("UPDATE goods_spu SET stock = stock + #{quantity}, version = version + 1 WHERE id = #{spuId}")
+	int restoreStock(@Param("spuId") String spuId, @Param("quantity") int quantity);
+
 }
@@ -43,6 +43,12 @@ public interface UserClusterMapper extends BaseMapper<UserCluster> {
     @Update("UPDATE user_clusters SET member_count = #{memberCount}, update_time = NOW() WHERE id = #{clusterId}")
     int updateMemberCount(@Param("clusterId") Long clusterId, @Param("memberCount") int memberCount);
 
+    /**
+     * 增加聚类成员数量
+     */
+    @Update("UPDATE user_clusters SET member_count = member_count + #{delta}, update_time = NOW() WHERE id = #{clusterId}")
+    int incrementMemberCount(@Param("clusterId") Long clusterId, @Param("delta") int delta);
+
     /**
      * 批量更新聚类成员数量
      */
@@ -52,4 +52,15 @@ public interface UserRecommendationProfileMapper extends BaseMapper<UserRecommen
     @Select("SELECT * FROM user_recommendation_profiles WHERE profile_status = 'mature' " +
             "AND last_active_time > DATE_SUB(NOW(), INTERVAL #{days} DAY)")
     List<UserRecommendationProfile> selectActiveUsers(@Param("days") int days);
+
+    /**
+     * 查询在指定聚类版本下尚未分配的画像，按ID递增分页
+     */
+    @Select("SELECT p.* FROM user_recommendation_profiles p " +
+            "LEFT JOIN user_cluster_assignments a ON a.wx_user_id = p.wx_user_id AND a.version = #{version} " +
+            "WHERE p.id > #{afterId} AND p.wx_user_id IS NOT NULL AND a.id IS NULL " +
+            "ORDER BY p.id LIMIT #{limit}")
+    List<UserRecommendationProfile> selectUnassignedProfiles(@Param("version") int version,
+                                                             @Param("afterId") long afterId,
+                                                             @Param("limit") int limit);
 }
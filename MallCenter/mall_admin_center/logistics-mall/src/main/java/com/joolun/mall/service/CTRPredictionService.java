@@ -16,9 +16,9 @@ import java.util.Map;
  * - 总特征维度: 168维
  *
  * 模型参数:
- * - 学习率: 0.01
+ * - 在线学习: FTRL-Proximal (alpha/beta/L1/L2 见 mall.recommend.ctr 配置)
  * - L2正则化: lambda = 0.001
- * - 在线学习: SGD更新
+ * - 反馈按小批量训练，打分读取每批发布的权重快照
  *
  * @author CTR Enhancement
  * @since 2026-01-19
@@ -84,7 +84,7 @@ public interface CTRPredictionService {
 
     /**
      * 更新模型参数（在线学习）
-     * 使用SGD更新权重向量
+     * 反馈进入队列异步训练，积累满一个小批量或到达定时间隔时执行
      *
      * @param wxUserId 用户ID
      * @param productId 商品ID
@@ -94,7 +94,7 @@ public interface CTRPredictionService {
 
     /**
      * 批量更新模型参数
-     * 用于处理批量反馈数据
+     * 用于处理批量反馈数据，按小批量同步训练，返回时已写入检查点
      *
      * @param feedbackList 反馈列表，每个元素包含 [wxUserId, productId, clicked]
      */
@@ -0,0 +1,22 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+
+/**
+ * CTR 在线学习压测服务接口
+ *
+ * 生成模拟点击日志（用户、商品向量与隐含真实权重决定点击概率），不读写数据库、Redis 与线上模型；
+ * 对比旧版 SGD 与 FTRL 单线程、多线程无锁训练的吞吐，以及留出集上的 AUC 与 LogLoss。
+ */
+public interface CtrLearningSimulationService {
+
+    /**
+     * 执行一次在线学习压测
+     *
+     * @param samples   模拟样本数，其中 80% 训练、20% 留出评估
+     * @param threads   并发训练线程数，不大于 0 时取 CPU 核数
+     * @param batchSize 小批量大小，每批训练后发布一次权重快照
+     * @return 压测结果
+     */
+    Map<String, Object> runLearningBenchmark(int samples, int threads, int batchSize);
+}
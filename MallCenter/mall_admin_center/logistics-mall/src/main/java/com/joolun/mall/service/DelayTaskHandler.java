@@ -0,0 +1,23 @@
+package com.joolun.mall.service;
+
+/**
+ * 延时任务处理器
+ *
+ * 每种任务类型一个实现，注册为 Spring Bean 后由 {@link DelayTaskService} 自动发现。
+ * 任务至少执行一次：租约过期被其他节点重新领取、确认前进程退出、失败重试都会导致重复执行，
+ * 实现必须幂等（按业务状态判断是否仍需处理）。
+ */
+public interface DelayTaskHandler {
+
+    /**
+     * 任务类型，不能包含冒号
+     */
+    String getType();
+
+    /**
+     * 处理到期任务，抛出异常时按退避策略重试，超过最大次数后进入死信
+     *
+     * @param bizId 业务ID
+     */
+    void handle(String bizId) throws Exception;
+}
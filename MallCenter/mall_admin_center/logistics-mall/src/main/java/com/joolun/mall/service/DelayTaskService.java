@@ -0,0 +1,61 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延时任务服务
+ *
+ * 替代 Redis key 过期通知：任务持久化在 Redis 有序集合中（重启、断线不丢失），
+ * 各节点定期领取即将到期的任务并加租约，保证同一任务同一时刻只有一个节点执行；
+ * 领取到的任务放入进程内分层时间轮，到期时精确触发。
+ * 节点宕机后租约过期的任务由其他节点重新领取。
+ *
+ * 同一类型、同一业务ID只保留一个任务，重复调度覆盖到期时间。
+ */
+public interface DelayTaskService {
+
+    /**
+     * 调度任务，delay 后执行
+     */
+    void schedule(String type, String bizId, long delay, TimeUnit unit);
+
+    /**
+     * 调度任务，在指定时间（毫秒时间戳）执行
+     */
+    void scheduleAt(String type, String bizId, long dueTimeMillis);
+
+    /**
+     * 批量调度同一类型的任务
+     *
+     * @param dueTimes 业务ID -> 到期时间（毫秒时间戳）
+     */
+    void scheduleBatch(String type, Map<String, Long> dueTimes);
+
+    /**
+     * 取消任务（含已被领取、尚未执行的任务）
+     *
+     * @return 任务是否存在
+     */
+    boolean cancel(String type, String bizId);
+
+    /**
+     * 查询任务到期时间（毫秒时间戳），任务不存在时返回 null
+     */
+    Long getDueTime(String type, String bizId);
+
+    /**
+     * 注册处理器（Spring Bean 形式的处理器启动时自动注册）
+     */
+    void registerHandler(DelayTaskHandler handler);
+
+    /**
+     * 注销处理器
+     */
+    void unregisterHandler(String type);
+
+    /**
+     * 运行指标：调度/执行/重试/死信数，执行吞吐，到期延迟分位数，队列积压
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,24 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+
+/**
+ * 延时任务压测服务接口
+ *
+ * 在本节点启动一个使用独立 key（mall:delay:sim:*）的延时任务实例并注册空处理器，
+ * 批量调度大量任务（上限一百万个）并均匀分布在一段时间内到期，
+ * 等待全部执行后统计：调度吞吐、执行吞吐、到期延迟分位数、重复执行与遗漏数。
+ * 压测任务不进入线上队列，其他节点不会领取，也不会阻塞线上任务；压测结束后停止实例并删除独立 key。
+ */
+public interface DelayTaskSimulationService {
+
+    /**
+     * 执行一次延时任务压测
+     *
+     * @param tasks         任务数
+     * @param spreadSeconds 到期时间分布区间（秒）
+     * @param waitSeconds   到期后最多等待执行完成的时间（秒）
+     * @return 压测结果
+     */
+    Map<String, Object> runDelayTaskLoad(int tasks, int spreadSeconds, int waitSeconds);
+}
@@ -5,6 +5,7 @@ import com.joolun.mall.entity.DeliveryRoute;
 import com.joolun.mall.entity.DeliveryVehicle;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +20,8 @@ import java.util.Map;
  * - driver_preference (10%): 司机区域偏好
  * - workload_balance (10%): 工作量均衡
  *
+ * 批量调度按带容量与时间窗的车辆路径问题 (CVRPTW) 整体求解，得到每辆车的路线、停靠顺序、预计到达时间与载重。
+ *
  * @author Delivery Scheduling V4.0
  * @since 2026-01-20
  */
@@ -35,7 +38,7 @@ public interface DeliverySchedulingService {
 
     /**
      * 批量调度优化
-     * 对指定日期的所有待调度订单进行优化分配
+     * 对指定日期的所有待调度订单进行路径规划与分配
      *
      * @param date 调度日期
      * @return 调度结果
@@ -44,6 +47,7 @@ public interface DeliverySchedulingService {
 
     /**
      * 批量调度优化 (指定订单和车辆)
+     * 冷链订单只排给冷链车，普通订单使用其余车辆及冷链单排完后空闲的冷链车
      *
      * @param orders 订单列表
      * @param vehicles 可用车辆列表
@@ -133,6 +137,8 @@ public interface DeliverySchedulingService {
         private int unscheduledOrders;
         private List<DeliveryRoute> routes;
         private Map<String, List<String>> vehicleOrderMap;
+        private List<RoutePlan> routePlans;
+        private double totalDistance;
         private long elapsedMs;
         private String message;
 
@@ -149,9 +155,48 @@ public interface DeliverySchedulingService {
         public void setRoutes(List<DeliveryRoute> routes) { this.routes = routes; }
         public Map<String, List<String>> getVehicleOrderMap() { return vehicleOrderMap; }
         public void setVehicleOrderMap(Map<String, List<String>> vehicleOrderMap) { this.vehicleOrderMap = vehicleOrderMap; }
+        public List<RoutePlan> getRoutePlans() { return routePlans; }
+        public void setRoutePlans(List<RoutePlan> routePlans) { this.routePlans = routePlans; }
+        public double getTotalDistance() { return totalDistance; }
+        public void setTotalDistance(double totalDistance) { this.totalDistance = totalDistance; }
         public long getElapsedMs() { return elapsedMs; }
         public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
         public String getMessage() { return message; }
         public void setMessage(String message) { this.message = message; }
     }
+
+    /**
+     * 单车路线规划数据类
+     */
+    class RoutePlan {
+        private String vehicleId;
+        /** 按停靠顺序排列的订单ID */
+        private List<String> orderIds;
+        /** 各订单预计到达 (开始服务) 时间 */
+        private List<LocalDateTime> etas;
+        private double loadWeight;
+        private double loadVolume;
+        /** 路线里程 (km)，含回仓 */
+        private double distance;
+        private LocalDateTime departureTime;
+        private LocalDateTime returnTime;
+
+        // Getters and Setters
+        public String getVehicleId() { return vehicleId; }
+        public void setVehicleId(String vehicleId) { this.vehicleId = vehicleId; }
+        public List<String> getOrderIds() { return orderIds; }
+        public void setOrderIds(List<String> orderIds) { this.orderIds = orderIds; }
+        public List<LocalDateTime> getEtas() { return etas; }
+        public void setEtas(List<LocalDateTime> etas) { this.etas = etas; }
+        public double getLoadWeight() { return loadWeight; }
+        public void setLoadWeight(double loadWeight) { this.loadWeight = loadWeight; }
+        public double getLoadVolume() { return loadVolume; }
+        public void setLoadVolume(double loadVolume) { this.loadVolume = loadVolume; }
+        public double getDistance() { return distance; }
+        public void setDistance(double distance) { this.distance = distance; }
+        public LocalDateTime getDepartureTime() { return departureTime; }
+        public void setDepartureTime(LocalDateTime departureTime) { this.departureTime = departureTime; }
+        public LocalDateTime getReturnTime() { return returnTime; }
+        public void setReturnTime(LocalDateTime returnTime) { this.returnTime = returnTime; }
+    }
 }
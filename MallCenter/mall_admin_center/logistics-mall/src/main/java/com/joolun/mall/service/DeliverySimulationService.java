@@ -78,4 +78,16 @@ public interface DeliverySimulationService {
      * @return 完整模拟结果
      */
     Map<String, Object> runFullSimulation(int orderCount, int vehicleCount, int days);
+
+    /**
+     * 路径规划基准测试 (不落库)
+     * 在仓库周边按 Solomon 基准的 R (随机分布) / C (聚集分布) / RC (混合) 三类生成带时间窗的实例，
+     * 对比逐单贪心分配、节约算法初始解、单线程与多线程 ALNS 的总里程、用车数与求解耗时
+     *
+     * @param customers 每个实例的订单数
+     * @param timeBudgetMs 每次求解的时间预算 (毫秒)
+     * @param threads 多线程求解的线程数，不大于 0 时取 CPU 核数
+     * @return 各实例的对比结果
+     */
+    Map<String, Object> runRoutingBenchmark(int customers, long timeBudgetMs, int threads);
 }
@@ -0,0 +1,29 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+
+/**
+ * 秒杀压测服务接口
+ *
+ * 临时创建一组压测专用商品（{@code MallConstants.GOODS_SHELF_LOAD_TEST}，不进入上架列表、首页与搜索，仅压测用户可下单）
+ * 并创建收货地址，模拟大量买家同时走真实下单流程（Redis 预扣 + 订单批量落库）：
+ * - 每个买家随机抢购一个商品，数量 1
+ * - 约 10% 的下单成功者模拟支付超时，走真实取消流程回补库存
+ * - 落库队列排空后以 MySQL 订单校验：有效订单数不超过初始库存，MySQL 剩余库存 = 初始库存 - 有效订单数，
+ *   Redis 库存计数与 MySQL 一致
+ *
+ * 会写入临时商品、地址、订单及自动取消任务，结束后全部清理（删除商品时发布商品变更事件，同步移出搜索索引）。
+ */
+public interface FlashSaleSimulationService {
+
+    /**
+     * 执行一次秒杀压测
+     *
+     * @param buyers      买家数
+     * @param skus        商品数
+     * @param stockPerSku 每个商品初始库存
+     * @param concurrency 并发线程数
+     * @return 压测结果：下单/取消/售罄/失败数、是否超卖、吞吐量、下单耗时分位数
+     */
+    Map<String, Object> runFlashSale(int buyers, int skus, int stockPerSku, int concurrency);
+}
@@ -0,0 +1,52 @@
+package com.joolun.mall.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.joolun.mall.entity.GoodsSpu;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 商品搜索服务
+ *
+ * 进程内倒排索引（见 {@link com.joolun.mall.util.GoodsInvertedIndex}）替代 name LIKE '%q%' 全表扫描：
+ * 名称/卖点/分类名/详情按汉字二元组分词，名称额外支持全拼与首字母，BM25 计分并按字段加权，
+ * 叠加品类同义词降权召回。
+ * 商品写入后按事件增量更新，另有按 update_time 的定时增量同步与定时全量重建兜底。
+ */
+public interface GoodsSearchService {
+
+    /**
+     * 索引是否已完成首次构建
+     */
+    boolean isReady();
+
+    /**
+     * 关键词分页搜索
+     *
+     * @param page  分页与排序（排序列为空时按相关度）
+     * @param query name 为关键词，shelf/categoryFirst/categorySecond/merchantId 为过滤条件
+     * @return 与 {@link GoodsSpuService#page1} 相同结构的分页结果
+     */
+    IPage<GoodsSpu> page(IPage<GoodsSpu> page, GoodsSpu query);
+
+    /**
+     * 已上架商品中匹配关键词的数量
+     */
+    long count(String keyword);
+
+    /**
+     * 重新索引指定商品（已删除的商品从索引移除）
+     */
+    void reindex(Collection<String> spuIds);
+
+    /**
+     * 全量重建索引
+     */
+    void rebuild();
+
+    /**
+     * 运行指标：文档数、词项数、同步与重建次数、查询耗时
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,23 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+
+/**
+ * 商品搜索压测服务接口
+ *
+ * 生成指定数量的模拟商品（食品类名称、卖点、分类、详情）构建独立索引，不读写数据库与线上索引；
+ * 并发执行汉字、拼音、首字母、多词混合查询，统计构建耗时、查询吞吐与延迟分位数，
+ * 并以名称子串扫描（等价于 name LIKE '%q%'）作为对照。
+ */
+public interface GoodsSearchSimulationService {
+
+    /**
+     * 执行一次搜索压测
+     *
+     * @param skus        模拟商品数
+     * @param queries     查询次数
+     * @param concurrency 并发线程数，不大于 0 时取 CPU 核数
+     * @return 压测结果
+     */
+    Map<String, Object> runSearchBenchmark(int skus, int queries, int concurrency);
+}
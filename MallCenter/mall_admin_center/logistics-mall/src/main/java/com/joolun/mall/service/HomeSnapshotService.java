@@ -0,0 +1,40 @@
+package com.joolun.mall.service;
+
+import com.joolun.mall.dto.HomeSnapshot;
+
+import java.util.Map;
+
+/**
+ * 首页快照服务
+ *
+ * 首页聚合数据（Banner、分类树、新品、热销、功能开关、装修主题）按商户组装一次，
+ * 序列化为 JSON 字节缓存在内存中，请求只需读取快照并写出字节。
+ * 商品、分类、广告、装修变更时异步重建（合并短时间内的多次变更）；
+ * 另有定时刷新兜底销量排序与系统参数的变化，内容不变时版本与 ETag 保持不变。
+ */
+public interface HomeSnapshotService {
+
+    /**
+     * 获取商户首页快照，尚未构建时同步构建
+     *
+     * @param merchantId 商户ID，null 表示默认店铺
+     */
+    HomeSnapshot getSnapshot(Long merchantId);
+
+    /**
+     * 实时组装首页数据（不经过快照），用于快照构建和压测对比
+     */
+    Map<String, Object> assemble(Long merchantId);
+
+    /**
+     * 标记首页内容已变更，延迟合并后异步重建所有已缓存的快照
+     *
+     * @param reason 变更来源
+     */
+    void markDirty(String reason);
+
+    /**
+     * 运行指标：快照版本、大小、构建次数与耗时
+     */
+    Map<String, Object> getStats();
+}
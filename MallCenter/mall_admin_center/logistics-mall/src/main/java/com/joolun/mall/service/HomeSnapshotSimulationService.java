@@ -0,0 +1,23 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+
+/**
+ * 首页接口压测服务接口
+ *
+ * 在同一并发下分别执行：实时组装 + 序列化（原首页接口的处理路径）与读取快照 + 写出字节，
+ * 对比每秒请求数与耗时分位数；另统计携带 ETag 的请求命中 304 的比例。
+ * 只读数据，不修改业务数据。
+ */
+public interface HomeSnapshotSimulationService {
+
+    /**
+     * 执行一次首页接口压测
+     *
+     * @param assembleRequests 实时组装路径的请求数
+     * @param snapshotRequests 快照路径的请求数
+     * @param concurrency      并发线程数
+     * @return 压测结果
+     */
+    Map<String, Object> runHomeInitBenchmark(int assembleRequests, int snapshotRequests, int concurrency);
+}
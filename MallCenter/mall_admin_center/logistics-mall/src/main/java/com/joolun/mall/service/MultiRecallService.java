@@ -97,6 +97,12 @@ public interface MultiRecallService {
      */
     Map<String, Integer> getRecallStats();
 
+    /**
+     * 获取各路召回的运行指标
+     * @return 各通道的调用/按时返回/超时/异常/拒绝次数、召回数量与延迟分位数，以及整体召回延迟和候选池状态
+     */
+    Map<String, Object> getRecallChannelStats();
+
     /**
      * 更新召回权重配置
      * @param weights 权重配置 (key: 召回策略名, value: 权重值)
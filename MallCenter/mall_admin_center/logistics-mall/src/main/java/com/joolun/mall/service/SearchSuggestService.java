@@ -0,0 +1,45 @@
+package com.joolun.mall.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 搜索联想服务接口
+ *
+ * 词典由搜索关键词统计、上架商品名称、启用的分类名称构成，支持原文、全拼、首字母前缀联想，
+ * 按权重（有结果的搜索次数、商品销量）返回 top-k。搜索计数实时累加，词典定期从数据库全量重建。
+ */
+public interface SearchSuggestService {
+
+    /**
+     * 词典是否已构建
+     */
+    boolean isReady();
+
+    /**
+     * 前缀联想
+     *
+     * @param prefix 用户输入（汉字、全拼或首字母）
+     * @param limit  返回数量
+     * @return 联想词，按权重降序
+     */
+    List<String> suggest(String prefix, int limit);
+
+    /**
+     * 累加一次搜索（无结果的搜索不计入权重）
+     *
+     * @param keyword  关键词
+     * @param noResult 是否无结果
+     */
+    void recordSearch(String keyword, boolean noResult);
+
+    /**
+     * 从数据库全量重建词典
+     */
+    void rebuild();
+
+    /**
+     * 运行指标
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,22 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+
+/**
+ * 搜索联想压测服务接口
+ *
+ * 生成指定数量的模拟词条构建独立词典，不读写数据库与线上词典；
+ * 按汉字、全拼、首字母三种前缀输入统计联想延迟分位数，以及搜索计数累加的耗时。
+ */
+public interface SearchSuggestSimulationService {
+
+    /**
+     * 执行一次联想压测
+     *
+     * @param terms      模拟词条数
+     * @param queries    联想查询次数
+     * @param increments 权重累加次数
+     * @return 压测结果
+     */
+    Map<String, Object> runSuggestBenchmark(int terms, int queries, int increments);
+}
@@ -0,0 +1,78 @@
+package com.joolun.mall.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存预扣服务
+ *
+ * 下单时在 Redis 中按商品维护库存计数，由 Lua 脚本对整个购物车原子预扣，
+ * 避免"读库存-内存扣减-回写"造成的超卖，也避免热点商品行锁排队。
+ * 预扣记录在订单落库后确认；落库失败或超时未落库时回补。
+ * MySQL 库存为最终口径，定期对账修正 Redis 计数。
+ */
+public interface StockReservationService {
+
+    /**
+     * 为订单预扣库存
+     * 购物车内各商品在同一 Lua 脚本中判断与扣减；库存不足的商品跳过（与原下单逻辑一致），其余商品扣减成功
+     *
+     * @param orderNo    订单号（预扣记录标识）
+     * @param quantities 商品ID -> 购买数量（保持购物车顺序）
+     * @return 每个商品是否预扣成功，顺序与 quantities 一致；全部失败时不留预扣记录
+     */
+    List<Boolean> reserve(String orderNo, Map<String, Integer> quantities);
+
+    /**
+     * 订单已落库，确认预扣（删除预扣记录，库存保持扣减）
+     */
+    void confirm(String orderNo);
+
+    /**
+     * 回补订单预扣的库存（落库失败/超时补偿），幂等
+     *
+     * @return 是否存在并回补了预扣记录
+     */
+    boolean release(String orderNo);
+
+    /**
+     * MySQL 库存变更（订单取消回补、后台修改库存）后按差值加回 Redis 计数（未加载的计数跳过）
+     * 在 MySQL 事务内、提交前调用：先登记待加回记录，事务提交后加回计数并删除记录，回滚则只删除记录。
+     * 对账跳过有待加回记录的商品，避免在 MySQL 已提交、Redis 尚未加回的间隙按 MySQL 修正后又被加回一次。
+     * 无事务时立即加回。
+     *
+     * @param quantities 商品ID -> 数量（可为负）
+     */
+    void restoreOnCommit(Map<String, Integer> quantities);
+
+    /**
+     * 用 MySQL 库存初始化 Redis 计数（已存在的不覆盖）
+     */
+    void warmUp(Collection<String> spuIds);
+
+    /**
+     * 设置商品库存计数（覆盖进行中的预扣，仅用于初始化/造数）
+     */
+    void resetStock(String spuId, int stock);
+
+    /**
+     * 查询 Redis 库存计数，未加载时返回 null
+     */
+    Integer getStock(String spuId);
+
+    /**
+     * 删除商品库存计数，下次下单时从 MySQL 重新加载
+     */
+    void evict(Collection<String> spuIds);
+
+    /**
+     * 对账
+     * 1、超时未落库的预扣：订单已存在则确认，否则回补
+     * 2、超时未处理的待加回记录（事务结束前进程退出）：丢弃，由下一步按 MySQL 修正
+     * 3、无进行中预扣、待加回记录的商品：Redis 计数与 MySQL 不一致时以 MySQL 为准（CAS 修正）
+     *
+     * @return 对账结果统计
+     */
+    Map<String, Object> reconcile();
+}
@@ -47,7 +47,8 @@ public interface UserClusterService {
 
     /**
      * 运行K-Means聚类
-     * 使用K-Means++初始化，最大迭代100次，收敛阈值0.001
+     * 使用k-means||并行初始化，用户数较多时先做小批量k-means预热，
+     * 再做带三角不等式剪枝的并行Lloyd迭代（默认最大迭代100次，收敛阈值0.001）
      *
      * @param k 聚类数量
      */
@@ -103,6 +104,14 @@ public interface UserClusterService {
      */
     UserClusterAssignment assignUserToCluster(String wxUserId);
 
+    /**
+     * 增量分配：将当前聚类版本下尚未分配的用户画像分配到最近的聚类中心
+     * 两次全量聚类之间按固定间隔自动执行
+     *
+     * @return 本次分配的用户数
+     */
+    int assignPendingUsers();
+
     /**
      * 获取相似用户列表
      * 基于同聚类和特征距离
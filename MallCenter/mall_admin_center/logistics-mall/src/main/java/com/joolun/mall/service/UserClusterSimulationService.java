@@ -0,0 +1,23 @@
+package com.joolun.mall.service;
+
+import java.util.Map;
+
+/**
+ * 用户聚类压测服务接口
+ *
+ * 生成高斯分布的模拟用户特征（48 维，按隐含簇中心加噪声），不读写数据库与 Redis；
+ * 对比旧版单线程 K-Means 与并行聚类引擎的耗时、距离计算次数与簇内平方和，以及增量分配吞吐。
+ */
+public interface UserClusterSimulationService {
+
+    /**
+     * 执行一次聚类压测
+     *
+     * @param users         模拟用户数
+     * @param k             聚类数
+     * @param parallelism   并行度，不大于 0 时取 CPU 核数
+     * @param baselineUsers 旧版算法的对比样本数（旧版在全量上耗时过长，取前 baselineUsers 个用户对比）
+     * @return 压测结果
+     */
+    Map<String, Object> runClusterBenchmark(int users, int k, int parallelism, int baselineUsers);
+}
@@ -4,11 +4,15 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.joolun.mall.entity.Advertisement;
+import com.joolun.mall.event.HomeContentChangedEvent;
 import com.joolun.mall.mapper.AdvertisementMapper;
 import com.joolun.mall.service.AdvertisementService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -20,6 +24,30 @@ import java.util.Map;
 @Service
 public class AdvertisementServiceImpl extends ServiceImpl<AdvertisementMapper, Advertisement> implements AdvertisementService {
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public boolean save(Advertisement entity) {
+        boolean saved = super.save(entity);
+        eventPublisher.publishEvent(new HomeContentChangedEvent(this, "ad:save"));
+        return saved;
+    }
+
+    @Override
+    public boolean updateById(Advertisement entity) {
+        boolean updated = super.updateById(entity);
+        eventPublisher.publishEvent(new HomeContentChangedEvent(this, "ad:update"));
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        eventPublisher.publishEvent(new HomeContentChangedEvent(this, "ad:remove"));
+        return removed;
+    }
+
     @Override
     public IPage<Advertisement> page1(IPage<Advertisement> page, Advertisement ad) {
         return baseMapper.selectPage1(page, ad);
@@ -71,7 +99,9 @@ public class AdvertisementServiceImpl extends ServiceImpl<AdvertisementMapper, A
         ad.setId(id);
         ad.setStatus(status);
         ad.setUpdateTime(LocalDateTime.now());
-        return baseMapper.updateById(ad) > 0;
+        boolean updated = baseMapper.updateById(ad) > 0;
+        eventPublisher.publishEvent(new HomeContentChangedEvent(this, "ad:status"));
+        return updated;
     }
 
     @Override
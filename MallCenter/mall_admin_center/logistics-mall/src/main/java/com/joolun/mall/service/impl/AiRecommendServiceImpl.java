@@ -15,6 +15,7 @@ import com.joolun.mall.service.AiRecommendService;
 import com.joolun.mall.service.ProductKnowledgeService;
 import com.joolun.mall.service.SearchKeywordService;
 import com.joolun.mall.service.VectorSearchService;
+import com.joolun.mall.util.CategorySynonyms;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -148,87 +149,6 @@ public class AiRecommendServiceImpl extends ServiceImpl<AiDemandRecordMapper, Ai
         %s
         """;
 
-    /**
-     * 品类同义词/口语映射表
-     * key: 用户常用搜索词, value: 对应的数据库分类名和相关产品词
-     */
-    private static final Map<String, List<String>> CATEGORY_SYNONYM_MAP;
-    static {
-        Map<String, List<String>> map = new HashMap<>();
-        // 禽蛋类
-        map.put("鸡蛋", List.of("家禽蛋副", "禽蛋", "蛋"));
-        map.put("鸭蛋", List.of("家禽蛋副", "禽蛋", "蛋"));
-        map.put("蛋", List.of("家禽蛋副", "禽蛋"));
-        map.put("鸡肉", List.of("家禽蛋副", "鸡", "土鸡"));
-        map.put("鸡", List.of("家禽蛋副", "土鸡"));
-        map.put("鸭", List.of("家禽蛋副"));
-        map.put("鸭肉", List.of("家禽蛋副"));
-        // 乳饮类
-        map.put("牛奶", List.of("饮料甜品", "乳制品", "奶"));
-        map.put("酸奶", List.of("饮料甜品", "乳制品"));
-        map.put("饮料", List.of("饮料甜品"));
-        map.put("果汁", List.of("饮料甜品"));
-        // 米面粮油类
-        map.put("大米", List.of("米面制品", "米"));
-        map.put("米", List.of("米面制品"));
-        map.put("面条", List.of("米面制品", "面", "挂面"));
-        map.put("面粉", List.of("米面制品", "面"));
-        map.put("挂面", List.of("米面制品", "面"));
-        map.put("食用油", List.of("米面制品", "粮油", "油"));
-        map.put("粮油", List.of("米面制品"));
-        // 速冻/丸滑类
-        map.put("速冻食品", List.of("丸滑产品", "调理肉类", "小吃点心"));
-        map.put("丸子", List.of("丸滑产品"));
-        map.put("火锅丸子", List.of("丸滑产品"));
-        map.put("鱼丸", List.of("丸滑产品"));
-        map.put("肉丸", List.of("丸滑产品"));
-        // 零食点心类
-        map.put("零食", List.of("小吃点心", "饮料甜品"));
-        map.put("点心", List.of("小吃点心"));
-        map.put("甜品", List.of("饮料甜品", "小吃点心"));
-        map.put("蛋糕", List.of("小吃点心", "饮料甜品"));
-        // 调味品类
-        map.put("调味品", List.of("蘸料底料", "调料", "酱料"));
-        map.put("调料", List.of("蘸料底料"));
-        map.put("酱料", List.of("蘸料底料"));
-        map.put("火锅底料", List.of("蘸料底料"));
-        map.put("蘸料", List.of("蘸料底料"));
-        // 肉类
-        map.put("牛肉", List.of("牛羊肉类", "牛"));
-        map.put("羊肉", List.of("牛羊肉类", "羊"));
-        map.put("猪肉", List.of("猪肉猪副", "猪"));
-        map.put("猪蹄", List.of("猪肉猪副"));
-        map.put("排骨", List.of("猪肉猪副"));
-        map.put("五花肉", List.of("猪肉猪副"));
-        map.put("肉", List.of("猪肉猪副", "牛羊肉类", "调理肉类"));
-        // 海鲜类
-        map.put("海鲜", List.of("海鲜水产", "水产"));
-        map.put("鱼", List.of("海鲜水产"));
-        map.put("虾", List.of("海鲜水产"));
-        map.put("蟹", List.of("海鲜水产"));
-        map.put("水产", List.of("海鲜水产"));
-        // 蔬菜类
-        map.put("蔬菜", List.of("蔬菜菌菇"));
-        map.put("菌菇", List.of("蔬菜菌菇"));
-        map.put("蘑菇", List.of("蔬菜菌菇"));
-        map.put("香菇", List.of("蔬菜菌菇"));
-        // 豆制品类
-        map.put("豆腐", List.of("豆制品类"));
-        map.put("豆制品", List.of("豆制品类"));
-        map.put("豆皮", List.of("豆制品类"));
-        map.put("腐竹", List.of("豆制品类"));
-        // 肠罐头类
-        map.put("香肠", List.of("肉肠罐头"));
-        map.put("火腿肠", List.of("肉肠罐头"));
-        map.put("罐头", List.of("肉肠罐头"));
-        map.put("午餐肉", List.of("肉肠罐头"));
-        // 水发产品
-        map.put("水发", List.of("水发产品"));
-        map.put("海带", List.of("水发产品"));
-        map.put("粉丝", List.of("水发产品"));
-        CATEGORY_SYNONYM_MAP = Collections.unmodifiableMap(map);
-    }
-
     /**
      * 使用同义词映射扩展关键词列表
      * @param keywords 原始关键词
@@ -241,7 +161,7 @@ public class AiRecommendServiceImpl extends ServiceImpl<AiDemandRecordMapper, Ai
         Set<String> expanded = new LinkedHashSet<>(keywords); // 保持原始顺序
         for (String keyword : keywords) {
             String normalized = keyword.trim().toLowerCase();
-            List<String> synonyms = CATEGORY_SYNONYM_MAP.get(normalized);
+            List<String> synonyms = CategorySynonyms.get(normalized);
             if (synonyms != null) {
                 expanded.addAll(synonyms);
                 log.debug("关键词 '{}' 扩展同义词: {}", keyword, synonyms);
@@ -1,25 +1,33 @@
 package com.joolun.mall.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joolun.mall.config.CtrLearningConfig;
 import com.joolun.mall.entity.GoodsSpu;
 import com.joolun.mall.entity.UserInterestTag;
 import com.joolun.mall.mapper.GoodsSpuMapper;
 import com.joolun.mall.mapper.UserInterestTagMapper;
 import com.joolun.mall.service.CTRPredictionService;
 import com.joolun.mall.service.FeatureEngineeringService;
-import lombok.RequiredArgsConstructor;
+import com.joolun.mall.util.FtrlLearner;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -28,7 +36,12 @@ import java.util.stream.Collectors;
  *
  * 核心算法:
  * - 预测: P(click) = sigmoid(w·x) = 1 / (1 + exp(-w·x))
- * - 在线学习: SGD更新 w_i += lr * (label - prediction) * x_i - lr * lambda * w_i
+ * - 在线学习: FTRL-Proximal，每维学习率按梯度平方和自适应 (见 FtrlLearner)
+ *
+ * 在线学习流程:
+ * - 点击反馈进入有界队列，按小批量训练：商品批量查询，同一批内每个用户/商品只构建一次特征
+ * - 训练线程无锁并发更新 z、n 累加量，每个小批量结束发布一次不可变权重快照，打分只读快照
+ * - 模型状态 (z、n、参数、样本统计) 按固定间隔以二进制检查点写入Redis
  *
  * 特征维度设计 (168维):
  * - 用户特征 (0-63): 64维，来自FeatureEngineeringService
@@ -50,7 +63,6 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CTRPredictionServiceImpl implements CTRPredictionService {
 
     private final FeatureEngineeringService featureEngineeringService;
@@ -58,19 +70,27 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     private final GoodsSpuMapper goodsSpuMapper;
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final CtrLearningConfig learningConfig;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    public CTRPredictionServiceImpl(FeatureEngineeringService featureEngineeringService,
+                                    UserInterestTagMapper userInterestTagMapper,
+                                    GoodsSpuMapper goodsSpuMapper,
+                                    StringRedisTemplate redisTemplate,
+                                    ObjectMapper objectMapper,
+                                    CtrLearningConfig learningConfig,
+                                    @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.featureEngineeringService = featureEngineeringService;
+        this.userInterestTagMapper = userInterestTagMapper;
+        this.goodsSpuMapper = goodsSpuMapper;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.learningConfig = learningConfig;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
 
     // ==================== 模型参数 ====================
 
-    /**
-     * 学习率
-     */
-    private static final double LEARNING_RATE = 0.01;
-
-    /**
-     * L2正则化系数
-     */
-    private static final double LAMBDA = 0.001;
-
     /**
      * 权重初始化范围
      */
@@ -83,8 +103,12 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
 
     // ==================== Redis Key ====================
 
+    /**
+     * 旧版JSON权重与统计，仅在没有检查点时读取一次用于迁移
+     */
     private static final String WEIGHTS_KEY = "ctr:model:weights";
     private static final String STATS_KEY = "ctr:model:stats";
+    private static final String CHECKPOINT_KEY = "ctr:model:checkpoint";
     private static final String BACKUP_KEY_PREFIX = "ctr:model:backup:";
     private static final String FEATURE_CACHE_PREFIX = "ctr:feature:";
 
@@ -93,13 +117,38 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     private static final long FEATURE_CACHE_TTL_MINUTES = 30;
     private static final long WEIGHTS_CACHE_TTL_HOURS = 24;
 
+    // ==================== 检查点格式 ====================
+
+    /**
+     * 检查点: 魔数、样本统计(3个long)，随后为 FtrlLearner 的二进制状态
+     */
+    private static final int CHECKPOINT_MAGIC = 0x43545231;
+    private static final int CHECKPOINT_HEADER_BYTES = 4 + 3 * 8;
+
+    /**
+     * 单次批量查询商品的ID数
+     */
+    private static final int PRODUCT_QUERY_BATCH = 500;
+
     // ==================== 内存缓存 ====================
 
     /**
-     * 模型权重向量 (内存缓存，定期同步到Redis)
+     * FTRL学习器 (训练线程无锁并发更新，重置时整体替换)
+     */
+    private volatile FtrlLearner learner;
+
+    /**
+     * 已发布的权重快照，只读，打分使用；每个小批量训练后整体替换
      */
     private volatile double[] weights;
 
+    /**
+     * 待训练的反馈
+     */
+    private BlockingQueue<CTRFeedback> feedbackQueue;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
     /**
      * 模型训练统计
      */
@@ -107,6 +156,16 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     private final AtomicLong positiveSamples = new AtomicLong(0);
     private final AtomicLong updateCount = new AtomicLong(0);
 
+    /**
+     * 在线学习运行统计
+     */
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder droppedFeedback = new LongAdder();
+    private final LongAdder missingProducts = new LongAdder();
+    private final LongAdder trainNanos = new LongAdder();
+    private final LongAdder checkpoints = new LongAdder();
+    private volatile int lastCheckpointBytes;
+
     /**
      * 特征名称映射 (用于解释特征重要性)
      */
@@ -233,25 +292,77 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     @PostConstruct
     public void init() {
         log.info("初始化CTR预测模型...");
-        loadWeightsFromRedis();
-        loadStatsFromRedis();
-        log.info("CTR模型初始化完成: 权重维度={}, 训练样本数={}, 正样本率={:.4f}",
-                TOTAL_FEATURE_DIM, totalSamples.get(),
-                totalSamples.get() > 0 ? (double) positiveSamples.get() / totalSamples.get() : 0);
+        feedbackQueue = new LinkedBlockingQueue<>(learningConfig.getQueueCapacity());
+        if (!loadCheckpointFromRedis()) {
+            //没有检查点时从旧版JSON权重迁移
+            loadWeightsFromRedis();
+            loadStatsFromRedis();
+        }
+        scheduledExecutorService.scheduleWithFixedDelay(this::flushQuietly,
+                learningConfig.getFlushInterval(), learningConfig.getFlushInterval(), TimeUnit.MILLISECONDS);
+        scheduledExecutorService.scheduleWithFixedDelay(this::checkpointQuietly,
+                learningConfig.getCheckpointInterval(), learningConfig.getCheckpointInterval(), TimeUnit.MILLISECONDS);
+        log.info("CTR模型初始化完成: 权重维度={}, 训练样本数={}, batchSize={}, flushInterval={}ms",
+                TOTAL_FEATURE_DIM, totalSamples.get(), learningConfig.getBatchSize(), learningConfig.getFlushInterval());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushQuietly();
+        checkpointQuietly();
+    }
+
+    /**
+     * 从Redis加载检查点，不存在或格式不识别时返回 false
+     */
+    private boolean loadCheckpointFromRedis() {
+        try {
+            String encoded = redisTemplate.opsForValue().get(CHECKPOINT_KEY);
+            if (encoded == null || encoded.isEmpty()) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            if (buffer.remaining() < CHECKPOINT_HEADER_BYTES || buffer.getInt() != CHECKPOINT_MAGIC) {
+                log.warn("CTR模型检查点格式不识别, 忽略");
+                return false;
+            }
+            long total = buffer.getLong();
+            long positive = buffer.getLong();
+            long updates = buffer.getLong();
+            byte[] state = new byte[buffer.remaining()];
+            buffer.get(state);
+            FtrlLearner restored = FtrlLearner.fromBytes(state, TOTAL_FEATURE_DIM, learningConfig.getAlpha(),
+                    learningConfig.getBeta(), learningConfig.getL1(), learningConfig.getL2(), GRADIENT_CLIP);
+            if (restored == null) {
+                log.warn("CTR模型检查点维度或版本不匹配, 忽略");
+                return false;
+            }
+            totalSamples.set(total);
+            positiveSamples.set(positive);
+            updateCount.set(updates);
+            publish(restored);
+            return true;
+        } catch (Exception e) {
+            log.warn("从Redis加载CTR模型检查点失败: {}", e.getMessage());
+            return false;
+        }
     }
 
     /**
-     * 从Redis加载权重
+     * 从Redis加载旧版JSON权重
      */
     private void loadWeightsFromRedis() {
         try {
             String weightsJson = redisTemplate.opsForValue().get(WEIGHTS_KEY);
             if (weightsJson != null && !weightsJson.isEmpty()) {
-                weights = objectMapper.readValue(weightsJson, double[].class);
-                if (weights.length != TOTAL_FEATURE_DIM) {
+                double[] saved = objectMapper.readValue(weightsJson, double[].class);
+                if (saved.length != TOTAL_FEATURE_DIM) {
                     log.warn("Redis中权重维度不匹配: expected={}, actual={}, 重新初始化",
-                            TOTAL_FEATURE_DIM, weights.length);
+                            TOTAL_FEATURE_DIM, saved.length);
                     initializeWeights();
+                } else {
+                    publish(newLearner().seed(saved));
+                    dirty.set(true);
                 }
             } else {
                 initializeWeights();
@@ -263,7 +374,7 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     }
 
     /**
-     * 从Redis加载统计信息
+     * 从Redis加载旧版统计信息
      */
     private void loadStatsFromRedis() {
         try {
@@ -283,15 +394,29 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
      * 初始化权重为小随机值
      */
     private void initializeWeights() {
-        weights = new double[TOTAL_FEATURE_DIM];
+        double[] initial = new double[TOTAL_FEATURE_DIM];
         Random random = new Random(42);  // 固定种子保证可复现
         for (int i = 0; i < TOTAL_FEATURE_DIM; i++) {
-            weights[i] = (random.nextDouble() - 0.5) * 2 * INIT_WEIGHT_RANGE;
+            initial[i] = (random.nextDouble() - 0.5) * 2 * INIT_WEIGHT_RANGE;
         }
-        saveWeightsToRedis();
+        publish(newLearner().seed(initial));
+        dirty.set(true);
         log.info("权重已初始化: 维度={}", TOTAL_FEATURE_DIM);
     }
 
+    private FtrlLearner newLearner() {
+        return new FtrlLearner(TOTAL_FEATURE_DIM, learningConfig.getAlpha(), learningConfig.getBeta(),
+                learningConfig.getL1(), learningConfig.getL2(), GRADIENT_CLIP);
+    }
+
+    /**
+     * 替换学习器并发布其权重快照
+     */
+    private synchronized void publish(FtrlLearner fresh) {
+        learner = fresh;
+        weights = fresh.snapshot();
+    }
+
     // ==================== 核心预测方法 ====================
 
     @Override
@@ -388,71 +513,149 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
 
     // ==================== 在线学习 ====================
 
+    /**
+     * 反馈进入队列，由后台按小批量训练；队列满时丢弃
+     */
     @Override
     public void updateModel(String wxUserId, String productId, boolean clicked) {
-        try {
-            // 获取商品
-            GoodsSpu product = goodsSpuMapper.selectById(productId);
-            if (product == null) {
-                log.warn("更新模型失败: 商品不存在, productId={}", productId);
-                return;
-            }
-
-            // 构建特征向量
-            double[] features = buildFeatureVector(wxUserId, product);
-
-            // 当前预测值
-            double prediction = predict(features, weights);
-
-            // 标签 (点击=1, 未点击=0)
-            double label = clicked ? 1.0 : 0.0;
-
-            // SGD更新
-            updateWeights(features, label, prediction);
-
-            // 更新统计
-            totalSamples.incrementAndGet();
-            if (clicked) {
-                positiveSamples.incrementAndGet();
-            }
-            updateCount.incrementAndGet();
-
-            // 每100次更新同步到Redis
-            if (updateCount.get() % 100 == 0) {
-                saveWeightsToRedis();
-                saveStatsToRedis();
-            }
-
-            log.debug("模型更新: userId={}, productId={}, clicked={}, prediction={:.4f}, label={}",
-                    wxUserId, productId, clicked, prediction, label);
-
-        } catch (Exception e) {
-            log.warn("模型更新失败: userId={}, productId={}, error={}",
-                    wxUserId, productId, e.getMessage());
+        if (wxUserId == null || productId == null) {
+            return;
+        }
+        if (!feedbackQueue.offer(new CTRFeedback(wxUserId, productId, clicked))) {
+            droppedFeedback.increment();
+            return;
+        }
+        if (feedbackQueue.size() >= learningConfig.getBatchSize() && flushScheduled.compareAndSet(false, true)) {
+            scheduledExecutorService.execute(this::flushQuietly);
         }
     }
 
+    /**
+     * 同步训练：按小批量依次训练，返回时模型已更新并写入检查点
+     */
     @Override
     public void batchUpdateModel(List<CTRFeedback> feedbackList) {
         if (feedbackList == null || feedbackList.isEmpty()) {
             return;
         }
 
+        int batchSize = Math.max(1, learningConfig.getBatchSize());
         int successCount = 0;
-        for (CTRFeedback feedback : feedbackList) {
+        for (int from = 0; from < feedbackList.size(); from += batchSize) {
+            successCount += trainBatch(feedbackList.subList(from, Math.min(from + batchSize, feedbackList.size())));
+        }
+
+        // 批量更新后立即同步
+        saveCheckpointToRedis();
+
+        log.info("批量模型更新完成: total={}, success={}", feedbackList.size(), successCount);
+    }
+
+    /**
+     * 训练队列中的全部反馈
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        int batchSize = Math.max(1, learningConfig.getBatchSize());
+        List<CTRFeedback> batch = new ArrayList<>(batchSize);
+        while (feedbackQueue.drainTo(batch, batchSize) > 0) {
+            trainBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 训练一个小批量，返回参与训练的样本数
+     *
+     * 商品按ID批量查询；用户特征与偏好、商品特征在批内各构建一次。
+     * 多个批次可并发训练 (定时任务与同步训练调用)，更新无锁，结束时各自发布快照。
+     */
+    private int trainBatch(List<CTRFeedback> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        FtrlLearner current = learner;
+        Map<String, GoodsSpu> products = loadProducts(batch);
+        Map<String, double[]> userFeaturesCache = new HashMap<>();
+        Map<String, Map<String, Double>> userPreferencesCache = new HashMap<>();
+        Map<String, double[]> productFeaturesCache = new HashMap<>();
+
+        int trained = 0;
+        int positives = 0;
+        for (CTRFeedback feedback : batch) {
+            GoodsSpu product = products.get(feedback.getProductId());
+            if (product == null) {
+                missingProducts.increment();
+                continue;
+            }
             try {
-                updateModel(feedback.getWxUserId(), feedback.getProductId(), feedback.isClicked());
-                successCount++;
+                String wxUserId = feedback.getWxUserId();
+                double[] userFeatures = userFeaturesCache.computeIfAbsent(wxUserId,
+                        featureEngineeringService::buildUserFeatureVector);
+                Map<String, Double> userPreferences = userPreferencesCache.computeIfAbsent(wxUserId,
+                        this::getUserPreferences);
+                double[] productFeatures = productFeaturesCache.computeIfAbsent(product.getId(),
+                        id -> featureEngineeringService.buildProductFeatureVector(product));
+                double[] crossFeatures = buildCrossFeatures(userFeatures, productFeatures, userPreferences, product);
+                double[] features = concatenateAllFeatures(userFeatures, productFeatures, crossFeatures);
+
+                current.update(features, feedback.isClicked());
+                trained++;
+                if (feedback.isClicked()) {
+                    positives++;
+                }
             } catch (Exception e) {
-                log.debug("批量更新单条失败: {}", e.getMessage());
+                log.debug("模型更新单条失败: userId={}, productId={}, error={}",
+                        feedback.getWxUserId(), feedback.getProductId(), e.getMessage());
             }
         }
 
-        // 批量更新后立即同步
-        saveWeightsToRedis();
-        saveStatsToRedis();
+        if (trained > 0) {
+            //重置期间训练的旧学习器不再发布
+            if (learner == current) {
+                weights = current.snapshot();
+            }
+            totalSamples.addAndGet(trained);
+            positiveSamples.addAndGet(positives);
+            updateCount.addAndGet(trained);
+            dirty.set(true);
+        }
+        batches.increment();
+        trainNanos.add(System.nanoTime() - start);
+        log.debug("CTR小批量训练完成: size={}, trained={}, positives={}", batch.size(), trained, positives);
+        return trained;
+    }
 
-        log.info("批量模型更新完成: total={}, success={}", feedbackList.size(), successCount);
+    /**
+     * 按ID批量查询批内商品
+     */
+    private Map<String, GoodsSpu> loadProducts(List<CTRFeedback> batch) {
+        List<String> ids = batch.stream()
+                .map(CTRFeedback::getProductId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<String, GoodsSpu> products = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += PRODUCT_QUERY_BATCH) {
+            List<String> chunk = ids.subList(from, Math.min(from + PRODUCT_QUERY_BATCH, ids.size()));
+            for (GoodsSpu product : goodsSpuMapper.selectBatchIds(chunk)) {
+                products.put(product.getId(), product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * 调度任务入口，异常只记录日志，避免中断后续调度
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            flushScheduled.set(false);
+            log.error("CTR反馈小批量训练失败", e);
+        }
     }
 
     // ==================== 模型管理 ====================
@@ -460,6 +663,7 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     @Override
     public Map<String, Double> getFeatureImportance() {
         Map<String, Double> importance = new LinkedHashMap<>();
+        double[] weights = this.weights;
 
         if (weights == null) {
             return importance;
@@ -486,16 +690,18 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
 
     @Override
     public double[] getModelWeights() {
+        double[] weights = this.weights;
         return weights != null ? weights.clone() : new double[TOTAL_FEATURE_DIM];
     }
 
     @Override
     public void resetModelWeights() {
+        feedbackQueue.clear();
         initializeWeights();
         totalSamples.set(0);
         positiveSamples.set(0);
         updateCount.set(0);
-        saveStatsToRedis();
+        saveCheckpointToRedis();
         log.info("模型权重已重置");
     }
 
@@ -506,16 +712,30 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
         stats.put("userFeatureDim", USER_FEATURE_DIM);
         stats.put("itemFeatureDim", ITEM_FEATURE_DIM);
         stats.put("crossFeatureDim", CROSS_FEATURE_DIM);
-        stats.put("baseLearningRate", LEARNING_RATE);
-        stats.put("currentLearningRate", getAdaptiveLearningRate());  // 当前自适应学习率
-        stats.put("l2Lambda", LAMBDA);
+        stats.put("algorithm", "FTRL-Proximal");
+        stats.put("alpha", learningConfig.getAlpha());
+        stats.put("beta", learningConfig.getBeta());
+        stats.put("l1", learningConfig.getL1());
+        stats.put("l2Lambda", learningConfig.getL2());
         stats.put("totalSamples", totalSamples.get());
         stats.put("positiveSamples", positiveSamples.get());
         stats.put("positiveRate", totalSamples.get() > 0 ?
                 (double) positiveSamples.get() / totalSamples.get() : 0.0);
         stats.put("updateCount", updateCount.get());
 
+        // 在线学习统计
+        long batchCount = batches.sum();
+        stats.put("batchSize", learningConfig.getBatchSize());
+        stats.put("pendingFeedback", feedbackQueue != null ? feedbackQueue.size() : 0);
+        stats.put("droppedFeedback", droppedFeedback.sum());
+        stats.put("missingProducts", missingProducts.sum());
+        stats.put("batches", batchCount);
+        stats.put("avgBatchMillis", batchCount > 0 ? trainNanos.sum() / batchCount / 1_000_000.0 : 0);
+        stats.put("checkpoints", checkpoints.sum());
+        stats.put("checkpointBytes", lastCheckpointBytes);
+
         // 权重统计
+        double[] weights = this.weights;
         if (weights != null) {
             double weightSum = 0, weightSumSq = 0;
             double maxWeight = Double.MIN_VALUE, minWeight = Double.MAX_VALUE;
@@ -546,18 +766,9 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     public void dailyBackup() {
         try {
             String backupKey = BACKUP_KEY_PREFIX + java.time.LocalDate.now().toString();
-            String weightsJson = objectMapper.writeValueAsString(weights);
 
-            // 备份权重
-            redisTemplate.opsForValue().set(backupKey, weightsJson, 30, TimeUnit.DAYS);
-
-            // 备份统计
-            Map<String, Long> stats = new HashMap<>();
-            stats.put("totalSamples", totalSamples.get());
-            stats.put("positiveSamples", positiveSamples.get());
-            stats.put("updateCount", updateCount.get());
-            String statsJson = objectMapper.writeValueAsString(stats);
-            redisTemplate.opsForValue().set(backupKey + ":stats", statsJson, 30, TimeUnit.DAYS);
+            // 备份检查点 (含样本统计)
+            redisTemplate.opsForValue().set(backupKey, encodeCheckpoint(), 30, TimeUnit.DAYS);
 
             log.info("CTR模型每日备份完成: key={}", backupKey);
 
@@ -567,13 +778,12 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     }
 
     /**
-     * 每5分钟同步权重到Redis
+     * 定时写入检查点，模型无更新时跳过
      */
-    @Scheduled(fixedRate = 300000)
-    public void syncWeightsToRedis() {
-        saveWeightsToRedis();
-        saveStatsToRedis();
-        log.debug("CTR模型权重已同步到Redis");
+    private void checkpointQuietly() {
+        if (dirty.get()) {
+            saveCheckpointToRedis();
+        }
     }
 
     // ==================== 核心算法 ====================
@@ -606,53 +816,6 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
         return sigmoid(z);
     }
 
-    /**
-     * SGD权重更新
-     * w_i += lr * (label - prediction) * x_i - lr * lambda * w_i
-     */
-    private void updateWeights(double[] features, double label, double prediction) {
-        if (features == null || weights == null) {
-            return;
-        }
-
-        double error = label - prediction;
-        double lr = getAdaptiveLearningRate();  // 使用自适应学习率
-
-        for (int i = 0; i < features.length && i < weights.length; i++) {
-            // 梯度
-            double gradient = error * features[i];
-
-            // 梯度裁剪
-            gradient = Math.max(-GRADIENT_CLIP, Math.min(GRADIENT_CLIP, gradient));
-
-            // SGD更新 + L2正则化
-            weights[i] += lr * gradient - lr * LAMBDA * weights[i];
-        }
-    }
-
-    /**
-     * 获取自适应学习率
-     * 实现学习率调度策略:
-     * - Warm-up阶段: 前1000次更新逐步增加学习率
-     * - 衰减阶段: 每10000次更新衰减10%
-     * - 最小学习率: 0.001
-     *
-     * @return 当前自适应学习率
-     */
-    private double getAdaptiveLearningRate() {
-        long updates = updateCount.get();
-        double baseLr = LEARNING_RATE;  // 0.01
-
-        // Warm-up: 前1000次更新逐步增加学习率
-        if (updates < 1000) {
-            return baseLr * (updates + 1) / 1000.0;
-        }
-
-        // 衰减: 每10000次更新衰减10%
-        double decay = Math.pow(0.9, updates / 10000);
-        return Math.max(0.001, baseLr * decay);  // 最小学习率0.001
-    }
-
     // ==================== 特征工程 ====================
 
     /**
@@ -1405,32 +1568,34 @@ public class CTRPredictionServiceImpl implements CTRPredictionService {
     // ==================== Redis持久化 ====================
 
     /**
-     * 保存权重到Redis
+     * 保存检查点到Redis
      */
-    private void saveWeightsToRedis() {
+    private void saveCheckpointToRedis() {
+        // 先清除标记，写入期间的新更新留到下一次
+        dirty.set(false);
         try {
-            String weightsJson = objectMapper.writeValueAsString(weights);
-            redisTemplate.opsForValue().set(WEIGHTS_KEY, weightsJson,
-                    WEIGHTS_CACHE_TTL_HOURS, TimeUnit.HOURS);
-        } catch (JsonProcessingException e) {
-            log.warn("保存权重到Redis失败: {}", e.getMessage());
+            String encoded = encodeCheckpoint();
+            redisTemplate.opsForValue().set(CHECKPOINT_KEY, encoded, WEIGHTS_CACHE_TTL_HOURS, TimeUnit.HOURS);
+            checkpoints.increment();
+            log.debug("CTR模型检查点已写入Redis: bytes={}", lastCheckpointBytes);
+        } catch (Exception e) {
+            dirty.set(true);
+            log.warn("保存CTR模型检查点到Redis失败: {}", e.getMessage());
         }
     }
 
     /**
-     * 保存统计到Redis
+     * 检查点编码: 魔数 + 样本统计 + 学习器状态，Base64 后存入 StringRedisTemplate
      */
-    private void saveStatsToRedis() {
-        try {
-            Map<String, Long> stats = new HashMap<>();
-            stats.put("totalSamples", totalSamples.get());
-            stats.put("positiveSamples", positiveSamples.get());
-            stats.put("updateCount", updateCount.get());
-            String statsJson = objectMapper.writeValueAsString(stats);
-            redisTemplate.opsForValue().set(STATS_KEY, statsJson,
-                    WEIGHTS_CACHE_TTL_HOURS, TimeUnit.HOURS);
-        } catch (JsonProcessingException e) {
-            log.debug("保存统计到Redis失败: {}", e.getMessage());
-        }
+    private String encodeCheckpoint() {
+        byte[] state = learner.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_HEADER_BYTES + state.length);
+        buffer.putInt(CHECKPOINT_MAGIC);
+        buffer.putLong(totalSamples.get());
+        buffer.putLong(positiveSamples.get());
+        buffer.putLong(updateCount.get());
+        buffer.put(state);
+        lastCheckpointBytes = buffer.capacity();
+        return Base64.getEncoder().encodeToString(buffer.array());
     }
 }
@@ -0,0 +1,315 @@
+package com.joolun.mall.service.impl;
+
+import com.joolun.mall.config.CtrLearningConfig;
+import com.joolun.mall.service.CTRPredictionService;
+import com.joolun.mall.service.CtrLearningSimulationService;
+import com.joolun.mall.util.FtrlLearner;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CTR 在线学习压测服务实现
+ *
+ * 特征布局与线上一致：用户 64 维、商品 64 维、交叉 72 维（用户与商品分量的乘积）。
+ * 点击概率由隐含真实权重经 sigmoid 给出，样本只保存 (用户, 商品, 标签)，特征在训练时现场拼接。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CtrLearningSimulationServiceImpl implements CtrLearningSimulationService {
+
+    private static final int MAX_SAMPLES = 1000000;
+    private static final int MAX_BATCH_SIZE = 10000;
+    private static final int USERS = 5000;
+    private static final int ITEMS = 2000;
+    private static final int DIM = CTRPredictionService.TOTAL_FEATURE_DIM;
+    private static final int USER_DIM = CTRPredictionService.USER_FEATURE_DIM;
+    private static final int ITEM_DIM = CTRPredictionService.ITEM_FEATURE_DIM;
+    /**
+     * 有效（真实权重非零）特征数
+     */
+    private static final int INFORMATIVE = 40;
+    /**
+     * 打分线程每轮打分的样本数，轮间休眠 1ms，只占少量 CPU
+     */
+    private static final int SCORES_PER_ROUND = 10;
+    /**
+     * 旧版 SGD 参数（学习率取 warm-up 结束后的基础值）
+     */
+    private static final double SGD_LEARNING_RATE = 0.01;
+    private static final double SGD_LAMBDA = 0.001;
+    private static final double GRADIENT_CLIP = 5.0;
+
+    private final CtrLearningConfig learningConfig;
+
+    @Override
+    public Map<String, Object> runLearningBenchmark(int samples, int threads, int batchSize) {
+        samples = Math.max(1000, Math.min(samples, MAX_SAMPLES));
+        int processors = Runtime.getRuntime().availableProcessors();
+        threads = threads <= 0 ? processors : Math.min(threads, processors);
+        batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+
+        ClickLog clickLog = new ClickLog(samples, new Random(42));
+        int trainSize = samples * 4 / 5;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("samples", samples);
+        result.put("trainSamples", trainSize);
+        result.put("holdoutSamples", samples - trainSize);
+        result.put("positiveRate", (double) clickLog.positives / samples);
+        result.put("threads", threads);
+        result.put("batchSize", batchSize);
+        result.put("sgd", runSgd(clickLog, trainSize));
+        result.put("ftrl", runFtrl(clickLog, trainSize, 1, batchSize));
+        result.put("ftrlHogwild", runFtrl(clickLog, trainSize, threads, batchSize));
+        log.info("CTR在线学习压测完成: {}", result);
+        return result;
+    }
+
+    /**
+     * 旧版规则：共享权重数组上的 SGD + L2，单线程
+     */
+    private Map<String, Object> runSgd(ClickLog clickLog, int trainSize) {
+        double[] w = new double[DIM];
+        double[] x = new double[DIM];
+        long start = System.nanoTime();
+        for (int i = 0; i < trainSize; i++) {
+            clickLog.features(i, x);
+            double error = (clickLog.labels[i] ? 1.0 : 0.0) - FtrlLearner.predict(x, w);
+            for (int k = 0; k < DIM; k++) {
+                double gradient = Math.max(-GRADIENT_CLIP, Math.min(GRADIENT_CLIP, error * x[k]));
+                w[k] += SGD_LEARNING_RATE * gradient - SGD_LEARNING_RATE * SGD_LAMBDA * w[k];
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Map<String, Object> stats = throughput(trainSize, elapsed);
+        stats.putAll(evaluate(clickLog, trainSize, w));
+        return stats;
+    }
+
+    /**
+     * FTRL：多个线程按小批量领取样本无锁更新，每批结束发布一次权重快照；
+     * 另起一个打分线程持续读取快照，验证训练期间打分不受影响
+     */
+    private Map<String, Object> runFtrl(ClickLog clickLog, int trainSize, int threads, int batchSize) {
+        FtrlLearner learner = new FtrlLearner(DIM, learningConfig.getAlpha(), learningConfig.getBeta(),
+                learningConfig.getL1(), learningConfig.getL2(), GRADIENT_CLIP);
+        AtomicReference<double[]> published = new AtomicReference<>(learner.snapshot());
+        AtomicInteger cursor = new AtomicInteger();
+        LongAdder snapshots = new LongAdder();
+        LongAdder scores = new LongAdder();
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        long elapsed;
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    double[] x = new double[DIM];
+                    try {
+                        startGate.await();
+                        int from;
+                        while ((from = cursor.getAndAdd(batchSize)) < trainSize) {
+                            int to = Math.min(from + batchSize, trainSize);
+                            for (int i = from; i < to; i++) {
+                                clickLog.features(i, x);
+                                learner.update(x, clickLog.labels[i]);
+                            }
+                            published.set(learner.snapshot());
+                            snapshots.increment();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            executor.execute(() -> {
+                double[] x = new double[DIM];
+                Random random = new Random(7);
+                try {
+                    while (done.getCount() > 0) {
+                        double[] snapshot = published.get();
+                        for (int k = 0; k < SCORES_PER_ROUND; k++) {
+                            clickLog.features(trainSize + random.nextInt(clickLog.labels.length - trainSize), x);
+                            FtrlLearner.predict(x, snapshot);
+                        }
+                        scores.add(SCORES_PER_ROUND);
+                        Thread.sleep(1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            long started = System.nanoTime();
+            startGate.countDown();
+            done.await();
+            elapsed = System.nanoTime() - started;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("CTR在线学习压测被中断", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> stats = throughput(trainSize, elapsed);
+        stats.put("threads", threads);
+        stats.put("snapshotsPublished", snapshots.sum());
+        stats.put("concurrentScores", scores.sum());
+        stats.put("checkpointBytes", learner.toBytes().length);
+        stats.putAll(evaluate(clickLog, trainSize, learner.snapshot()));
+        return stats;
+    }
+
+    private static Map<String, Object> throughput(int updates, long elapsedNanos) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trainMillis", elapsedNanos / 1_000_000);
+        stats.put("updatesPerSecond", elapsedNanos > 0 ? Math.round(updates * 1e9 / elapsedNanos) : 0);
+        return stats;
+    }
+
+    /**
+     * 留出集 AUC 与 LogLoss
+     */
+    private static Map<String, Object> evaluate(ClickLog clickLog, int trainSize, double[] w) {
+        int n = clickLog.labels.length - trainSize;
+        double[] predictions = new double[n];
+        boolean[] labels = new boolean[n];
+        double[] x = new double[DIM];
+        double logLoss = 0;
+        for (int i = 0; i < n; i++) {
+            clickLog.features(trainSize + i, x);
+            double p = Math.max(1e-15, Math.min(1 - 1e-15, FtrlLearner.predict(x, w)));
+            predictions[i] = p;
+            labels[i] = clickLog.labels[trainSize + i];
+            logLoss -= labels[i] ? Math.log(p) : Math.log(1 - p);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("auc", auc(predictions, labels));
+        stats.put("logLoss", logLoss / n);
+        return stats;
+    }
+
+    /**
+     * AUC：正样本秩和（Mann-Whitney U），同分取平均秩
+     */
+    private static double auc(double[] predictions, boolean[] labels) {
+        int n = predictions.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(predictions[a], predictions[b]));
+        double positiveRankSum = 0;
+        long positives = 0;
+        int i = 0;
+        while (i < n) {
+            int j = i;
+            while (j + 1 < n && predictions[order[j + 1]] == predictions[order[i]]) {
+                j++;
+            }
+            double averageRank = (i + j) / 2.0 + 1;
+            for (int k = i; k <= j; k++) {
+                if (labels[order[k]]) {
+                    positiveRankSum += averageRank;
+                    positives++;
+                }
+            }
+            i = j + 1;
+        }
+        long negatives = n - positives;
+        if (positives == 0 || negatives == 0) {
+            return 0.5;
+        }
+        return (positiveRankSum - positives * (positives + 1) / 2.0) / ((double) positives * negatives);
+    }
+
+    /**
+     * 模拟点击日志
+     */
+    private static final class ClickLog {
+        private final double[][] users = new double[USERS][USER_DIM];
+        private final double[][] items = new double[ITEMS][ITEM_DIM];
+        private final int[] userOf;
+        private final int[] itemOf;
+        private final boolean[] labels;
+        private int positives;
+
+        private ClickLog(int samples, Random random) {
+            //用户、商品特征：与线上一致的 [0,1] 归一化取值，约一半为 0/1 标记
+            for (double[] user : users) {
+                fill(user, random);
+            }
+            for (double[] item : items) {
+                fill(item, random);
+            }
+            double[] truth = new double[DIM];
+            for (int k = 0; k < INFORMATIVE; k++) {
+                truth[random.nextInt(DIM)] = random.nextGaussian() * 1.5;
+            }
+            //偏置使平均点击率落在 10% 左右
+            double[] x = new double[DIM];
+            double meanDot = 0;
+            for (int k = 0; k < 1000; k++) {
+                build(random.nextInt(USERS), random.nextInt(ITEMS), x);
+                meanDot += dot(truth, x) / 1000;
+            }
+            double bias = -meanDot - 3.5;
+
+            userOf = new int[samples];
+            itemOf = new int[samples];
+            labels = new boolean[samples];
+            for (int i = 0; i < samples; i++) {
+                userOf[i] = random.nextInt(USERS);
+                //商品曝光呈长尾
+                itemOf[i] = (int) (ITEMS * Math.pow(random.nextDouble(), 2));
+                build(userOf[i], itemOf[i], x);
+                labels[i] = random.nextDouble() < FtrlLearner.sigmoid(dot(truth, x) + bias);
+                if (labels[i]) {
+                    positives++;
+                }
+            }
+        }
+
+        private void features(int sample, double[] x) {
+            build(userOf[sample], itemOf[sample], x);
+        }
+
+        private void build(int user, int item, double[] x) {
+            double[] u = users[user];
+            double[] v = items[item];
+            System.arraycopy(u, 0, x, 0, USER_DIM);
+            System.arraycopy(v, 0, x, USER_DIM, ITEM_DIM);
+            for (int k = 0; k < DIM - USER_DIM - ITEM_DIM; k++) {
+                x[USER_DIM + ITEM_DIM + k] = u[k % USER_DIM] * v[(k * 7) % ITEM_DIM];
+            }
+        }
+
+        private static void fill(double[] vector, Random random) {
+            for (int k = 0; k < vector.length; k++) {
+                vector[k] = k % 2 == 0 ? random.nextDouble() : (random.nextDouble() < 0.3 ? 1.0 : 0.0);
+            }
+        }
+
+        private static double dot(double[] a, double[] b) {
+            double sum = 0;
+            for (int k = 0; k < a.length; k++) {
+                sum += a[k] * b[k];
+            }
+            return sum;
+        }
+    }
+}
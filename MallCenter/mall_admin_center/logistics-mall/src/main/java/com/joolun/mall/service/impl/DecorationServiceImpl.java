@@ -13,6 +13,7 @@ import com.joolun.mall.entity.DecorationComponentStyle;
 import com.joolun.mall.entity.DecorationLayoutPreset;
 import com.joolun.mall.entity.DecorationIconLibrary;
 import com.joolun.mall.entity.DecorationFontStyle;
+import com.joolun.mall.event.HomeContentChangedEvent;
 import com.joolun.mall.mapper.DecorationModuleMapper;
 import com.joolun.mall.mapper.DecorationTemplateMapper;
 import com.joolun.mall.mapper.DecorationThemePresetMapper;
@@ -24,6 +25,7 @@ import com.joolun.mall.mapper.DecorationIconLibraryMapper;
 import com.joolun.mall.mapper.DecorationFontStyleMapper;
 import com.joolun.mall.service.DecorationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -48,6 +50,7 @@ public class DecorationServiceImpl extends ServiceImpl<DecorationTemplateMapper,
     private final DecorationLayoutPresetMapper layoutPresetMapper;
     private final DecorationIconLibraryMapper iconLibraryMapper;
     private final DecorationFontStyleMapper fontStyleMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ==================== 模板管理 ====================
 
@@ -155,14 +158,18 @@ public class DecorationServiceImpl extends ServiceImpl<DecorationTemplateMapper,
         if (config.getVersion() == null) {
             config.setVersion(1);
         }
-        return pageConfigMapper.insert(config) > 0;
+        boolean saved = pageConfigMapper.insert(config) > 0;
+        eventPublisher.publishEvent(new HomeContentChangedEvent(this, "decoration:save"));
+        return saved;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean updatePageConfig(MerchantPageConfig config) {
         config.setUpdateTime(LocalDateTime.now());
-        return pageConfigMapper.updateById(config) > 0;
+        boolean updated = pageConfigMapper.updateById(config) > 0;
+        eventPublisher.publishEvent(new HomeContentChangedEvent(this, "decoration:update"));
+        return updated;
     }
 
     @Override
@@ -176,7 +183,9 @@ public class DecorationServiceImpl extends ServiceImpl<DecorationTemplateMapper,
         config.setPublishTime(LocalDateTime.now());
         config.setVersion(config.getVersion() + 1);
         config.setUpdateTime(LocalDateTime.now());
-        return pageConfigMapper.updateById(config) > 0;
+        boolean published = pageConfigMapper.updateById(config) > 0;
+        eventPublisher.publishEvent(new HomeContentChangedEvent(this, "decoration:publish"));
+        return published;
     }
 
     @Override
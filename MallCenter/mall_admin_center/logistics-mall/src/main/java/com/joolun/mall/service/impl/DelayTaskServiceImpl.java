@@ -0,0 +1,613 @@
+package com.joolun.mall.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.service.DelayTaskHandler;
+import com.joolun.mall.service.DelayTaskService;
+import com.joolun.mall.util.HierarchicalTimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延时任务服务实现
+ *
+ * Redis 数据结构（见 {@link MallConstants}）：
+ * - mall:delay:queue     待执行 zset：任务ID -> 到期时间
+ * - mall:delay:lease     已领取 zset：任务ID -> 租约到期时间
+ * - mall:delay:owner     领取记录 hash：任务ID -> 节点ID|到期时间
+ * - mall:delay:attempts  失败次数 hash
+ * - mall:delay:dead      死信 zset
+ *
+ * 执行流程：
+ * 1、拉取线程每 pollInterval 用 Lua 脚本原子地把 lookahead 内到期的任务从 queue 移入 lease（领取）
+ * 2、领取的任务放入分层时间轮，到期时交给工作线程
+ * 3、执行前确认领取记录仍属于本节点（未被取消、未被其他节点接管），成功后删除领取记录（确认）
+ * 4、失败按指数退避放回 queue，超过 maxAttempts 进入死信
+ * 5、租约过期（节点宕机、执行过慢）的任务由任一节点放回 queue；正常停机时未执行的任务立即归还
+ *
+ * 脚本在内部访问多个固定 key，适用于单机/主从 Redis。
+ */
+@Slf4j
+@Service
+public class DelayTaskServiceImpl implements DelayTaskService {
+
+    /**
+     * 领取脚本
+     * KEYS[1] queue；KEYS[2] lease；KEYS[3] owner
+     * ARGV[1] 当前时间；ARGV[2] 领取截止到期时间；ARGV[3] 租约时长；ARGV[4] 数量上限；ARGV[5] 节点ID
+     * 返回 {任务ID, 到期时间, ...}
+     */
+    private static final String CLAIM_SCRIPT =
+            "local items = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[2], 'WITHSCORES', 'LIMIT', 0, tonumber(ARGV[4]))\n" +
+            "local now = tonumber(ARGV[1])\n" +
+            "for i = 1, #items, 2 do\n" +
+            "    local due = tonumber(items[i + 1])\n" +
+            "    redis.call('zrem', KEYS[1], items[i])\n" +
+            "    redis.call('zadd', KEYS[2], math.max(due, now) + tonumber(ARGV[3]), items[i])\n" +
+            "    redis.call('hset', KEYS[3], items[i], ARGV[5] .. '|' .. items[i + 1])\n" +
+            "end\n" +
+            "return items";
+
+    /**
+     * 确认脚本：领取记录属于本节点时删除领取记录、租约、失败次数
+     * KEYS[1] owner；KEYS[2] lease；KEYS[3] attempts；ARGV[1] 任务ID；ARGV[2] 节点ID|
+     */
+    private static final String ACK_SCRIPT =
+            "local v = redis.call('hget', KEYS[1], ARGV[1])\n" +
+            "if v and string.sub(v, 1, #ARGV[2]) == ARGV[2] then\n" +
+            "    redis.call('hdel', KEYS[1], ARGV[1])\n" +
+            "    redis.call('zrem', KEYS[2], ARGV[1])\n" +
+            "    redis.call('hdel', KEYS[3], ARGV[1])\n" +
+            "    return 1\n" +
+            "end\n" +
+            "return 0";
+
+    /**
+     * 重试脚本：失败次数 +1，未超限时按指数退避放回 queue（已被重新调度的保留新到期时间），否则进入死信
+     * KEYS[1] queue；KEYS[2] lease；KEYS[3] owner；KEYS[4] attempts；KEYS[5] dead
+     * ARGV[1] 任务ID；ARGV[2] 节点ID|；ARGV[3] 当前时间；ARGV[4] 基础退避；ARGV[5] 最大退避；ARGV[6] 最大次数
+     * 返回 0 非本节点领取；n 第 n 次重试；-n 进入死信
+     */
+    private static final String RETRY_SCRIPT =
+            "local v = redis.call('hget', KEYS[3], ARGV[1])\n" +
+            "if not v or string.sub(v, 1, #ARGV[2]) ~= ARGV[2] then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('hdel', KEYS[3], ARGV[1])\n" +
+            "redis.call('zrem', KEYS[2], ARGV[1])\n" +
+            "local n = redis.call('hincrby', KEYS[4], ARGV[1], 1)\n" +
+            "if n >= tonumber(ARGV[6]) then\n" +
+            "    redis.call('hdel', KEYS[4], ARGV[1])\n" +
+            "    redis.call('zadd', KEYS[5], ARGV[3], ARGV[1])\n" +
+            "    return -n\n" +
+            "end\n" +
+            "local delay = math.min(tonumber(ARGV[4]) * 2 ^ (n - 1), tonumber(ARGV[5]))\n" +
+            "redis.call('zadd', KEYS[1], 'NX', tonumber(ARGV[3]) + delay, ARGV[1])\n" +
+            "return n";
+
+    /**
+     * 租约回收脚本：租约过期的任务按原到期时间放回 queue
+     * KEYS[1] lease；KEYS[2] owner；KEYS[3] queue；ARGV[1] 当前时间；ARGV[2] 数量上限
+     */
+    private static final String RECOVER_SCRIPT =
+            "local ids = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))\n" +
+            "for i = 1, #ids do\n" +
+            "    local v = redis.call('hget', KEYS[2], ids[i])\n" +
+            "    local due = ARGV[1]\n" +
+            "    if v then\n" +
+            "        due = string.match(v, '|(.*)$') or due\n" +
+            "    end\n" +
+            "    redis.call('zrem', KEYS[1], ids[i])\n" +
+            "    redis.call('hdel', KEYS[2], ids[i])\n" +
+            "    redis.call('zadd', KEYS[3], 'NX', due, ids[i])\n" +
+            "end\n" +
+            "return #ids";
+
+    /**
+     * 归还脚本：停机时把本节点已领取未执行的任务放回 queue
+     * KEYS[1] owner；KEYS[2] lease；KEYS[3] queue；ARGV[1] 任务ID；ARGV[2] 节点ID|
+     */
+    private static final String GIVE_BACK_SCRIPT =
+            "local v = redis.call('hget', KEYS[1], ARGV[1])\n" +
+            "if v and string.sub(v, 1, #ARGV[2]) == ARGV[2] then\n" +
+            "    redis.call('hdel', KEYS[1], ARGV[1])\n" +
+            "    redis.call('zrem', KEYS[2], ARGV[1])\n" +
+            "    redis.call('zadd', KEYS[3], 'NX', string.sub(v, #ARGV[2] + 1), ARGV[1])\n" +
+            "    return 1\n" +
+            "end\n" +
+            "return 0";
+
+    /**
+     * 取消脚本
+     * KEYS[1] queue；KEYS[2] lease；KEYS[3] owner；KEYS[4] attempts；ARGV[1] 任务ID
+     */
+    private static final String CANCEL_SCRIPT =
+            "local n = redis.call('zrem', KEYS[1], ARGV[1]) + redis.call('zrem', KEYS[2], ARGV[1])\n" +
+            "redis.call('hdel', KEYS[3], ARGV[1])\n" +
+            "redis.call('hdel', KEYS[4], ARGV[1])\n" +
+            "return n";
+
+    /** 时间轮每格 10ms，底层一圈约 5 秒，覆盖默认 lookahead */
+    private static final long WHEEL_TICK_MS = 10;
+    private static final int WHEEL_SIZE = 512;
+    /** 批量调度每次写入数量 */
+    private static final int SCHEDULE_CHUNK = 1000;
+    /** 最大退避 10 分钟 */
+    private static final long MAX_RETRY_DELAY = 600_000;
+    /** 到期延迟直方图：1ms 粒度，超出部分计入最后一格 */
+    private static final int LAG_BUCKETS = 60_000;
+    /** 吞吐统计窗口（秒） */
+    private static final int RATE_WINDOW = 10;
+
+    private final DefaultRedisScript<List> claimScript = new DefaultRedisScript<>(CLAIM_SCRIPT, List.class);
+    private final DefaultRedisScript<Long> ackScript = new DefaultRedisScript<>(ACK_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> retryScript = new DefaultRedisScript<>(RETRY_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> recoverScript = new DefaultRedisScript<>(RECOVER_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> giveBackScript = new DefaultRedisScript<>(GIVE_BACK_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> cancelScript = new DefaultRedisScript<>(CANCEL_SCRIPT, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Map<String, DelayTaskHandler> handlers = new ConcurrentHashMap<>();
+
+    private final String queueKey;
+    private final String leaseKey;
+    private final String ownerKey;
+    private final String attemptsKey;
+    private final String deadKey;
+    private final List<String> claimKeys;
+    private final List<String> ackKeys;
+    private final List<String> retryKeys;
+    private final List<String> recoverKeys;
+    private final List<String> giveBackKeys;
+    private final List<String> cancelKeys;
+
+    /** 拉取间隔（毫秒） */
+    @Value("${mall.delay.pollInterval:500}")
+    private long pollInterval;
+    /** 提前领取窗口（毫秒），领取后在本地时间轮中等待到期 */
+    @Value("${mall.delay.lookahead:5000}")
+    private long lookahead;
+    /** 单次领取数量上限 */
+    @Value("${mall.delay.claimBatch:1000}")
+    private int claimBatch;
+    /** 租约时长（毫秒，从到期时间起算） */
+    @Value("${mall.delay.leaseMillis:60000}")
+    private long leaseMillis;
+    /** 本节点已领取未完成的任务上限 */
+    @Value("${mall.delay.maxInFlight:10000}")
+    private int maxInFlight;
+    /** 执行线程数 */
+    @Value("${mall.delay.workerThreads:16}")
+    private int workerThreads;
+    /** 最大执行次数，超过进入死信 */
+    @Value("${mall.delay.maxAttempts:5}")
+    private int maxAttempts;
+    /** 重试基础退避（毫秒），每次翻倍 */
+    @Value("${mall.delay.retryDelay:5000}")
+    private long retryDelay;
+
+    private final String nodeId;
+    private final String ownerPrefix;
+    /** 本节点已领取、尚未开始执行的任务：任务ID -> 到期时间 */
+    private final Map<String, Long> claimed = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile boolean running;
+    private HierarchicalTimingWheel timingWheel;
+    private ThreadPoolExecutor workers;
+    private Thread pollerThread;
+    private Thread wheelThread;
+
+    private final LongAdder scheduledCount = new LongAdder();
+    private final LongAdder claimedCount = new LongAdder();
+    private final LongAdder succeededCount = new LongAdder();
+    private final LongAdder retriedCount = new LongAdder();
+    private final LongAdder deadCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+    private final LongAdder recoveredCount = new LongAdder();
+    private final AtomicLongArray lagHistogram = new AtomicLongArray(LAG_BUCKETS + 1);
+    private final AtomicLong maxLag = new AtomicLong();
+    private final AtomicLongArray rateSeconds = new AtomicLongArray(RATE_WINDOW + 2);
+    private final AtomicLongArray rateCounts = new AtomicLongArray(RATE_WINDOW + 2);
+
+    @Autowired
+    public DelayTaskServiceImpl(RedisTemplate<String, String> redisTemplate, List<DelayTaskHandler> handlerBeans) {
+        this(redisTemplate, MallConstants.REDIS_DELAY_QUEUE_KEY, MallConstants.REDIS_DELAY_LEASE_KEY,
+                MallConstants.REDIS_DELAY_OWNER_KEY, MallConstants.REDIS_DELAY_ATTEMPTS_KEY, MallConstants.REDIS_DELAY_DEAD_KEY);
+        handlerBeans.forEach(this::registerHandler);
+    }
+
+    private DelayTaskServiceImpl(RedisTemplate<String, String> redisTemplate, String queueKey, String leaseKey,
+                                 String ownerKey, String attemptsKey, String deadKey) {
+        this.redisTemplate = redisTemplate;
+        this.queueKey = queueKey;
+        this.leaseKey = leaseKey;
+        this.ownerKey = ownerKey;
+        this.attemptsKey = attemptsKey;
+        this.deadKey = deadKey;
+        this.claimKeys = Arrays.asList(queueKey, leaseKey, ownerKey);
+        this.ackKeys = Arrays.asList(ownerKey, leaseKey, attemptsKey);
+        this.retryKeys = Arrays.asList(queueKey, leaseKey, ownerKey, attemptsKey, deadKey);
+        this.recoverKeys = Arrays.asList(leaseKey, ownerKey, queueKey);
+        this.giveBackKeys = Arrays.asList(ownerKey, leaseKey, queueKey);
+        this.cancelKeys = Arrays.asList(queueKey, leaseKey, ownerKey, attemptsKey);
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + IdUtil.fastSimpleUUID().substring(0, 6);
+        this.ownerPrefix = nodeId + "|";
+    }
+
+    /**
+     * 创建使用独立 key 的实例（压测用），运行参数与本实例相同
+     * 任务只写入 keyPrefix 下的 key，仅由新实例领取执行：不占用线上队列的领取配额，其他节点也不会领取。
+     * 调用方负责 start/shutdown，结束后调用 {@link #deleteKeys()} 清理
+     */
+    public DelayTaskServiceImpl isolatedInstance(String keyPrefix) {
+        DelayTaskServiceImpl instance = new DelayTaskServiceImpl(redisTemplate, keyPrefix + "queue",
+                keyPrefix + "lease", keyPrefix + "owner", keyPrefix + "attempts", keyPrefix + "dead");
+        instance.pollInterval = pollInterval;
+        instance.lookahead = lookahead;
+        instance.claimBatch = claimBatch;
+        instance.leaseMillis = leaseMillis;
+        instance.maxInFlight = maxInFlight;
+        instance.workerThreads = workerThreads;
+        instance.maxAttempts = maxAttempts;
+        instance.retryDelay = retryDelay;
+        return instance;
+    }
+
+    /**
+     * 删除独立实例使用的全部 key
+     */
+    public void deleteKeys() {
+        if (MallConstants.REDIS_DELAY_QUEUE_KEY.equals(queueKey)) {
+            throw new IllegalStateException("不能删除线上延时任务队列");
+        }
+        redisTemplate.delete(Arrays.asList(queueKey, leaseKey, ownerKey, attemptsKey, deadKey));
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        AtomicInteger workerIndex = new AtomicInteger();
+        //队列长度受 maxInFlight 约束，时间轮线程提交时不会阻塞
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "delay-task-worker-" + workerIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        timingWheel = new HierarchicalTimingWheel(WHEEL_TICK_MS, WHEEL_SIZE, System.currentTimeMillis(), workers);
+
+        wheelThread = new Thread(() -> {
+            while (running) {
+                try {
+                    timingWheel.advanceClock(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("延时任务时间轮推进异常", e);
+                }
+            }
+        }, "delay-task-wheel");
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+
+        pollerThread = new Thread(this::pollLoop, "delay-task-poller");
+        pollerThread.setDaemon(true);
+        pollerThread.start();
+        log.info("延时任务服务启动: node={}, handlers={}, pollInterval={}ms, lookahead={}ms, workers={}",
+                nodeId, handlers.keySet(), pollInterval, lookahead, workerThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (pollerThread != null) {
+            pollerThread.interrupt();
+        }
+        if (wheelThread != null) {
+            wheelThread.interrupt();
+        }
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        //已领取未执行的任务立即归还，避免等待租约过期
+        int returned = 0;
+        for (String taskId : new ArrayList<>(claimed.keySet())) {
+            try {
+                Long result = redisTemplate.execute(giveBackScript, giveBackKeys, taskId, ownerPrefix);
+                if (result != null && result == 1L) {
+                    returned++;
+                }
+            } catch (Exception e) {
+                log.warn("归还延时任务失败，等待租约过期: taskId={}", taskId);
+            }
+        }
+        log.info("延时任务服务停止: node={}, 归还任务={}", nodeId, returned);
+    }
+
+    // ==================== 调度 ====================
+
+    @Override
+    public void schedule(String type, String bizId, long delay, TimeUnit unit) {
+        scheduleAt(type, bizId, System.currentTimeMillis() + unit.toMillis(delay));
+    }
+
+    @Override
+    public void scheduleAt(String type, String bizId, long dueTimeMillis) {
+        redisTemplate.opsForZSet().add(queueKey, taskId(type, bizId), dueTimeMillis);
+        scheduledCount.increment();
+    }
+
+    @Override
+    public void scheduleBatch(String type, Map<String, Long> dueTimes) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        for (Map.Entry<String, Long> entry : dueTimes.entrySet()) {
+            tuples.add(new DefaultTypedTuple<>(taskId(type, entry.getKey()), entry.getValue().doubleValue()));
+            if (tuples.size() >= SCHEDULE_CHUNK) {
+                redisTemplate.opsForZSet().add(queueKey, tuples);
+                tuples = new HashSet<>();
+            }
+        }
+        if (!tuples.isEmpty()) {
+            redisTemplate.opsForZSet().add(queueKey, tuples);
+        }
+        scheduledCount.add(dueTimes.size());
+    }
+
+    @Override
+    public boolean cancel(String type, String bizId) {
+        String taskId = taskId(type, bizId);
+        claimed.remove(taskId);
+        Long removed = redisTemplate.execute(cancelScript, cancelKeys, taskId);
+        return removed != null && removed > 0;
+    }
+
+    @Override
+    public Long getDueTime(String type, String bizId) {
+        String taskId = taskId(type, bizId);
+        Double score = redisTemplate.opsForZSet().score(queueKey, taskId);
+        if (score != null) {
+            return score.longValue();
+        }
+        Object owner = redisTemplate.opsForHash().get(ownerKey, taskId);
+        if (owner != null) {
+            String value = owner.toString();
+            return (long) Double.parseDouble(value.substring(value.lastIndexOf('|') + 1));
+        }
+        return null;
+    }
+
+    @Override
+    public void registerHandler(DelayTaskHandler handler) {
+        if (handler.getType().indexOf(':') >= 0) {
+            throw new IllegalArgumentException("延时任务类型不能包含冒号: " + handler.getType());
+        }
+        DelayTaskHandler previous = handlers.put(handler.getType(), handler);
+        if (previous != null && previous != handler) {
+            log.warn("延时任务处理器被覆盖: type={}", handler.getType());
+        }
+    }
+
+    @Override
+    public void unregisterHandler(String type) {
+        handlers.remove(type);
+    }
+
+    private static String taskId(String type, String bizId) {
+        return type + ":" + bizId;
+    }
+
+    // ==================== 领取与执行 ====================
+
+    private void pollLoop() {
+        long nextRecoverAt = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now >= nextRecoverAt) {
+                    recoverExpiredLeases(now);
+                    nextRecoverAt = now + pollInterval * 10;
+                }
+                int limit;
+                int count;
+                do {
+                    limit = Math.min(claimBatch, maxInFlight - inFlight.get());
+                    count = limit > 0 ? claim(System.currentTimeMillis(), limit) : 0;
+                } while (running && limit > 0 && count == limit);
+            } catch (Exception e) {
+                log.error("延时任务领取失败", e);
+            }
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int claim(long now, int limit) {
+        List<?> items = redisTemplate.execute(claimScript, claimKeys, String.valueOf(now),
+                String.valueOf(now + lookahead), String.valueOf(leaseMillis), String.valueOf(limit), nodeId);
+        if (items == null || items.isEmpty()) {
+            return 0;
+        }
+        int count = items.size() / 2;
+        for (int i = 0; i < items.size(); i += 2) {
+            String taskId = String.valueOf(items.get(i));
+            long dueTime = (long) Double.parseDouble(String.valueOf(items.get(i + 1)));
+            inFlight.incrementAndGet();
+            claimed.put(taskId, dueTime);
+            timingWheel.add(dueTime, () -> execute(taskId, dueTime));
+        }
+        claimedCount.add(count);
+        return count;
+    }
+
+    private void recoverExpiredLeases(long now) {
+        Long recovered;
+        do {
+            recovered = redisTemplate.execute(recoverScript, recoverKeys, String.valueOf(now), String.valueOf(claimBatch));
+            if (recovered != null && recovered > 0) {
+                recoveredCount.add(recovered);
+                log.warn("回收租约过期的延时任务: {}", recovered);
+            }
+        } while (running && recovered != null && recovered >= claimBatch);
+    }
+
+    private void execute(String taskId, long dueTime) {
+        try {
+            //本地记录已被取消或被同一任务的新领取替换
+            if (!claimed.remove(taskId, dueTime)) {
+                skippedCount.increment();
+                return;
+            }
+            long started = System.currentTimeMillis();
+            recordLag(started - dueTime);
+            Object owner = redisTemplate.opsForHash().get(ownerKey, taskId);
+            if (owner == null || !owner.toString().startsWith(ownerPrefix)) {
+                //已取消，或租约过期被其他节点接管
+                skippedCount.increment();
+                return;
+            }
+            int separator = taskId.indexOf(':');
+            String type = taskId.substring(0, separator);
+            DelayTaskHandler handler = handlers.get(type);
+            try {
+                if (handler == null) {
+                    throw new IllegalStateException("未注册的延时任务类型: " + type);
+                }
+                handler.handle(taskId.substring(separator + 1));
+            } catch (Exception e) {
+                retry(taskId, e);
+                return;
+            }
+            redisTemplate.execute(ackScript, ackKeys, taskId, ownerPrefix);
+            succeededCount.increment();
+            recordExecution(started);
+        } catch (Exception e) {
+            //Redis 异常：不确认，租约过期后重新执行
+            log.error("延时任务执行异常: taskId={}", taskId, e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void retry(String taskId, Exception cause) {
+        Long result = redisTemplate.execute(retryScript, retryKeys, taskId, ownerPrefix,
+                String.valueOf(System.currentTimeMillis()), String.valueOf(retryDelay),
+                String.valueOf(MAX_RETRY_DELAY), String.valueOf(maxAttempts));
+        if (result != null && result < 0) {
+            deadCount.increment();
+            log.error("延时任务超过最大重试次数，进入死信: taskId={}, attempts={}", taskId, -result, cause);
+        } else if (result != null && result > 0) {
+            retriedCount.increment();
+            log.warn("延时任务执行失败，稍后重试: taskId={}, attempt={}, error={}", taskId, result, cause.getMessage());
+        }
+    }
+
+    // ==================== 指标 ====================
+
+    private void recordLag(long lag) {
+        long value = Math.max(0, lag);
+        lagHistogram.incrementAndGet((int) Math.min(value, LAG_BUCKETS));
+        maxLag.accumulateAndGet(value, Math::max);
+    }
+
+    private void recordExecution(long nowMillis) {
+        long second = nowMillis / 1000;
+        int slot = (int) (second % rateSeconds.length());
+        long stamp = rateSeconds.get(slot);
+        if (stamp != second && rateSeconds.compareAndSet(slot, stamp, second)) {
+            rateCounts.set(slot, 0);
+        }
+        rateCounts.incrementAndGet(slot);
+    }
+
+    private long lagPercentile(long total, double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * q);
+        long seen = 0;
+        for (int i = 0; i < lagHistogram.length(); i++) {
+            seen += lagHistogram.get(i);
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return LAG_BUCKETS;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        long total = 0;
+        for (int i = 0; i < lagHistogram.length(); i++) {
+            total += lagHistogram.get(i);
+        }
+        //最近 RATE_WINDOW 个完整秒的平均吞吐
+        long currentSecond = now / 1000;
+        long executedInWindow = 0;
+        for (int i = 0; i < rateSeconds.length(); i++) {
+            long second = rateSeconds.get(i);
+            if (second < currentSecond && second >= currentSecond - RATE_WINDOW) {
+                executedInWindow += rateCounts.get(i);
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("node", nodeId);
+        stats.put("handlers", new TreeSet<>(handlers.keySet()));
+        stats.put("scheduled", scheduledCount.sum());
+        stats.put("claimed", claimedCount.sum());
+        stats.put("succeeded", succeededCount.sum());
+        stats.put("retried", retriedCount.sum());
+        stats.put("dead", deadCount.sum());
+        stats.put("skipped", skippedCount.sum());
+        stats.put("recovered", recoveredCount.sum());
+        stats.put("inFlight", inFlight.get());
+        stats.put("wheelSize", timingWheel != null ? timingWheel.size() : 0);
+        stats.put("workerQueue", workers != null ? workers.getQueue().size() : 0);
+        stats.put("throughputPerSecond", executedInWindow / RATE_WINDOW);
+        stats.put("lagP50Millis", lagPercentile(total, 0.50));
+        stats.put("lagP99Millis", lagPercentile(total, 0.99));
+        stats.put("lagMaxMillis", maxLag.get());
+
+        ZSetOperations<String, String> zSet = redisTemplate.opsForZSet();
+        stats.put("queueSize", zSet.zCard(queueKey));
+        stats.put("leaseSize", zSet.zCard(leaseKey));
+        stats.put("deadSize", zSet.zCard(deadKey));
+        stats.put("overdue", zSet.count(queueKey, Double.NEGATIVE_INFINITY, now));
+        Set<ZSetOperations.TypedTuple<String>> oldest = zSet.rangeWithScores(queueKey, 0, 0);
+        long backlogLag = 0;
+        if (oldest != null && !oldest.isEmpty()) {
+            Double score = oldest.iterator().next().getScore();
+            backlogLag = score != null ? Math.max(0, now - score.longValue()) : 0;
+        }
+        stats.put("backlogLagMillis", backlogLag);
+        return stats;
+    }
+}
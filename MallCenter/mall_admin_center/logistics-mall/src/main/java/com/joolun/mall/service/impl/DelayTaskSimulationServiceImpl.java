@@ -0,0 +1,154 @@
+package com.joolun.mall.service.impl;
+
+import com.joolun.mall.service.DelayTaskHandler;
+import com.joolun.mall.service.DelayTaskSimulationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延时任务压测服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DelayTaskSimulationServiceImpl implements DelayTaskSimulationService {
+
+    private static final String SIM_TYPE_PREFIX = "sim_";
+    /** 压测队列独立 key 前缀，与线上 mall:delay:* 隔离 */
+    private static final String SIM_KEY_PREFIX = "mall:delay:sim:";
+    private static final int MAX_TASKS = 1_000_000;
+    private static final int MAX_SPREAD_SECONDS = 600;
+    private static final int MAX_WAIT_SECONDS = 600;
+    /** 调度批大小 */
+    private static final int SCHEDULE_BATCH = 10_000;
+    /** 首个任务在调度完成前不会到期的预留时间（毫秒） */
+    private static final long START_DELAY_MILLIS = 2000;
+    /** 延迟直方图：1ms 粒度，上限 60 秒 */
+    private static final int LAG_BUCKETS = 60_000;
+
+    private final DelayTaskServiceImpl delayTaskService;
+
+    @Override
+    public Map<String, Object> runDelayTaskLoad(int tasks, int spreadSeconds, int waitSeconds) {
+        int total = Math.max(1, Math.min(tasks, MAX_TASKS));
+        long spreadMillis = Math.max(1, Math.min(spreadSeconds, MAX_SPREAD_SECONDS)) * 1000L;
+        long waitMillis = Math.max(1, Math.min(waitSeconds, MAX_WAIT_SECONDS)) * 1000L;
+        String type = SIM_TYPE_PREFIX + Long.toString(System.currentTimeMillis(), 36);
+        //独立队列与独立实例：其他节点不会领取压测任务，线上任务也不必排在压测任务之后
+        DelayTaskServiceImpl simService = delayTaskService.isolatedInstance(SIM_KEY_PREFIX + type + ":");
+
+        long[] dueTimes = new long[total];
+        AtomicIntegerArray executions = new AtomicIntegerArray(total);
+        AtomicInteger executed = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicLongArray lagHistogram = new AtomicLongArray(LAG_BUCKETS + 1);
+        AtomicLong maxLag = new AtomicLong();
+        AtomicLong firstExecution = new AtomicLong(Long.MAX_VALUE);
+        AtomicLong lastExecution = new AtomicLong();
+
+        simService.registerHandler(new DelayTaskHandler() {
+            @Override
+            public String getType() {
+                return type;
+            }
+
+            @Override
+            public void handle(String bizId) {
+                long now = System.currentTimeMillis();
+                int index = Integer.parseInt(bizId);
+                if (executions.incrementAndGet(index) > 1) {
+                    duplicates.incrementAndGet();
+                    return;
+                }
+                long lag = Math.max(0, now - dueTimes[index]);
+                lagHistogram.incrementAndGet((int) Math.min(lag, LAG_BUCKETS));
+                maxLag.accumulateAndGet(lag, Math::max);
+                firstExecution.accumulateAndGet(now, Math::min);
+                lastExecution.accumulateAndGet(now, Math::max);
+                executed.incrementAndGet();
+            }
+        });
+
+        simService.start();
+        try {
+            //调度：到期时间在 [start, start + spread) 内均匀随机分布
+            long scheduleStarted = System.currentTimeMillis();
+            long start = scheduleStarted + START_DELAY_MILLIS;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Map<String, Long> batch = new HashMap<>(SCHEDULE_BATCH * 2);
+            for (int i = 0; i < total; i++) {
+                dueTimes[i] = start + random.nextLong(spreadMillis);
+                batch.put(String.valueOf(i), dueTimes[i]);
+                if (batch.size() >= SCHEDULE_BATCH || i == total - 1) {
+                    simService.scheduleBatch(type, batch);
+                    batch.clear();
+                }
+            }
+            long scheduleMillis = Math.max(1, System.currentTimeMillis() - scheduleStarted);
+
+            //等待执行完成
+            long deadline = start + spreadMillis + waitMillis;
+            while (executed.get() < total && System.currentTimeMillis() < deadline) {
+                Thread.sleep(200);
+            }
+
+            int missing = 0;
+            for (int i = 0; i < total; i++) {
+                if (executions.get(i) == 0) {
+                    missing++;
+                }
+            }
+
+            long executeMillis = Math.max(1, lastExecution.get() - Math.max(firstExecution.get(), start));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("type", type);
+            result.put("tasks", total);
+            result.put("spreadSeconds", spreadMillis / 1000);
+            result.put("scheduleMillis", scheduleMillis);
+            result.put("schedulePerSecond", Math.round(total * 1000.0 / scheduleMillis));
+            result.put("executed", executed.get());
+            result.put("missing", missing);
+            result.put("duplicates", duplicates.get());
+            result.put("executePerSecond", Math.round(executed.get() * 1000.0 / executeMillis));
+            result.put("lagP50Millis", percentile(lagHistogram, executed.get(), 0.50));
+            result.put("lagP99Millis", percentile(lagHistogram, executed.get(), 0.99));
+            result.put("lagP999Millis", percentile(lagHistogram, executed.get(), 0.999));
+            result.put("lagMaxMillis", maxLag.get());
+            result.put("serviceStats", simService.getStats());
+            log.info("延时任务压测完成: tasks={}, executed={}, missing={}, duplicates={}, lagP99={}ms",
+                    total, executed.get(), missing, duplicates.get(), result.get("lagP99Millis"));
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("延时任务压测被中断", e);
+        } finally {
+            simService.shutdown();
+            simService.deleteKeys();
+        }
+    }
+
+    private static long percentile(AtomicLongArray histogram, long total, double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * q);
+        long seen = 0;
+        for (int i = 0; i < histogram.length(); i++) {
+            seen += histogram.get(i);
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return LAG_BUCKETS;
+    }
+}
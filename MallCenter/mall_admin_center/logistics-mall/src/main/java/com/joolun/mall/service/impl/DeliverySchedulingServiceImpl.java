@@ -1,6 +1,7 @@
 package com.joolun.mall.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.joolun.mall.config.DeliveryRoutingConfig;
 import com.joolun.mall.entity.DeliveryOrder;
 import com.joolun.mall.entity.DeliveryRoute;
 import com.joolun.mall.entity.DeliveryVehicle;
@@ -10,6 +11,7 @@ import com.joolun.mall.mapper.DeliveryVehicleMapper;
 import com.joolun.mall.service.DeliveryFeatureService;
 import com.joolun.mall.service.DeliveryPredictionService;
 import com.joolun.mall.service.DeliverySchedulingService;
+import com.joolun.mall.util.VrpSolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,8 +19,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -35,6 +39,9 @@ import java.util.stream.Collectors;
  * - driver_preference (10%): 司机区域偏好
  * - workload_balance (10%): 工作量均衡
  *
+ * 批量调度不再逐单贪心选车，而是把订单与车辆建成 CVRPTW 整体求解 (见 {@link VrpSolver})：
+ * 仓库为起终点，车辆剩余载重/体积为容量，订单期望时间窗为硬约束，无法安排的订单按优先级计惩罚。
+ *
  * @author Delivery Scheduling V4.0
  * @since 2026-01-20
  */
@@ -48,6 +55,7 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
     private final DeliveryRouteMapper deliveryRouteMapper;
     private final DeliveryFeatureService featureService;
     private final DeliveryPredictionService predictionService;
+    private final DeliveryRoutingConfig routingConfig;
 
     // 调度策略权重
     private final ConcurrentHashMap<String, Double> strategyWeights = new ConcurrentHashMap<>();
@@ -62,6 +70,7 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
 
     // 统计
     private final AtomicInteger totalScheduled = new AtomicInteger(0);
+    private volatile Map<String, Object> lastRoutingStats = Collections.emptyMap();
 
     @PostConstruct
     public void init() {
@@ -165,61 +174,60 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
             return result;
         }
 
-        // 按优先级和时间窗口排序订单
-        orders.sort((a, b) -> {
-            int priorityCompare = Integer.compare(
-                b.getPriority() != null ? b.getPriority() : 3,
-                a.getPriority() != null ? a.getPriority() : 3
-            );
-            if (priorityCompare != 0) return priorityCompare;
-            if (a.getExpectedStart() == null) return 1;
-            if (b.getExpectedStart() == null) return -1;
-            return a.getExpectedStart().compareTo(b.getExpectedStart());
-        });
+        LocalDateTime planStart = planningStart(orders);
+        result.setDate(planStart.toLocalDate());
+
+        // 冷链订单只排给冷链车；普通订单使用其余车辆，以及排完冷链单后仍空闲的冷链车
+        List<DeliveryOrder> coldOrders = new ArrayList<>();
+        List<DeliveryOrder> normalOrders = new ArrayList<>();
+        for (DeliveryOrder order : orders) {
+            (Boolean.TRUE.equals(order.getRequiresCold()) ? coldOrders : normalOrders).add(order);
+        }
+        List<DeliveryVehicle> coldVehicles = new ArrayList<>();
+        List<DeliveryVehicle> normalVehicles = new ArrayList<>();
+        for (DeliveryVehicle v : vehicles) {
+            ("cold_chain".equals(v.getVehicleType()) ? coldVehicles : normalVehicles).add(v);
+        }
+
+        Map<String, Object> routingStats = new LinkedHashMap<>();
+        List<RoutePlan> plans = new ArrayList<>(solveRoutes("cold_chain", coldOrders, coldVehicles, planStart, routingStats));
+        Set<String> usedVehicles = plans.stream().map(RoutePlan::getVehicleId).collect(Collectors.toSet());
+        for (DeliveryVehicle v : coldVehicles) {
+            if (!usedVehicles.contains(v.getId())) {
+                normalVehicles.add(v);
+            }
+        }
+        plans.addAll(solveRoutes("normal", normalOrders, normalVehicles, planStart, routingStats));
 
         // 车辆订单分配映射
         Map<String, List<String>> vehicleOrderMap = new HashMap<>();
-        Map<String, Integer> vehicleSequence = new HashMap<>();
         for (DeliveryVehicle v : vehicles) {
             vehicleOrderMap.put(v.getId(), new ArrayList<>());
-            vehicleSequence.put(v.getId(), 0);
         }
+        Map<String, DeliveryOrder> orderById = orders.stream()
+            .collect(Collectors.toMap(DeliveryOrder::getId, o -> o, (a, b) -> a));
 
         int scheduledCount = 0;
-        List<DeliveryOrder> updateOrders = new ArrayList<>();
-
-        // 贪心调度
-        for (DeliveryOrder order : orders) {
-            List<VehicleCandidate> candidates = scheduleOrder(order);
-
-            if (!candidates.isEmpty()) {
-                // 选择最优车辆
-                VehicleCandidate best = candidates.get(0);
-                String vehicleId = best.getVehicleId();
-
-                // 更新订单
-                order.setVehicleId(vehicleId);
-                order.setSequenceInRoute(vehicleSequence.get(vehicleId) + 1);
-                order.setScheduledTime(LocalDateTime.now().plusMinutes((long) best.getEstimatedDuration()));
+        double totalDistance = 0;
+        for (RoutePlan plan : plans) {
+            for (int i = 0; i < plan.getOrderIds().size(); i++) {
+                DeliveryOrder order = orderById.get(plan.getOrderIds().get(i));
+                order.setVehicleId(plan.getVehicleId());
+                order.setSequenceInRoute(i + 1);
+                order.setScheduledTime(plan.getEtas().get(i));
                 order.setStatus("scheduled");
-                updateOrders.add(order);
-
-                // 更新映射
-                vehicleOrderMap.get(vehicleId).add(order.getId());
-                vehicleSequence.put(vehicleId, vehicleSequence.get(vehicleId) + 1);
-
+                deliveryOrderMapper.updateById(order);
                 scheduledCount++;
             }
-        }
-
-        // 批量更新数据库
-        for (DeliveryOrder order : updateOrders) {
-            deliveryOrderMapper.updateById(order);
+            vehicleOrderMap.get(plan.getVehicleId()).addAll(plan.getOrderIds());
+            totalDistance += plan.getDistance();
         }
 
         // 创建路线
-        List<DeliveryRoute> routes = createRoutes(vehicleOrderMap, vehicles);
+        List<DeliveryRoute> routes = createRoutes(plans, vehicles, planStart.toLocalDate());
         result.setRoutes(routes);
+        result.setRoutePlans(plans);
+        result.setTotalDistance(totalDistance);
 
         result.setScheduledOrders(scheduledCount);
         result.setUnscheduledOrders(orders.size() - scheduledCount);
@@ -228,9 +236,10 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
         result.setMessage("调度完成");
 
         totalScheduled.addAndGet(scheduledCount);
+        lastRoutingStats = routingStats;
 
-        log.info("批量调度完成: total={}, scheduled={}, elapsed={}ms",
-                orders.size(), scheduledCount, result.getElapsedMs());
+        log.info("批量调度完成: total={}, scheduled={}, routes={}, distance={}km, elapsed={}ms",
+                orders.size(), scheduledCount, plans.size(), String.format("%.1f", totalDistance), result.getElapsedMs());
 
         return result;
     }
@@ -290,6 +299,7 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
         stats.put("totalScheduled", totalScheduled.get());
         stats.put("strategyWeights", new HashMap<>(strategyWeights));
         stats.put("predictionModelStats", predictionService.getModelStats());
+        stats.put("lastRouting", lastRoutingStats);
         return stats;
     }
 
@@ -310,18 +320,22 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
         double orderVolume = order.getVolume() != null ? order.getVolume().doubleValue() : 0;
 
         return vehicles.stream()
-            .filter(v -> {
-                double remainWeight = v.getMaxWeight() != null ?
-                    v.getMaxWeight().doubleValue() -
-                    (v.getCurrentLoadWeight() != null ? v.getCurrentLoadWeight().doubleValue() : 0) : 500;
-                double remainVolume = v.getMaxVolume() != null ?
-                    v.getMaxVolume().doubleValue() -
-                    (v.getCurrentLoadVolume() != null ? v.getCurrentLoadVolume().doubleValue() : 0) : 5;
-                return remainWeight >= orderWeight && remainVolume >= orderVolume;
-            })
+            .filter(v -> remainingWeight(v) >= orderWeight && remainingVolume(v) >= orderVolume)
             .collect(Collectors.toList());
     }
 
+    private double remainingWeight(DeliveryVehicle v) {
+        return v.getMaxWeight() != null ?
+            v.getMaxWeight().doubleValue() -
+            (v.getCurrentLoadWeight() != null ? v.getCurrentLoadWeight().doubleValue() : 0) : 500;
+    }
+
+    private double remainingVolume(DeliveryVehicle v) {
+        return v.getMaxVolume() != null ?
+            v.getMaxVolume().doubleValue() -
+            (v.getCurrentLoadVolume() != null ? v.getCurrentLoadVolume().doubleValue() : 0) : 5;
+    }
+
     private Map<String, Double> calculateStrategyScores(DeliveryOrder order, DeliveryVehicle vehicle) {
         Map<String, Double> scores = new HashMap<>();
 
@@ -336,9 +350,7 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
 
         // 2. 容量匹配策略
         double orderWeight = order.getWeight() != null ? order.getWeight().doubleValue() : 0;
-        double remainWeight = vehicle.getMaxWeight() != null ?
-            vehicle.getMaxWeight().doubleValue() -
-            (vehicle.getCurrentLoadWeight() != null ? vehicle.getCurrentLoadWeight().doubleValue() : 0) : 500;
+        double remainWeight = remainingWeight(vehicle);
         scores.put(STRATEGY_CAPACITY, remainWeight > 0 ? Math.min(1.0, orderWeight / remainWeight) : 0);
 
         // 3. 时间窗口匹配策略
@@ -369,24 +381,127 @@ public class DeliverySchedulingServiceImpl implements DeliverySchedulingService
         return scores;
     }
 
-    private List<DeliveryRoute> createRoutes(Map<String, List<String>> vehicleOrderMap,
-                                              List<DeliveryVehicle> vehicles) {
-        List<DeliveryRoute> routes = new ArrayList<>();
-        LocalDate today = LocalDate.now();
+    /**
+     * 规划起点：当前时间；调度未来日期时取最早时间窗前 leadMinutes 分钟
+     */
+    private LocalDateTime planningStart(List<DeliveryOrder> orders) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime earliest = orders.stream()
+            .map(DeliveryOrder::getExpectedStart)
+            .filter(Objects::nonNull)
+            .min(Comparator.naturalOrder())
+            .orElse(null);
+        if (earliest != null && earliest.minusMinutes(routingConfig.getLeadMinutes()).isAfter(now)) {
+            return earliest.minusMinutes(routingConfig.getLeadMinutes());
+        }
+        return now;
+    }
 
-        for (DeliveryVehicle vehicle : vehicles) {
-            List<String> orderIds = vehicleOrderMap.get(vehicle.getId());
-            if (orderIds == null || orderIds.isEmpty()) {
-                continue;
+    /**
+     * 一组订单与车辆的路径规划，时间以规划起点后的分钟数表示
+     */
+    private List<RoutePlan> solveRoutes(String group, List<DeliveryOrder> orders, List<DeliveryVehicle> vehicles,
+                                        LocalDateTime planStart, Map<String, Object> stats) {
+        if (orders.isEmpty() || vehicles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        double depotLat = routingConfig.getDepotLat();
+        double depotLng = routingConfig.getDepotLng();
+
+        // 规划时长覆盖最晚的时间窗
+        long horizon = routingConfig.getHorizonMinutes();
+        for (DeliveryOrder order : orders) {
+            if (order.getExpectedEnd() != null) {
+                horizon = Math.max(horizon, ChronoUnit.MINUTES.between(planStart, order.getExpectedEnd())
+                    + (long) Math.ceil(routingConfig.getServiceMinutes()) + routingConfig.getLeadMinutes());
+            }
+        }
+
+        VrpSolver.Builder builder = VrpSolver.builder(depotLat, depotLng, 0, horizon, routingConfig.getSpeedKmh());
+        for (DeliveryOrder order : orders) {
+            double ready = order.getExpectedStart() != null
+                ? Math.max(0, ChronoUnit.MINUTES.between(planStart, order.getExpectedStart())) : 0;
+            double due = order.getExpectedEnd() != null
+                ? ChronoUnit.MINUTES.between(planStart, order.getExpectedEnd()) : horizon;
+            if (due < ready) {
+                // 时间窗已过期，按尽快送达处理
+                ready = 0;
+                due = horizon;
+            }
+            int priority = order.getPriority() != null ? order.getPriority() : 3;
+            builder.addCustomer(
+                order.getLatitude() != null ? order.getLatitude().doubleValue() : depotLat,
+                order.getLongitude() != null ? order.getLongitude().doubleValue() : depotLng,
+                order.getWeight() != null ? order.getWeight().doubleValue() : 0,
+                order.getVolume() != null ? order.getVolume().doubleValue() : 0,
+                ready, due, routingConfig.getServiceMinutes(),
+                routingConfig.getUnassignedPenalty() * Math.max(1, priority));
+        }
+        for (DeliveryVehicle v : vehicles) {
+            builder.addVehicle(Math.max(0, remainingWeight(v)), Math.max(0, remainingVolume(v)));
+        }
+
+        VrpSolver.Options options = new VrpSolver.Options();
+        options.setTimeBudgetMs(routingConfig.getTimeBudgetMs());
+        options.setThreads(routingConfig.getThreads());
+        VrpSolver.Solution solution = VrpSolver.solve(builder.build(), options);
+
+        List<RoutePlan> plans = new ArrayList<>();
+        for (VrpSolver.Route route : solution.getRoutes()) {
+            RoutePlan plan = new RoutePlan();
+            plan.setVehicleId(vehicles.get(route.getVehicle()).getId());
+            List<String> orderIds = new ArrayList<>();
+            List<LocalDateTime> etas = new ArrayList<>();
+            for (int i = 0; i < route.getCustomers().length; i++) {
+                orderIds.add(orders.get(route.getCustomers()[i] - 1).getId());
+                etas.add(planStart.plusSeconds(Math.round(route.getServiceStart()[i] * 60)));
             }
+            plan.setOrderIds(orderIds);
+            plan.setEtas(etas);
+            plan.setLoadWeight(route.getLoadWeight());
+            plan.setLoadVolume(route.getLoadVolume());
+            plan.setDistance(route.getDistance());
+            plan.setDepartureTime(planStart.plusSeconds(Math.round(route.getDeparture() * 60)));
+            plan.setReturnTime(planStart.plusSeconds(Math.round(route.getReturnTime() * 60)));
+            plans.add(plan);
+        }
+
+        Map<String, Object> groupStats = new LinkedHashMap<>();
+        groupStats.put("orders", orders.size());
+        groupStats.put("vehicles", vehicles.size());
+        groupStats.put("routes", plans.size());
+        groupStats.put("unassigned", solution.getUnassigned().length);
+        groupStats.put("constructionDistance", solution.getConstructionDistance());
+        groupStats.put("distance", solution.getTotalDistance());
+        groupStats.put("iterations", solution.getIterations());
+        groupStats.put("threads", solution.getThreads());
+        groupStats.put("elapsedMs", solution.getElapsedMs());
+        stats.put(group, groupStats);
+
+        log.info("路径规划完成: group={}, orders={}, routes={}, unassigned={}, distance={}km (初始解 {}km), iterations={}, elapsed={}ms",
+                group, orders.size(), plans.size(), solution.getUnassigned().length,
+                String.format("%.1f", solution.getTotalDistance()), String.format("%.1f", solution.getConstructionDistance()),
+                solution.getIterations(), solution.getElapsedMs());
+        return plans;
+    }
+
+    private List<DeliveryRoute> createRoutes(List<RoutePlan> plans, List<DeliveryVehicle> vehicles, LocalDate routeDate) {
+        Map<String, DeliveryVehicle> vehicleById = vehicles.stream()
+            .collect(Collectors.toMap(DeliveryVehicle::getId, v -> v, (a, b) -> a));
+        List<DeliveryRoute> routes = new ArrayList<>();
 
+        for (RoutePlan plan : plans) {
             DeliveryRoute route = new DeliveryRoute();
-            route.setVehicleId(vehicle.getId());
-            route.setRouteDate(today);
-            route.setTotalOrders(orderIds.size());
+            route.setVehicleId(plan.getVehicleId());
+            route.setRouteDate(routeDate);
+            route.setTotalOrders(plan.getOrderIds().size());
+            route.setTotalDistance(BigDecimal.valueOf(plan.getDistance()).setScale(2, RoundingMode.HALF_UP));
+            route.setEstimatedDuration((int) ChronoUnit.MINUTES.between(plan.getDepartureTime(), plan.getReturnTime()));
+            route.setStartTime(plan.getDepartureTime());
+            route.setEndTime(plan.getReturnTime());
             route.setStatus("planned");
-            route.setIsSimulated(vehicle.getIsSimulated());
-            route.setRouteSequence(String.join(",", orderIds));
+            route.setIsSimulated(vehicleById.get(plan.getVehicleId()).getIsSimulated());
+            route.setRouteSequence(String.join(",", plan.getOrderIds()));
 
             deliveryRouteMapper.insert(route);
             routes.add(route);
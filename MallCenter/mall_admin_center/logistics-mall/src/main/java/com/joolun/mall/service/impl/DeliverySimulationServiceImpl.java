@@ -1,6 +1,7 @@
 package com.joolun.mall.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.joolun.mall.config.DeliveryRoutingConfig;
 import com.joolun.mall.entity.DeliveryFeedback;
 import com.joolun.mall.entity.DeliveryOrder;
 import com.joolun.mall.entity.DeliveryVehicle;
@@ -11,6 +12,7 @@ import com.joolun.mall.service.DeliveryFeatureService;
 import com.joolun.mall.service.DeliveryPredictionService;
 import com.joolun.mall.service.DeliverySchedulingService;
 import com.joolun.mall.service.DeliverySimulationService;
+import com.joolun.mall.util.VrpSolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -39,6 +41,7 @@ public class DeliverySimulationServiceImpl implements DeliverySimulationService
     private final DeliverySchedulingService schedulingService;
     private final DeliveryPredictionService predictionService;
     private final DeliveryFeatureService featureService;
+    private final DeliveryRoutingConfig routingConfig;
 
     private final Random random = new Random();
 
@@ -282,8 +285,172 @@ public class DeliverySimulationServiceImpl implements DeliverySimulationService
         return result;
     }
 
+    @Override
+    public Map<String, Object> runRoutingBenchmark(int customers, long timeBudgetMs, int threads) {
+        customers = Math.max(10, Math.min(customers, 2000));
+        timeBudgetMs = Math.max(0, Math.min(timeBudgetMs, 60000));
+        log.info("开始路径规划基准测试: customers={}, timeBudgetMs={}, threads={}", customers, timeBudgetMs, threads);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("customers", customers);
+        result.put("timeBudgetMs", timeBudgetMs);
+        for (String type : new String[]{"R", "C", "RC"}) {
+            VrpSolver.Problem problem = generateRoutingInstance(type, customers, new Random(42));
+            Map<String, Object> instance = new LinkedHashMap<>();
+            instance.put("vehicles", problem.vehicles());
+            instance.put("greedy", greedyBaseline(problem));
+
+            VrpSolver.Options options = new VrpSolver.Options();
+            options.setTimeBudgetMs(timeBudgetMs);
+            options.setThreads(1);
+            VrpSolver.Solution single = VrpSolver.solve(problem, options);
+            instance.put("constructionDistance", round(single.getConstructionDistance()));
+            instance.put("constructionUnassigned", single.getConstructionUnassigned());
+            instance.put("alnsSingleThread", routingReport(single));
+
+            options.setThreads(threads);
+            instance.put("alnsMultiThread", routingReport(VrpSolver.solve(problem, options)));
+            result.put(type, instance);
+        }
+
+        log.info("路径规划基准测试完成: {}", result);
+        return result;
+    }
+
     // ==================== 私有方法 ====================
 
+    /** 基准实例规划时长 (分钟)，对应 9:00-19:00 */
+    private static final int BENCHMARK_HORIZON = 600;
+
+    /**
+     * 生成 Solomon 风格实例：R 在仓库周边约 30km 见方内均匀分布，C 围绕市区 8 个商圈中心聚集，RC 各占一半。
+     * 时间窗宽 60-180 分钟，起点保证单独往返可行；车队为同型中型车 (500kg, 5m³)
+     */
+    private VrpSolver.Problem generateRoutingInstance(String type, int customers, Random rnd) {
+        double depotLat = routingConfig.getDepotLat();
+        double depotLng = routingConfig.getDepotLng();
+        double speed = routingConfig.getSpeedKmh();
+        double service = routingConfig.getServiceMinutes();
+        VrpSolver.Builder builder = VrpSolver.builder(depotLat, depotLng, 0, BENCHMARK_HORIZON, speed);
+        for (int i = 0; i < customers; i++) {
+            boolean clustered = "C".equals(type) || ("RC".equals(type) && i % 2 == 0);
+            double lat;
+            double lng;
+            if (clustered) {
+                double[] center = DISTRICT_CENTERS[rnd.nextInt(8)];
+                lat = center[0] + rnd.nextGaussian() * 0.01;
+                lng = center[1] + rnd.nextGaussian() * 0.01;
+            } else {
+                lat = depotLat + (rnd.nextDouble() - 0.5) * 0.3;
+                lng = depotLng + (rnd.nextDouble() - 0.5) * 0.3;
+            }
+            double toDepot = VrpSolver.haversine(depotLat, depotLng, lat, lng) / speed * 60;
+            double width = 60 + rnd.nextDouble() * 120;
+            double latestReady = Math.max(toDepot, BENCHMARK_HORIZON - service - toDepot - width);
+            double ready = toDepot + rnd.nextDouble() * (latestReady - toDepot);
+            builder.addCustomer(lat, lng, 5 + rnd.nextDouble() * 45, 0.05 + rnd.nextDouble() * 0.45,
+                    ready, Math.min(ready + width, BENCHMARK_HORIZON - service - toDepot), service,
+                    routingConfig.getUnassignedPenalty());
+        }
+        for (int v = 0; v < customers / 8 + 2; v++) {
+            builder.addVehicle(VEHICLE_SPECS[1][0], VEHICLE_SPECS[1][1]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 原批量调度的逐单贪心：订单按时间窗起点排序，依次追加到上一停靠点最近且容量足够的车辆，不考虑时间窗
+     */
+    private Map<String, Object> greedyBaseline(VrpSolver.Problem problem) {
+        long start = System.nanoTime();
+        int n = problem.customers();
+        int vehicles = problem.vehicles();
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i + 1;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(problem::ready));
+        List<List<Integer>> routes = new ArrayList<>();
+        double[] loadW = new double[vehicles];
+        double[] loadV = new double[vehicles];
+        for (int v = 0; v < vehicles; v++) {
+            routes.add(new ArrayList<>());
+        }
+        int unassigned = 0;
+        for (int c : order) {
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int v = 0; v < vehicles; v++) {
+                if (loadW[v] + problem.weight(c) > problem.capacityWeight(v)
+                        || loadV[v] + problem.volume(c) > problem.capacityVolume(v)) {
+                    continue;
+                }
+                List<Integer> r = routes.get(v);
+                double d = problem.distance(r.isEmpty() ? 0 : r.get(r.size() - 1), c);
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = v;
+                }
+            }
+            if (best < 0) {
+                unassigned++;
+                continue;
+            }
+            routes.get(best).add(c);
+            loadW[best] += problem.weight(c);
+            loadV[best] += problem.volume(c);
+        }
+
+        double distance = 0;
+        int used = 0;
+        int late = 0;
+        for (List<Integer> r : routes) {
+            if (r.isEmpty()) {
+                continue;
+            }
+            used++;
+            double t = 0;
+            int prev = 0;
+            for (int c : r) {
+                distance += problem.distance(prev, c);
+                t += problem.travelMinutes(prev, c);
+                if (t > problem.due(c)) {
+                    late++;
+                }
+                t = Math.max(t, problem.ready(c)) + problem.serviceMinutes(c);
+                prev = c;
+            }
+            distance += problem.distance(prev, 0);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("distance", round(distance));
+        report.put("routes", used);
+        report.put("unassigned", unassigned);
+        report.put("lateStops", late);
+        report.put("elapsedMs", (System.nanoTime() - start) / 1000000);
+        return report;
+    }
+
+    private Map<String, Object> routingReport(VrpSolver.Solution solution) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("distance", round(solution.getTotalDistance()));
+        report.put("routes", solution.getRoutes().size());
+        report.put("unassigned", solution.getUnassigned().length);
+        report.put("lateStops", 0);
+        report.put("improvementOverConstruction", solution.getConstructionDistance() > 0
+            ? round(100 * (1 - solution.getTotalDistance() / solution.getConstructionDistance())) + "%" : "0%");
+        report.put("iterations", solution.getIterations());
+        report.put("threads", solution.getThreads());
+        report.put("elapsedMs", solution.getElapsedMs());
+        return report;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
     private DeliveryOrder generateOrder(LocalDate date) {
         DeliveryOrder order = new DeliveryOrder();
         order.setOrderId("SIM_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
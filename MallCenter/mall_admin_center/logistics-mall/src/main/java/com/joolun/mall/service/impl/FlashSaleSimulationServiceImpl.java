@@ -0,0 +1,322 @@
+package com.joolun.mall.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.joolun.common.exception.ServiceException;
+import com.joolun.mall.config.CommonConstants;
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.dto.PlaceOrderDTO;
+import com.joolun.mall.dto.PlaceOrderGoodsDTO;
+import com.joolun.mall.entity.GoodsSpu;
+import com.joolun.mall.entity.OrderInfo;
+import com.joolun.mall.entity.OrderItem;
+import com.joolun.mall.entity.UserAddress;
+import com.joolun.mall.enums.OrderInfoEnum;
+import com.joolun.mall.mapper.GoodsSpuMapper;
+import com.joolun.mall.service.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 秒杀压测服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlashSaleSimulationServiceImpl implements FlashSaleSimulationService {
+
+    private static final String SIM_PREFIX = MallConstants.LOAD_TEST_USER_PREFIX;
+    /**
+     * 下单成功后模拟支付超时取消的比例
+     */
+    private static final int TIMEOUT_PERCENT = 10;
+    private static final int MAX_BUYERS = 20000;
+    private static final int MAX_SKUS = 100;
+    private static final int MAX_STOCK_PER_SKU = 100000;
+    private static final int MAX_CONCURRENCY = 500;
+    /**
+     * 等待落库队列排空的最长时间
+     */
+    private static final long DRAIN_TIMEOUT_MILLIS = 30000;
+    private static final int IN_CHUNK = 1000;
+
+    private final GoodsSpuService goodsSpuService;
+    private final GoodsSpuMapper goodsSpuMapper;
+    private final UserAddressService userAddressService;
+    private final OrderInfoService orderInfoService;
+    private final OrderItemService orderItemService;
+    private final OrderLogisticsService orderLogisticsService;
+    private final StockReservationService stockReservationService;
+    private final OrderBatchWriter orderBatchWriter;
+    private final DelayTaskService delayTaskService;
+
+    @Override
+    public Map<String, Object> runFlashSale(int buyers, int skus, int stockPerSku, int concurrency) {
+        buyers = Math.max(1, Math.min(buyers, MAX_BUYERS));
+        skus = Math.max(1, Math.min(skus, MAX_SKUS));
+        stockPerSku = Math.max(0, Math.min(stockPerSku, MAX_STOCK_PER_SKU));
+        concurrency = Math.max(1, Math.min(concurrency, MAX_CONCURRENCY));
+
+        String runId = SIM_PREFIX + Long.toString(System.currentTimeMillis(), 36);
+        List<String> spuIds = new ArrayList<>(skus);
+        UserAddress address = null;
+        try {
+            //造数：压测专用商品与收货地址，走真实下单流程；商品不上架，不会出现在首页与搜索中
+            for (int i = 0; i < skus; i++) {
+                GoodsSpu goodsSpu = new GoodsSpu();
+                goodsSpu.setName("[秒杀压测]" + runId + "-" + i);
+                goodsSpu.setSellPoint("");
+                goodsSpu.setDescription("");
+                goodsSpu.setCategoryFirst(SIM_PREFIX);
+                goodsSpu.setShelf(MallConstants.GOODS_SHELF_LOAD_TEST);
+                goodsSpu.setSort(0);
+                goodsSpu.setSalesPrice(BigDecimal.ONE);
+                goodsSpu.setStock(stockPerSku);
+                goodsSpu.setSaleNum(0);
+                goodsSpu.setVersion(0);
+                goodsSpuService.save(goodsSpu);
+                spuIds.add(goodsSpu.getId());
+            }
+            address = new UserAddress();
+            address.setUserId(runId);
+            address.setUserName("秒杀压测");
+            address.setTelNum("00000000000");
+            address.setProvinceName("");
+            address.setCityName("");
+            address.setCountyName("");
+            address.setDetailInfo(runId);
+            address.setIsDefault(CommonConstants.NO);
+            userAddressService.save(address);
+
+            return simulate(runId, spuIds, address.getId(), buyers, stockPerSku, concurrency);
+        } finally {
+            cleanup(runId, spuIds, address);
+        }
+    }
+
+    private Map<String, Object> simulate(String runId, List<String> spuIds, String addressId,
+                                         int buyers, int stockPerSku, int concurrency) {
+        Map<String, Object> writerBefore = orderBatchWriter.getStats();
+        AtomicInteger orderedCount = new AtomicInteger();
+        AtomicInteger cancelledCount = new AtomicInteger();
+        AtomicInteger soldOutCount = new AtomicInteger();
+        AtomicInteger failedCount = new AtomicInteger();
+        AtomicInteger errorCount = new AtomicInteger();
+        long[] latencies = new long[buyers];
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(buyers);
+        long started;
+        long elapsed;
+        try {
+            for (int n = 0; n < buyers; n++) {
+                final int buyer = n;
+                executor.execute(() -> {
+                    try {
+                        startGate.await();
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        PlaceOrderGoodsDTO goods = new PlaceOrderGoodsDTO();
+                        goods.setSpuId(spuIds.get(random.nextInt(spuIds.size())));
+                        goods.setQuantity(1);
+                        goods.setPaymentPrice(BigDecimal.ONE);
+                        goods.setFreightPrice(BigDecimal.ZERO);
+                        PlaceOrderDTO placeOrderDTO = new PlaceOrderDTO();
+                        placeOrderDTO.setUserId(runId + "-u" + buyer);
+                        placeOrderDTO.setUserAddressId(addressId);
+                        placeOrderDTO.setPaymentWay("2");
+                        placeOrderDTO.setPaymentType("1");
+                        placeOrderDTO.setDeliveryWay("1");
+                        placeOrderDTO.setOrderType("0");
+                        placeOrderDTO.setSkus(Collections.singletonList(goods));
+
+                        long t0 = System.nanoTime();
+                        OrderInfo orderInfo = orderInfoService.orderSub(placeOrderDTO);
+                        latencies[buyer] = System.nanoTime() - t0;
+                        if (orderInfo == null) {
+                            soldOutCount.incrementAndGet();
+                            return;
+                        }
+                        orderedCount.incrementAndGet();
+                        if (random.nextInt(100) < TIMEOUT_PERCENT) {
+                            //支付超时取消，走真实取消流程回补 MySQL 与 Redis 库存
+                            orderInfoService.orderCancel(orderInfo);
+                            cancelledCount.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        errorCount.incrementAndGet();
+                    } catch (ServiceException e) {
+                        //队列已满、落库超时或失败
+                        failedCount.incrementAndGet();
+                    } catch (Exception e) {
+                        log.warn("秒杀压测请求失败: buyer={}, error={}", buyer, e.getMessage());
+                        errorCount.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            started = System.nanoTime();
+            startGate.countDown();
+            done.await();
+            elapsed = System.nanoTime() - started;
+            //等待超时的订单仍可能在队列中落库，排空后再校验
+            awaitWriterDrained(writerBefore);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("秒杀压测被中断", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //校验：以 MySQL 订单为准，有效订单数不超过初始库存，MySQL 剩余库存 = 初始库存 - 有效订单数，Redis 计数与 MySQL 一致
+        Map<String, Integer> activePerSpu = new HashMap<>();
+        List<OrderInfo> orders = listRunOrders(runId);
+        Set<String> activeOrderIds = new HashSet<>();
+        orders.forEach(order -> {
+            if (!OrderInfoEnum.STATUS_5.getValue().equals(order.getStatus())) {
+                activeOrderIds.add(order.getId());
+            }
+        });
+        for (OrderItem orderItem : listItems(orders)) {
+            if (activeOrderIds.contains(orderItem.getOrderId())) {
+                activePerSpu.merge(orderItem.getSpuId(), orderItem.getQuantity(), Integer::sum);
+            }
+        }
+
+        boolean oversold = false;
+        boolean consistent = true;
+        int soldTotal = 0;
+        List<Map<String, Object>> perSku = new ArrayList<>(spuIds.size());
+        for (String spuId : spuIds) {
+            int sold = activePerSpu.getOrDefault(spuId, 0);
+            GoodsSpu goodsSpu = goodsSpuMapper.selectById(spuId);
+            Integer dbStock = goodsSpu != null ? goodsSpu.getStock() : null;
+            Integer redisStock = stockReservationService.getStock(spuId);
+            soldTotal += sold;
+            oversold |= sold > stockPerSku || dbStock == null || dbStock < 0;
+            consistent &= dbStock != null && dbStock == stockPerSku - sold && dbStock.equals(redisStock);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("spuId", spuId);
+            item.put("sold", sold);
+            item.put("dbStock", dbStock);
+            item.put("redisStock", redisStock);
+            perSku.add(item);
+        }
+
+        Arrays.sort(latencies);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("runId", runId);
+        result.put("buyers", buyers);
+        result.put("skus", spuIds.size());
+        result.put("stockPerSku", stockPerSku);
+        result.put("concurrency", concurrency);
+        result.put("ordered", orderedCount.get());
+        result.put("cancelled", cancelledCount.get());
+        result.put("soldOut", soldOutCount.get());
+        result.put("failed", failedCount.get());
+        result.put("errors", errorCount.get());
+        result.put("persistedOrders", orders.size());
+        result.put("sold", soldTotal);
+        result.put("oversold", oversold);
+        result.put("consistent", consistent);
+        result.put("elapsedMillis", elapsed / 1_000_000);
+        result.put("throughputPerSecond", elapsed > 0 ? Math.round(buyers * 1e9 / elapsed) : 0);
+        result.put("p50Micros", latencies[(int) (buyers * 0.50)] / 1000);
+        result.put("p99Micros", latencies[Math.min(buyers - 1, (int) (buyers * 0.99))] / 1000);
+        result.put("maxMicros", latencies[buyers - 1] / 1000);
+        result.put("writer", orderBatchWriter.getStats());
+        result.put("perSku", perSku);
+        if (oversold || !consistent) {
+            log.error("秒杀压测发现库存异常: {}", result);
+        } else {
+            log.info("秒杀压测完成: buyers={}, sold={}, throughput={}/s", buyers, soldTotal,
+                    result.get("throughputPerSecond"));
+        }
+        return result;
+    }
+
+    /**
+     * 等待本次压测提交的落库任务全部完成（成功或失败）
+     */
+    private void awaitWriterDrained(Map<String, Object> before) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> now = orderBatchWriter.getStats();
+            long submitted = delta(now, before, "submitted");
+            long completed = delta(now, before, "persisted") + delta(now, before, "failed");
+            if (completed >= submitted) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        log.warn("秒杀压测等待落库队列排空超时: {}", orderBatchWriter.getStats());
+    }
+
+    private static long delta(Map<String, Object> now, Map<String, Object> before, String key) {
+        return ((Number) now.get(key)).longValue() - ((Number) before.get(key)).longValue();
+    }
+
+    private List<OrderInfo> listRunOrders(String runId) {
+        return orderInfoService.list(Wrappers.<OrderInfo>lambdaQuery()
+                .likeRight(OrderInfo::getUserId, runId + "-u"));
+    }
+
+    private List<OrderItem> listItems(List<OrderInfo> orders) {
+        List<OrderItem> items = new ArrayList<>();
+        for (List<String> chunk : chunks(orders, OrderInfo::getId)) {
+            items.addAll(orderItemService.list(Wrappers.<OrderItem>lambdaQuery().in(OrderItem::getOrderId, chunk)));
+        }
+        return items;
+    }
+
+    /**
+     * 清理压测数据：订单、明细、物流、自动取消任务、商品及库存计数、收货地址
+     */
+    private void cleanup(String runId, List<String> spuIds, UserAddress address) {
+        try {
+            List<OrderInfo> orders = listRunOrders(runId);
+            for (OrderInfo order : orders) {
+                delayTaskService.cancel(MallConstants.DELAY_TASK_ORDER_CANCEL, order.getId());
+            }
+            for (List<String> chunk : chunks(orders, OrderInfo::getId)) {
+                orderItemService.remove(Wrappers.<OrderItem>lambdaQuery().in(OrderItem::getOrderId, chunk));
+                orderInfoService.removeByIds(chunk);
+            }
+            for (List<String> chunk : chunks(orders, OrderInfo::getLogisticsId)) {
+                orderLogisticsService.removeByIds(chunk);
+            }
+            if (!spuIds.isEmpty()) {
+                //发布商品变更事件并在提交后删除库存计数
+                goodsSpuService.removeByIds(spuIds);
+            }
+            if (address != null && address.getId() != null) {
+                userAddressService.removeById(address.getId());
+            }
+        } catch (Exception e) {
+            log.error("秒杀压测数据清理失败: runId={}", runId, e);
+        }
+    }
+
+    private static List<List<String>> chunks(List<OrderInfo> orders, Function<OrderInfo, String> field) {
+        List<String> values = new ArrayList<>(orders.size());
+        for (OrderInfo order : orders) {
+            String value = field.apply(order);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += IN_CHUNK) {
+            chunks.add(values.subList(from, Math.min(values.size(), from + IN_CHUNK)));
+        }
+        return chunks;
+    }
+}
@@ -10,10 +10,13 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.joolun.mall.config.CommonConstants;
 import com.joolun.mall.entity.GoodsCategory;
 import com.joolun.mall.entity.GoodsCategoryTree;
+import com.joolun.mall.event.GoodsChangedEvent;
 import com.joolun.mall.mapper.GoodsCategoryMapper;
 import com.joolun.mall.service.GoodsCategoryService;
 import com.joolun.mall.util.TreeUtil;
 import com.joolun.common.exception.ServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.io.Serializable;
@@ -35,6 +38,9 @@ public class GoodsCategoryServiceImpl extends ServiceImpl<GoodsCategoryMapper, G
 	 */
 	private static final int MAX_TOP_LEVEL_CATEGORIES = 7;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	@Override
 	public boolean save(GoodsCategory entity) {
 		// 验证一级分类数量限制
@@ -47,7 +53,16 @@ public class GoodsCategoryServiceImpl extends ServiceImpl<GoodsCategoryMapper, G
 				throw new ServiceException("一级分类最多只能创建" + MAX_TOP_LEVEL_CATEGORIES + "个");
 			}
 		}
-		return super.save(entity);
+		boolean saved = super.save(entity);
+		eventPublisher.publishEvent(GoodsChangedEvent.ofCategory(this, "category:save"));
+		return saved;
+	}
+
+	@Override
+	public boolean updateById(GoodsCategory entity) {
+		boolean updated = super.updateById(entity);
+		eventPublisher.publishEvent(GoodsChangedEvent.ofCategory(this, "category:update"));
+		return updated;
 	}
 
 	@Override
@@ -78,6 +93,7 @@ public class GoodsCategoryServiceImpl extends ServiceImpl<GoodsCategoryMapper, G
 		super.removeById(id);
 		remove(Wrappers.<GoodsCategory>query()
 				.lambda().eq(GoodsCategory::getParentId, id));
+		eventPublisher.publishEvent(GoodsChangedEvent.ofCategory(this, "category:remove"));
 		return true;
 	}
 }
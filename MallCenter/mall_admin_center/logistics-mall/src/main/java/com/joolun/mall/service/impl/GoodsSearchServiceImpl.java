@@ -0,0 +1,391 @@
+package com.joolun.mall.service.impl;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.OrderItem;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.joolun.mall.config.CommonConstants;
+import com.joolun.mall.entity.GoodsCategory;
+import com.joolun.mall.entity.GoodsSpu;
+import com.joolun.mall.event.GoodsChangedEvent;
+import com.joolun.mall.mapper.GoodsSpuMapper;
+import com.joolun.mall.service.GoodsCategoryService;
+import com.joolun.mall.service.GoodsSearchService;
+import com.joolun.mall.util.CategorySynonyms;
+import com.joolun.mall.util.GoodsInvertedIndex;
+import com.joolun.mall.util.GoodsTextAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品搜索服务实现
+ * 全量重建在新索引上完成后整体替换，期间查询继续使用旧索引；增量更新与重建通过 updateLock 串行
+ */
+@Slf4j
+@Service
+public class GoodsSearchServiceImpl implements GoodsSearchService {
+
+    /**
+     * 全量构建时每批加载的商品数
+     */
+    private static final int LOAD_BATCH = 2000;
+    /**
+     * 单次增量同步的商品数上限，超过时改为全量重建
+     */
+    private static final int SYNC_LIMIT = 10000;
+    /**
+     * 增量同步回看时间，容忍应用与数据库的时钟偏差
+     */
+    private static final long SYNC_OVERLAP_MILLIS = 60000;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final GoodsSpuMapper goodsSpuMapper;
+    private final GoodsCategoryService goodsCategoryService;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * 按 update_time 增量同步的间隔（毫秒）
+     */
+    @Value("${mall.search.syncInterval:60000}")
+    private long syncInterval;
+
+    /**
+     * 定时全量重建间隔（毫秒），回收已删除文档并兜底物理删除等未触发事件的变更
+     */
+    @Value("${mall.search.rebuildInterval:21600000}")
+    private long rebuildInterval;
+
+    /**
+     * 已删除文档占比超过该值时全量重建
+     */
+    @Value("${mall.search.maxDeletedRatio:0.3}")
+    private double maxDeletedRatio;
+
+    private volatile GoodsInvertedIndex index;
+    private volatile Map<String, String> categoryNames = Collections.emptyMap();
+    private volatile LocalDateTime lastSyncTime;
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder reindexed = new LongAdder();
+    private volatile long lastRebuildMillis;
+
+    public GoodsSearchServiceImpl(GoodsSpuMapper goodsSpuMapper,
+                                  GoodsCategoryService goodsCategoryService,
+                                  @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.goodsSpuMapper = goodsSpuMapper;
+        this.goodsCategoryService = goodsCategoryService;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduledExecutorService.execute(this::rebuildQuietly);
+        scheduledExecutorService.scheduleWithFixedDelay(this::syncQuietly,
+                syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        scheduledExecutorService.scheduleWithFixedDelay(this::rebuildQuietly,
+                rebuildInterval, rebuildInterval, TimeUnit.MILLISECONDS);
+        log.info("商品搜索索引服务启动, syncInterval={}ms, rebuildInterval={}ms", syncInterval, rebuildInterval);
+    }
+
+    @Override
+    public boolean isReady() {
+        return index != null;
+    }
+
+    @Override
+    public IPage<GoodsSpu> page(IPage<GoodsSpu> page, GoodsSpu query) {
+        GoodsInvertedIndex current = index;
+        if (current == null || query.getSpuCode() != null) {
+            return goodsSpuMapper.selectPage1(page, query);
+        }
+        long start = System.nanoTime();
+        long pageNo = Math.max(1, page.getCurrent());
+        int size = page.getSize() > 0 ? (int) Math.min(page.getSize(), MAX_PAGE_SIZE) : MAX_PAGE_SIZE;
+
+        GoodsInvertedIndex.Query indexQuery = toIndexQuery(query.getName(), query);
+        indexQuery.setOffset((int) Math.min(Integer.MAX_VALUE - size, (pageNo - 1) * size));
+        indexQuery.setLimit(size);
+        List<OrderItem> orders = page.orders();
+        if (orders != null && !orders.isEmpty()) {
+            String column = orders.get(0).getColumn();
+            indexQuery.setSortColumn(column.substring(column.lastIndexOf('.') + 1));
+            indexQuery.setAsc(orders.get(0).isAsc());
+        }
+        GoodsInvertedIndex.Result result = current.search(indexQuery);
+
+        //按索引顺序回表，详情字段不返回（与 selectPage1 一致）
+        List<GoodsSpu> records = new ArrayList<>(result.getIds().size());
+        if (!result.getIds().isEmpty()) {
+            Map<String, GoodsSpu> loaded = new HashMap<>();
+            for (GoodsSpu spu : goodsSpuMapper.selectBatchIds(result.getIds())) {
+                loaded.put(spu.getId(), spu);
+            }
+            for (String id : result.getIds()) {
+                GoodsSpu spu = loaded.get(id);
+                if (spu != null) {
+                    spu.setDescription(null);
+                    records.add(spu);
+                }
+            }
+        }
+        page.setRecords(records);
+        page.setTotal(result.getTotal());
+        searches.increment();
+        searchNanos.add(System.nanoTime() - start);
+        return page;
+    }
+
+    @Override
+    public long count(String keyword) {
+        GoodsInvertedIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("商品搜索索引尚未构建");
+        }
+        GoodsSpu filter = new GoodsSpu();
+        filter.setShelf(CommonConstants.YES);
+        GoodsInvertedIndex.Query indexQuery = toIndexQuery(keyword, filter);
+        indexQuery.setLimit(0);
+        return current.search(indexQuery).getTotal();
+    }
+
+    /**
+     * 事务提交后更新索引，无事务时立即执行；在调度线程中执行，不阻塞写请求
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGoodsChanged(GoodsChangedEvent event) {
+        if (event.isFullRebuild()) {
+            scheduledExecutorService.execute(this::rebuildQuietly);
+        } else if (event.getSpuIds().isEmpty()) {
+            scheduledExecutorService.execute(this::syncQuietly);
+        } else {
+            List<String> spuIds = event.getSpuIds();
+            scheduledExecutorService.execute(() -> {
+                try {
+                    reindex(spuIds);
+                } catch (Exception e) {
+                    log.error("商品索引更新失败: spuIds={}", spuIds, e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void reindex(Collection<String> spuIds) {
+        if (spuIds == null || spuIds.isEmpty()) {
+            return;
+        }
+        updateLock.lock();
+        try {
+            GoodsInvertedIndex current = index;
+            if (current == null) {
+                //首次构建完成前的变更会被全量构建覆盖
+                return;
+            }
+            Map<String, GoodsSpu> loaded = new HashMap<>();
+            for (GoodsSpu spu : goodsSpuMapper.selectBatchIds(spuIds)) {
+                loaded.put(spu.getId(), spu);
+            }
+            Map<String, String> names = categoryNames;
+            for (String spuId : spuIds) {
+                GoodsSpu spu = loaded.get(spuId);
+                if (spu == null || CommonConstants.YES.equals(spu.getDelFlag())) {
+                    current.remove(spuId);
+                } else {
+                    current.upsert(toDoc(spu, names));
+                }
+            }
+            reindexed.add(spuIds.size());
+        } finally {
+            updateLock.unlock();
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public void rebuild() {
+        updateLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            LocalDateTime syncPoint = LocalDateTime.now();
+            Map<String, String> names = loadCategoryNames();
+            GoodsInvertedIndex fresh = new GoodsInvertedIndex();
+            String lastId = null;
+            while (true) {
+                List<GoodsSpu> batch = goodsSpuMapper.selectList(Wrappers.<GoodsSpu>lambdaQuery()
+                        .gt(lastId != null, GoodsSpu::getId, lastId)
+                        .orderByAsc(GoodsSpu::getId)
+                        .last("limit " + LOAD_BATCH));
+                for (GoodsSpu spu : batch) {
+                    if (!CommonConstants.YES.equals(spu.getDelFlag())) {
+                        fresh.upsert(toDoc(spu, names));
+                    }
+                }
+                if (batch.size() < LOAD_BATCH) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            categoryNames = names;
+            index = fresh;
+            lastSyncTime = syncPoint;
+            rebuilds.increment();
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            log.info("商品搜索索引重建完成: docs={}, cost={}ms", fresh.size(), lastRebuildMillis);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        GoodsInvertedIndex current = index;
+        stats.put("ready", current != null);
+        if (current != null) {
+            stats.putAll(current.getStats());
+            stats.put("deletedRatio", current.deletedRatio());
+        }
+        long count = searches.sum();
+        stats.put("searches", count);
+        stats.put("avgSearchMicros", count > 0 ? searchNanos.sum() / count / 1000 : 0);
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        stats.put("syncs", syncs.sum());
+        stats.put("reindexed", reindexed.sum());
+        stats.put("lastSyncTime", lastSyncTime);
+        return stats;
+    }
+
+    /**
+     * 按 update_time 增量同步（条件批量更新、下单扣减库存销量等未指明商品的变更）
+     */
+    private void sync() {
+        boolean tooMany;
+        updateLock.lock();
+        try {
+            GoodsInvertedIndex current = index;
+            if (current == null) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime since = lastSyncTime.minusNanos(SYNC_OVERLAP_MILLIS * 1_000_000);
+            List<GoodsSpu> changed = goodsSpuMapper.selectList(Wrappers.<GoodsSpu>lambdaQuery()
+                    .ge(GoodsSpu::getUpdateTime, since)
+                    .last("limit " + (SYNC_LIMIT + 1)));
+            tooMany = changed.size() > SYNC_LIMIT;
+            if (!tooMany) {
+                Map<String, String> names = categoryNames;
+                for (GoodsSpu spu : changed) {
+                    if (CommonConstants.YES.equals(spu.getDelFlag())) {
+                        current.remove(spu.getId());
+                    } else {
+                        current.upsert(toDoc(spu, names));
+                    }
+                }
+                lastSyncTime = now;
+                syncs.increment();
+                reindexed.add(changed.size());
+            }
+        } finally {
+            updateLock.unlock();
+        }
+        if (tooMany) {
+            log.info("商品增量变更超过 {} 条，改为全量重建", SYNC_LIMIT);
+            rebuild();
+        } else {
+            compactIfNeeded();
+        }
+    }
+
+    private void compactIfNeeded() {
+        GoodsInvertedIndex current = index;
+        if (current != null && current.deletedRatio() > maxDeletedRatio) {
+            log.info("商品索引已删除文档占比 {}，全量重建", current.deletedRatio());
+            rebuild();
+        }
+    }
+
+    /**
+     * 调度任务入口，异常只记录日志，避免中断后续调度
+     */
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("商品搜索索引重建失败", e);
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("商品搜索索引增量同步失败", e);
+        }
+    }
+
+    private GoodsInvertedIndex.Query toIndexQuery(String keyword, GoodsSpu filter) {
+        GoodsInvertedIndex.Query indexQuery = new GoodsInvertedIndex.Query();
+        indexQuery.setKeyword(keyword);
+        if (keyword != null) {
+            List<String> synonyms = CategorySynonyms.get(keyword.trim().toLowerCase());
+            if (synonyms != null) {
+                indexQuery.setSynonyms(synonyms);
+            }
+        }
+        indexQuery.setShelf(filter.getShelf());
+        indexQuery.setCategoryFirst(filter.getCategoryFirst());
+        indexQuery.setCategorySecond(filter.getCategorySecond());
+        indexQuery.setMerchantId(filter.getMerchantId());
+        return indexQuery;
+    }
+
+    private Map<String, String> loadCategoryNames() {
+        Map<String, String> names = new HashMap<>();
+        for (GoodsCategory category : goodsCategoryService.list()) {
+            names.put(category.getId(), category.getName());
+        }
+        return names;
+    }
+
+    private static GoodsInvertedIndex.Doc toDoc(GoodsSpu spu, Map<String, String> categoryNames) {
+        GoodsInvertedIndex.Doc doc = new GoodsInvertedIndex.Doc();
+        doc.setId(spu.getId());
+        doc.setName(spu.getName());
+        doc.setSellPoint(spu.getSellPoint());
+        StringBuilder category = new StringBuilder();
+        if (spu.getCategoryFirst() != null && categoryNames.containsKey(spu.getCategoryFirst())) {
+            category.append(categoryNames.get(spu.getCategoryFirst()));
+        }
+        if (spu.getCategorySecond() != null && categoryNames.containsKey(spu.getCategorySecond())) {
+            category.append(' ').append(categoryNames.get(spu.getCategorySecond()));
+        }
+        doc.setCategory(category.toString());
+        doc.setDescription(GoodsTextAnalyzer.stripHtml(spu.getDescription()));
+        doc.setShelf(spu.getShelf());
+        doc.setCategoryFirst(spu.getCategoryFirst());
+        doc.setCategorySecond(spu.getCategorySecond());
+        doc.setMerchantId(spu.getMerchantId());
+        doc.setSaleNum(spu.getSaleNum() != null ? spu.getSaleNum() : 0);
+        doc.setSort(spu.getSort() != null ? spu.getSort() : 0);
+        doc.setSalesPrice(spu.getSalesPrice() != null ? spu.getSalesPrice().doubleValue() : 0);
+        doc.setCreateTime(spu.getCreateTime() != null
+                ? spu.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0);
+        return doc;
+    }
+}
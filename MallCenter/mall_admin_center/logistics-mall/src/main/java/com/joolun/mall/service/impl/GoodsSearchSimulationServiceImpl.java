@@ -0,0 +1,151 @@
+package com.joolun.mall.service.impl;
+
+import com.joolun.mall.config.CommonConstants;
+import com.joolun.mall.service.GoodsSearchSimulationService;
+import com.joolun.mall.util.GoodsInvertedIndex;
+import com.joolun.mall.util.GoodsTextAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 商品搜索压测服务实现
+ */
+@Slf4j
+@Service
+public class GoodsSearchSimulationServiceImpl implements GoodsSearchSimulationService {
+
+    private static final int MAX_SKUS = 200000;
+    private static final int MAX_QUERIES = 200000;
+    private static final int MAX_CONCURRENCY = 64;
+    /**
+     * 子串扫描对照的查询次数（全量扫描较慢，只取少量）
+     */
+    private static final int SCAN_QUERIES = 50;
+    private static final int PAGE_SIZE = 20;
+
+    private static final String[] ADJECTIVES = {"新鲜", "冷冻", "精选", "进口", "散养", "有机", "速冻", "手工", "秘制", "特级", "农家", "鲜切"};
+    private static final String[] PRODUCTS = {"牛肉", "羊肉", "猪肉", "鸡胸肉", "鸭脖", "鱼丸", "虾仁", "牛肉丸", "五花肉", "排骨",
+            "鸡蛋", "大米", "面条", "豆腐", "香菇", "海带", "火腿肠", "午餐肉", "酸奶", "牛奶"};
+    private static final String[] SPECS = {"500g", "1kg", "2.5kg", "10袋装", "整箱", "家庭装"};
+    private static final String[] CATEGORIES = {"牛羊肉类", "猪肉猪副", "家禽蛋副", "丸滑产品", "海鲜水产", "米面制品",
+            "豆制品类", "蔬菜菌菇", "肉肠罐头", "饮料甜品"};
+    private static final String[] QUERIES = {"牛肉", "鸡蛋", "虾", "牛肉丸", "niurou", "xiaren", "nrw", "jidan",
+            "精选 排骨", "冷冻鱼丸", "大米 1kg", "火腿", "wuhuarou", "有机牛奶", "豆腐", "haidai"};
+
+    @Override
+    public Map<String, Object> runSearchBenchmark(int skus, int queries, int concurrency) {
+        skus = Math.max(1, Math.min(skus, MAX_SKUS));
+        queries = Math.max(1, Math.min(queries, MAX_QUERIES));
+        if (concurrency <= 0) {
+            concurrency = Runtime.getRuntime().availableProcessors();
+        }
+        concurrency = Math.min(concurrency, MAX_CONCURRENCY);
+
+        //构建
+        Random random = new Random(42);
+        GoodsInvertedIndex index = new GoodsInvertedIndex();
+        String[] names = new String[skus];
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < skus; i++) {
+            String product = PRODUCTS[random.nextInt(PRODUCTS.length)];
+            GoodsInvertedIndex.Doc doc = new GoodsInvertedIndex.Doc();
+            doc.setId("search-sim-" + i);
+            doc.setName(ADJECTIVES[random.nextInt(ADJECTIVES.length)] + product + " "
+                    + SPECS[random.nextInt(SPECS.length)] + " " + (i % 1000) + "号");
+            doc.setSellPoint("产地直发 " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " 冷链配送");
+            doc.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            doc.setDescription(GoodsTextAnalyzer.stripHtml("<p>本品为" + product + "，口感鲜美，适合火锅、炖煮。</p>"));
+            doc.setShelf(random.nextInt(10) < 9 ? CommonConstants.YES : CommonConstants.NO);
+            doc.setCategoryFirst(String.valueOf(random.nextInt(CATEGORIES.length)));
+            doc.setSaleNum(random.nextInt(5000));
+            doc.setSalesPrice(random.nextInt(20000) / 100.0);
+            doc.setCreateTime(i);
+            index.upsert(doc);
+            names[i] = doc.getName();
+        }
+        long buildNanos = System.nanoTime() - buildStart;
+
+        //查询
+        long[] latencies = new long[queries];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong hits = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        final int total = queries;
+        long elapsed;
+        try {
+            for (int t = 0; t < concurrency; t++) {
+                executor.execute(() -> {
+                    try {
+                        startGate.await();
+                        int i;
+                        while ((i = next.getAndIncrement()) < total) {
+                            GoodsInvertedIndex.Query query = new GoodsInvertedIndex.Query();
+                            query.setKeyword(QUERIES[i % QUERIES.length]);
+                            query.setShelf(CommonConstants.YES);
+                            query.setOffset((i % 3) * PAGE_SIZE);
+                            query.setLimit(PAGE_SIZE);
+                            long t0 = System.nanoTime();
+                            hits.addAndGet(index.search(query).getTotal());
+                            latencies[i] = System.nanoTime() - t0;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long started = System.nanoTime();
+            startGate.countDown();
+            done.await();
+            elapsed = System.nanoTime() - started;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("商品搜索压测被中断", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        //对照：名称子串扫描
+        long scanStart = System.nanoTime();
+        long scanHits = 0;
+        for (int q = 0; q < SCAN_QUERIES; q++) {
+            String keyword = QUERIES[q % QUERIES.length];
+            for (String name : names) {
+                if (name.contains(keyword)) {
+                    scanHits++;
+                }
+            }
+        }
+        long scanMicros = (System.nanoTime() - scanStart) / SCAN_QUERIES / 1000;
+
+        Arrays.sort(latencies);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("skus", skus);
+        result.put("queries", queries);
+        result.put("concurrency", concurrency);
+        result.put("buildMillis", buildNanos / 1_000_000);
+        result.put("index", index.getStats());
+        result.put("elapsedMillis", elapsed / 1_000_000);
+        result.put("queriesPerSecond", elapsed > 0 ? Math.round(queries * 1e9 / elapsed) : 0);
+        result.put("avgHits", hits.get() / queries);
+        result.put("p50Micros", latencies[(int) (queries * 0.50)] / 1000);
+        result.put("p95Micros", latencies[Math.min(queries - 1, (int) (queries * 0.95))] / 1000);
+        result.put("p99Micros", latencies[Math.min(queries - 1, (int) (queries * 0.99))] / 1000);
+        result.put("maxMicros", latencies[queries - 1] / 1000);
+        result.put("scanAvgMicros", scanMicros);
+        result.put("scanAvgHits", scanHits / SCAN_QUERIES);
+        log.info("商品搜索压测完成: skus={}, qps={}, p99={}us, scan={}us", skus,
+                result.get("queriesPerSecond"), result.get("p99Micros"), scanMicros);
+        return result;
+    }
+}
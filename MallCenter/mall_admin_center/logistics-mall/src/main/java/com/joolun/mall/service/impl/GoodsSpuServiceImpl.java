@@ -6,15 +6,28 @@
  */
 package com.joolun.mall.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.joolun.common.exception.ServiceException;
 import com.joolun.mall.entity.GoodsSpu;
+import com.joolun.mall.event.GoodsChangedEvent;
 import com.joolun.mall.mapper.GoodsSpuMapper;
 import com.joolun.mall.service.GoodsSpuService;
+import com.joolun.mall.service.StockReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * spu商品
@@ -25,14 +38,45 @@ import java.io.Serializable;
 @Service
 public class GoodsSpuServiceImpl extends ServiceImpl<GoodsSpuMapper, GoodsSpu> implements GoodsSpuService {
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private StockReservationService stockReservationService;
 
 	@Override
 	@Transactional(rollbackFor = Exception.class)
 	public boolean removeById(Serializable id) {
 		super.removeById(id);
+		eventPublisher.publishEvent(GoodsChangedEvent.ofSpus(this, "goods:remove", Collections.singletonList(String.valueOf(id))));
+		//提交后删除库存计数，再次下单时按已删除商品加载为0
+		afterCommit(() -> stockReservationService.evict(Collections.singletonList(String.valueOf(id))));
 		return true;
 	}
 
+	@Override
+	@Transactional(rollbackFor = Exception.class)
+	public boolean removeByIds(Collection<?> list) {
+		boolean removed = super.removeByIds(list);
+		List<String> spuIds = list.stream().map(String::valueOf).collect(Collectors.toList());
+		eventPublisher.publishEvent(GoodsChangedEvent.ofSpus(this, "goods:remove", spuIds));
+		afterCommit(() -> stockReservationService.evict(spuIds));
+		return removed;
+	}
+
+	/**
+	 * 条件更新（上下架）
+	 * 下单扣减与取消回补库存由 GoodsSpuMapper.deductStock/restoreStock 直接更新，不经过此处，不触发首页重建
+	 */
+	@Override
+	public boolean update(GoodsSpu entity, Wrapper<GoodsSpu> updateWrapper) {
+		boolean updated = super.update(entity, updateWrapper);
+		if (updated) {
+			eventPublisher.publishEvent(GoodsChangedEvent.ofUnknown(this, "goods:update"));
+		}
+		return updated;
+	}
+
 	@Override
 	public IPage<GoodsSpu> page1(IPage<GoodsSpu> page, GoodsSpu goodsSpu) {
 		return baseMapper.selectPage1(page, goodsSpu);
@@ -42,16 +86,57 @@ public class GoodsSpuServiceImpl extends ServiceImpl<GoodsSpuMapper, GoodsSpu> i
 	@Transactional(rollbackFor = Exception.class)
 	public boolean save1(GoodsSpu goodsSpu) {
 		baseMapper.insert(goodsSpu);
+		eventPublisher.publishEvent(GoodsChangedEvent.ofSpus(this, "goods:save", Collections.singletonList(goodsSpu.getId())));
 		return true;
 	}
 
+	/**
+	 * 后台修改商品
+	 * 修改库存时按乐观锁版本比较更新：更新成功说明读取库存后没有下单扣减或回补，
+	 * 提交后按新旧库存差值加回 Redis 库存计数，不覆盖进行中的预扣；版本已变化时提示刷新重试
+	 */
 	@Override
 	@Transactional(rollbackFor = Exception.class)
 	public boolean updateById1(GoodsSpu goodsSpu) {
-		baseMapper.updateById(goodsSpu);
+		int delta = 0;
+		if (goodsSpu.getStock() != null) {
+			GoodsSpu current = baseMapper.selectById(goodsSpu.getId());
+			if (current == null) {
+				throw new ServiceException("商品不存在");
+			}
+			if (goodsSpu.getVersion() == null) {
+				goodsSpu.setVersion(current.getVersion());
+			} else if (!Objects.equals(goodsSpu.getVersion(), current.getVersion())) {
+				throw new ServiceException("商品库存已变动，请刷新后重试");
+			}
+			delta = goodsSpu.getStock() - (current.getStock() != null ? current.getStock() : 0);
+		}
+		if (baseMapper.updateById(goodsSpu) == 0) {
+			throw new ServiceException("商品库存已变动，请刷新后重试");
+		}
+		if (delta != 0) {
+			stockReservationService.restoreOnCommit(Collections.singletonMap(goodsSpu.getId(), delta));
+		}
+		eventPublisher.publishEvent(GoodsChangedEvent.ofSpus(this, "goods:update", Collections.singletonList(goodsSpu.getId())));
 		return true;
 	}
 
+	/**
+	 * 事务提交后执行，无事务时立即执行
+	 */
+	private void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+
 	@Override
 	public GoodsSpu getById1(String id) {
 		return baseMapper.selectById1(id);
@@ -0,0 +1,369 @@
+package com.joolun.mall.service.impl;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.OrderItem;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.config.CommonConstants;
+import com.joolun.mall.dto.HomeSnapshot;
+import com.joolun.mall.entity.GoodsCategory;
+import com.joolun.mall.entity.GoodsSpu;
+import com.joolun.mall.entity.MerchantPageConfig;
+import com.joolun.mall.event.HomeContentChangedEvent;
+import com.joolun.mall.service.AdvertisementService;
+import com.joolun.mall.service.DecorationService;
+import com.joolun.mall.service.GoodsCategoryService;
+import com.joolun.mall.service.GoodsSpuService;
+import com.joolun.mall.service.HomeSnapshotService;
+import com.joolun.system.service.ISysConfigService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 首页快照服务实现
+ * 快照按商户缓存，构建过程串行执行；变更事件在事务提交后触发，合并 debounce 时间内的多次变更
+ */
+@Slf4j
+@Service
+public class HomeSnapshotServiceImpl implements HomeSnapshotService {
+
+    private static final String DEFAULT_KEY = "default";
+
+    private final AdvertisementService advertisementService;
+    private final GoodsCategoryService goodsCategoryService;
+    private final GoodsSpuService goodsSpuService;
+    private final ISysConfigService configService;
+    private final DecorationService decorationService;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * 变更后延迟重建时间（毫秒），期间的多次变更合并为一次重建
+     */
+    @Value("${mall.home.snapshot.debounce:500}")
+    private long debounce;
+
+    /**
+     * 定时刷新间隔（毫秒），兜底销量排序等未发布事件的变化，以及跨节点广播丢失时的最长延迟
+     */
+    @Value("${mall.home.snapshot.refreshInterval:30000}")
+    private long refreshInterval;
+
+    private final Map<String, HomeSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicLong versionSeq = new AtomicLong();
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder dirtyEvents = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder changes = new LongAdder();
+    private final LongAdder buildFailures = new LongAdder();
+    private volatile long lastBuildMillis;
+    private volatile String lastDirtyReason;
+
+    public HomeSnapshotServiceImpl(AdvertisementService advertisementService,
+                                   GoodsCategoryService goodsCategoryService,
+                                   GoodsSpuService goodsSpuService,
+                                   ISysConfigService configService,
+                                   DecorationService decorationService,
+                                   ObjectMapper objectMapper,
+                                   @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.advertisementService = advertisementService;
+        this.goodsCategoryService = goodsCategoryService;
+        this.goodsSpuService = goodsSpuService;
+        this.configService = configService;
+        this.decorationService = decorationService;
+        this.objectMapper = objectMapper;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    @PostConstruct
+    public void init() {
+        //启动后异步预热，避免首个请求承担构建耗时
+        scheduledExecutorService.execute(() -> refreshAll("startup"));
+        scheduledExecutorService.scheduleWithFixedDelay(() -> refreshAll("periodic"),
+                refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        log.info("首页快照服务启动, debounce={}ms, refreshInterval={}ms", debounce, refreshInterval);
+    }
+
+    @Override
+    public HomeSnapshot getSnapshot(Long merchantId) {
+        reads.increment();
+        String key = toKey(merchantId);
+        HomeSnapshot snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        buildLock.lock();
+        try {
+            snapshot = snapshots.get(key);
+            return snapshot != null ? snapshot : build(key, merchantId);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Object> assemble(Long merchantId) {
+        return assemble(merchantId, new ArrayList<>());
+    }
+
+    @Override
+    public void markDirty(String reason) {
+        dirtyEvents.increment();
+        lastDirtyReason = reason;
+        if (rebuildPending.compareAndSet(false, true)) {
+            scheduledExecutorService.schedule(() -> {
+                //先清除标记：重建期间的新变更会再触发一次重建
+                rebuildPending.set(false);
+                refreshAll(lastDirtyReason);
+            }, debounce, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 事务提交后标记变更，无事务时立即执行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHomeContentChanged(HomeContentChangedEvent event) {
+        markDirty(event.getReason());
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Map<String, Object>> items = new ArrayList<>();
+        snapshots.forEach((key, snapshot) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("merchant", key);
+            item.put("version", snapshot.getVersion());
+            item.put("etag", snapshot.getEtag());
+            item.put("bytes", snapshot.getBody().length);
+            item.put("buildTime", snapshot.getBuildTime());
+            item.put("degraded", snapshot.isDegraded());
+            items.add(item);
+        });
+        stats.put("snapshots", items);
+        stats.put("reads", reads.sum());
+        stats.put("dirtyEvents", dirtyEvents.sum());
+        stats.put("builds", builds.sum());
+        stats.put("changes", changes.sum());
+        stats.put("buildFailures", buildFailures.sum());
+        stats.put("lastBuildMillis", lastBuildMillis);
+        stats.put("debounceMillis", debounce);
+        stats.put("refreshIntervalMillis", refreshInterval);
+        return stats;
+    }
+
+    /**
+     * 重建所有已缓存的快照（尚无快照时构建默认店铺），异常只记录日志，避免中断后续调度
+     */
+    private void refreshAll(String reason) {
+        Set<String> keys = new HashSet<>(snapshots.keySet());
+        if (keys.isEmpty()) {
+            keys.add(DEFAULT_KEY);
+        }
+        for (String key : keys) {
+            buildLock.lock();
+            try {
+                build(key, DEFAULT_KEY.equals(key) ? null : Long.valueOf(key));
+            } catch (Exception e) {
+                buildFailures.increment();
+                log.error("首页快照重建失败: merchant={}, reason={}", key, reason, e);
+            } finally {
+                buildLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 构建快照，调用方需持有 buildLock
+     * 内容未变化时保留原快照；有模块加载失败时不覆盖完整的旧快照，等待下次刷新
+     */
+    private HomeSnapshot build(String key, Long merchantId) {
+        long start = System.nanoTime();
+        List<String> failures = new ArrayList<>();
+        Map<String, Object> data = assemble(merchantId, failures);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(AjaxResult.success(data));
+        } catch (Exception e) {
+            throw new IllegalStateException("首页快照序列化失败", e);
+        }
+        String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        builds.increment();
+        lastBuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        HomeSnapshot current = snapshots.get(key);
+        if (current != null && current.getEtag().equals(etag)) {
+            return current;
+        }
+        if (current != null && !failures.isEmpty() && !current.isDegraded()) {
+            log.warn("首页快照构建不完整，保留旧版本: merchant={}, version={}, failures={}",
+                    key, current.getVersion(), failures);
+            return current;
+        }
+        HomeSnapshot snapshot = new HomeSnapshot(versionSeq.incrementAndGet(), etag, body,
+                System.currentTimeMillis(), !failures.isEmpty());
+        snapshots.put(key, snapshot);
+        changes.increment();
+        log.info("首页快照更新: merchant={}, version={}, bytes={}, cost={}ms, failures={}",
+                key, snapshot.getVersion(), body.length, lastBuildMillis, failures);
+        return snapshot;
+    }
+
+    /**
+     * 组装首页数据，各模块独立降级，失败的模块名记入 failures
+     */
+    private Map<String, Object> assemble(Long merchantId, List<String> failures) {
+        Map<String, Object> result = new HashMap<>();
+
+        // 1. 首页Banner
+        try {
+            result.put("banners", advertisementService.getHomeBanners());
+        } catch (Exception e) {
+            log.warn("首页聚合: 加载Banner失败", e);
+            failures.add("banners");
+            result.put("banners", new Object[0]);
+        }
+
+        // 2. 商品分类树 (只返回启用的)
+        try {
+            GoodsCategory categoryQuery = new GoodsCategory();
+            categoryQuery.setEnable(CommonConstants.YES);
+            result.put("categories", goodsCategoryService.selectTree(categoryQuery));
+        } catch (Exception e) {
+            log.warn("首页聚合: 加载分类失败", e);
+            failures.add("categories");
+            result.put("categories", new Object[0]);
+        }
+
+        // 3. 新品首发 (按创建时间倒序, 5条)
+        try {
+            result.put("newProducts", topProducts("create_time"));
+        } catch (Exception e) {
+            log.warn("首页聚合: 加载新品失败", e);
+            failures.add("newProducts");
+            result.put("newProducts", new Object[0]);
+        }
+
+        // 4. 热销单品 (按销量倒序, 5条)
+        try {
+            result.put("hotProducts", topProducts("sale_num"));
+        } catch (Exception e) {
+            log.warn("首页聚合: 加载热销失败", e);
+            failures.add("hotProducts");
+            result.put("hotProducts", new Object[0]);
+        }
+
+        // 5. 功能开关配置
+        try {
+            Map<String, Object> featureConfig = new HashMap<>();
+            String aiEnabled = configService.selectConfigByKey("mall.ai.assistant.enabled");
+            featureConfig.put("showAI", "true".equalsIgnoreCase(aiEnabled));
+
+            String categoriesEnabled = configService.selectConfigByKey("mall.home.categories.enabled");
+            featureConfig.put("showCategories", !"false".equalsIgnoreCase(categoriesEnabled));
+
+            String productsEnabled = configService.selectConfigByKey("mall.home.products.enabled");
+            featureConfig.put("showProducts", !"false".equalsIgnoreCase(productsEnabled));
+
+            String categoryTabEnabled = configService.selectConfigByKey("mall.tabbar.category.enabled");
+            featureConfig.put("showCategoryTab", !"false".equalsIgnoreCase(categoryTabEnabled));
+
+            result.put("featureConfig", featureConfig);
+        } catch (Exception e) {
+            log.warn("首页聚合: 加载功能配置失败", e);
+            failures.add("featureConfig");
+            Map<String, Object> defaultConfig = new HashMap<>();
+            defaultConfig.put("showAI", false);
+            defaultConfig.put("showCategories", true);
+            defaultConfig.put("showProducts", true);
+            defaultConfig.put("showCategoryTab", true);
+            result.put("featureConfig", defaultConfig);
+        }
+
+        // 6. 页面装修主题 + 店铺信息（从数据库读取）
+        try {
+            MerchantPageConfig dbConfig = decorationService.getPublishedConfig(merchantId, "home");
+            if (dbConfig == null) {
+                dbConfig = decorationService.getPageConfig(merchantId, "home");
+            }
+
+            Map<String, Object> theme = new HashMap<>();
+            if (dbConfig != null && dbConfig.getCustomTheme() != null) {
+                try {
+                    JsonNode themeNode = objectMapper.readTree(dbConfig.getCustomTheme());
+                    theme = objectMapper.convertValue(themeNode, Map.class);
+                } catch (Exception e) {
+                    log.warn("解析主题JSON失败，使用默认值", e);
+                }
+            }
+            // 确保核心字段有值
+            putDefaultTheme(theme);
+            result.put("theme", theme);
+
+            // 店铺信息
+            if (dbConfig != null) {
+                Map<String, Object> shopInfo = new HashMap<>();
+                shopInfo.put("shopName", dbConfig.getShopName());
+                shopInfo.put("logoUrl", dbConfig.getLogoUrl());
+                shopInfo.put("slogan", dbConfig.getSlogan());
+                if (dbConfig.getNoticeTexts() != null) {
+                    try {
+                        shopInfo.put("noticeTexts", objectMapper.readTree(dbConfig.getNoticeTexts()));
+                    } catch (Exception e) {
+                        shopInfo.put("noticeTexts", new String[0]);
+                    }
+                }
+                result.put("shopInfo", shopInfo);
+            }
+        } catch (Exception e) {
+            log.warn("首页聚合: 加载主题失败", e);
+            failures.add("theme");
+            Map<String, Object> defaultTheme = new HashMap<>();
+            putDefaultTheme(defaultTheme);
+            result.put("theme", defaultTheme);
+        }
+
+        return result;
+    }
+
+    private List<GoodsSpu> topProducts(String orderColumn) {
+        Page<GoodsSpu> page = new Page<>(1, 5);
+        page.addOrder(OrderItem.desc(orderColumn));
+        GoodsSpu query = new GoodsSpu();
+        query.setShelf(CommonConstants.YES);
+        IPage<GoodsSpu> result = goodsSpuService.page1(page, query);
+        return result.getRecords();
+    }
+
+    private static void putDefaultTheme(Map<String, Object> theme) {
+        theme.putIfAbsent("primaryColor", "#52c41a");
+        theme.putIfAbsent("secondaryColor", "#1a1a1a");
+        theme.putIfAbsent("backgroundColor", "#f5f5f5");
+        theme.putIfAbsent("textColor", "#333333");
+        theme.putIfAbsent("accentColor", "#52c41a");
+    }
+
+    private static String toKey(Long merchantId) {
+        return merchantId == null ? DEFAULT_KEY : String.valueOf(merchantId);
+    }
+}
@@ -0,0 +1,152 @@
+package com.joolun.mall.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joolun.common.core.domain.AjaxResult;
+import com.joolun.mall.dto.HomeSnapshot;
+import com.joolun.mall.service.HomeSnapshotService;
+import com.joolun.mall.service.HomeSnapshotSimulationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 首页接口压测服务实现
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HomeSnapshotSimulationServiceImpl implements HomeSnapshotSimulationService {
+
+    private static final int MAX_ASSEMBLE_REQUESTS = 20000;
+    private static final int MAX_SNAPSHOT_REQUESTS = 1000000;
+    private static final int MAX_CONCURRENCY = 256;
+
+    private final HomeSnapshotService homeSnapshotService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 单个请求的处理，返回响应字节数
+     */
+    private interface RequestHandler {
+        int handle() throws Exception;
+    }
+
+    @Override
+    public Map<String, Object> runHomeInitBenchmark(int assembleRequests, int snapshotRequests, int concurrency) {
+        assembleRequests = Math.max(1, Math.min(assembleRequests, MAX_ASSEMBLE_REQUESTS));
+        snapshotRequests = Math.max(1, Math.min(snapshotRequests, MAX_SNAPSHOT_REQUESTS));
+        concurrency = Math.max(1, Math.min(concurrency, MAX_CONCURRENCY));
+
+        //预热快照，避免首次构建计入快照路径
+        HomeSnapshot warm = homeSnapshotService.getSnapshot(null);
+        String etag = warm.getEtag();
+
+        //原路径：每次请求查询各模块并序列化
+        Map<String, Object> before = run(assembleRequests, concurrency, () -> {
+            Map<String, Object> data = homeSnapshotService.assemble(null);
+            return objectMapper.writeValueAsBytes(AjaxResult.success(data)).length;
+        });
+
+        //快照路径：读取快照并写出字节
+        Map<String, Object> after = run(snapshotRequests, concurrency, () -> {
+            HomeSnapshot snapshot = homeSnapshotService.getSnapshot(null);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(snapshot.getBody().length);
+            out.write(snapshot.getBody());
+            return out.size();
+        });
+
+        //协商缓存路径：客户端携带上次的 ETag
+        AtomicInteger notModified = new AtomicInteger();
+        Map<String, Object> conditional = run(snapshotRequests, concurrency, () -> {
+            HomeSnapshot snapshot = homeSnapshotService.getSnapshot(null);
+            if (snapshot.matches(etag)) {
+                notModified.incrementAndGet();
+                return 0;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(snapshot.getBody().length);
+            out.write(snapshot.getBody());
+            return out.size();
+        });
+        conditional.put("notModified", notModified.get());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("concurrency", concurrency);
+        result.put("snapshotVersion", warm.getVersion());
+        result.put("snapshotBytes", warm.getBody().length);
+        result.put("assemble", before);
+        result.put("snapshot", after);
+        result.put("snapshotConditional", conditional);
+        long beforeRps = (Long) before.get("requestsPerSecond");
+        long afterRps = (Long) after.get("requestsPerSecond");
+        result.put("speedup", beforeRps > 0 ? Math.round(afterRps * 10.0 / beforeRps) / 10.0 : null);
+        log.info("首页接口压测完成: assemble={}/s, snapshot={}/s, speedup={}",
+                beforeRps, afterRps, result.get("speedup"));
+        return result;
+    }
+
+    private Map<String, Object> run(int requests, int concurrency, RequestHandler handler) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        long[] latencies = new long[requests];
+        long[] bytes = new long[concurrency];
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        CountDownLatch startGate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long elapsed;
+        try {
+            for (int t = 0; t < concurrency; t++) {
+                final int worker = t;
+                executor.execute(() -> {
+                    try {
+                        startGate.await();
+                        int i;
+                        while ((i = next.getAndIncrement()) < requests) {
+                            long t0 = System.nanoTime();
+                            try {
+                                bytes[worker] += handler.handle();
+                            } catch (Exception e) {
+                                errors.incrementAndGet();
+                            }
+                            latencies[i] = System.nanoTime() - t0;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long started = System.nanoTime();
+            startGate.countDown();
+            done.await();
+            elapsed = System.nanoTime() - started;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("首页接口压测被中断", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Arrays.sort(latencies);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests);
+        stats.put("errors", errors.get());
+        stats.put("elapsedMillis", elapsed / 1_000_000);
+        stats.put("requestsPerSecond", elapsed > 0 ? Math.round(requests * 1e9 / elapsed) : 0L);
+        stats.put("bytesWritten", Arrays.stream(bytes).sum());
+        stats.put("p50Micros", latencies[(int) (requests * 0.50)] / 1000);
+        stats.put("p99Micros", latencies[Math.min(requests - 1, (int) (requests * 0.99))] / 1000);
+        stats.put("maxMicros", latencies[requests - 1] / 1000);
+        return stats;
+    }
+}
@@ -4,21 +4,26 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.joolun.mall.constant.MallConstants;
 import com.joolun.mall.entity.Merchant;
 import com.joolun.mall.entity.MerchantNotification;
 import com.joolun.mall.mapper.MerchantMapper;
 import com.joolun.mall.mapper.MerchantNotificationMapper;
+import com.joolun.mall.service.DelayTaskService;
 import com.joolun.mall.service.MerchantNotificationService;
 import com.joolun.mall.service.SmsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 商家通知服务实现
@@ -31,6 +36,7 @@ public class MerchantNotificationServiceImpl extends ServiceImpl<MerchantNotific
 
     private final MerchantMapper merchantMapper;
     private final SmsService smsService;
+    private final DelayTaskService delayTaskService;
 
     @Override
     public IPage<MerchantNotification> pageNotifications(IPage<MerchantNotification> page, MerchantNotification query) {
@@ -136,9 +142,19 @@ public class MerchantNotificationServiceImpl extends ServiceImpl<MerchantNotific
 
         baseMapper.insert(notification);
 
-        // 如果启用短信，异步发送
+        // 如果启用短信，事务提交后交给延时任务异步发送（失败自动重试）
         if (enableSms && merchant.getContactPhone() != null) {
-            sendSms(notification.getId());
+            String notificationId = String.valueOf(notification.getId());
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        delayTaskService.schedule(MallConstants.DELAY_TASK_NOTIFICATION_SMS, notificationId, 0, TimeUnit.MILLISECONDS);
+                    }
+                });
+            } else {
+                delayTaskService.schedule(MallConstants.DELAY_TASK_NOTIFICATION_SMS, notificationId, 0, TimeUnit.MILLISECONDS);
+            }
         }
 
         return notification;
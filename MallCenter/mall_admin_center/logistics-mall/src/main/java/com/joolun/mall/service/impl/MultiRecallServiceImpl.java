@@ -1,6 +1,8 @@
 package com.joolun.mall.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.joolun.mall.config.RecallConfig;
 import com.joolun.mall.entity.GoodsSpu;
 import com.joolun.mall.entity.Merchant;
 import com.joolun.mall.entity.UserInterestTag;
@@ -10,21 +12,22 @@ import com.joolun.mall.service.MultiRecallService;
 import com.joolun.mall.service.UserBehaviorTrackingService;
 import com.joolun.mall.service.UserClusterService;
 import com.joolun.mall.service.VectorSearchService;
-import lombok.RequiredArgsConstructor;
+import com.joolun.mall.util.LatencyHistogram;
+import com.joolun.mall.util.RecallCandidatePool;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -40,14 +43,14 @@ import java.util.stream.Collectors;
  * 7. 高评分商家 (5%) - 高评分商家的商品
  *
  * 特性:
- * - CompletableFuture 并行召回
+ * - CompletableFuture 并行召回，每路有独立延迟预算，超时的通道丢弃，只融合按时返回的结果
+ * - 热门/新品/品类/商家候选预先加载到内存候选池（商品序号数组），定时刷新，不再逐次查询数据库
  * - Set 去重，保留最早出现的来源
  * - 支持动态调整各路召回权重
- * - 记录每路召回的命中数用于监控
+ * - 记录每路召回的命中数、超时数与延迟分布用于监控
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MultiRecallServiceImpl implements MultiRecallService {
 
     private final GoodsSpuMapper goodsSpuMapper;
@@ -56,10 +59,19 @@ public class MultiRecallServiceImpl implements MultiRecallService {
     private final StringRedisTemplate redisTemplate;
     private final VectorSearchService vectorSearchService;
     private final UserClusterService userClusterService;
+    private final RecallConfig recallConfig;
+    private final ScheduledExecutorService scheduledExecutorService;
 
     // 召回统计
     private final ConcurrentHashMap<String, AtomicInteger> recallStats = new ConcurrentHashMap<>();
 
+    // 各路召回运行指标
+    private final Map<String, ChannelStats> channelStats = new ConcurrentHashMap<>();
+    private final LatencyHistogram recallLatency = new LatencyHistogram(LATENCY_HISTOGRAM_MAX_MS);
+
+    // 内存候选池，首次加载完成前为 null，各路召回回退到数据库查询
+    private volatile RecallCandidatePool candidatePool;
+
     // 召回权重配置
     private final ConcurrentHashMap<String, Double> recallWeights = new ConcurrentHashMap<>();
 
@@ -96,8 +108,11 @@ public class MultiRecallServiceImpl implements MultiRecallService {
     // 高评分商家阈值
     private static final BigDecimal HIGH_RATING_THRESHOLD = new BigDecimal("4.5");
 
-    // 并行召回超时时间(毫秒)
-    private static final long RECALL_TIMEOUT_MS = 3000;
+    // 延迟直方图上限(毫秒)
+    private static final int LATENCY_HISTOGRAM_MAX_MS = 5000;
+
+    // 候选池分批加载的商品数
+    private static final int POOL_LOAD_BATCH = 2000;
 
     // Redis 缓存键前缀
     private static final String RECALL_CACHE_PREFIX = "multi_recall:";
@@ -120,6 +135,24 @@ public class MultiRecallServiceImpl implements MultiRecallService {
                 Arrays.asList("热门商品", "新品推荐", "优惠商品"), 0.5));
     }
 
+    public MultiRecallServiceImpl(GoodsSpuMapper goodsSpuMapper,
+                                  MerchantMapper merchantMapper,
+                                  UserBehaviorTrackingService behaviorTrackingService,
+                                  StringRedisTemplate redisTemplate,
+                                  VectorSearchService vectorSearchService,
+                                  UserClusterService userClusterService,
+                                  RecallConfig recallConfig,
+                                  @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.goodsSpuMapper = goodsSpuMapper;
+        this.merchantMapper = merchantMapper;
+        this.behaviorTrackingService = behaviorTrackingService;
+        this.redisTemplate = redisTemplate;
+        this.vectorSearchService = vectorSearchService;
+        this.userClusterService = userClusterService;
+        this.recallConfig = recallConfig;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
     /**
      * 聚类召回策略内部类
      */
@@ -137,8 +170,16 @@ public class MultiRecallServiceImpl implements MultiRecallService {
 
     @PostConstruct
     public void init() {
-        // 初始化线程池 (8路召回)
-        recallExecutor = Executors.newFixedThreadPool(8);
+        // 初始化线程池，队列有界：慢通道堆积时新任务直接跳过，不拖慢其他通道
+        AtomicInteger threadIndex = new AtomicInteger();
+        recallExecutor = new ThreadPoolExecutor(recallConfig.getThreads(), recallConfig.getThreads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(recallConfig.getQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "multi-recall-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
 
         // 初始化默认权重
         recallWeights.put(RECALL_POPULARITY, DEFAULT_WEIGHT_POPULARITY);
@@ -159,8 +200,61 @@ public class MultiRecallServiceImpl implements MultiRecallService {
         recallStats.put(RECALL_HIGH_RATING, new AtomicInteger(0));
         recallStats.put(RECALL_SEMANTIC, new AtomicInteger(0));
         recallStats.put(RECALL_CLUSTER_RULE, new AtomicInteger(0));
+        for (String channel : recallStats.keySet()) {
+            channelStats.put(channel, new ChannelStats());
+        }
+
+        // 加载并定时刷新候选池
+        scheduledExecutorService.execute(this::refreshPoolQuietly);
+        scheduledExecutorService.scheduleWithFixedDelay(this::refreshPoolQuietly,
+                recallConfig.getPoolRefreshInterval(), recallConfig.getPoolRefreshInterval(), TimeUnit.MILLISECONDS);
+
+        log.info("多路召回服务初始化完成，权重配置: {}，延迟预算: {}，截止时间: {}ms",
+                recallWeights, recallConfig.getBudgets(), recallConfig.getDeadlineMillis());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (recallExecutor != null) {
+            recallExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 刷新候选池：上架商品（不含详情）与高评分商家
+     */
+    public void refreshPool() {
+        long start = System.currentTimeMillis();
+        List<GoodsSpu> goods = new ArrayList<>();
+        String lastId = null;
+        while (true) {
+            List<GoodsSpu> batch = goodsSpuMapper.selectList(Wrappers.<GoodsSpu>lambdaQuery()
+                    .select(GoodsSpu.class, field -> !"description".equals(field.getColumn()))
+                    .eq(GoodsSpu::getShelf, "1")
+                    .isNull(GoodsSpu::getDelFlag)
+                    .gt(lastId != null, GoodsSpu::getId, lastId)
+                    .orderByAsc(GoodsSpu::getId)
+                    .last("LIMIT " + POOL_LOAD_BATCH));
+            goods.addAll(batch);
+            if (batch.size() < POOL_LOAD_BATCH) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+        List<Long> merchantIds = selectHighRatingMerchants().stream()
+                .map(Merchant::getId)
+                .collect(Collectors.toList());
+        candidatePool = RecallCandidatePool.build(goods, merchantIds,
+                LocalDateTime.now().minusDays(NEW_ARRIVAL_DAYS));
+        log.debug("召回候选池刷新完成: {} 件商品, 耗时{}ms", goods.size(), System.currentTimeMillis() - start);
+    }
 
-        log.info("多路召回服务初始化完成，权重配置: {}", recallWeights);
+    private void refreshPoolQuietly() {
+        try {
+            refreshPool();
+        } catch (Exception e) {
+            log.error("召回候选池刷新失败", e);
+        }
     }
 
     /**
@@ -208,51 +302,38 @@ public class MultiRecallServiceImpl implements MultiRecallService {
         // 记录每个商品的召回来源和得分
         Map<String, RecallItem> recallItems = new ConcurrentHashMap<>();
 
-        try {
-            // 并行执行8路召回
-            CompletableFuture<List<GoodsSpu>> popularityFuture = CompletableFuture.supplyAsync(
-                    () -> recallByPopularity(perRecallLimit), recallExecutor);
-
-            CompletableFuture<List<GoodsSpu>> collaborativeFuture = CompletableFuture.supplyAsync(
-                    () -> recallByCollaborativeFiltering(wxUserId, perRecallLimit), recallExecutor);
-
-            CompletableFuture<List<GoodsSpu>> categoryFuture = CompletableFuture.supplyAsync(
-                    () -> recallByCategory(wxUserId, perRecallLimit), recallExecutor);
-
-            CompletableFuture<List<GoodsSpu>> recentViewFuture = CompletableFuture.supplyAsync(
-                    () -> recallByRecentView(wxUserId, perRecallLimit), recallExecutor);
-
-            CompletableFuture<List<GoodsSpu>> newArrivalFuture = CompletableFuture.supplyAsync(
-                    () -> recallByNewArrival(perRecallLimit), recallExecutor);
-
-            CompletableFuture<List<GoodsSpu>> highRatingFuture = CompletableFuture.supplyAsync(
-                    () -> recallByHighRatingMerchant(perRecallLimit), recallExecutor);
-
-            CompletableFuture<List<GoodsSpu>> semanticFuture = CompletableFuture.supplyAsync(
-                    () -> recallBySemantic(wxUserId, perRecallLimit), recallExecutor);
-
-            CompletableFuture<List<GoodsSpu>> clusterRuleFuture = CompletableFuture.supplyAsync(
-                    () -> recallByClusterRule(wxUserId, perRecallLimit), recallExecutor);
-
-            // 等待所有召回完成（带超时）
-            CompletableFuture.allOf(
-                    popularityFuture, collaborativeFuture, categoryFuture,
-                    recentViewFuture, newArrivalFuture, highRatingFuture,
-                    semanticFuture, clusterRuleFuture
-            ).get(RECALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-
-            // 融合各路召回结果
-            mergeRecallResults(recallItems, popularityFuture.get(), RECALL_POPULARITY);
-            mergeRecallResults(recallItems, collaborativeFuture.get(), RECALL_COLLABORATIVE);
-            mergeRecallResults(recallItems, categoryFuture.get(), RECALL_CATEGORY);
-            mergeRecallResults(recallItems, recentViewFuture.get(), RECALL_RECENT_VIEW);
-            mergeRecallResults(recallItems, newArrivalFuture.get(), RECALL_NEW_ARRIVAL);
-            mergeRecallResults(recallItems, highRatingFuture.get(), RECALL_HIGH_RATING);
-            mergeRecallResults(recallItems, semanticFuture.get(), RECALL_SEMANTIC);
-            mergeRecallResults(recallItems, clusterRuleFuture.get(), RECALL_CLUSTER_RULE);
-
-        } catch (Exception e) {
-            log.warn("多路召回部分超时或异常，使用已完成的结果: {}", e.getMessage());
+        // 并行执行8路召回，按通道预算提交
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(recallConfig.getDeadlineMillis());
+        Map<String, CompletableFuture<List<GoodsSpu>>> futures = new LinkedHashMap<>();
+        futures.put(RECALL_POPULARITY, submitRecall(RECALL_POPULARITY, () -> recallByPopularity(perRecallLimit)));
+        futures.put(RECALL_COLLABORATIVE, submitRecall(RECALL_COLLABORATIVE,
+                () -> recallByCollaborativeFiltering(wxUserId, perRecallLimit)));
+        futures.put(RECALL_CATEGORY, submitRecall(RECALL_CATEGORY, () -> recallByCategory(wxUserId, perRecallLimit)));
+        futures.put(RECALL_RECENT_VIEW, submitRecall(RECALL_RECENT_VIEW,
+                () -> recallByRecentView(wxUserId, perRecallLimit)));
+        futures.put(RECALL_NEW_ARRIVAL, submitRecall(RECALL_NEW_ARRIVAL, () -> recallByNewArrival(perRecallLimit)));
+        futures.put(RECALL_HIGH_RATING, submitRecall(RECALL_HIGH_RATING,
+                () -> recallByHighRatingMerchant(perRecallLimit)));
+        futures.put(RECALL_SEMANTIC, submitRecall(RECALL_SEMANTIC, () -> recallBySemantic(wxUserId, perRecallLimit)));
+        futures.put(RECALL_CLUSTER_RULE, submitRecall(RECALL_CLUSTER_RULE,
+                () -> recallByClusterRule(wxUserId, perRecallLimit)));
+
+        // 按固定顺序等待并融合，每路最多等到自身预算或整体截止时间，超时的通道本次跳过
+        List<String> timedOut = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<List<GoodsSpu>>> entry : futures.entrySet()) {
+            String channel = entry.getKey();
+            long channelDeadline = Math.min(deadlineNanos,
+                    startNanos + TimeUnit.MILLISECONDS.toNanos(recallConfig.budgetOf(channel)));
+            List<GoodsSpu> products = awaitRecall(channel, entry.getValue(), channelDeadline);
+            if (products == null) {
+                timedOut.add(channel);
+            } else {
+                mergeRecallResults(recallItems, products, channel);
+            }
+        }
+        if (!timedOut.isEmpty()) {
+            log.warn("多路召回部分通道超出预算，使用已完成的结果: {}", timedOut);
         }
 
         // 按加权得分排序
@@ -263,11 +344,67 @@ public class MultiRecallServiceImpl implements MultiRecallService {
                 .collect(Collectors.toList());
 
         long elapsed = System.currentTimeMillis() - startTime;
+        recallLatency.record(elapsed);
         log.info("多路召回完成: 候选{}件，返回{}件，耗时{}ms", recallItems.size(), results.size(), elapsed);
 
         return results;
     }
 
+    /**
+     * 提交一路召回，延迟从提交时计算（包含排队时间）；线程池队列满时该通道本次跳过
+     */
+    private CompletableFuture<List<GoodsSpu>> submitRecall(String channel, Supplier<List<GoodsSpu>> recall) {
+        ChannelStats stats = channelStats.get(channel);
+        stats.calls.increment();
+        long submitNanos = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return recall.get();
+                } finally {
+                    stats.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitNanos));
+                }
+            }, recallExecutor);
+        } catch (RejectedExecutionException e) {
+            stats.rejected.increment();
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+    }
+
+    /**
+     * 等待一路召回到截止时间
+     * @return 召回结果，超时返回 null，异常返回空列表
+     */
+    private List<GoodsSpu> awaitRecall(String channel, CompletableFuture<List<GoodsSpu>> future, long deadlineNanos) {
+        ChannelStats stats = channelStats.get(channel);
+        try {
+            long remaining = deadlineNanos - System.nanoTime();
+            List<GoodsSpu> products;
+            if (remaining > 0) {
+                products = future.get(remaining, TimeUnit.NANOSECONDS);
+            } else if (future.isDone()) {
+                products = future.get();
+            } else {
+                throw new TimeoutException();
+            }
+            stats.onTime.increment();
+            if (products != null) {
+                stats.items.add(products.size());
+            }
+            return products != null ? products : Collections.emptyList();
+        } catch (TimeoutException e) {
+            stats.timeouts.increment();
+            return null;
+        } catch (ExecutionException e) {
+            stats.errors.increment();
+            log.warn("召回通道 [{}] 执行异常: {}", channel, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+    }
+
     /**
      * 融合召回结果 (V4.0: RRF + 多来源置信度增强)
      *
@@ -329,6 +466,11 @@ public class MultiRecallServiceImpl implements MultiRecallService {
     public List<GoodsSpu> recallByPopularity(int limit) {
         log.debug("执行热度召回: limit={}", limit);
 
+        RecallCandidatePool pool = candidatePool;
+        if (pool != null) {
+            return pool.hot(limit);
+        }
+
         LambdaQueryWrapper<GoodsSpu> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(GoodsSpu::getShelf, "1")
                 .isNull(GoodsSpu::getDelFlag)
@@ -352,6 +494,15 @@ public class MultiRecallServiceImpl implements MultiRecallService {
             return Collections.emptyList();
         }
 
+        RecallCandidatePool pool = candidatePool;
+        if (pool != null) {
+            Set<String> viewedCategories = pool.categoriesOf(recentViewedIds);
+            if (viewedCategories.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return pool.recentIn(viewedCategories, recentViewedIds, limit);
+        }
+
         // 获取浏览商品的分类
         List<GoodsSpu> viewedProducts = goodsSpuMapper.selectBatchIds(recentViewedIds);
         Set<String> viewedCategories = viewedProducts.stream()
@@ -404,6 +555,11 @@ public class MultiRecallServiceImpl implements MultiRecallService {
             return Collections.emptyList();
         }
 
+        RecallCandidatePool pool = candidatePool;
+        if (pool != null) {
+            return pool.hotIn(preferredCategories, null, null, limit);
+        }
+
         // 查询偏好品类的热门商品
         LambdaQueryWrapper<GoodsSpu> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(GoodsSpu::getShelf, "1")
@@ -429,6 +585,15 @@ public class MultiRecallServiceImpl implements MultiRecallService {
             return Collections.emptyList();
         }
 
+        RecallCandidatePool pool = candidatePool;
+        if (pool != null) {
+            Set<String> viewedCategories = pool.categoriesOf(viewedIds);
+            if (viewedCategories.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return pool.hotIn(viewedCategories, pool.merchantsOf(viewedIds), viewedIds, limit);
+        }
+
         // 基于浏览历史获取分类和商户偏好
         List<GoodsSpu> viewedProducts = goodsSpuMapper.selectBatchIds(viewedIds);
 
@@ -469,6 +634,11 @@ public class MultiRecallServiceImpl implements MultiRecallService {
     public List<GoodsSpu> recallByNewArrival(int limit) {
         log.debug("执行新品召回: limit={}", limit);
 
+        RecallCandidatePool pool = candidatePool;
+        if (pool != null) {
+            return pool.newArrivals(limit);
+        }
+
         LocalDateTime cutoffTime = LocalDateTime.now().minusDays(NEW_ARRIVAL_DAYS);
 
         LambdaQueryWrapper<GoodsSpu> wrapper = new LambdaQueryWrapper<>();
@@ -485,14 +655,12 @@ public class MultiRecallServiceImpl implements MultiRecallService {
     public List<GoodsSpu> recallByHighRatingMerchant(int limit) {
         log.debug("执行高评分商家召回: limit={}", limit);
 
-        // 查询高评分商家
-        LambdaQueryWrapper<Merchant> merchantWrapper = new LambdaQueryWrapper<>();
-        merchantWrapper.ge(Merchant::getRating, HIGH_RATING_THRESHOLD)
-                .eq(Merchant::getStatus, 1)  // 已认证状态
-                .orderByDesc(Merchant::getRating)
-                .last("LIMIT 20");
+        RecallCandidatePool pool = candidatePool;
+        if (pool != null) {
+            return pool.highRating(limit);
+        }
 
-        List<Merchant> highRatingMerchants = merchantMapper.selectList(merchantWrapper);
+        List<Merchant> highRatingMerchants = selectHighRatingMerchants();
         if (highRatingMerchants.isEmpty()) {
             return Collections.emptyList();
         }
@@ -512,6 +680,18 @@ public class MultiRecallServiceImpl implements MultiRecallService {
         return goodsSpuMapper.selectList(wrapper);
     }
 
+    /**
+     * 查询高评分商家
+     */
+    private List<Merchant> selectHighRatingMerchants() {
+        LambdaQueryWrapper<Merchant> merchantWrapper = new LambdaQueryWrapper<>();
+        merchantWrapper.ge(Merchant::getRating, HIGH_RATING_THRESHOLD)
+                .eq(Merchant::getStatus, 1)  // 已认证状态
+                .orderByDesc(Merchant::getRating)
+                .last("LIMIT 20");
+        return merchantMapper.selectList(merchantWrapper);
+    }
+
     @Override
     public List<GoodsSpu> recallBySemantic(String wxUserId, int limit) {
         log.debug("执行语义召回: wxUserId={}, limit={}", wxUserId, limit);
@@ -682,35 +862,7 @@ public class MultiRecallServiceImpl implements MultiRecallService {
             int categoryLimit = (int) Math.ceil(limit * categoryWeight);
             categoryLimit = Math.min(categoryLimit, remaining);
 
-            // 初始化品类映射 (优化点P2)
-            initCategoryMapIfNeeded();
-
-            // 收集匹配的品类
-            Set<String> matchedCategories = new HashSet<>();
-            for (String key : categoryNameToIdMap.keySet()) {
-                if (key.contains(category) || category.contains(key)) {
-                    matchedCategories.add(key);
-                }
-            }
-
-            // 按品类查询 (优化: 优先使用精确匹配)
-            LambdaQueryWrapper<GoodsSpu> wrapper = new LambdaQueryWrapper<>();
-            if (matchedCategories.isEmpty()) {
-                // 没有匹配品类时使用like作为后备
-                wrapper.eq(GoodsSpu::getShelf, "1")
-                        .isNull(GoodsSpu::getDelFlag)
-                        .and(w -> w.like(GoodsSpu::getCategoryFirst, category)
-                                .or().like(GoodsSpu::getName, category));
-            } else {
-                // 使用精确匹配
-                wrapper.eq(GoodsSpu::getShelf, "1")
-                        .isNull(GoodsSpu::getDelFlag)
-                        .in(GoodsSpu::getCategoryFirst, matchedCategories);
-            }
-            wrapper.orderByDesc(GoodsSpu::getSaleNum)
-                    .last("LIMIT " + (categoryLimit * 2));  // 多取一些用于去重
-
-            List<GoodsSpu> categoryProducts = goodsSpuMapper.selectList(wrapper);
+            List<GoodsSpu> categoryProducts = recallByCategoryName(category, categoryLimit * 2);  // 多取一些用于去重
 
             for (GoodsSpu product : categoryProducts) {
                 if (seenIds.add(product.getId())) {
@@ -744,35 +896,8 @@ public class MultiRecallServiceImpl implements MultiRecallService {
         Set<String> seenIds = new HashSet<>();
         int perCategoryLimit = (limit / categories.size()) + 1;
 
-        // 初始化品类映射
-        initCategoryMapIfNeeded();
-
         for (String category : categories) {
-            // 收集匹配的品类
-            Set<String> matchedCategories = new HashSet<>();
-            for (String key : categoryNameToIdMap.keySet()) {
-                if (key.contains(category) || category.contains(key)) {
-                    matchedCategories.add(key);
-                }
-            }
-
-            LambdaQueryWrapper<GoodsSpu> wrapper = new LambdaQueryWrapper<>();
-            if (matchedCategories.isEmpty()) {
-                // 没有匹配品类时使用like作为后备
-                wrapper.eq(GoodsSpu::getShelf, "1")
-                        .isNull(GoodsSpu::getDelFlag)
-                        .and(w -> w.like(GoodsSpu::getCategoryFirst, category)
-                                .or().like(GoodsSpu::getName, category));
-            } else {
-                // 使用精确匹配
-                wrapper.eq(GoodsSpu::getShelf, "1")
-                        .isNull(GoodsSpu::getDelFlag)
-                        .in(GoodsSpu::getCategoryFirst, matchedCategories);
-            }
-            wrapper.orderByDesc(GoodsSpu::getSaleNum)
-                    .last("LIMIT " + perCategoryLimit);
-
-            List<GoodsSpu> categoryProducts = goodsSpuMapper.selectList(wrapper);
+            List<GoodsSpu> categoryProducts = recallByCategoryName(category, perCategoryLimit);
             for (GoodsSpu product : categoryProducts) {
                 if (seenIds.add(product.getId())) {
                     results.add(product);
@@ -785,6 +910,52 @@ public class MultiRecallServiceImpl implements MultiRecallService {
         return results;
     }
 
+    /**
+     * 按品类名称召回热门商品 (优化点P2: 优先精确匹配品类，无匹配时按品类/名称模糊匹配)
+     */
+    private List<GoodsSpu> recallByCategoryName(String category, int limit) {
+        RecallCandidatePool pool = candidatePool;
+
+        // 收集匹配的品类
+        Set<String> matchedCategories = new HashSet<>();
+        Collection<String> knownCategories;
+        if (pool != null) {
+            knownCategories = pool.categories();
+        } else {
+            initCategoryMapIfNeeded();
+            knownCategories = categoryNameToIdMap.keySet();
+        }
+        for (String key : knownCategories) {
+            if (key.contains(category) || category.contains(key)) {
+                matchedCategories.add(key);
+            }
+        }
+
+        if (pool != null) {
+            return matchedCategories.isEmpty()
+                    ? pool.hotMatching(category, limit)
+                    : pool.hotIn(matchedCategories, null, null, limit);
+        }
+
+        LambdaQueryWrapper<GoodsSpu> wrapper = new LambdaQueryWrapper<>();
+        if (matchedCategories.isEmpty()) {
+            // 没有匹配品类时使用like作为后备
+            wrapper.eq(GoodsSpu::getShelf, "1")
+                    .isNull(GoodsSpu::getDelFlag)
+                    .and(w -> w.like(GoodsSpu::getCategoryFirst, category)
+                            .or().like(GoodsSpu::getName, category));
+        } else {
+            // 使用精确匹配
+            wrapper.eq(GoodsSpu::getShelf, "1")
+                    .isNull(GoodsSpu::getDelFlag)
+                    .in(GoodsSpu::getCategoryFirst, matchedCategories);
+        }
+        wrapper.orderByDesc(GoodsSpu::getSaleNum)
+                .last("LIMIT " + limit);
+
+        return goodsSpuMapper.selectList(wrapper);
+    }
+
     @Override
     public Map<String, Integer> getRecallStats() {
         Map<String, Integer> stats = new HashMap<>();
@@ -792,6 +963,33 @@ public class MultiRecallServiceImpl implements MultiRecallService {
         return stats;
     }
 
+    @Override
+    public Map<String, Object> getRecallChannelStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("deadlineMillis", recallConfig.getDeadlineMillis());
+        stats.put("recall", recallLatency.snapshot());
+        Map<String, Object> channels = new LinkedHashMap<>();
+        for (String channel : new TreeSet<>(channelStats.keySet())) {
+            ChannelStats channelStat = channelStats.get(channel);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("budgetMillis", recallConfig.budgetOf(channel));
+            long calls = channelStat.calls.sum();
+            long onTime = channelStat.onTime.sum();
+            item.put("calls", calls);
+            item.put("onTime", onTime);
+            item.put("timeouts", channelStat.timeouts.sum());
+            item.put("errors", channelStat.errors.sum());
+            item.put("rejected", channelStat.rejected.sum());
+            item.put("avgItems", onTime > 0 ? channelStat.items.sum() / onTime : 0);
+            item.put("latency", channelStat.latency.snapshot());
+            channels.put(channel, item);
+        }
+        stats.put("channels", channels);
+        RecallCandidatePool pool = candidatePool;
+        stats.put("pool", pool != null ? pool.getStats() : null);
+        return stats;
+    }
+
     @Override
     public void updateRecallWeights(Map<String, Double> weights) {
         if (weights == null || weights.isEmpty()) {
@@ -817,6 +1015,19 @@ public class MultiRecallServiceImpl implements MultiRecallService {
         return new HashMap<>(recallWeights);
     }
 
+    /**
+     * 单路召回运行指标
+     */
+    private static class ChannelStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder onTime = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder items = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram(LATENCY_HISTOGRAM_MAX_MS);
+    }
+
     /**
      * 召回项内部类
      * 用于记录召回商品的得分和来源
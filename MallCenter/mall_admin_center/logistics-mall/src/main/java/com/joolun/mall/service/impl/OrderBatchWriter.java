@@ -0,0 +1,322 @@
+package com.joolun.mall.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.joolun.common.exception.ServiceException;
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.entity.OrderInfo;
+import com.joolun.mall.entity.OrderItem;
+import com.joolun.mall.entity.OrderLogistics;
+import com.joolun.mall.entity.ShoppingCart;
+import com.joolun.mall.mapper.GoodsSpuMapper;
+import com.joolun.mall.service.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单批量落库队列
+ *
+ * 下单线程完成库存预扣后提交落库任务并等待结果；单个写入线程把短时间内到达的订单合并为一个事务：
+ * 物流、订单、订单明细批量插入，库存按商品汇总后各执行一条条件扣减，购物车按订单一次删除。
+ * 批量事务失败时逐单重试，只有失败的订单回补预扣库存，其余订单不受影响。
+ * 落库成功后确认预扣并调度未支付自动取消任务（即使下单线程已等待超时也会执行）。
+ */
+@Slf4j
+@Component
+public class OrderBatchWriter {
+
+    /** 停止时等待写入线程排空的最长时间 */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    @Value("${mall.order.writer.capacity:10000}")
+    private int capacity;
+
+    @Value("${mall.order.writer.batchSize:100}")
+    private int batchSize;
+
+    /** 收到第一单后最多等待多久凑批（毫秒） */
+    @Value("${mall.order.writer.lingerMillis:5}")
+    private long lingerMillis;
+
+    @Autowired
+    @Lazy
+    private OrderInfoService orderInfoService;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderLogisticsService orderLogisticsService;
+
+    @Autowired
+    private ShoppingCartService shoppingCartService;
+
+    @Autowired
+    private GoodsSpuMapper goodsSpuMapper;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private DelayTaskService delayTaskService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private BlockingQueue<OrderPersistTask> queue;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    private final AtomicLong submitted = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong persisted = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong retriedBatches = new AtomicLong();
+
+    private volatile int maxBatch;
+
+    private volatile long lastFlushCostMillis;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        writerThread = new Thread(this::runLoop, "order-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("订单批量落库队列启动, capacity={}, batchSize={}, lingerMillis={}", capacity, batchSize, lingerMillis);
+    }
+
+    /**
+     * 提交落库任务
+     * 队列已满时立即回补预扣库存并返回失败
+     */
+    public CompletableFuture<OrderInfo> submit(OrderPersistTask task) {
+        if (!running || !queue.offer(task)) {
+            rejected.incrementAndGet();
+            stockReservationService.release(task.getOrderInfo().getOrderNo());
+            task.getFuture().completeExceptionally(new ServiceException("下单人数过多，请稍后再试"));
+            return task.getFuture();
+        }
+        submitted.incrementAndGet();
+        return task.getFuture();
+    }
+
+    private void runLoop() {
+        List<OrderPersistTask> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderPersistTask first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize) {
+                    //先取走已到达的任务，队列空时在剩余等待时间内继续凑批
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    OrderPersistTask next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                log.error("订单批量落库线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<OrderPersistTask> batch) {
+        long started = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(batch));
+            batch.forEach(this::afterCommit);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+            } else {
+                //批量失败时逐单重试，定位并隔离失败订单
+                retriedBatches.incrementAndGet();
+                log.warn("订单批量落库失败，逐单重试: size={}, error={}", batch.size(), e.getMessage());
+                for (OrderPersistTask task : batch) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> persist(Collections.singletonList(task)));
+                        afterCommit(task);
+                    } catch (Exception single) {
+                        fail(task, single);
+                    }
+                }
+            }
+        }
+        batches.incrementAndGet();
+        maxBatch = Math.max(maxBatch, batch.size());
+        lastFlushCostMillis = System.currentTimeMillis() - started;
+    }
+
+    private void persist(List<OrderPersistTask> tasks) {
+        List<OrderLogistics> logistics = new ArrayList<>(tasks.size());
+        tasks.forEach(task -> logistics.add(task.getOrderLogistics()));
+        //新增订单物流
+        orderLogisticsService.saveBatch(logistics);
+
+        List<OrderInfo> orders = new ArrayList<>(tasks.size());
+        for (OrderPersistTask task : tasks) {
+            task.getOrderInfo().setLogisticsId(task.getOrderLogistics().getId());
+            orders.add(task.getOrderInfo());
+        }
+        //保存订单
+        orderInfoService.saveBatch(orders);
+
+        List<OrderItem> items = new ArrayList<>();
+        //按商品ID排序汇总扣减量，固定加锁顺序避免批次间死锁
+        Map<String, Integer> deductions = new TreeMap<>();
+        for (OrderPersistTask task : tasks) {
+            for (OrderItem orderItem : task.getOrderItems()) {
+                orderItem.setOrderId(task.getOrderInfo().getId());
+                items.add(orderItem);
+            }
+            task.getQuantities().forEach((spuId, quantity) -> deductions.merge(spuId, quantity, Integer::sum));
+        }
+        //保存订单详情
+        orderItemService.saveBatch(items);
+
+        deductions.forEach((spuId, quantity) -> {
+            if (goodsSpuMapper.deductStock(spuId, quantity) == 0) {
+                throw new ServiceException(StrUtil.format("商品库存不足: spuId={}, quantity={}", spuId, quantity));
+            }
+        });
+
+        //删除购物车
+        for (OrderPersistTask task : tasks) {
+            shoppingCartService.remove(Wrappers.<ShoppingCart>lambdaQuery()
+                    .eq(ShoppingCart::getUserId, task.getUserId())
+                    .in(ShoppingCart::getSpuId, task.getQuantities().keySet()));
+        }
+    }
+
+    private void afterCommit(OrderPersistTask task) {
+        OrderInfo orderInfo = task.getOrderInfo();
+        try {
+            stockReservationService.confirm(orderInfo.getOrderNo());
+            //30分钟未支付自动取消
+            delayTaskService.schedule(MallConstants.DELAY_TASK_ORDER_CANCEL, orderInfo.getId(),
+                    MallConstants.ORDER_TIME_OUT_0, TimeUnit.MINUTES);
+        } catch (Exception e) {
+            //订单已落库，预扣记录由对账确认
+            log.error("订单落库后处理失败: orderNo={}", orderInfo.getOrderNo(), e);
+        }
+        persisted.incrementAndGet();
+        task.getFuture().complete(orderInfo);
+    }
+
+    private void fail(OrderPersistTask task, Exception e) {
+        failed.incrementAndGet();
+        log.error("订单落库失败，回补预扣库存: orderNo={}, error={}", task.getOrderInfo().getOrderNo(), e.getMessage());
+        try {
+            stockReservationService.release(task.getOrderInfo().getOrderNo());
+        } catch (Exception releaseError) {
+            //回补失败时由对账超时回补
+            log.error("回补预扣库存失败: orderNo={}", task.getOrderInfo().getOrderNo(), releaseError);
+        }
+        task.getFuture().completeExceptionally(e);
+    }
+
+    /**
+     * 停止写入线程并排空队列
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("订单批量落库队列停止, 剩余={}", queue != null ? queue.size() : 0);
+    }
+
+    /**
+     * 运行统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("capacity", capacity);
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("persisted", persisted.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        stats.put("retriedBatches", retriedBatches.get());
+        stats.put("maxBatch", maxBatch);
+        stats.put("lastFlushCostMillis", lastFlushCostMillis);
+        return stats;
+    }
+
+    /**
+     * 落库任务
+     */
+    @Getter
+    public static class OrderPersistTask {
+
+        private final OrderInfo orderInfo;
+
+        private final OrderLogistics orderLogistics;
+
+        private final List<OrderItem> orderItems;
+
+        /** 已预扣的商品数量 */
+        private final Map<String, Integer> quantities;
+
+        private final String userId;
+
+        private final CompletableFuture<OrderInfo> future = new CompletableFuture<>();
+
+        public OrderPersistTask(OrderInfo orderInfo, OrderLogistics orderLogistics, List<OrderItem> orderItems,
+                                Map<String, Integer> quantities, String userId) {
+            this.orderInfo = orderInfo;
+            this.orderLogistics = orderLogistics;
+            this.orderItems = orderItems;
+            this.quantities = quantities;
+            this.userId = userId;
+        }
+    }
+}
@@ -18,26 +18,31 @@ import com.github.binarywang.wxpay.bean.request.WxPayRefundRequest;
 import com.github.binarywang.wxpay.bean.result.WxPayRefundResult;
 import com.github.binarywang.wxpay.exception.WxPayException;
 import com.github.binarywang.wxpay.service.WxPayService;
+import com.joolun.common.exception.ServiceException;
 import com.joolun.mall.config.CommonConstants;
 import com.joolun.mall.config.MallConfigProperties;
 import com.joolun.mall.constant.MallConstants;
 import com.joolun.mall.dto.PlaceOrderDTO;
+import com.joolun.mall.dto.PlaceOrderGoodsDTO;
 import com.joolun.mall.entity.*;
 import com.joolun.mall.enums.OrderInfoEnum;
 import com.joolun.mall.enums.OrderLogisticsEnum;
+import com.joolun.mall.mapper.GoodsSpuMapper;
 import com.joolun.mall.mapper.OrderInfoMapper;
 import com.joolun.mall.service.*;
 import com.joolun.weixin.config.WxPayConfiguration;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -54,11 +59,19 @@ public class OrderInfoServiceImpl extends ServiceImpl<OrderInfoMapper, OrderInfo
 	private final GoodsSpuService goodsSpuService;
 	private final ShoppingCartService shoppingCartService;
 	private final UserAddressService userAddressService;
-	private final RedisTemplate<String, String> redisTemplate;
 
 	private final OrderItemService orderItemService;
 	private final OrderLogisticsService orderLogisticsService;
 	private final MallConfigProperties mallConfigProperties;
+	private final GoodsSpuMapper goodsSpuMapper;
+	private final StockReservationService stockReservationService;
+	private final OrderBatchWriter orderBatchWriter;
+	private final DelayTaskService delayTaskService;
+
+	/**
+	 * 下单等待落库的最长时间（毫秒）
+	 */
+	private static final long ORDER_PERSIST_TIMEOUT = 5000;
 
 	@Override
 	@Transactional(rollbackFor = Exception.class)
@@ -77,9 +90,8 @@ public class OrderInfoServiceImpl extends ServiceImpl<OrderInfoMapper, OrderInfo
 			orderLogistics.setStatus(OrderLogisticsEnum.STATUS_1.getValue());
 			orderLogisticsService.updateById(orderLogistics);
 			if(sendRedis){
-				//加入redis，7天后自动确认收货
-				String keyRedis = String.valueOf(StrUtil.format("{}:{}",MallConstants.REDIS_ORDER_KEY_STATUS_2,entity.getId()));
-				redisTemplate.opsForValue().set(keyRedis, entity.getOrderNo() , MallConstants.ORDER_TIME_OUT_2, TimeUnit.DAYS);//设置过期时间
+				//7天后自动确认收货
+				delayTaskService.schedule(MallConstants.DELAY_TASK_ORDER_RECEIVE, entity.getId(), MallConstants.ORDER_TIME_OUT_2, TimeUnit.DAYS);
 			}
 		}
 		return super.updateById(entity);
@@ -99,19 +111,22 @@ public class OrderInfoServiceImpl extends ServiceImpl<OrderInfoMapper, OrderInfo
 	public OrderInfo getById2(Serializable id) {
 		OrderInfo orderInfo = baseMapper.selectById2(id);
 		if(orderInfo != null){
-			String keyRedis = null;
+			String taskType = null;
 			//获取自动取消倒计时
 			if(CommonConstants.NO.equals(orderInfo.getIsPay())){
-				keyRedis = String.valueOf(StrUtil.format("{}:{}", MallConstants.REDIS_ORDER_KEY_IS_PAY_0,orderInfo.getId()));
+				taskType = MallConstants.DELAY_TASK_ORDER_CANCEL;
 			}
 			//获取自动收货倒计时
 			if(OrderInfoEnum.STATUS_2.getValue().equals(orderInfo.getStatus())){
-				keyRedis = String.valueOf(StrUtil.format("{}:{}",MallConstants.REDIS_ORDER_KEY_STATUS_2,orderInfo.getId()));
+				taskType = MallConstants.DELAY_TASK_ORDER_RECEIVE;
 			}
-			if(keyRedis != null){
-				Long outTime = redisTemplate.getExpire(keyRedis);
-				if(outTime != null && outTime > 0){
-					orderInfo.setOutTime(outTime);
+			if(taskType != null){
+				Long dueTime = delayTaskService.getDueTime(taskType, orderInfo.getId());
+				if(dueTime != null){
+					long outTime = (dueTime - System.currentTimeMillis()) / 1000;//剩余秒数
+					if(outTime > 0){
+						orderInfo.setOutTime(outTime);
+					}
 				}
 			}
 		}
@@ -126,14 +141,12 @@ public class OrderInfoServiceImpl extends ServiceImpl<OrderInfoMapper, OrderInfo
 			//回滚库存
 			List<OrderItem> listOrderItem = orderItemService.list(Wrappers.<OrderItem>lambdaQuery()
 					.eq(OrderItem::getOrderId,orderInfo.getId()));
-			listOrderItem.forEach(orderItem -> {
-				GoodsSpu goodsSpu = goodsSpuService.getById(orderItem.getSpuId());
-				if (goodsSpu != null) {
-					goodsSpu.setStock(goodsSpu.getStock() + orderItem.getQuantity());
-					goodsSpuService.updateById(goodsSpu);//更新回滚库存
-				}
-			});
+			Map<String, Integer> quantities = new TreeMap<>();
+			listOrderItem.forEach(orderItem -> quantities.merge(orderItem.getSpuId(), orderItem.getQuantity(), Integer::sum));
+			quantities.forEach(goodsSpuMapper::restoreStock);//原子回补库存
 			baseMapper.updateById(orderInfo);
+			//提交前登记，事务提交后回补 Redis 库存计数
+			stockReservationService.restoreOnCommit(quantities);
 		}
 	}
 
@@ -151,8 +164,12 @@ public class OrderInfoServiceImpl extends ServiceImpl<OrderInfoMapper, OrderInfo
 		return super.removeById(id);
 	}
 
+	/**
+	 * 下单
+	 * 库存在 Redis 中由 Lua 脚本对整个购物车原子预扣，订单、明细、库存扣减交由批量落库队列合并写入，
+	 * 此处等待落库结果；落库失败时预扣库存由队列回补
+	 */
 	@Override
-	@Transactional(rollbackFor = Exception.class)
 	public OrderInfo orderSub(PlaceOrderDTO placeOrderDTO) {
 		OrderInfo orderInfo = new OrderInfo();
 		BeanUtil.copyProperties(placeOrderDTO,orderInfo);
@@ -162,19 +179,52 @@ public class OrderInfoServiceImpl extends ServiceImpl<OrderInfoMapper, OrderInfo
 		orderInfo.setPaymentPrice(BigDecimal.ZERO);
 		orderInfo.setFreightPrice(BigDecimal.ZERO);
 		orderInfo.setCreateTime(LocalDateTime.now());
+		//过滤下架商品（压测专用商品仅压测用户可购买），一次查询购物车内全部商品
+		List<String> spuIds = placeOrderDTO.getSkus().stream()
+				.map(PlaceOrderGoodsDTO::getSpuId)
+				.distinct()
+				.collect(Collectors.toList());
+		if(spuIds.isEmpty()){
+			return null;
+		}
+		Map<String, GoodsSpu> mapGoodsSpu = goodsSpuService.listByIds(spuIds).stream()
+				.filter(goodsSpu -> CommonConstants.YES.equals(goodsSpu.getShelf())
+						|| (MallConstants.GOODS_SHELF_LOAD_TEST.equals(goodsSpu.getShelf())
+						&& StrUtil.startWith(placeOrderDTO.getUserId(), MallConstants.LOAD_TEST_USER_PREFIX)))
+				.collect(Collectors.toMap(GoodsSpu::getId, goodsSpu -> goodsSpu));
+		Map<String, Integer> quantities = new LinkedHashMap<>();
+		placeOrderDTO.getSkus().forEach(orderGoods -> {
+			if(mapGoodsSpu.containsKey(orderGoods.getSpuId())){
+				quantities.merge(orderGoods.getSpuId(), orderGoods.getQuantity(), Integer::sum);
+			}
+		});
+		if(quantities.isEmpty()){
+			return null;
+		}
+		UserAddress userAddress = userAddressService.getById(placeOrderDTO.getUserAddressId());
+		if(userAddress == null){
+			return null;
+		}
+		//预扣库存，库存不足的商品跳过
+		List<Boolean> reserved = stockReservationService.reserve(orderInfo.getOrderNo(), quantities);
+		Map<String, Integer> reservedQuantities = new LinkedHashMap<>();
+		int index = 0;
+		for(Map.Entry<String, Integer> entry : quantities.entrySet()){
+			if(reserved.get(index++)){
+				reservedQuantities.put(entry.getKey(), entry.getValue());
+			}
+		}
+		if(reservedQuantities.isEmpty()){
+			return null;
+		}
 		List<OrderItem> listOrderItem = new ArrayList<>();
-		List<GoodsSpu> listGoodsSpu = new ArrayList<>();
-		placeOrderDTO.getSkus().forEach(orderGoods -> {//过滤
-			GoodsSpu goodsSpu = goodsSpuService.getOne(Wrappers.<GoodsSpu>lambdaQuery()
-					.eq(GoodsSpu::getId,orderGoods.getSpuId())
-					.eq(GoodsSpu::getShelf, CommonConstants.YES)
-					.ge(GoodsSpu::getStock,orderGoods.getQuantity()));
-			if(goodsSpu != null){
+		placeOrderDTO.getSkus().forEach(orderGoods -> {
+			if(reservedQuantities.containsKey(orderGoods.getSpuId())){
+				GoodsSpu goodsSpu = mapGoodsSpu.get(orderGoods.getSpuId());
 				OrderItem orderItem = new OrderItem();
-				orderItem.setOrderId(orderInfo.getId());
 				orderItem.setSpuId(goodsSpu.getId());
 				orderItem.setSpuName(goodsSpu.getName());
-				orderItem.setPicUrl(goodsSpu.getPicUrls()[0]);
+				orderItem.setPicUrl(goodsSpu.getPicUrls() != null && goodsSpu.getPicUrls().length > 0 ? goodsSpu.getPicUrls()[0] : null);
 				orderItem.setQuantity(orderGoods.getQuantity());
 				orderItem.setSalesPrice(goodsSpu.getSalesPrice());
 				orderItem.setFreightPrice(orderGoods.getFreightPrice());
@@ -184,41 +234,32 @@ public class OrderInfoServiceImpl extends ServiceImpl<OrderInfoMapper, OrderInfo
 				orderInfo.setSalesPrice(orderInfo.getSalesPrice().add(goodsSpu.getSalesPrice().multiply(quantity)));
 				orderInfo.setFreightPrice(orderInfo.getFreightPrice().add(orderItem.getFreightPrice()));
 				orderInfo.setPaymentPrice(orderInfo.getPaymentPrice().add(orderItem.getPaymentPrice()));
-				goodsSpu.setStock(goodsSpu.getStock() - orderItem.getQuantity());
-				listGoodsSpu.add(goodsSpu);
-				//删除购物车
-				shoppingCartService.remove(Wrappers.<ShoppingCart>lambdaQuery()
-						.eq(ShoppingCart::getSpuId,goodsSpu.getId())
-						.eq(ShoppingCart::getUserId,placeOrderDTO.getUserId()));
 			}
 		});
-		if(listOrderItem.size() > 0){
-			UserAddress userAddress = userAddressService.getById(placeOrderDTO.getUserAddressId());
-			OrderLogistics orderLogistics = new OrderLogistics();
-			orderLogistics.setPostalCode(userAddress.getPostalCode());
-			orderLogistics.setUserName(userAddress.getUserName());
-			orderLogistics.setTelNum(userAddress.getTelNum());
-			orderLogistics.setAddress(userAddress.getProvinceName()+userAddress.getCityName()+userAddress.getCountyName()+userAddress.getDetailInfo());
-			//新增订单物流
-			orderLogisticsService.save(orderLogistics);
-			orderInfo.setLogisticsId(orderLogistics.getId());
-			orderInfo.setName(listOrderItem.get(0).getSpuName());
-			super.save(orderInfo);//保存订单
-			listOrderItem.forEach(orderItem -> orderItem.setOrderId(orderInfo.getId()));
-			//保存订单详情
-			orderItemService.saveBatch(listOrderItem);
-			listGoodsSpu.forEach(goodsSpuItem -> {
-				goodsSpuService.updateById(goodsSpuItem);//更新库存
-			});
-			//订单自动取消时间
-			long orderTimeOut = MallConstants.ORDER_TIME_OUT_0;
-			//加入redis，30分钟自动取消
-			String keyRedis = String.valueOf(StrUtil.format("{}:{}",MallConstants.REDIS_ORDER_KEY_IS_PAY_0, orderInfo.getId()));
-			redisTemplate.opsForValue().set(keyRedis, orderInfo.getOrderNo() , orderTimeOut, TimeUnit.MINUTES);//设置过期时间
-		}else{
-			return null;
+		OrderLogistics orderLogistics = new OrderLogistics();
+		orderLogistics.setPostalCode(userAddress.getPostalCode());
+		orderLogistics.setUserName(userAddress.getUserName());
+		orderLogistics.setTelNum(userAddress.getTelNum());
+		orderLogistics.setAddress(userAddress.getProvinceName()+userAddress.getCityName()+userAddress.getCountyName()+userAddress.getDetailInfo());
+		orderInfo.setName(listOrderItem.get(0).getSpuName());
+		//批量落库（订单、明细、库存扣减、删除购物车），成功后调度30分钟自动取消
+		CompletableFuture<OrderInfo> future = orderBatchWriter.submit(new OrderBatchWriter.OrderPersistTask(
+				orderInfo, orderLogistics, listOrderItem, reservedQuantities, placeOrderDTO.getUserId()));
+		try {
+			return future.get(ORDER_PERSIST_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			//落库仍可能完成：完成则按未支付超时自动取消，未完成的预扣由库存对账回补
+			log.warn("下单等待落库超时: orderNo={}", orderInfo.getOrderNo());
+			throw new ServiceException("下单处理超时，请稍后在订单列表中查看");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceException("下单被中断");
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof ServiceException){
+				throw (ServiceException) e.getCause();
+			}
+			throw new ServiceException("下单失败，请稍后再试");
 		}
-		return orderInfo;
 	}
 
 	@Override
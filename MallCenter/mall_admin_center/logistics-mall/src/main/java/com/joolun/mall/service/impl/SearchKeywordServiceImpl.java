@@ -11,8 +11,10 @@ import com.joolun.mall.entity.SearchKeywordStats;
 import com.joolun.mall.mapper.MerchantMapper;
 import com.joolun.mall.mapper.SearchKeywordRecordMapper;
 import com.joolun.mall.mapper.SearchKeywordStatsMapper;
+import com.joolun.mall.service.GoodsSearchService;
 import com.joolun.mall.service.MerchantNotificationService;
 import com.joolun.mall.service.SearchKeywordService;
+import com.joolun.mall.service.SearchSuggestService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -37,6 +39,8 @@ public class SearchKeywordServiceImpl extends ServiceImpl<SearchKeywordRecordMap
     private final SearchKeywordStatsMapper statsMapper;
     private final MerchantMapper merchantMapper;
     private final MerchantNotificationService notificationService;
+    private final GoodsSearchService goodsSearchService;
+    private final SearchSuggestService searchSuggestService;
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -47,6 +51,7 @@ public class SearchKeywordServiceImpl extends ServiceImpl<SearchKeywordRecordMap
 
         // 标准化关键词
         String normalizedKeyword = normalizeKeyword(keyword);
+        resultCount = resolveResultCount(keyword, resultCount);
 
         // 1. 保存搜索记录
         SearchKeywordRecord record = new SearchKeywordRecord();
@@ -63,6 +68,7 @@ public class SearchKeywordServiceImpl extends ServiceImpl<SearchKeywordRecordMap
 
         // 2. 更新统计数据
         updateStats(normalizedKeyword, keyword, resultCount == 0, merchantId);
+        searchSuggestService.recordSearch(normalizedKeyword, resultCount == 0);
     }
 
     @Override
@@ -212,6 +218,7 @@ public class SearchKeywordServiceImpl extends ServiceImpl<SearchKeywordRecordMap
         }
 
         String normalizedKeyword = normalizeKeyword(keyword);
+        resultCount = resolveResultCount(keyword, resultCount);
 
         // 保存搜索记录
         SearchKeywordRecord record = new SearchKeywordRecord();
@@ -228,6 +235,7 @@ public class SearchKeywordServiceImpl extends ServiceImpl<SearchKeywordRecordMap
 
         // 更新统计数据
         updateStats(normalizedKeyword, keyword, resultCount == 0, merchantId);
+        searchSuggestService.recordSearch(normalizedKeyword, resultCount == 0);
 
         return record;
     }
@@ -286,6 +294,21 @@ public class SearchKeywordServiceImpl extends ServiceImpl<SearchKeywordRecordMap
         return keyword.trim().toLowerCase().replaceAll("\\s+", " ");
     }
 
+    /**
+     * 搜索结果数以商品索引为准（已上架商品），索引未就绪或查询失败时使用调用方上报的数量
+     */
+    private int resolveResultCount(String keyword, int reportedCount) {
+        if (!goodsSearchService.isReady()) {
+            return reportedCount;
+        }
+        try {
+            return (int) goodsSearchService.count(keyword);
+        } catch (Exception e) {
+            log.warn("索引统计搜索结果数失败: keyword={}, error={}", keyword, e.getMessage());
+            return reportedCount;
+        }
+    }
+
     /**
      * 更新统计数据
      */
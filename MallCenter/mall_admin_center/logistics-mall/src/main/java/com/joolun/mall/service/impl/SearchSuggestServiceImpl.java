@@ -0,0 +1,271 @@
+package com.joolun.mall.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.joolun.mall.config.CommonConstants;
+import com.joolun.mall.entity.GoodsCategory;
+import com.joolun.mall.entity.GoodsSpu;
+import com.joolun.mall.entity.SearchKeywordStats;
+import com.joolun.mall.mapper.GoodsSpuMapper;
+import com.joolun.mall.mapper.SearchKeywordStatsMapper;
+import com.joolun.mall.service.GoodsCategoryService;
+import com.joolun.mall.service.SearchSuggestService;
+import com.joolun.mall.util.GoodsTextAnalyzer;
+import com.joolun.mall.util.PrefixSuggestIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 搜索联想服务实现
+ *
+ * 已在词典中的关键词直接累加权重；新出现的关键词先放入待合并区（查询时线性匹配），
+ * 待合并区满或定时重建时并入词典。多节点部署时其他节点的计数在下次重建时从数据库同步。
+ */
+@Slf4j
+@Service
+public class SearchSuggestServiceImpl implements SearchSuggestService {
+
+    private static final int LOAD_BATCH = 5000;
+    private static final int MAX_LIMIT = 20;
+    /**
+     * 待合并区词条上限，超过时提前重建
+     */
+    private static final int MAX_PENDING = 2000;
+    /**
+     * 商品名称基础权重，另按销量加权
+     */
+    private static final int GOODS_WEIGHT = 5;
+    private static final int GOODS_SALES_PER_WEIGHT = 10;
+    /**
+     * 分类名称权重
+     */
+    private static final int CATEGORY_WEIGHT = 20;
+
+    private final SearchKeywordStatsMapper statsMapper;
+    private final GoodsSpuMapper goodsSpuMapper;
+    private final GoodsCategoryService goodsCategoryService;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * 词典全量重建间隔（毫秒）
+     */
+    @Value("${mall.suggest.refreshInterval:600000}")
+    private long refreshInterval;
+
+    private volatile PrefixSuggestIndex index;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private final LongAdder suggests = new LongAdder();
+    private final LongAdder suggestNanos = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile long lastRebuildMillis;
+
+    public SearchSuggestServiceImpl(SearchKeywordStatsMapper statsMapper,
+                                    GoodsSpuMapper goodsSpuMapper,
+                                    GoodsCategoryService goodsCategoryService,
+                                    @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.statsMapper = statsMapper;
+        this.goodsSpuMapper = goodsSpuMapper;
+        this.goodsCategoryService = goodsCategoryService;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
+
+    /**
+     * 待合并的新关键词
+     */
+    private static final class Pending {
+        private final String term;
+        private final String[] pinyin;
+        private final AtomicInteger weight = new AtomicInteger();
+
+        private Pending(String term) {
+            this.term = term;
+            this.pinyin = GoodsTextAnalyzer.toPinyinKeys(term);
+        }
+
+        private boolean matches(String prefix) {
+            return term.startsWith(prefix)
+                    || (pinyin != null && (pinyin[0].startsWith(prefix) || pinyin[1].startsWith(prefix)));
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduledExecutorService.execute(this::rebuildQuietly);
+        scheduledExecutorService.scheduleWithFixedDelay(this::rebuildQuietly,
+                refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        log.info("搜索联想服务启动, refreshInterval={}ms", refreshInterval);
+    }
+
+    @Override
+    public boolean isReady() {
+        return index != null;
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        PrefixSuggestIndex current = index;
+        if (current == null || prefix == null || prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        String normalized = PrefixSuggestIndex.normalize(prefix);
+        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        List<PrefixSuggestIndex.Suggestion> hits = new ArrayList<>(current.suggest(normalized, limit));
+        if (!pending.isEmpty()) {
+            for (Pending entry : pending.values()) {
+                if (entry.matches(normalized)) {
+                    hits.add(new PrefixSuggestIndex.Suggestion(entry.term, entry.weight.get()));
+                }
+            }
+            hits.sort((a, b) -> Integer.compare(b.getWeight(), a.getWeight()));
+        }
+        List<String> result = new ArrayList<>(limit);
+        for (PrefixSuggestIndex.Suggestion hit : hits) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!result.contains(hit.getTerm())) {
+                result.add(hit.getTerm());
+            }
+        }
+        suggests.increment();
+        suggestNanos.add(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public void recordSearch(String keyword, boolean noResult) {
+        PrefixSuggestIndex current = index;
+        if (noResult || current == null || keyword == null || keyword.trim().isEmpty()) {
+            return;
+        }
+        String normalized = PrefixSuggestIndex.normalize(keyword);
+        if (current.increment(normalized, 1)) {
+            return;
+        }
+        Pending entry = pending.get(normalized);
+        if (entry == null && pending.size() < MAX_PENDING) {
+            entry = pending.computeIfAbsent(normalized, Pending::new);
+        }
+        if (entry != null) {
+            entry.weight.incrementAndGet();
+        } else if (rebuildScheduled.compareAndSet(false, true)) {
+            log.info("搜索联想待合并词条达到 {}，提前重建词典", MAX_PENDING);
+            scheduledExecutorService.execute(this::rebuildQuietly);
+        }
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        PrefixSuggestIndex.Builder builder = new PrefixSuggestIndex.Builder();
+        loadKeywords(builder);
+        loadGoods(builder);
+        for (GoodsCategory category : goodsCategoryService.list()) {
+            if (CommonConstants.YES.equals(category.getEnable())) {
+                builder.add(category.getName(), CATEGORY_WEIGHT);
+            }
+        }
+        PrefixSuggestIndex fresh = builder.build();
+        index = fresh;
+        //已并入词典的待合并词条移除；重建期间累加到旧词典的少量计数以数据库为准
+        pending.keySet().removeIf(fresh::contains);
+        rebuildScheduled.set(false);
+        rebuilds.increment();
+        lastRebuildMillis = System.currentTimeMillis() - start;
+        log.info("搜索联想词典重建完成: terms={}, cost={}ms", fresh.size(), lastRebuildMillis);
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        PrefixSuggestIndex current = index;
+        stats.put("ready", current != null);
+        if (current != null) {
+            stats.putAll(current.getStats());
+        }
+        stats.put("pending", pending.size());
+        long count = suggests.sum();
+        stats.put("suggests", count);
+        stats.put("avgSuggestMicros", count > 0 ? suggestNanos.sum() / count / 1000 : 0);
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    /**
+     * 关键词权重为有结果的搜索次数
+     */
+    private void loadKeywords(PrefixSuggestIndex.Builder builder) {
+        Long lastId = null;
+        while (true) {
+            List<SearchKeywordStats> batch = statsMapper.selectList(Wrappers.<SearchKeywordStats>lambdaQuery()
+                    .select(SearchKeywordStats::getId, SearchKeywordStats::getKeyword,
+                            SearchKeywordStats::getSearchCount, SearchKeywordStats::getNoResultCount)
+                    .gt(lastId != null, SearchKeywordStats::getId, lastId)
+                    .orderByAsc(SearchKeywordStats::getId)
+                    .last("limit " + LOAD_BATCH));
+            for (SearchKeywordStats stats : batch) {
+                int searchCount = stats.getSearchCount() != null ? stats.getSearchCount() : 0;
+                int noResultCount = stats.getNoResultCount() != null ? stats.getNoResultCount() : 0;
+                if (searchCount > noResultCount) {
+                    builder.add(stats.getKeyword(), searchCount - noResultCount);
+                }
+            }
+            if (batch.size() < LOAD_BATCH) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 上架商品名称，权重随销量增加
+     */
+    private void loadGoods(PrefixSuggestIndex.Builder builder) {
+        String lastId = null;
+        while (true) {
+            List<GoodsSpu> batch = goodsSpuMapper.selectList(Wrappers.<GoodsSpu>lambdaQuery()
+                    .select(GoodsSpu::getId, GoodsSpu::getName, GoodsSpu::getSaleNum, GoodsSpu::getDelFlag)
+                    .eq(GoodsSpu::getShelf, CommonConstants.YES)
+                    .gt(lastId != null, GoodsSpu::getId, lastId)
+                    .orderByAsc(GoodsSpu::getId)
+                    .last("limit " + LOAD_BATCH));
+            for (GoodsSpu spu : batch) {
+                if (!CommonConstants.YES.equals(spu.getDelFlag())) {
+                    int saleNum = spu.getSaleNum() != null ? spu.getSaleNum() : 0;
+                    builder.add(spu.getName(), GOODS_WEIGHT + saleNum / GOODS_SALES_PER_WEIGHT);
+                }
+            }
+            if (batch.size() < LOAD_BATCH) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 调度任务入口，异常只记录日志，避免中断后续调度
+     */
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            rebuildScheduled.set(false);
+            log.error("搜索联想词典重建失败", e);
+        }
+    }
+}
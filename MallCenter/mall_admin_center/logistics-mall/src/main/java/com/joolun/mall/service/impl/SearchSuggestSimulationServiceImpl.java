@@ -0,0 +1,98 @@
+package com.joolun.mall.service.impl;
+
+import com.joolun.mall.service.SearchSuggestSimulationService;
+import com.joolun.mall.util.GoodsTextAnalyzer;
+import com.joolun.mall.util.PrefixSuggestIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 搜索联想压测服务实现
+ */
+@Slf4j
+@Service
+public class SearchSuggestSimulationServiceImpl implements SearchSuggestSimulationService {
+
+    private static final int MAX_TERMS = 1000000;
+    private static final int MAX_QUERIES = 200000;
+    private static final int SUGGEST_LIMIT = 10;
+
+    private static final String[] ADJECTIVES = {"新鲜", "冷冻", "精选", "进口", "散养", "有机", "速冻", "手工",
+            "秘制", "特级", "农家", "鲜切", "黑猪", "草饲", "深海", "即食"};
+    private static final String[] PRODUCTS = {"牛肉", "羊肉", "猪肉", "鸡胸肉", "鸭脖", "鱼丸", "虾仁", "牛肉丸", "五花肉", "排骨",
+            "鸡蛋", "大米", "面条", "豆腐", "香菇", "海带", "火腿肠", "午餐肉", "酸奶", "牛奶",
+            "鸡翅", "牛排", "羊排", "带鱼", "鲈鱼", "粉丝", "馒头", "饺子", "汤圆", "腊肠"};
+    private static final String[] SPECS = {"500g", "1kg", "家庭装", "整箱", "礼盒", "小包装"};
+
+    @Override
+    public Map<String, Object> runSuggestBenchmark(int terms, int queries, int increments) {
+        terms = Math.max(1, Math.min(terms, MAX_TERMS));
+        queries = Math.max(1, Math.min(queries, MAX_QUERIES));
+        increments = Math.max(0, Math.min(increments, MAX_QUERIES));
+
+        //构建：词条 = 修饰词 + 品名 + 规格 + 序号，权重近似长尾分布
+        Random random = new Random(42);
+        String[] dictionary = new String[terms];
+        long buildStart = System.nanoTime();
+        PrefixSuggestIndex.Builder builder = new PrefixSuggestIndex.Builder();
+        int combos = ADJECTIVES.length * PRODUCTS.length * SPECS.length;
+        for (int i = 0; i < terms; i++) {
+            String term = ADJECTIVES[i % ADJECTIVES.length]
+                    + PRODUCTS[(i / ADJECTIVES.length) % PRODUCTS.length]
+                    + SPECS[(i / (ADJECTIVES.length * PRODUCTS.length)) % SPECS.length]
+                    + (i / combos);
+            dictionary[i] = PrefixSuggestIndex.normalize(term);
+            builder.add(term, (long) (1000 / Math.pow(1 + random.nextInt(10000), 0.7)));
+        }
+        PrefixSuggestIndex index = builder.build();
+        long buildNanos = System.nanoTime() - buildStart;
+
+        //联想：轮流使用 1-3 个汉字、2-7 个全拼字母、2-3 个首字母作为前缀
+        long[] latencies = new long[queries];
+        long hits = 0;
+        for (int q = 0; q < queries; q++) {
+            String term = dictionary[random.nextInt(terms)];
+            String[] pinyin = GoodsTextAnalyzer.toPinyinKeys(term);
+            String prefix;
+            if (q % 3 == 0 || pinyin == null) {
+                prefix = term.substring(0, Math.min(term.length(), 1 + random.nextInt(3)));
+            } else if (q % 3 == 1) {
+                prefix = pinyin[0].substring(0, Math.min(pinyin[0].length(), 2 + random.nextInt(6)));
+            } else {
+                prefix = pinyin[1].substring(0, Math.min(pinyin[1].length(), 2 + random.nextInt(2)));
+            }
+            long t0 = System.nanoTime();
+            hits += index.suggest(prefix, SUGGEST_LIMIT).size();
+            latencies[q] = System.nanoTime() - t0;
+        }
+        Arrays.sort(latencies);
+
+        //权重累加
+        long incrementStart = System.nanoTime();
+        for (int i = 0; i < increments; i++) {
+            index.increment(dictionary[random.nextInt(terms)], 1);
+        }
+        long incrementNanos = System.nanoTime() - incrementStart;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("terms", terms);
+        result.put("queries", queries);
+        result.put("buildMillis", buildNanos / 1_000_000);
+        result.put("index", index.getStats());
+        result.put("avgSuggestions", (double) hits / queries);
+        result.put("p50Nanos", latencies[(int) (queries * 0.50)]);
+        result.put("p95Nanos", latencies[Math.min(queries - 1, (int) (queries * 0.95))]);
+        result.put("p99Nanos", latencies[Math.min(queries - 1, (int) (queries * 0.99))]);
+        result.put("maxNanos", latencies[queries - 1]);
+        result.put("increments", increments);
+        result.put("avgIncrementNanos", increments > 0 ? incrementNanos / increments : 0);
+        log.info("搜索联想压测完成: terms={}, p50={}ns, p99={}ns", terms,
+                result.get("p50Nanos"), result.get("p99Nanos"));
+        return result;
+    }
+}
@@ -0,0 +1,398 @@
+package com.joolun.mall.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.joolun.mall.constant.MallConstants;
+import com.joolun.mall.entity.GoodsSpu;
+import com.joolun.mall.entity.OrderInfo;
+import com.joolun.mall.mapper.GoodsSpuMapper;
+import com.joolun.mall.mapper.OrderInfoMapper;
+import com.joolun.mall.service.StockReservationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * 库存预扣服务实现
+ *
+ * Redis 数据结构（见 {@link MallConstants}）：
+ * - mall:stock:spu:{spuId}            商品可售库存计数
+ * - mall:stock:spus                   已加载计数的商品ID集合（对账范围）
+ * - mall:stock:reservation:{orderNo}  订单预扣明细 hash：spuId -> 数量
+ * - mall:stock:pending                未落库预扣 zset：orderNo -> 预扣时间
+ * - mall:stock:restore:{id}           待加回记录 hash：spuId -> 数量（MySQL 事务提交后加回）
+ * - mall:stock:restoring              待加回记录 zset：id -> 登记时间
+ *
+ * 预扣、回补、对账修正均在 Lua 脚本中完成，单条脚本内的判断与扣减对其他客户端原子可见。
+ * 脚本在内部拼接库存 key，仅适用于单机/主从 Redis，不适用于 Redis Cluster。
+ */
+@Slf4j
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+
+    /**
+     * 预扣脚本
+     * KEYS[1] 预扣记录；KEYS[2] 未落库集合；KEYS[3..] 库存计数
+     * ARGV[1] 订单号；ARGV[2] 当前时间；ARGV[1+2i]/ARGV[2+2i] 第 i 个商品ID/数量
+     * 任一库存计数未加载时返回 {-i} 且不做任何扣减；否则逐个商品判断扣减，返回 1/0 列表
+     */
+    private static final String RESERVE_SCRIPT =
+            "local n = #KEYS - 2\n" +
+            "for i = 1, n do\n" +
+            "    if redis.call('exists', KEYS[i + 2]) == 0 then\n" +
+            "        return {-i}\n" +
+            "    end\n" +
+            "end\n" +
+            "local result = {}\n" +
+            "local reserved = 0\n" +
+            "for i = 1, n do\n" +
+            "    local qty = tonumber(ARGV[2 + 2 * i])\n" +
+            "    if tonumber(redis.call('get', KEYS[i + 2])) >= qty then\n" +
+            "        redis.call('decrby', KEYS[i + 2], qty)\n" +
+            "        redis.call('hincrby', KEYS[1], ARGV[1 + 2 * i], qty)\n" +
+            "        result[i] = 1\n" +
+            "        reserved = reserved + 1\n" +
+            "    else\n" +
+            "        result[i] = 0\n" +
+            "    end\n" +
+            "end\n" +
+            "if reserved > 0 then\n" +
+            "    redis.call('zadd', KEYS[2], ARGV[2], ARGV[1])\n" +
+            "end\n" +
+            "return result";
+
+    /**
+     * 回补脚本：按预扣记录加回库存（计数已被清除的商品跳过，重新加载时以 MySQL 为准），删除预扣记录
+     * KEYS[1] 预扣记录；KEYS[2] 未落库集合；ARGV[1] 订单号；ARGV[2] 库存 key 前缀
+     */
+    private static final String RELEASE_SCRIPT =
+            "local entries = redis.call('hgetall', KEYS[1])\n" +
+            "for i = 1, #entries, 2 do\n" +
+            "    local key = ARGV[2] .. entries[i]\n" +
+            "    if redis.call('exists', key) == 1 then\n" +
+            "        redis.call('incrby', key, entries[i + 1])\n" +
+            "    end\n" +
+            "end\n" +
+            "redis.call('del', KEYS[1])\n" +
+            "redis.call('zrem', KEYS[2], ARGV[1])\n" +
+            "return #entries / 2";
+
+    /**
+     * 确认脚本：删除预扣记录及未落库标记
+     */
+    private static final String CONFIRM_SCRIPT =
+            "redis.call('del', KEYS[1])\n" +
+            "return redis.call('zrem', KEYS[2], ARGV[1])";
+
+    /**
+     * 登记待加回脚本
+     * KEYS[1] 待加回记录；KEYS[2] 待加回集合；ARGV[1] 记录ID；ARGV[2] 当前时间；ARGV[1+2i]/ARGV[2+2i] 第 i 个商品ID/数量
+     * 加回与丢弃分别复用回补脚本与确认脚本
+     */
+    private static final String PREPARE_RESTORE_SCRIPT =
+            "for i = 3, #ARGV, 2 do\n" +
+            "    redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+            "end\n" +
+            "redis.call('zadd', KEYS[2], ARGV[2], ARGV[1])\n" +
+            "return 1";
+
+    /**
+     * 对账 CAS：计数仍为读取时的值才修正
+     */
+    private static final String COMPARE_AND_SET_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then\n" +
+            "    redis.call('set', KEYS[1], ARGV[2])\n" +
+            "    return 1\n" +
+            "end\n" +
+            "return 0";
+
+    /** 对账时每批读取的商品数 */
+    private static final int RECONCILE_CHUNK = 500;
+
+    private final DefaultRedisScript<List> reserveScript = new DefaultRedisScript<>(RESERVE_SCRIPT, List.class);
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> confirmScript = new DefaultRedisScript<>(CONFIRM_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> prepareRestoreScript = new DefaultRedisScript<>(PREPARE_RESTORE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> compareAndSetScript = new DefaultRedisScript<>(COMPARE_AND_SET_SCRIPT, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final GoodsSpuMapper goodsSpuMapper;
+    private final OrderInfoMapper orderInfoMapper;
+
+    /**
+     * 预扣后超过该时间仍未落库的订单视为超时，由对账确认或回补
+     */
+    @Value("${mall.stock.reservationTimeout:120000}")
+    private long reservationTimeout;
+
+    public StockReservationServiceImpl(RedisTemplate<String, String> redisTemplate,
+                                       GoodsSpuMapper goodsSpuMapper,
+                                       OrderInfoMapper orderInfoMapper) {
+        this.redisTemplate = redisTemplate;
+        this.goodsSpuMapper = goodsSpuMapper;
+        this.orderInfoMapper = orderInfoMapper;
+    }
+
+    @Override
+    public List<Boolean> reserve(String orderNo, Map<String, Integer> quantities) {
+        List<String> keys = new ArrayList<>(quantities.size() + 2);
+        keys.add(MallConstants.REDIS_STOCK_RESERVATION_KEY + orderNo);
+        keys.add(MallConstants.REDIS_STOCK_PENDING_KEY);
+        Object[] args = new Object[2 + quantities.size() * 2];
+        args[0] = orderNo;
+        args[1] = String.valueOf(System.currentTimeMillis());
+        int i = 2;
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            keys.add(MallConstants.REDIS_STOCK_KEY + entry.getKey());
+            args[i++] = entry.getKey();
+            args[i++] = String.valueOf(entry.getValue());
+        }
+
+        // 计数未加载时从 MySQL 加载后重试一次
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<?> result = redisTemplate.execute(reserveScript, keys, args);
+            if (result == null || result.isEmpty()) {
+                break;
+            }
+            if (((Number) result.get(0)).longValue() < 0) {
+                warmUp(quantities.keySet());
+                continue;
+            }
+            List<Boolean> reserved = new ArrayList<>(result.size());
+            for (Object flag : result) {
+                reserved.add(((Number) flag).longValue() == 1L);
+            }
+            return reserved;
+        }
+        log.warn("库存预扣失败，库存计数无法加载: orderNo={}, spuIds={}", orderNo, quantities.keySet());
+        return new ArrayList<>(Collections.nCopies(quantities.size(), Boolean.FALSE));
+    }
+
+    @Override
+    public void confirm(String orderNo) {
+        redisTemplate.execute(confirmScript,
+                Arrays.asList(MallConstants.REDIS_STOCK_RESERVATION_KEY + orderNo, MallConstants.REDIS_STOCK_PENDING_KEY),
+                orderNo);
+    }
+
+    @Override
+    public boolean release(String orderNo) {
+        Long released = redisTemplate.execute(releaseScript,
+                Arrays.asList(MallConstants.REDIS_STOCK_RESERVATION_KEY + orderNo, MallConstants.REDIS_STOCK_PENDING_KEY),
+                orderNo, MallConstants.REDIS_STOCK_KEY);
+        if (released != null && released > 0) {
+            log.info("回补订单预扣库存: orderNo={}, spuCount={}", orderNo, released);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void restoreOnCommit(Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        String restoreId = IdUtil.fastSimpleUUID();
+        List<String> keys = Arrays.asList(MallConstants.REDIS_STOCK_RESTORE_KEY + restoreId,
+                MallConstants.REDIS_STOCK_RESTORING_KEY);
+        Object[] args = new Object[2 + quantities.size() * 2];
+        args[0] = restoreId;
+        args[1] = String.valueOf(System.currentTimeMillis());
+        int i = 2;
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            args[i++] = entry.getKey();
+            args[i++] = String.valueOf(entry.getValue());
+        }
+        redisTemplate.execute(prepareRestoreScript, keys, args);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completeRestore(restoreId, keys, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            completeRestore(restoreId, keys, true);
+        }
+    }
+
+    /**
+     * 已提交则按记录加回计数，否则只删除记录
+     */
+    private void completeRestore(String restoreId, List<String> keys, boolean committed) {
+        try {
+            if (committed) {
+                redisTemplate.execute(releaseScript, keys, restoreId, MallConstants.REDIS_STOCK_KEY);
+            } else {
+                redisTemplate.execute(confirmScript, keys, restoreId);
+            }
+        } catch (Exception e) {
+            //记录保留到超时后由对账丢弃，计数随后按 MySQL 修正
+            log.error("库存计数加回失败: restoreId={}, committed={}", restoreId, committed, e);
+        }
+    }
+
+    @Override
+    public void warmUp(Collection<String> spuIds) {
+        if (spuIds.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> stocks = new HashMap<>();
+        for (GoodsSpu goodsSpu : goodsSpuMapper.selectBatchIds(spuIds)) {
+            stocks.put(goodsSpu.getId(), goodsSpu.getStock() != null ? goodsSpu.getStock() : 0);
+        }
+        for (String spuId : spuIds) {
+            //已删除的商品按0库存加载，避免反复回源
+            int stock = Math.max(0, stocks.getOrDefault(spuId, 0));
+            redisTemplate.opsForValue().setIfAbsent(MallConstants.REDIS_STOCK_KEY + spuId, String.valueOf(stock));
+        }
+        redisTemplate.opsForSet().add(MallConstants.REDIS_STOCK_SPU_SET, spuIds.toArray(new String[0]));
+    }
+
+    @Override
+    public void resetStock(String spuId, int stock) {
+        redisTemplate.opsForValue().set(MallConstants.REDIS_STOCK_KEY + spuId, String.valueOf(stock));
+        redisTemplate.opsForSet().add(MallConstants.REDIS_STOCK_SPU_SET, spuId);
+    }
+
+    @Override
+    public Integer getStock(String spuId) {
+        String value = redisTemplate.opsForValue().get(MallConstants.REDIS_STOCK_KEY + spuId);
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    @Override
+    public void evict(Collection<String> spuIds) {
+        if (spuIds.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(spuIds.size());
+        spuIds.forEach(spuId -> keys.add(MallConstants.REDIS_STOCK_KEY + spuId));
+        redisTemplate.delete(keys);
+        redisTemplate.opsForSet().remove(MallConstants.REDIS_STOCK_SPU_SET, spuIds.toArray());
+    }
+
+    @Override
+    public Map<String, Object> reconcile() {
+        long started = System.currentTimeMillis();
+        int confirmed = 0;
+        int released = 0;
+        int corrected = 0;
+
+        //1、超时未落库的预扣
+        Set<String> expired = redisTemplate.opsForZSet().rangeByScore(MallConstants.REDIS_STOCK_PENDING_KEY,
+                0, started - reservationTimeout);
+        if (expired != null) {
+            for (String orderNo : expired) {
+                Long exists = orderInfoMapper.selectCount(Wrappers.<OrderInfo>lambdaQuery()
+                        .eq(OrderInfo::getOrderNo, orderNo));
+                if (exists != null && exists > 0) {
+                    //已落库但确认前进程退出
+                    confirm(orderNo);
+                    confirmed++;
+                } else if (release(orderNo)) {
+                    released++;
+                }
+            }
+        }
+
+        //2、超时的待加回记录：事务结束前进程退出，MySQL 是否提交未知，丢弃后由下一步按 MySQL 修正
+        int abandoned = 0;
+        Set<String> staleRestores = redisTemplate.opsForZSet().rangeByScore(MallConstants.REDIS_STOCK_RESTORING_KEY,
+                0, started - reservationTimeout);
+        if (staleRestores != null) {
+            for (String restoreId : staleRestores) {
+                redisTemplate.execute(confirmScript, Arrays.asList(MallConstants.REDIS_STOCK_RESTORE_KEY + restoreId,
+                        MallConstants.REDIS_STOCK_RESTORING_KEY), restoreId);
+                abandoned++;
+            }
+        }
+
+        //3、计数漂移：依次读取 Redis 计数、MySQL 库存、进行中预扣与待加回记录，确保修正不会覆盖并发预扣或加回
+        Set<String> spuIds = redisTemplate.opsForSet().members(MallConstants.REDIS_STOCK_SPU_SET);
+        if (spuIds != null && !spuIds.isEmpty()) {
+            List<String> all = new ArrayList<>(spuIds);
+            for (int from = 0; from < all.size(); from += RECONCILE_CHUNK) {
+                List<String> chunk = all.subList(from, Math.min(all.size(), from + RECONCILE_CHUNK));
+                corrected += reconcileChunk(chunk);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("expiredReservations", expired != null ? expired.size() : 0);
+        result.put("confirmed", confirmed);
+        result.put("released", released);
+        result.put("abandonedRestores", abandoned);
+        result.put("checkedSpus", spuIds != null ? spuIds.size() : 0);
+        result.put("corrected", corrected);
+        result.put("costMillis", System.currentTimeMillis() - started);
+        if (released > 0 || abandoned > 0 || corrected > 0) {
+            log.warn("库存对账完成: {}", result);
+        } else {
+            log.debug("库存对账完成: {}", result);
+        }
+        return result;
+    }
+
+    private int reconcileChunk(List<String> spuIds) {
+        List<String> keys = new ArrayList<>(spuIds.size());
+        spuIds.forEach(spuId -> keys.add(MallConstants.REDIS_STOCK_KEY + spuId));
+        List<String> cached = redisTemplate.opsForValue().multiGet(keys);
+        if (cached == null) {
+            return 0;
+        }
+
+        Map<String, Integer> stocks = new HashMap<>();
+        for (GoodsSpu goodsSpu : goodsSpuMapper.selectBatchIds(spuIds)) {
+            stocks.put(goodsSpu.getId(), goodsSpu.getStock() != null ? goodsSpu.getStock() : 0);
+        }
+        //待加回记录在 MySQL 提交前登记，读取 MySQL 之后再读记录：此时没有记录说明读到的 MySQL 库存已加回或尚未变更
+        Set<String> reserving = pendingSpuIds();
+
+        int corrected = 0;
+        for (int i = 0; i < spuIds.size(); i++) {
+            String spuId = spuIds.get(i);
+            String value = cached.get(i);
+            //数据库中不存在的商品（已删除或压测造数）不修正
+            if (value == null || reserving.contains(spuId) || !stocks.containsKey(spuId)) {
+                continue;
+            }
+            String expected = String.valueOf(Math.max(0, stocks.get(spuId)));
+            if (!expected.equals(value)) {
+                Long updated = redisTemplate.execute(compareAndSetScript,
+                        Collections.singletonList(keys.get(i)), value, expected);
+                if (updated != null && updated == 1L) {
+                    log.warn("库存计数与数据库不一致，已修正: spuId={}, redis={}, db={}", spuId, value, expected);
+                    corrected++;
+                }
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * 所有未落库预扣与待加回记录涉及的商品
+     */
+    private Set<String> pendingSpuIds() {
+        Set<String> spuIds = new HashSet<>();
+        collectSpuIds(spuIds, MallConstants.REDIS_STOCK_PENDING_KEY, MallConstants.REDIS_STOCK_RESERVATION_KEY);
+        collectSpuIds(spuIds, MallConstants.REDIS_STOCK_RESTORING_KEY, MallConstants.REDIS_STOCK_RESTORE_KEY);
+        return spuIds;
+    }
+
+    private void collectSpuIds(Set<String> spuIds, String indexKey, String recordPrefix) {
+        Set<String> records = redisTemplate.opsForZSet().range(indexKey, 0, -1);
+        if (records != null) {
+            for (String record : records) {
+                Set<Object> fields = redisTemplate.opsForHash().keys(recordPrefix + record);
+                fields.forEach(field -> spuIds.add(String.valueOf(field)));
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joolun.mall.config.UserClusterConfig;
 import com.joolun.mall.entity.UserCluster;
 import com.joolun.mall.entity.UserClusterAssignment;
 import com.joolun.mall.entity.UserInterestTag;
@@ -14,27 +15,32 @@ import com.joolun.mall.mapper.UserInterestTagMapper;
 import com.joolun.mall.mapper.UserRecommendationProfileMapper;
 import com.joolun.mall.service.FeatureEngineeringService;
 import com.joolun.mall.service.UserClusterService;
-import lombok.RequiredArgsConstructor;
+import com.joolun.mall.util.FeatureMatrix;
+import com.joolun.mall.util.KMeansEngine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 用户聚类服务实现
  *
- * K-Means算法实现:
+ * K-Means算法实现 (见 {@link KMeansEngine}):
  * - K = 6 (默认，可配置)
- * - MAX_ITERATIONS = 100
- * - CONVERGENCE_THRESHOLD = 0.001
- * - 使用K-Means++进行质心初始化
+ * - 用户特征存放在行优先的 {@link FeatureMatrix} 中，按行号分片并行计算
+ * - k-means|| 并行初始化，用户数较多时先做小批量 k-means 预热
+ * - 精确 Lloyd 迭代使用 Hamerly 三角不等式剪枝，最大迭代次数与收敛阈值见 {@link UserClusterConfig}
  * - 使用欧氏距离
+ * - 两次全量聚类之间，新画像按固定间隔增量分配到当前版本最近的质心
  *
  * 用户特征向量 (48维) - 优化点8扩展:
  * [0-9]:   品类偏好 (Top 10品类归一化权重)
@@ -52,7 +58,6 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class UserClusterServiceImpl implements UserClusterService {
 
     private final UserClusterMapper userClusterMapper;
@@ -62,12 +67,48 @@ public class UserClusterServiceImpl implements UserClusterService {
     private final FeatureEngineeringService featureEngineeringService;
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final UserClusterConfig clusterConfig;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    public UserClusterServiceImpl(UserClusterMapper userClusterMapper,
+                                  UserClusterAssignmentMapper userClusterAssignmentMapper,
+                                  UserRecommendationProfileMapper userRecommendationProfileMapper,
+                                  UserInterestTagMapper userInterestTagMapper,
+                                  FeatureEngineeringService featureEngineeringService,
+                                  StringRedisTemplate redisTemplate,
+                                  ObjectMapper objectMapper,
+                                  UserClusterConfig clusterConfig,
+                                  @Qualifier("scheduledExecutorService") ScheduledExecutorService scheduledExecutorService) {
+        this.userClusterMapper = userClusterMapper;
+        this.userClusterAssignmentMapper = userClusterAssignmentMapper;
+        this.userRecommendationProfileMapper = userRecommendationProfileMapper;
+        this.userInterestTagMapper = userInterestTagMapper;
+        this.featureEngineeringService = featureEngineeringService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.clusterConfig = clusterConfig;
+        this.scheduledExecutorService = scheduledExecutorService;
+    }
 
     // K-Means 参数
-    private static final int MAX_ITERATIONS = 100;
-    private static final double CONVERGENCE_THRESHOLD = 0.001;
     private static final double BOUNDARY_USER_RATIO_THRESHOLD = 1.2;  // 距离比 < 1.2 为边界用户
 
+    /**
+     * 当前激活版本的聚类与解析后的质心，首次使用时加载，全量聚类后失效
+     */
+    private volatile ClusterModel clusterModel;
+
+    /**
+     * 最近一次全量聚类的引擎统计
+     */
+    private volatile Map<String, Object> lastRunStats;
+
+    /**
+     * 增量分配游标：版本及该版本下已处理到的画像ID
+     */
+    private int incrementalVersion = -1;
+    private long incrementalCursor;
+
     // Redis 缓存
     private static final String CLUSTER_CACHE_PREFIX = "user:cluster:";
     private static final long CLUSTER_CACHE_TTL_HOURS = 24;
@@ -91,12 +132,22 @@ public class UserClusterServiceImpl implements UserClusterService {
 
     // ==================== 聚类运行 ====================
 
+    @PostConstruct
+    public void init() {
+        if (clusterConfig.getIncrementalInterval() > 0) {
+            scheduledExecutorService.scheduleWithFixedDelay(this::assignPendingUsersQuietly,
+                    clusterConfig.getIncrementalInterval(), clusterConfig.getIncrementalInterval(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
     @Override
     @Transactional
     public void runKMeansClustering(int k) {
         log.info("开始K-Means聚类, k={}", k);
         long startTime = System.currentTimeMillis();
 
+        KMeansEngine engine = new KMeansEngine(clusterConfig.getParallelism());
         try {
             // 1. 获取所有有画像的用户
             List<UserRecommendationProfile> profiles = getAllUserProfiles();
@@ -107,60 +158,57 @@ public class UserClusterServiceImpl implements UserClusterService {
 
             log.info("加载用户画像: {} 个用户", profiles.size());
 
-            // 2. 构建用户特征向量
-            Map<String, double[]> userFeatures = new HashMap<>();
+            // 2. 构建用户特征矩阵
+            FeatureMatrix matrix = new FeatureMatrix(FEATURE_DIM, profiles.size());
             for (UserRecommendationProfile profile : profiles) {
-                double[] features = buildUserFeatureVector(profile);
-                userFeatures.put(profile.getWxUserId(), features);
-            }
-
-            log.info("构建特征向量完成: {} 个用户", userFeatures.size());
-
-            // 3. K-Means++ 初始化质心
-            List<double[]> centroids = initializeCentroidsKMeansPlusPlus(
-                    new ArrayList<>(userFeatures.values()), k);
-
-            log.info("K-Means++初始化完成: {} 个质心", centroids.size());
-
-            // 4. 迭代优化
-            Map<String, Integer> assignments = new HashMap<>();
-            for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
-                // 分配阶段: 每个用户分配到最近的质心
-                Map<String, Integer> newAssignments = assignToClusters(userFeatures, centroids);
-
-                // 更新阶段: 重新计算质心
-                List<double[]> newCentroids = updateCentroids(userFeatures, newAssignments, k);
-
-                // 检查收敛
-                double maxShift = calculateMaxCentroidShift(centroids, newCentroids);
-                log.debug("迭代 {}: 最大质心偏移 = {}", iter, maxShift);
-
-                centroids = newCentroids;
-                assignments = newAssignments;
-
-                if (maxShift < CONVERGENCE_THRESHOLD) {
-                    log.info("K-Means在第{}次迭代后收敛", iter + 1);
-                    break;
-                }
+                matrix.add(profile.getWxUserId(), buildUserFeatureVector(profile));
             }
 
-            // 5. 保存聚类结果
+            long featureMillis = System.currentTimeMillis() - startTime;
+            log.info("构建特征矩阵完成: {} 个用户, 耗时={}ms", matrix.rows(), featureMillis);
+
+            // 3. k-means|| 初始化 + 小批量预热 + 剪枝 Lloyd 迭代
+            KMeansEngine.Options options = new KMeansEngine.Options();
+            options.setK(k);
+            options.setMaxIterations(clusterConfig.getMaxIterations());
+            options.setTolerance(clusterConfig.getConvergenceThreshold());
+            options.setInitRounds(clusterConfig.getInitRounds());
+            options.setOversampling(clusterConfig.getOversampling());
+            options.setMiniBatchThreshold(clusterConfig.getMiniBatchThreshold());
+            options.setMiniBatchSize(clusterConfig.getMiniBatchSize());
+            options.setMiniBatchIterations(clusterConfig.getMiniBatchIterations());
+            KMeansEngine.Result result = engine.cluster(matrix, options);
+
+            log.info("K-Means迭代完成: 迭代{}次, 收敛={}, 距离计算{}次, 初始化{}ms, 小批量{}ms, 精确迭代{}ms",
+                    result.getIterations(), result.isConverged(), result.getDistanceComputations(),
+                    result.getInitMillis(), result.getMiniBatchMillis(), result.getLloydMillis());
+
+            // 4. 保存聚类结果
             int newVersion = userClusterMapper.selectMaxVersion() + 1;
-            saveClusters(centroids, assignments, userFeatures, newVersion);
+            saveClusters(result, matrix, newVersion);
 
-            // 6. 停用旧版本
+            // 5. 停用旧版本
             userClusterMapper.deactivateOldVersions(newVersion);
 
-            // 7. 清除缓存
+            // 6. 清除缓存
             clearClusterCache();
+            clusterModel = null;
 
             long elapsed = System.currentTimeMillis() - startTime;
+            Map<String, Object> runStats = result.getStats();
+            runStats.put("version", newVersion);
+            runStats.put("parallelism", engine.getParallelism());
+            runStats.put("featureMillis", featureMillis);
+            runStats.put("totalMillis", elapsed);
+            lastRunStats = runStats;
             log.info("K-Means聚类完成: k={}, 用户数={}, 耗时={}ms, 版本={}",
-                    k, userFeatures.size(), elapsed, newVersion);
+                    result.getK(), matrix.rows(), elapsed, newVersion);
 
         } catch (Exception e) {
             log.error("K-Means聚类失败", e);
             throw new RuntimeException("聚类失败: " + e.getMessage(), e);
+        } finally {
+            engine.shutdown();
         }
     }
 
@@ -257,75 +305,147 @@ public class UserClusterServiceImpl implements UserClusterService {
         // 构建特征向量
         double[] features = buildUserFeatureVector(profile);
 
-        // 获取所有聚类中心
-        List<UserCluster> clusters = getAllClusters();
-        if (clusters.isEmpty()) {
+        // 当前版本的聚类中心
+        ClusterModel model = currentModel();
+        if (model == null) {
             log.warn("没有激活的聚类，分配到新用户群");
             return assignToNewUserCluster(wxUserId);
         }
 
-        // 找到最近的聚类
-        UserCluster nearestCluster = null;
-        UserCluster secondNearestCluster = null;
-        double minDistance = Double.MAX_VALUE;
-        double secondMinDistance = Double.MAX_VALUE;
-
-        for (UserCluster cluster : clusters) {
-            double[] centroid = parseCentroidVector(cluster.getCentroidVector());
-            double distance = euclideanDistance(features, centroid);
-
-            if (distance < minDistance) {
-                secondMinDistance = minDistance;
-                secondNearestCluster = nearestCluster;
-                minDistance = distance;
-                nearestCluster = cluster;
-            } else if (distance < secondMinDistance) {
-                secondMinDistance = distance;
-                secondNearestCluster = cluster;
+        // 找到最近与次近的聚类
+        UserClusterAssignment assignment = buildAssignment(wxUserId, features, model);
+
+        userClusterAssignmentMapper.insert(assignment);
+
+        // 更新聚类成员数
+        userClusterMapper.incrementMemberCount(assignment.getClusterId(), 1);
+
+        // 清除缓存
+        String cacheKey = CLUSTER_CACHE_PREFIX + "assignment:" + wxUserId;
+        redisTemplate.delete(cacheKey);
+
+        log.info("用户分配到聚类: wxUserId={}, clusterId={}, distance={}, confidence={}",
+                wxUserId, assignment.getClusterId(), assignment.getDistanceToCentroid(), assignment.getConfidence());
+
+        return assignment;
+    }
+
+    @Override
+    public int assignPendingUsers() {
+        ClusterModel model = currentModel();
+        if (model == null) {
+            return 0;
+        }
+        synchronized (this) {
+            if (incrementalVersion != model.version) {
+                incrementalVersion = model.version;
+                incrementalCursor = 0;
             }
+            int assigned = 0;
+            while (true) {
+                List<UserRecommendationProfile> profiles = userRecommendationProfileMapper.selectUnassignedProfiles(
+                        model.version, incrementalCursor, clusterConfig.getIncrementalBatchSize());
+                if (profiles.isEmpty()) {
+                    break;
+                }
+                List<UserClusterAssignment> assignments = new ArrayList<>(profiles.size());
+                Map<Long, Integer> added = new HashMap<>();
+                List<String> cacheKeys = new ArrayList<>(profiles.size());
+                for (UserRecommendationProfile profile : profiles) {
+                    UserClusterAssignment assignment = buildAssignment(profile.getWxUserId(),
+                            buildUserFeatureVector(profile), model);
+                    assignments.add(assignment);
+                    added.merge(assignment.getClusterId(), 1, Integer::sum);
+                    cacheKeys.add(CLUSTER_CACHE_PREFIX + "assignment:" + profile.getWxUserId());
+                }
+                userClusterAssignmentMapper.batchInsertOrUpdate(assignments);
+                added.forEach(userClusterMapper::incrementMemberCount);
+                redisTemplate.delete(cacheKeys);
+                incrementalCursor = profiles.get(profiles.size() - 1).getId();
+                assigned += assignments.size();
+                if (profiles.size() < clusterConfig.getIncrementalBatchSize()) {
+                    break;
+                }
+            }
+            if (assigned > 0) {
+                log.info("增量分配新用户: {} 个, 版本={}", assigned, model.version);
+            }
+            return assigned;
         }
+    }
 
-        if (nearestCluster == null) {
-            return assignToNewUserCluster(wxUserId);
+    /**
+     * 调度任务入口，异常只记录日志，避免中断后续调度
+     */
+    private void assignPendingUsersQuietly() {
+        try {
+            assignPendingUsers();
+        } catch (Exception e) {
+            log.error("增量分配新用户失败", e);
         }
+    }
+
+    /**
+     * 按最近与次近的质心构建分配记录
+     */
+    private UserClusterAssignment buildAssignment(String wxUserId, double[] features, ClusterModel model) {
+        KMeansEngine.Nearest nearest = KMeansEngine.nearest(model.centroids, model.clusters.size(), features);
+        UserCluster nearestCluster = model.clusters.get(nearest.getCluster());
+        double minDistance = nearest.getDistance();
+        double secondMinDistance = nearest.getSecondDistance();
 
-        // 创建分配记录
         UserClusterAssignment assignment = new UserClusterAssignment();
         assignment.setWxUserId(wxUserId);
         assignment.setClusterId(nearestCluster.getId());
         assignment.setFeatureVector(serializeVector(features));
         assignment.setDistanceToCentroid(minDistance);
-        
+
         // 计算置信度 (基于距离差异)
         double confidence = 1.0 - (minDistance / (minDistance + secondMinDistance + 0.001));
         assignment.setConfidence(confidence);
-        
+
         // 次近聚类信息
-        if (secondNearestCluster != null) {
-            assignment.setSecondNearestClusterId(secondNearestCluster.getId());
+        if (nearest.getSecond() >= 0) {
+            assignment.setSecondNearestClusterId(model.clusters.get(nearest.getSecond()).getId());
             assignment.setDistanceToSecondNearest(secondMinDistance);
         }
-        
-        assignment.setVersion(nearestCluster.getVersion());
+
+        assignment.setVersion(model.version);
         assignment.setBoundaryUser(secondMinDistance / minDistance < BOUNDARY_USER_RATIO_THRESHOLD);
         assignment.setAssignmentTime(LocalDateTime.now());
-
-        userClusterAssignmentMapper.insert(assignment);
-
-        // 更新聚类成员数
-        userClusterMapper.updateMemberCount(nearestCluster.getId(), 
-                nearestCluster.getMemberCount() + 1);
-
-        // 清除缓存
-        String cacheKey = CLUSTER_CACHE_PREFIX + "assignment:" + wxUserId;
-        redisTemplate.delete(cacheKey);
-
-        log.info("用户分配到聚类: wxUserId={}, cluster={}, distance={}, confidence={}",
-                wxUserId, nearestCluster.getClusterName(), minDistance, confidence);
-
         return assignment;
     }
 
+    /**
+     * 当前激活版本的聚类模型，没有激活聚类时返回 null
+     */
+    private ClusterModel currentModel() {
+        ClusterModel model = clusterModel;
+        if (model != null) {
+            return model;
+        }
+        List<UserCluster> clusters = getAllClusters();
+        if (clusters.isEmpty()) {
+            return null;
+        }
+        int version = clusters.stream()
+                .map(UserCluster::getVersion)
+                .filter(Objects::nonNull)
+                .max(Integer::compareTo)
+                .orElse(0);
+        List<UserCluster> current = clusters.stream()
+                .filter(c -> c.getVersion() == null || c.getVersion() == version)
+                .collect(Collectors.toList());
+        double[] centroids = new double[current.size() * FEATURE_DIM];
+        for (int i = 0; i < current.size(); i++) {
+            double[] centroid = parseCentroidVector(current.get(i).getCentroidVector());
+            System.arraycopy(centroid, 0, centroids, i * FEATURE_DIM, Math.min(FEATURE_DIM, centroid.length));
+        }
+        model = new ClusterModel(version, current, centroids);
+        clusterModel = model;
+        return model;
+    }
+
     @Override
     public List<String> getSimilarUsers(String wxUserId, int limit) {
         if (wxUserId == null || wxUserId.isEmpty() || limit <= 0) {
@@ -380,6 +500,11 @@ public class UserClusterServiceImpl implements UserClusterService {
             int currentVersion = userClusterMapper.selectMaxVersion();
             stats.put("currentVersion", currentVersion);
 
+            // 最近一次全量聚类的引擎统计
+            if (lastRunStats != null) {
+                stats.put("lastRun", lastRunStats);
+            }
+
         } catch (Exception e) {
             log.error("获取聚类统计失败", e);
             stats.put("error", e.getMessage());
@@ -388,152 +513,6 @@ public class UserClusterServiceImpl implements UserClusterService {
         return stats;
     }
 
-    // ==================== K-Means 核心算法 ====================
-
-    /**
-     * K-Means++ 质心初始化
-     * 选择距离已选质心较远的点作为新质心，以获得更好的初始分布
-     */
-    private List<double[]> initializeCentroidsKMeansPlusPlus(List<double[]> features, int k) {
-        if (features.isEmpty() || k <= 0) {
-            return Collections.emptyList();
-        }
-
-        Random random = new Random(42);  // 固定种子确保可重复性
-        List<double[]> centroids = new ArrayList<>();
-
-        // 1. 随机选择第一个质心
-        centroids.add(features.get(random.nextInt(features.size())).clone());
-
-        // 2. 选择剩余质心
-        for (int i = 1; i < k && i < features.size(); i++) {
-            // 计算每个点到最近质心的距离平方
-            double[] distances = new double[features.size()];
-            double totalDistance = 0;
-
-            for (int j = 0; j < features.size(); j++) {
-                double minDist = Double.MAX_VALUE;
-                for (double[] centroid : centroids) {
-                    double dist = euclideanDistance(features.get(j), centroid);
-                    minDist = Math.min(minDist, dist);
-                }
-                distances[j] = minDist * minDist;  // 距离平方
-                totalDistance += distances[j];
-            }
-
-            // 按概率选择下一个质心 (距离越远概率越大)
-            double threshold = random.nextDouble() * totalDistance;
-            double cumulative = 0;
-            for (int j = 0; j < features.size(); j++) {
-                cumulative += distances[j];
-                if (cumulative >= threshold) {
-                    centroids.add(features.get(j).clone());
-                    break;
-                }
-            }
-
-            // 确保添加了质心
-            if (centroids.size() <= i) {
-                centroids.add(features.get(random.nextInt(features.size())).clone());
-            }
-        }
-
-        return centroids;
-    }
-
-    /**
-     * 分配阶段: 将每个用户分配到最近的质心
-     */
-    private Map<String, Integer> assignToClusters(Map<String, double[]> userFeatures,
-                                                   List<double[]> centroids) {
-        Map<String, Integer> assignments = new HashMap<>();
-
-        for (Map.Entry<String, double[]> entry : userFeatures.entrySet()) {
-            String userId = entry.getKey();
-            double[] features = entry.getValue();
-
-            int nearestCluster = 0;
-            double minDistance = Double.MAX_VALUE;
-
-            for (int i = 0; i < centroids.size(); i++) {
-                double distance = euclideanDistance(features, centroids.get(i));
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearestCluster = i;
-                }
-            }
-
-            assignments.put(userId, nearestCluster);
-        }
-
-        return assignments;
-    }
-
-    /**
-     * 更新阶段: 重新计算质心
-     */
-    private List<double[]> updateCentroids(Map<String, double[]> userFeatures,
-                                            Map<String, Integer> assignments,
-                                            int k) {
-        List<double[]> newCentroids = new ArrayList<>();
-        
-        for (int i = 0; i < k; i++) {
-            List<double[]> clusterMembers = new ArrayList<>();
-            
-            for (Map.Entry<String, Integer> entry : assignments.entrySet()) {
-                if (entry.getValue() == i) {
-                    clusterMembers.add(userFeatures.get(entry.getKey()));
-                }
-            }
-
-            if (clusterMembers.isEmpty()) {
-                // 空聚类保持原质心或随机选择
-                newCentroids.add(new double[FEATURE_DIM]);
-            } else {
-                // 计算成员均值
-                double[] centroid = new double[FEATURE_DIM];
-                for (double[] member : clusterMembers) {
-                    for (int j = 0; j < FEATURE_DIM; j++) {
-                        centroid[j] += member[j];
-                    }
-                }
-                for (int j = 0; j < FEATURE_DIM; j++) {
-                    centroid[j] /= clusterMembers.size();
-                }
-                newCentroids.add(centroid);
-            }
-        }
-
-        return newCentroids;
-    }
-
-    /**
-     * 计算质心最大偏移量 (用于收敛检测)
-     */
-    private double calculateMaxCentroidShift(List<double[]> oldCentroids, List<double[]> newCentroids) {
-        double maxShift = 0;
-        for (int i = 0; i < oldCentroids.size() && i < newCentroids.size(); i++) {
-            double shift = euclideanDistance(oldCentroids.get(i), newCentroids.get(i));
-            maxShift = Math.max(maxShift, shift);
-        }
-        return maxShift;
-    }
-
-    /**
-     * 欧氏距离
-     */
-    private double euclideanDistance(double[] a, double[] b) {
-        if (a == null || b == null || a.length != b.length) {
-            return Double.MAX_VALUE;
-        }
-        double sum = 0;
-        for (int i = 0; i < a.length; i++) {
-            double diff = a[i] - b[i];
-            sum += diff * diff;
-        }
-        return Math.sqrt(sum);
-    }
-
     // ==================== 特征构建 ====================
 
     /**
@@ -801,24 +780,21 @@ public class UserClusterServiceImpl implements UserClusterService {
     // ==================== 数据持久化 ====================
 
     /**
-     * 保存聚类结果
+     * 保存聚类结果，用户分配按批写入
      */
-    private void saveClusters(List<double[]> centroids, 
-                               Map<String, Integer> assignments,
-                               Map<String, double[]> userFeatures,
-                               int version) {
+    private void saveClusters(KMeansEngine.Result result, FeatureMatrix matrix, int version) {
         LocalDateTime now = LocalDateTime.now();
+        int k = result.getK();
 
-        // 计算每个聚类的统计信息
-        Map<Integer, List<String>> clusterMembers = new HashMap<>();
-        for (Map.Entry<String, Integer> entry : assignments.entrySet()) {
-            clusterMembers.computeIfAbsent(entry.getValue(), k -> new ArrayList<>())
-                    .add(entry.getKey());
+        // 计算每个聚类的平均距离
+        double[] distanceSums = new double[k];
+        for (int row = 0; row < matrix.rows(); row++) {
+            distanceSums[result.getAssignment()[row]] += result.getDistance()[row];
         }
 
         // 保存聚类
         List<UserCluster> clusters = new ArrayList<>();
-        for (int i = 0; i < centroids.size(); i++) {
+        for (int i = 0; i < k; i++) {
             UserCluster cluster = new UserCluster();
             
             // 使用默认配置
@@ -827,14 +803,11 @@ public class UserClusterServiceImpl implements UserClusterService {
             
             cluster.setClusterName(config.name);
             cluster.setDescription(config.description);
-            cluster.setCentroidVector(serializeVector(centroids.get(i)));
-            
-            List<String> members = clusterMembers.getOrDefault(i, Collections.emptyList());
-            cluster.setMemberCount(members.size());
+            cluster.setCentroidVector(serializeVector(result.centroid(i)));
             
-            // 计算平均距离
-            double avgDistance = calculateAvgDistance(members, userFeatures, centroids.get(i));
-            cluster.setAvgDistance(avgDistance);
+            int memberCount = result.getClusterSizes()[i];
+            cluster.setMemberCount(memberCount);
+            cluster.setAvgDistance(memberCount > 0 ? distanceSums[i] / memberCount : 0);
             
             // 推荐品类
             try {
@@ -852,64 +825,39 @@ public class UserClusterServiceImpl implements UserClusterService {
         }
 
         // 保存用户分配
-        for (Map.Entry<String, Integer> entry : assignments.entrySet()) {
-            String wxUserId = entry.getKey();
-            int clusterIndex = entry.getValue();
-            
-            if (clusterIndex >= 0 && clusterIndex < clusters.size()) {
-                UserCluster cluster = clusters.get(clusterIndex);
-                double[] features = userFeatures.get(wxUserId);
-                double distance = euclideanDistance(features, centroids.get(clusterIndex));
-
-                // 计算次近聚类
-                double secondMinDistance = Double.MAX_VALUE;
-                Long secondNearestClusterId = null;
-                for (int i = 0; i < centroids.size(); i++) {
-                    if (i != clusterIndex) {
-                        double d = euclideanDistance(features, centroids.get(i));
-                        if (d < secondMinDistance) {
-                            secondMinDistance = d;
-                            secondNearestClusterId = clusters.get(i).getId();
-                        }
-                    }
-                }
-
-                UserClusterAssignment assignment = new UserClusterAssignment();
-                assignment.setWxUserId(wxUserId);
-                assignment.setClusterId(cluster.getId());
-                assignment.setFeatureVector(serializeVector(features));
-                assignment.setDistanceToCentroid(distance);
-                assignment.setConfidence(1.0 - distance / (distance + secondMinDistance + 0.001));
-                assignment.setSecondNearestClusterId(secondNearestClusterId);
+        int batchSize = Math.max(1, clusterConfig.getSaveBatchSize());
+        List<UserClusterAssignment> batch = new ArrayList<>(batchSize);
+        for (int row = 0; row < matrix.rows(); row++) {
+            int clusterIndex = result.getAssignment()[row];
+            int secondIndex = result.getSecond()[row];
+            double distance = result.getDistance()[row];
+            double secondMinDistance = result.getSecondDistance()[row];
+
+            UserClusterAssignment assignment = new UserClusterAssignment();
+            assignment.setWxUserId(matrix.id(row));
+            assignment.setClusterId(clusters.get(clusterIndex).getId());
+            assignment.setFeatureVector(serializeVector(matrix.row(row)));
+            assignment.setDistanceToCentroid(distance);
+            assignment.setConfidence(1.0 - distance / (distance + secondMinDistance + 0.001));
+            if (secondIndex >= 0) {
+                assignment.setSecondNearestClusterId(clusters.get(secondIndex).getId());
                 assignment.setDistanceToSecondNearest(secondMinDistance);
-                assignment.setVersion(version);
-                assignment.setBoundaryUser(secondMinDistance / distance < BOUNDARY_USER_RATIO_THRESHOLD);
-                assignment.setAssignmentTime(now);
-
-                userClusterAssignmentMapper.insert(assignment);
             }
-        }
-
-        log.info("保存聚类结果: {} 个聚类, {} 个用户分配", clusters.size(), assignments.size());
-    }
-
-    /**
-     * 计算聚类内平均距离
-     */
-    private double calculateAvgDistance(List<String> members, 
-                                         Map<String, double[]> userFeatures,
-                                         double[] centroid) {
-        if (members.isEmpty()) {
-            return 0;
-        }
-        double totalDistance = 0;
-        for (String userId : members) {
-            double[] features = userFeatures.get(userId);
-            if (features != null) {
-                totalDistance += euclideanDistance(features, centroid);
+            assignment.setVersion(version);
+            assignment.setBoundaryUser(secondMinDistance / distance < BOUNDARY_USER_RATIO_THRESHOLD);
+            assignment.setAssignmentTime(now);
+
+            batch.add(assignment);
+            if (batch.size() >= batchSize) {
+                userClusterAssignmentMapper.batchInsertOrUpdate(batch);
+                batch = new ArrayList<>(batchSize);
             }
         }
-        return totalDistance / members.size();
+        if (!batch.isEmpty()) {
+            userClusterAssignmentMapper.batchInsertOrUpdate(batch);
+        }
+
+        log.info("保存聚类结果: {} 个聚类, {} 个用户分配", clusters.size(), matrix.rows());
     }
 
     // ==================== 辅助方法 ====================
@@ -993,6 +941,21 @@ public class UserClusterServiceImpl implements UserClusterService {
         }
     }
 
+    /**
+     * 当前版本聚类模型：聚类按质心行号排列，质心行优先存放
+     */
+    private static class ClusterModel {
+        final int version;
+        final List<UserCluster> clusters;
+        final double[] centroids;
+
+        ClusterModel(int version, List<UserCluster> clusters, double[] centroids) {
+            this.version = version;
+            this.clusters = clusters;
+            this.centroids = centroids;
+        }
+    }
+
     /**
      * 聚类配置内部类
      */
@@ -0,0 +1,285 @@
+package com.joolun.mall.service.impl;
+
+import com.joolun.mall.config.UserClusterConfig;
+import com.joolun.mall.service.UserClusterService;
+import com.joolun.mall.service.UserClusterSimulationService;
+import com.joolun.mall.util.FeatureMatrix;
+import com.joolun.mall.util.KMeansEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 用户聚类压测服务实现
+ *
+ * 模拟用户围绕 k 个隐含簇中心（各维 [0, 1) 均匀分布）按高斯噪声生成。
+ * 旧版算法按原实现复现：Map 存特征、K-Means++ 串行初始化、每次迭代全量计算距离、按簇逐个扫描分配结果求均值。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserClusterSimulationServiceImpl implements UserClusterSimulationService {
+
+    private static final int MAX_USERS = 1000000;
+    private static final int MAX_K = 64;
+    /**
+     * 旧版单线程基线耗时随用户数线性增长，单独限制
+     */
+    private static final int MAX_BASELINE_USERS = 100000;
+    private static final int DIM = UserClusterService.FEATURE_DIM;
+    /**
+     * 簇内噪声标准差
+     */
+    private static final double NOISE = 0.15;
+    /**
+     * 增量分配压测的新用户数
+     */
+    private static final int INCREMENTAL_USERS = 100000;
+
+    private final UserClusterConfig clusterConfig;
+
+    @Override
+    public Map<String, Object> runClusterBenchmark(int users, int k, int parallelism, int baselineUsers) {
+        users = Math.max(1000, Math.min(users, MAX_USERS));
+        k = Math.max(2, Math.min(k, MAX_K));
+        baselineUsers = Math.max(0, Math.min(baselineUsers, Math.min(users, MAX_BASELINE_USERS)));
+        parallelism = Math.min(parallelism, Runtime.getRuntime().availableProcessors());
+
+        Random random = new Random(42);
+        double[][] truth = new double[k][DIM];
+        for (double[] center : truth) {
+            for (int j = 0; j < DIM; j++) {
+                center[j] = random.nextDouble();
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        FeatureMatrix matrix = new FeatureMatrix(DIM, users);
+        for (int i = 0; i < users; i++) {
+            matrix.add("u" + i, sample(truth[random.nextInt(k)], random));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("k", k);
+        result.put("dim", DIM);
+        result.put("generateMillis", System.currentTimeMillis() - start);
+
+        KMeansEngine engine = new KMeansEngine(parallelism);
+        try {
+            result.put("parallelism", engine.getParallelism());
+
+            KMeansEngine.Options options = options(k);
+            result.put("engine", report(engine.cluster(matrix, options), users));
+
+            options.setMiniBatchThreshold(Integer.MAX_VALUE);
+            result.put("engineWithoutMiniBatch", report(engine.cluster(matrix, options), users));
+
+            if (baselineUsers > 0) {
+                FeatureMatrix subset = new FeatureMatrix(DIM, baselineUsers);
+                for (int i = 0; i < baselineUsers; i++) {
+                    subset.add(matrix.id(i), matrix.row(i));
+                }
+                result.put("baselineUsers", baselineUsers);
+                result.put("baseline", runBaseline(subset, k));
+                result.put("engineOnBaselineUsers", report(engine.cluster(subset, options(k)), baselineUsers));
+            }
+
+            KMeansEngine.Result model = engine.cluster(matrix, options(k));
+            result.put("incremental", runIncremental(model, truth, random));
+        } finally {
+            engine.shutdown();
+        }
+        log.info("用户聚类压测完成: {}", result);
+        return result;
+    }
+
+    private KMeansEngine.Options options(int k) {
+        KMeansEngine.Options options = new KMeansEngine.Options();
+        options.setK(k);
+        options.setMaxIterations(clusterConfig.getMaxIterations());
+        options.setTolerance(clusterConfig.getConvergenceThreshold());
+        options.setInitRounds(clusterConfig.getInitRounds());
+        options.setOversampling(clusterConfig.getOversampling());
+        options.setMiniBatchThreshold(clusterConfig.getMiniBatchThreshold());
+        options.setMiniBatchSize(clusterConfig.getMiniBatchSize());
+        options.setMiniBatchIterations(clusterConfig.getMiniBatchIterations());
+        return options;
+    }
+
+    private Map<String, Object> report(KMeansEngine.Result run, int users) {
+        Map<String, Object> stats = run.getStats();
+        long millis = run.getInitMillis() + run.getMiniBatchMillis() + run.getLloydMillis();
+        stats.put("totalMillis", millis);
+        stats.put("usersPerSecond", millis > 0 ? users * 1000L / millis : users);
+        stats.put("inertiaPerUser", run.getInertia() / users);
+        //未剪枝时精确迭代需要的距离计算次数
+        stats.put("unprunedDistanceComputations", (long) users * run.getK() * (run.getIterations() + 2));
+        return stats;
+    }
+
+    private Map<String, Object> runIncremental(KMeansEngine.Result model, double[][] truth, Random random) {
+        int k = model.getK();
+        double[][] fresh = new double[INCREMENTAL_USERS][];
+        for (int i = 0; i < INCREMENTAL_USERS; i++) {
+            fresh[i] = sample(truth[random.nextInt(truth.length)], random);
+        }
+        int[] counts = new int[k];
+        long start = System.nanoTime();
+        for (double[] features : fresh) {
+            counts[KMeansEngine.nearest(model.getCentroids(), k, features).getCluster()]++;
+        }
+        long nanos = System.nanoTime() - start;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", INCREMENTAL_USERS);
+        stats.put("millis", nanos / 1000000);
+        stats.put("usersPerSecond", nanos > 0 ? INCREMENTAL_USERS * 1000000000L / nanos : INCREMENTAL_USERS);
+        stats.put("clusterSizes", counts);
+        return stats;
+    }
+
+    private static double[] sample(double[] center, Random random) {
+        double[] row = new double[DIM];
+        for (int j = 0; j < DIM; j++) {
+            row[j] = center[j] + random.nextGaussian() * NOISE;
+        }
+        return row;
+    }
+
+    // ==================== 旧版算法 ====================
+
+    private Map<String, Object> runBaseline(FeatureMatrix subset, int k) {
+        Map<String, double[]> userFeatures = new HashMap<>();
+        for (int i = 0; i < subset.rows(); i++) {
+            userFeatures.put(subset.id(i), subset.row(i));
+        }
+
+        long start = System.currentTimeMillis();
+        List<double[]> centroids = initializeCentroidsKMeansPlusPlus(new ArrayList<>(userFeatures.values()), k);
+        long initMillis = System.currentTimeMillis() - start;
+
+        Map<String, Integer> assignments = new HashMap<>();
+        int iterations = 0;
+        for (int iter = 0; iter < clusterConfig.getMaxIterations(); iter++) {
+            iterations++;
+            Map<String, Integer> newAssignments = assignToClusters(userFeatures, centroids);
+            List<double[]> newCentroids = updateCentroids(userFeatures, newAssignments, k);
+            double maxShift = 0;
+            for (int i = 0; i < k; i++) {
+                maxShift = Math.max(maxShift, euclideanDistance(centroids.get(i), newCentroids.get(i)));
+            }
+            centroids = newCentroids;
+            assignments = newAssignments;
+            if (maxShift < clusterConfig.getConvergenceThreshold()) {
+                break;
+            }
+        }
+        long millis = System.currentTimeMillis() - start;
+
+        double inertia = 0;
+        for (Map.Entry<String, Integer> entry : assignments.entrySet()) {
+            double d = euclideanDistance(userFeatures.get(entry.getKey()), centroids.get(entry.getValue()));
+            inertia += d * d;
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("iterations", iterations);
+        stats.put("initMillis", initMillis);
+        stats.put("totalMillis", millis);
+        stats.put("usersPerSecond", millis > 0 ? subset.rows() * 1000L / millis : subset.rows());
+        stats.put("inertiaPerUser", inertia / subset.rows());
+        stats.put("distanceComputations", (long) subset.rows() * k * (k - 1) / 2 + (long) subset.rows() * k * iterations);
+        return stats;
+    }
+
+    private static List<double[]> initializeCentroidsKMeansPlusPlus(List<double[]> features, int k) {
+        Random random = new Random(42);
+        List<double[]> centroids = new ArrayList<>();
+        centroids.add(features.get(random.nextInt(features.size())).clone());
+        for (int i = 1; i < k && i < features.size(); i++) {
+            double[] distances = new double[features.size()];
+            double totalDistance = 0;
+            for (int j = 0; j < features.size(); j++) {
+                double minDist = Double.MAX_VALUE;
+                for (double[] centroid : centroids) {
+                    minDist = Math.min(minDist, euclideanDistance(features.get(j), centroid));
+                }
+                distances[j] = minDist * minDist;
+                totalDistance += distances[j];
+            }
+            double threshold = random.nextDouble() * totalDistance;
+            double cumulative = 0;
+            for (int j = 0; j < features.size(); j++) {
+                cumulative += distances[j];
+                if (cumulative >= threshold) {
+                    centroids.add(features.get(j).clone());
+                    break;
+                }
+            }
+            if (centroids.size() <= i) {
+                centroids.add(features.get(random.nextInt(features.size())).clone());
+            }
+        }
+        return centroids;
+    }
+
+    private static Map<String, Integer> assignToClusters(Map<String, double[]> userFeatures, List<double[]> centroids) {
+        Map<String, Integer> assignments = new HashMap<>();
+        for (Map.Entry<String, double[]> entry : userFeatures.entrySet()) {
+            int nearestCluster = 0;
+            double minDistance = Double.MAX_VALUE;
+            for (int i = 0; i < centroids.size(); i++) {
+                double distance = euclideanDistance(entry.getValue(), centroids.get(i));
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearestCluster = i;
+                }
+            }
+            assignments.put(entry.getKey(), nearestCluster);
+        }
+        return assignments;
+    }
+
+    private static List<double[]> updateCentroids(Map<String, double[]> userFeatures,
+                                                  Map<String, Integer> assignments, int k) {
+        List<double[]> newCentroids = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            List<double[]> clusterMembers = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : assignments.entrySet()) {
+                if (entry.getValue() == i) {
+                    clusterMembers.add(userFeatures.get(entry.getKey()));
+                }
+            }
+            double[] centroid = new double[DIM];
+            for (double[] member : clusterMembers) {
+                for (int j = 0; j < DIM; j++) {
+                    centroid[j] += member[j];
+                }
+            }
+            if (!clusterMembers.isEmpty()) {
+                for (int j = 0; j < DIM; j++) {
+                    centroid[j] /= clusterMembers.size();
+                }
+            }
+            newCentroids.add(centroid);
+        }
+        return newCentroids;
+    }
+
+    private static double euclideanDistance(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,117 @@
+package com.joolun.mall.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 特征矩阵
+ *
+ * 所有行按行优先连续存放在一个 double 数组中（第 i 行为 data[i * dim, (i + 1) * dim)），
+ * 另有 ID -> 行号索引。相比 Map&lt;String, double[]&gt;，遍历时内存连续、没有逐行对象开销，
+ * 便于按行号区间分片并行计算。容量不足时按 1.5 倍扩容；构建完成后只读。
+ */
+public final class FeatureMatrix {
+
+    private final int dim;
+    private double[] data;
+    private String[] ids;
+    private final Map<String, Integer> index;
+    private int rows;
+
+    public FeatureMatrix(int dim, int expectedRows) {
+        int capacity = Math.max(16, expectedRows);
+        this.dim = dim;
+        this.data = new double[capacity * dim];
+        this.ids = new String[capacity];
+        this.index = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * 追加一行，返回行号；ID 已存在时覆盖原行。向量长度不足 dim 的部分补 0，超出部分忽略
+     */
+    public int add(String id, double[] row) {
+        Integer existing = index.get(id);
+        int r = existing != null ? existing : rows;
+        if (existing == null) {
+            if (rows == ids.length) {
+                grow();
+            }
+            ids[rows] = id;
+            index.put(id, rows);
+            rows++;
+        }
+        int length = Math.min(dim, row.length);
+        System.arraycopy(row, 0, data, r * dim, length);
+        Arrays.fill(data, r * dim + length, (r + 1) * dim, 0);
+        return r;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    public String id(int row) {
+        return ids[row];
+    }
+
+    /**
+     * ID 对应的行号，不存在时返回 -1
+     */
+    public int rowOf(String id) {
+        Integer row = index.get(id);
+        return row != null ? row : -1;
+    }
+
+    /**
+     * 第 row 行的副本
+     */
+    public double[] row(int row) {
+        return Arrays.copyOfRange(data, row * dim, (row + 1) * dim);
+    }
+
+    /**
+     * 由指定行（互不重复）组成的新矩阵
+     */
+    FeatureMatrix subset(int[] rowsToCopy) {
+        FeatureMatrix subset = new FeatureMatrix(dim, rowsToCopy.length);
+        for (int r : rowsToCopy) {
+            int target = subset.rows++;
+            subset.ids[target] = ids[r];
+            subset.index.put(ids[r], target);
+            System.arraycopy(data, r * dim, subset.data, target * dim, dim);
+        }
+        return subset;
+    }
+
+    /**
+     * 底层数组，仅供同包的计算代码按偏移读取
+     */
+    double[] data() {
+        return data;
+    }
+
+    /**
+     * 第 row 行与 centers 中第 center 个中心（同为行优先布局）的距离平方
+     */
+    double squaredDistance(int row, double[] centers, int center) {
+        double sum = 0;
+        int a = row * dim;
+        int b = center * dim;
+        for (int j = 0; j < dim; j++) {
+            double diff = data[a + j] - centers[b + j];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        data = Arrays.copyOf(data, capacity * dim);
+    }
+}
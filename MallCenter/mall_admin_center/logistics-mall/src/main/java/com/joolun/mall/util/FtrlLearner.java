@@ -0,0 +1,196 @@
+package com.joolun.mall.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * FTRL-Proximal 在线逻辑回归
+ *
+ * 每维只保存两个累加量 z 与 sqrt(n)（n 为梯度平方和，原始 double 数组），权重由二者闭式求出：
+ * |z| <= l1 时 w = 0，否则 w = -(z - sign(z) * l1) / ((beta + sqrt(n)) / alpha + l2)。
+ * 学习率随每维梯度平方和自适应衰减，不需要全局学习率调度；保存 sqrt(n) 使每维每次更新只开方一次。
+ *
+ * 维度按 STRIPE_WIDTH 分段，每段一把锁，单样本读取与累加各按段加锁一次（200 维共 7 段），
+ * 代价远低于逐维 CAS。多个线程可并发训练（Hogwild 式：一个样本的读取与累加之间不持锁，
+ * 其他线程的更新可能插入，稠密低维特征下只带来轻微噪声）。
+ * 打分不读累加量，而是读 {@link #snapshot()} 生成的不可变权重数组，由调用方在每个小批量结束后发布。
+ */
+public final class FtrlLearner {
+
+    /**
+     * 检查点格式版本：参数 + 每维 z、n（float）
+     */
+    private static final int CHECKPOINT_VERSION = 1;
+
+    /**
+     * 每把锁保护的维数
+     */
+    private static final int STRIPE_WIDTH = 32;
+
+    private final int dim;
+    private final double alpha;
+    private final double beta;
+    private final double l1;
+    private final double l2;
+    private final double gradientClip;
+    private final double[] z;
+    private final double[] sqrtN;
+    private final Object[] stripes;
+
+    public FtrlLearner(int dim, double alpha, double beta, double l1, double l2, double gradientClip) {
+        this.dim = dim;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.gradientClip = gradientClip;
+        this.z = new double[dim];
+        this.sqrtN = new double[dim];
+        this.stripes = new Object[(dim + STRIPE_WIDTH - 1) / STRIPE_WIDTH];
+        for (int s = 0; s < stripes.length; s++) {
+            stripes[s] = new Object();
+        }
+    }
+
+    /**
+     * 以给定权重为起点（n = 0），用于从 SGD 权重迁移或随机初始化
+     */
+    public FtrlLearner seed(double[] weights) {
+        for (int s = 0; s < stripes.length; s++) {
+            synchronized (stripes[s]) {
+                for (int i = s * STRIPE_WIDTH; i < Math.min(dim, (s + 1) * STRIPE_WIDTH) && i < weights.length; i++) {
+                    double w = weights[i];
+                    z[i] = w == 0 ? 0 : -w * (beta / alpha + l2) - Math.signum(w) * l1;
+                    sqrtN[i] = 0;
+                }
+            }
+        }
+        return this;
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    public static double sigmoid(double x) {
+        //防止数值溢出
+        if (x > 35) {
+            return 1.0;
+        }
+        if (x < -35) {
+            return 0.0;
+        }
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    /**
+     * 用已发布的权重快照打分
+     */
+    public static double predict(double[] x, double[] w) {
+        double dot = 0;
+        int len = Math.min(x.length, w.length);
+        for (int i = 0; i < len; i++) {
+            dot += x[i] * w[i];
+        }
+        return sigmoid(dot);
+    }
+
+    /**
+     * 单样本更新，返回更新前的预测值
+     */
+    public double update(double[] x, boolean clicked) {
+        int len = Math.min(x.length, dim);
+        double[] w = new double[len];
+        double dot = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            int end = Math.min(len, (s + 1) * STRIPE_WIDTH);
+            synchronized (stripes[s]) {
+                for (int i = s * STRIPE_WIDTH; i < end; i++) {
+                    if (x[i] != 0) {
+                        w[i] = weightOf(z[i], sqrtN[i]);
+                        dot += x[i] * w[i];
+                    }
+                }
+            }
+        }
+        double p = sigmoid(dot);
+        double g = p - (clicked ? 1.0 : 0.0);
+        for (int s = 0; s < stripes.length; s++) {
+            int end = Math.min(len, (s + 1) * STRIPE_WIDTH);
+            synchronized (stripes[s]) {
+                for (int i = s * STRIPE_WIDTH; i < end; i++) {
+                    if (x[i] != 0) {
+                        double gi = Math.max(-gradientClip, Math.min(gradientClip, g * x[i]));
+                        double s0 = sqrtN[i];
+                        double s1 = Math.sqrt(s0 * s0 + gi * gi);
+                        z[i] += gi - (s1 - s0) / alpha * w[i];
+                        sqrtN[i] = s1;
+                    }
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * 当前权重的不可变副本
+     */
+    public double[] snapshot() {
+        double[] w = new double[dim];
+        for (int s = 0; s < stripes.length; s++) {
+            synchronized (stripes[s]) {
+                for (int i = s * STRIPE_WIDTH; i < Math.min(dim, (s + 1) * STRIPE_WIDTH); i++) {
+                    w[i] = weightOf(z[i], sqrtN[i]);
+                }
+            }
+        }
+        return w;
+    }
+
+    /**
+     * 检查点：版本、维度、alpha/beta/l1/l2，随后每维 z、n 各一个 float
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 32 + dim * 8);
+        buffer.putInt(CHECKPOINT_VERSION).putInt(dim);
+        buffer.putDouble(alpha).putDouble(beta).putDouble(l1).putDouble(l2);
+        for (int s = 0; s < stripes.length; s++) {
+            synchronized (stripes[s]) {
+                for (int i = s * STRIPE_WIDTH; i < Math.min(dim, (s + 1) * STRIPE_WIDTH); i++) {
+                    buffer.putFloat((float) z[i]);
+                    buffer.putFloat((float) (sqrtN[i] * sqrtN[i]));
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 从检查点恢复；维度不一致或格式不识别时返回 null。
+     * 检查点参数与当前参数不同时，按检查点参数求出权重后以当前参数重新起步（n 清零）
+     */
+    public static FtrlLearner fromBytes(byte[] bytes, int dim, double alpha, double beta,
+                                        double l1, double l2, double gradientClip) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < 40 || buffer.getInt() != CHECKPOINT_VERSION || buffer.getInt() != dim
+                || bytes.length != 40 + dim * 8) {
+            return null;
+        }
+        FtrlLearner saved = new FtrlLearner(dim, buffer.getDouble(), buffer.getDouble(),
+                buffer.getDouble(), buffer.getDouble(), gradientClip);
+        for (int i = 0; i < dim; i++) {
+            saved.z[i] = buffer.getFloat();
+            saved.sqrtN[i] = Math.sqrt(buffer.getFloat());
+        }
+        if (saved.alpha == alpha && saved.beta == beta && saved.l1 == l1 && saved.l2 == l2) {
+            return saved;
+        }
+        return new FtrlLearner(dim, alpha, beta, l1, l2, gradientClip).seed(saved.snapshot());
+    }
+
+    private double weightOf(double zi, double sqrtNi) {
+        if (Math.abs(zi) <= l1) {
+            return 0;
+        }
+        return -(zi - Math.signum(zi) * l1) / ((beta + sqrtNi) / alpha + l2);
+    }
+}
@@ -0,0 +1,555 @@
+package com.joolun.mall.util;
+
+import lombok.Data;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品倒排索引
+ *
+ * 字段：名称、卖点、分类名、详情、名称拼音，各字段独立倒排表与长度归一化，按 BM25F 计分（字段权重相加）。
+ * 查询词按 {@link GoodsTextAnalyzer#analyzeQuery} 切分为若干组，组数不超过 2 时全部命中，否则至少命中 75%；
+ * 可附加同义词子句（降权计分，满足自身命中条件即召回）。
+ * 支持上架状态/分类/商户过滤，按相关度或销量、上架时间、价格、排序值排序分页。
+ *
+ * 更新为追加写：修改即标记旧文档删除并追加新文档，删除比例过高时由调用方整体重建。
+ * 读写锁保护：查询并发执行，写入互斥。
+ */
+public class GoodsInvertedIndex {
+
+    public static final int FIELD_NAME = 0;
+    public static final int FIELD_SELL_POINT = 1;
+    public static final int FIELD_CATEGORY = 2;
+    public static final int FIELD_DESCRIPTION = 3;
+    public static final int FIELD_PINYIN = 4;
+    private static final int FIELD_COUNT = 5;
+
+    private static final float[] FIELD_BOOSTS = {3.0f, 1.5f, 2.0f, 0.5f, 1.2f};
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    public static final String SORT_SALE_NUM = "sale_num";
+    public static final String SORT_CREATE_TIME = "create_time";
+    public static final String SORT_SALES_PRICE = "sales_price";
+    public static final String SORT_SORT = "sort";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings[]> terms = new HashMap<>();
+    private final TreeSet<String> pinyinTerms = new TreeSet<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final long[] fieldLengthSums = new long[FIELD_COUNT];
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    private int maxDoc;
+    private int liveDocs;
+    private long postingCount;
+    private String[] ids = new String[0];
+    private boolean[] live = new boolean[0];
+    private String[] shelves = new String[0];
+    private String[] categoryFirsts = new String[0];
+    private String[] categorySeconds = new String[0];
+    private Long[] merchantIds = new Long[0];
+    private int[] saleNums = new int[0];
+    private int[] sorts = new int[0];
+    private double[] prices = new double[0];
+    private long[] createTimes = new long[0];
+    private int[][] fieldLengths = new int[FIELD_COUNT][0];
+
+    /**
+     * 索引文档
+     */
+    @Data
+    public static class Doc {
+        private String id;
+        private String name;
+        private String sellPoint;
+        /**
+         * 分类名（一级 + 二级），空格分隔
+         */
+        private String category;
+        /**
+         * 详情纯文本
+         */
+        private String description;
+        private String shelf;
+        private String categoryFirst;
+        private String categorySecond;
+        private Long merchantId;
+        private int saleNum;
+        private int sort;
+        private double salesPrice;
+        private long createTime;
+    }
+
+    /**
+     * 查询条件
+     */
+    @Data
+    public static class Query {
+        private String keyword;
+        /**
+         * 同义词，每个作为独立子句降权召回
+         */
+        private List<String> synonyms = Collections.emptyList();
+        private float synonymWeight = 0.3f;
+        private String shelf;
+        private String categoryFirst;
+        private String categorySecond;
+        private Long merchantId;
+        /**
+         * 排序列，为空时按相关度
+         */
+        private String sortColumn;
+        private boolean asc;
+        private int offset;
+        private int limit = 10;
+    }
+
+    /**
+     * 查询结果
+     */
+    @Data
+    public static class Result {
+        private final long total;
+        private final List<String> ids;
+        private final List<Float> scores;
+    }
+
+    /**
+     * 新增或替换文档
+     */
+    public void upsert(Doc doc) {
+        int[] lengthHolder = new int[1];
+        List<Map<String, Integer>> fieldTerms = new ArrayList<>(FIELD_COUNT);
+        int[] lengths = new int[FIELD_COUNT];
+        String[] texts = {doc.getName(), doc.getSellPoint(), doc.getCategory(), doc.getDescription()};
+        for (int f = 0; f < FIELD_PINYIN; f++) {
+            fieldTerms.add(GoodsTextAnalyzer.analyze(texts[f], lengthHolder));
+            lengths[f] = lengthHolder[0];
+        }
+        fieldTerms.add(GoodsTextAnalyzer.analyzePinyin(doc.getName(), lengthHolder));
+        lengths[FIELD_PINYIN] = lengthHolder[0];
+
+        lock.writeLock().lock();
+        try {
+            Integer old = ordinals.get(doc.getId());
+            if (old != null) {
+                markDeleted(old);
+            }
+            int ord = maxDoc++;
+            ensureCapacity(maxDoc);
+            ids[ord] = doc.getId();
+            live[ord] = true;
+            shelves[ord] = doc.getShelf();
+            categoryFirsts[ord] = doc.getCategoryFirst();
+            categorySeconds[ord] = doc.getCategorySecond();
+            merchantIds[ord] = doc.getMerchantId();
+            saleNums[ord] = doc.getSaleNum();
+            sorts[ord] = doc.getSort();
+            prices[ord] = doc.getSalesPrice();
+            createTimes[ord] = doc.getCreateTime();
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                fieldLengths[f][ord] = lengths[f];
+                fieldLengthSums[f] += lengths[f];
+                for (Map.Entry<String, Integer> entry : fieldTerms.get(f).entrySet()) {
+                    Postings[] slots = terms.computeIfAbsent(entry.getKey(), k -> new Postings[FIELD_COUNT]);
+                    if (slots[f] == null) {
+                        slots[f] = new Postings();
+                        if (f == FIELD_PINYIN) {
+                            pinyinTerms.add(entry.getKey());
+                        }
+                    }
+                    slots[f].add(ord, entry.getValue());
+                    postingCount++;
+                }
+            }
+            ordinals.put(doc.getId(), ord);
+            liveDocs++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @return 文档是否存在
+     */
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer ord = ordinals.remove(id);
+            if (ord == null) {
+                return false;
+            }
+            markDeleted(ord);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return ordinals.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除文档占比，过高时应重建索引回收空间
+     */
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return maxDoc == 0 ? 0 : (double) (maxDoc - liveDocs) / maxDoc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("docs", liveDocs);
+            stats.put("maxDoc", maxDoc);
+            stats.put("terms", terms.size());
+            stats.put("pinyinTerms", pinyinTerms.size());
+            stats.put("postings", postingCount);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询
+     */
+    public Result search(Query query) {
+        List<GoodsTextAnalyzer.QueryGroup> groups = GoodsTextAnalyzer.analyzeQuery(query.getKeyword());
+        if (groups.isEmpty()) {
+            return new Result(0, Collections.emptyList(), Collections.emptyList());
+        }
+        List<List<GoodsTextAnalyzer.QueryGroup>> synonymGroups = new ArrayList<>();
+        for (String synonym : query.getSynonyms()) {
+            List<GoodsTextAnalyzer.QueryGroup> g = GoodsTextAnalyzer.analyzeQuery(synonym);
+            if (!g.isEmpty()) {
+                synonymGroups.add(g);
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            Scratch s = scratchPool.poll();
+            if (s == null) {
+                s = new Scratch();
+            }
+            s.ensure(maxDoc);
+            try {
+                evaluateClause(groups, 1.0f, query, s);
+                for (List<GoodsTextAnalyzer.QueryGroup> g : synonymGroups) {
+                    evaluateClause(g, query.getSynonymWeight(), query, s);
+                }
+                return collect(query, s);
+            } finally {
+                s.reset();
+                scratchPool.offer(s);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 计算一个子句：逐组累加组内最高分，命中组数达到要求的文档计入总分
+     */
+    private void evaluateClause(List<GoodsTextAnalyzer.QueryGroup> groups, float weight, Query query, Scratch s) {
+        int required = groups.size() <= 2 ? groups.size() : (int) Math.ceil(groups.size() * 0.75);
+        for (GoodsTextAnalyzer.QueryGroup group : groups) {
+            //精确词项：各字段得分相加
+            Postings[] exact = terms.get(group.term);
+            if (exact != null) {
+                for (int f = 0; f < FIELD_COUNT; f++) {
+                    scoreTerm(exact[f], f, query, s);
+                }
+                s.mergeTermIntoGroup();
+            }
+            //拼音前缀：每个扩展词项作为备选，取最高分
+            if (group.pinyinPrefix && group.term.length() >= MIN_PREFIX_LENGTH) {
+                int expanded = 0;
+                for (String term : pinyinTerms.subSet(group.term, false, group.term + Character.MAX_VALUE, false)) {
+                    if (++expanded > MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    scoreTerm(terms.get(term)[FIELD_PINYIN], FIELD_PINYIN, query, s);
+                    s.mergeTermIntoGroup();
+                }
+            }
+            s.mergeGroupIntoClause();
+        }
+        s.mergeClauseIntoTotal(required, weight);
+    }
+
+    private void scoreTerm(Postings postings, int field, Query query, Scratch s) {
+        if (postings == null || liveDocs == 0) {
+            return;
+        }
+        int df = postings.size;
+        float idf = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+        if (idf <= 0) {
+            idf = 0.01f;
+        }
+        float avgLength = Math.max(1f, (float) fieldLengthSums[field] / liveDocs);
+        float boost = FIELD_BOOSTS[field] * idf;
+        int[] lengths = fieldLengths[field];
+        for (int i = 0; i < postings.size; i++) {
+            int doc = postings.docs[i];
+            if (!live[doc] || !accept(doc, query)) {
+                continue;
+            }
+            int tf = postings.freqs[i];
+            float norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+            s.addTermScore(doc, boost * tf * (K1 + 1) / (tf + norm));
+        }
+    }
+
+    private boolean accept(int doc, Query query) {
+        return (query.getShelf() == null || query.getShelf().equals(shelves[doc]))
+                && (query.getCategoryFirst() == null || query.getCategoryFirst().equals(categoryFirsts[doc]))
+                && (query.getCategorySecond() == null || query.getCategorySecond().equals(categorySeconds[doc]))
+                && (query.getMerchantId() == null || query.getMerchantId().equals(merchantIds[doc]));
+    }
+
+    /**
+     * 排序并截取分页：使用容量为 offset+limit 的堆，避免全量排序
+     */
+    private Result collect(Query query, Scratch s) {
+        Comparator<Integer> order = comparator(query, s.total);
+        int offset = Math.max(0, query.getOffset());
+        int limit = Math.max(0, query.getLimit());
+        int keep = offset + limit;
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, Math.min(keep, s.matchedSize) + 1), order.reversed());
+        for (int i = 0; i < s.matchedSize; i++) {
+            if (keep == 0) {
+                break;
+            }
+            int doc = s.matched[i];
+            heap.offer(doc);
+            if (heap.size() > keep) {
+                heap.poll();
+            }
+        }
+        List<Integer> top = new ArrayList<>(heap);
+        top.sort(order);
+        List<String> pageIds = new ArrayList<>(limit);
+        List<Float> pageScores = new ArrayList<>(limit);
+        for (int i = offset; i < top.size(); i++) {
+            int doc = top.get(i);
+            pageIds.add(ids[doc]);
+            pageScores.add(s.total[doc]);
+        }
+        return new Result(s.matchedSize, pageIds, pageScores);
+    }
+
+    private Comparator<Integer> comparator(Query query, float[] total) {
+        Comparator<Integer> relevance = (a, b) -> Float.compare(total[b], total[a]);
+        Comparator<Integer> primary;
+        String column = query.getSortColumn();
+        if (SORT_SALE_NUM.equals(column)) {
+            primary = (a, b) -> Integer.compare(saleNums[a], saleNums[b]);
+        } else if (SORT_CREATE_TIME.equals(column)) {
+            primary = (a, b) -> Long.compare(createTimes[a], createTimes[b]);
+        } else if (SORT_SALES_PRICE.equals(column)) {
+            primary = (a, b) -> Double.compare(prices[a], prices[b]);
+        } else if (SORT_SORT.equals(column)) {
+            primary = (a, b) -> Integer.compare(sorts[a], sorts[b]);
+        } else {
+            return relevance.thenComparing((a, b) -> Integer.compare(saleNums[b], saleNums[a]))
+                    .thenComparing((a, b) -> Integer.compare(b, a));
+        }
+        if (!query.isAsc()) {
+            primary = primary.reversed();
+        }
+        return primary.thenComparing(relevance).thenComparing((a, b) -> Integer.compare(b, a));
+    }
+
+    private void markDeleted(int ord) {
+        if (!live[ord]) {
+            return;
+        }
+        live[ord] = false;
+        liveDocs--;
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            fieldLengthSums[f] -= fieldLengths[f][ord];
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(size, Math.max(16, ids.length + (ids.length >> 1)));
+        ids = Arrays.copyOf(ids, capacity);
+        live = Arrays.copyOf(live, capacity);
+        shelves = Arrays.copyOf(shelves, capacity);
+        categoryFirsts = Arrays.copyOf(categoryFirsts, capacity);
+        categorySeconds = Arrays.copyOf(categorySeconds, capacity);
+        merchantIds = Arrays.copyOf(merchantIds, capacity);
+        saleNums = Arrays.copyOf(saleNums, capacity);
+        sorts = Arrays.copyOf(sorts, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        createTimes = Arrays.copyOf(createTimes, capacity);
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            fieldLengths[f] = Arrays.copyOf(fieldLengths[f], capacity);
+        }
+    }
+
+    /**
+     * 单字段单词项的倒排表，文档序号递增
+     */
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int[] freqs = new int[2];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size << 1);
+                freqs = Arrays.copyOf(freqs, size << 1);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    /**
+     * 查询过程的计分数组，按触达的文档列表增量清零，避免每次查询分配 O(文档数) 内存；
+     * 用完归还对象池，池中对象数约等于查询峰值并发数
+     */
+    private static final class Scratch {
+        float[] term = new float[0];
+        float[] group = new float[0];
+        float[] clause = new float[0];
+        int[] clauseHits = new int[0];
+        float[] total = new float[0];
+        boolean[] isMatched = new boolean[0];
+        int[] termTouched = new int[64];
+        int termSize;
+        int[] groupTouched = new int[64];
+        int groupSize;
+        int[] clauseTouched = new int[64];
+        int clauseSize;
+        int[] matched = new int[64];
+        int matchedSize;
+
+        void ensure(int size) {
+            if (term.length >= size) {
+                return;
+            }
+            int capacity = Math.max(size, term.length + (term.length >> 1));
+            term = new float[capacity];
+            group = new float[capacity];
+            clause = new float[capacity];
+            clauseHits = new int[capacity];
+            total = new float[capacity];
+            isMatched = new boolean[capacity];
+        }
+
+        void addTermScore(int doc, float score) {
+            if (term[doc] == 0) {
+                termTouched = push(termTouched, termSize++, doc);
+            }
+            term[doc] += score;
+        }
+
+        void mergeTermIntoGroup() {
+            for (int i = 0; i < termSize; i++) {
+                int doc = termTouched[i];
+                if (group[doc] == 0) {
+                    groupTouched = push(groupTouched, groupSize++, doc);
+                }
+                group[doc] = Math.max(group[doc], term[doc]);
+                term[doc] = 0;
+            }
+            termSize = 0;
+        }
+
+        void mergeGroupIntoClause() {
+            for (int i = 0; i < groupSize; i++) {
+                int doc = groupTouched[i];
+                if (clauseHits[doc] == 0) {
+                    clauseTouched = push(clauseTouched, clauseSize++, doc);
+                }
+                clause[doc] += group[doc];
+                clauseHits[doc]++;
+                group[doc] = 0;
+            }
+            groupSize = 0;
+        }
+
+        void mergeClauseIntoTotal(int required, float weight) {
+            for (int i = 0; i < clauseSize; i++) {
+                int doc = clauseTouched[i];
+                if (clauseHits[doc] >= required) {
+                    if (!isMatched[doc]) {
+                        isMatched[doc] = true;
+                        matched = push(matched, matchedSize++, doc);
+                    }
+                    total[doc] += weight * clause[doc];
+                }
+                clause[doc] = 0;
+                clauseHits[doc] = 0;
+            }
+            clauseSize = 0;
+        }
+
+        /**
+         * 清零所有触达过的位置（含异常中断时的中间状态）
+         */
+        void reset() {
+            for (int i = 0; i < termSize; i++) {
+                term[termTouched[i]] = 0;
+            }
+            for (int i = 0; i < groupSize; i++) {
+                group[groupTouched[i]] = 0;
+            }
+            for (int i = 0; i < clauseSize; i++) {
+                clause[clauseTouched[i]] = 0;
+                clauseHits[clauseTouched[i]] = 0;
+            }
+            for (int i = 0; i < matchedSize; i++) {
+                total[matched[i]] = 0;
+                isMatched[matched[i]] = false;
+            }
+            termSize = 0;
+            groupSize = 0;
+            clauseSize = 0;
+            matchedSize = 0;
+        }
+
+        private static int[] push(int[] array, int index, int value) {
+            if (index == array.length) {
+                array = Arrays.copyOf(array, array.length << 1);
+            }
+            array[index] = value;
+            return array;
+        }
+    }
+}
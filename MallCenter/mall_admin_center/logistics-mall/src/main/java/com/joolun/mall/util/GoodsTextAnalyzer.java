@@ -0,0 +1,272 @@
+package com.joolun.mall.util;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品文本分词
+ *
+ * 中文按连续汉字切分为单字和二元组（bigram），字母数字按连续串整体切分并转小写，其余字符作为分隔符。
+ * 拼音：每段汉字按音节生成全拼与首字母的后缀串（如 牛肉丸 -> niurouwan/rouwan/wan、nrw/rw），
+ * 配合前缀匹配支持 "niur"、"rouw"、"nr" 等输入；多音字取第一个读音。
+ */
+public final class GoodsTextAnalyzer {
+
+    /**
+     * 单段汉字参与拼音展开的最大长度，避免长描述产生过多词项
+     */
+    private static final int MAX_PINYIN_RUN = 12;
+
+    private static final HanyuPinyinOutputFormat PINYIN_FORMAT = new HanyuPinyinOutputFormat();
+    private static final Map<Character, String> PINYIN_CACHE = new ConcurrentHashMap<>();
+    private static final String NO_PINYIN = "";
+
+    static {
+        PINYIN_FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        PINYIN_FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        PINYIN_FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private GoodsTextAnalyzer() {
+    }
+
+    /**
+     * 查询词组：同一组内任一词项命中即视为该组命中
+     */
+    public static final class QueryGroup {
+        /**
+         * 精确匹配的词项
+         */
+        public final String term;
+        /**
+         * 是否允许在拼音字段做前缀匹配
+         */
+        public final boolean pinyinPrefix;
+
+        QueryGroup(String term, boolean pinyinPrefix) {
+            this.term = term;
+            this.pinyinPrefix = pinyinPrefix;
+        }
+    }
+
+    /**
+     * 索引分词：返回词项 -> 词频，并把词项总数写入 lengthHolder[0]
+     */
+    public static Map<String, Integer> analyze(String text, int[] lengthHolder) {
+        Map<String, Integer> tf = new HashMap<>();
+        int length = 0;
+        if (text != null) {
+            String normalized = normalize(text);
+            int n = normalized.length();
+            int i = 0;
+            while (i < n) {
+                char c = normalized.charAt(i);
+                if (isCjk(c)) {
+                    int start = i;
+                    while (i < n && isCjk(normalized.charAt(i))) {
+                        i++;
+                    }
+                    for (int k = start; k < i; k++) {
+                        tf.merge(String.valueOf(normalized.charAt(k)), 1, Integer::sum);
+                        length++;
+                        if (k + 1 < i) {
+                            tf.merge(normalized.substring(k, k + 2), 1, Integer::sum);
+                        }
+                    }
+                } else if (isAlnum(c)) {
+                    int start = i;
+                    while (i < n && isAlnum(normalized.charAt(i))) {
+                        i++;
+                    }
+                    tf.merge(normalized.substring(start, i), 1, Integer::sum);
+                    length++;
+                } else {
+                    i++;
+                }
+            }
+        }
+        if (lengthHolder != null) {
+            lengthHolder[0] = length;
+        }
+        return tf;
+    }
+
+    /**
+     * 拼音分词：每段汉字的全拼后缀串与首字母后缀串（长度不少于 2）
+     */
+    public static Map<String, Integer> analyzePinyin(String text, int[] lengthHolder) {
+        Map<String, Integer> tf = new HashMap<>();
+        int length = 0;
+        if (text != null) {
+            String normalized = normalize(text);
+            List<String> syllables = new ArrayList<>();
+            for (int i = 0; i <= normalized.length(); i++) {
+                String syllable = i < normalized.length() ? pinyinOf(normalized.charAt(i)) : NO_PINYIN;
+                if (syllable.isEmpty() || syllables.size() >= MAX_PINYIN_RUN) {
+                    length += emitPinyinRun(syllables, tf);
+                    syllables.clear();
+                }
+                if (!syllable.isEmpty()) {
+                    syllables.add(syllable);
+                }
+            }
+        }
+        if (lengthHolder != null) {
+            lengthHolder[0] = length;
+        }
+        return tf;
+    }
+
+    /**
+     * 查询分词：多字汉字串取二元组，单个汉字取单字，字母数字串整体作为一组并允许拼音前缀匹配
+     */
+    public static List<QueryGroup> analyzeQuery(String query) {
+        List<QueryGroup> groups = new ArrayList<>();
+        if (query == null) {
+            return groups;
+        }
+        String normalized = normalize(query);
+        int n = normalized.length();
+        int i = 0;
+        while (i < n) {
+            char c = normalized.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < n && isCjk(normalized.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    groups.add(new QueryGroup(String.valueOf(c), false));
+                } else {
+                    for (int k = start; k + 1 < i; k++) {
+                        groups.add(new QueryGroup(normalized.substring(k, k + 2), false));
+                    }
+                }
+            } else if (isAlnum(c)) {
+                int start = i;
+                while (i < n && isAlnum(normalized.charAt(i))) {
+                    i++;
+                }
+                String token = normalized.substring(start, i);
+                groups.add(new QueryGroup(token, isLetters(token)));
+            } else {
+                i++;
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * 整串转拼音，用于前缀联想：返回 {全拼, 首字母}，字母数字原样保留，其余字符忽略；不含汉字时返回 null
+     * 如 牛肉丸500g -> {niurouwan500g, nrw500g}
+     */
+    public static String[] toPinyinKeys(String text) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = normalize(text);
+        StringBuilder full = new StringBuilder();
+        StringBuilder initials = new StringBuilder();
+        boolean hasPinyin = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            String syllable = pinyinOf(c);
+            if (!syllable.isEmpty()) {
+                full.append(syllable);
+                initials.append(syllable.charAt(0));
+                hasPinyin = true;
+            } else if (isAlnum(c)) {
+                full.append(c);
+                initials.append(c);
+            }
+        }
+        return hasPinyin ? new String[]{full.toString(), initials.toString()} : null;
+    }
+
+    /**
+     * 规范化：全角转半角、转小写
+     */
+    public static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '　') {
+                c = ' ';
+            } else if (c >= '！' && c <= '～') {
+                c = (char) (c - 0xFEE0);
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 去除 HTML 标签与实体（商品详情为富文本）
+     */
+    public static String stripHtml(String html) {
+        if (html == null) {
+            return null;
+        }
+        return html.replaceAll("<[^>]*>", " ").replaceAll("&[a-zA-Z#0-9]+;", " ");
+    }
+
+    private static int emitPinyinRun(List<String> syllables, Map<String, Integer> tf) {
+        int emitted = 0;
+        int n = syllables.size();
+        for (int start = 0; start < n; start++) {
+            StringBuilder full = new StringBuilder();
+            StringBuilder initials = new StringBuilder();
+            for (int k = start; k < n; k++) {
+                full.append(syllables.get(k));
+                initials.append(syllables.get(k).charAt(0));
+            }
+            tf.merge(full.toString(), 1, Integer::sum);
+            emitted++;
+            if (initials.length() >= 2) {
+                tf.merge(initials.toString(), 1, Integer::sum);
+            }
+        }
+        return emitted;
+    }
+
+    private static String pinyinOf(char c) {
+        if (!isCjk(c)) {
+            return NO_PINYIN;
+        }
+        return PINYIN_CACHE.computeIfAbsent(c, ch -> {
+            try {
+                String[] readings = PinyinHelper.toHanyuPinyinStringArray(ch, PINYIN_FORMAT);
+                return readings != null && readings.length > 0 ? readings[0] : NO_PINYIN;
+            } catch (Exception e) {
+                return NO_PINYIN;
+            }
+        });
+    }
+
+    private static boolean isCjk(char c) {
+        return c >= '一' && c <= '鿿';
+    }
+
+    private static boolean isAlnum(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isLetters(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
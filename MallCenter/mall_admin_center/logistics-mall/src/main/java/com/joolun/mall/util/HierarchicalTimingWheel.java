@@ -0,0 +1,215 @@
+package com.joolun.mall.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 分层时间轮
+ *
+ * 底层轮每格 tickMs，共 wheelSize 格；超出本层范围的任务放入上层轮（每格 = 下层一圈），按需逐层创建。
+ * 只有非空的格子进入 DelayQueue，驱动线程调用 {@link #advanceClock(long)} 阻塞等待最近到期的格子，
+ * 不会空转逐格推进；格子到期后其中任务重新插入，降级到下层轮或直接交给执行器。
+ * 插入、到期均为 O(1)（与层数相关），适合大量短时延任务的精确触发。
+ * 任务按到期时间向上取整到格，不会早于到期时间执行，最多晚一格。
+ *
+ * 时间单位为毫秒时间戳（System.currentTimeMillis）。
+ */
+public class HierarchicalTimingWheel {
+
+    private final long tickMs;
+    private final Executor executor;
+    private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Level root;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param tickMs    底层轮每格时长（毫秒）
+     * @param wheelSize 每层格数
+     * @param startMs   起始时间
+     * @param executor  到期任务执行器，任务在驱动线程中提交，执行器不应阻塞
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs, Executor executor) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMs and wheelSize must be positive");
+        }
+        this.tickMs = tickMs;
+        this.executor = executor;
+        this.root = new Level(tickMs, wheelSize, startMs);
+    }
+
+    /**
+     * 添加任务，已到期的任务立即提交执行器
+     */
+    public void add(long expirationMs, Runnable task) {
+        lock.readLock().lock();
+        try {
+            //向上取整到格：落入的格子到期时间不早于 expirationMs
+            addEntry(new Entry(expirationMs + tickMs - 1, task));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 推进时钟：最多等待 timeoutMs 取出一个到期格子，并顺带处理所有已到期格子
+     *
+     * @return 是否有格子到期
+     */
+    public boolean advanceClock(long timeoutMs) throws InterruptedException {
+        Bucket bucket = delayQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                root.advanceClock(bucket.getExpiration());
+                for (Entry entry : bucket.flush()) {
+                    size.decrementAndGet();
+                    addEntry(entry);
+                }
+                bucket = delayQueue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * 时间轮中尚未到期的任务数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void addEntry(Entry entry) {
+        if (root.add(entry)) {
+            size.incrementAndGet();
+        } else {
+            executor.execute(entry.task);
+        }
+    }
+
+    private static final class Entry {
+        private final long expirationMs;
+        private final Runnable task;
+
+        private Entry(long expirationMs, Runnable task) {
+            this.expirationMs = expirationMs;
+            this.task = task;
+        }
+    }
+
+    /**
+     * 时间格：到期时间相同的一组任务
+     */
+    private static final class Bucket implements Delayed {
+        private final AtomicLong expiration = new AtomicLong(-1L);
+        private List<Entry> entries = new ArrayList<>();
+
+        synchronized void add(Entry entry) {
+            entries.add(entry);
+        }
+
+        synchronized List<Entry> flush() {
+            List<Entry> flushed = entries;
+            entries = new ArrayList<>();
+            expiration.set(-1L);
+            return flushed;
+        }
+
+        /**
+         * @return 到期时间是否变化（变化时需重新放入延迟队列）
+         */
+        boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+        }
+    }
+
+    /**
+     * 单层时间轮
+     */
+    private final class Level {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket[] buckets;
+        private long currentTime;
+        private volatile Level overflow;
+
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        /**
+         * @return false 表示已到期，需立即执行
+         */
+        boolean add(Entry entry) {
+            long expirationMs = entry.expirationMs;
+            if (expirationMs < currentTime + tickMs) {
+                return false;
+            }
+            if (expirationMs < currentTime + interval) {
+                long virtualId = expirationMs / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(entry);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            return overflow().add(entry);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                Level next = overflow;
+                if (next != null) {
+                    next.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Level overflow() {
+            if (overflow == null) {
+                synchronized (this) {
+                    if (overflow == null) {
+                        overflow = new Level(interval, wheelSize, currentTime);
+                    }
+                }
+            }
+            return overflow;
+        }
+    }
+}
@@ -0,0 +1,731 @@
+package com.joolun.mall.util;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * 并行 K-Means 引擎
+ *
+ * 三个阶段，均按行号区间分片在 ForkJoinPool 中并行：
+ * 1. k-means|| 初始化：每轮按距离平方比例并行过采样约 oversampling * k 个候选点，
+ *    若干轮后将每个候选点替换为其覆盖样本的均值并按覆盖样本数加权，在其上做加权贪心 k-means++
+ *    （每步试选若干个、取势函数下降最多者）与少量 Lloyd 迭代得到 k 个初始中心。相比 k-means++ 的 k 次串行全量扫描，只需 rounds 次可并行的扫描。
+ * 2. 小批量 k-means（样本数超过阈值时）：每次随机取一个小批量，并行求最近中心后按每个中心的累计计数
+ *    以 1/count 为步长移动中心，快速逼近收敛位置，减少后续精确迭代次数。
+ *    此时第 1 步只在 3 倍小批量大小的随机子样本上进行，避免初始化的距离计算量随全量样本数增长。
+ * 3. 精确 Lloyd 迭代 + Hamerly 剪枝：每个样本维护到所属中心距离的上界与到次近中心距离的下界，
+ *    中心移动后按移动量放宽边界；上界不超过 max(下界, 所属中心到其他中心最近距离的一半) 的样本
+ *    不可能换簇，跳过距离计算。收敛后期绝大多数样本被剪枝。
+ *
+ * 结果中心按行优先存放在一个 double 数组中，与 {@link FeatureMatrix} 布局一致。
+ */
+public class KMeansEngine {
+
+    /**
+     * 初始化阶段候选点上的 Lloyd 迭代次数
+     */
+    private static final int CANDIDATE_LLOYD_ITERATIONS = 10;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism 并行度，不大于 0 时取 CPU 核数
+     */
+    public KMeansEngine(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Data
+    public static class Options {
+        private int k = 6;
+        private int maxIterations = 100;
+        /**
+         * 中心最大移动量低于该值视为收敛
+         */
+        private double tolerance = 0.001;
+        /**
+         * k-means|| 采样轮数
+         */
+        private int initRounds = 5;
+        /**
+         * k-means|| 每轮期望采样数 = oversampling * k
+         */
+        private double oversampling = 2.0;
+        /**
+         * 样本数不少于该值时先做小批量 k-means
+         */
+        private int miniBatchThreshold = 50000;
+        private int miniBatchSize = 4096;
+        private int miniBatchIterations = 100;
+        private long seed = 42;
+    }
+
+    /**
+     * 单个样本的最近与次近中心
+     */
+    @Data
+    public static class Nearest {
+        private final int cluster;
+        private final double distance;
+        private final int second;
+        private final double secondDistance;
+    }
+
+    /**
+     * 聚类结果：最终中心、每个样本的最近/次近中心与距离
+     */
+    @Data
+    public static class Result {
+        private int k;
+        private int dim;
+        private double[] centroids;
+        private int[] assignment;
+        private double[] distance;
+        private int[] second;
+        private double[] secondDistance;
+        private int[] clusterSizes;
+        private int iterations;
+        private boolean converged;
+        private double inertia;
+        private long distanceComputations;
+        private long initMillis;
+        private long miniBatchMillis;
+        private long lloydMillis;
+
+        public double[] centroid(int cluster) {
+            return Arrays.copyOfRange(centroids, cluster * dim, (cluster + 1) * dim);
+        }
+
+        public Map<String, Object> getStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("k", k);
+            stats.put("rows", assignment != null ? assignment.length : 0);
+            stats.put("iterations", iterations);
+            stats.put("converged", converged);
+            stats.put("inertia", inertia);
+            stats.put("clusterSizes", clusterSizes);
+            stats.put("distanceComputations", distanceComputations);
+            stats.put("initMillis", initMillis);
+            stats.put("miniBatchMillis", miniBatchMillis);
+            stats.put("lloydMillis", lloydMillis);
+            return stats;
+        }
+    }
+
+    /**
+     * 对矩阵全部行聚类；行数少于 k 时 k 取行数
+     */
+    public Result cluster(FeatureMatrix matrix, Options options) {
+        int n = matrix.rows();
+        int dim = matrix.dim();
+        int k = Math.max(1, Math.min(options.getK(), n));
+        if (n == 0) {
+            throw new IllegalArgumentException("特征矩阵为空");
+        }
+        LongAdder distances = new LongAdder();
+        Result result = new Result();
+        result.setK(k);
+        result.setDim(dim);
+
+        boolean useMiniBatch = n >= options.getMiniBatchThreshold();
+        long start = System.currentTimeMillis();
+        FeatureMatrix initRows = useMiniBatch ? sample(matrix, 3 * options.getMiniBatchSize(), options.getSeed()) : matrix;
+        double[] centers = initKMeansParallel(initRows, Math.min(k, initRows.rows()), options, distances);
+        if (centers.length < k * dim) {
+            centers = Arrays.copyOf(centers, k * dim);
+        }
+        result.setInitMillis(System.currentTimeMillis() - start);
+
+        start = System.currentTimeMillis();
+        if (useMiniBatch) {
+            miniBatch(matrix, centers, k, options, distances);
+        }
+        result.setMiniBatchMillis(System.currentTimeMillis() - start);
+
+        start = System.currentTimeMillis();
+        lloyd(matrix, centers, k, options, distances, result);
+        result.setLloydMillis(System.currentTimeMillis() - start);
+        result.setCentroids(centers);
+        result.setDistanceComputations(distances.sum());
+        return result;
+    }
+
+    /**
+     * 样本到各中心中最近与次近的中心（k 为 1 时次近为 -1）
+     */
+    public static Nearest nearest(double[] centroids, int k, double[] x) {
+        int dim = x.length;
+        int best = -1;
+        int second = -1;
+        double d1 = Double.MAX_VALUE;
+        double d2 = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double sum = 0;
+            for (int j = 0; j < dim; j++) {
+                double diff = x[j] - centroids[c * dim + j];
+                sum += diff * diff;
+            }
+            if (sum < d1) {
+                d2 = d1;
+                second = best;
+                d1 = sum;
+                best = c;
+            } else if (sum < d2) {
+                d2 = sum;
+                second = c;
+            }
+        }
+        return new Nearest(best, Math.sqrt(d1), second, second >= 0 ? Math.sqrt(d2) : Double.MAX_VALUE);
+    }
+
+    // ==================== k-means|| 初始化 ====================
+
+    private double[] initKMeansParallel(FeatureMatrix matrix, int k, Options options, LongAdder distances) {
+        int n = matrix.rows();
+        int dim = matrix.dim();
+        SplittableRandom random = new SplittableRandom(options.getSeed());
+        List<Integer> candidates = new ArrayList<>();
+        candidates.add(random.nextInt(n));
+
+        //每个样本到已选候选点的最近距离平方及最近候选点序号
+        double[] minD2 = new double[n];
+        int[] nearest = new int[n];
+        double[] first = matrix.row(candidates.get(0));
+        parallelFor(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                minD2[i] = matrix.squaredDistance(i, first, 0);
+            }
+        });
+        distances.add(n);
+
+        double expected = options.getOversampling() * k;
+        for (int round = 0; round < options.getInitRounds(); round++) {
+            double phi = sum(minD2);
+            if (phi <= 0) {
+                break;
+            }
+            long roundSeed = random.nextLong();
+            int chunks = chunkCount(n);
+            List<List<Integer>> sampled = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                sampled.add(new ArrayList<>());
+            }
+            parallelFor(n, (chunk, from, to) -> {
+                SplittableRandom chunkRandom = new SplittableRandom(roundSeed + chunk);
+                List<Integer> picked = sampled.get(chunk);
+                for (int i = from; i < to; i++) {
+                    if (chunkRandom.nextDouble() < expected * minD2[i] / phi) {
+                        picked.add(i);
+                    }
+                }
+            });
+            List<Integer> fresh = new ArrayList<>();
+            sampled.forEach(fresh::addAll);
+            if (fresh.isEmpty()) {
+                continue;
+            }
+            int offset = candidates.size();
+            candidates.addAll(fresh);
+            double[] freshCenters = gather(matrix, fresh);
+            int freshCount = fresh.size();
+            parallelFor(n, (chunk, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    for (int c = 0; c < freshCount; c++) {
+                        double d = matrix.squaredDistance(i, freshCenters, c);
+                        if (d < minD2[i]) {
+                            minD2[i] = d;
+                            nearest[i] = offset + c;
+                        }
+                    }
+                }
+            });
+            distances.add((long) n * freshCount);
+        }
+
+        //候选点替换为以其为最近候选点的样本均值，权重为样本数。按距离平方采样的候选点偏向簇的边缘，
+        //高维带噪声时直接在候选点上归约容易把两个中心放进同一簇，均值则接近簇内的局部中心
+        int m = candidates.size();
+        double[] candidateCenters = gather(matrix, candidates);
+        double[] data = matrix.data();
+        int chunks = chunkCount(n);
+        double[][] partialSums = new double[chunks][];
+        long[][] partialCounts = new long[chunks][];
+        parallelFor(n, (chunk, from, to) -> {
+            double[] sums = new double[m * dim];
+            long[] counts = new long[m];
+            for (int i = from; i < to; i++) {
+                int c = nearest[i];
+                counts[c]++;
+                for (int j = 0; j < dim; j++) {
+                    sums[c * dim + j] += data[i * dim + j];
+                }
+            }
+            partialSums[chunk] = sums;
+            partialCounts[chunk] = counts;
+        });
+        double[] weights = new double[m];
+        double[] means = new double[m * dim];
+        for (int p = 0; p < chunks; p++) {
+            if (partialCounts[p] == null) {
+                continue;
+            }
+            for (int c = 0; c < m; c++) {
+                weights[c] += partialCounts[p][c];
+            }
+            for (int x = 0; x < m * dim; x++) {
+                means[x] += partialSums[p][x];
+            }
+        }
+        for (int c = 0; c < m; c++) {
+            for (int j = 0; j < dim; j++) {
+                candidateCenters[c * dim + j] = weights[c] > 0 ? means[c * dim + j] / weights[c] : candidateCenters[c * dim + j];
+            }
+        }
+        return reduceCandidates(candidateCenters, weights, m, dim, k, random);
+    }
+
+    /**
+     * 在加权候选点上做贪心 k-means++ 与少量 Lloyd 迭代，得到 k 个中心。
+     * 高维带噪声数据上，普通 k-means++ 有一定概率把两个中心放进同一簇，之后的 Lloyd 迭代无法纠正；
+     * 每步试选 2 + ln(k) 个点并保留使加权势函数最小者，可显著降低这种概率（候选点少，代价可忽略）
+     */
+    private static double[] reduceCandidates(double[] points, double[] weights, int m, int dim, int k,
+                                             SplittableRandom random) {
+        double[] centers = new double[k * dim];
+        int trials = 2 + (int) Math.log(k);
+        double[] minD2 = new double[m];
+        Arrays.fill(minD2, Double.MAX_VALUE);
+        double[] trialD2 = new double[m];
+        double[] bestD2 = new double[m];
+        for (int c = 0; c < k; c++) {
+            int chosen = -1;
+            double bestPotential = Double.MAX_VALUE;
+            for (int t = 0; t < (c == 0 ? 1 : trials); t++) {
+                int candidate = pickWeighted(weights, c == 0 ? null : minD2, random);
+                double potential = 0;
+                for (int i = 0; i < m; i++) {
+                    trialD2[i] = Math.min(minD2[i], squaredDistance(points, i, points, candidate, dim));
+                    potential += weights[i] * trialD2[i];
+                }
+                if (potential < bestPotential) {
+                    bestPotential = potential;
+                    chosen = candidate;
+                    System.arraycopy(trialD2, 0, bestD2, 0, m);
+                }
+            }
+            System.arraycopy(points, chosen * dim, centers, c * dim, dim);
+            System.arraycopy(bestD2, 0, minD2, 0, m);
+        }
+
+        int[] assignment = new int[m];
+        for (int iter = 0; iter < CANDIDATE_LLOYD_ITERATIONS; iter++) {
+            for (int i = 0; i < m; i++) {
+                double best = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    double d = squaredDistance(points, i, centers, c, dim);
+                    if (d < best) {
+                        best = d;
+                        assignment[i] = c;
+                    }
+                }
+            }
+            double[] sums = new double[k * dim];
+            double[] totals = new double[k];
+            for (int i = 0; i < m; i++) {
+                int c = assignment[i];
+                totals[c] += weights[i];
+                for (int j = 0; j < dim; j++) {
+                    sums[c * dim + j] += weights[i] * points[i * dim + j];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                if (totals[c] > 0) {
+                    for (int j = 0; j < dim; j++) {
+                        centers[c * dim + j] = sums[c * dim + j] / totals[c];
+                    }
+                }
+            }
+        }
+        return centers;
+    }
+
+    /**
+     * 按 weights[i] * factor[i] 的比例抽样（factor 为 null 时只按权重），全为 0 时均匀抽样
+     */
+    private static int pickWeighted(double[] weights, double[] factor, SplittableRandom random) {
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i] * (factor != null ? factor[i] : 1);
+        }
+        if (total <= 0) {
+            return random.nextInt(weights.length);
+        }
+        double threshold = random.nextDouble() * total;
+        double cumulative = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cumulative += weights[i] * (factor != null ? factor[i] : 1);
+            if (cumulative >= threshold) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    // ==================== 小批量 k-means ====================
+
+    private void miniBatch(FeatureMatrix matrix, double[] centers, int k, Options options, LongAdder distances) {
+        int n = matrix.rows();
+        int dim = matrix.dim();
+        double[] data = matrix.data();
+        int batchSize = Math.min(options.getMiniBatchSize(), n);
+        SplittableRandom random = new SplittableRandom(options.getSeed() + 1);
+        long[] counts = new long[k];
+        int[] batch = new int[batchSize];
+        int[] nearest = new int[batchSize];
+        for (int iter = 0; iter < options.getMiniBatchIterations(); iter++) {
+            for (int b = 0; b < batchSize; b++) {
+                batch[b] = random.nextInt(n);
+            }
+            parallelFor(batchSize, (chunk, from, to) -> {
+                for (int b = from; b < to; b++) {
+                    nearest[b] = nearestCenter(matrix, batch[b], centers, k);
+                }
+            });
+            distances.add((long) batchSize * k);
+            //中心按累计计数做步长递减的移动，串行执行（批量小）
+            for (int b = 0; b < batchSize; b++) {
+                int c = nearest[b];
+                double eta = 1.0 / ++counts[c];
+                int row = batch[b] * dim;
+                for (int j = 0; j < dim; j++) {
+                    centers[c * dim + j] += eta * (data[row + j] - centers[c * dim + j]);
+                }
+            }
+        }
+    }
+
+    // ==================== Lloyd + Hamerly 剪枝 ====================
+
+    private void lloyd(FeatureMatrix matrix, double[] centers, int k, Options options, LongAdder distances,
+                       Result result) {
+        int n = matrix.rows();
+        int dim = matrix.dim();
+        double[] data = matrix.data();
+        int[] assignment = new int[n];
+        double[] upper = new double[n];
+        double[] lower = new double[n];
+
+        parallelFor(n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                scan(matrix, i, centers, k, assignment, upper, lower);
+            }
+        });
+        distances.add((long) n * k);
+
+        int chunks = chunkCount(n);
+        boolean converged = false;
+        int iterations = 0;
+        while (iterations < options.getMaxIterations()) {
+            iterations++;
+            //更新中心：分片求和后合并，空簇保留原中心
+            double[][] partialSums = new double[chunks][];
+            long[][] partialCounts = new long[chunks][];
+            parallelFor(n, (chunk, from, to) -> {
+                double[] sums = new double[k * dim];
+                long[] counts = new long[k];
+                for (int i = from; i < to; i++) {
+                    int c = assignment[i];
+                    counts[c]++;
+                    int row = i * dim;
+                    for (int j = 0; j < dim; j++) {
+                        sums[c * dim + j] += data[row + j];
+                    }
+                }
+                partialSums[chunk] = sums;
+                partialCounts[chunk] = counts;
+            });
+            double[] shift = new double[k];
+            double maxShift = 0;
+            int maxShiftCluster = -1;
+            double secondMaxShift = 0;
+            for (int c = 0; c < k; c++) {
+                long count = 0;
+                double[] mean = new double[dim];
+                for (int p = 0; p < chunks; p++) {
+                    if (partialCounts[p] == null) {
+                        continue;
+                    }
+                    count += partialCounts[p][c];
+                    for (int j = 0; j < dim; j++) {
+                        mean[j] += partialSums[p][c * dim + j];
+                    }
+                }
+                if (count == 0) {
+                    continue;
+                }
+                double moved = 0;
+                for (int j = 0; j < dim; j++) {
+                    mean[j] /= count;
+                    double diff = mean[j] - centers[c * dim + j];
+                    moved += diff * diff;
+                    centers[c * dim + j] = mean[j];
+                }
+                shift[c] = Math.sqrt(moved);
+                if (shift[c] > maxShift) {
+                    secondMaxShift = maxShift;
+                    maxShift = shift[c];
+                    maxShiftCluster = c;
+                } else if (shift[c] > secondMaxShift) {
+                    secondMaxShift = shift[c];
+                }
+            }
+            if (maxShift < options.getTolerance()) {
+                converged = true;
+                break;
+            }
+
+            //放宽边界：上界加所属中心移动量，下界减其他中心的最大移动量
+            int movedMost = maxShiftCluster;
+            double maxOther = maxShift;
+            double maxOtherForMost = secondMaxShift;
+            double[] halfGap = halfNearestCenterGap(centers, k, dim);
+            distances.add((long) k * (k - 1) / 2);
+            LongAdder changed = new LongAdder();
+            LongAdder scanned = new LongAdder();
+            parallelFor(n, (chunk, from, to) -> {
+                long localChanged = 0;
+                long localScanned = 0;
+                for (int i = from; i < to; i++) {
+                    int a = assignment[i];
+                    upper[i] += shift[a];
+                    lower[i] -= a == movedMost ? maxOtherForMost : maxOther;
+                    double bound = Math.max(halfGap[a], lower[i]);
+                    if (upper[i] <= bound) {
+                        continue;
+                    }
+                    upper[i] = Math.sqrt(matrix.squaredDistance(i, centers, a));
+                    localScanned++;
+                    if (upper[i] <= bound) {
+                        continue;
+                    }
+                    scan(matrix, i, centers, k, assignment, upper, lower);
+                    localScanned += k;
+                    if (assignment[i] != a) {
+                        localChanged++;
+                    }
+                }
+                changed.add(localChanged);
+                scanned.add(localScanned);
+            });
+            distances.add(scanned.sum());
+            if (changed.sum() == 0) {
+                //分配不再变化，下一次更新中心不会移动
+                converged = true;
+                break;
+            }
+        }
+
+        //最终精确求最近与次近中心（上界可能偏松，且持久化需要次近中心）
+        int[] second = new int[n];
+        double[] secondDistance = new double[n];
+        double[] distance = new double[n];
+        int[][] partialSizes = new int[chunks][];
+        double[] partialInertia = new double[chunks];
+        parallelFor(n, (chunk, from, to) -> {
+            int[] sizes = new int[k];
+            double inertia = 0;
+            for (int i = from; i < to; i++) {
+                int best = -1;
+                int next = -1;
+                double d1 = Double.MAX_VALUE;
+                double d2 = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    double d = matrix.squaredDistance(i, centers, c);
+                    if (d < d1) {
+                        d2 = d1;
+                        next = best;
+                        d1 = d;
+                        best = c;
+                    } else if (d < d2) {
+                        d2 = d;
+                        next = c;
+                    }
+                }
+                assignment[i] = best;
+                distance[i] = Math.sqrt(d1);
+                second[i] = next;
+                secondDistance[i] = next >= 0 ? Math.sqrt(d2) : Double.MAX_VALUE;
+                sizes[best]++;
+                inertia += d1;
+            }
+            partialSizes[chunk] = sizes;
+            partialInertia[chunk] = inertia;
+        });
+        distances.add((long) n * k);
+
+        int[] clusterSizes = new int[k];
+        for (int[] sizes : partialSizes) {
+            if (sizes != null) {
+                for (int c = 0; c < k; c++) {
+                    clusterSizes[c] += sizes[c];
+                }
+            }
+        }
+        result.setAssignment(assignment);
+        result.setDistance(distance);
+        result.setSecond(second);
+        result.setSecondDistance(secondDistance);
+        result.setClusterSizes(clusterSizes);
+        result.setInertia(sum(partialInertia));
+        result.setIterations(iterations);
+        result.setConverged(converged);
+    }
+
+    /**
+     * 全量扫描一个样本：更新所属中心、上界（最近距离）与下界（次近距离）
+     */
+    private static void scan(FeatureMatrix matrix, int i, double[] centers, int k,
+                             int[] assignment, double[] upper, double[] lower) {
+        int best = 0;
+        double d1 = Double.MAX_VALUE;
+        double d2 = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double d = matrix.squaredDistance(i, centers, c);
+            if (d < d1) {
+                d2 = d1;
+                d1 = d;
+                best = c;
+            } else if (d < d2) {
+                d2 = d;
+            }
+        }
+        assignment[i] = best;
+        upper[i] = Math.sqrt(d1);
+        lower[i] = k > 1 ? Math.sqrt(d2) : Double.MAX_VALUE;
+    }
+
+    /**
+     * 每个中心到其他中心最近距离的一半
+     */
+    private static double[] halfNearestCenterGap(double[] centers, int k, int dim) {
+        double[] half = new double[k];
+        Arrays.fill(half, Double.MAX_VALUE);
+        for (int a = 0; a < k; a++) {
+            for (int b = a + 1; b < k; b++) {
+                double d = Math.sqrt(squaredDistance(centers, a, centers, b, dim)) / 2;
+                half[a] = Math.min(half[a], d);
+                half[b] = Math.min(half[b], d);
+            }
+        }
+        return half;
+    }
+
+    private static int nearestCenter(FeatureMatrix matrix, int row, double[] centers, int k) {
+        int best = 0;
+        double bestD = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double d = matrix.squaredDistance(row, centers, c);
+            if (d < bestD) {
+                bestD = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    // ==================== 并行与向量工具 ====================
+
+    /**
+     * 不重复随机抽取 size 行组成子矩阵，size 不小于行数时返回原矩阵
+     */
+    private static FeatureMatrix sample(FeatureMatrix matrix, int size, long seed) {
+        int n = matrix.rows();
+        if (size >= n) {
+            return matrix;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        BitSet picked = new BitSet(n);
+        int[] rows = new int[size];
+        int count = 0;
+        while (count < size) {
+            int row = random.nextInt(n);
+            if (!picked.get(row)) {
+                picked.set(row);
+                rows[count++] = row;
+            }
+        }
+        return matrix.subset(rows);
+    }
+
+    @FunctionalInterface
+    private interface ChunkBody {
+        void apply(int chunk, int from, int to);
+    }
+
+    /**
+     * 分片数：每个工作线程约 4 片，便于负载均衡
+     */
+    private int chunkCount(int n) {
+        return Math.max(1, Math.min(n, pool.getParallelism() * 4));
+    }
+
+    /**
+     * 将 [0, n) 均分为 chunkCount(n) 片并行执行，分片号可用于写各自的局部结果
+     */
+    private void parallelFor(int n, ChunkBody body) {
+        int chunks = chunkCount(n);
+        int size = (n + chunks - 1) / chunks;
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * size;
+            int to = Math.min(n, from + size);
+            if (from < to) {
+                body.apply(chunk, from, to);
+            }
+        })).join();
+    }
+
+    private static double[] gather(FeatureMatrix matrix, List<Integer> rows) {
+        int dim = matrix.dim();
+        double[] data = matrix.data();
+        double[] out = new double[rows.size() * dim];
+        for (int c = 0; c < rows.size(); c++) {
+            System.arraycopy(data, rows.get(c) * dim, out, c * dim, dim);
+        }
+        return out;
+    }
+
+    private static double squaredDistance(double[] a, int ai, double[] b, int bi, int dim) {
+        double sum = 0;
+        for (int j = 0; j < dim; j++) {
+            double diff = a[ai * dim + j] - b[bi * dim + j];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double v : values) {
+            total += v;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,73 @@
+package com.joolun.mall.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 毫秒级延迟直方图
+ *
+ * 每毫秒一个桶，超过上限的记入最后一个桶；无锁记录，分位数按桶扫描计算（精度 1ms）。
+ */
+public class LatencyHistogram {
+
+    private final int maxMillis;
+    private final AtomicLongArray buckets;
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram(int maxMillis) {
+        this.maxMillis = maxMillis;
+        this.buckets = new AtomicLongArray(maxMillis + 1);
+    }
+
+    public void record(long millis) {
+        long value = Math.max(0, millis);
+        buckets.incrementAndGet((int) Math.min(value, maxMillis));
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * 分位数（毫秒），超过上限时返回上限
+     */
+    public long percentile(double q) {
+        return percentile(count(), q);
+    }
+
+    /**
+     * 计数、p50/p95/p99、最大值
+     */
+    public Map<String, Object> snapshot() {
+        long total = count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", total);
+        stats.put("p50Millis", percentile(total, 0.50));
+        stats.put("p95Millis", percentile(total, 0.95));
+        stats.put("p99Millis", percentile(total, 0.99));
+        stats.put("maxMillis", max.get());
+        return stats;
+    }
+
+    private long percentile(long total, double q) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * q);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return maxMillis;
+    }
+}
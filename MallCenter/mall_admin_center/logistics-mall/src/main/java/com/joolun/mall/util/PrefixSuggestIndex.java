@@ -0,0 +1,327 @@
+package com.joolun.mall.util;
+
+import lombok.Data;
+
+import java.util.*;
+
+/**
+ * 前缀联想词典
+ *
+ * 每个词条以 原文、全拼、首字母 三种形式作为联想键，全部键按字典序排序后紧凑存放在一个 char 数组中。
+ * 字典树的每个节点对应排序后的一段连续区间，前缀查找即两次二分；
+ * 节点的 top-k 由区间最大值线段树按权重逐个取出，不为每个节点预存列表，
+ * 内存与键总长度成线性，权重也可以原地增量更新（沿线段树向上 O(log n)）。
+ *
+ * 词条集合构建后不变，新词条需重新构建；权重更新串行执行，查询不加锁（可能读到更新前的权重）。
+ */
+public final class PrefixSuggestIndex {
+
+    /**
+     * 每个词条最多的键数：原文、全拼、首字母
+     */
+    private static final int KEYS_PER_TERM = 3;
+
+    /**
+     * 词条展示文本，按规范化文本排序
+     */
+    private final String[] terms;
+    private final int[] weights;
+    /**
+     * 词条 -> 键位置，每个词条占 KEYS_PER_TERM 个槽位，空槽为 -1
+     */
+    private final int[] termKeys;
+
+    /**
+     * 排序后的键：第 i 个键为 keyChars[keyOffsets[i], keyOffsets[i + 1])
+     */
+    private final char[] keyChars;
+    private final int[] keyOffsets;
+    private final int[] keyTerm;
+    private final int keyCount;
+
+    /**
+     * 区间最大值线段树（自底向上），叶子 keyCount + i 对应第 i 个键，节点保存权重最大的键位置
+     */
+    private final int[] tree;
+
+    private PrefixSuggestIndex(String[] terms, int[] weights, int[] termKeys,
+                               char[] keyChars, int[] keyOffsets, int[] keyTerm) {
+        this.terms = terms;
+        this.weights = weights;
+        this.termKeys = termKeys;
+        this.keyChars = keyChars;
+        this.keyOffsets = keyOffsets;
+        this.keyTerm = keyTerm;
+        this.keyCount = keyTerm.length;
+        this.tree = new int[keyCount * 2];
+        for (int i = 0; i < keyCount; i++) {
+            tree[keyCount + i] = i;
+        }
+        for (int i = keyCount - 1; i >= 1; i--) {
+            tree[i] = better(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    @Data
+    public static class Suggestion {
+        private final String term;
+        private final int weight;
+    }
+
+    /**
+     * 联想键的规范化：全角转半角、转小写、合并空白
+     */
+    public static String normalize(String text) {
+        return GoodsTextAnalyzer.normalize(text.trim()).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * 按前缀返回权重最高的词条，同一词条的多个键命中时只返回一次
+     *
+     * @param prefix 已规范化的前缀
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        if (limit <= 0 || prefix.isEmpty() || keyCount == 0) {
+            return Collections.emptyList();
+        }
+        int lo = lowerBound(prefix, false);
+        int hi = lowerBound(prefix, true);
+        if (lo >= hi) {
+            return Collections.emptyList();
+        }
+        List<Suggestion> result = new ArrayList<>(limit);
+        int[] seen = new int[limit];
+        //{区间起点, 区间终点, 最大值位置, 入堆时的权重}
+        PriorityQueue<int[]> heap = new PriorityQueue<>((a, b) -> Integer.compare(b[3], a[3]));
+        pushRange(heap, lo, hi);
+        while (!heap.isEmpty() && result.size() < limit) {
+            int[] top = heap.poll();
+            int pos = top[2];
+            int term = keyTerm[pos];
+            boolean duplicate = false;
+            for (int i = 0; i < result.size(); i++) {
+                if (seen[i] == term) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                seen[result.size()] = term;
+                result.add(new Suggestion(terms[term], weights[term]));
+            }
+            pushRange(heap, top[0], pos);
+            pushRange(heap, pos + 1, top[1]);
+        }
+        return result;
+    }
+
+    /**
+     * 增加词条权重（搜索计数），词条不存在时返回 false
+     *
+     * @param normalizedTerm 已规范化的词条
+     */
+    public synchronized boolean increment(String normalizedTerm, int delta) {
+        int term = find(normalizedTerm);
+        if (term < 0) {
+            return false;
+        }
+        long weight = (long) weights[term] + delta;
+        weights[term] = (int) Math.max(0, Math.min(Integer.MAX_VALUE, weight));
+        for (int slot = term * KEYS_PER_TERM; slot < (term + 1) * KEYS_PER_TERM; slot++) {
+            int pos = termKeys[slot];
+            if (pos < 0) {
+                break;
+            }
+            for (int node = (pos + keyCount) >> 1; node >= 1; node >>= 1) {
+                tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(String normalizedTerm) {
+        return find(normalizedTerm) >= 0;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("terms", terms.length);
+        stats.put("keys", keyCount);
+        stats.put("keyChars", keyChars.length);
+        //键与数组部分的近似字节数，不含词条字符串
+        stats.put("keyBytes", (long) keyChars.length * 2 + ((long) keyOffsets.length + keyTerm.length + tree.length) * 4
+                + ((long) weights.length + termKeys.length) * 4);
+        return stats;
+    }
+
+    private void pushRange(PriorityQueue<int[]> heap, int lo, int hi) {
+        if (lo < hi) {
+            int pos = argMax(lo, hi);
+            heap.add(new int[]{lo, hi, pos, weights[keyTerm[pos]]});
+        }
+    }
+
+    /**
+     * [lo, hi) 内权重最大的键位置
+     */
+    private int argMax(int lo, int hi) {
+        int best = -1;
+        for (lo += keyCount, hi += keyCount; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                best = better(best, tree[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                best = better(best, tree[--hi]);
+            }
+        }
+        return best;
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        int wa = weights[keyTerm[a]];
+        int wb = weights[keyTerm[b]];
+        return wa > wb || (wa == wb && a < b) ? a : b;
+    }
+
+    /**
+     * 第一个截断到前缀长度后 >= prefix（upper 为 false）或 > prefix（upper 为 true）的键位置
+     */
+    private int lowerBound(String prefix, boolean upper) {
+        int lo = 0;
+        int hi = keyCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(mid, prefix);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int comparePrefix(int pos, String prefix) {
+        int start = keyOffsets[pos];
+        int length = keyOffsets[pos + 1] - start;
+        int n = Math.min(length, prefix.length());
+        for (int i = 0; i < n; i++) {
+            int diff = keyChars[start + i] - prefix.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length < prefix.length() ? -1 : 0;
+    }
+
+    private int find(String normalizedTerm) {
+        int lo = 0;
+        int hi = terms.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = normalize(terms[mid]).compareTo(normalizedTerm);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 构建器：同一规范化文本的词条合并，权重累加，展示文本取第一次加入的
+     */
+    public static class Builder {
+
+        private final Map<String, String> display = new HashMap<>();
+        private final Map<String, Long> weights = new HashMap<>();
+
+        public Builder add(String term, long weight) {
+            if (term == null || term.trim().isEmpty()) {
+                return this;
+            }
+            String normalized = normalize(term);
+            display.putIfAbsent(normalized, term.trim());
+            weights.merge(normalized, Math.max(0, weight), Long::sum);
+            return this;
+        }
+
+        public int size() {
+            return display.size();
+        }
+
+        public PrefixSuggestIndex build() {
+            String[] normalizedTerms = display.keySet().toArray(new String[0]);
+            Arrays.sort(normalizedTerms);
+            int termCount = normalizedTerms.length;
+            String[] terms = new String[termCount];
+            int[] termWeights = new int[termCount];
+            List<KeyRef> refs = new ArrayList<>(termCount * 2);
+            for (int i = 0; i < termCount; i++) {
+                String normalized = normalizedTerms[i];
+                terms[i] = display.get(normalized);
+                termWeights[i] = (int) Math.min(Integer.MAX_VALUE, weights.get(normalized));
+                refs.add(new KeyRef(normalized, i));
+                String[] pinyin = GoodsTextAnalyzer.toPinyinKeys(normalized);
+                if (pinyin != null) {
+                    if (!pinyin[0].equals(normalized)) {
+                        refs.add(new KeyRef(pinyin[0], i));
+                    }
+                    if (pinyin[1].length() >= 2 && !pinyin[1].equals(pinyin[0]) && !pinyin[1].equals(normalized)) {
+                        refs.add(new KeyRef(pinyin[1], i));
+                    }
+                }
+            }
+            refs.sort(Comparator.comparing((KeyRef ref) -> ref.key).thenComparingInt(ref -> ref.term));
+
+            int keyCount = refs.size();
+            int totalChars = 0;
+            for (KeyRef ref : refs) {
+                totalChars += ref.key.length();
+            }
+            char[] keyChars = new char[totalChars];
+            int[] keyOffsets = new int[keyCount + 1];
+            int[] keyTerm = new int[keyCount];
+            int[] termKeys = new int[termCount * KEYS_PER_TERM];
+            Arrays.fill(termKeys, -1);
+            int offset = 0;
+            for (int pos = 0; pos < keyCount; pos++) {
+                KeyRef ref = refs.get(pos);
+                ref.key.getChars(0, ref.key.length(), keyChars, offset);
+                keyOffsets[pos] = offset;
+                offset += ref.key.length();
+                keyTerm[pos] = ref.term;
+                int slot = ref.term * KEYS_PER_TERM;
+                while (termKeys[slot] >= 0) {
+                    slot++;
+                }
+                termKeys[slot] = pos;
+            }
+            keyOffsets[keyCount] = offset;
+            return new PrefixSuggestIndex(terms, termWeights, termKeys, keyChars, keyOffsets, keyTerm);
+        }
+    }
+
+    private static final class KeyRef {
+        private final String key;
+        private final int term;
+
+        private KeyRef(String key, int term) {
+            this.key = key;
+            this.term = term;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.joolun.mall.util;
+
+import com.joolun.mall.entity.GoodsSpu;
+import org.springframework.beans.BeanUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * 召回候选池
+ *
+ * 上架商品的只读快照：商品按序号存放，热门、新品、高评分商家、品类、商家等候选列表均为商品序号数组。
+ * 品类、商家列表按热门排名（销量降序）排列，多个列表按排名做 k 路归并即可得到合并后的热门顺序，
+ * 同一商品在多个列表中排名相同，归并时相邻出现，直接去重。
+ * 返回的商品为快照的副本，调用方可以修改。
+ */
+public final class RecallCandidatePool {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final GoodsSpu[] goods;
+    private final Map<String, Integer> ordinals;
+    /**
+     * 序号 -> 热门排名
+     */
+    private final int[] hotRank;
+    private final long[] updateMillis;
+    private final int[] hot;
+    private final int[] newArrivals;
+    private final int[] highRating;
+    private final Map<String, int[]> byCategory;
+    private final Map<Long, int[]> byMerchant;
+    private final long buildTime = System.currentTimeMillis();
+
+    private RecallCandidatePool(GoodsSpu[] goods, Map<String, Integer> ordinals, int[] hotRank, long[] updateMillis,
+                                int[] hot, int[] newArrivals, int[] highRating,
+                                Map<String, int[]> byCategory, Map<Long, int[]> byMerchant) {
+        this.goods = goods;
+        this.ordinals = ordinals;
+        this.hotRank = hotRank;
+        this.updateMillis = updateMillis;
+        this.hot = hot;
+        this.newArrivals = newArrivals;
+        this.highRating = highRating;
+        this.byCategory = byCategory;
+        this.byMerchant = byMerchant;
+    }
+
+    /**
+     * 构建候选池
+     *
+     * @param shelfGoods          上架商品（不含详情）
+     * @param highRatingMerchants 高评分商家ID
+     * @param newArrivalCutoff    新品上架时间下限
+     */
+    public static RecallCandidatePool build(List<GoodsSpu> shelfGoods, Collection<Long> highRatingMerchants,
+                                            LocalDateTime newArrivalCutoff) {
+        int n = shelfGoods.size();
+        GoodsSpu[] goods = shelfGoods.toArray(new GoodsSpu[0]);
+        Map<String, Integer> ordinals = new HashMap<>(n * 2);
+        long[] updateMillis = new long[n];
+        for (int i = 0; i < n; i++) {
+            ordinals.put(goods[i].getId(), i);
+            updateMillis[i] = toMillis(goods[i].getUpdateTime());
+        }
+
+        int[] hot = sortedOrdinals(n, Comparator.comparingInt((Integer i) -> saleNum(goods[i])).reversed());
+        int[] hotRank = new int[n];
+        for (int rank = 0; rank < n; rank++) {
+            hotRank[hot[rank]] = rank;
+        }
+
+        long cutoff = toMillis(newArrivalCutoff);
+        List<Integer> fresh = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (goods[i].getCreateTime() != null && toMillis(goods[i].getCreateTime()) >= cutoff) {
+                fresh.add(i);
+            }
+        }
+        fresh.sort(Comparator.comparing((Integer i) -> goods[i].getCreateTime()).reversed());
+
+        //按热门顺序遍历，各分组天然按排名有序
+        Map<String, List<Integer>> categoryLists = new HashMap<>();
+        Map<Long, List<Integer>> merchantLists = new HashMap<>();
+        Set<Long> ratingMerchants = new HashSet<>(highRatingMerchants);
+        List<Integer> rated = new ArrayList<>();
+        for (int ordinal : hot) {
+            GoodsSpu spu = goods[ordinal];
+            if (spu.getCategoryFirst() != null) {
+                categoryLists.computeIfAbsent(spu.getCategoryFirst(), k -> new ArrayList<>()).add(ordinal);
+            }
+            if (spu.getMerchantId() != null) {
+                merchantLists.computeIfAbsent(spu.getMerchantId(), k -> new ArrayList<>()).add(ordinal);
+                if (ratingMerchants.contains(spu.getMerchantId())) {
+                    rated.add(ordinal);
+                }
+            }
+        }
+        Map<String, int[]> byCategory = new HashMap<>();
+        categoryLists.forEach((key, list) -> byCategory.put(key, toArray(list)));
+        Map<Long, int[]> byMerchant = new HashMap<>();
+        merchantLists.forEach((key, list) -> byMerchant.put(key, toArray(list)));
+
+        return new RecallCandidatePool(goods, ordinals, hotRank, updateMillis,
+                hot, toArray(fresh), toArray(rated), byCategory, byMerchant);
+    }
+
+    public int size() {
+        return goods.length;
+    }
+
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    public List<GoodsSpu> hot(int limit) {
+        return take(hot, limit);
+    }
+
+    public List<GoodsSpu> newArrivals(int limit) {
+        return take(newArrivals, limit);
+    }
+
+    public List<GoodsSpu> highRating(int limit) {
+        return take(highRating, limit);
+    }
+
+    /**
+     * 指定品类或商家的商品，按销量降序
+     *
+     * @param excludeIds 排除的商品ID
+     */
+    public List<GoodsSpu> hotIn(Collection<String> categories, Collection<Long> merchants,
+                                Collection<String> excludeIds, int limit) {
+        List<int[]> lists = new ArrayList<>();
+        if (categories != null) {
+            for (String category : categories) {
+                lists.add(byCategory.getOrDefault(category, EMPTY));
+            }
+        }
+        if (merchants != null) {
+            for (Long merchant : merchants) {
+                lists.add(byMerchant.getOrDefault(merchant, EMPTY));
+            }
+        }
+        return mergeByRank(lists, limit, excluded(excludeIds));
+    }
+
+    /**
+     * 指定品类的商品，按更新时间降序、销量降序
+     */
+    public List<GoodsSpu> recentIn(Collection<String> categories, Collection<String> excludeIds, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        IntPredicate exclude = excluded(excludeIds);
+        Comparator<Integer> order = Comparator.comparingLong((Integer i) -> updateMillis[i])
+                .thenComparingInt(i -> -hotRank[i]);
+        //小顶堆保留 limit 个最新的
+        PriorityQueue<Integer> heap = new PriorityQueue<>(order);
+        for (String category : new HashSet<>(categories)) {
+            for (int ordinal : byCategory.getOrDefault(category, EMPTY)) {
+                if (exclude.test(ordinal)) {
+                    continue;
+                }
+                heap.add(ordinal);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+        List<Integer> picked = new ArrayList<>(heap);
+        picked.sort(order.reversed());
+        List<GoodsSpu> result = new ArrayList<>(picked.size());
+        for (int ordinal : picked) {
+            result.add(copy(goods[ordinal]));
+        }
+        return result;
+    }
+
+    /**
+     * 品类或名称包含指定文本的商品，按销量降序（对应 LIKE 查询）
+     */
+    public List<GoodsSpu> hotMatching(String text, int limit) {
+        List<GoodsSpu> result = new ArrayList<>();
+        for (int i = 0; i < hot.length && result.size() < limit; i++) {
+            GoodsSpu spu = goods[hot[i]];
+            if ((spu.getCategoryFirst() != null && spu.getCategoryFirst().contains(text))
+                    || (spu.getName() != null && spu.getName().contains(text))) {
+                result.add(copy(spu));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 池中出现的一级品类
+     */
+    public Set<String> categories() {
+        return Collections.unmodifiableSet(byCategory.keySet());
+    }
+
+    /**
+     * 商品所属的一级品类（不在池中的商品忽略）
+     */
+    public Set<String> categoriesOf(Collection<String> ids) {
+        Set<String> result = new HashSet<>();
+        for (String id : ids) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null && goods[ordinal].getCategoryFirst() != null) {
+                result.add(goods[ordinal].getCategoryFirst());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 商品所属的商家（不在池中的商品忽略）
+     */
+    public Set<Long> merchantsOf(Collection<String> ids) {
+        Set<Long> result = new HashSet<>();
+        for (String id : ids) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null && goods[ordinal].getMerchantId() != null) {
+                result.add(goods[ordinal].getMerchantId());
+            }
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("goods", goods.length);
+        stats.put("newArrivals", newArrivals.length);
+        stats.put("highRating", highRating.length);
+        stats.put("categories", byCategory.size());
+        stats.put("merchants", byMerchant.size());
+        stats.put("buildTime", buildTime);
+        return stats;
+    }
+
+    private List<GoodsSpu> take(int[] list, int limit) {
+        int n = Math.min(Math.max(0, limit), list.length);
+        List<GoodsSpu> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(copy(goods[list[i]]));
+        }
+        return result;
+    }
+
+    /**
+     * 多个按热门排名有序的列表做 k 路归并
+     */
+    private List<GoodsSpu> mergeByRank(List<int[]> lists, int limit, IntPredicate exclude) {
+        List<GoodsSpu> result = new ArrayList<>();
+        if (lists.isEmpty() || limit <= 0) {
+            return result;
+        }
+        int[] cursors = new int[lists.size()];
+        int lastRank = -1;
+        while (result.size() < limit) {
+            int best = -1;
+            int bestRank = Integer.MAX_VALUE;
+            for (int k = 0; k < lists.size(); k++) {
+                int[] list = lists.get(k);
+                //跳过与上一个相同的商品
+                while (cursors[k] < list.length && hotRank[list[cursors[k]]] <= lastRank) {
+                    cursors[k]++;
+                }
+                if (cursors[k] < list.length && hotRank[list[cursors[k]]] < bestRank) {
+                    best = k;
+                    bestRank = hotRank[list[cursors[k]]];
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            int ordinal = lists.get(best)[cursors[best]++];
+            lastRank = bestRank;
+            if (!exclude.test(ordinal)) {
+                result.add(copy(goods[ordinal]));
+            }
+        }
+        return result;
+    }
+
+    private IntPredicate excluded(Collection<String> excludeIds) {
+        if (excludeIds == null || excludeIds.isEmpty()) {
+            return ordinal -> false;
+        }
+        Set<Integer> excluded = new HashSet<>();
+        for (String id : excludeIds) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                excluded.add(ordinal);
+            }
+        }
+        return excluded::contains;
+    }
+
+    private static GoodsSpu copy(GoodsSpu source) {
+        GoodsSpu target = new GoodsSpu();
+        BeanUtils.copyProperties(source, target);
+        return target;
+    }
+
+    private static int[] sortedOrdinals(int n, Comparator<Integer> comparator) {
+        List<Integer> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(i);
+        }
+        list.sort(comparator);
+        return toArray(list);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static int saleNum(GoodsSpu spu) {
+        return spu.getSaleNum() != null ? spu.getSaleNum() : 0;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+}
@@ -0,0 +1,1350 @@
+package com.joolun.mall.util;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 带容量与时间窗的车辆路径问题 (CVRPTW) 求解器
+ *
+ * 节点 0 为仓库，1..n 为客户；距离为经纬度的 Haversine 距离（公里），构建问题时一次性算成矩阵，
+ * 行驶时间按平均车速换算为分钟。每辆车有重量、体积两个容量，客户有最早/最晚开始服务时间与服务时长，
+ * 早到等待，晚到不可行；无法安排的客户按各自的惩罚值计入目标函数。目标为总里程 + 未安排惩罚。
+ *
+ * 求解过程：
+ * 1. Clarke-Wright 节约算法构造初始解（只考虑近邻客户对），按最佳适配把路线分给车辆，放不下的客户再做贪心插入。
+ * 2. 自适应大邻域搜索 (ALNS)：随机/最差/相关/整条路线四种破坏算子，贪心与 regret-2 两种修复算子，
+ *    按算子近期表现自适应调整选择概率；模拟退火接受准则，温度随已用时间比例几何下降。
+ * 3. 每次修复后做局部搜索：2-opt、or-opt（1~3 个连续客户平移，含单点 relocate）与 cross-exchange（两条路线
+ *    各 1~2 个客户互换），只在近邻客户对上枚举，先用 O(1) 里程差筛选，再对改动路线做完整可行性检查。
+ *
+ * 在时间预算内多个线程从同一初始解出发、以不同随机种子独立搜索，取最优解。
+ */
+public final class VrpSolver {
+
+    private static final double EPS = 1e-9;
+
+    /**
+     * 近邻客户数（节约对与局部搜索的候选范围）
+     */
+    private static final int NEIGHBORS = 15;
+
+    /**
+     * 算子权重更新周期（迭代次数）与反应系数
+     */
+    private static final int SEGMENT = 100;
+    private static final double REACTION = 0.1;
+
+    /**
+     * 算子得分：得到新的全局最优 / 优于当前解 / 被退火准则接受
+     */
+    private static final double SCORE_BEST = 33;
+    private static final double SCORE_BETTER = 9;
+    private static final double SCORE_ACCEPTED = 13;
+
+    private static final int DESTROY_RANDOM = 0;
+    private static final int DESTROY_WORST = 1;
+    private static final int DESTROY_RELATED = 2;
+    private static final int DESTROY_ROUTE = 3;
+    private static final String[] DESTROY_NAMES = {"random", "worst", "related", "route"};
+    private static final String[] REPAIR_NAMES = {"greedy", "regret2"};
+
+    private VrpSolver() {
+    }
+
+    @Data
+    public static class Options {
+        /**
+         * 求解时间预算（毫秒）
+         */
+        private long timeBudgetMs = 2000;
+        /**
+         * 并行重启线程数，不大于 0 时取 CPU 核数
+         */
+        private int threads = 0;
+        /**
+         * 连续多少次迭代没有刷新最优解时提前结束，小规模实例不必耗尽时间预算
+         */
+        private int maxIdleIterations = 20000;
+        private long seed = 42;
+    }
+
+    /**
+     * 单条路线的结果
+     */
+    @Data
+    public static class Route {
+        /**
+         * 车辆序号（添加顺序）
+         */
+        private int vehicle;
+        /**
+         * 按服务顺序排列的客户序号（1..n，添加顺序）
+         */
+        private int[] customers;
+        /**
+         * 各客户的开始服务时间（分钟）
+         */
+        private double[] serviceStart;
+        private double distance;
+        private double loadWeight;
+        private double loadVolume;
+        /**
+         * 离开仓库与返回仓库的时间（分钟）
+         */
+        private double departure;
+        private double returnTime;
+    }
+
+    /**
+     * 求解结果
+     */
+    @Data
+    public static class Solution {
+        private List<Route> routes;
+        /**
+         * 无法安排的客户序号
+         */
+        private int[] unassigned;
+        private double totalDistance;
+        /**
+         * 初始解（节约算法 + 贪心插入）的总里程与未安排数
+         */
+        private double constructionDistance;
+        private int constructionUnassigned;
+        private long iterations;
+        private int threads;
+        private long elapsedMs;
+        /**
+         * 各破坏、修复算子的最终选择权重
+         */
+        private double[] destroyWeights;
+        private double[] repairWeights;
+
+        public String[] getDestroyOperators() {
+            return DESTROY_NAMES.clone();
+        }
+
+        public String[] getRepairOperators() {
+            return REPAIR_NAMES.clone();
+        }
+    }
+
+    // ==================== 问题定义 ====================
+
+    /**
+     * 问题实例，由 {@link #builder} 构建后只读，可被多个线程共享
+     */
+    public static final class Problem {
+        private final int n;
+        private final int size;
+        private final int vehicles;
+        private final double[] dist;
+        private final double[] travel;
+        private final double[] weight;
+        private final double[] volume;
+        private final double[] ready;
+        private final double[] due;
+        private final double[] service;
+        private final double[] penalty;
+        private final double[] capWeight;
+        private final double[] capVolume;
+        private final int[][] neighbors;
+        private final double maxDistance;
+        private final double horizon;
+
+        private Problem(Builder b) {
+            this.n = b.customers.size();
+            this.size = n + 1;
+            this.vehicles = b.vehicles.size();
+            weight = new double[size];
+            volume = new double[size];
+            ready = new double[size];
+            due = new double[size];
+            service = new double[size];
+            penalty = new double[size];
+            double[] lat = new double[size];
+            double[] lng = new double[size];
+            lat[0] = b.depotLat;
+            lng[0] = b.depotLng;
+            ready[0] = b.depotReady;
+            due[0] = b.depotDue;
+            for (int i = 1; i <= n; i++) {
+                double[] c = b.customers.get(i - 1);
+                lat[i] = c[0];
+                lng[i] = c[1];
+                weight[i] = c[2];
+                volume[i] = c[3];
+                ready[i] = c[4];
+                due[i] = c[5];
+                service[i] = c[6];
+                penalty[i] = c[7];
+            }
+            capWeight = new double[vehicles];
+            capVolume = new double[vehicles];
+            for (int v = 0; v < vehicles; v++) {
+                capWeight[v] = b.vehicles.get(v)[0];
+                capVolume[v] = b.vehicles.get(v)[1];
+            }
+
+            dist = new double[size * size];
+            travel = new double[size * size];
+            double minutesPerKm = 60.0 / b.speedKmh;
+            double max = 0;
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    double d = haversine(lat[i], lng[i], lat[j], lng[j]);
+                    dist[i * size + j] = d;
+                    dist[j * size + i] = d;
+                    travel[i * size + j] = d * minutesPerKm;
+                    travel[j * size + i] = d * minutesPerKm;
+                    max = Math.max(max, d);
+                }
+            }
+            maxDistance = Math.max(max, EPS);
+            horizon = Math.max(b.depotDue - b.depotReady, EPS);
+
+            int k = Math.min(NEIGHBORS, Math.max(0, n - 1));
+            neighbors = new int[size][];
+            neighbors[0] = new int[0];
+            Integer[] order = new Integer[n];
+            for (int i = 1; i <= n; i++) {
+                for (int j = 0; j < n; j++) {
+                    order[j] = j + 1;
+                }
+                final int from = i;
+                Arrays.sort(order, Comparator.comparingDouble(j -> j == from ? Double.MAX_VALUE : dist[from * size + j]));
+                neighbors[i] = new int[k];
+                for (int j = 0; j < k; j++) {
+                    neighbors[i][j] = order[j];
+                }
+            }
+        }
+
+        public int customers() {
+            return n;
+        }
+
+        public int vehicles() {
+            return vehicles;
+        }
+
+        public double distance(int a, int b) {
+            return dist[a * size + b];
+        }
+
+        public double ready(int customer) {
+            return ready[customer];
+        }
+
+        public double due(int customer) {
+            return due[customer];
+        }
+
+        public double serviceMinutes(int customer) {
+            return service[customer];
+        }
+
+        public double weight(int customer) {
+            return weight[customer];
+        }
+
+        public double volume(int customer) {
+            return volume[customer];
+        }
+
+        public double capacityWeight(int vehicle) {
+            return capWeight[vehicle];
+        }
+
+        public double capacityVolume(int vehicle) {
+            return capVolume[vehicle];
+        }
+
+        /**
+         * 两点间行驶时间（分钟）
+         */
+        public double travelMinutes(int a, int b) {
+            return travel[a * size + b];
+        }
+    }
+
+    /**
+     * @param depotLat   仓库纬度
+     * @param depotLng   仓库经度
+     * @param depotReady 最早出车时间（分钟）
+     * @param depotDue   最晚回仓时间（分钟）
+     * @param speedKmh   平均车速
+     */
+    public static Builder builder(double depotLat, double depotLng, double depotReady, double depotDue, double speedKmh) {
+        return new Builder(depotLat, depotLng, depotReady, depotDue, speedKmh);
+    }
+
+    public static final class Builder {
+        private final double depotLat;
+        private final double depotLng;
+        private final double depotReady;
+        private final double depotDue;
+        private final double speedKmh;
+        private final List<double[]> customers = new ArrayList<>();
+        private final List<double[]> vehicles = new ArrayList<>();
+
+        private Builder(double depotLat, double depotLng, double depotReady, double depotDue, double speedKmh) {
+            this.depotLat = depotLat;
+            this.depotLng = depotLng;
+            this.depotReady = depotReady;
+            this.depotDue = depotDue;
+            this.speedKmh = speedKmh;
+        }
+
+        /**
+         * 添加客户，返回客户序号（从 1 开始）
+         *
+         * @param ready   最早开始服务时间（分钟）
+         * @param due     最晚开始服务时间（分钟）
+         * @param penalty 无法安排时计入目标函数的惩罚（与公里同量纲）
+         */
+        public int addCustomer(double lat, double lng, double weight, double volume,
+                               double ready, double due, double serviceMinutes, double penalty) {
+            customers.add(new double[]{lat, lng, weight, volume, ready, due, serviceMinutes, penalty});
+            return customers.size();
+        }
+
+        /**
+         * 添加车辆，返回车辆序号（从 0 开始）
+         */
+        public int addVehicle(double capacityWeight, double capacityVolume) {
+            vehicles.add(new double[]{capacityWeight, capacityVolume});
+            return vehicles.size() - 1;
+        }
+
+        public Problem build() {
+            return new Problem(this);
+        }
+    }
+
+    /**
+     * 两点间球面距离（公里）
+     */
+    public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * 路线总里程（不检查可行性）
+     */
+    public static double routeDistance(Problem p, int[] route) {
+        double d = 0;
+        int prev = 0;
+        for (int c : route) {
+            d += p.distance(prev, c);
+            prev = c;
+        }
+        return d + p.distance(prev, 0);
+    }
+
+    /**
+     * 路线对指定车辆（vehicle 为 -1 时按最大容量）的可行性检查，可行时返回里程，否则返回正无穷
+     */
+    static double evaluate(Problem p, int[] route, int vehicle) {
+        double w = 0;
+        double vol = 0;
+        for (int c : route) {
+            w += p.weight[c];
+            vol += p.volume[c];
+        }
+        double capW = vehicle >= 0 ? p.capWeight[vehicle] : max(p.capWeight);
+        double capV = vehicle >= 0 ? p.capVolume[vehicle] : max(p.capVolume);
+        if (w > capW + EPS || vol > capV + EPS) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double t = p.ready[0];
+        double d = 0;
+        int prev = 0;
+        for (int c : route) {
+            t += p.travelMinutes(prev, c);
+            if (t > p.due[c] + EPS) {
+                return Double.POSITIVE_INFINITY;
+            }
+            t = Math.max(t, p.ready[c]) + p.service[c];
+            d += p.distance(prev, c);
+            prev = c;
+        }
+        t += p.travelMinutes(prev, 0);
+        if (t > p.due[0] + EPS) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return d + p.distance(prev, 0);
+    }
+
+    // ==================== 求解入口 ====================
+
+    public static Solution solve(Problem p, Options options) {
+        long start = System.currentTimeMillis();
+        long deadline = start + Math.max(0, options.getTimeBudgetMs());
+        int threads = options.getThreads() > 0 ? options.getThreads() : Runtime.getRuntime().availableProcessors();
+
+        State initial = construct(p);
+        double constructionDistance = initial.distance;
+        int constructionUnassigned = initial.unassignedCount();
+
+        Search[] searches = new Search[threads];
+        for (int t = 0; t < threads; t++) {
+            searches[t] = new Search(p, initial, options.getSeed() + t * 7919L, start, deadline,
+                    options.getMaxIdleIterations());
+        }
+        if (p.n > 0 && p.vehicles > 0 && deadline > System.currentTimeMillis()) {
+            if (threads == 1) {
+                searches[0].run();
+            } else {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (Search search : searches) {
+                        futures.add(executor.submit(search));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    throw new IllegalStateException("路径求解失败", e);
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        }
+
+        Search winner = searches[0];
+        long iterations = 0;
+        for (Search search : searches) {
+            iterations += search.iterations;
+            if (search.best.cost() < winner.best.cost() - EPS) {
+                winner = search;
+            }
+        }
+        Solution solution = toSolution(p, winner.best);
+        solution.setConstructionDistance(constructionDistance);
+        solution.setConstructionUnassigned(constructionUnassigned);
+        solution.setIterations(iterations);
+        solution.setThreads(threads);
+        solution.setDestroyWeights(winner.destroyWeights);
+        solution.setRepairWeights(winner.repairWeights);
+        solution.setElapsedMs(System.currentTimeMillis() - start);
+        return solution;
+    }
+
+    private static Solution toSolution(Problem p, State s) {
+        List<Route> routes = new ArrayList<>();
+        for (int v = 0; v < p.vehicles; v++) {
+            int[] r = s.routes[v];
+            if (r.length == 0) {
+                continue;
+            }
+            Route route = new Route();
+            route.setVehicle(v);
+            route.setCustomers(r.clone());
+            double[] starts = new double[r.length];
+            double t = p.ready[0];
+            int prev = 0;
+            for (int i = 0; i < r.length; i++) {
+                t = Math.max(t + p.travelMinutes(prev, r[i]), p.ready[r[i]]);
+                starts[i] = t;
+                t += p.service[r[i]];
+                prev = r[i];
+            }
+            route.setServiceStart(starts);
+            route.setDeparture(p.ready[0]);
+            route.setReturnTime(t + p.travelMinutes(prev, 0));
+            route.setDistance(s.routeDist[v]);
+            route.setLoadWeight(s.loadW[v]);
+            route.setLoadVolume(s.loadV[v]);
+            routes.add(route);
+        }
+        Solution solution = new Solution();
+        solution.setRoutes(routes);
+        solution.setTotalDistance(s.distance);
+        int[] unassigned = new int[s.unassignedCount()];
+        int u = 0;
+        for (int c = 1; c <= p.n; c++) {
+            if (s.routeOf[c] < 0) {
+                unassigned[u++] = c;
+            }
+        }
+        solution.setUnassigned(unassigned);
+        return solution;
+    }
+
+    // ==================== 解的表示 ====================
+
+    /**
+     * 可变解：每辆车一条路线，路线为不可变数组，修改时整体替换，因此复制解只需复制引用
+     */
+    private static final class State {
+        final Problem p;
+        final int[][] routes;
+        final double[] routeDist;
+        final double[] loadW;
+        final double[] loadV;
+        /**
+         * 客户所在车辆（-1 为未安排）与在路线中的位置
+         */
+        final int[] routeOf;
+        final int[] pos;
+        double distance;
+        double penalty;
+
+        State(Problem p) {
+            this.p = p;
+            routes = new int[p.vehicles][];
+            Arrays.fill(routes, new int[0]);
+            routeDist = new double[p.vehicles];
+            loadW = new double[p.vehicles];
+            loadV = new double[p.vehicles];
+            routeOf = new int[p.size];
+            Arrays.fill(routeOf, -1);
+            pos = new int[p.size];
+            for (int c = 1; c <= p.n; c++) {
+                penalty += p.penalty[c];
+            }
+        }
+
+        State(State o) {
+            p = o.p;
+            routes = o.routes.clone();
+            routeDist = o.routeDist.clone();
+            loadW = o.loadW.clone();
+            loadV = o.loadV.clone();
+            routeOf = o.routeOf.clone();
+            pos = o.pos.clone();
+            distance = o.distance;
+            penalty = o.penalty;
+        }
+
+        double cost() {
+            return distance + penalty;
+        }
+
+        int unassignedCount() {
+            int count = 0;
+            for (int c = 1; c <= p.n; c++) {
+                if (routeOf[c] < 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * 替换车辆 v 的路线。原路线中不在新路线里的客户变为未安排，
+         * 先替换移出方、再替换移入方即可完成跨路线移动
+         */
+        void setRoute(int v, int[] r, double d) {
+            for (int c : routes[v]) {
+                if (routeOf[c] == v) {
+                    routeOf[c] = -1;
+                    penalty += p.penalty[c];
+                }
+            }
+            double w = 0;
+            double vol = 0;
+            for (int i = 0; i < r.length; i++) {
+                int c = r[i];
+                if (routeOf[c] < 0) {
+                    penalty -= p.penalty[c];
+                }
+                routeOf[c] = v;
+                pos[c] = i;
+                w += p.weight[c];
+                vol += p.volume[c];
+            }
+            routes[v] = r;
+            distance += d - routeDist[v];
+            routeDist[v] = d;
+            loadW[v] = w;
+            loadV[v] = vol;
+        }
+
+        int prev(int c) {
+            int i = pos[c];
+            return i == 0 ? 0 : routes[routeOf[c]][i - 1];
+        }
+
+        int next(int c) {
+            int[] r = routes[routeOf[c]];
+            int i = pos[c];
+            return i == r.length - 1 ? 0 : r[i + 1];
+        }
+    }
+
+    // ==================== 初始解 ====================
+
+    /**
+     * 节约算法：近邻客户对按节约值降序，两端相接且合并后按最大容量可行则合并
+     */
+    private static State construct(Problem p) {
+        int n = p.n;
+        State s = new State(p);
+        if (n == 0 || p.vehicles == 0) {
+            return s;
+        }
+        int[][] chains = new int[n + 1][];
+        int[] owner = new int[n + 1];
+        for (int c = 1; c <= n; c++) {
+            owner[c] = c;
+            chains[c] = evaluate(p, new int[]{c}, -1) < Double.POSITIVE_INFINITY ? new int[]{c} : null;
+        }
+
+        List<long[]> pairs = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            for (int j : p.neighbors[i]) {
+                if (i < j || !contains(p.neighbors[j], i)) {
+                    double saving = p.distance(0, i) + p.distance(0, j) - p.distance(i, j);
+                    if (saving > 0) {
+                        pairs.add(new long[]{Double.doubleToLongBits(saving), i, j});
+                    }
+                }
+            }
+        }
+        //正数的 IEEE 754 位模式与数值同序
+        pairs.sort((a, b) -> Long.compare(b[0], a[0]));
+
+        for (long[] pair : pairs) {
+            int i = (int) pair[1];
+            int j = (int) pair[2];
+            int ri = owner[i];
+            int rj = owner[j];
+            if (ri == rj || chains[ri] == null || chains[rj] == null) {
+                continue;
+            }
+            int[] a = chains[ri];
+            int[] b = chains[rj];
+            int[] merged = null;
+            if (a[a.length - 1] == i && b[0] == j) {
+                merged = concat(a, b);
+            } else if (b[b.length - 1] == j && a[0] == i) {
+                merged = concat(b, a);
+            }
+            if (merged == null || evaluate(p, merged, -1) == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            chains[ri] = merged;
+            chains[rj] = null;
+            for (int c : b) {
+                owner[c] = ri;
+            }
+        }
+
+        //按载重降序给路线分配能装下的最小车辆（最佳适配）
+        List<int[]> routes = new ArrayList<>();
+        for (int c = 1; c <= n; c++) {
+            if (chains[c] != null && owner[c] == c) {
+                routes.add(chains[c]);
+            }
+        }
+        routes.sort(Comparator.comparingDouble((int[] r) -> load(p.weight, r)).reversed());
+        boolean[] used = new boolean[p.vehicles];
+        for (int[] r : routes) {
+            int bestVehicle = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int v = 0; v < p.vehicles; v++) {
+                if (used[v]) {
+                    continue;
+                }
+                double d = evaluate(p, r, v);
+                if (d < Double.POSITIVE_INFINITY && (bestVehicle < 0 || p.capWeight[v] < p.capWeight[bestVehicle])) {
+                    bestVehicle = v;
+                    bestDistance = d;
+                }
+            }
+            if (bestVehicle >= 0) {
+                used[bestVehicle] = true;
+                s.setRoute(bestVehicle, r, bestDistance);
+            }
+        }
+
+        //放不下的客户贪心插入
+        repair(s, unassigned(s), false, null);
+        return s;
+    }
+
+    // ==================== 修复（插入） ====================
+
+    /**
+     * 逐个插入待安排客户：贪心取全局最小插入代价；regret-2 取最优与次优路线代价差最大的客户。
+     * 每条路线预先算出各节点离开时间与最晚到达时间，单个位置的时间窗检查为 O(1)。
+     * 插入后只重算被修改路线上的代价
+     */
+    private static void repair(State s, int[] pending, boolean regret, SplittableRandom random) {
+        Problem p = s.p;
+        int m = pending.length;
+        if (m == 0) {
+            return;
+        }
+        int vehicles = p.vehicles;
+        double[][] cost = new double[m][vehicles];
+        int[][] position = new int[m][vehicles];
+        boolean[] done = new boolean[m];
+        double[][] depart = new double[vehicles][];
+        double[][] latest = new double[vehicles][];
+        for (int v = 0; v < vehicles; v++) {
+            timing(p, s.routes[v], v, depart, latest);
+            for (int k = 0; k < m; k++) {
+                bestInsertion(s, pending[k], v, depart[v], latest[v], cost[k], position[k]);
+            }
+        }
+
+        for (int step = 0; step < m; step++) {
+            int pick = -1;
+            int pickVehicle = -1;
+            double pickKey = Double.NEGATIVE_INFINITY;
+            double pickCost = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < m; k++) {
+                if (done[k]) {
+                    continue;
+                }
+                double best = Double.POSITIVE_INFINITY;
+                double second = Double.POSITIVE_INFINITY;
+                int bestVehicle = -1;
+                for (int v = 0; v < vehicles; v++) {
+                    double c = cost[k][v];
+                    if (c < best) {
+                        second = best;
+                        best = c;
+                        bestVehicle = v;
+                    } else if (c < second) {
+                        second = c;
+                    }
+                }
+                if (bestVehicle < 0) {
+                    continue;
+                }
+                double key;
+                if (regret) {
+                    //只剩一条可行路线的客户优先，差值相同时代价小者优先
+                    key = (second == Double.POSITIVE_INFINITY ? 1e12 : second - best) - best * 1e-6;
+                } else {
+                    key = -best;
+                }
+                if (random != null) {
+                    key += random.nextDouble() * 1e-9;
+                }
+                if (key > pickKey) {
+                    pickKey = key;
+                    pick = k;
+                    pickVehicle = bestVehicle;
+                    pickCost = best;
+                }
+            }
+            if (pick < 0) {
+                break;
+            }
+            int c = pending[pick];
+            int v = pickVehicle;
+            int[] r = insert(s.routes[v], position[pick][v], c);
+            s.setRoute(v, r, s.routeDist[v] + pickCost);
+            done[pick] = true;
+            timing(p, r, v, depart, latest);
+            for (int k = 0; k < m; k++) {
+                if (!done[k]) {
+                    bestInsertion(s, pending[k], v, depart[v], latest[v], cost[k], position[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * depart[i]：路线第 i 个位置（0 为仓库出发）的离开时间；
+     * latest[i]：第 i 个位置（1..L 为客户，L + 1 为回仓）最晚到达时间，晚于此则后续不可行
+     */
+    private static void timing(Problem p, int[] r, int v, double[][] depart, double[][] latest) {
+        int len = r.length;
+        double[] dep = new double[len + 1];
+        double[] lat = new double[len + 2];
+        dep[0] = p.ready[0];
+        int prev = 0;
+        for (int i = 0; i < len; i++) {
+            double arrive = dep[i] + p.travelMinutes(prev, r[i]);
+            dep[i + 1] = Math.max(arrive, p.ready[r[i]]) + p.service[r[i]];
+            prev = r[i];
+        }
+        lat[len + 1] = p.due[0];
+        int next = 0;
+        for (int i = len; i >= 1; i--) {
+            int c = r[i - 1];
+            lat[i] = Math.min(p.due[c], lat[i + 1] - p.travelMinutes(c, next) - p.service[c]);
+            next = c;
+        }
+        depart[v] = dep;
+        latest[v] = lat;
+    }
+
+    private static void bestInsertion(State s, int c, int v, double[] dep, double[] lat,
+                                      double[] costs, int[] positions) {
+        Problem p = s.p;
+        costs[v] = Double.POSITIVE_INFINITY;
+        if (s.loadW[v] + p.weight[c] > p.capWeight[v] + EPS || s.loadV[v] + p.volume[c] > p.capVolume[v] + EPS) {
+            return;
+        }
+        int[] r = s.routes[v];
+        int prev = 0;
+        for (int i = 0; i <= r.length; i++) {
+            int next = i < r.length ? r[i] : 0;
+            double arrive = dep[i] + p.travelMinutes(prev, c);
+            if (arrive > p.due[c] + EPS) {
+                //离开时间沿路线单调不减，之后的位置同样来不及
+                break;
+            }
+            double leave = Math.max(arrive, p.ready[c]) + p.service[c];
+            if (leave + p.travelMinutes(c, next) <= lat[i + 1] + EPS) {
+                double delta = p.distance(prev, c) + p.distance(c, next) - p.distance(prev, next);
+                if (delta < costs[v]) {
+                    costs[v] = delta;
+                    positions[v] = i;
+                }
+            }
+            prev = next;
+        }
+    }
+
+    // ==================== 局部搜索 ====================
+
+    /**
+     * 近邻客户对上的首次改进局部搜索，直到一整轮没有改进
+     */
+    private static void localSearch(State s) {
+        Problem p = s.p;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int u = 1; u <= p.n; u++) {
+                if (s.routeOf[u] < 0) {
+                    continue;
+                }
+                for (int v : p.neighbors[u]) {
+                    if (s.routeOf[v] < 0 || s.routeOf[u] < 0) {
+                        continue;
+                    }
+                    if (twoOpt(s, u, v) || orOpt(s, u, v) || crossExchange(s, u, v)) {
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 同一路线内 2-opt：边 (u, u+) 与 (v, v+) 换为 (u, v) 与 (u+, v+)，中间段反转
+     */
+    private static boolean twoOpt(State s, int u, int v) {
+        int ru = s.routeOf[u];
+        if (ru != s.routeOf[v]) {
+            return false;
+        }
+        int i = s.pos[u];
+        int j = s.pos[v];
+        if (i > j) {
+            int t = i;
+            i = j;
+            j = t;
+            t = u;
+            u = v;
+            v = t;
+        }
+        if (j - i < 2) {
+            return false;
+        }
+        Problem p = s.p;
+        int un = s.next(u);
+        int vn = s.next(v);
+        double delta = p.distance(u, v) + p.distance(un, vn) - p.distance(u, un) - p.distance(v, vn);
+        if (delta > -EPS) {
+            return false;
+        }
+        int[] r = s.routes[ru].clone();
+        for (int a = i + 1, b = j; a < b; a++, b--) {
+            int t = r[a];
+            r[a] = r[b];
+            r[b] = t;
+        }
+        return apply(s, ru, r, -1, null, delta);
+    }
+
+    /**
+     * or-opt / relocate：以 u 开头的 1~3 个连续客户整体移到 v 之后（同一或不同路线）
+     */
+    private static boolean orOpt(State s, int u, int v) {
+        Problem p = s.p;
+        int ru = s.routeOf[u];
+        int rv = s.routeOf[v];
+        int[] from = s.routes[ru];
+        int i = s.pos[u];
+        for (int len = 1; len <= 3 && i + len <= from.length; len++) {
+            int last = from[i + len - 1];
+            int j = s.pos[v];
+            if (ru == rv && j >= i - 1 && j < i + len) {
+                //v 在段内或就在段前，移动无意义
+                continue;
+            }
+            int before = s.prev(u);
+            int after = i + len < from.length ? from[i + len] : 0;
+            int vn = s.next(v);
+            double delta = p.distance(before, after) - p.distance(before, u) - p.distance(last, after)
+                    + p.distance(v, u) + p.distance(last, vn) - p.distance(v, vn);
+            if (delta > -EPS) {
+                continue;
+            }
+            if (ru != rv) {
+                double segW = 0;
+                double segV = 0;
+                for (int k = i; k < i + len; k++) {
+                    segW += p.weight[from[k]];
+                    segV += p.volume[from[k]];
+                }
+                if (s.loadW[rv] + segW > p.capWeight[rv] + EPS || s.loadV[rv] + segV > p.capVolume[rv] + EPS) {
+                    continue;
+                }
+                int[] newFrom = new int[from.length - len];
+                System.arraycopy(from, 0, newFrom, 0, i);
+                System.arraycopy(from, i + len, newFrom, i, from.length - i - len);
+                int[] to = s.routes[rv];
+                int[] newTo = new int[to.length + len];
+                System.arraycopy(to, 0, newTo, 0, j + 1);
+                System.arraycopy(from, i, newTo, j + 1, len);
+                System.arraycopy(to, j + 1, newTo, j + 1 + len, to.length - j - 1);
+                if (apply(s, ru, newFrom, rv, newTo, delta)) {
+                    return true;
+                }
+            } else {
+                int[] r = new int[from.length];
+                int w = 0;
+                for (int k = 0; k < from.length; k++) {
+                    if (k >= i && k < i + len) {
+                        continue;
+                    }
+                    r[w++] = from[k];
+                    if (k == j) {
+                        for (int x = i; x < i + len; x++) {
+                            r[w++] = from[x];
+                        }
+                    }
+                }
+                if (apply(s, ru, r, -1, null, delta)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * cross-exchange：以 u 开头的 1~2 个客户与以 v 开头的 1~2 个客户在两条路线间互换
+     */
+    private static boolean crossExchange(State s, int u, int v) {
+        int ru = s.routeOf[u];
+        int rv = s.routeOf[v];
+        if (ru == rv) {
+            return false;
+        }
+        Problem p = s.p;
+        int[] a = s.routes[ru];
+        int[] b = s.routes[rv];
+        int i = s.pos[u];
+        int j = s.pos[v];
+        for (int la = 1; la <= 2 && i + la <= a.length; la++) {
+            for (int lb = 1; lb <= 2 && j + lb <= b.length; lb++) {
+                int aPrev = i == 0 ? 0 : a[i - 1];
+                int aNext = i + la < a.length ? a[i + la] : 0;
+                int bPrev = j == 0 ? 0 : b[j - 1];
+                int bNext = j + lb < b.length ? b[j + lb] : 0;
+                int aLast = a[i + la - 1];
+                int bLast = b[j + lb - 1];
+                double delta = p.distance(aPrev, v) + p.distance(bLast, aNext)
+                        + p.distance(bPrev, u) + p.distance(aLast, bNext)
+                        - p.distance(aPrev, u) - p.distance(aLast, aNext)
+                        - p.distance(bPrev, v) - p.distance(bLast, bNext);
+                if (delta > -EPS) {
+                    continue;
+                }
+                double dw = load(p.weight, b, j, lb) - load(p.weight, a, i, la);
+                double dv = load(p.volume, b, j, lb) - load(p.volume, a, i, la);
+                if (s.loadW[ru] + dw > p.capWeight[ru] + EPS || s.loadV[ru] + dv > p.capVolume[ru] + EPS
+                        || s.loadW[rv] - dw > p.capWeight[rv] + EPS || s.loadV[rv] - dv > p.capVolume[rv] + EPS) {
+                    continue;
+                }
+                int[] newA = splice(a, i, la, b, j, lb);
+                int[] newB = splice(b, j, lb, a, i, la);
+                if (apply(s, ru, newA, rv, newB, delta)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 对改动路线做完整可行性检查，可行且里程确有下降时提交
+     */
+    private static boolean apply(State s, int ra, int[] a, int rb, int[] b, double expectedDelta) {
+        Problem p = s.p;
+        double da = evaluate(p, a, ra);
+        if (da == Double.POSITIVE_INFINITY) {
+            return false;
+        }
+        double db = 0;
+        if (rb >= 0) {
+            db = evaluate(p, b, rb);
+            if (db == Double.POSITIVE_INFINITY) {
+                return false;
+            }
+        }
+        double delta = da - s.routeDist[ra] + (rb >= 0 ? db - s.routeDist[rb] : 0);
+        if (delta > -EPS || Math.abs(delta - expectedDelta) > 1e-6) {
+            return false;
+        }
+        s.setRoute(ra, a, da);
+        if (rb >= 0) {
+            s.setRoute(rb, b, db);
+        }
+        return true;
+    }
+
+    // ==================== ALNS ====================
+
+    private static final class Search implements Runnable {
+        final Problem p;
+        final SplittableRandom random;
+        final long start;
+        final long deadline;
+        final int maxIdle;
+        State best;
+        State current;
+        long iterations;
+        final double[] destroyWeights = {1, 1, 1, 1};
+        final double[] repairWeights = {1, 1};
+
+        Search(Problem p, State initial, long seed, long start, long deadline, int maxIdle) {
+            this.p = p;
+            this.random = new SplittableRandom(seed);
+            this.start = start;
+            this.deadline = deadline;
+            this.maxIdle = maxIdle;
+            this.best = new State(initial);
+            this.current = new State(initial);
+        }
+
+        @Override
+        public void run() {
+            localSearch(current);
+            if (current.cost() < best.cost() - EPS) {
+                best = new State(current);
+            }
+            //起始温度：比当前差 5% 的解以 50% 概率被接受
+            double t0 = Math.max(0.05 * current.cost() / Math.log(2), EPS);
+            double tEnd = t0 * 0.002;
+            double[] destroyScore = new double[destroyWeights.length];
+            int[] destroyCount = new int[destroyWeights.length];
+            double[] repairScore = new double[repairWeights.length];
+            int[] repairCount = new int[repairWeights.length];
+            int minRemove = Math.min(p.n, 4);
+            int maxRemove = Math.max(minRemove, Math.min(p.n, Math.max(10, p.n * 3 / 10)));
+
+            long lastImproved = 0;
+            long now;
+            while ((now = System.currentTimeMillis()) < deadline) {
+                if (Thread.currentThread().isInterrupted() || (maxIdle > 0 && iterations - lastImproved >= maxIdle)) {
+                    break;
+                }
+                iterations++;
+                double fraction = (double) (now - start) / Math.max(1, deadline - start);
+                double temperature = t0 * Math.pow(tEnd / t0, Math.min(1, fraction));
+
+                int d = roulette(destroyWeights);
+                int r = roulette(repairWeights);
+                int q = minRemove + random.nextInt(maxRemove - minRemove + 1);
+                State candidate = new State(current);
+                destroy(candidate, d, q);
+                repair(candidate, unassigned(candidate), r == 1, random);
+                localSearch(candidate);
+
+                double score = 0;
+                if (candidate.cost() < best.cost() - EPS) {
+                    best = new State(candidate);
+                    current = candidate;
+                    lastImproved = iterations;
+                    score = SCORE_BEST;
+                } else if (candidate.cost() < current.cost() - EPS) {
+                    current = candidate;
+                    score = SCORE_BETTER;
+                } else if (random.nextDouble() < Math.exp((current.cost() - candidate.cost()) / temperature)) {
+                    current = candidate;
+                    score = SCORE_ACCEPTED;
+                }
+                destroyScore[d] += score;
+                destroyCount[d]++;
+                repairScore[r] += score;
+                repairCount[r]++;
+                if (iterations % SEGMENT == 0) {
+                    updateWeights(destroyWeights, destroyScore, destroyCount);
+                    updateWeights(repairWeights, repairScore, repairCount);
+                }
+            }
+        }
+
+        private void updateWeights(double[] weights, double[] scores, int[] counts) {
+            for (int i = 0; i < weights.length; i++) {
+                if (counts[i] > 0) {
+                    weights[i] = weights[i] * (1 - REACTION) + REACTION * scores[i] / counts[i];
+                }
+                weights[i] = Math.max(weights[i], 0.05);
+                scores[i] = 0;
+                counts[i] = 0;
+            }
+        }
+
+        private int roulette(double[] weights) {
+            double total = 0;
+            for (double w : weights) {
+                total += w;
+            }
+            double x = random.nextDouble() * total;
+            for (int i = 0; i < weights.length; i++) {
+                x -= weights[i];
+                if (x <= 0) {
+                    return i;
+                }
+            }
+            return weights.length - 1;
+        }
+
+        // ==================== 破坏算子 ====================
+
+        private void destroy(State s, int operator, int q) {
+            int[] assigned = assigned(s);
+            if (assigned.length == 0) {
+                return;
+            }
+            q = Math.min(q, assigned.length);
+            boolean[] remove = new boolean[p.size];
+            switch (operator) {
+                case DESTROY_WORST:
+                    worstRemoval(s, assigned, q, remove);
+                    break;
+                case DESTROY_RELATED:
+                    relatedRemoval(assigned, q, remove);
+                    break;
+                case DESTROY_ROUTE:
+                    routeRemoval(s, assigned, q, remove);
+                    break;
+                case DESTROY_RANDOM:
+                default:
+                    shuffle(assigned);
+                    for (int k = 0; k < q; k++) {
+                        remove[assigned[k]] = true;
+                    }
+            }
+            for (int v = 0; v < p.vehicles; v++) {
+                int[] r = s.routes[v];
+                int keep = 0;
+                for (int c : r) {
+                    if (!remove[c]) {
+                        keep++;
+                    }
+                }
+                if (keep == r.length) {
+                    continue;
+                }
+                int[] nr = new int[keep];
+                int w = 0;
+                for (int c : r) {
+                    if (!remove[c]) {
+                        nr[w++] = c;
+                    }
+                }
+                //移除客户不会破坏时间窗与容量（距离满足三角不等式）
+                s.setRoute(v, nr, routeDistance(p, nr));
+            }
+        }
+
+        /**
+         * 按移除节约（前后直连省下的里程）降序，随机化选取：取排序后第 y^3 * size 个
+         */
+        private void worstRemoval(State s, int[] assigned, int q, boolean[] remove) {
+            Integer[] order = new Integer[assigned.length];
+            double[] gain = new double[p.size];
+            for (int k = 0; k < assigned.length; k++) {
+                int c = assigned[k];
+                order[k] = c;
+                int before = s.prev(c);
+                int after = s.next(c);
+                gain[c] = p.distance(before, c) + p.distance(c, after) - p.distance(before, after);
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(gain[b], gain[a]));
+            List<Integer> list = new ArrayList<>(Arrays.asList(order));
+            for (int k = 0; k < q; k++) {
+                double y = random.nextDouble();
+                int idx = (int) (y * y * y * list.size());
+                remove[list.remove(idx)] = true;
+            }
+        }
+
+        /**
+         * Shaw 相关移除：从随机客户出发，反复从已移除客户中随机取一个，移除与其距离、时间窗最相近的客户
+         */
+        private void relatedRemoval(int[] assigned, int q, boolean[] remove) {
+            List<Integer> removed = new ArrayList<>();
+            List<Integer> rest = new ArrayList<>();
+            for (int c : assigned) {
+                rest.add(c);
+            }
+            removed.add(rest.remove(random.nextInt(rest.size())));
+            while (removed.size() < q && !rest.isEmpty()) {
+                int seed = removed.get(random.nextInt(removed.size()));
+                rest.sort(Comparator.comparingDouble(c -> relatedness(seed, c)));
+                double y = random.nextDouble();
+                int idx = (int) (Math.pow(y, 6) * rest.size());
+                removed.add(rest.remove(idx));
+            }
+            for (int c : removed) {
+                remove[c] = true;
+            }
+        }
+
+        private double relatedness(int a, int b) {
+            return p.distance(a, b) / p.maxDistance + Math.abs(p.ready[a] - p.ready[b]) / p.horizon;
+        }
+
+        /**
+         * 整条路线移除：随机选一条客户数不超过 q 的路线（客户少的路线更可能被选中），不足 q 时随机补足
+         */
+        private void routeRemoval(State s, int[] assigned, int q, boolean[] remove) {
+            int chosen = -1;
+            double bestKey = Double.MAX_VALUE;
+            for (int v = 0; v < p.vehicles; v++) {
+                int len = s.routes[v].length;
+                if (len == 0 || len > q) {
+                    continue;
+                }
+                double key = len * random.nextDouble();
+                if (key < bestKey) {
+                    bestKey = key;
+                    chosen = v;
+                }
+            }
+            int removed = 0;
+            if (chosen >= 0) {
+                for (int c : s.routes[chosen]) {
+                    remove[c] = true;
+                    removed++;
+                }
+            }
+            shuffle(assigned);
+            for (int k = 0; k < assigned.length && removed < q; k++) {
+                if (!remove[assigned[k]]) {
+                    remove[assigned[k]] = true;
+                    removed++;
+                }
+            }
+        }
+
+        private void shuffle(int[] a) {
+            for (int i = a.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = a[i];
+                a[i] = a[j];
+                a[j] = t;
+            }
+        }
+    }
+
+    // ==================== 工具方法 ====================
+
+    private static int[] assigned(State s) {
+        int[] out = new int[s.p.n - s.unassignedCount()];
+        int k = 0;
+        for (int c = 1; c <= s.p.n; c++) {
+            if (s.routeOf[c] >= 0) {
+                out[k++] = c;
+            }
+        }
+        return out;
+    }
+
+    private static int[] unassigned(State s) {
+        int[] out = new int[s.unassignedCount()];
+        int k = 0;
+        for (int c = 1; c <= s.p.n; c++) {
+            if (s.routeOf[c] < 0) {
+                out[k++] = c;
+            }
+        }
+        return out;
+    }
+
+    private static int[] insert(int[] r, int at, int c) {
+        int[] out = new int[r.length + 1];
+        System.arraycopy(r, 0, out, 0, at);
+        out[at] = c;
+        System.arraycopy(r, at, out, at + 1, r.length - at);
+        return out;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    /**
+     * 把 target 中 [i, i + li) 替换为 source 中 [j, j + lj)
+     */
+    private static int[] splice(int[] target, int i, int li, int[] source, int j, int lj) {
+        int[] out = new int[target.length - li + lj];
+        System.arraycopy(target, 0, out, 0, i);
+        System.arraycopy(source, j, out, i, lj);
+        System.arraycopy(target, i + li, out, i + lj, target.length - i - li);
+        return out;
+    }
+
+    private static boolean contains(int[] a, int x) {
+        for (int v : a) {
+            if (v == x) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double load(double[] values, int[] r) {
+        return load(values, r, 0, r.length);
+    }
+
+    private static double load(double[] values, int[] r, int from, int len) {
+        double sum = 0;
+        for (int k = from; k < from + len; k++) {
+            sum += values[r[k]];
+        }
+        return sum;
+    }
+
+    private static double max(double[] values) {
+        double m = 0;
+        for (double v : values) {
+            m = Math.max(m, v);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,28 @@
+package com.joolun.system.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 参数配置变更事件
+ * 新增、修改、删除参数及重置参数缓存后发布，供依赖参数的本地缓存刷新
+ *
+ * @author ruoyi
+ */
+public class SysConfigChangedEvent extends ApplicationEvent
+{
+    private static final long serialVersionUID = 1L;
+
+    /** 变更的参数键名，为空表示全部参数 */
+    private final String configKey;
+
+    public SysConfigChangedEvent(Object source, String configKey)
+    {
+        super(source);
+        this.configKey = configKey;
+    }
+
+    public String getConfigKey()
+    {
+        return configKey;
+    }
+}
@@ -17,6 +17,22 @@ public interface SysLogininforMapper
      */
     public void insertLogininfor(SysLogininfor logininfor);
 
+    /**
+     * 批量新增系统登录日志
+     * 
+     * @param logininforList 访问日志列表
+     * @return 结果
+     */
+    public int batchInsertLogininfor(List<SysLogininfor> logininforList);
+
+    /**
+     * 回填登录地点（仅更新指定时间之后该IP地点为空的日志）
+     * 
+     * @param logininfor 访问日志对象（ipaddr、loginLocation、loginTime）
+     * @return 结果
+     */
+    public int updateLoginLocation(SysLogininfor logininfor);
+
     /**
      * 查询系统登录日志集合
      * 
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.List;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import com.joolun.common.annotation.DataSource;
 import com.joolun.common.constant.CacheConstants;
@@ -14,6 +15,7 @@ import com.joolun.common.enums.DataSourceType;
 import com.joolun.common.exception.ServiceException;
 import com.joolun.common.utils.StringUtils;
 import com.joolun.system.domain.SysConfig;
+import com.joolun.system.event.SysConfigChangedEvent;
 import com.joolun.system.mapper.SysConfigMapper;
 import com.joolun.system.service.ISysConfigService;
 
@@ -31,6 +33,9 @@ public class SysConfigServiceImpl implements ISysConfigService
     @Autowired
     private RedisCache redisCache;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * 项目启动时，初始化参数到缓存
      */
@@ -121,6 +126,7 @@ public class SysConfigServiceImpl implements ISysConfigService
         if (row > 0)
         {
             redisCache.setCacheObject(getCacheKey(config.getConfigKey()), config.getConfigValue());
+            eventPublisher.publishEvent(new SysConfigChangedEvent(this, config.getConfigKey()));
         }
         return row;
     }
@@ -144,6 +150,11 @@ public class SysConfigServiceImpl implements ISysConfigService
         if (row > 0)
         {
             redisCache.setCacheObject(getCacheKey(config.getConfigKey()), config.getConfigValue());
+            if (!StringUtils.equals(temp.getConfigKey(), config.getConfigKey()))
+            {
+                eventPublisher.publishEvent(new SysConfigChangedEvent(this, temp.getConfigKey()));
+            }
+            eventPublisher.publishEvent(new SysConfigChangedEvent(this, config.getConfigKey()));
         }
         return row;
     }
@@ -165,6 +176,7 @@ public class SysConfigServiceImpl implements ISysConfigService
             }
             configMapper.deleteConfigById(configId);
             redisCache.deleteObject(getCacheKey(config.getConfigKey()));
+            eventPublisher.publishEvent(new SysConfigChangedEvent(this, config.getConfigKey()));
         }
     }
 
@@ -199,6 +211,7 @@ public class SysConfigServiceImpl implements ISysConfigService
     {
         clearConfigCache();
         loadingConfigCache();
+        eventPublisher.publishEvent(new SysConfigChangedEvent(this, null));
     }
 
     /**
@@ -30,6 +30,30 @@ public class SysLogininforServiceImpl implements ISysLogininforService
         logininforMapper.insertLogininfor(logininfor);
     }
 
+    /**
+     * 批量新增系统登录日志
+     * 
+     * @param logininforList 访问日志列表
+     * @return 结果
+     */
+    @Override
+    public int batchInsertLogininfor(List<SysLogininfor> logininforList)
+    {
+        return logininforMapper.batchInsertLogininfor(logininforList);
+    }
+
+    /**
+     * 回填登录地点（仅更新指定时间之后该IP地点为空的日志）
+     * 
+     * @param logininfor 访问日志对象（ipaddr、loginLocation、loginTime）
+     * @return 结果
+     */
+    @Override
+    public int updateLoginLocation(SysLogininfor logininfor)
+    {
+        return logininforMapper.updateLoginLocation(logininfor);
+    }
+
     /**
      * 查询系统登录日志集合
      * 
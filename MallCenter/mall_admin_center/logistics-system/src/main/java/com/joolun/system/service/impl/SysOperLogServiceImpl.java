@@ -29,6 +29,30 @@ public class SysOperLogServiceImpl implements ISysOperLogService
         operLogMapper.insertOperlog(operLog);
     }
 
+    /**
+     * 批量新增操作日志
+     * 
+     * @param operLogList 操作日志列表
+     * @return 结果
+     */
+    @Override
+    public int batchInsertOperlog(List<SysOperLog> operLogList)
+    {
+        return operLogMapper.batchInsertOperlog(operLogList);
+    }
+
+    /**
+     * 回填操作地点（仅更新指定时间之后该IP地点为空的日志）
+     * 
+     * @param operLog 操作日志信息（operIp、operLocation、operTime）
+     * @return 结果
+     */
+    @Override
+    public int updateOperLocation(SysOperLog operLog)
+    {
+        return operLogMapper.updateOperLocation(operLog);
+    }
+
     /**
      * 查询系统操作日志集合
      * 
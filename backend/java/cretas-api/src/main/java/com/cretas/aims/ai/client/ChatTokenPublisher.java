@@ -0,0 +1,230 @@
+package com.cretas.aims.ai.client;
+
+import com.cretas.aims.ai.dto.ChatCompletionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式 Chat Completion 的 token 发布者
+ *
+ * 订阅时才通过 JDK HttpClient 异步发起请求，SSE 响应体按行交给内部桥接订阅者：
+ * - 下游 request(n) 的需求原样转给上游行订阅，未请求时不读取，TCP 窗口自然形成背压
+ * - 空行、注释、无内容的 chunk 不占用下游需求，自动向上游补 1 行
+ * - 下游 cancel() 取消上游订阅并关闭连接，LLM 侧随即停止生成
+ *
+ * 响应体由 HttpClient 的少量线程异步读取，不为每个流占用阻塞线程。只支持一个订阅者。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-30
+ */
+@Slf4j
+public class ChatTokenPublisher implements Flow.Publisher<String> {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    private final HttpClient httpClient;
+    private final HttpRequest request;
+    private final ObjectMapper objectMapper;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    ChatTokenPublisher(HttpClient httpClient, HttpRequest request, ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.request = request;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("ChatTokenPublisher 只支持一个订阅者"));
+            return;
+        }
+        new Bridge(subscriber).start();
+    }
+
+    /**
+     * 从一行 SSE 数据中取出 token；非数据行、解析失败或无内容时返回 null，[DONE] 返回 DONE
+     */
+    private String parseLine(String line) {
+        if (line == null || !line.startsWith(DATA_PREFIX)) {
+            return null;
+        }
+        String data = line.substring(DATA_PREFIX.length()).trim();
+        if (DONE.equals(data)) {
+            return DONE;
+        }
+        try {
+            ChatCompletionResponse chunk = objectMapper.readValue(data, ChatCompletionResponse.class);
+            if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+                return null;
+            }
+            ChatCompletionResponse.Message delta = chunk.getChoices().get(0).getDelta();
+            if (delta == null || delta.getContent() == null || delta.getContent().isEmpty()) {
+                return null;
+            }
+            return delta.getContent();
+        } catch (Exception e) {
+            log.warn("解析流式 chunk 失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 上游行订阅与下游 token 订阅之间的桥接
+     */
+    private final class Bridge implements Flow.Subscription, Flow.Subscriber<String> {
+
+        private final Flow.Subscriber<? super String> downstream;
+        /**
+         * 上游订阅到达前累计的下游需求
+         */
+        private final AtomicLong pendingDemand = new AtomicLong();
+        private final AtomicBoolean terminated = new AtomicBoolean();
+        private volatile Flow.Subscription upstream;
+        private volatile CompletableFuture<HttpResponse<Void>> future;
+
+        private Bridge(Flow.Subscriber<? super String> downstream) {
+            this.downstream = downstream;
+        }
+
+        private void start() {
+            downstream.onSubscribe(this);
+            if (terminated.get()) {
+                return;
+            }
+            future = httpClient.sendAsync(request, this::bodySubscriber);
+            future.whenComplete((response, error) -> {
+                if (error != null) {
+                    fail(error);
+                } else if (response.statusCode() != 200) {
+                    fail(new IllegalStateException("API 调用失败: " + response.statusCode()));
+                }
+            });
+            if (terminated.get()) {
+                future.cancel(true);
+            }
+        }
+
+        private HttpResponse.BodySubscriber<Void> bodySubscriber(HttpResponse.ResponseInfo info) {
+            if (info.statusCode() == 200) {
+                return HttpResponse.BodySubscribers.fromLineSubscriber(this);
+            }
+            return HttpResponse.BodySubscribers.mapping(
+                    HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8),
+                    body -> {
+                        log.error("DashScope stream error: {} - {}", info.statusCode(), body);
+                        return null;
+                    });
+        }
+
+        // ==================== 下游 Subscription ====================
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                downstream.onError(new IllegalArgumentException("request 数量必须为正数: " + n));
+                return;
+            }
+            pendingDemand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+            forwardDemand();
+        }
+
+        @Override
+        public void cancel() {
+            if (!terminated.compareAndSet(false, true)) {
+                return;
+            }
+            Flow.Subscription s = upstream;
+            if (s != null) {
+                s.cancel();
+            }
+            CompletableFuture<HttpResponse<Void>> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+
+        private void forwardDemand() {
+            Flow.Subscription s = upstream;
+            if (s == null) {
+                return;
+            }
+            long demand = pendingDemand.getAndSet(0);
+            if (demand > 0) {
+                s.request(demand);
+            }
+        }
+
+        // ==================== 上游行 Subscriber ====================
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream = subscription;
+            if (terminated.get()) {
+                subscription.cancel();
+                return;
+            }
+            forwardDemand();
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (terminated.get()) {
+                return;
+            }
+            String token = parseLine(line);
+            if (token == null) {
+                upstream.request(1);
+            } else if (DONE.equals(token)) {
+                if (terminated.compareAndSet(false, true)) {
+                    // 读完剩余字节以便连接复用
+                    upstream.request(Long.MAX_VALUE);
+                    downstream.onComplete();
+                }
+            } else {
+                downstream.onNext(token);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (terminated.compareAndSet(false, true)) {
+                downstream.onComplete();
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (terminated.compareAndSet(false, true)) {
+                downstream.onError(error);
+            }
+        }
+    }
+}
@@ -16,6 +16,11 @@ import org.springframework.stereotype.Component;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -30,7 +35,7 @@ import java.util.function.Consumer;
  * 支持：
  * - 普通对话
  * - 思考模式 (Thinking Mode)
- * - 流式响应
+ * - 流式响应（阻塞读取，或基于 JDK HttpClient 的非阻塞 token 发布者）
  *
  * @author Cretas Team
  * @version 1.0.0
@@ -42,19 +47,27 @@ public class DashScopeClient {
 
     private final DashScopeConfig config;
     private final OkHttpClient httpClient;
+    private final HttpClient streamingHttpClient;
     private final ObjectMapper objectMapper;
 
     public DashScopeClient(
             DashScopeConfig config,
             @Qualifier("aiServiceHttpClient") OkHttpClient httpClient,
+            @Qualifier("aiStreamingHttpClient") HttpClient streamingHttpClient,
             ObjectMapper objectMapper) {
         this.config = config;
         this.httpClient = httpClient;
+        this.streamingHttpClient = streamingHttpClient;
         this.objectMapper = objectMapper;
     }
 
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
+    /**
+     * 非阻塞流式调用等待响应头的超时（秒）
+     */
+    private static final int STREAM_RESPONSE_TIMEOUT_SECONDS = 120;
+
     /**
      * 同步调用 Chat Completion
      *
@@ -67,22 +80,7 @@ public class DashScopeClient {
             return createErrorResponse("DashScope API 未配置");
         }
 
-        // 填充默认值
-        if (request.getModel() == null) {
-            request.setModel(config.getModel());
-        }
-        if (request.getMaxTokens() == null) {
-            request.setMaxTokens(config.getMaxTokens());
-        }
-        if (request.getTemperature() == null) {
-            request.setTemperature(config.getTemperature());
-        }
-
-        // DashScope 要求 enable_thinking 在顶级参数，忽略 extra_body 内的
-        if (request.getEnableThinking() == null && request.getExtraBody() != null
-                && request.getExtraBody().getEnableThinking() != null) {
-            request.setEnableThinking(request.getExtraBody().getEnableThinking());
-        }
+        applyDefaults(request);
 
         String jsonBody;
         try {
@@ -358,22 +356,7 @@ public class DashScopeClient {
 
         request.setStream(true);
 
-        // 填充默认值
-        if (request.getModel() == null) {
-            request.setModel(config.getModel());
-        }
-        if (request.getMaxTokens() == null) {
-            request.setMaxTokens(config.getMaxTokens());
-        }
-        if (request.getTemperature() == null) {
-            request.setTemperature(config.getTemperature());
-        }
-
-        // DashScope 要求 enable_thinking 在顶级参数
-        if (request.getEnableThinking() == null && request.getExtraBody() != null
-                && request.getExtraBody().getEnableThinking() != null) {
-            request.setEnableThinking(request.getExtraBody().getEnableThinking());
-        }
+        applyDefaults(request);
 
         try {
             String jsonBody = objectMapper.writeValueAsString(request);
@@ -455,6 +438,77 @@ public class DashScopeClient {
         }
     }
 
+    /**
+     * 非阻塞流式调用
+     *
+     * 返回 token 发布者，订阅后才发起请求，按订阅方 request(n) 的需求读取响应；
+     * 取消订阅即中止上游调用。调用线程不阻塞，响应体由 aiStreamingHttpClient 异步读取。
+     *
+     * @param request 请求体
+     * @return token 发布者（只支持一个订阅者）
+     */
+    public ChatTokenPublisher streamChat(ChatCompletionRequest request) {
+        if (!config.isAvailable()) {
+            throw new RuntimeException("DashScope API 未配置");
+        }
+
+        request.setStream(true);
+        applyDefaults(request);
+
+        String jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("请求序列化失败: " + e.getMessage(), e);
+        }
+
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(config.getChatCompletionsUrl()))
+                .timeout(Duration.ofSeconds(Boolean.TRUE.equals(request.getEnableThinking())
+                        ? config.getThinkingTimeout() : STREAM_RESPONSE_TIMEOUT_SECONDS))
+                .header("Authorization", "Bearer " + config.getApiKey())
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+                .build();
+        return new ChatTokenPublisher(streamingHttpClient, httpRequest, objectMapper);
+    }
+
+    /**
+     * 快速模型非阻塞流式调用（参数同 chatFast）
+     */
+    public ChatTokenPublisher streamChatFast(String systemPrompt, String userInput) {
+        ChatCompletionRequest request = ChatCompletionRequest.simple(
+                config.getFastModel(),
+                systemPrompt,
+                userInput
+        );
+        request.setMaxTokens(500);
+        request.setTemperature(config.getTemperature());
+        request.setExtraBody(THINKING_OFF);
+        return streamChat(request);
+    }
+
+    /**
+     * 填充请求默认值
+     */
+    private void applyDefaults(ChatCompletionRequest request) {
+        if (request.getModel() == null) {
+            request.setModel(config.getModel());
+        }
+        if (request.getMaxTokens() == null) {
+            request.setMaxTokens(config.getMaxTokens());
+        }
+        if (request.getTemperature() == null) {
+            request.setTemperature(config.getTemperature());
+        }
+
+        // DashScope 要求 enable_thinking 在顶级参数，忽略 extra_body 内的
+        if (request.getEnableThinking() == null && request.getExtraBody() != null
+                && request.getExtraBody().getEnableThinking() != null) {
+            request.setEnableThinking(request.getExtraBody().getEnableThinking());
+        }
+    }
+
     /**
      * 意图分类专用方法
      *
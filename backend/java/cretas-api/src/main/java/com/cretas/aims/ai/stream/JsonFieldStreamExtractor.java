@@ -0,0 +1,152 @@
+package com.cretas.aims.ai.stream;
+
+/**
+ * 从流式 JSON 文本中增量提取某个字符串字段的值
+ *
+ * LLM 按 JSON 输出时，面向用户的文本（如 message）夹在其它字段中间。
+ * 逐段喂入 token，返回本段新解出的字段内容（已反转义），用于在完整 JSON 到达之前推送 delta。
+ * 只提取第一次出现的同名字符串字段；输出不是 JSON 或字段不是字符串时不产生内容。非线程安全。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-30
+ */
+public class JsonFieldStreamExtractor {
+
+    private enum State {
+        /** 字符串外，寻找下一个字符串 */
+        SEEK,
+        /** 读取字符串（可能是键） */
+        STRING,
+        /** 读到目标键，等待冒号 */
+        AFTER_KEY,
+        /** 读到冒号，等待值的起始引号 */
+        AFTER_COLON,
+        /** 读取目标值 */
+        VALUE,
+        /** 目标值已结束 */
+        DONE
+    }
+
+    private final String field;
+    private final StringBuilder key = new StringBuilder();
+    private State state = State.SEEK;
+    private boolean escape;
+    /**
+     * \\uXXXX 转义已读到的十六进制位数，-1 表示不在 unicode 转义中
+     */
+    private int unicodeDigits = -1;
+    private int unicodeValue;
+
+    public JsonFieldStreamExtractor(String field) {
+        this.field = field;
+    }
+
+    /**
+     * 喂入一段文本
+     *
+     * @return 本段解出的字段内容，没有时返回空串
+     */
+    public String feed(String chunk) {
+        if (chunk == null || state == State.DONE) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < chunk.length() && state != State.DONE; i++) {
+            char c = chunk.charAt(i);
+            switch (state) {
+                case SEEK:
+                    if (c == '"') {
+                        key.setLength(0);
+                        state = State.STRING;
+                    }
+                    break;
+                case STRING:
+                    if (escape) {
+                        escape = false;
+                        key.append(c);
+                    } else if (c == '\\') {
+                        escape = true;
+                    } else if (c == '"') {
+                        state = field.contentEquals(key) ? State.AFTER_KEY : State.SEEK;
+                    } else if (key.length() <= field.length()) {
+                        key.append(c);
+                    }
+                    break;
+                case AFTER_KEY:
+                    if (c == ':') {
+                        state = State.AFTER_COLON;
+                    } else if (!Character.isWhitespace(c)) {
+                        // 同名字符串是值而不是键，按普通字符重新处理
+                        state = State.SEEK;
+                        i--;
+                    }
+                    break;
+                case AFTER_COLON:
+                    if (c == '"') {
+                        state = State.VALUE;
+                    } else if (!Character.isWhitespace(c)) {
+                        state = State.SEEK;
+                    }
+                    break;
+                case VALUE:
+                    readValueChar(c, out);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return out.toString();
+    }
+
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    private void readValueChar(char c, StringBuilder out) {
+        if (unicodeDigits >= 0) {
+            int digit = Character.digit(c, 16);
+            unicodeValue = unicodeValue * 16 + Math.max(digit, 0);
+            if (++unicodeDigits == 4) {
+                out.append((char) unicodeValue);
+                unicodeDigits = -1;
+            }
+            return;
+        }
+        if (escape) {
+            escape = false;
+            switch (c) {
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'u':
+                    unicodeDigits = 0;
+                    unicodeValue = 0;
+                    break;
+                default:
+                    out.append(c);
+                    break;
+            }
+            return;
+        }
+        if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            state = State.DONE;
+        } else {
+            out.append(c);
+        }
+    }
+}
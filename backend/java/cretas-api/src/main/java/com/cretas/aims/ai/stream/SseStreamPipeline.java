@@ -0,0 +1,135 @@
+package com.cretas.aims.ai.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSE 流式推送管线
+ *
+ * 为每个 SSE 连接创建 {@link SseStreamSession}，所有会话共享：
+ * - 固定大小的工作线程池：写事件、处理 token、执行会话内动作
+ * - 单个心跳线程：定期给空闲会话发送注释行
+ *
+ * 上游 token 流异步到达，线程占用与打开的流数量解耦；客户端断开时会话取消上游订阅。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-30
+ */
+@Slf4j
+@Component
+public class SseStreamPipeline {
+
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final ExecutorService worker;
+    private final ScheduledExecutorService heartbeat;
+
+    private final Set<SseStreamSession> sessions = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final AtomicLong upstreamCancelled = new AtomicLong();
+
+    public SseStreamPipeline(
+            @Value("${cretas.ai.stream.worker-threads:4}") int workerThreads,
+            @Value("${cretas.ai.stream.queue-capacity:256}") int queueCapacity,
+            @Value("${cretas.ai.stream.heartbeat-interval-ms:15000}") long heartbeatMillis,
+            @Value("${cretas.ai.stream.timeout-ms:300000}") long timeoutMillis) {
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.worker = Executors.newFixedThreadPool(Math.max(1, workerThreads), daemonFactory("sse-stream-"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemonFactory("sse-heartbeat-"));
+
+        long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        long period = Math.max(1, heartbeatMillis / 2);
+        heartbeat.scheduleAtFixedRate(() -> {
+            for (SseStreamSession session : sessions) {
+                session.heartbeat(heartbeatNanos);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        log.info("SSE 流式管线初始化: workerThreads={}, queueCapacity={}, heartbeat={}ms, timeout={}ms",
+                workerThreads, queueCapacity, heartbeatMillis, timeoutMillis);
+    }
+
+    /**
+     * 打开新的流会话，超时时间取 cretas.ai.stream.timeout-ms
+     */
+    public SseStreamSession open() {
+        return open(new SseEmitter(timeoutMillis));
+    }
+
+    /**
+     * 为指定 emitter 打开流会话，会话接管 emitter 的 onCompletion/onTimeout/onError 回调
+     */
+    public SseStreamSession open(SseEmitter emitter) {
+        SseStreamSession session = new SseStreamSession(this, emitter, worker, queueCapacity);
+        sessions.add(session);
+        opened.incrementAndGet();
+        return session;
+    }
+
+    void release(SseStreamSession session, boolean abort) {
+        if (sessions.remove(session)) {
+            (abort ? aborted : completed).incrementAndGet();
+        }
+    }
+
+    void upstreamCancelled() {
+        upstreamCancelled.incrementAndGet();
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * 获取管线统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("activeSessions", sessions.size());
+        stats.put("opened", opened.get());
+        stats.put("completed", completed.get());
+        stats.put("aborted", aborted.get());
+        stats.put("upstreamCancelled", upstreamCancelled.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        for (SseStreamSession session : new ArrayList<>(sessions)) {
+            session.abort();
+        }
+        worker.shutdown();
+        log.info("SSE 流式管线已关闭: {}", getStatistics());
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,319 @@
+package com.cretas.aims.ai.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单个 SSE 流会话
+ *
+ * 事件、动作和上游 token 都先进入无锁队列，由共享工作线程池按会话串行处理（同一时刻最多一个线程处理一个会话），
+ * 线程数与打开的流数量无关：
+ * - 背压：向上游请求的 token 数 + 队列中未写出的 token 数不超过 queueCapacity，写出过半后批量补充需求
+ * - 合并：队列中连续的 token 合并为一个 delta 事件写出，客户端慢时减少写次数
+ * - 断开：写失败、超时或容器回调 onCompletion/onError 时关闭会话并取消上游订阅，中止 LLM 调用
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-30
+ */
+@Slf4j
+public class SseStreamSession {
+
+    private static final Object HEARTBEAT = new Object();
+
+    private final SseStreamPipeline pipeline;
+    private final SseEmitter emitter;
+    private final Executor worker;
+    private final int queueCapacity;
+
+    private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastWriteNanos = System.nanoTime();
+
+    // ==================== 上游状态 ====================
+
+    private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+    /**
+     * 已向上游请求但尚未到达的 token 数
+     */
+    private final AtomicLong outstanding = new AtomicLong();
+    /**
+     * 已到达但尚未处理的 token 数
+     */
+    private final AtomicInteger queuedTokens = new AtomicInteger();
+    private final Object demandLock = new Object();
+
+    /**
+     * 当前流的处理回调和已收文本，只在工作线程上访问
+     */
+    private TokenStreamHandler handler;
+    private StringBuilder fullText;
+    private boolean streaming;
+
+    SseStreamSession(SseStreamPipeline pipeline, SseEmitter emitter, Executor worker, int queueCapacity) {
+        this.pipeline = pipeline;
+        this.emitter = emitter;
+        this.worker = worker;
+        this.queueCapacity = Math.max(2, queueCapacity);
+
+        emitter.onCompletion(this::abort);
+        emitter.onError(e -> abort());
+        emitter.onTimeout(() -> {
+            log.debug("SSE 流超时");
+            abort();
+            emitter.complete();
+        });
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 按顺序发送命名事件
+     */
+    public void send(String name, Object data) {
+        enqueue(SseEmitter.event().name(name).data(data));
+    }
+
+    /**
+     * 在已入队的事件之后、于工作线程上执行动作；动作中不应长时间阻塞
+     */
+    public void execute(Runnable action) {
+        enqueue(action);
+    }
+
+    /**
+     * 订阅上游 token 流：token 经 handler 转换后作为 delta 事件推送，结束时回调 handler。
+     * 同一会话同一时刻只能有一个上游流。
+     */
+    public void stream(Flow.Publisher<String> tokens, TokenStreamHandler tokenHandler) {
+        enqueue((Runnable) () -> {
+            if (streaming) {
+                throw new IllegalStateException("会话已有进行中的上游流");
+            }
+            streaming = true;
+            handler = tokenHandler;
+            fullText = new StringBuilder();
+            tokens.subscribe(new UpstreamSubscriber());
+        });
+    }
+
+    /**
+     * 写完已入队的事件后正常结束
+     */
+    public void complete() {
+        enqueue((Runnable) () -> {
+            if (closed.compareAndSet(false, true)) {
+                cancelUpstream();
+                pipeline.release(this, false);
+                emitter.complete();
+            }
+        });
+    }
+
+    /**
+     * 距上次写出超过 intervalNanos 且没有待写事件时发送心跳注释，防止代理断开空闲连接
+     */
+    void heartbeat(long intervalNanos) {
+        if (!closed.get() && queue.isEmpty() && System.nanoTime() - lastWriteNanos >= intervalNanos) {
+            enqueue(HEARTBEAT);
+        }
+    }
+
+    /**
+     * 客户端断开、超时或出错：关闭会话并中止上游
+     */
+    void abort() {
+        if (closed.compareAndSet(false, true)) {
+            cancelUpstream();
+            queue.clear();
+            pipeline.release(this, true);
+        }
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription s = upstream.getAndSet(null);
+        if (s != null) {
+            s.cancel();
+            pipeline.upstreamCancelled();
+        }
+    }
+
+    // ==================== 队列处理 ====================
+
+    private void enqueue(Object item) {
+        if (closed.get()) {
+            return;
+        }
+        queue.offer(item);
+        schedule();
+    }
+
+    private void schedule() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        try {
+            worker.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            log.warn("SSE 工作线程池已关闭，放弃流会话");
+            abort();
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        for (;;) {
+            Object item;
+            while ((item = queue.poll()) != null) {
+                if (closed.get()) {
+                    continue;
+                }
+                try {
+                    process(item);
+                } catch (Throwable e) {
+                    log.error("SSE 流处理失败: {}", e.getMessage(), e);
+                    abort();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void process(Object item) {
+        if (item instanceof Token) {
+            processTokens((Token) item);
+        } else if (item instanceof SseEmitter.SseEventBuilder) {
+            write((SseEmitter.SseEventBuilder) item);
+        } else if (item instanceof Runnable) {
+            ((Runnable) item).run();
+        } else if (item == HEARTBEAT) {
+            write(SseEmitter.event().comment("ping"));
+        }
+    }
+
+    /**
+     * 处理队首起连续的 token，合并为一个 delta 事件
+     */
+    private void processTokens(Token first) {
+        StringBuilder delta = new StringBuilder();
+        int consumed = 0;
+        Object next = first;
+        while (true) {
+            String token = ((Token) next).text;
+            consumed++;
+            fullText.append(token);
+            String text = handler.onToken(token);
+            if (text != null) {
+                delta.append(text);
+            }
+            next = queue.peek();
+            if (!(next instanceof Token)) {
+                break;
+            }
+            // 单消费者，peek 到的元素即 poll 出的元素
+            queue.poll();
+        }
+        queuedTokens.addAndGet(-consumed);
+        if (delta.length() > 0) {
+            write(SseEmitter.event().name("delta").data(Collections.singletonMap("content", delta.toString())));
+        }
+        replenish();
+    }
+
+    private void write(SseEmitter.SseEventBuilder event) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            emitter.send(event);
+            lastWriteNanos = System.nanoTime();
+        } catch (Exception e) {
+            log.debug("SSE 客户端已断开: {}", e.getMessage());
+            abort();
+        }
+    }
+
+    /**
+     * 在途 + 待写 token 数低于容量一半时，把需求补满到容量
+     */
+    private void replenish() {
+        Flow.Subscription s = upstream.get();
+        if (s == null || closed.get()) {
+            return;
+        }
+        long request;
+        synchronized (demandLock) {
+            request = queueCapacity - outstanding.get() - queuedTokens.get();
+            if (request < (queueCapacity + 1) / 2) {
+                return;
+            }
+            outstanding.addAndGet(request);
+        }
+        s.request(request);
+    }
+
+    private void finishStream(Runnable callback) {
+        upstream.set(null);
+        streaming = false;
+        callback.run();
+    }
+
+    private static final class Token {
+        private final String text;
+
+        private Token(String text) {
+            this.text = text;
+        }
+    }
+
+    private final class UpstreamSubscriber implements Flow.Subscriber<String> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            upstream.set(subscription);
+            if (closed.get()) {
+                cancelUpstream();
+                return;
+            }
+            replenish();
+        }
+
+        @Override
+        public void onNext(String token) {
+            queuedTokens.incrementAndGet();
+            outstanding.decrementAndGet();
+            enqueue(new Token(token));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            enqueue((Runnable) () -> finishStream(() -> handler.onError(throwable, fullText.toString())));
+        }
+
+        @Override
+        public void onComplete() {
+            enqueue((Runnable) () -> finishStream(() -> handler.onComplete(fullText.toString())));
+        }
+    }
+}
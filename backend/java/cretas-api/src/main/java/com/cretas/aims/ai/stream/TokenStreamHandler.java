@@ -0,0 +1,37 @@
+package com.cretas.aims.ai.stream;
+
+/**
+ * 上游 token 流的处理回调
+ *
+ * 所有回调都在流会话的工作线程上按顺序执行，同一会话内不会并发调用；
+ * 回调中可以继续调用 {@link SseStreamSession} 的 send / complete。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-30
+ */
+public interface TokenStreamHandler {
+
+    /**
+     * 收到一个 token
+     *
+     * @param token 上游 token
+     * @return 需要作为 delta 事件推送给客户端的文本，null 或空串表示不推送
+     */
+    String onToken(String token);
+
+    /**
+     * 上游正常结束
+     *
+     * @param fullText 全部 token 按序拼接的文本
+     */
+    void onComplete(String fullText);
+
+    /**
+     * 上游失败（客户端断开导致的取消不会回调）
+     *
+     * @param error 异常
+     * @param partialText 失败前已收到的文本
+     */
+    void onError(Throwable error, String partialText);
+}
@@ -0,0 +1,447 @@
+package com.cretas.aims.client.discovery;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * 异步网络设备发现引擎
+ *
+ * 海康 ISAPI 网段发现的扫描内核 (大华设备通过 DHDiscover UDP 广播发现, 不做网段扫描):
+ * - 端口探测使用非阻塞 SocketChannel + Selector, 单线程维持数千个在途连接
+ * - 流水线执行: 某个 host:port 一旦连通, 立即提交应用层探测, 无需等待整个网段扫完
+ * - 令牌桶限速, 避免瞬间 SYN 洪峰触发交换机/防火墙告警
+ * - 探测结果通过回调即时推送给调用方
+ *
+ * TCP 连通本身即视为主机在线, 不再单独做 ICMP (isReachable) 阶段。
+ *
+ * @author Cretas Team
+ * @since 2026-01-08
+ */
+@Slf4j
+@Component
+public class AsyncDiscoveryEngine {
+
+    private final ExecutorService probeExecutor;
+    private final int defaultMaxInFlight;
+    private final int defaultConnectsPerSecond;
+
+    public AsyncDiscoveryEngine(
+            @Value("${discovery.probe-threads:64}") int probeThreads,
+            @Value("${discovery.max-in-flight:2048}") int maxInFlight,
+            @Value("${discovery.connects-per-second:5000}") int connectsPerSecond) {
+        AtomicInteger counter = new AtomicInteger();
+        this.probeExecutor = new ThreadPoolExecutor(probeThreads, probeThreads,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "discovery-probe-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ((ThreadPoolExecutor) probeExecutor).allowCoreThreadTimeOut(true);
+        this.defaultMaxInFlight = maxInFlight;
+        this.defaultConnectsPerSecond = connectsPerSecond;
+    }
+
+    /**
+     * 扫描参数
+     */
+    public static class ScanOptions {
+        /** TCP 连接超时 (毫秒) */
+        int connectTimeoutMs = 2000;
+        /** 最大在途连接数, <=0 使用引擎默认值 */
+        int maxInFlight;
+        /** 每秒发起连接数上限, <=0 使用引擎默认值 */
+        int connectsPerSecond;
+        /** 应用层探测并发数上限 */
+        int maxConcurrentProbes = 32;
+
+        public static ScanOptions defaults() {
+            return new ScanOptions();
+        }
+
+        public ScanOptions connectTimeoutMs(int value) {
+            this.connectTimeoutMs = value;
+            return this;
+        }
+
+        public ScanOptions maxInFlight(int value) {
+            this.maxInFlight = value;
+            return this;
+        }
+
+        public ScanOptions connectsPerSecond(int value) {
+            this.connectsPerSecond = value;
+            return this;
+        }
+
+        public ScanOptions maxConcurrentProbes(int value) {
+            this.maxConcurrentProbes = value;
+            return this;
+        }
+    }
+
+    /**
+     * 启动一次扫描
+     *
+     * @param hosts   目标主机
+     * @param ports   目标端口
+     * @param options 扫描参数
+     * @param prober  端口连通后的应用层探测, 返回 null 表示非目标设备
+     * @param onFound 发现结果回调 (在探测线程中执行)
+     * @return 扫描句柄
+     */
+    public <T> DiscoveryScan<T> scan(List<String> hosts, List<Integer> ports, ScanOptions options,
+                                     BiFunction<String, Integer, T> prober, Consumer<T> onFound) {
+        DiscoveryScan<T> scan = new DiscoveryScan<>(hosts, ports, options, prober, onFound);
+        Thread thread = new Thread(scan::run, "discovery-scan-" + scan.id);
+        thread.setDaemon(true);
+        thread.start();
+        return scan;
+    }
+
+    /**
+     * 同步扫描, 返回全部结果
+     */
+    public <T> List<T> scanAndWait(List<String> hosts, List<Integer> ports, ScanOptions options,
+                                   BiFunction<String, Integer, T> prober, long timeoutMs) {
+        DiscoveryScan<T> scan = scan(hosts, ports, options, prober, t -> { });
+        try {
+            return scan.getCompletion().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("设备发现超时 ({}ms), 返回已发现的 {} 个结果", timeoutMs, scan.getResults().size());
+            scan.cancel();
+            return scan.getResults();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scan.cancel();
+            return scan.getResults();
+        } catch (ExecutionException e) {
+            log.error("设备发现失败: {}", e.getCause().getMessage());
+            return scan.getResults();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+
+    // ==================== 工具方法 ====================
+
+    /**
+     * 解析 CIDR 获取主机 IP 列表 (排除网络地址和广播地址)
+     *
+     * @param cidr 网段, 如 "192.168.1.0/24"; 前缀长度限制在 16-30
+     * @return IP 列表; 格式非法时返回空列表
+     */
+    public static List<String> expandCidr(String cidr) {
+        List<String> ipList = new ArrayList<>();
+        try {
+            if (cidr == null || !cidr.contains("/")) {
+                log.warn("无效的 CIDR 格式: {}", cidr);
+                return ipList;
+            }
+
+            String[] parts = cidr.split("/");
+            int prefixLength = Integer.parseInt(parts[1].trim());
+            if (prefixLength < 16 || prefixLength > 30) {
+                log.warn("CIDR 前缀长度超出范围 (16-30): {}", prefixLength);
+                return ipList;
+            }
+
+            String[] octets = parts[0].trim().split("\\.");
+            if (octets.length != 4) {
+                log.warn("无效的 IP 地址: {}", parts[0]);
+                return ipList;
+            }
+            long baseIp = 0;
+            for (String octet : octets) {
+                baseIp = (baseIp << 8) | Integer.parseInt(octet);
+            }
+
+            int hostBits = 32 - prefixLength;
+            int hostCount = (1 << hostBits) - 2;
+            long networkAddress = baseIp & (0xFFFFFFFFL << hostBits);
+            for (int i = 1; i <= hostCount; i++) {
+                long hostIp = networkAddress + i;
+                ipList.add(((hostIp >> 24) & 0xFF) + "." + ((hostIp >> 16) & 0xFF) + "."
+                        + ((hostIp >> 8) & 0xFF) + "." + (hostIp & 0xFF));
+            }
+        } catch (Exception e) {
+            log.error("解析 CIDR 失败: {}", cidr, e);
+        }
+        return ipList;
+    }
+
+    // ==================== 扫描任务 ====================
+
+    private static final AtomicInteger SCAN_IDS = new AtomicInteger();
+
+    /**
+     * 单次扫描任务与句柄
+     */
+    public final class DiscoveryScan<T> {
+
+        private final int id = SCAN_IDS.incrementAndGet();
+        private final List<String> hosts;
+        private final List<Integer> ports;
+        private final BiFunction<String, Integer, T> prober;
+        private final Consumer<T> onFound;
+        private final int connectTimeoutMs;
+        private final int maxInFlight;
+        private final TokenBucket rateLimiter;
+        private final Semaphore probePermits;
+
+        private final Queue<T> results = new ConcurrentLinkedQueue<>();
+        private final CompletableFuture<List<T>> completion = new CompletableFuture<>();
+        private final AtomicInteger pendingProbes = new AtomicInteger();
+        private final long startedAt = System.currentTimeMillis();
+
+        private volatile boolean canceled;
+        private volatile boolean connectPhaseDone;
+        private volatile Selector selector;
+
+        private volatile long attempted;
+        private volatile long openPorts;
+
+        private DiscoveryScan(List<String> hosts, List<Integer> ports, ScanOptions options,
+                              BiFunction<String, Integer, T> prober, Consumer<T> onFound) {
+            this.hosts = hosts;
+            this.ports = ports;
+            this.prober = prober;
+            this.onFound = onFound;
+            this.connectTimeoutMs = Math.max(100, options.connectTimeoutMs);
+            this.maxInFlight = options.maxInFlight > 0 ? options.maxInFlight : defaultMaxInFlight;
+            int rate = options.connectsPerSecond > 0 ? options.connectsPerSecond : defaultConnectsPerSecond;
+            this.rateLimiter = new TokenBucket(rate);
+            this.probePermits = new Semaphore(Math.max(1, options.maxConcurrentProbes));
+        }
+
+        /**
+         * 扫描完成 (端口探测与应用层探测都结束) 时返回全部结果
+         */
+        public CompletableFuture<List<T>> getCompletion() {
+            return completion;
+        }
+
+        /**
+         * 当前已发现的结果快照
+         */
+        public List<T> getResults() {
+            return new ArrayList<>(results);
+        }
+
+        public void cancel() {
+            canceled = true;
+            Selector s = selector;
+            if (s != null) {
+                s.wakeup();
+            }
+        }
+
+        /**
+         * 扫描进度
+         */
+        public Map<String, Object> getProgress() {
+            Map<String, Object> progress = new LinkedHashMap<>();
+            progress.put("total", (long) hosts.size() * ports.size());
+            progress.put("attempted", attempted);
+            progress.put("openPorts", openPorts);
+            progress.put("found", results.size());
+            progress.put("pendingProbes", pendingProbes.get());
+            progress.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            progress.put("done", completion.isDone());
+            return progress;
+        }
+
+        private void run() {
+            long total = (long) hosts.size() * ports.size();
+            long next = 0;
+            int inFlight = 0;
+            try (Selector sel = Selector.open()) {
+                this.selector = sel;
+                long lastTimeoutCheck = System.currentTimeMillis();
+                while (!canceled && (next < total || inFlight > 0)) {
+                    // 1. 在限速与在途上限内发起新的非阻塞连接
+                    while (next < total && inFlight < maxInFlight && rateLimiter.tryAcquire()) {
+                        String host = hosts.get((int) (next / ports.size()));
+                        int port = ports.get((int) (next % ports.size()));
+                        next++;
+                        attempted = next;
+                        if (startConnect(sel, host, port)) {
+                            inFlight++;
+                        }
+                    }
+
+                    // 2. 处理连接结果
+                    sel.select(next < total && inFlight < maxInFlight ? 5 : 50);
+                    Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        Attempt attempt = (Attempt) key.attachment();
+                        boolean open;
+                        try {
+                            open = ((SocketChannel) key.channel()).finishConnect();
+                        } catch (IOException e) {
+                            open = false;
+                        }
+                        close(key);
+                        inFlight--;
+                        if (open) {
+                            onPortOpen(attempt.host, attempt.port);
+                        }
+                    }
+
+                    // 3. 连接超时
+                    long now = System.currentTimeMillis();
+                    if (now - lastTimeoutCheck >= 50) {
+                        lastTimeoutCheck = now;
+                        for (SelectionKey key : sel.keys()) {
+                            if (key.isValid() && ((Attempt) key.attachment()).deadline <= now) {
+                                close(key);
+                                inFlight--;
+                            }
+                        }
+                    }
+                }
+                for (SelectionKey key : sel.keys()) {
+                    close(key);
+                }
+            } catch (IOException e) {
+                completion.completeExceptionally(e);
+                return;
+            } finally {
+                connectPhaseDone = true;
+            }
+            log.debug("端口探测阶段结束: scan={}, attempted={}, open={}, elapsed={}ms",
+                    id, attempted, openPorts, System.currentTimeMillis() - startedAt);
+            maybeComplete();
+        }
+
+        private boolean startConnect(Selector sel, String host, int port) {
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                Attempt attempt = new Attempt(host, port, System.currentTimeMillis() + connectTimeoutMs);
+                if (channel.connect(new InetSocketAddress(host, port))) {
+                    channel.close();
+                    onPortOpen(host, port);
+                    return false;
+                }
+                channel.register(sel, SelectionKey.OP_CONNECT, attempt);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                log.trace("连接 {}:{} 失败: {}", host, port, e.getMessage());
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // 关闭失败无需处理
+                    }
+                }
+                return false;
+            }
+        }
+
+        private void close(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // 关闭失败无需处理
+            }
+        }
+
+        private void onPortOpen(String host, int port) {
+            openPorts++;
+            if (prober == null) {
+                return;
+            }
+            pendingProbes.incrementAndGet();
+            probeExecutor.execute(() -> {
+                boolean acquired = false;
+                try {
+                    probePermits.acquire();
+                    acquired = true;
+                    if (canceled) {
+                        return;
+                    }
+                    T result = prober.apply(host, port);
+                    if (result != null) {
+                        results.add(result);
+                        onFound.accept(result);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.trace("探测 {}:{} 异常: {}", host, port, e.getMessage());
+                } finally {
+                    if (acquired) {
+                        probePermits.release();
+                    }
+                    pendingProbes.decrementAndGet();
+                    maybeComplete();
+                }
+            });
+        }
+
+        private void maybeComplete() {
+            if (connectPhaseDone && pendingProbes.get() == 0) {
+                completion.complete(new ArrayList<>(results));
+            }
+        }
+    }
+
+    private static final class Attempt {
+        private final String host;
+        private final int port;
+        private final long deadline;
+
+        private Attempt(String host, int port, long deadline) {
+            this.host = host;
+            this.port = port;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * 简单令牌桶 (仅在扫描线程内使用)
+     */
+    static final class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(int permitsPerSecond) {
+            this.ratePerNano = permitsPerSecond / 1_000_000_000d;
+            this.capacity = Math.max(1, permitsPerSecond / 10d);
+            this.tokens = capacity;
+        }
+
+        boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.cretas.aims.client.isapi;
+
+import okhttp3.Call;
+
+/**
+ * 告警流订阅句柄
+ * 屏蔽 NIO 多路复用连接与 OkHttp 长连接两种实现的差异
+ *
+ * @author Cretas Team
+ * @since 2026-01-05
+ */
+public interface AlertStreamSubscription {
+
+    /**
+     * 取消订阅并关闭底层连接
+     */
+    void cancel();
+
+    /**
+     * 是否已取消
+     */
+    boolean isCanceled();
+
+    /**
+     * 包装 OkHttp 长连接
+     */
+    static AlertStreamSubscription of(Call call) {
+        return new AlertStreamSubscription() {
+            @Override
+            public void cancel() {
+                call.cancel();
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return call.isCanceled();
+            }
+        };
+    }
+}
@@ -0,0 +1,184 @@
+package com.cretas.aims.client.isapi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.*;
+
+/**
+ * ISAPI 告警事件 StAX 解析器
+ *
+ * 与 {@link IsapiXmlParser#parseEventAlert(String)} 输出相同结构的 Map,
+ * 但直接基于字节流单遍解析, 不构建 DOM, 也不需要先解码为 String。
+ * alertStream 每秒可能有数百条事件, 该解析器用于流式读取路径。
+ *
+ * @author Cretas Team
+ * @since 2026-01-05
+ */
+@Slf4j
+public class IsapiAlertStaxParser {
+
+    private static final String ROOT_ELEMENT = "EventNotificationAlert";
+
+    /** 需要提取的顶层字段 (取文档中第一次出现的值, 与 DOM 版 getElementsByTagName 行为一致) */
+    private static final Set<String> TEXT_FIELDS = new HashSet<>(Arrays.asList(
+            "ipAddress", "portNo", "protocol", "macAddress", "channelID", "dateTime",
+            "activePostCount", "eventType", "eventState", "eventDescription"));
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // 禁用 DTD 和外部实体以防止 XXE 攻击
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * 解析 EventNotificationAlert 字节片段
+     *
+     * @return 事件 Map; 片段中没有告警根元素时返回 null
+     */
+    public Map<String, Object> parse(byte[] data, int offset, int length) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(new ByteArrayInputStream(data, offset, length));
+        try {
+            return readAlert(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Map<String, Object> readAlert(XMLStreamReader reader) throws XMLStreamException {
+        Map<String, String> texts = new HashMap<>();
+        Map<String, Object> region = null;
+        List<Map<String, Object>> entries = null;
+        Map<String, Object> entry = null;
+        List<Map<String, Integer>> coordinates = null;
+        Map<String, Integer> point = null;
+
+        boolean inRoot = false;
+        boolean inRegionList = false;
+        boolean regionDone = false;
+        int depth = 0;
+        StringBuilder text = new StringBuilder();
+
+        while (reader.hasNext()) {
+            int type = reader.next();
+            switch (type) {
+                case XMLStreamConstants.START_ELEMENT: {
+                    String name = reader.getLocalName();
+                    text.setLength(0);
+                    if (!inRoot) {
+                        if (ROOT_ELEMENT.equals(name)) {
+                            inRoot = true;
+                            depth = 0;
+                        }
+                        break;
+                    }
+                    depth++;
+                    if (!regionDone && "DetectionRegionList".equals(name)) {
+                        inRegionList = true;
+                        region = new HashMap<>();
+                        entries = new ArrayList<>();
+                    } else if (inRegionList && "DetectionRegionEntry".equals(name)) {
+                        entry = new HashMap<>();
+                        coordinates = null;
+                    } else if (entry != null && "RegionCoordinatesList".equals(name) && coordinates == null) {
+                        coordinates = new ArrayList<>();
+                    } else if (coordinates != null && "RegionCoordinates".equals(name)) {
+                        point = new HashMap<>();
+                    }
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    if (inRoot) {
+                        text.append(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT: {
+                    if (!inRoot) {
+                        break;
+                    }
+                    String name = reader.getLocalName();
+                    if (depth == 0) {
+                        // 根元素结束, 不再读取后续字节
+                        return buildEvent(texts, region);
+                    }
+                    depth--;
+                    String value = text.toString().trim();
+                    text.setLength(0);
+
+                    if (point != null) {
+                        if ("positionX".equals(name) || "positionY".equals(name)) {
+                            point.putIfAbsent(name, IsapiXmlParser.parseInteger(value));
+                        } else if ("RegionCoordinates".equals(name)) {
+                            point.putIfAbsent("positionX", null);
+                            point.putIfAbsent("positionY", null);
+                            coordinates.add(point);
+                            point = null;
+                        }
+                    } else if (entry != null) {
+                        if ("regionID".equals(name)) {
+                            entry.putIfAbsent("regionID", value);
+                        } else if ("sensitivityLevel".equals(name)) {
+                            entry.putIfAbsent("sensitivityLevel", IsapiXmlParser.parseInteger(value));
+                        } else if ("RegionCoordinatesList".equals(name) && coordinates != null) {
+                            entry.putIfAbsent("coordinates", coordinates);
+                        } else if ("DetectionRegionEntry".equals(name)) {
+                            entry.putIfAbsent("regionID", null);
+                            entry.putIfAbsent("sensitivityLevel", null);
+                            entries.add(entry);
+                            entry = null;
+                            coordinates = null;
+                        }
+                    } else if (inRegionList && "DetectionRegionList".equals(name)) {
+                        region.put("entries", entries);
+                        inRegionList = false;
+                        regionDone = true;
+                    }
+
+                    if (TEXT_FIELDS.contains(name)) {
+                        texts.putIfAbsent(name, value);
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        return inRoot ? buildEvent(texts, region) : null;
+    }
+
+    private Map<String, Object> buildEvent(Map<String, String> texts, Map<String, Object> region) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("ipAddress", texts.get("ipAddress"));
+        event.put("portNo", IsapiXmlParser.parseInteger(texts.get("portNo")));
+        event.put("protocol", texts.get("protocol"));
+        event.put("macAddress", texts.get("macAddress"));
+        event.put("channelID", IsapiXmlParser.parseInteger(texts.get("channelID")));
+        event.put("dateTime", IsapiXmlParser.parseDateTime(texts.get("dateTime")));
+        event.put("activePostCount", IsapiXmlParser.parseInteger(texts.get("activePostCount")));
+        event.put("eventType", texts.get("eventType"));
+        event.put("eventState", texts.get("eventState"));
+        event.put("eventDescription", texts.get("eventDescription"));
+
+        if (region != null) {
+            region.putIfAbsent("entries", new ArrayList<>());
+            event.put("detectionRegion", region);
+        }
+
+        String eventType = texts.get("eventType");
+        String eventState = texts.get("eventState");
+        // 心跳判断: videoloss + inactive
+        event.put("isHeartbeat", "videoloss".equalsIgnoreCase(eventType)
+                && "inactive".equalsIgnoreCase(eventState));
+        return event;
+    }
+}
@@ -0,0 +1,740 @@
+package com.cretas.aims.client.isapi;
+
+import com.cretas.aims.config.IsapiConfig;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * ISAPI alertStream 多路复用读取器
+ *
+ * 单个 selector 线程以非阻塞方式持有所有设备的 alertStream 长连接:
+ * - 线程数与设备数无关 (1 个 selector + N 个分发线程 + 1 个重连调度线程)
+ * - 字节流经 {@link MultipartAlertDecoder} 做边界匹配, 事件 XML 使用 StAX 解析
+ * - 事件按设备哈希进入有界分发队列, 同一设备的事件保持顺序; 队列满时丢弃并计数
+ * - 连接失败/断开后按指数退避 (带抖动) 重连, 超过 retry-count 次后向消费者上报错误事件
+ *
+ * 仅支持 HTTP 设备; HTTPS 设备仍由 {@link IsapiClient#subscribeAlertStream} 通过 OkHttp 读取。
+ *
+ * @author Cretas Team
+ * @since 2026-01-05
+ */
+@Slf4j
+@Component
+public class IsapiAlertStreamReader {
+
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final long MIN_IDLE_TIMEOUT_MS = 30_000L;
+
+    private final IsapiConfig config;
+    private final IsapiAlertStaxParser parser = new IsapiAlertStaxParser();
+
+    // 活动连接 (deviceId -> connection)
+    private final Map<String, StreamConnection> connections = new ConcurrentHashMap<>();
+
+    // 需在 selector 线程执行的任务 (注册/关闭连接)
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+    // selector 线程独占的读缓冲区
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+
+    private volatile Selector selector;
+    private volatile boolean running;
+    private Thread selectorThread;
+    private ScheduledExecutorService reconnectScheduler;
+    private DispatchShard[] shards;
+
+    // 统计
+    private final AtomicLong eventsReceived = new AtomicLong();
+    private final AtomicLong eventsDispatched = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong oversizedParts = new AtomicLong();
+    private final AtomicInteger threadsStarted = new AtomicInteger();
+
+    public IsapiAlertStreamReader(IsapiConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 告警流目标
+     */
+    @Getter
+    @Builder
+    public static class StreamTarget {
+        private final String deviceId;
+        private final String factoryId;
+        private final String host;
+        private final int port;
+        private final String path;
+        private final String username;
+        private final String password;
+    }
+
+    // ==================== 订阅管理 ====================
+
+    /**
+     * 订阅设备告警流
+     *
+     * @param target        连接目标
+     * @param eventConsumer 事件回调 (在分发线程中执行)
+     * @return 订阅句柄
+     */
+    public AlertStreamSubscription subscribe(StreamTarget target, Consumer<Map<String, Object>> eventConsumer) {
+        ensureStarted();
+
+        StreamConnection connection = new StreamConnection(target, eventConsumer);
+        StreamConnection previous = connections.put(target.getDeviceId(), connection);
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        submit(() -> connect(connection));
+        return connection;
+    }
+
+    /**
+     * 当前持有的告警流数量
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connections.size());
+        stats.put("streaming", connections.values().stream()
+                .filter(c -> c.state == ConnectionState.STREAMING).count());
+        stats.put("eventsReceived", eventsReceived.get());
+        stats.put("eventsDispatched", eventsDispatched.get());
+        stats.put("eventsDropped", eventsDropped.get());
+        stats.put("bytesRead", bytesRead.get());
+        stats.put("reconnects", reconnects.get());
+        stats.put("oversizedParts", oversizedParts.get());
+        int queueDepth = 0;
+        if (shards != null) {
+            for (DispatchShard shard : shards) {
+                queueDepth += shard.queue.size();
+            }
+        }
+        stats.put("dispatchQueueDepth", queueDepth);
+        stats.put("threadsStarted", threadsStarted.get());
+        return stats;
+    }
+
+    // ==================== 生命周期 ====================
+
+    private synchronized void ensureStarted() {
+        if (running) {
+            return;
+        }
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法创建 Selector", e);
+        }
+
+        running = true;
+        int shardCount = Math.max(1, config.getAlertDispatchThreads());
+        int shardCapacity = Math.max(16, config.getAlertDispatchQueueCapacity() / shardCount);
+        shards = new DispatchShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new DispatchShard(i, shardCapacity);
+            shards[i].thread.start();
+        }
+
+        reconnectScheduler = Executors.newSingleThreadScheduledExecutor(
+                r -> newDaemonThread(r, "isapi-alert-reconnect"));
+
+        selectorThread = newDaemonThread(this::selectLoop, "isapi-alert-selector");
+        selectorThread.start();
+        log.info("ISAPI 告警流读取器已启动: dispatchThreads={}, queueCapacity={}",
+                shardCount, shardCapacity * shardCount);
+    }
+
+    /**
+     * 读取器自身创建的线程均经此处, 便于统计线程数与流数量无关
+     */
+    private Thread newDaemonThread(Runnable task, String name) {
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        threadsStarted.incrementAndGet();
+        return t;
+    }
+
+    /**
+     * 关闭所有连接与线程
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (StreamConnection connection : connections.values()) {
+            connection.canceled = true;
+        }
+        connections.clear();
+        selector.wakeup();
+        try {
+            selectorThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reconnectScheduler.shutdownNow();
+        for (DispatchShard shard : shards) {
+            shard.thread.interrupt();
+        }
+        log.info("ISAPI 告警流读取器已关闭");
+    }
+
+    private void submit(Runnable task) {
+        selectorTasks.add(task);
+        Selector s = selector;
+        if (s != null) {
+            s.wakeup();
+        }
+    }
+
+    // ==================== Selector 循环 ====================
+
+    private void selectLoop() {
+        long lastIdleCheck = System.currentTimeMillis();
+        while (running) {
+            try {
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+
+                selector.select(1000);
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    StreamConnection connection = (StreamConnection) key.attachment();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isConnectable()) {
+                            onConnectable(connection);
+                        } else if (key.isWritable()) {
+                            onWritable(connection);
+                        } else if (key.isReadable()) {
+                            onReadable(connection);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        onFailure(connection, e.getMessage());
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastIdleCheck >= 1000) {
+                    lastIdleCheck = now;
+                    checkTimeouts(now);
+                }
+            } catch (Exception e) {
+                log.error("告警流 selector 循环异常", e);
+            }
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(((StreamConnection) key.attachment()));
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // 关闭阶段忽略
+        }
+    }
+
+    private void connect(StreamConnection connection) {
+        if (connection.canceled) {
+            return;
+        }
+        closeQuietly(connection);
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            connection.channel = channel;
+            connection.state = ConnectionState.CONNECTING;
+            connection.stateSince = System.currentTimeMillis();
+            connection.headerLength = 0;
+            connection.decoder = null;
+            connection.chunked = null;
+
+            StreamTarget target = connection.target;
+            if (channel.connect(new InetSocketAddress(target.getHost(), target.getPort()))) {
+                connection.key = channel.register(selector, 0, connection);
+                onConnectable(connection);
+            } else {
+                connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+            }
+        } catch (IOException | RuntimeException e) {
+            onFailure(connection, e.getMessage());
+        }
+    }
+
+    private void onConnectable(StreamConnection connection) throws IOException {
+        if (connection.channel.isConnectionPending()) {
+            connection.channel.finishConnect();
+        }
+        connection.out = ByteBuffer.wrap(connection.buildRequest());
+        connection.state = ConnectionState.SENDING;
+        connection.key.interestOps(SelectionKey.OP_WRITE);
+        onWritable(connection);
+    }
+
+    private void onWritable(StreamConnection connection) throws IOException {
+        connection.channel.write(connection.out);
+        if (!connection.out.hasRemaining()) {
+            connection.out = null;
+            connection.state = ConnectionState.READING_HEADERS;
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void onReadable(StreamConnection connection) throws IOException {
+        readBuffer.clear();
+        int n = connection.channel.read(readBuffer);
+        if (n < 0) {
+            onFailure(connection, "连接被设备关闭");
+            return;
+        }
+        if (n == 0) {
+            return;
+        }
+        bytesRead.addAndGet(n);
+        connection.lastReadAt = System.currentTimeMillis();
+        readBuffer.flip();
+
+        if (connection.state == ConnectionState.READING_HEADERS) {
+            int consumed = connection.appendHeaders(readBuffer);
+            if (consumed < 0) {
+                return;
+            }
+            if (!onHeaders(connection)) {
+                return;
+            }
+        }
+        if (connection.state == ConnectionState.STREAMING && readBuffer.hasRemaining()) {
+            connection.feedBody(readBuffer);
+        }
+    }
+
+    /**
+     * 处理响应头
+     *
+     * @return 是否进入流式读取
+     */
+    private boolean onHeaders(StreamConnection connection) {
+        String head = new String(connection.headerBuffer, 0, connection.headerLength, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+        int status = parseStatus(lines[0]);
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+            }
+        }
+
+        StreamTarget target = connection.target;
+        if (status == 401 && !connection.authRetried && target.getUsername() != null) {
+            connection.authRetried = true;
+            connection.authorization = connection.authenticator()
+                    .buildAuthorization("GET", target.getPath(), headers.get("www-authenticate"));
+            if (connection.authorization != null) {
+                // 401 响应体无需读取, 带认证头重新建立连接
+                connect(connection);
+                return false;
+            }
+        }
+        if (status != 200) {
+            onFailure(connection, "HTTP " + status);
+            return false;
+        }
+
+        String boundary = IsapiClient.extractBoundary(headers.get("content-type"));
+        if (boundary == null) {
+            onFailure(connection, "无法解析 multipart boundary");
+            return false;
+        }
+
+        connection.decoder = new MultipartAlertDecoder(boundary, config.getAlertMaxPartBytes(), parser,
+                event -> dispatch(connection, event));
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            connection.chunked = new ChunkedBodyDecoder();
+        }
+        connection.state = ConnectionState.STREAMING;
+        connection.failures = 0;
+        connection.authRetried = false;
+        log.info("已连接到告警流: {}:{}, boundary={}", target.getHost(), target.getPort(), boundary);
+        return true;
+    }
+
+    private static int parseStatus(String statusLine) {
+        String[] parts = statusLine.split(" ");
+        if (parts.length < 2) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void checkTimeouts(long now) {
+        long idleTimeout = Math.max(MIN_IDLE_TIMEOUT_MS, config.getHeartbeatInterval() * 3000L);
+        long connectTimeout = Math.max(1, config.getConnectionTimeout()) * 1000L;
+        for (StreamConnection connection : connections.values()) {
+            if (connection.channel == null || !connection.channel.isOpen()) {
+                continue;
+            }
+            if (connection.state == ConnectionState.STREAMING) {
+                if (now - connection.lastReadAt > idleTimeout) {
+                    onFailure(connection, "心跳超时");
+                }
+            } else if (now - connection.stateSince > connectTimeout) {
+                onFailure(connection, "连接超时");
+            }
+        }
+    }
+
+    // ==================== 失败与重连 ====================
+
+    private void onFailure(StreamConnection connection, String reason) {
+        closeQuietly(connection);
+        if (connection.canceled) {
+            return;
+        }
+        if (connection.decoder != null) {
+            oversizedParts.addAndGet(connection.decoder.getOversizedParts());
+            connection.decoder = null;
+        }
+
+        connection.failures++;
+        StreamTarget target = connection.target;
+        if (connection.failures > Math.max(1, config.getRetryCount())) {
+            log.error("告警订阅失败: {} - {}", target.getHost(), reason);
+            connections.remove(target.getDeviceId(), connection);
+            connection.canceled = true;
+
+            Map<String, Object> errorEvent = new HashMap<>();
+            errorEvent.put("error", true);
+            errorEvent.put("message", reason);
+            errorEvent.put("deviceId", target.getDeviceId());
+            connection.shard.offerControl(connection, errorEvent);
+            return;
+        }
+
+        long delay = backoffDelay(connection.failures);
+        reconnects.incrementAndGet();
+        log.warn("告警流断开: {} - {}, {}ms 后重连 (尝试 {}/{})",
+                target.getHost(), reason, delay, connection.failures, config.getRetryCount());
+        connection.pendingReconnect = reconnectScheduler.schedule(
+                () -> submit(() -> connect(connection)), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private long backoffDelay(int failures) {
+        long base = Math.max(100, config.getRetryDelay());
+        long delay = Math.min(base << Math.min(failures - 1, 20), config.getAlertMaxBackoffMs());
+        double jitter = 0.8 + ThreadLocalRandom.current().nextDouble() * 0.4;
+        return (long) (delay * jitter);
+    }
+
+    private void closeQuietly(StreamConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        if (connection.key != null) {
+            connection.key.cancel();
+            connection.key = null;
+        }
+        if (connection.channel != null) {
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+                // 关闭失败无需处理
+            }
+        }
+        connection.state = ConnectionState.CLOSED;
+    }
+
+    // ==================== 事件分发 ====================
+
+    private void dispatch(StreamConnection connection, Map<String, Object> event) {
+        eventsReceived.incrementAndGet();
+        event.put("deviceId", connection.target.getDeviceId());
+        event.put("factoryId", connection.target.getFactoryId());
+        if (!connection.shard.queue.offer(new Envelope(connection, event))) {
+            long dropped = eventsDropped.incrementAndGet();
+            if ((dropped & 1023) == 1) {
+                log.warn("告警分发队列已满, 已丢弃 {} 条事件", dropped);
+            }
+        }
+    }
+
+    private DispatchShard shardFor(String deviceId) {
+        return shards[Math.floorMod(deviceId.hashCode(), shards.length)];
+    }
+
+    private static final class Envelope {
+        private final StreamConnection connection;
+        private final Map<String, Object> event;
+
+        private Envelope(StreamConnection connection, Map<String, Object> event) {
+            this.connection = connection;
+            this.event = event;
+        }
+    }
+
+    /**
+     * 分发分片: 单线程消费, 保证同一设备事件有序
+     */
+    private final class DispatchShard {
+        private final BlockingQueue<Envelope> queue;
+        private final Thread thread;
+
+        private DispatchShard(int index, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = newDaemonThread(this::run, "isapi-alert-dispatch-" + index);
+        }
+
+        private void offerControl(StreamConnection connection, Map<String, Object> event) {
+            // 错误事件不参与丢弃策略, 队列满时短暂等待
+            try {
+                if (!queue.offer(new Envelope(connection, event), 1, TimeUnit.SECONDS)) {
+                    log.warn("错误事件入队超时: {}", connection.target.getDeviceId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            while (running || !queue.isEmpty()) {
+                Envelope envelope;
+                try {
+                    envelope = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                boolean isError = Boolean.TRUE.equals(envelope.event.get("error"));
+                if (envelope.connection.canceled && !isError) {
+                    continue;
+                }
+                try {
+                    envelope.connection.consumer.accept(envelope.event);
+                    eventsDispatched.incrementAndGet();
+                } catch (Exception e) {
+                    log.error("处理告警事件异常: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    // ==================== 连接状态 ====================
+
+    private enum ConnectionState {
+        CONNECTING, SENDING, READING_HEADERS, STREAMING, CLOSED
+    }
+
+    private final class StreamConnection implements AlertStreamSubscription {
+        private final StreamTarget target;
+        private final Consumer<Map<String, Object>> consumer;
+        private final DispatchShard shard;
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private volatile ConnectionState state = ConnectionState.CLOSED;
+        private long stateSince;
+        private long lastReadAt;
+        private ByteBuffer out;
+
+        private final byte[] headerBuffer = new byte[MAX_HEADER_BYTES];
+        private int headerLength;
+
+        private IsapiDigestAuthenticator authenticator;
+        private String authorization;
+        private boolean authRetried;
+
+        private MultipartAlertDecoder decoder;
+        private ChunkedBodyDecoder chunked;
+        private int failures;
+        private volatile ScheduledFuture<?> pendingReconnect;
+        private volatile boolean canceled;
+
+        private StreamConnection(StreamTarget target, Consumer<Map<String, Object>> consumer) {
+            this.target = target;
+            this.consumer = consumer;
+            this.shard = shardFor(target.getDeviceId());
+        }
+
+        private IsapiDigestAuthenticator authenticator() {
+            if (authenticator == null) {
+                authenticator = new IsapiDigestAuthenticator(target.getUsername(), target.getPassword());
+            }
+            return authenticator;
+        }
+
+        private byte[] buildRequest() {
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("GET ").append(target.getPath()).append(" HTTP/1.1\r\n");
+            sb.append("Host: ").append(target.getHost()).append(':').append(target.getPort()).append("\r\n");
+            sb.append("Accept: multipart/mixed, application/xml\r\n");
+            sb.append("Connection: keep-alive\r\n");
+            if (authorization != null) {
+                sb.append("Authorization: ").append(authorization).append("\r\n");
+            }
+            sb.append("\r\n");
+            return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * 追加响应头字节
+         *
+         * @return 头部结束后 buffer 中的剩余位置; 头部未结束返回 -1
+         */
+        private int appendHeaders(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (headerLength == headerBuffer.length) {
+                    throw new IOException("响应头过大");
+                }
+                byte b = buffer.get();
+                headerBuffer[headerLength++] = b;
+                if (b == '\n' && headerLength >= 4
+                        && headerBuffer[headerLength - 2] == '\r'
+                        && headerBuffer[headerLength - 3] == '\n'
+                        && headerBuffer[headerLength - 4] == '\r') {
+                    headerLength -= 4;
+                    return buffer.position();
+                }
+            }
+            return -1;
+        }
+
+        private void feedBody(ByteBuffer buffer) throws IOException {
+            if (chunked == null) {
+                decoder.feed(buffer);
+                return;
+            }
+            if (chunked.feed(buffer, decoder)) {
+                onFailure(this, "告警流已结束");
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (canceled) {
+                return;
+            }
+            canceled = true;
+            connections.remove(target.getDeviceId(), this);
+            ScheduledFuture<?> reconnect = pendingReconnect;
+            if (reconnect != null) {
+                reconnect.cancel(false);
+            }
+            submit(() -> closeQuietly(this));
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+    /**
+     * HTTP chunked 传输解码
+     */
+    private static final class ChunkedBodyDecoder {
+        private static final int SIZE = 0;
+        private static final int EXTENSION = 1;
+        private static final int SIZE_LF = 2;
+        private static final int DATA = 3;
+        private static final int DATA_CR = 4;
+        private static final int DATA_LF = 5;
+
+        private int state = SIZE;
+        private long remaining;
+
+        /**
+         * @return 是否读到结束块 (size=0)
+         */
+        private boolean feed(ByteBuffer buffer, MultipartAlertDecoder decoder) throws IOException {
+            while (buffer.hasRemaining()) {
+                switch (state) {
+                    case SIZE: {
+                        byte b = buffer.get();
+                        int digit = Character.digit(b, 16);
+                        if (digit >= 0) {
+                            remaining = (remaining << 4) | digit;
+                        } else if (b == ';' || b == ' ') {
+                            state = EXTENSION;
+                        } else if (b == '\r') {
+                            state = SIZE_LF;
+                        } else {
+                            throw new IOException("非法的 chunk 长度");
+                        }
+                        break;
+                    }
+                    case EXTENSION:
+                        if (buffer.get() == '\r') {
+                            state = SIZE_LF;
+                        }
+                        break;
+                    case SIZE_LF:
+                        buffer.get();
+                        if (remaining == 0) {
+                            return true;
+                        }
+                        state = DATA;
+                        break;
+                    case DATA: {
+                        int n = (int) Math.min(remaining, buffer.remaining());
+                        int limit = buffer.limit();
+                        buffer.limit(buffer.position() + n);
+                        decoder.feed(buffer);
+                        buffer.limit(limit);
+                        remaining -= n;
+                        if (remaining == 0) {
+                            state = DATA_CR;
+                        }
+                        break;
+                    }
+                    case DATA_CR:
+                        buffer.get();
+                        state = DATA_LF;
+                        break;
+                    default:
+                        buffer.get();
+                        state = SIZE;
+                        break;
+                }
+            }
+            return false;
+        }
+    }
+}
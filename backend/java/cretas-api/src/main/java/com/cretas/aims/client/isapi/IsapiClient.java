@@ -37,6 +37,10 @@ public class IsapiClient {
     private final OkHttpClient baseStreamClient;
     private final IsapiConfig config;
     private final IsapiXmlParser xmlParser;
+    private final IsapiAlertStaxParser staxParser = new IsapiAlertStaxParser();
+
+    @Autowired(required = false)
+    private IsapiAlertStreamReader alertStreamReader;
 
     // 缓存每个设备的认证客户端
     private final Map<String, OkHttpClient> deviceClients = new ConcurrentHashMap<>();
@@ -179,38 +183,22 @@ public class IsapiClient {
 
                 log.info("已连接到告警流: {}, boundary={}", device.getIpAddress(), boundary);
 
-                // 持续读取流数据
+                // 持续读取流数据: 字节级边界匹配 + StAX 解析, 避免反复拼接/扫描整个缓冲区
+                MultipartAlertDecoder decoder = new MultipartAlertDecoder(
+                        boundary, config.getAlertMaxPartBytes(), staxParser, event -> {
+                            event.put("deviceId", device.getId());
+                            event.put("factoryId", device.getFactoryId());
+                            eventConsumer.accept(event);
+                        });
                 try (ResponseBody body = response.body()) {
                     if (body == null) return;
 
                     InputStream is = body.byteStream();
                     byte[] buffer = new byte[8192];
-                    StringBuilder builder = new StringBuilder();
 
                     int bytesRead;
                     while ((bytesRead = is.read(buffer)) != -1) {
-                        String chunk = new String(buffer, 0, bytesRead, StandardCharsets.UTF_8);
-                        builder.append(chunk);
-
-                        // 检查是否有完整的事件
-                        String content = builder.toString();
-                        if (content.contains("--" + boundary)) {
-                            // 解析事件
-                            java.util.List<Map<String, Object>> events =
-                                    xmlParser.parseMultipartEvents(content, boundary);
-
-                            for (Map<String, Object> event : events) {
-                                event.put("deviceId", device.getId());
-                                event.put("factoryId", device.getFactoryId());
-                                eventConsumer.accept(event);
-                            }
-
-                            // 保留未完成的部分
-                            int lastBoundary = content.lastIndexOf("--" + boundary);
-                            if (lastBoundary > 0) {
-                                builder = new StringBuilder(content.substring(lastBoundary));
-                            }
-                        }
+                        decoder.feed(buffer, 0, bytesRead);
                     }
                 } catch (IOException e) {
                     if (!call.isCanceled()) {
@@ -223,6 +211,32 @@ public class IsapiClient {
         return call;
     }
 
+    /**
+     * 打开告警事件流
+     * HTTP 设备走 NIO 多路复用读取器 (不占用线程), HTTPS 设备或未启用多路复用时回退到 OkHttp 长连接
+     *
+     * @param device        设备
+     * @param eventConsumer 事件回调
+     * @return 订阅句柄，可用于取消订阅
+     */
+    public AlertStreamSubscription openAlertStream(IsapiDevice device, Consumer<Map<String, Object>> eventConsumer) {
+        if (alertStreamReader == null || !config.isAlertStreamMultiplexed()
+                || device.getProtocol() != IsapiDevice.Protocol.HTTP) {
+            return AlertStreamSubscription.of(subscribeAlertStream(device, eventConsumer));
+        }
+
+        IsapiAlertStreamReader.StreamTarget target = IsapiAlertStreamReader.StreamTarget.builder()
+                .deviceId(device.getId())
+                .factoryId(device.getFactoryId())
+                .host(device.getIpAddress())
+                .port(device.getPort())
+                .path(IsapiConfig.Endpoints.ALERT_STREAM)
+                .username(device.getUsername())
+                .password(decryptPassword(device.getPasswordEncrypted()))
+                .build();
+        return alertStreamReader.subscribe(target, eventConsumer);
+    }
+
     // ==================== 智能分析 ====================
 
     /**
@@ -478,7 +492,7 @@ public class IsapiClient {
     /**
      * 从 Content-Type 提取 boundary
      */
-    private String extractBoundary(String contentType) {
+    static String extractBoundary(String contentType) {
         if (contentType == null) {
             return null;
         }
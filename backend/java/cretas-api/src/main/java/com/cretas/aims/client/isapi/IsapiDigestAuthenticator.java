@@ -105,16 +105,54 @@ public class IsapiDigestAuthenticator implements Interceptor {
         return chain.proceed(authenticatedRequest);
     }
 
+    /**
+     * 根据服务器的 WWW-Authenticate 挑战生成 Authorization 头
+     * 供不经过 OkHttp 的连接 (如 NIO alertStream 读取器) 使用
+     *
+     * @param method    HTTP 方法
+     * @param uri       请求路径 (含查询串)
+     * @param challenge WWW-Authenticate 头内容
+     * @return Authorization 头的值, 挑战无效时返回 null
+     */
+    public String buildAuthorization(String method, String uri, String challenge) {
+        if (challenge == null || !challenge.toLowerCase().startsWith("digest")) {
+            return null;
+        }
+        Map<String, String> authParams = parseAuthHeader(challenge);
+        String realm = authParams.get("realm");
+        String nonce = authParams.get("nonce");
+        if (nonce == null || realm == null) {
+            log.error("认证头缺少必要参数: nonce={}, realm={}", nonce, realm);
+            return null;
+        }
+
+        this.cachedNonce = nonce;
+        this.cachedRealm = realm;
+        this.cachedOpaque = authParams.get("opaque");
+        this.nonceTimestamp = System.currentTimeMillis();
+        this.nonceCount.set(0);
+
+        return buildAuthorizationValue(method, uri, realm, nonce, cachedOpaque);
+    }
+
     /**
      * 构建带认证头的请求
      */
     private Request buildAuthenticatedRequest(Request original, String realm, String nonce, String opaque) {
-        String method = original.method();
         String uri = original.url().encodedPath();
         if (original.url().encodedQuery() != null) {
             uri += "?" + original.url().encodedQuery();
         }
 
+        return original.newBuilder()
+                .header("Authorization", buildAuthorizationValue(original.method(), uri, realm, nonce, opaque))
+                .build();
+    }
+
+    /**
+     * 构建 Authorization 头的值
+     */
+    private String buildAuthorizationValue(String method, String uri, String realm, String nonce, String opaque) {
         // 生成 cnonce
         String cnonce = generateCnonce();
 
@@ -140,9 +178,7 @@ public class IsapiDigestAuthenticator implements Interceptor {
             authBuilder.append(", opaque=\"").append(opaque).append("\"");
         }
 
-        return original.newBuilder()
-                .header("Authorization", authBuilder.toString())
-                .build();
+        return authBuilder.toString();
     }
 
     /**
@@ -263,7 +263,7 @@ public class IsapiXmlParser {
     /**
      * 解析整数
      */
-    private Integer parseInteger(String value) {
+    static Integer parseInteger(String value) {
         if (value == null || value.isEmpty()) {
             return null;
         }
@@ -277,7 +277,7 @@ public class IsapiXmlParser {
     /**
      * 解析日期时间
      */
-    private LocalDateTime parseDateTime(String value) {
+    static LocalDateTime parseDateTime(String value) {
         if (value == null || value.isEmpty()) {
             return null;
         }
@@ -0,0 +1,198 @@
+package com.cretas.aims.client.isapi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * alertStream multipart/mixed 增量解码器
+ *
+ * 以字节为单位处理 alertStream:
+ * - 使用 KMP 自动机匹配 "--boundary", 每个字节只扫描一次, 分隔符可跨读取块
+ * - 当前分段暂存在定长环形缓冲区中, 分段结束时才拷贝出来交给 StAX 解析
+ * - 超过 maxPartBytes 的分段 (如抓拍图片) 直接丢弃, 直到下一个分隔符
+ *
+ * 非线程安全, 每个连接持有一个实例。
+ *
+ * @author Cretas Team
+ * @since 2026-01-05
+ */
+@Slf4j
+public class MultipartAlertDecoder {
+
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+    private static final byte[] ALERT_START = "<EventNotificationAlert".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XML_DECL_START = "<?xml".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] delimiter;
+    private final int[] failure;
+    private final byte[] ring;
+    private final int mask;
+    private final IsapiAlertStaxParser parser;
+    private final Consumer<Map<String, Object>> eventSink;
+
+    /** 当前分段起始位置 (绝对偏移) */
+    private long partStart;
+    /** 下一个写入位置 (绝对偏移) */
+    private long position;
+    /** KMP 已匹配的分隔符长度 */
+    private int matched;
+    /** 当前分段超出缓冲区容量, 丢弃至下一个分隔符 */
+    private boolean discarding;
+
+    private long partCount;
+    private long oversizedParts;
+    private long parseErrors;
+
+    public MultipartAlertDecoder(String boundary, int maxPartBytes, IsapiAlertStaxParser parser,
+                                 Consumer<Map<String, Object>> eventSink) {
+        this.delimiter = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.failure = buildFailureTable(delimiter);
+        int capacity = Integer.highestOneBit(Math.max(maxPartBytes, 1024) - 1) << 1;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+        this.parser = parser;
+        this.eventSink = eventSink;
+    }
+
+    /**
+     * 输入一段字节, 解析出的事件同步回调 eventSink
+     */
+    public void feed(byte[] data, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            accept(data[i]);
+        }
+    }
+
+    /**
+     * 输入 ByteBuffer 中剩余的字节 (读取后 position 移到 limit)
+     */
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                accept(buffer.get());
+            }
+        }
+    }
+
+    private void accept(byte b) {
+        if (!discarding) {
+            if (position - partStart == ring.length) {
+                // 分段过大: 丢弃已缓存内容, 只继续做分隔符匹配
+                discarding = true;
+                oversizedParts++;
+            } else {
+                ring[(int) (position & mask)] = b;
+            }
+        }
+        position++;
+
+        while (matched > 0 && delimiter[matched] != b) {
+            matched = failure[matched - 1];
+        }
+        if (delimiter[matched] == b) {
+            matched++;
+        }
+        if (matched == delimiter.length) {
+            long partEnd = position - delimiter.length;
+            if (!discarding && partEnd > partStart) {
+                emitPart(partStart, partEnd);
+            }
+            partStart = position;
+            discarding = false;
+            matched = 0;
+        }
+    }
+
+    private void emitPart(long start, long end) {
+        int length = (int) (end - start);
+        byte[] part = new byte[length];
+        int from = (int) (start & mask);
+        int firstLength = Math.min(length, ring.length - from);
+        System.arraycopy(ring, from, part, 0, firstLength);
+        if (firstLength < length) {
+            System.arraycopy(ring, 0, part, firstLength, length - firstLength);
+        }
+        partCount++;
+
+        int bodyStart = locateXml(part);
+        if (bodyStart < 0) {
+            return;
+        }
+        try {
+            Map<String, Object> event = parser.parse(part, bodyStart, length - bodyStart);
+            if (event != null) {
+                eventSink.accept(event);
+            }
+        } catch (Exception e) {
+            parseErrors++;
+            log.debug("解析告警分段失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定位分段中 XML 的起始位置; 非 XML 分段 (如 image/jpeg) 返回 -1
+     */
+    private static int locateXml(byte[] part) {
+        int headerEnd = indexOf(part, HEADER_END, 0, part.length);
+        int searchFrom = 0;
+        if (headerEnd >= 0) {
+            String headers = new String(part, 0, headerEnd, StandardCharsets.ISO_8859_1).toLowerCase();
+            if (headers.contains("content-type") && !headers.contains("xml")) {
+                return -1;
+            }
+            searchFrom = headerEnd + HEADER_END.length;
+        }
+        int xmlStart = indexOf(part, XML_DECL_START, searchFrom, part.length);
+        if (xmlStart < 0) {
+            xmlStart = indexOf(part, ALERT_START, searchFrom, part.length);
+        }
+        return xmlStart;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from, int to) {
+        outer:
+        for (int i = from, last = to - pattern.length; i <= last; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int[] buildFailureTable(byte[] pattern) {
+        int[] table = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[k] != pattern[i]) {
+                k = table[k - 1];
+            }
+            if (pattern[k] == pattern[i]) {
+                k++;
+            }
+            table[i] = k;
+        }
+        return table;
+    }
+
+    public long getPartCount() {
+        return partCount;
+    }
+
+    public long getOversizedParts() {
+        return oversizedParts;
+    }
+
+    public long getParseErrors() {
+        return parseErrors;
+    }
+}
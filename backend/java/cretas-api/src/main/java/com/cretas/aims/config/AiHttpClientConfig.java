@@ -7,7 +7,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * AI 服务 HTTP 客户端配置
@@ -40,6 +45,9 @@ public class AiHttpClientConfig {
     @Value("${cretas.ai.http.pool.keep-alive-duration:5}")
     private int keepAliveDuration;
 
+    @Value("${cretas.ai.stream.http-threads:2}")
+    private int streamHttpThreads;
+
     /**
      * 创建专用于 AI 服务调用的 OkHttpClient
      *
@@ -71,4 +79,30 @@ public class AiHttpClientConfig {
                 // .addInterceptor(new HttpLoggingInterceptor().setLevel(Level.BASIC))
                 .build();
     }
+
+    /**
+     * 创建用于 LLM 流式响应的 JDK HttpClient
+     *
+     * OkHttp 以阻塞 IO 读取响应体，流式调用在整个生成期间占用一个线程；
+     * JDK HttpClient 由选择器线程异步读取，按订阅方需求推送响应行，
+     * 回调线程数固定为 cretas.ai.stream.http-threads，与同时打开的流数量无关。
+     */
+    @Bean(name = "aiStreamingHttpClient")
+    public HttpClient aiStreamingHttpClient() {
+        log.info("Initializing AI Streaming HttpClient: connectTimeout={}s, threads={}",
+                connectTimeout, streamHttpThreads);
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, streamHttpThreads), r -> {
+            Thread t = new Thread(r, "ai-stream-http-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(connectTimeout))
+                .executor(executor)
+                .build();
+    }
 }
@@ -34,6 +34,12 @@ import java.util.concurrent.TimeUnit;
  *   heartbeat-interval: 30  # 心跳检测间隔(秒)
  *   retry-count: 3
  *   retry-delay: 1000
+ *   alert-stream:
+ *     multiplexed: true          # HTTP 设备使用 NIO 多路复用读取 alertStream
+ *     dispatch-queue-capacity: 10000
+ *     dispatch-threads: 4
+ *     max-part-bytes: 262144     # 单个 multipart 分段上限, 超出 (如图片) 直接丢弃
+ *     max-backoff-ms: 60000
  *
  * @author Cretas Team
  * @since 2026-01-05
@@ -71,6 +77,21 @@ public class IsapiConfig {
     @Value("${isapi.password-encryption-key:cretas-isapi-2026}")
     private String passwordEncryptionKey;
 
+    @Value("${isapi.alert-stream.multiplexed:true}")
+    private boolean alertStreamMultiplexed = true;
+
+    @Value("${isapi.alert-stream.dispatch-queue-capacity:10000}")
+    private int alertDispatchQueueCapacity = 10000;
+
+    @Value("${isapi.alert-stream.dispatch-threads:4}")
+    private int alertDispatchThreads = 4;
+
+    @Value("${isapi.alert-stream.max-part-bytes:262144}")
+    private int alertMaxPartBytes = 262144;
+
+    @Value("${isapi.alert-stream.max-backoff-ms:60000}")
+    private long alertMaxBackoffMs = 60000;
+
     /**
      * 创建标准 OkHttpClient (用于普通 API 请求)
      * 注意: Digest 认证拦截器在 IsapiClient 中动态添加
@@ -10,8 +10,9 @@ import javax.annotation.PostConstruct;
 /**
  * Python Intent Classifier 服务配置
  *
- * 配置 Python 意图分类器服务的连接参数：
+ * 配置意图分类器的推理模式与 Python 服务连接参数：
  * - enabled: 是否启用分类器服务
+ * - mode: local 使用 JVM 内分类头, remote 调用 Python 服务
  * - url: Python 服务地址 (python-services 端口 8083)
  * - timeout: 请求超时时间
  * - weight: 分类器在融合评分中的权重
@@ -106,6 +107,28 @@ public class PythonClassifierConfig {
      */
     private String infoEndpoint = "/api/classifier/info";
 
+    // ==================== 进程内分类头配置 ====================
+
+    /**
+     * 推理模式: local - JVM 内分类头 (Python 仅作离线训练); remote - 调用 Python 分类器服务
+     */
+    private String mode = "local";
+
+    /**
+     * local 模式下模型未就绪时是否回退到 Python 服务
+     */
+    private boolean remoteFallback = true;
+
+    /**
+     * 分类头模型目录, 取版本号最大的 intent_head_v*.json
+     */
+    private String modelDir = "config/intent_head";
+
+    /**
+     * 模型目录轮询间隔（毫秒），检测到新版本后热替换
+     */
+    private long modelPollInterval = 60000;
+
     @PostConstruct
     public void init() {
         log.info("Python Classifier 配置加载完成:");
@@ -116,6 +139,7 @@ public class PythonClassifierConfig {
         log.info("  - weight: {}", weight);
         log.info("  - topK: {}", topK);
         log.info("  - minConfidence: {}", minConfidence);
+        log.info("  - mode: {}, modelDir: {}, remoteFallback: {}", mode, modelDir, remoteFallback);
     }
 
     /**
@@ -125,6 +149,13 @@ public class PythonClassifierConfig {
         return enabled && url != null && !url.isEmpty();
     }
 
+    /**
+     * 是否使用进程内分类头
+     */
+    public boolean isLocalMode() {
+        return enabled && "local".equalsIgnoreCase(mode);
+    }
+
     /**
      * 获取完整的端点 URL
      *
@@ -3,12 +3,15 @@ package com.cretas.aims.controller;
 import com.cretas.aims.entity.ProductionAlert;
 import com.cretas.aims.repository.ProductionAlertRepository;
 import com.cretas.aims.service.AnomalyDetectionService;
+import com.cretas.aims.service.anomaly.AnomalyReplayHarness;
+import com.cretas.aims.service.anomaly.StreamingAnomalyService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -36,6 +39,9 @@ public class AlertController {
     @Autowired(required = false)
     private AnomalyDetectionService anomalyDetectionService;
 
+    @Autowired(required = false)
+    private StreamingAnomalyService streamingAnomalyService;
+
     // GET /alerts - paginated list with filters
     @GetMapping
     public ResponseEntity<?> getAlerts(
@@ -167,4 +173,33 @@ public class AlertController {
             return ResponseEntity.internalServerError().body(Map.of("success", false, "message", ErrorSanitizer.sanitize(e)));
         }
     }
+
+    // GET /alerts/streaming/stats - streaming detector counters
+    @GetMapping("/streaming/stats")
+    public ResponseEntity<?> getStreamingStats(@PathVariable String factoryId) {
+        if (streamingAnomalyService == null) {
+            return ResponseEntity.ok(Map.of("success", false, "message", "StreamingAnomalyService not available"));
+        }
+        return ResponseEntity.ok(Map.of("success", true, "data", streamingAnomalyService.getStats()));
+    }
+
+    // POST /alerts/replay - replay recorded device readings through a fresh detector
+    @PostMapping("/replay")
+    public ResponseEntity<?> replayDeviceData(
+            @PathVariable String factoryId,
+            @RequestParam String deviceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        try {
+            if (streamingAnomalyService == null) {
+                return ResponseEntity.ok(Map.of("success", false, "message", "StreamingAnomalyService not available"));
+            }
+            AnomalyReplayHarness.ReplayReport report =
+                    streamingAnomalyService.replayDeviceData(factoryId, deviceId, startTime, endTime);
+            return ResponseEntity.ok(Map.of("success", true, "data", report));
+        } catch (Exception e) {
+            log.error("Anomaly replay failed for factory {} device {}", factoryId, deviceId, e);
+            return ResponseEntity.internalServerError().body(Map.of("success", false, "message", ErrorSanitizer.sanitize(e)));
+        }
+    }
 }
@@ -1,9 +1,14 @@
 package com.cretas.aims.controller;
 
+import com.cretas.aims.ai.stream.JsonFieldStreamExtractor;
+import com.cretas.aims.ai.stream.SseStreamPipeline;
+import com.cretas.aims.ai.stream.SseStreamSession;
+import com.cretas.aims.ai.stream.TokenStreamHandler;
 import com.cretas.aims.entity.conversation.ConversationSession;
 import com.cretas.aims.service.ConversationService;
 import com.cretas.aims.service.ConversationService.ConversationResponse;
 import com.cretas.aims.service.ConversationService.ConversationStatistics;
+import com.cretas.aims.service.ConversationService.StreamingTurn;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,8 +27,7 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import com.cretas.aims.util.ErrorSanitizer;
 
 /**
@@ -49,8 +53,7 @@ import com.cretas.aims.util.ErrorSanitizer;
 public class ConversationController {
 
     private final ConversationService conversationService;
-    private final ExecutorService sseExecutor = java.util.concurrent.Executors.newFixedThreadPool(
-            4, r -> { Thread t = new Thread(r, "conversation-sse"); t.setDaemon(true); return t; });
+    private final SseStreamPipeline streamPipeline;
 
     /**
      * 开始多轮对话
@@ -114,43 +117,16 @@ public class ConversationController {
             @RequestBody @Valid StartConversationRequest request,
             @RequestHeader(value = "X-User-Id", required = false) Long userId) {
 
-        SseEmitter emitter = new SseEmitter(60_000L);
-        emitter.onTimeout(() -> log.warn("Conversation stream timeout"));
+        SseStreamSession stream = streamPipeline.open();
 
         Long effectiveUserId = userId != null ? userId : request.getUserId();
         if (effectiveUserId == null) effectiveUserId = 0L;
 
         Long finalUserId = effectiveUserId;
-        sseExecutor.execute(() -> {
-            try {
-                emitter.send(SseEmitter.event().name("processing")
-                        .data("{\"message\":\"正在处理...\"}"));
-
-                ConversationResponse response = conversationService.startConversation(
-                        factoryId, finalUserId, request.getUserInput());
-
-                Map<String, Object> result = new HashMap<>();
-                result.put("success", true);
-                result.put("data", response);
-                emitter.send(SseEmitter.event().name("result")
-                        .data(result));
-
-                emitter.send(SseEmitter.event().name("done")
-                        .data("{\"fullContent\":\"" +
-                                (response.getMessage() != null ? response.getMessage().replace("\"", "'") : "") +
-                                "\"}"));
-                emitter.complete();
-            } catch (Exception e) {
-                try {
-                    emitter.send(SseEmitter.event().name("error")
-                            .data("{\"message\":\"" + ErrorSanitizer.sanitize(e).replace("\"", "'") + "\"}"));
-                    emitter.complete();
-                } catch (Exception ex) {
-                    emitter.completeWithError(e);
-                }
-            }
-        });
-        return emitter;
+        stream.send("processing", "{\"message\":\"正在处理...\"}");
+        stream.execute(() -> runStreamingTurn(stream, () -> conversationService.startConversationStreaming(
+                factoryId, finalUserId, request.getUserInput())));
+        return stream.getEmitter();
     }
 
     /**
@@ -163,39 +139,76 @@ public class ConversationController {
             @PathVariable String sessionId,
             @RequestBody @Valid ReplyRequest request) {
 
-        SseEmitter emitter = new SseEmitter(60_000L);
-        emitter.onTimeout(() -> log.warn("Conversation reply stream timeout"));
-
-        sseExecutor.execute(() -> {
-            try {
-                emitter.send(SseEmitter.event().name("processing")
-                        .data("{\"message\":\"正在处理...\"}"));
-
-                ConversationResponse response = conversationService.continueConversation(
-                        sessionId, request.getUserReply());
-
-                Map<String, Object> result = new HashMap<>();
-                result.put("success", true);
-                result.put("data", response);
-                emitter.send(SseEmitter.event().name("result")
-                        .data(result));
-
-                emitter.send(SseEmitter.event().name("done")
-                        .data("{\"fullContent\":\"" +
-                                (response.getMessage() != null ? response.getMessage().replace("\"", "'") : "") +
-                                "\"}"));
-                emitter.complete();
-            } catch (Exception e) {
-                try {
-                    emitter.send(SseEmitter.event().name("error")
-                            .data("{\"message\":\"" + ErrorSanitizer.sanitize(e).replace("\"", "'") + "\"}"));
-                    emitter.complete();
-                } catch (Exception ex) {
-                    emitter.completeWithError(e);
-                }
+        SseStreamSession stream = streamPipeline.open();
+
+        stream.send("processing", "{\"message\":\"正在处理...\"}");
+        stream.execute(() -> runStreamingTurn(stream, () -> conversationService.continueConversationStreaming(
+                sessionId, request.getUserReply())));
+        return stream.getEmitter();
+    }
+
+    /**
+     * 在流会话上执行一轮对话
+     *
+     * LLM 输出 JSON 中的 message 字段以 delta 事件增量推送；结束后推送 result 和 done。
+     * 客户端断开时流会话取消上游调用，本轮不落库。
+     */
+    private void runStreamingTurn(SseStreamSession stream, Supplier<StreamingTurn> turnSupplier) {
+        StreamingTurn turn;
+        try {
+            turn = turnSupplier.get();
+        } catch (Exception e) {
+            sendStreamError(stream, e);
+            return;
+        }
+        if (!turn.isStreaming()) {
+            sendStreamResult(stream, turn.getResponse());
+            return;
+        }
+
+        JsonFieldStreamExtractor extractor = new JsonFieldStreamExtractor("message");
+        stream.stream(turn.getTokens(), new TokenStreamHandler() {
+            @Override
+            public String onToken(String token) {
+                return extractor.feed(token);
+            }
+
+            @Override
+            public void onComplete(String fullText) {
+                finishStreamingTurn(stream, turn, fullText);
+            }
+
+            @Override
+            public void onError(Throwable error, String partialText) {
+                log.warn("Conversation LLM stream failed: {}", error.getMessage());
+                finishStreamingTurn(stream, turn, null);
             }
         });
-        return emitter;
+    }
+
+    private void finishStreamingTurn(SseStreamSession stream, StreamingTurn turn, String fullText) {
+        try {
+            sendStreamResult(stream, turn.finish(fullText));
+        } catch (Exception e) {
+            sendStreamError(stream, e);
+        }
+    }
+
+    private void sendStreamResult(SseStreamSession stream, ConversationResponse response) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", response);
+        stream.send("result", result);
+
+        stream.send("done", "{\"fullContent\":\"" +
+                (response.getMessage() != null ? response.getMessage().replace("\"", "'") : "") +
+                "\"}");
+        stream.complete();
+    }
+
+    private void sendStreamError(SseStreamSession stream, Exception e) {
+        stream.send("error", "{\"message\":\"" + ErrorSanitizer.sanitize(e).replace("\"", "'") + "\"}");
+        stream.complete();
     }
 
     /**
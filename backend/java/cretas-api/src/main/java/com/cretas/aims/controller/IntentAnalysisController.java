@@ -12,6 +12,7 @@ import com.cretas.aims.repository.config.AIIntentConfigRepository;
 import com.cretas.aims.scheduler.ErrorAttributionAnalysisScheduler;
 import com.cretas.aims.service.ErrorAttributionAnalysisService;
 import com.cretas.aims.service.SemanticRouterService;
+import com.cretas.aims.service.intent.IntentLayerExecutor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -58,6 +59,7 @@ public class IntentAnalysisController {
     private final IntentOptimizationSuggestionRepository suggestionRepository;
     private final AIIntentConfigRepository intentConfigRepository;
     private final SemanticRouterService semanticRouterService;
+    private final IntentLayerExecutor intentLayerExecutor;
 
     // ==================== 统计数据 ====================
 
@@ -951,6 +953,17 @@ public class IntentAnalysisController {
         }
     }
 
+    /**
+     * 获取意图分层并行执行统计
+     */
+    @Operation(summary = "获取意图分层并行统计",
+            description = "各并行层 (分类器、语义路由) 的延迟分布、胜出率、超时与取消次数及置信度分布，用于调整阈值和延迟预算")
+    @GetMapping("/layer-pipeline/statistics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getLayerPipelineStatistics(
+            @Parameter(description = "工厂ID", example = "F001") @PathVariable String factoryId) {
+        return ResponseEntity.ok(ApiResponse.success(intentLayerExecutor.getStats()));
+    }
+
     /**
      * 刷新语义路由器缓存
      */
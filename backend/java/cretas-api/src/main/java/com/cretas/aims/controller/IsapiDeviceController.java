@@ -1,5 +1,6 @@
 package com.cretas.aims.controller;
 
+import com.cretas.aims.client.discovery.AsyncDiscoveryEngine.DiscoveryScan;
 import com.cretas.aims.dto.common.ApiResponse;
 import com.cretas.aims.dto.isapi.BatchImportRequest;
 import com.cretas.aims.dto.isapi.DeviceDiscoveryRequest;
@@ -27,8 +28,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Base64;
@@ -594,6 +597,43 @@ public class IsapiDeviceController {
         }
     }
 
+    @PostMapping(value = "/discover/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "流式扫描局域网发现设备 (SSE)", description = "每发现一个设备推送一次 device 事件, 结束时推送 complete 事件")
+    public SseEmitter discoverDevicesStream(
+            @PathVariable String factoryId,
+            @Valid @RequestBody DeviceDiscoveryRequest request) {
+        log.info("开始流式设备发现: factoryId={}, network={}", factoryId, request.getNetworkCIDR());
+        SseEmitter emitter = new SseEmitter(180_000L);
+
+        DiscoveryScan<DiscoveredDeviceDTO> scan = discoveryService.discoverDevicesStreaming(request, device -> {
+            try {
+                synchronized (emitter) {
+                    emitter.send(SseEmitter.event().name("device").data(device));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("推送发现结果失败 (客户端可能已断开): {}", e.getMessage());
+            }
+        });
+        emitter.onTimeout(scan::cancel);
+        emitter.onCompletion(scan::cancel);
+
+        scan.getCompletion().whenComplete((devices, error) -> {
+            try {
+                synchronized (emitter) {
+                    if (error != null) {
+                        emitter.send(SseEmitter.event().name("error").data(ErrorSanitizer.sanitize(error)));
+                    } else {
+                        emitter.send(SseEmitter.event().name("complete").data(scan.getProgress()));
+                    }
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
     @PostMapping("/batch-import")
     @Operation(summary = "批量导入发现的设备")
     public ApiResponse<Map<String, Object>> batchImportDevices(
@@ -6,6 +6,8 @@ import com.cretas.aims.dto.report.KpiMetricsDTO;
 import com.cretas.aims.dto.report.OeeReportDTO;
 import com.cretas.aims.dto.report.ProductionByProductDTO;
 import com.cretas.aims.service.ReportService;
+import com.cretas.aims.service.export.ReportExportJob;
+import com.cretas.aims.service.export.ReportExportService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,6 +17,9 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +39,7 @@ import java.util.Map;
 public class ReportController {
 
     private final ReportService reportService;
+    private final ReportExportService reportExportService;
 
     // ============================================================
     // Dashboard 统一入口 (委托 ProcessingService)
@@ -319,6 +325,66 @@ public class ReportController {
         reportService.exportReportAsExcel(factoryId, reportType, startDate, endDate, response);
     }
 
+    /**
+     * 提交后台Excel导出任务（大数据量）
+     */
+    @PostMapping("/export/jobs")
+    @Operation(summary = "提交Excel导出任务", description = "大数据量报表在后台分片导出，支持进度查询和断点续传")
+    public ApiResponse<Map<String, Object>> submitExportJob(
+            @PathVariable @Parameter(description = "工厂ID") String factoryId,
+            @RequestParam @Parameter(description = "报表类型") String reportType,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @Parameter(description = "开始日期") LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @Parameter(description = "结束日期") LocalDate endDate) {
+        log.info("提交Excel导出任务: factoryId={}, type={}, startDate={}, endDate={}",
+                factoryId, reportType, startDate, endDate);
+        ReportExportJob job = reportExportService.submitJob(factoryId, reportType, startDate, endDate);
+        return ApiResponse.success(job.toMap());
+    }
+
+    /**
+     * 查询导出任务进度
+     */
+    @GetMapping("/export/jobs/{jobId}")
+    @Operation(summary = "查询导出任务", description = "返回状态、已写行数和进度百分比")
+    public ApiResponse<Map<String, Object>> getExportJob(
+            @PathVariable @Parameter(description = "工厂ID") String factoryId,
+            @PathVariable @Parameter(description = "任务ID") String jobId) {
+        return ApiResponse.success(reportExportService.getJob(factoryId, jobId).toMap());
+    }
+
+    /**
+     * 续传失败或中断的导出任务
+     */
+    @PostMapping("/export/jobs/{jobId}/resume")
+    @Operation(summary = "续传导出任务", description = "从最后一个完整分片之后继续导出")
+    public ApiResponse<Map<String, Object>> resumeExportJob(
+            @PathVariable @Parameter(description = "工厂ID") String factoryId,
+            @PathVariable @Parameter(description = "任务ID") String jobId) {
+        log.info("续传导出任务: factoryId={}, jobId={}", factoryId, jobId);
+        return ApiResponse.success(reportExportService.resumeJob(factoryId, jobId).toMap());
+    }
+
+    /**
+     * 下载导出任务结果
+     */
+    @GetMapping("/export/jobs/{jobId}/download")
+    @Operation(summary = "下载导出结果", description = "单分片为xlsx，多分片为zip")
+    public void downloadExportJob(
+            @PathVariable @Parameter(description = "工厂ID") String factoryId,
+            @PathVariable @Parameter(description = "任务ID") String jobId,
+            HttpServletResponse response) throws IOException {
+        Path file = reportExportService.getResultFile(factoryId, jobId);
+        String fileName = file.getFileName().toString();
+        response.setContentType(fileName.endsWith(".zip") ? "application/zip"
+                : "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader("Content-Disposition", String.format("attachment; filename=\"%s\"", fileName));
+        response.setContentLengthLong(Files.size(file));
+        Files.copy(file, response.getOutputStream());
+        response.flushBuffer();
+    }
+
     /**
      * 导出报表为PDF
      */
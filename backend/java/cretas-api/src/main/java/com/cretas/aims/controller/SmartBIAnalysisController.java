@@ -61,6 +61,7 @@ public class SmartBIAnalysisController {
     private final ProcurementAnalysisService procurementAnalysisService;
     private final SmartBIService smartBIService;
     private final SmartBiQueryTemplateRepository queryTemplateRepository;
+    private final ForecastService forecastService;
 
     @Autowired
     public SmartBIAnalysisController(
@@ -76,7 +77,8 @@ public class SmartBIAnalysisController {
             InventoryHealthAnalysisService inventoryHealthAnalysisService,
             ProcurementAnalysisService procurementAnalysisService,
             @Autowired(required = false) SmartBIService smartBIService,
-            SmartBiQueryTemplateRepository queryTemplateRepository) {
+            SmartBiQueryTemplateRepository queryTemplateRepository,
+            ForecastService forecastService) {
         this.salesAnalysisService = salesAnalysisService;
         this.departmentAnalysisService = departmentAnalysisService;
         this.regionAnalysisService = regionAnalysisService;
@@ -90,6 +92,7 @@ public class SmartBIAnalysisController {
         this.procurementAnalysisService = procurementAnalysisService;
         this.smartBIService = smartBIService;
         this.queryTemplateRepository = queryTemplateRepository;
+        this.forecastService = forecastService;
     }
 
     // ==================== Sales Analysis ====================
@@ -633,6 +636,32 @@ public class SmartBIAnalysisController {
         }
     }
 
+    // ==================== Forecast ====================
+
+    @GetMapping("/forecast/batch")
+    @Operation(summary = "Batch forecast", description = "Forecast daily sales for every product x region series with per-series model selection")
+    public ResponseEntity<ApiResponse<BatchForecastResult>> forecastBatch(
+            @Parameter(description = "Factory ID") @PathVariable String factoryId,
+            @Parameter(description = "History start date") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "History end date") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Forecast days") @RequestParam(defaultValue = "7") int forecastDays) {
+
+        log.info("Batch forecast: factoryId={}, startDate={}, endDate={}, forecastDays={}",
+                factoryId, startDate, endDate, forecastDays);
+
+        try {
+            LocalDate end = endDate != null ? endDate : LocalDate.now().minusDays(1);
+            LocalDate start = startDate != null ? startDate : end.minusDays(89);
+            if (forecastDays < 1 || forecastDays > 90) {
+                return ResponseEntity.ok(ApiResponse.error("forecastDays must be between 1 and 90"));
+            }
+            return ResponseEntity.ok(ApiResponse.success(forecastService.forecastBatch(factoryId, start, end, forecastDays)));
+        } catch (Exception e) {
+            log.error("Batch forecast failed: {}", e.getMessage(), e);
+            return ResponseEntity.ok(ApiResponse.error("Batch forecast failed: " + ErrorSanitizer.sanitize(e)));
+        }
+    }
+
     // ==================== Incentive Plans ====================
 
     @GetMapping("/incentive-plan/{targetType}/{targetId}")
@@ -257,4 +257,16 @@ public class TimeStatsController {
         timeStatsService.recalculateStats(factoryId, date);
         return ApiResponse.success();
     }
-}
\ No newline at end of file
+
+    @PostMapping("/rollups/rebuild")
+    @Operation(summary = "重建考勤汇总", description = "由打卡记录重建日期范围内的员工/部门/工种日汇总，用于上线回填或修复")
+    public ApiResponse<Integer> rebuildRollups(
+            @PathVariable @Parameter(description = "工厂ID") String factoryId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @Parameter(description = "开始日期") LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            @Parameter(description = "结束日期") LocalDate endDate) {
+        log.info("重建考勤汇总: factoryId={}, startDate={}, endDate={}", factoryId, startDate, endDate);
+        return ApiResponse.success(timeStatsService.rebuildRollups(factoryId, startDate, endDate));
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +38,8 @@ public class DashboardStatisticsDTO {
     private TrendStatistics trendStats;
     // 告警信息
     private List<AlertInfo> alerts;
+    // 快照新鲜度
+    private SnapshotFreshness freshness;
 
     @Data
     @Builder
@@ -159,4 +162,28 @@ public class DashboardStatisticsDTO {
         private String targetName;
         private LocalDate date;
     }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class SnapshotFreshness {
+        // 快照版本，任一分区重算后增大
+        private Long version;
+        private LocalDateTime generatedAt;
+        // 最早计算的分区时间
+        private LocalDateTime oldestComputedAt;
+        // 分区名 -> 分区新鲜度
+        private Map<String, SectionFreshness> sections;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class SectionFreshness {
+        private Long version;
+        private LocalDateTime computedAt;
+        private Long ageMillis;
+    }
 }
@@ -0,0 +1,80 @@
+package com.cretas.aims.dto.report;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import com.cretas.aims.entity.enums.ProductionBatchStatus;
+import com.cretas.aims.entity.enums.QualityStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 生产批次明细导出行
+ *
+ * 由 JPQL 构造器投影直接生成，不经过托管实体；构造器参数顺序即查询列顺序。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductionBatchExportDTO {
+
+    @ExcelProperty(value = "批次ID", index = 0)
+    private Long id;
+
+    @ExcelProperty(value = "批次号", index = 1)
+    private String batchNumber;
+
+    @ExcelProperty(value = "产品名称", index = 2)
+    private String productName;
+
+    @ExcelProperty(value = "计划数量", index = 3)
+    private BigDecimal plannedQuantity;
+
+    @ExcelProperty(value = "实际数量", index = 4)
+    private BigDecimal actualQuantity;
+
+    @ExcelProperty(value = "良品数量", index = 5)
+    private BigDecimal goodQuantity;
+
+    @ExcelProperty(value = "不良数量", index = 6)
+    private BigDecimal defectQuantity;
+
+    @ExcelProperty(value = "单位", index = 7)
+    private String unit;
+
+    @ExcelProperty(value = "状态", index = 8)
+    private ProductionBatchStatus status;
+
+    @ExcelProperty(value = "质检状态", index = 9)
+    private QualityStatus qualityStatus;
+
+    @ExcelProperty(value = "开始时间", index = 10)
+    private LocalDateTime startTime;
+
+    @ExcelProperty(value = "结束时间", index = 11)
+    private LocalDateTime endTime;
+
+    @ExcelProperty(value = "设备", index = 12)
+    private String equipmentName;
+
+    @ExcelProperty(value = "负责人", index = 13)
+    private String supervisorName;
+
+    @ExcelProperty(value = "总成本", index = 14)
+    private BigDecimal totalCost;
+
+    @ExcelProperty(value = "单位成本", index = 15)
+    private BigDecimal unitCost;
+
+    @ExcelProperty(value = "良品率(%)", index = 16)
+    private BigDecimal yieldRate;
+
+    @ExcelProperty(value = "创建时间", index = 17)
+    private LocalDateTime createdAt;
+}
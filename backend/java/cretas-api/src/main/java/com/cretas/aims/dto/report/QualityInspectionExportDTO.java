@@ -0,0 +1,54 @@
+package com.cretas.aims.dto.report;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 质检记录明细导出行
+ *
+ * 由 JPQL 构造器投影直接生成，不经过托管实体；构造器参数顺序即查询列顺序。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QualityInspectionExportDTO {
+
+    @ExcelProperty(value = "质检ID", index = 0)
+    private String id;
+
+    @ExcelProperty(value = "生产批次ID", index = 1)
+    private Long productionBatchId;
+
+    @ExcelProperty(value = "质检员ID", index = 2)
+    private Long inspectorId;
+
+    @ExcelProperty(value = "质检日期", index = 3)
+    private LocalDate inspectionDate;
+
+    @ExcelProperty(value = "抽样数", index = 4)
+    private BigDecimal sampleSize;
+
+    @ExcelProperty(value = "合格数", index = 5)
+    private BigDecimal passCount;
+
+    @ExcelProperty(value = "不合格数", index = 6)
+    private BigDecimal failCount;
+
+    @ExcelProperty(value = "合格率(%)", index = 7)
+    private BigDecimal passRate;
+
+    @ExcelProperty(value = "结果", index = 8)
+    private String result;
+
+    @ExcelProperty(value = "备注", index = 9)
+    private String notes;
+}
@@ -0,0 +1,107 @@
+package com.cretas.aims.dto.smartbi;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量预测结果 DTO
+ *
+ * 按 产品 × 区域 拆分的多条销售额序列的预测结果,
+ * 每条序列独立做模型选择, 附带整体吞吐与模型分布统计。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchForecastResult {
+
+    /**
+     * 各序列预测结果
+     */
+    private List<SeriesItem> items;
+
+    /**
+     * 序列总数
+     */
+    private Integer seriesCount;
+
+    /**
+     * 预测耗时 (毫秒, 不含数据查询)
+     */
+    private Long elapsedMs;
+
+    /**
+     * 吞吐 (序列/秒)
+     */
+    private Long seriesPerSecond;
+
+    /**
+     * 胜出模型分布: 模型名 -> 序列数
+     */
+    private Map<String, Integer> modelUsage;
+
+    /**
+     * 时间周期描述
+     */
+    private String periodDescription;
+
+    /**
+     * 预测生成时间
+     */
+    private LocalDateTime generatedAt;
+
+    /**
+     * 单条序列预测结果
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeriesItem {
+
+        /**
+         * 序列标识: productId|region
+         */
+        private String seriesKey;
+
+        private String productId;
+
+        private String productName;
+
+        private String region;
+
+        private ForecastAlgorithm algorithm;
+
+        /**
+         * 具体模型, 如 HOLT_WINTERS_ADDITIVE, CROSTON_SBA
+         */
+        private String model;
+
+        /**
+         * 预测置信度 (0-100%)
+         */
+        private BigDecimal confidence;
+
+        /**
+         * 回测 sMAPE (%), 序列过短未回测时为空
+         */
+        private BigDecimal backtestSmape;
+
+        /**
+         * 预测数据点 (不含历史点)
+         */
+        private List<ForecastPoint> forecastPoints;
+    }
+}
@@ -64,6 +64,7 @@ public class AlertThreshold implements Serializable {
 
     /**
      * 比较方式: LESS_THAN, GREATER_THAN, DEVIATION_BELOW, DEVIATION_ABOVE
+     * 流式检测另支持: ZSCORE (staticThreshold 为 z 分数上限), QUANTILE_ABOVE / QUANTILE_BELOW (staticThreshold 为分位点)
      */
     @Column(name = "comparison", nullable = false, length = 20)
     private String comparison;
@@ -0,0 +1,175 @@
+package com.cretas.aims.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 考勤日汇总实体
+ * 由打卡记录增量维护的按日预聚合数据，供工时统计直接合并使用
+ *
+ * 汇总维度:
+ * - WORKER: 员工/日, dimensionKey 为用户ID, 同时记录所属部门和工种用于分组
+ * - DEPARTMENT: 部门/日
+ * - WORK_TYPE: 工种/日 (取员工岗位, 未设置时归入"常规工作")
+ *
+ * 派生数据，不做软删除；重新计算时直接覆盖。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+@Data
+@Entity
+@Table(name = "attendance_daily_rollups",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_adr_dimension", columnNames = {"factory_id", "rollup_date", "dimension", "dimension_key"})
+       },
+       indexes = {
+           @Index(name = "idx_adr_factory_dim_date", columnList = "factory_id, dimension, rollup_date"),
+           @Index(name = "idx_adr_factory_date_dept", columnList = "factory_id, rollup_date, department")
+       }
+)
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceDailyRollup implements Serializable {
+
+    /** 维度: 员工 */
+    public static final String DIMENSION_WORKER = "WORKER";
+    /** 维度: 部门 */
+    public static final String DIMENSION_DEPARTMENT = "DEPARTMENT";
+    /** 维度: 工种 */
+    public static final String DIMENSION_WORK_TYPE = "WORK_TYPE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    /**
+     * 工厂ID
+     */
+    @Column(name = "factory_id", nullable = false, length = 50)
+    private String factoryId;
+
+    /**
+     * 汇总日期 (按上班打卡时间所在日期)
+     */
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    /**
+     * 汇总维度: WORKER, DEPARTMENT, WORK_TYPE
+     */
+    @Column(name = "dimension", nullable = false, length = 20)
+    private String dimension;
+
+    /**
+     * 维度取值 (用户ID / 部门名称 / 工种名称)
+     */
+    @Column(name = "dimension_key", nullable = false, length = 100)
+    private String dimensionKey;
+
+    /**
+     * 显示名称 (WORKER 为员工姓名)
+     */
+    @Column(name = "dimension_label", length = 100)
+    private String dimensionLabel;
+
+    /**
+     * 所属部门 (WORKER 行使用)
+     */
+    @Column(name = "department", length = 100)
+    private String department;
+
+    /**
+     * 所属工种 (WORKER 行使用)
+     */
+    @Column(name = "work_type", length = 100)
+    private String workType;
+
+    // ==================== 度量 ====================
+
+    /**
+     * 打卡记录数
+     */
+    @Builder.Default
+    @Column(name = "record_count", nullable = false)
+    private Long recordCount = 0L;
+
+    /**
+     * 当日出勤人数 (WORKER 行为 1)
+     */
+    @Builder.Default
+    @Column(name = "worker_count", nullable = false)
+    private Long workerCount = 0L;
+
+    /**
+     * 总工作时长 (分钟)
+     */
+    @Builder.Default
+    @Column(name = "total_minutes", nullable = false)
+    private Long totalMinutes = 0L;
+
+    /**
+     * 正常工作时长 (分钟, 每条记录最多8小时)
+     */
+    @Builder.Default
+    @Column(name = "regular_minutes", nullable = false)
+    private Long regularMinutes = 0L;
+
+    /**
+     * 加班时长 (分钟)
+     */
+    @Builder.Default
+    @Column(name = "overtime_minutes", nullable = false)
+    private Long overtimeMinutes = 0L;
+
+    /**
+     * 迟到次数
+     */
+    @Builder.Default
+    @Column(name = "late_count", nullable = false)
+    private Long lateCount = 0L;
+
+    /**
+     * 早退次数
+     */
+    @Builder.Default
+    @Column(name = "early_leave_count", nullable = false)
+    private Long earlyLeaveCount = 0L;
+
+    /**
+     * 工时异常记录数 (超过12小时或不足4小时)
+     */
+    @Builder.Default
+    @Column(name = "abnormal_count", nullable = false)
+    private Long abnormalCount = 0L;
+
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = now;
+        }
+        updatedAt = now;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
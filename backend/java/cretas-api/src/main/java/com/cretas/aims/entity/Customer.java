@@ -1,5 +1,6 @@
 package com.cretas.aims.entity;
 
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import lombok.*;
 import org.hibernate.annotations.BatchSize;
 import javax.persistence.*;
@@ -19,6 +20,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @Table(name = "customers",
        uniqueConstraints = {
            @UniqueConstraint(columnNames = {"factory_id", "code"})
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.cretas.aims.entity.common.UnifiedDeviceType;
 import com.cretas.aims.entity.enums.DeviceCategory;
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import lombok.*;
 import org.hibernate.annotations.BatchSize;
 import javax.persistence.*;
@@ -26,6 +27,7 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @Table(name = "factory_equipment",
        uniqueConstraints = {
            @UniqueConstraint(columnNames = {"factory_id", "code"})
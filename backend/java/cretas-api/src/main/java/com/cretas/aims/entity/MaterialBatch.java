@@ -1,6 +1,7 @@
 package com.cretas.aims.entity;
 
 import com.cretas.aims.entity.enums.MaterialBatchStatus;
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import com.vladmihalcea.hibernate.type.json.JsonBinaryType;
 import lombok.*;
 import org.hibernate.annotations.Type;
@@ -27,6 +28,7 @@ import java.util.Map;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @TypeDef(name = "jsonb", typeClass = JsonBinaryType.class)
 @Table(name = "material_batches",
        indexes = {
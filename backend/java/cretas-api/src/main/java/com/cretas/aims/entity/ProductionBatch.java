@@ -2,6 +2,7 @@ package com.cretas.aims.entity;
 
 import com.cretas.aims.entity.enums.ProductionBatchStatus;
 import com.cretas.aims.entity.enums.QualityStatus;
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.vladmihalcea.hibernate.type.json.JsonBinaryType;
 import lombok.AllArgsConstructor;
@@ -29,6 +30,7 @@ import java.util.Map;
 @Data
 @EqualsAndHashCode(callSuper = true)  // 继承 BaseEntity，需要调用 super
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @TypeDef(name = "jsonb", typeClass = JsonBinaryType.class)
 @Table(name = "production_batches",
        indexes = {
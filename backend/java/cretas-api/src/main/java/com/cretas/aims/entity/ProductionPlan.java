@@ -4,6 +4,7 @@ import com.cretas.aims.entity.enums.MixedBatchType;
 import com.cretas.aims.entity.enums.PlanSourceType;
 import com.cretas.aims.entity.enums.ProductionPlanStatus;
 import com.cretas.aims.entity.enums.ProductionPlanType;
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
@@ -27,6 +28,7 @@ import java.util.List;
 @NoArgsConstructor
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @Table(name = "production_plans",
        indexes = {
            @Index(name = "idx_plan_factory", columnList = "factory_id"),
@@ -1,5 +1,6 @@
 package com.cretas.aims.entity;
 
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.vladmihalcea.hibernate.type.json.JsonBinaryType;
@@ -25,6 +26,7 @@ import java.util.Map;
 @NoArgsConstructor
 @Builder
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @TypeDef(name = "jsonb", typeClass = JsonBinaryType.class)
 @Table(name = "quality_inspections",
        indexes = {
@@ -1,5 +1,6 @@
 package com.cretas.aims.entity;
 
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import javax.persistence.*;
@@ -18,6 +19,7 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @Table(name = "shipment_records",
        indexes = {
            @Index(name = "idx_shipment_factory", columnList = "factory_id"),
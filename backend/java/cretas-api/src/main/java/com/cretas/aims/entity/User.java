@@ -3,6 +3,7 @@ package com.cretas.aims.entity;
 import com.cretas.aims.entity.enums.Department;
 import com.cretas.aims.entity.enums.FactoryUserRole;
 import com.cretas.aims.entity.enums.HireType;
+import com.cretas.aims.listener.DashboardSnapshotEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
@@ -27,6 +28,7 @@ import java.util.List;
 @NoArgsConstructor
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
+@EntityListeners(DashboardSnapshotEntityListener.class)
 @Table(name = "users",
        uniqueConstraints = {
            @UniqueConstraint(columnNames = {"username"})  // 全局唯一：username不能重复
@@ -36,10 +36,34 @@ public enum ForecastAlgorithm {
      */
     EXPONENTIAL_SMOOTHING("指数平滑", "适用于趋势可能变化的数据，近期数据权重更高"),
 
+    /**
+     * Holt-Winters 三次指数平滑
+     * 适用于同时存在趋势和周期 (如周季节性) 的数据，支持加法/乘法季节性。
+     * 优点：能同时刻画水平、趋势和季节
+     * 缺点：需要至少两个完整周期的数据
+     */
+    HOLT_WINTERS("Holt-Winters", "适用于有趋势和周期性的数据，支持加法/乘法季节性"),
+
+    /**
+     * ARIMA (自回归积分)
+     * 对序列做差分后拟合低阶自回归模型，适用于存在自相关的数据。
+     * 优点：能利用短期自相关结构
+     * 缺点：不直接建模季节性
+     */
+    ARIMA("ARIMA", "适用于存在自相关的数据，差分后拟合自回归模型"),
+
+    /**
+     * Croston 间歇需求法
+     * 分别平滑非零需求量和需求间隔，适用于大量零值的间歇性需求。
+     * 优点：适合长尾商品、低频订单
+     * 缺点：不适合连续需求
+     */
+    CROSTON("Croston", "适用于零值较多的间歇性需求"),
+
     /**
      * 自动选择
      * 系统根据数据特征自动选择最合适的预测算法。
-     * 综合评估数据的趋势性、平稳性、周期性后选择最优算法。
+     * 对候选模型做留出回测，选择回测误差最小的算法。
      */
     AUTO("自动选择", "系统根据数据特征自动选择最佳算法");
 
@@ -0,0 +1,40 @@
+package com.cretas.aims.listener;
+
+import com.cretas.aims.service.DashboardSnapshotService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * 仪表盘快照实体监听器
+ *
+ * <p>挂在仪表盘统计来源实体上，实体新增、修改、删除后通知 {@link DashboardSnapshotService}
+ * 作废该工厂受影响的分区（事务提交后生效）。
+ * 由 Hibernate 通过 Spring 容器实例化，快照服务延迟获取，避免与 EntityManagerFactory 循环依赖。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-30
+ */
+@Component
+public class DashboardSnapshotEntityListener {
+
+    private final ObjectProvider<DashboardSnapshotService> snapshotService;
+
+    public DashboardSnapshotEntityListener(ObjectProvider<DashboardSnapshotService> snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Object entity) {
+        DashboardSnapshotService service = snapshotService.getIfAvailable();
+        if (service != null) {
+            service.onEntityChanged(entity);
+        }
+    }
+}
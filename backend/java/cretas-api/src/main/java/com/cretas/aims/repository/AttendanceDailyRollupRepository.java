@@ -0,0 +1,138 @@
+package com.cretas.aims.repository;
+
+import com.cretas.aims.entity.AttendanceDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 考勤日汇总数据访问接口
+ *
+ * 汇总查询返回的度量列顺序统一为:
+ * workerCount, recordCount, totalMinutes, regularMinutes, overtimeMinutes,
+ * lateCount, earlyLeaveCount, abnormalCount
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+@Repository
+public interface AttendanceDailyRollupRepository extends JpaRepository<AttendanceDailyRollup, Long> {
+
+    Optional<AttendanceDailyRollup> findByFactoryIdAndRollupDateAndDimensionAndDimensionKey(
+            String factoryId, LocalDate rollupDate, String dimension, String dimensionKey);
+
+    // ==================== 维护 ====================
+
+    /**
+     * 按部门或工种重新汇总某日的员工行 (用于更新部门/工种行)
+     */
+    @Query("SELECT COUNT(r), SUM(r.recordCount), SUM(r.totalMinutes), SUM(r.regularMinutes), " +
+           "SUM(r.overtimeMinutes), SUM(r.lateCount), SUM(r.earlyLeaveCount), SUM(r.abnormalCount) " +
+           "FROM AttendanceDailyRollup r WHERE r.factoryId = :factoryId AND r.rollupDate = :date " +
+           "AND r.dimension = 'WORKER' AND r.department = :department")
+    List<Object[]> sumWorkersByDepartment(
+            @Param("factoryId") String factoryId,
+            @Param("date") LocalDate date,
+            @Param("department") String department);
+
+    @Query("SELECT COUNT(r), SUM(r.recordCount), SUM(r.totalMinutes), SUM(r.regularMinutes), " +
+           "SUM(r.overtimeMinutes), SUM(r.lateCount), SUM(r.earlyLeaveCount), SUM(r.abnormalCount) " +
+           "FROM AttendanceDailyRollup r WHERE r.factoryId = :factoryId AND r.rollupDate = :date " +
+           "AND r.dimension = 'WORKER' AND r.workType = :workType")
+    List<Object[]> sumWorkersByWorkType(
+            @Param("factoryId") String factoryId,
+            @Param("date") LocalDate date,
+            @Param("workType") String workType);
+
+    @Modifying
+    @Query("DELETE FROM AttendanceDailyRollup r WHERE r.factoryId = :factoryId AND r.rollupDate = :date")
+    int deleteByFactoryIdAndRollupDate(@Param("factoryId") String factoryId, @Param("date") LocalDate date);
+
+    @Modifying
+    @Query("DELETE FROM AttendanceDailyRollup r WHERE r.factoryId = :factoryId AND r.rollupDate < :cutoff")
+    int deleteByFactoryIdAndRollupDateBefore(@Param("factoryId") String factoryId, @Param("cutoff") LocalDate cutoff);
+
+    // ==================== 统计读取 ====================
+
+    /**
+     * 按日合并某维度的汇总 (传入 DEPARTMENT 即得全厂每日合计)
+     */
+    @Query("SELECT r.rollupDate, SUM(r.workerCount), SUM(r.recordCount), SUM(r.totalMinutes), SUM(r.regularMinutes), " +
+           "SUM(r.overtimeMinutes), SUM(r.lateCount), SUM(r.earlyLeaveCount), SUM(r.abnormalCount) " +
+           "FROM AttendanceDailyRollup r WHERE r.factoryId = :factoryId AND r.dimension = :dimension " +
+           "AND r.rollupDate >= :startDate AND r.rollupDate <= :endDate " +
+           "GROUP BY r.rollupDate ORDER BY r.rollupDate")
+    List<Object[]> sumByDate(
+            @Param("factoryId") String factoryId,
+            @Param("dimension") String dimension,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    /**
+     * 按维度取值合并日期范围内的汇总
+     */
+    @Query("SELECT r.dimensionKey, SUM(r.workerCount), SUM(r.recordCount), SUM(r.totalMinutes), SUM(r.regularMinutes), " +
+           "SUM(r.overtimeMinutes), SUM(r.lateCount), SUM(r.earlyLeaveCount), SUM(r.abnormalCount) " +
+           "FROM AttendanceDailyRollup r WHERE r.factoryId = :factoryId AND r.dimension = :dimension " +
+           "AND r.rollupDate >= :startDate AND r.rollupDate <= :endDate " +
+           "GROUP BY r.dimensionKey")
+    List<Object[]> sumByKey(
+            @Param("factoryId") String factoryId,
+            @Param("dimension") String dimension,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    /**
+     * 日期范围内出勤员工数 (去重)
+     */
+    @Query("SELECT COUNT(DISTINCT r.dimensionKey) FROM AttendanceDailyRollup r " +
+           "WHERE r.factoryId = :factoryId AND r.dimension = 'WORKER' " +
+           "AND r.rollupDate >= :startDate AND r.rollupDate <= :endDate")
+    long countDistinctWorkers(
+            @Param("factoryId") String factoryId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    /**
+     * 日期范围内各部门出勤员工数 (去重)
+     */
+    @Query("SELECT r.department, COUNT(DISTINCT r.dimensionKey) FROM AttendanceDailyRollup r " +
+           "WHERE r.factoryId = :factoryId AND r.dimension = 'WORKER' " +
+           "AND r.rollupDate >= :startDate AND r.rollupDate <= :endDate GROUP BY r.department")
+    List<Object[]> countDistinctWorkersByDepartment(
+            @Param("factoryId") String factoryId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    /**
+     * 日期范围内各工种出勤员工数 (去重)
+     */
+    @Query("SELECT r.workType, COUNT(DISTINCT r.dimensionKey) FROM AttendanceDailyRollup r " +
+           "WHERE r.factoryId = :factoryId AND r.dimension = 'WORKER' " +
+           "AND r.rollupDate >= :startDate AND r.rollupDate <= :endDate GROUP BY r.workType")
+    List<Object[]> countDistinctWorkersByWorkType(
+            @Param("factoryId") String factoryId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
+    /**
+     * 按员工合并日期范围内的汇总, 第 2、3 列为姓名和部门, 第 4 列为出勤天数
+     */
+    @Query("SELECT r.dimensionKey, MAX(r.dimensionLabel), MAX(r.department), COUNT(r), SUM(r.recordCount), " +
+           "SUM(r.totalMinutes), SUM(r.regularMinutes), SUM(r.overtimeMinutes), SUM(r.lateCount), " +
+           "SUM(r.earlyLeaveCount), SUM(r.abnormalCount) " +
+           "FROM AttendanceDailyRollup r WHERE r.factoryId = :factoryId AND r.dimension = 'WORKER' " +
+           "AND r.rollupDate >= :startDate AND r.rollupDate <= :endDate " +
+           "GROUP BY r.dimensionKey")
+    List<Object[]> sumByWorker(
+            @Param("factoryId") String factoryId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+}
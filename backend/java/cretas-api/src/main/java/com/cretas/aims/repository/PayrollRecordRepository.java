@@ -170,6 +170,17 @@ public interface PayrollRecordRepository extends JpaRepository<PayrollRecord, Lo
      */
     long countByFactoryIdAndStatus(String factoryId, String status);
 
+    /**
+     * 查找指定周期已生成工资记录的工人及其平均效率 (批量工资计算断点续跑用)
+     * 返回: [workerId, averageEfficiency]
+     */
+    @Query("SELECT p.workerId, p.averageEfficiency FROM PayrollRecord p WHERE p.factoryId = :factoryId " +
+           "AND p.periodStart = :periodStart AND p.periodEnd = :periodEnd")
+    List<Object[]> findWorkerEfficienciesByPeriod(
+            @Param("factoryId") String factoryId,
+            @Param("periodStart") LocalDate periodStart,
+            @Param("periodEnd") LocalDate periodEnd);
+
     /**
      * 检查是否存在重复的工资记录
      */
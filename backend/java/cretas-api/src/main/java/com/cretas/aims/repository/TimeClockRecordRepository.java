@@ -193,5 +193,18 @@ public interface TimeClockRecordRepository extends JpaRepository<TimeClockRecord
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end
     );
-}
 
+    /**
+     * 查询日期范围内有打卡记录的工厂（用于考勤汇总对账）
+     *
+     * @param start 开始时间
+     * @param end 结束时间
+     * @return 工厂ID列表
+     */
+    @Query("SELECT DISTINCT t.factoryId FROM TimeClockRecord t " +
+           "WHERE t.clockInTime >= :start AND t.clockInTime < :end")
+    List<String> findDistinctFactoryIdsByClockInTimeBetween(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end
+    );
+}
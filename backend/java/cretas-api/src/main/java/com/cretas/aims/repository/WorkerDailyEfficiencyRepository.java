@@ -94,6 +94,19 @@ public interface WorkerDailyEfficiencyRepository extends JpaRepository<WorkerDai
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate);
 
+    /**
+     * 按工人和工序汇总时间范围内的效率记录 (批量工资计算用)
+     * 返回: [workerId, processStageType, 记录数, 总计件数, 总工作分钟]
+     */
+    @Query("SELECT e.workerId, e.processStageType, COUNT(e), SUM(e.totalPieceCount), SUM(e.effectiveWorkMinutes) " +
+           "FROM WorkerDailyEfficiency e WHERE e.factoryId = :factoryId " +
+           "AND e.workDate >= :startDate AND e.workDate <= :endDate " +
+           "GROUP BY e.workerId, e.processStageType")
+    List<Object[]> aggregateByWorkerAndStage(
+            @Param("factoryId") String factoryId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate);
+
     /**
      * 获取某天的效率排名 (按件/小时)
      */
@@ -6,6 +6,7 @@ import com.cretas.aims.service.AnomalyDetectionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,7 +21,7 @@ import java.util.List;
  * 异常检测定时调度器
  *
  * 调度策略:
- * - 每2小时执行一次全量异常检测
+ * - 每2小时执行一次全量异常检测 (仅在未启用流式检测时; 启用后由 StreamingAnomalyService 随数据到达检测)
  * - 每4小时自动验证已解决超过24小时的告警
  *
  * @author Cretas Team
@@ -41,11 +42,18 @@ public class AnomalyDetectionScheduler {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Value("${cretas.anomaly.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
     /**
      * 每2小时执行全量异常检测
      */
     @Scheduled(cron = "0 0 */2 * * *")
     public void scheduledDetection() {
+        if (streamingEnabled) {
+            log.debug("已启用流式异常检测，跳过定时轮询检测");
+            return;
+        }
         log.info("开始定时异常检测...");
         try {
             int alertCount = anomalyDetectionService.detectAnomaliesForAllFactories();
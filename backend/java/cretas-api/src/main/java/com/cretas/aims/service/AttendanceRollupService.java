@@ -0,0 +1,495 @@
+package com.cretas.aims.service;
+
+import com.cretas.aims.entity.AttendanceDailyRollup;
+import com.cretas.aims.entity.TimeClockRecord;
+import com.cretas.aims.entity.User;
+import com.cretas.aims.repository.AttendanceDailyRollupRepository;
+import com.cretas.aims.repository.TimeClockRecordRepository;
+import com.cretas.aims.repository.UserRepository;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 考勤日汇总维护服务
+ *
+ * 维护 attendance_daily_rollups 中 员工/日、部门/日、工种/日 三个维度的预聚合数据:
+ * - 打卡写入 (上班/下班/修改) 提交后, 重新计算该员工当日行, 再由员工行重算其新旧部门和工种行
+ * - recalculateStats 与每日对账任务整日重建, 修正并发写入或多实例部署下的偏差
+ *
+ * 员工行始终由当日原始打卡记录重新计算而非累加增量, 打卡记录被修改 (包括改到其他日期) 时
+ * 只需对涉及的日期各刷新一次即可保持一致。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+@Slf4j
+@Service
+public class AttendanceRollupService {
+
+    /** 标准工作时长 (分钟) */
+    public static final int STANDARD_WORK_MINUTES = 8 * 60;
+    /** 工时异常上限 (分钟) */
+    public static final int MAX_DAILY_WORK_MINUTES = 12 * 60;
+    /** 工时异常下限 (分钟) */
+    public static final int MIN_DAILY_WORK_MINUTES = 4 * 60;
+
+    /** 迟到阈值 (早上9:00后打卡视为迟到) */
+    private static final int LATE_THRESHOLD_HOUR = 9;
+    private static final int LATE_THRESHOLD_MINUTE = 0;
+    /** 早退阈值 (下午5:30前打卡视为早退) */
+    private static final int EARLY_LEAVE_THRESHOLD_HOUR = 17;
+    private static final int EARLY_LEAVE_THRESHOLD_MINUTE = 30;
+
+    /** 未设置部门 */
+    public static final String UNASSIGNED_DEPARTMENT = "未分配";
+    /** 未设置岗位时的默认工种 */
+    public static final String DEFAULT_WORK_TYPE = "常规工作";
+
+    /** (工厂, 日期) 维护锁分段数 */
+    private static final int LOCK_STRIPES = 64;
+
+    private final AttendanceDailyRollupRepository rollupRepository;
+    private final TimeClockRecordRepository timeClockRecordRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileDays;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final AtomicLong workerRefreshes = new AtomicLong();
+    private final AtomicLong dayRebuilds = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public AttendanceRollupService(
+            AttendanceDailyRollupRepository rollupRepository,
+            TimeClockRecordRepository timeClockRecordRepository,
+            UserRepository userRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${cretas.attendance.rollup.reconcile-days:2}") int reconcileDays) {
+        this.rollupRepository = rollupRepository;
+        this.timeClockRecordRepository = timeClockRecordRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // 汇总维护在打卡事务提交后独立提交, 读取到的是已提交的打卡记录
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reconcileDays = Math.max(1, reconcileDays);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // ==================== 写入触发 ====================
+
+    /**
+     * 打卡记录变更后刷新员工在相关日期的汇总
+     * 存在事务时在提交后执行, 汇总失败不影响打卡本身
+     *
+     * @param factoryId 工厂ID
+     * @param userId 用户ID
+     * @param dates 受影响日期 (修改打卡时间时传入新旧两个日期)
+     */
+    public void onRecordChanged(String factoryId, Long userId, LocalDate... dates) {
+        Set<LocalDate> affected = new LinkedHashSet<>();
+        for (LocalDate date : dates) {
+            if (date != null) {
+                affected.add(date);
+            }
+        }
+        if (affected.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            for (LocalDate date : affected) {
+                refreshWorkerDay(factoryId, userId, date);
+            }
+        });
+    }
+
+    /**
+     * 打卡记录批量修正后整日重建汇总 (提交后执行)
+     */
+    public void onDayRecalculated(String factoryId, LocalDate date) {
+        afterCommit(() -> rebuildDay(factoryId, date));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ==================== 维护 ====================
+
+    /**
+     * 重新计算员工某日的汇总行, 并同步其新旧部门和工种的当日汇总
+     */
+    public void refreshWorkerDay(String factoryId, Long userId, LocalDate date) {
+        try {
+            synchronized (lockFor(factoryId, date)) {
+                transactionTemplate.executeWithoutResult(status -> doRefreshWorkerDay(factoryId, userId, date));
+            }
+            workerRefreshes.incrementAndGet();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.error("考勤汇总刷新失败, 将由对账任务修正: factoryId={}, userId={}, date={}, error={}",
+                    factoryId, userId, date, e.getMessage());
+        }
+    }
+
+    private void doRefreshWorkerDay(String factoryId, Long userId, LocalDate date) {
+        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndUserIdAndClockDateBetween(
+                factoryId, userId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        String key = String.valueOf(userId);
+        Optional<AttendanceDailyRollup> existing = rollupRepository
+                .findByFactoryIdAndRollupDateAndDimensionAndDimensionKey(
+                        factoryId, date, AttendanceDailyRollup.DIMENSION_WORKER, key);
+
+        Set<String> departments = new LinkedHashSet<>();
+        Set<String> workTypes = new LinkedHashSet<>();
+        existing.ifPresent(old -> {
+            departments.add(old.getDepartment());
+            workTypes.add(old.getWorkType());
+        });
+
+        if (records.isEmpty()) {
+            existing.ifPresent(rollupRepository::delete);
+        } else {
+            User user = userRepository.findById(userId).orElse(null);
+            AttendanceDailyRollup row = existing.orElseGet(() -> AttendanceDailyRollup.builder()
+                    .factoryId(factoryId)
+                    .rollupDate(date)
+                    .dimension(AttendanceDailyRollup.DIMENSION_WORKER)
+                    .dimensionKey(key)
+                    .build());
+            describeWorker(row, userId, user);
+            measure(records).applyTo(row);
+            rollupRepository.save(row);
+            departments.add(row.getDepartment());
+            workTypes.add(row.getWorkType());
+        }
+
+        for (String department : departments) {
+            refreshGroup(factoryId, date, AttendanceDailyRollup.DIMENSION_DEPARTMENT, department,
+                    rollupRepository.sumWorkersByDepartment(factoryId, date, department));
+        }
+        for (String workType : workTypes) {
+            refreshGroup(factoryId, date, AttendanceDailyRollup.DIMENSION_WORK_TYPE, workType,
+                    rollupRepository.sumWorkersByWorkType(factoryId, date, workType));
+        }
+    }
+
+    private void refreshGroup(String factoryId, LocalDate date, String dimension, String key, List<Object[]> sums) {
+        Totals totals = sums.isEmpty() ? new Totals() : Totals.of(sums.get(0), 0);
+        Optional<AttendanceDailyRollup> existing = rollupRepository
+                .findByFactoryIdAndRollupDateAndDimensionAndDimensionKey(factoryId, date, dimension, key);
+        if (totals.getWorkerCount() == 0) {
+            existing.ifPresent(rollupRepository::delete);
+            return;
+        }
+        AttendanceDailyRollup row = existing.orElseGet(() -> AttendanceDailyRollup.builder()
+                .factoryId(factoryId)
+                .rollupDate(date)
+                .dimension(dimension)
+                .dimensionKey(key)
+                .dimensionLabel(key)
+                .build());
+        totals.applyTo(row);
+        rollupRepository.save(row);
+    }
+
+    /**
+     * 由当日全部打卡记录重建某日所有维度的汇总
+     */
+    public void rebuildDay(String factoryId, LocalDate date) {
+        synchronized (lockFor(factoryId, date)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
+                        factoryId, date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+                rollupRepository.deleteByFactoryIdAndRollupDate(factoryId, date);
+                rollupRepository.saveAll(buildDay(factoryId, date, records));
+            });
+        }
+        dayRebuilds.incrementAndGet();
+    }
+
+    /**
+     * 重建日期范围内的汇总 (上线回填或人工修复)
+     *
+     * @return 重建天数
+     */
+    public int rebuildRange(String factoryId, LocalDate startDate, LocalDate endDate) {
+        int days = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            rebuildDay(factoryId, date);
+            days++;
+        }
+        log.info("考勤汇总重建完成: factoryId={}, {} to {}, days={}", factoryId, startDate, endDate, days);
+        return days;
+    }
+
+    /**
+     * 删除截止日期之前的汇总 (随打卡记录清理)
+     */
+    public int deleteBefore(String factoryId, LocalDate cutoffDate) {
+        return transactionTemplate.execute(status ->
+                rollupRepository.deleteByFactoryIdAndRollupDateBefore(factoryId, cutoffDate));
+    }
+
+    /**
+     * 每日对账: 重建最近几天的汇总, 修正并发写入或多实例部署下的偏差
+     */
+    @Scheduled(cron = "${cretas.attendance.rollup.reconcile-cron:0 30 2 * * ?}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        for (int i = 1; i <= reconcileDays; i++) {
+            LocalDate date = today.minusDays(i);
+            List<String> factoryIds = timeClockRecordRepository.findDistinctFactoryIdsByClockInTimeBetween(
+                    date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+            for (String factoryId : factoryIds) {
+                try {
+                    rebuildDay(factoryId, date);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    log.error("考勤汇总对账失败: factoryId={}, date={}, error={}", factoryId, date, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Object lockFor(String factoryId, LocalDate date) {
+        return locks[Math.floorMod(Objects.hash(factoryId, date), LOCK_STRIPES)];
+    }
+
+    // ==================== 汇总计算 ====================
+
+    /**
+     * 由某日打卡记录计算全部维度的汇总行
+     */
+    List<AttendanceDailyRollup> buildDay(String factoryId, LocalDate date, List<TimeClockRecord> records) {
+        Map<Long, List<TimeClockRecord>> byUser = records.stream()
+                .filter(r -> r.getUserId() != null)
+                .collect(Collectors.groupingBy(TimeClockRecord::getUserId, LinkedHashMap::new, Collectors.toList()));
+        Map<Long, User> users = new HashMap<>();
+        if (!byUser.isEmpty()) {
+            for (User user : userRepository.findAllById(byUser.keySet())) {
+                users.put(user.getId(), user);
+            }
+        }
+
+        List<AttendanceDailyRollup> rows = new ArrayList<>();
+        Map<String, Totals> departments = new LinkedHashMap<>();
+        Map<String, Totals> workTypes = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<TimeClockRecord>> entry : byUser.entrySet()) {
+            AttendanceDailyRollup row = AttendanceDailyRollup.builder()
+                    .factoryId(factoryId)
+                    .rollupDate(date)
+                    .dimension(AttendanceDailyRollup.DIMENSION_WORKER)
+                    .dimensionKey(String.valueOf(entry.getKey()))
+                    .build();
+            describeWorker(row, entry.getKey(), users.get(entry.getKey()));
+            Totals totals = measure(entry.getValue());
+            totals.applyTo(row);
+            rows.add(row);
+            departments.computeIfAbsent(row.getDepartment(), k -> new Totals()).add(totals);
+            workTypes.computeIfAbsent(row.getWorkType(), k -> new Totals()).add(totals);
+        }
+        addGroupRows(rows, factoryId, date, AttendanceDailyRollup.DIMENSION_DEPARTMENT, departments);
+        addGroupRows(rows, factoryId, date, AttendanceDailyRollup.DIMENSION_WORK_TYPE, workTypes);
+        return rows;
+    }
+
+    private static void addGroupRows(List<AttendanceDailyRollup> rows, String factoryId, LocalDate date,
+            String dimension, Map<String, Totals> groups) {
+        groups.forEach((key, totals) -> {
+            AttendanceDailyRollup row = AttendanceDailyRollup.builder()
+                    .factoryId(factoryId)
+                    .rollupDate(date)
+                    .dimension(dimension)
+                    .dimensionKey(key)
+                    .dimensionLabel(key)
+                    .build();
+            totals.applyTo(row);
+            rows.add(row);
+        });
+    }
+
+    private static void describeWorker(AttendanceDailyRollup row, Long userId, User user) {
+        String name = user != null ? user.getFullName() : null;
+        String department = user != null ? user.getDepartment() : null;
+        String position = user != null ? user.getPosition() : null;
+        row.setDimensionLabel(name != null ? name : "员工" + userId);
+        row.setDepartment(department != null && !department.isEmpty() ? department : UNASSIGNED_DEPARTMENT);
+        row.setWorkType(position != null && !position.isEmpty() ? position : DEFAULT_WORK_TYPE);
+    }
+
+    /**
+     * 计算一名员工一日打卡记录的度量
+     */
+    public static Totals measure(Collection<TimeClockRecord> records) {
+        Totals totals = new Totals();
+        if (records.isEmpty()) {
+            return totals;
+        }
+        totals.workerCount = 1;
+        for (TimeClockRecord record : records) {
+            int minutes = record.getWorkDurationMinutes() != null ? record.getWorkDurationMinutes() : 0;
+            totals.recordCount++;
+            totals.totalMinutes += minutes;
+            if (minutes > STANDARD_WORK_MINUTES) {
+                totals.regularMinutes += STANDARD_WORK_MINUTES;
+                totals.overtimeMinutes += minutes - STANDARD_WORK_MINUTES;
+            } else {
+                totals.regularMinutes += minutes;
+            }
+            if (isLate(record)) {
+                totals.lateCount++;
+            }
+            if (isEarlyLeave(record)) {
+                totals.earlyLeaveCount++;
+            }
+            if (minutes > MAX_DAILY_WORK_MINUTES || (minutes > 0 && minutes < MIN_DAILY_WORK_MINUTES)) {
+                totals.abnormalCount++;
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * 判断是否迟到
+     */
+    public static boolean isLate(TimeClockRecord record) {
+        if (record.getClockInTime() == null) {
+            return false;
+        }
+        // 检查attendanceStatus字段
+        if ("LATE".equalsIgnoreCase(record.getAttendanceStatus()) ||
+            "LATE_AND_EARLY_LEAVE".equalsIgnoreCase(record.getAttendanceStatus())) {
+            return true;
+        }
+        // 基于时间判断
+        int hour = record.getClockInTime().getHour();
+        int minute = record.getClockInTime().getMinute();
+        return hour > LATE_THRESHOLD_HOUR ||
+               (hour == LATE_THRESHOLD_HOUR && minute > LATE_THRESHOLD_MINUTE);
+    }
+
+    /**
+     * 判断是否早退
+     */
+    public static boolean isEarlyLeave(TimeClockRecord record) {
+        if (record.getClockOutTime() == null) {
+            return false;
+        }
+        // 检查attendanceStatus字段
+        if ("EARLY_LEAVE".equalsIgnoreCase(record.getAttendanceStatus()) ||
+            "LATE_AND_EARLY_LEAVE".equalsIgnoreCase(record.getAttendanceStatus())) {
+            return true;
+        }
+        // 基于时间判断
+        int hour = record.getClockOutTime().getHour();
+        int minute = record.getClockOutTime().getMinute();
+        return hour < EARLY_LEAVE_THRESHOLD_HOUR ||
+               (hour == EARLY_LEAVE_THRESHOLD_HOUR && minute < EARLY_LEAVE_THRESHOLD_MINUTE);
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 可合并的汇总度量
+     */
+    @Data
+    public static class Totals {
+        private long workerCount;
+        private long recordCount;
+        private long totalMinutes;
+        private long regularMinutes;
+        private long overtimeMinutes;
+        private long lateCount;
+        private long earlyLeaveCount;
+        private long abnormalCount;
+
+        /**
+         * 按仓库约定的度量列顺序从查询结果解析
+         */
+        public static Totals of(Object[] row, int offset) {
+            Totals totals = new Totals();
+            totals.workerCount = toLong(row[offset]);
+            totals.recordCount = toLong(row[offset + 1]);
+            totals.totalMinutes = toLong(row[offset + 2]);
+            totals.regularMinutes = toLong(row[offset + 3]);
+            totals.overtimeMinutes = toLong(row[offset + 4]);
+            totals.lateCount = toLong(row[offset + 5]);
+            totals.earlyLeaveCount = toLong(row[offset + 6]);
+            totals.abnormalCount = toLong(row[offset + 7]);
+            return totals;
+        }
+
+        public Totals add(Totals other) {
+            workerCount += other.workerCount;
+            recordCount += other.recordCount;
+            totalMinutes += other.totalMinutes;
+            regularMinutes += other.regularMinutes;
+            overtimeMinutes += other.overtimeMinutes;
+            lateCount += other.lateCount;
+            earlyLeaveCount += other.earlyLeaveCount;
+            abnormalCount += other.abnormalCount;
+            return this;
+        }
+
+        void applyTo(AttendanceDailyRollup row) {
+            row.setWorkerCount(workerCount);
+            row.setRecordCount(recordCount);
+            row.setTotalMinutes(totalMinutes);
+            row.setRegularMinutes(regularMinutes);
+            row.setOvertimeMinutes(overtimeMinutes);
+            row.setLateCount(lateCount);
+            row.setEarlyLeaveCount(earlyLeaveCount);
+            row.setAbnormalCount(abnormalCount);
+        }
+
+        private static long toLong(Object value) {
+            return value == null ? 0L : ((Number) value).longValue();
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workerRefreshes", workerRefreshes.get());
+        stats.put("dayRebuilds", dayRebuilds.get());
+        stats.put("failures", failures.get());
+        stats.put("reconcileDays", reconcileDays);
+        return stats;
+    }
+}
@@ -2,6 +2,7 @@ package com.cretas.aims.service;
 
 import com.cretas.aims.config.PythonClassifierConfig;
 import com.cretas.aims.dto.ClassifierResult;
+import com.cretas.aims.service.intent.InProcessIntentClassifier;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -21,7 +22,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * 分类器意图匹配器
  *
- * 调用 Python 分类器服务进行意图分类，使用 BERT 模型直接输出 softmax 概率。
+ * 默认 (mode=local) 在 JVM 内对 GTE Embedding 运行分类头 ({@link InProcessIntentClassifier})，
+ * 不再经过网络调用；Python 分类器服务仅负责离线训练，mode=remote 或本地模型未就绪且允许回退时才被调用。
  *
  * <p>优势:</p>
  * <ul>
@@ -42,6 +44,9 @@ public class ClassifierIntentMatcher {
     @Autowired
     private PythonClassifierConfig config;
 
+    @Autowired(required = false)
+    private InProcessIntentClassifier localClassifier;
+
     private RestTemplate restTemplate;
     private final AtomicBoolean serviceAvailable = new AtomicBoolean(false);
     private volatile long lastHealthCheck = 0;
@@ -123,9 +128,12 @@ public class ClassifierIntentMatcher {
         log.info("  - URL: {}", config.getUrl());
         log.info("  - enabled: {}", config.isEnabled());
         log.info("  - weight: {}", config.getWeight());
+        log.info("  - mode: {}", config.getMode());
 
         // 初始健康检查
-        checkHealth();
+        if (usesRemote()) {
+            checkHealth();
+        }
     }
 
     /**
@@ -133,7 +141,7 @@ public class ClassifierIntentMatcher {
      */
     @Scheduled(fixedRateString = "${python-classifier.health-check-interval:30000}")
     public void scheduledHealthCheck() {
-        if (config.isEnabled()) {
+        if (config.isEnabled() && usesRemote()) {
             checkHealth();
         }
     }
@@ -187,6 +195,20 @@ public class ClassifierIntentMatcher {
         return false;
     }
 
+    /**
+     * 本地分类头是否可用
+     */
+    private boolean localReady() {
+        return config.isLocalMode() && localClassifier != null && localClassifier.isReady();
+    }
+
+    /**
+     * 是否需要访问 Python 服务（remote 模式，或 local 模式下允许回退）
+     */
+    private boolean usesRemote() {
+        return !config.isLocalMode() || config.isRemoteFallback();
+    }
+
     /**
      * 检查服务是否可用
      */
@@ -194,6 +216,12 @@ public class ClassifierIntentMatcher {
         if (!config.isEnabled()) {
             return false;
         }
+        if (localReady()) {
+            return true;
+        }
+        if (!usesRemote()) {
+            return false;
+        }
 
         // 如果超过健康检查间隔，重新检查
         if (System.currentTimeMillis() - lastHealthCheck > config.getHealthCheckInterval()) {
@@ -238,6 +266,17 @@ public class ClassifierIntentMatcher {
             return Optional.empty();
         }
 
+        if (localReady()) {
+            try {
+                return localClassifier.classify(userInput, topK, minConfidence);
+            } catch (Exception e) {
+                log.error("本地分类头推理异常: {}", e.getMessage());
+                if (!usesRemote() || !serviceAvailable.get()) {
+                    return Optional.empty();
+                }
+            }
+        }
+
         try {
             String url = config.getClassifyUrl();
             ClassifyRequest request = new ClassifyRequest(userInput.trim(), topK, minConfidence);
@@ -304,6 +343,10 @@ public class ClassifierIntentMatcher {
             return -1;
         }
 
+        if (localReady()) {
+            return localClassifier.confidenceFor(userInput, intentCode);
+        }
+
         try {
             String url = config.getConfidenceUrl();
 
@@ -337,6 +380,17 @@ public class ClassifierIntentMatcher {
      * 获取模型信息
      */
     public Optional<ModelInfoResponse> getModelInfo() {
+        if (config.isLocalMode() && localClassifier != null && localClassifier.getCurrentHead().isPresent()) {
+            return localClassifier.getCurrentHead().map(head -> {
+                ModelInfoResponse info = new ModelInfoResponse();
+                info.setAvailable(localClassifier.isReady());
+                info.setModelPath(String.valueOf(localClassifier.getStats().get("source")));
+                info.setNumLabels(head.getNumLabels());
+                info.setDevice("jvm-" + head.getPrecision());
+                info.setLabels(new ArrayList<>(head.getLabels()));
+                return info;
+            });
+        }
         if (!config.isAvailable()) {
             return Optional.empty();
         }
@@ -8,6 +8,8 @@ import lombok.NoArgsConstructor;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
 
 /**
  * 多轮对话服务接口
@@ -65,6 +67,30 @@ public interface ConversationService {
      */
     ConversationResponse continueConversation(String sessionId, String userReply);
 
+    /**
+     * 流式开始多轮对话
+     *
+     * 会话准备在当前事务内完成；需要调用 LLM 时返回 token 流，由调用方订阅，
+     * 流结束后调用 {@link StreamingTurn#finish(String)} 在独立事务中更新会话并生成响应。
+     *
+     * @param factoryId 工厂ID
+     * @param userId 用户ID
+     * @param userInput 用户输入
+     * @return 流式轮次
+     */
+    StreamingTurn startConversationStreaming(String factoryId, Long userId, String userInput);
+
+    /**
+     * 流式继续多轮对话，语义同 {@link #continueConversation(String, String)}
+     *
+     * 会话无效、直接确认候选、达到最大轮次及参数收集模式不经过流式 LLM，直接返回响应。
+     *
+     * @param sessionId 会话ID
+     * @param userReply 用户回复
+     * @return 流式轮次
+     */
+    StreamingTurn continueConversationStreaming(String sessionId, String userReply);
+
     /**
      * 结束对话并学习
      *
@@ -120,6 +146,37 @@ public interface ConversationService {
 
     // ========== 响应类 ==========
 
+    /**
+     * 流式对话轮次
+     *
+     * response 不为空时本轮无需调用 LLM；否则订阅 tokens，结束后以完整输出调用 finish，
+     * LLM 失败时以 null 调用 finish 得到默认澄清响应。客户端断开而未调用 finish 时本轮不落库。
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    class StreamingTurn {
+        /** 直接响应 */
+        private ConversationResponse response;
+        /** LLM token 流 */
+        private Flow.Publisher<String> tokens;
+        /** 根据 LLM 完整输出完成本轮 */
+        private Function<String, ConversationResponse> finisher;
+
+        public static StreamingTurn of(ConversationResponse response) {
+            return StreamingTurn.builder().response(response).build();
+        }
+
+        public boolean isStreaming() {
+            return tokens != null;
+        }
+
+        public ConversationResponse finish(String fullText) {
+            return finisher.apply(fullText);
+        }
+    }
+
     /**
      * 对话响应
      */
@@ -0,0 +1,449 @@
+package com.cretas.aims.service;
+
+import com.cretas.aims.entity.Customer;
+import com.cretas.aims.entity.FactoryEquipment;
+import com.cretas.aims.entity.MaterialBatch;
+import com.cretas.aims.entity.ProductionBatch;
+import com.cretas.aims.entity.ProductionPlan;
+import com.cretas.aims.entity.QualityInspection;
+import com.cretas.aims.entity.ShipmentRecord;
+import com.cretas.aims.entity.Supplier;
+import com.cretas.aims.entity.User;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 仪表盘快照服务
+ *
+ * 按工厂在内存中保存仪表盘 8 个分区的统计结果，每个分区带版本号和计算时间：
+ * - 相关实体提交写入后（{@link com.cretas.aims.listener.DashboardSnapshotEntityListener}）只作废受影响的分区
+ * - 定时按 updated_at 增量查询各来源表，补充捕获绕过实体回调的写入（其他实例、原生 SQL）
+ * - 近期打开过仪表盘的工厂，失效分区由后台任务预先重算；请求只在分区失效时才同步重算，同一分区同时只算一次
+ *
+ * 分区值整体重算而不是逐行累加：状态计数、平均值、到期窗口等聚合无法仅凭单行变更修正。
+ * 跨天后按日期统计的分区、以及超过最大存活时间的分区同样视为失效。快照中的对象为共享只读数据。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-30
+ */
+@Slf4j
+@Service
+public class DashboardSnapshotService {
+
+    /**
+     * 仪表盘分区
+     */
+    public enum Section {
+        PRODUCTION, INVENTORY, FINANCE, PERSONNEL, EQUIPMENT, QUALITY, TREND, ALERTS
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final long maxAgeMillis;
+    private final long activeMillis;
+    private final long idleMillis;
+    private final long deltaOverlapSeconds;
+    private final Clock clock;
+
+    /** 实体类型 -> 工厂ID提取与受影响分区 */
+    private final Map<Class<?>, TrackedEntity<?>> trackedEntities = new LinkedHashMap<>();
+    private final Map<Section, Function<String, ?>> loaders = new EnumMap<>(Section.class);
+    private final Map<String, FactorySnapshot> snapshots = new ConcurrentHashMap<>();
+    /** 增量查询水位: 实体类型 -> 已处理的最大 updated_at */
+    private final Map<Class<?>, LocalDateTime> deltaWatermarks = new ConcurrentHashMap<>();
+    /** 实体类型 -> 工厂 -> 已处理的最大 updated_at */
+    private final Map<Class<?>, Map<String, LocalDateTime>> deltaSeen = new ConcurrentHashMap<>();
+
+    /** 全局单调版本号, 分区每次重算取一个新值 */
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong backgroundLoads = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong deltaInvalidations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @Autowired
+    public DashboardSnapshotService(
+            @Value("${cretas.dashboard.snapshot.max-age-seconds:300}") long maxAgeSeconds,
+            @Value("${cretas.dashboard.snapshot.active-minutes:10}") long activeMinutes,
+            @Value("${cretas.dashboard.snapshot.idle-minutes:60}") long idleMinutes,
+            @Value("${cretas.dashboard.snapshot.delta-overlap-seconds:120}") long deltaOverlapSeconds) {
+        this(maxAgeSeconds, activeMinutes, idleMinutes, deltaOverlapSeconds, Clock.systemDefaultZone());
+    }
+
+    DashboardSnapshotService(long maxAgeSeconds, long activeMinutes, long idleMinutes,
+                             long deltaOverlapSeconds, Clock clock) {
+        this.maxAgeMillis = maxAgeSeconds * 1000L;
+        this.activeMillis = activeMinutes * 60_000L;
+        this.idleMillis = Math.max(idleMinutes, activeMinutes) * 60_000L;
+        this.deltaOverlapSeconds = deltaOverlapSeconds;
+        this.clock = clock;
+
+        track(ProductionPlan.class, ProductionPlan::getFactoryId, Section.PRODUCTION, Section.FINANCE, Section.TREND);
+        track(ProductionBatch.class, ProductionBatch::getFactoryId, Section.PRODUCTION);
+        track(MaterialBatch.class, MaterialBatch::getFactoryId, Section.INVENTORY, Section.ALERTS);
+        track(User.class, User::getFactoryId, Section.PERSONNEL);
+        track(FactoryEquipment.class, FactoryEquipment::getFactoryId, Section.EQUIPMENT, Section.ALERTS);
+        track(QualityInspection.class, QualityInspection::getFactoryId, Section.QUALITY);
+        track(ShipmentRecord.class, ShipmentRecord::getFactoryId, Section.FINANCE);
+        track(Customer.class, Customer::getFactoryId, Section.FINANCE);
+        track(Supplier.class, Supplier::getFactoryId, Section.FINANCE);
+
+        LocalDateTime start = LocalDateTime.now(clock);
+        for (Class<?> type : trackedEntities.keySet()) {
+            deltaWatermarks.put(type, start);
+            deltaSeen.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+    private <E> void track(Class<E> type, Function<E, String> factoryOf, Section first, Section... rest) {
+        trackedEntities.put(type, new TrackedEntity<>(type, factoryOf, EnumSet.of(first, rest)));
+    }
+
+    /**
+     * 注册分区计算函数, 由报表服务在启动时注册
+     */
+    public synchronized void registerLoader(Section section, Function<String, ?> loader) {
+        loaders.put(section, loader);
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 获取工厂的仪表盘快照, 新鲜分区直接返回, 失效分区同步重算
+     */
+    public Snapshot getSnapshot(String factoryId) {
+        FactorySnapshot factory = snapshots.computeIfAbsent(factoryId, id -> new FactorySnapshot());
+        factory.lastAccessMillis = clock.millis();
+
+        Map<Section, SectionValue> values = new EnumMap<>(Section.class);
+        for (Section section : Section.values()) {
+            Slot slot = factory.slots.get(section);
+            SectionValue value = slot.current;
+            if (isFresh(slot, value)) {
+                hits.incrementAndGet();
+            } else {
+                value = refresh(factoryId, section, slot, false);
+            }
+            values.put(section, value);
+        }
+        return new Snapshot(values, clock.millis());
+    }
+
+    private boolean isFresh(Slot slot, SectionValue value) {
+        return value != null
+                && value.stamp == slot.stamp.get()
+                && LocalDate.now(clock).equals(value.businessDate)
+                && clock.millis() - value.computedAtMillis < maxAgeMillis;
+    }
+
+    /**
+     * 重算分区, 同一分区同一时间只有一个线程计算, 其余线程等待后直接使用结果
+     */
+    private SectionValue refresh(String factoryId, Section section, Slot slot, boolean background) {
+        synchronized (slot) {
+            SectionValue current = slot.current;
+            if (isFresh(slot, current)) {
+                hits.incrementAndGet();
+                return current;
+            }
+            Function<String, ?> loader = loaders.get(section);
+            if (loader == null) {
+                throw new IllegalStateException("仪表盘分区未注册计算函数: " + section);
+            }
+            // 先读取作废计数再计算: 计算期间发生的写入会使计数前进, 结果不会被当作新鲜值
+            long stamp = slot.stamp.get();
+            LocalDate businessDate = LocalDate.now(clock);
+            Object value = loader.apply(factoryId);
+            SectionValue computed = new SectionValue(value, versionSequence.incrementAndGet(),
+                    clock.millis(), businessDate, stamp);
+            slot.current = computed;
+            (background ? backgroundLoads : loads).incrementAndGet();
+            return computed;
+        }
+    }
+
+    // ==================== 作废 ====================
+
+    /**
+     * 实体写入回调: 存在事务时在提交后作废相关分区, 回滚的写入不影响快照
+     */
+    public void onEntityChanged(Object entity) {
+        TrackedEntity<?> tracked = findTracked(entity.getClass());
+        if (tracked == null) {
+            return;
+        }
+        String factoryId = tracked.factoryOf(entity);
+        if (factoryId == null) {
+            return;
+        }
+        afterCommit(() -> invalidate(factoryId, tracked.sections));
+    }
+
+    /**
+     * 作废工厂的指定分区, 供批量 SQL 更新等绕过实体回调的写入显式调用
+     */
+    public void invalidate(String factoryId, Section... sections) {
+        invalidate(factoryId, sections.length == 0 ? EnumSet.allOf(Section.class) : EnumSet.of(sections[0], sections));
+    }
+
+    private void invalidate(String factoryId, Set<Section> sections) {
+        FactorySnapshot factory = snapshots.get(factoryId);
+        if (factory == null) {
+            return;
+        }
+        for (Section section : sections) {
+            factory.slots.get(section).stamp.incrementAndGet();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private TrackedEntity<?> findTracked(Class<?> type) {
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            TrackedEntity<?> tracked = trackedEntities.get(c);
+            if (tracked != null) {
+                return tracked;
+            }
+        }
+        return null;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // ==================== 后台维护 ====================
+
+    /**
+     * 增量查询各来源表的变更, 预先重算活跃工厂的失效分区, 清理长期未访问的工厂
+     */
+    @Scheduled(fixedDelayString = "${cretas.dashboard.snapshot.refresh-interval-ms:5000}")
+    public void maintain() {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        try {
+            pollDeltas();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            log.warn("仪表盘快照增量查询失败: {}", e.getMessage());
+        }
+
+        long now = clock.millis();
+        for (Map.Entry<String, FactorySnapshot> entry : snapshots.entrySet()) {
+            FactorySnapshot factory = entry.getValue();
+            long idle = now - factory.lastAccessMillis;
+            if (idle > idleMillis) {
+                snapshots.remove(entry.getKey(), factory);
+            } else if (idle <= activeMillis) {
+                refreshStale(entry.getKey(), factory);
+            }
+        }
+    }
+
+    private void refreshStale(String factoryId, FactorySnapshot factory) {
+        for (Section section : Section.values()) {
+            Slot slot = factory.slots.get(section);
+            if (isFresh(slot, slot.current)) {
+                continue;
+            }
+            try {
+                refresh(factoryId, section, slot, true);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                log.warn("仪表盘分区后台刷新失败: factoryId={}, section={}, error={}",
+                        factoryId, section, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按 updated_at 查询上次水位之后有变更的工厂
+     * 查询窗口向前重叠一段时间, 覆盖提交晚于更新时间的长事务; 同一工厂只在最大更新时间前进时作废
+     */
+    void pollDeltas() {
+        if (entityManager == null) {
+            return;
+        }
+        for (TrackedEntity<?> tracked : trackedEntities.values()) {
+            String entityName = entityManager.getMetamodel().entity(tracked.type).getName();
+            LocalDateTime since = deltaWatermarks.get(tracked.type).minusSeconds(deltaOverlapSeconds);
+            List<Object[]> rows = entityManager.createQuery(
+                            "SELECT e.factoryId, MAX(e.updatedAt) FROM " + entityName
+                                    + " e WHERE e.updatedAt > :since GROUP BY e.factoryId", Object[].class)
+                    .setParameter("since", since)
+                    .getResultList();
+            Map<String, LocalDateTime> seen = deltaSeen.get(tracked.type);
+            LocalDateTime watermark = deltaWatermarks.get(tracked.type);
+            for (Object[] row : rows) {
+                String factoryId = (String) row[0];
+                LocalDateTime updatedAt = (LocalDateTime) row[1];
+                if (factoryId == null || updatedAt == null) {
+                    continue;
+                }
+                LocalDateTime previous = seen.put(factoryId, updatedAt);
+                if (previous != null && !updatedAt.isAfter(previous)) {
+                    seen.put(factoryId, previous);
+                    continue;
+                }
+                if (updatedAt.isAfter(watermark)) {
+                    watermark = updatedAt;
+                }
+                if (snapshots.containsKey(factoryId)) {
+                    invalidate(factoryId, tracked.sections);
+                    deltaInvalidations.incrementAndGet();
+                }
+            }
+            deltaWatermarks.put(tracked.type, watermark);
+        }
+    }
+
+    /**
+     * 获取快照统计
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("factories", snapshots.size());
+        stats.put("hits", hits.get());
+        stats.put("loads", loads.get());
+        stats.put("backgroundLoads", backgroundLoads.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("deltaInvalidations", deltaInvalidations.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 一次读取得到的各分区值
+     */
+    @Getter
+    public static class Snapshot {
+        private final Map<Section, SectionValue> sections;
+        private final long generatedAtMillis;
+
+        Snapshot(Map<Section, SectionValue> sections, long generatedAtMillis) {
+            this.sections = Collections.unmodifiableMap(sections);
+            this.generatedAtMillis = generatedAtMillis;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T get(Section section) {
+            return (T) sections.get(section).getValue();
+        }
+
+        /**
+         * 快照版本: 各分区版本的最大值, 任一分区重算后增大
+         */
+        public long getVersion() {
+            long version = 0;
+            for (SectionValue value : sections.values()) {
+                version = Math.max(version, value.getVersion());
+            }
+            return version;
+        }
+
+        public long getOldestComputedAtMillis() {
+            long oldest = generatedAtMillis;
+            for (SectionValue value : sections.values()) {
+                oldest = Math.min(oldest, value.getComputedAtMillis());
+            }
+            return oldest;
+        }
+
+        public static LocalDateTime toDateTime(long millis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        }
+    }
+
+    /**
+     * 分区计算结果
+     */
+    @Getter
+    public static class SectionValue {
+        private final Object value;
+        private final long version;
+        private final long computedAtMillis;
+        private final LocalDate businessDate;
+        private final long stamp;
+
+        SectionValue(Object value, long version, long computedAtMillis, LocalDate businessDate, long stamp) {
+            this.value = value;
+            this.version = version;
+            this.computedAtMillis = computedAtMillis;
+            this.businessDate = businessDate;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final class Slot {
+        /** 作废计数, 每次相关写入提交后加一 */
+        private final AtomicLong stamp = new AtomicLong();
+        private volatile SectionValue current;
+    }
+
+    private static final class FactorySnapshot {
+        private final Map<Section, Slot> slots = new EnumMap<>(Section.class);
+        private volatile long lastAccessMillis;
+
+        private FactorySnapshot() {
+            for (Section section : Section.values()) {
+                slots.put(section, new Slot());
+            }
+        }
+    }
+
+    private static final class TrackedEntity<E> {
+        private final Class<E> type;
+        private final Function<E, String> factoryOf;
+        private final Set<Section> sections;
+
+        private TrackedEntity(Class<E> type, Function<E, String> factoryOf, Set<Section> sections) {
+            this.type = type;
+            this.factoryOf = factoryOf;
+            this.sections = sections;
+        }
+
+        private String factoryOf(Object entity) {
+            return factoryOf.apply(type.cast(entity));
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package com.cretas.aims.service;
+
+import com.cretas.aims.entity.PayrollRecord;
+import com.cretas.aims.entity.PieceRateRule;
+import com.cretas.aims.entity.User;
+import com.cretas.aims.entity.WorkerDailyEfficiency;
+import com.cretas.aims.repository.PayrollRecordRepository;
+import com.cretas.aims.repository.PieceRateRuleRepository;
+import com.cretas.aims.repository.UserRepository;
+import com.cretas.aims.repository.WorkerDailyEfficiencyRepository;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 工厂工资单批量生成引擎
+ *
+ * 按集合一次性加载整个周期的数据, 替代逐个工人查询:
+ * - 效率记录按 (工人, 工序) 在数据库端聚合, 一条查询
+ * - 周期内有效的计件规则一条查询, 内存中按工序匹配
+ * - 工人信息按 1000 个一批 IN 查询
+ * - 已生成的工资记录一条查询, 作为断点
+ * - 效率评级基准 (工厂本周期已有工资记录的平均效率) 一条查询, 与单个生成取同一基准
+ *
+ * 待生成的工人按分区并行计算, 每个分区在独立事务内用 JDBC 批量插入;
+ * 已提交的分区即为断点, 失败或中断后重新执行只会补齐缺失的工人。
+ *
+ * 计算逻辑与 {@link WageCalculationService#generatePayroll} 共用 {@link #computePayroll}。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+@Slf4j
+@Service
+public class PayrollBatchEngine {
+
+    /** 效率评级默认基准 (件/小时) */
+    public static final BigDecimal DEFAULT_EFFICIENCY_BASELINE = new BigDecimal("60");
+
+    /** IN 查询单批最大参数数 */
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO payroll_records (" +
+            "factory_id, worker_id, worker_name, period_start, period_end, period_type, " +
+            "total_piece_count, piece_rate_wage, piece_rule_id, base_salary, overtime_wage, overtime_hours, " +
+            "bonus_amount, deduction_amount, total_wage, average_efficiency, total_work_hours, " +
+            "efficiency_rating, status, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final PayrollRecordRepository payrollRecordRepository;
+    private final PieceRateRuleRepository pieceRateRuleRepository;
+    private final WorkerDailyEfficiencyRepository workerDailyEfficiencyRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int partitionSize;
+    private final int jdbcBatchSize;
+    private final ExecutorService pool;
+
+    /** 正在运行的批次 (factoryId:periodStart:periodEnd), 防止同一周期并发重复生成 */
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong failedPartitions = new AtomicLong();
+    private volatile BatchResult lastResult;
+
+    public PayrollBatchEngine(
+            PayrollRecordRepository payrollRecordRepository,
+            PieceRateRuleRepository pieceRateRuleRepository,
+            WorkerDailyEfficiencyRepository workerDailyEfficiencyRepository,
+            UserRepository userRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${cretas.payroll.batch.partition-size:500}") int partitionSize,
+            @Value("${cretas.payroll.batch.threads:4}") int threads,
+            @Value("${cretas.payroll.batch.jdbc-batch-size:200}") int jdbcBatchSize) {
+        this.payrollRecordRepository = payrollRecordRepository;
+        this.pieceRateRuleRepository = pieceRateRuleRepository;
+        this.workerDailyEfficiencyRepository = workerDailyEfficiencyRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // 每个分区独立提交, 已提交分区即断点
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.partitionSize = Math.max(1, partitionSize);
+        this.jdbcBatchSize = Math.max(1, jdbcBatchSize);
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "payroll-batch-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ==================== 批量生成 ====================
+
+    /**
+     * 生成工厂指定周期的工资单, 已生成的工人自动跳过
+     *
+     * @param factoryId 工厂ID
+     * @param periodStart 周期开始
+     * @param periodEnd 周期结束
+     * @return 批次结果
+     */
+    public BatchResult run(String factoryId, LocalDate periodStart, LocalDate periodEnd) {
+        String jobKey = factoryId + ":" + periodStart + ":" + periodEnd;
+        if (!runningJobs.add(jobKey)) {
+            throw new IllegalStateException("该周期的工资单正在批量生成中: " + jobKey);
+        }
+        runs.incrementAndGet();
+        long startNanos = System.nanoTime();
+        BatchResult result = new BatchResult();
+        result.setFactoryId(factoryId);
+        result.setPeriodStart(periodStart);
+        result.setPeriodEnd(periodEnd);
+        try {
+            // 1. 集合加载
+            Map<Long, WorkerPeriodAggregate> aggregates = loadAggregates(factoryId, periodStart, periodEnd);
+            Set<Long> checkpointed = new HashSet<>();
+            for (Object[] row : payrollRecordRepository.findWorkerEfficienciesByPeriod(factoryId, periodStart, periodEnd)) {
+                checkpointed.add((Long) row[0]);
+            }
+            List<Long> pending = new ArrayList<>();
+            for (Long workerId : aggregates.keySet()) {
+                if (!checkpointed.contains(workerId)) {
+                    pending.add(workerId);
+                }
+            }
+            result.setTotalWorkers(aggregates.size());
+            result.setSkippedWorkers(aggregates.size() - pending.size());
+            if (pending.isEmpty()) {
+                result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                log.info("工资单批量生成: 无待生成工人, factoryId={}, 已存在={}", factoryId, checkpointed.size());
+                return finish(result);
+            }
+
+            List<PieceRateRule> rules = pieceRateRuleRepository.findEffectiveRules(factoryId, periodEnd);
+            Map<Long, User> workers = loadWorkers(pending);
+            // 评级基准: 与 WageCalculationService#generatePayroll 相同, 取工厂本周期已有工资记录的平均效率
+            BigDecimal baseline = payrollRecordRepository.avgEfficiencyByPeriod(factoryId, periodStart, periodEnd);
+            result.setLoadMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+            // 2. 分区并行计算并批量写入
+            List<List<Long>> partitions = partition(pending, partitionSize);
+            List<Future<List<Long>>> futures = new ArrayList<>(partitions.size());
+            for (List<Long> partition : partitions) {
+                futures.add(pool.submit(() -> processPartition(factoryId, periodStart, periodEnd,
+                        partition, aggregates, workers, rules, baseline)));
+            }
+            List<Long> generatedIds = new ArrayList<>(pending.size());
+            int failed = 0;
+            for (Future<List<Long>> future : futures) {
+                try {
+                    generatedIds.addAll(future.get());
+                } catch (ExecutionException e) {
+                    failed++;
+                    failedPartitions.incrementAndGet();
+                    log.error("工资单分区写入失败, 重新执行可从断点继续: factoryId={}, error={}",
+                            factoryId, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed++;
+                    break;
+                }
+            }
+            result.setPartitions(partitions.size());
+            int generated = generatedIds.size();
+            int missing = pending.size() - workers.size();
+            result.setGenerated(generated);
+            result.setGeneratedWorkerIds(generatedIds);
+            result.setMissingWorkers(missing);
+            result.setFailedPartitions(failed);
+            result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            log.info("工资单批量生成完成: factoryId={}, 工人={}, 生成={}, 跳过={}, 缺失={}, 失败分区={}, 耗时={}ms",
+                    factoryId, result.getTotalWorkers(), generated, result.getSkippedWorkers(), missing,
+                    failed, result.getElapsedMs());
+            return finish(result);
+        } finally {
+            runningJobs.remove(jobKey);
+        }
+    }
+
+    private BatchResult finish(BatchResult result) {
+        lastResult = result;
+        return result;
+    }
+
+    /**
+     * 计算一个分区并在独立事务中批量插入
+     *
+     * @return 本分区生成工资单的工人ID
+     */
+    private List<Long> processPartition(String factoryId, LocalDate periodStart, LocalDate periodEnd,
+            List<Long> workerIds, Map<Long, WorkerPeriodAggregate> aggregates, Map<Long, User> workers,
+            List<PieceRateRule> rules, BigDecimal baseline) {
+        List<PayrollRecord> records = new ArrayList<>(workerIds.size());
+        List<Long> generated = new ArrayList<>(workerIds.size());
+        for (Long workerId : workerIds) {
+            User worker = workers.get(workerId);
+            if (worker == null) {
+                log.warn("工人不存在, 跳过工资单生成: workerId={}", workerId);
+                continue;
+            }
+            generated.add(workerId);
+            WorkerPeriodAggregate aggregate = aggregates.get(workerId);
+            PieceRateRule rule = aggregate.getTotalPieceCount() > 0
+                    ? resolveRule(rules, aggregate.mainProcessStage()) : null;
+            records.add(computePayroll(factoryId, worker, aggregate, rule, baseline, periodStart, periodEnd));
+        }
+        if (!records.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(records));
+            recordsWritten.addAndGet(records.size());
+        }
+        return generated;
+    }
+
+    private void insertBatch(List<PayrollRecord> records) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, records, jdbcBatchSize, (ps, p) -> {
+            ps.setString(1, p.getFactoryId());
+            ps.setLong(2, p.getWorkerId());
+            ps.setString(3, p.getWorkerName());
+            ps.setDate(4, Date.valueOf(p.getPeriodStart()));
+            ps.setDate(5, Date.valueOf(p.getPeriodEnd()));
+            ps.setString(6, p.getPeriodType());
+            ps.setInt(7, p.getTotalPieceCount());
+            ps.setBigDecimal(8, p.getPieceRateWage());
+            if (p.getPieceRuleId() != null) {
+                ps.setLong(9, p.getPieceRuleId());
+            } else {
+                ps.setNull(9, Types.BIGINT);
+            }
+            ps.setBigDecimal(10, p.getBaseSalary());
+            ps.setBigDecimal(11, p.getOvertimeWage());
+            ps.setBigDecimal(12, p.getOvertimeHours());
+            ps.setBigDecimal(13, p.getBonusAmount());
+            ps.setBigDecimal(14, p.getDeductionAmount());
+            ps.setBigDecimal(15, p.getTotalWage());
+            ps.setBigDecimal(16, p.getAverageEfficiency());
+            ps.setBigDecimal(17, p.getTotalWorkHours());
+            ps.setString(18, p.getEfficiencyRating());
+            ps.setString(19, p.getStatus());
+            ps.setTimestamp(20, now);
+            ps.setTimestamp(21, now);
+        });
+    }
+
+    // ==================== 集合加载 ====================
+
+    private Map<Long, WorkerPeriodAggregate> loadAggregates(String factoryId,
+            LocalDate periodStart, LocalDate periodEnd) {
+        Map<Long, WorkerPeriodAggregate> aggregates = new LinkedHashMap<>();
+        for (Object[] row : workerDailyEfficiencyRepository.aggregateByWorkerAndStage(factoryId, periodStart, periodEnd)) {
+            Long workerId = (Long) row[0];
+            aggregates.computeIfAbsent(workerId, k -> new WorkerPeriodAggregate())
+                    .add((String) row[1], toLong(row[2]), toLong(row[3]), toLong(row[4]));
+        }
+        return aggregates;
+    }
+
+    private Map<Long, User> loadWorkers(List<Long> workerIds) {
+        Map<Long, User> workers = new HashMap<>(workerIds.size() * 2);
+        for (List<Long> chunk : partition(workerIds, IN_CLAUSE_CHUNK)) {
+            for (User user : userRepository.findAllById(chunk)) {
+                workers.put(user.getId(), user);
+            }
+        }
+        return workers;
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    private static <T> List<List<T>> partition(List<T> items, int size) {
+        List<List<T>> partitions = new ArrayList<>((items.size() + size - 1) / size);
+        for (int i = 0; i < items.size(); i += size) {
+            partitions.add(items.subList(i, Math.min(items.size(), i + size)));
+        }
+        return partitions;
+    }
+
+    // ==================== 工资计算 (单个工人与批量共用) ====================
+
+    /**
+     * 按工序在已按优先级排序的有效规则中选取计件规则:
+     * 优先匹配工序, 否则取工厂最高优先级规则
+     */
+    public static PieceRateRule resolveRule(List<PieceRateRule> effectiveRules, String processStageType) {
+        if (effectiveRules == null || effectiveRules.isEmpty()) {
+            return null;
+        }
+        if (processStageType != null) {
+            for (PieceRateRule rule : effectiveRules) {
+                if (processStageType.equals(rule.getProcessStageType())) {
+                    return rule;
+                }
+            }
+        }
+        return effectiveRules.get(0);
+    }
+
+    /**
+     * 根据周期汇总计算工资记录 (未持久化, totalWage 已计算)
+     *
+     * @param rule 计件规则, 无计件或无规则时为 null
+     * @param baseline 效率评级基准, null 时使用默认 60 件/小时
+     */
+    public static PayrollRecord computePayroll(String factoryId, User worker, WorkerPeriodAggregate aggregate,
+            PieceRateRule rule, BigDecimal baseline, LocalDate periodStart, LocalDate periodEnd) {
+        int totalPieceCount = aggregate.getTotalPieceCount();
+
+        // 计件工资
+        BigDecimal pieceRateWage = BigDecimal.ZERO;
+        Long pieceRuleId = null;
+        if (totalPieceCount > 0 && rule != null) {
+            pieceRateWage = rule.calculateWage(totalPieceCount);
+            pieceRuleId = rule.getId();
+        }
+
+        // 基本工资按天数比例计算
+        BigDecimal baseSalary = worker.getMonthlySalary();
+        if (baseSalary != null) {
+            long totalDays = periodEnd.toEpochDay() - periodStart.toEpochDay() + 1;
+            long daysInMonth = periodStart.lengthOfMonth();
+            baseSalary = baseSalary.multiply(BigDecimal.valueOf(totalDays))
+                    .divide(BigDecimal.valueOf(daysInMonth), 2, RoundingMode.HALF_UP);
+        } else {
+            baseSalary = BigDecimal.ZERO;
+        }
+
+        // 总工作时长和加班时长
+        long totalWorkMinutes = aggregate.getTotalWorkMinutes();
+        BigDecimal totalWorkHours = BigDecimal.valueOf(totalWorkMinutes)
+                .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        BigDecimal standardHours = WageCalculationService.STANDARD_WORK_HOURS_PER_DAY.multiply(BigDecimal.valueOf(aggregate.getRecordCount()));
+
+        BigDecimal overtimeHours = BigDecimal.ZERO;
+        BigDecimal overtimeWage = BigDecimal.ZERO;
+        if (totalWorkHours.compareTo(standardHours) > 0) {
+            overtimeHours = totalWorkHours.subtract(standardHours);
+            BigDecimal hourlyRate = worker.getHourlyRate();
+            if (hourlyRate != null) {
+                overtimeWage = hourlyRate.multiply(overtimeHours)
+                        .multiply(WageCalculationService.OVERTIME_RATE_MULTIPLIER)
+                        .setScale(2, RoundingMode.HALF_UP);
+            }
+        }
+
+        BigDecimal averageEfficiency = aggregate.averageEfficiency();
+
+        PayrollRecord payroll = PayrollRecord.builder()
+                .factoryId(factoryId)
+                .workerId(worker.getId())
+                .workerName(worker.getFullName())
+                .periodStart(periodStart)
+                .periodEnd(periodEnd)
+                .periodType(determinePeriodType(periodStart, periodEnd))
+                .totalPieceCount(totalPieceCount)
+                .pieceRateWage(pieceRateWage)
+                .pieceRuleId(pieceRuleId)
+                .baseSalary(baseSalary)
+                .overtimeWage(overtimeWage)
+                .overtimeHours(overtimeHours)
+                .bonusAmount(BigDecimal.ZERO)
+                .deductionAmount(BigDecimal.ZERO)
+                .averageEfficiency(averageEfficiency)
+                .totalWorkHours(totalWorkHours)
+                .efficiencyRating(determineEfficiencyRating(averageEfficiency, baseline))
+                .status(WageCalculationService.PAYROLL_STATUS_PENDING)
+                .build();
+        payroll.calculateTotalWage();
+        return payroll;
+    }
+
+    /**
+     * 确定效率评级 (相对工厂基准的百分比)
+     */
+    public static String determineEfficiencyRating(BigDecimal efficiency, BigDecimal baseline) {
+        if (baseline == null || baseline.signum() <= 0) {
+            baseline = DEFAULT_EFFICIENCY_BASELINE;
+        }
+        BigDecimal relativePercent = efficiency.divide(baseline, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100));
+
+        if (relativePercent.compareTo(BigDecimal.valueOf(120)) >= 0) {
+            return "A"; // 优秀
+        } else if (relativePercent.compareTo(BigDecimal.valueOf(100)) >= 0) {
+            return "B"; // 良好
+        } else if (relativePercent.compareTo(BigDecimal.valueOf(80)) >= 0) {
+            return "C"; // 合格
+        } else {
+            return "D"; // 待提升
+        }
+    }
+
+    /**
+     * 确定周期类型
+     */
+    public static String determinePeriodType(LocalDate periodStart, LocalDate periodEnd) {
+        long days = periodEnd.toEpochDay() - periodStart.toEpochDay() + 1;
+
+        if (days == 1) {
+            return WageCalculationService.PERIOD_TYPE_DAILY;
+        } else if (days <= 7) {
+            return WageCalculationService.PERIOD_TYPE_WEEKLY;
+        } else {
+            return WageCalculationService.PERIOD_TYPE_MONTHLY;
+        }
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 单个工人在周期内的效率汇总
+     */
+    @Data
+    public static class WorkerPeriodAggregate {
+        /** 效率记录数 (按工人-日期-工序计), 用于标准工时 */
+        private long recordCount;
+        private int totalPieceCount;
+        private long totalWorkMinutes;
+        /** 工序 -> 记录数 */
+        private final Map<String, Long> stageCounts = new TreeMap<>();
+
+        public void add(String processStageType, long records, long pieces, long minutes) {
+            recordCount += records;
+            totalPieceCount += (int) pieces;
+            totalWorkMinutes += minutes;
+            if (processStageType != null) {
+                stageCounts.merge(processStageType, records, Long::sum);
+            }
+        }
+
+        /**
+         * 由逐日效率记录构建汇总 (单个工人生成工资单时使用)
+         */
+        public static WorkerPeriodAggregate of(List<WorkerDailyEfficiency> efficiencies) {
+            WorkerPeriodAggregate aggregate = new WorkerPeriodAggregate();
+            for (WorkerDailyEfficiency e : efficiencies) {
+                aggregate.add(e.getProcessStageType(), 1,
+                        e.getTotalPieceCount() != null ? e.getTotalPieceCount() : 0,
+                        e.getEffectiveWorkMinutes() != null ? e.getEffectiveWorkMinutes() : 0);
+            }
+            return aggregate;
+        }
+
+        /**
+         * 主要工序 (记录数最多的工序, 并列时取编码最小者)
+         */
+        public String mainProcessStage() {
+            String main = null;
+            long best = -1;
+            for (Map.Entry<String, Long> entry : stageCounts.entrySet()) {
+                if (entry.getValue() > best) {
+                    best = entry.getValue();
+                    main = entry.getKey();
+                }
+            }
+            return main;
+        }
+
+        /**
+         * 平均效率 (件/小时)
+         */
+        public BigDecimal averageEfficiency() {
+            if (totalWorkMinutes <= 0) {
+                return BigDecimal.ZERO;
+            }
+            return BigDecimal.valueOf(totalPieceCount * 60.0 / totalWorkMinutes)
+                    .setScale(2, RoundingMode.HALF_UP);
+        }
+    }
+
+    /**
+     * 批次执行结果
+     */
+    @Data
+    public static class BatchResult {
+        private String factoryId;
+        private LocalDate periodStart;
+        private LocalDate periodEnd;
+        private int totalWorkers;
+        /** 断点前已生成而跳过的工人数 */
+        private int skippedWorkers;
+        private int generated;
+        /** 本次生成工资单的工人ID */
+        @JsonIgnore
+        private List<Long> generatedWorkerIds = Collections.emptyList();
+        /** 用户表中不存在的工人数 */
+        private int missingWorkers;
+        private int partitions;
+        private int failedPartitions;
+        private long loadMs;
+        private long elapsedMs;
+
+        public boolean isComplete() {
+            return failedPartitions == 0;
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.get());
+        stats.put("recordsWritten", recordsWritten.get());
+        stats.put("failedPartitions", failedPartitions.get());
+        stats.put("runningJobs", new ArrayList<>(runningJobs));
+        stats.put("partitionSize", partitionSize);
+        stats.put("lastResult", lastResult);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,287 @@
+package com.cretas.aims.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 人员与工时聚合查询
+ *
+ * 移动端人员统计、工时排行和首页计数直接在数据库端聚合, 应用只接收聚合结果:
+ * - 人员统计: 一条语句返回总人数/部门数/出勤人数/总工时
+ * - 工时排行: 按工人 GROUP BY 后用 ROW_NUMBER() 窗口函数取前 N 名;
+ *   数据库不支持窗口函数时退化为流式读取分组结果, 用容量为 N 的小顶堆选出前 N 名
+ * - 首页计数: 标量子查询一次取回今日产量、批次数、工人数、设备数
+ *
+ * 结果按工厂缓存 (短 TTL), 同一 key 并发未命中时只有一个线程查询数据库。
+ * 排行按 ranking-cache-depth 深度缓存, 不同 limit 的请求共用同一份结果。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+@Slf4j
+@Service
+public class PersonnelAggregateService {
+
+    /** 标准日工时 (分钟), 超出部分计为加班, 与 TimeClockRecord#calculateWorkDuration 一致 */
+    static final int STANDARD_WORK_MINUTES = 8 * 60;
+
+    private static final String ACTIVE_USER =
+            "u.factory_id = t.factory_id AND u.deleted_at IS NULL";
+
+    private static final String CLOCK_RANGE =
+            "t.factory_id = ? AND t.deleted_at IS NULL AND t.clock_in_time >= ? AND t.clock_in_time < ?";
+
+    private static final String SUMMARY_SQL = "SELECT " +
+            "(SELECT COUNT(*) FROM users u WHERE u.factory_id = ? AND u.deleted_at IS NULL) AS total_employees, " +
+            "(SELECT COUNT(DISTINCT u.department) FROM users u WHERE u.factory_id = ? AND u.deleted_at IS NULL " +
+            "  AND u.department IS NOT NULL AND u.department <> '') AS active_departments, " +
+            "COUNT(DISTINCT t.user_id) AS present_employees, " +
+            "COALESCE(SUM(t.work_duration), 0) AS work_minutes " +
+            "FROM time_clock_records t JOIN users u ON u.id = t.user_id AND " + ACTIVE_USER + " " +
+            "WHERE " + CLOCK_RANGE;
+
+    /** 按工人分组的工时 (仅在职工人) */
+    private static final String GROUPED_WORK_HOURS_SQL = "SELECT t.user_id, " +
+            "COALESCE(SUM(t.work_duration), 0) AS work_minutes, " +
+            "SUM(CASE WHEN t.work_duration > " + STANDARD_WORK_MINUTES + " THEN t.work_duration - " +
+            STANDARD_WORK_MINUTES + " ELSE 0 END) AS overtime_minutes, " +
+            "COUNT(*) AS attendance_days " +
+            "FROM time_clock_records t JOIN users u ON u.id = t.user_id AND " + ACTIVE_USER + " AND u.is_active = TRUE " +
+            "WHERE " + CLOCK_RANGE + " GROUP BY t.user_id";
+
+    private static final String RANKING_WINDOW_SQL = "SELECT r.user_id, u.full_name, u.username, u.department, " +
+            "r.work_minutes, r.overtime_minutes, r.attendance_days FROM (" +
+            "SELECT g.*, ROW_NUMBER() OVER (ORDER BY g.work_minutes DESC, g.user_id) AS rn " +
+            "FROM (" + GROUPED_WORK_HOURS_SQL + ") g) r " +
+            "JOIN users u ON u.id = r.user_id WHERE r.rn <= ? ORDER BY r.rn";
+
+    private static final String RANKING_GROUPED_SQL = "SELECT g.user_id, u.full_name, u.username, u.department, " +
+            "g.work_minutes, g.overtime_minutes, g.attendance_days " +
+            "FROM (" + GROUPED_WORK_HOURS_SQL + ") g JOIN users u ON u.id = g.user_id";
+
+    private static final String DASHBOARD_SQL = "SELECT " +
+            "(SELECT COALESCE(SUM(b.quantity), 0) FROM production_batches b WHERE b.factory_id = ? " +
+            "  AND b.deleted_at IS NULL AND b.status = 'COMPLETED' AND b.created_at BETWEEN ? AND ?) AS today_output, " +
+            "(SELECT COUNT(*) FROM production_batches b WHERE b.factory_id = ? AND b.deleted_at IS NULL) AS total_batches, " +
+            "(SELECT COUNT(*) FROM users u WHERE u.factory_id = ? AND u.deleted_at IS NULL) AS total_workers, " +
+            "(SELECT COUNT(*) FROM factory_equipment e WHERE e.factory_id = ? AND e.deleted_at IS NULL " +
+            "  AND e.status = 'RUNNING') AS active_equipment, " +
+            "(SELECT COUNT(*) FROM factory_equipment e WHERE e.factory_id = ? AND e.deleted_at IS NULL) AS total_equipment";
+
+    /** 排行顺序: 工时降序, 相同工时按用户ID升序 */
+    static final Comparator<WorkHoursAggregate> RANKING_ORDER =
+            Comparator.comparingLong(WorkHoursAggregate::getWorkMinutes).reversed()
+                    .thenComparing(WorkHoursAggregate::getUserId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int rankingCacheDepth;
+    private final Cache<String, Object> cache;
+
+    /** 数据库不支持窗口函数时置为 false, 之后直接走堆选择 */
+    private volatile boolean windowFunctionSupported = true;
+
+    private final AtomicLong queries = new AtomicLong();
+
+    public PersonnelAggregateService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${cretas.personnel.aggregate.cache-ttl-seconds:30}") long cacheTtlSeconds,
+            @Value("${cretas.personnel.aggregate.cache-max-entries:5000}") long cacheMaxEntries,
+            @Value("${cretas.personnel.aggregate.ranking-cache-depth:100}") int rankingCacheDepth) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rankingCacheDepth = Math.max(1, rankingCacheDepth);
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, cacheTtlSeconds)))
+                .maximumSize(Math.max(1, cacheMaxEntries))
+                .build();
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 人员统计聚合 (打卡时间 [start, end))
+     */
+    public PersonnelSummary getPersonnelSummary(String factoryId, LocalDateTime start, LocalDateTime end) {
+        String key = key(factoryId, "summary", start, end);
+        return cached(key, () -> {
+            queries.incrementAndGet();
+            return jdbcTemplate.queryForObject(SUMMARY_SQL, (rs, i) -> new PersonnelSummary(
+                    rs.getInt("total_employees"),
+                    rs.getInt("active_departments"),
+                    rs.getInt("present_employees"),
+                    rs.getLong("work_minutes")),
+                    factoryId, factoryId, factoryId, Timestamp.valueOf(start), Timestamp.valueOf(end));
+        });
+    }
+
+    /**
+     * 工时排行前 limit 名 (打卡时间 [start, end), 仅在职且有打卡记录的工人)
+     */
+    public List<WorkHoursAggregate> getWorkHoursTop(String factoryId, LocalDateTime start, LocalDateTime end, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        int depth = Math.max(limit, rankingCacheDepth);
+        String key = key(factoryId, "ranking:" + depth, start, end);
+        List<WorkHoursAggregate> top = cached(key, () -> queryTop(factoryId, start, end, depth));
+        return new ArrayList<>(top.subList(0, Math.min(limit, top.size())));
+    }
+
+    /**
+     * 首页计数 (今日产量按批次创建时间 [dayStart, dayEnd] 统计已完成批次)
+     */
+    public DashboardCounts getDashboardCounts(String factoryId, LocalDate day) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+        String key = key(factoryId, "dashboard", dayStart, dayEnd);
+        return cached(key, () -> {
+            queries.incrementAndGet();
+            return jdbcTemplate.queryForObject(DASHBOARD_SQL, (rs, i) -> {
+                BigDecimal output = rs.getBigDecimal("today_output");
+                return new DashboardCounts(
+                        output != null ? output.doubleValue() : 0.0,
+                        rs.getInt("total_batches"),
+                        rs.getInt("total_workers"),
+                        rs.getInt("active_equipment"),
+                        rs.getInt("total_equipment"));
+            }, factoryId, Timestamp.valueOf(dayStart), Timestamp.valueOf(dayEnd),
+                    factoryId, factoryId, factoryId, factoryId);
+        });
+    }
+
+    /**
+     * 作废工厂的全部缓存结果 (批量导入/修正打卡后调用, 否则等待 TTL 过期)
+     */
+    public void invalidate(String factoryId) {
+        String prefix = factoryId + "|";
+        cache.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    /** 已执行的数据库聚合查询次数 (不含缓存命中) */
+    public long getQueryCount() {
+        return queries.get();
+    }
+
+    // ==================== 排行 ====================
+
+    List<WorkHoursAggregate> queryTop(String factoryId, LocalDateTime start, LocalDateTime end, int k) {
+        if (windowFunctionSupported) {
+            try {
+                queries.incrementAndGet();
+                return jdbcTemplate.query(RANKING_WINDOW_SQL, (rs, i) -> mapAggregate(rs),
+                        factoryId, Timestamp.valueOf(start), Timestamp.valueOf(end), k);
+            } catch (BadSqlGrammarException e) {
+                windowFunctionSupported = false;
+                log.warn("数据库不支持窗口函数, 工时排行改为分组结果堆选择: {}", e.getMessage());
+            }
+        }
+        return queryTopByHeap(factoryId, start, end, k);
+    }
+
+    /**
+     * 流式读取分组结果, 小顶堆只保留当前前 k 名, 内存占用与工人总数无关
+     */
+    List<WorkHoursAggregate> queryTopByHeap(String factoryId, LocalDateTime start, LocalDateTime end, int k) {
+        queries.incrementAndGet();
+        PriorityQueue<WorkHoursAggregate> heap = new PriorityQueue<>(k + 1, RANKING_ORDER.reversed());
+        jdbcTemplate.query(RANKING_GROUPED_SQL, rs -> {
+            WorkHoursAggregate row = mapAggregate(rs);
+            if (heap.size() < k) {
+                heap.add(row);
+            } else if (RANKING_ORDER.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }, factoryId, Timestamp.valueOf(start), Timestamp.valueOf(end));
+        List<WorkHoursAggregate> top = new ArrayList<>(heap);
+        top.sort(RANKING_ORDER);
+        return top;
+    }
+
+    private static WorkHoursAggregate mapAggregate(ResultSet rs) throws SQLException {
+        return new WorkHoursAggregate(
+                rs.getLong("user_id"),
+                rs.getString("full_name"),
+                rs.getString("username"),
+                rs.getString("department"),
+                rs.getLong("work_minutes"),
+                rs.getLong("overtime_minutes"),
+                rs.getInt("attendance_days"));
+    }
+
+    // ==================== 缓存 ====================
+
+    private static String key(String factoryId, String kind, LocalDateTime start, LocalDateTime end) {
+        return factoryId + "|" + kind + "|" + start + "|" + end;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> loader) {
+        return (T) cache.get(key, k -> loader.get());
+    }
+
+    // ==================== 结果 ====================
+
+    /**
+     * 人员统计聚合
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PersonnelSummary {
+        private final int totalEmployees;
+        private final int activeDepartments;
+        /** 范围内有打卡记录的人数 */
+        private final int presentEmployees;
+        private final long totalWorkMinutes;
+    }
+
+    /**
+     * 单个工人的工时聚合
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class WorkHoursAggregate {
+        private final long userId;
+        private final String fullName;
+        private final String username;
+        private final String department;
+        private final long workMinutes;
+        private final long overtimeMinutes;
+        /** 打卡记录条数 */
+        private final int attendanceDays;
+    }
+
+    /**
+     * 首页计数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class DashboardCounts {
+        private final double todayOutputKg;
+        private final int totalBatches;
+        private final int totalWorkers;
+        private final int activeEquipment;
+        private final int totalEquipment;
+    }
+}
@@ -99,6 +99,23 @@ public class RequestScopedEmbeddingCache {
         return results;
     }
 
+    /**
+     * 写入已在其他线程计算好的 embedding (并行意图层把结果带回请求线程)
+     */
+    public void put(String text, float[] embedding) {
+        if (text == null || embedding == null || embedding.length == 0) {
+            return;
+        }
+        requestCache.get().putIfAbsent(normalizeKey(text), embedding);
+    }
+
+    /**
+     * 当前线程缓存内容的副本, key 为归一化后的文本
+     */
+    public Map<String, float[]> snapshot() {
+        return new HashMap<>(requestCache.get());
+    }
+
     /**
      * 清理当前请求的缓存
      * 建议在请求结束时调用（如 Filter 或 Interceptor）
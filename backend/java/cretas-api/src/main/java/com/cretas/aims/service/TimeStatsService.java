@@ -91,4 +91,8 @@ public interface TimeStatsService {
      * 重新计算统计
       */
     void recalculateStats(String factoryId, LocalDate date);
+     /**
+     * 重建日期范围内的考勤汇总（上线回填或人工修复），返回重建天数
+      */
+    int rebuildRollups(String factoryId, LocalDate startDate, LocalDate endDate);
 }
@@ -49,6 +49,7 @@ public class WageCalculationService {
     private final PayrollRecordRepository payrollRecordRepository;
     private final WorkerDailyEfficiencyRepository workerDailyEfficiencyRepository;
     private final UserRepository userRepository;
+    private final PayrollBatchEngine payrollBatchEngine;
 
     // ==================== 常量定义 ====================
 
@@ -74,9 +75,9 @@ public class WageCalculationService {
     public static final String TREND_STABLE = "STABLE";
 
     /** 标准工时 (小时/天) */
-    private static final BigDecimal STANDARD_WORK_HOURS_PER_DAY = new BigDecimal("8");
+    static final BigDecimal STANDARD_WORK_HOURS_PER_DAY = new BigDecimal("8");
     /** 加班工资倍率 */
-    private static final BigDecimal OVERTIME_RATE_MULTIPLIER = new BigDecimal("1.5");
+    static final BigDecimal OVERTIME_RATE_MULTIPLIER = new BigDecimal("1.5");
     /** 周末加班倍率 */
     private static final BigDecimal WEEKEND_OVERTIME_MULTIPLIER = new BigDecimal("2.0");
 
@@ -353,105 +354,20 @@ public class WageCalculationService {
         // 2. 汇总周期内的所有日效率记录
         List<WorkerDailyEfficiency> efficiencies = workerDailyEfficiencyRepository
                 .findByWorkerAndDateRange(factoryId, workerId, periodStart, periodEnd);
+        PayrollBatchEngine.WorkerPeriodAggregate aggregate = PayrollBatchEngine.WorkerPeriodAggregate.of(efficiencies);
 
-        // 3. 计算总计件数
-        int totalPieceCount = efficiencies.stream()
-                .mapToInt(e -> e.getTotalPieceCount() != null ? e.getTotalPieceCount() : 0)
-                .sum();
-
-        // 4. 计算计件工资 (使用周期内最后一天的规则)
-        BigDecimal pieceRateWage = BigDecimal.ZERO;
-        Long pieceRuleId = null;
-
-        if (totalPieceCount > 0) {
-            // 获取主要工序类型 (出现次数最多的工序)
-            String mainProcessStage = efficiencies.stream()
-                    .filter(e -> e.getProcessStageType() != null)
-                    .collect(Collectors.groupingBy(WorkerDailyEfficiency::getProcessStageType, Collectors.counting()))
-                    .entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse(null);
-
-            Optional<PieceRateRule> ruleOpt = findApplicableRule(factoryId, mainProcessStage, null, periodEnd);
-            if (ruleOpt.isPresent()) {
-                PieceRateRule rule = ruleOpt.get();
-                pieceRateWage = rule.calculateWage(totalPieceCount);
-                pieceRuleId = rule.getId();
-            }
-        }
-
-        // 5. 获取基本工资
-        BigDecimal baseSalary = worker.getMonthlySalary();
-        if (baseSalary != null) {
-            // 按天数比例计算
-            long totalDays = periodEnd.toEpochDay() - periodStart.toEpochDay() + 1;
-            long daysInMonth = periodStart.lengthOfMonth();
-            baseSalary = baseSalary.multiply(BigDecimal.valueOf(totalDays))
-                    .divide(BigDecimal.valueOf(daysInMonth), 2, RoundingMode.HALF_UP);
-        } else {
-            baseSalary = BigDecimal.ZERO;
-        }
-
-        // 6. 计算总工作时长和加班时长
-        int totalWorkMinutes = efficiencies.stream()
-                .mapToInt(e -> e.getEffectiveWorkMinutes() != null ? e.getEffectiveWorkMinutes() : 0)
-                .sum();
-        BigDecimal totalWorkHours = BigDecimal.valueOf(totalWorkMinutes)
-                .divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
-
-        // 计算标准工时 (工作天数 * 8小时)
-        int workDays = efficiencies.size();
-        BigDecimal standardHours = STANDARD_WORK_HOURS_PER_DAY.multiply(BigDecimal.valueOf(workDays));
-
-        // 加班时长
-        BigDecimal overtimeHours = BigDecimal.ZERO;
-        BigDecimal overtimeWage = BigDecimal.ZERO;
-        if (totalWorkHours.compareTo(standardHours) > 0) {
-            overtimeHours = totalWorkHours.subtract(standardHours);
-            // 计算加班工资 (使用小时工资 * 1.5)
-            BigDecimal hourlyRate = worker.getHourlyRate();
-            if (hourlyRate != null) {
-                overtimeWage = hourlyRate.multiply(overtimeHours)
-                        .multiply(OVERTIME_RATE_MULTIPLIER)
-                        .setScale(2, RoundingMode.HALF_UP);
-            }
+        // 3. 计件规则 (主要工序, 使用周期内最后一天的规则)
+        PieceRateRule rule = null;
+        if (aggregate.getTotalPieceCount() > 0) {
+            rule = findApplicableRule(factoryId, aggregate.mainProcessStage(), null, periodEnd).orElse(null);
         }
 
-        // 7. 计算平均效率
-        BigDecimal averageEfficiency = BigDecimal.ZERO;
-        if (totalWorkMinutes > 0) {
-            averageEfficiency = BigDecimal.valueOf(totalPieceCount * 60.0 / totalWorkMinutes)
-                    .setScale(2, RoundingMode.HALF_UP);
-        }
+        // 4. 效率评级基准: 工厂本周期平均效率
+        BigDecimal baseline = payrollRecordRepository.avgEfficiencyByPeriod(factoryId, periodStart, periodEnd);
 
-        // 8. 确定效率评级
-        String efficiencyRating = determineEfficiencyRating(averageEfficiency, factoryId, periodStart, periodEnd);
-
-        // 9. 确定周期类型
-        String periodType = determinePeriodType(periodStart, periodEnd);
-
-        // 10. 创建工资记录
-        PayrollRecord payroll = PayrollRecord.builder()
-                .factoryId(factoryId)
-                .workerId(workerId)
-                .workerName(worker.getFullName())
-                .periodStart(periodStart)
-                .periodEnd(periodEnd)
-                .periodType(periodType)
-                .totalPieceCount(totalPieceCount)
-                .pieceRateWage(pieceRateWage)
-                .pieceRuleId(pieceRuleId)
-                .baseSalary(baseSalary)
-                .overtimeWage(overtimeWage)
-                .overtimeHours(overtimeHours)
-                .bonusAmount(BigDecimal.ZERO)
-                .deductionAmount(BigDecimal.ZERO)
-                .averageEfficiency(averageEfficiency)
-                .totalWorkHours(totalWorkHours)
-                .efficiencyRating(efficiencyRating)
-                .status(PAYROLL_STATUS_PENDING)
-                .build();
+        // 5. 计算工资记录 (与批量生成共用同一计算逻辑)
+        PayrollRecord payroll = PayrollBatchEngine.computePayroll(
+                factoryId, worker, aggregate, rule, baseline, periodStart, periodEnd);
 
         // totalWage 会在 @PrePersist 中自动计算
         payroll = payrollRecordRepository.save(payroll);
@@ -465,92 +381,29 @@ public class WageCalculationService {
     /**
      * 批量生成工资单 (按工厂)
      *
+     * 由 {@link PayrollBatchEngine} 集合加载并分区并行批量写入, 每个分区独立提交;
+     * 已存在工资记录的工人自动跳过, 中断后重新调用即可从断点继续。
+     *
      * @param factoryId 工厂ID
      * @param periodStart 周期开始
      * @param periodEnd 周期结束
-     * @return 工资记录列表
+     * @return 本次新生成的工资记录列表
      */
-    @Transactional
     public List<PayrollRecord> generateFactoryPayroll(String factoryId,
             LocalDate periodStart, LocalDate periodEnd) {
 
         log.info("批量生成工资单: factoryId={}, period={} to {}", factoryId, periodStart, periodEnd);
 
-        // 获取有效率记录的所有工人
-        List<WorkerDailyEfficiency> allEfficiencies = workerDailyEfficiencyRepository
-                .findByDateRange(factoryId, periodStart, periodEnd);
-
-        Set<Long> workerIds = allEfficiencies.stream()
-                .map(WorkerDailyEfficiency::getWorkerId)
-                .collect(Collectors.toSet());
-
-        List<PayrollRecord> payrolls = new ArrayList<>();
-        int successCount = 0;
-        int skipCount = 0;
-
-        for (Long workerId : workerIds) {
-            try {
-                // 检查是否已存在
-                if (payrollRecordRepository.existsByFactoryIdAndWorkerIdAndPeriodStartAndPeriodEnd(
-                        factoryId, workerId, periodStart, periodEnd)) {
-                    log.debug("工资记录已存在，跳过: workerId={}", workerId);
-                    skipCount++;
-                    continue;
-                }
-
-                PayrollRecord payroll = generatePayroll(factoryId, workerId, periodStart, periodEnd);
-                payrolls.add(payroll);
-                successCount++;
-            } catch (Exception e) {
-                log.error("生成工资单失败: workerId={}, error={}", workerId, e.getMessage());
-            }
+        PayrollBatchEngine.BatchResult result = payrollBatchEngine.run(factoryId, periodStart, periodEnd);
+        if (result.getGeneratedWorkerIds().isEmpty()) {
+            return new ArrayList<>();
         }
 
-        log.info("批量生成工资单完成: 成功={}, 跳过={}, 总计={}", successCount, skipCount, workerIds.size());
-
-        return payrolls;
-    }
-
-    /**
-     * 确定效率评级
-     */
-    private String determineEfficiencyRating(BigDecimal efficiency, String factoryId,
-            LocalDate periodStart, LocalDate periodEnd) {
-
-        // 获取工厂平均效率作为基准
-        BigDecimal avgEfficiency = payrollRecordRepository
-                .avgEfficiencyByPeriod(factoryId, periodStart, periodEnd);
-
-        BigDecimal baseline = avgEfficiency != null ? avgEfficiency : new BigDecimal("60");
-
-        // 计算相对效率百分比
-        BigDecimal relativePercent = efficiency.divide(baseline, 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
-
-        if (relativePercent.compareTo(BigDecimal.valueOf(120)) >= 0) {
-            return "A"; // 优秀
-        } else if (relativePercent.compareTo(BigDecimal.valueOf(100)) >= 0) {
-            return "B"; // 良好
-        } else if (relativePercent.compareTo(BigDecimal.valueOf(80)) >= 0) {
-            return "C"; // 合格
-        } else {
-            return "D"; // 待提升
-        }
-    }
-
-    /**
-     * 确定周期类型
-     */
-    private String determinePeriodType(LocalDate periodStart, LocalDate periodEnd) {
-        long days = periodEnd.toEpochDay() - periodStart.toEpochDay() + 1;
-
-        if (days == 1) {
-            return PERIOD_TYPE_DAILY;
-        } else if (days <= 7) {
-            return PERIOD_TYPE_WEEKLY;
-        } else {
-            return PERIOD_TYPE_MONTHLY;
-        }
+        // 返回本次写入的记录 (带数据库ID)
+        Set<Long> generated = new HashSet<>(result.getGeneratedWorkerIds());
+        return payrollRecordRepository.findByPeriod(factoryId, periodStart, periodEnd).stream()
+                .filter(p -> generated.contains(p.getWorkerId()))
+                .collect(Collectors.toList());
     }
 
     // ==================== 效率排名和趋势 ====================
@@ -0,0 +1,110 @@
+package com.cretas.aims.service.anomaly;
+
+import com.cretas.aims.entity.AlertThreshold;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 流式异常检测规则
+ *
+ * 比较方式 (与 {@link AlertThreshold#getComparison()} 一致, 并扩展自适应规则):
+ * - LESS_THAN / GREATER_THAN: 静态阈值, 比较最近 smoothing 个读数的均值
+ * - DEVIATION_BELOW / DEVIATION_ABOVE: 相对 EWMA 基线偏差超过 deviationPercent%
+ * - ZSCORE: 自适应 z 分数, |x - EWMA| / EWM标准差 超过 threshold (默认 3)
+ * - QUANTILE_ABOVE / QUANTILE_BELOW: 超出滑动窗口分位数 threshold (如 0.99 / 0.01)
+ *
+ * 自适应规则 (偏差/z分数/分位数) 在指标流积累到预热样本数之前不触发。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+@Getter
+@Builder
+@ToString
+public class AnomalyRule {
+
+    public static final String LESS_THAN = "LESS_THAN";
+    public static final String GREATER_THAN = "GREATER_THAN";
+    public static final String DEVIATION_BELOW = "DEVIATION_BELOW";
+    public static final String DEVIATION_ABOVE = "DEVIATION_ABOVE";
+    public static final String ZSCORE = "ZSCORE";
+    public static final String QUANTILE_ABOVE = "QUANTILE_ABOVE";
+    public static final String QUANTILE_BELOW = "QUANTILE_BELOW";
+
+    /** 默认 z 分数上限 */
+    public static final double DEFAULT_ZSCORE_LIMIT = 3.0;
+
+    /**
+     * 规则标识, 同一指标流内用于去重 (阈值规则为 threshold-{id})
+     */
+    private final String ruleKey;
+
+    private final String metricName;
+
+    /**
+     * 告警类型: YIELD_DROP, COST_SPIKE, OEE_LOW, QUALITY_FAIL, SENSOR_ANOMALY ...
+     */
+    private final String alertType;
+
+    /**
+     * 告警级别: CRITICAL, WARNING, INFO
+     */
+    private final String level;
+
+    private final String comparison;
+
+    /**
+     * 静态阈值 / z 分数上限 / 分位点
+     */
+    private final Double threshold;
+
+    /**
+     * 偏差百分比 (DEVIATION_* 使用)
+     */
+    private final Double deviationPercent;
+
+    /**
+     * 静态阈值比较前对最近几个读数取均值 (生产批次沿用轮询检测的 3 个批次)
+     */
+    @Builder.Default
+    private final int smoothing = 1;
+
+    /**
+     * 由告警阈值配置构建规则
+     */
+    public static AnomalyRule fromThreshold(AlertThreshold threshold, int smoothing) {
+        return AnomalyRule.builder()
+                .ruleKey("threshold-" + threshold.getId())
+                .metricName(threshold.getMetricName())
+                .alertType(threshold.getAlertType())
+                .level(threshold.getLevel())
+                .comparison(threshold.getComparison())
+                .threshold(threshold.getStaticThreshold())
+                .deviationPercent(threshold.getDeviationPercent())
+                .smoothing(smoothing)
+                .build();
+    }
+
+    /**
+     * 自适应 z 分数规则 (IoT 读数的默认规则)
+     */
+    public static AnomalyRule adaptiveZScore(String metricName, String alertType, String level, double limit) {
+        return AnomalyRule.builder()
+                .ruleKey("zscore-" + metricName)
+                .metricName(metricName)
+                .alertType(alertType)
+                .level(level)
+                .comparison(ZSCORE)
+                .threshold(limit)
+                .build();
+    }
+
+    /**
+     * 是否依赖历史基线 (预热完成前不触发)
+     */
+    public boolean isAdaptive() {
+        return !LESS_THAN.equals(comparison) && !GREATER_THAN.equals(comparison);
+    }
+}
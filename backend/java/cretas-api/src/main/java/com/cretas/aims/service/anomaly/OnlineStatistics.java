@@ -0,0 +1,101 @@
+package com.cretas.aims.service.anomaly;
+
+/**
+ * 单指标在线统计量 (O(1) 内存)
+ *
+ * - Welford 算法: 全量均值/方差, 数值稳定, 单次更新 O(1)
+ * - EWMA: 指数加权均值/方差, 作为随时间漂移的自适应基线
+ *
+ * 非线程安全, 由调用方按指标流加锁。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+public final class OnlineStatistics {
+
+    private final double alpha;
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    private double ewma;
+    private double ewmVariance;
+
+    /**
+     * @param alpha EWMA 平滑系数 (0, 1], 越大越偏重最新读数
+     */
+    public OnlineStatistics(double alpha) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("EWMA alpha 必须在 (0, 1] 之间: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (count == 1) {
+            min = value;
+            max = value;
+            ewma = value;
+            ewmVariance = 0;
+            return;
+        }
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        double diff = value - ewma;
+        double increment = alpha * diff;
+        ewma += increment;
+        ewmVariance = (1 - alpha) * (ewmVariance + diff * increment);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * 样本方差 (n-1)
+     */
+    public double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0.0;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getEwma() {
+        return ewma;
+    }
+
+    public double getEwmStdDev() {
+        return Math.sqrt(ewmVariance);
+    }
+
+    /**
+     * 相对 EWMA 基线的 z 分数, 标准差为 0 时返回 0 (无法判断)
+     */
+    public double zScore(double value) {
+        double std = getEwmStdDev();
+        return std > 0 ? (value - ewma) / std : 0.0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.cretas.aims.service.anomaly;
+
+import java.util.Arrays;
+
+/**
+ * 固定容量的滑动窗口分位数
+ *
+ * 环形缓冲区保存最近 N 个读数的到达顺序, 另维护一份有序副本:
+ * 更新为二分查找 + 数组移动 O(N), 分位数查询 O(1), 内存固定为 2N 个 double。
+ * 窗口 (默认 128) 远小于读数总量, 每条指标流的内存不随运行时间增长。
+ *
+ * 非线程安全, 由调用方按指标流加锁。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+public final class SlidingQuantileWindow {
+
+    private final double[] ring;
+    private final double[] sorted;
+    private int head;
+    private int size;
+
+    public SlidingQuantileWindow(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("窗口容量至少为 2: " + capacity);
+        }
+        this.ring = new double[capacity];
+        this.sorted = new double[capacity];
+    }
+
+    public void add(double value) {
+        if (size == ring.length) {
+            double evicted = ring[head];
+            int index = Arrays.binarySearch(sorted, 0, size, evicted);
+            System.arraycopy(sorted, index + 1, sorted, index, size - index - 1);
+            size--;
+            ring[head] = value;
+            head = (head + 1) % ring.length;
+        } else {
+            ring[(head + size) % ring.length] = value;
+        }
+        int insertAt = Arrays.binarySearch(sorted, 0, size, value);
+        if (insertAt < 0) {
+            insertAt = -insertAt - 1;
+        }
+        System.arraycopy(sorted, insertAt, sorted, insertAt + 1, size - insertAt);
+        sorted[insertAt] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * 窗口分位数 (线性插值), 窗口为空时返回 NaN
+     *
+     * @param q 分位点 [0, 1]
+     */
+    public double quantile(double q) {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        double position = Math.max(0, Math.min(1, q)) * (size - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Math.min(lower + 1, size - 1);
+        double fraction = position - lower;
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * fraction;
+    }
+
+    /**
+     * 最近 n 个读数的均值 (包含最新读数)
+     */
+    public double recentMean(int n) {
+        int count = Math.min(Math.max(1, n), size);
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            int index = Math.floorMod(head + size - 1 - i, ring.length);
+            sum += ring[index];
+        }
+        return sum / count;
+    }
+}
@@ -0,0 +1,353 @@
+package com.cretas.aims.service.anomaly;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式异常检测器
+ *
+ * 每条指标流 (工厂 + 数据源 + 指标) 维护 O(1) 内存的在线统计:
+ * Welford 均值/方差、EWMA 基线、固定容量滑动窗口分位数。
+ * 读数到达时先按规则与"到达前"的基线比较, 再并入统计, 异常读数不会掩盖自身。
+ *
+ * 告警抑制:
+ * - 去重: 同一指标流同一规则触发后保持激活, 连续 clearAfter 个正常读数后才重新布防
+ * - 冷却: 同一规则两次触发间隔不少于 cooldownMillis
+ * - 限流: 每个工厂每分钟最多 maxAlertsPerMinute 条
+ *
+ * 所有时间判断使用读数时间戳而非系统时间, 回放历史数据时行为与线上一致。
+ * 线程安全: 不同指标流并行处理, 同一指标流内串行。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+public class StreamingAnomalyDetector {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private final double ewmaAlpha;
+    private final int windowSize;
+    private final int warmupSamples;
+    private final long cooldownMillis;
+    private final int clearAfter;
+    private final int maxAlertsPerMinute;
+    private final int maxStreams;
+
+    private final ConcurrentHashMap<String, MetricStream> streams = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, FactoryBudget> budgets = new ConcurrentHashMap<>();
+
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicLong signals = new AtomicLong();
+    private final AtomicLong duplicatesSuppressed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong droppedReadings = new AtomicLong();
+
+    public StreamingAnomalyDetector(double ewmaAlpha, int windowSize, int warmupSamples, long cooldownMillis,
+                                    int clearAfter, int maxAlertsPerMinute, int maxStreams) {
+        this.ewmaAlpha = ewmaAlpha;
+        this.windowSize = Math.max(2, windowSize);
+        this.warmupSamples = Math.max(1, warmupSamples);
+        this.cooldownMillis = Math.max(0, cooldownMillis);
+        this.clearAfter = Math.max(1, clearAfter);
+        this.maxAlertsPerMinute = Math.max(1, maxAlertsPerMinute);
+        this.maxStreams = Math.max(1, maxStreams);
+    }
+
+    // ==================== 检测 ====================
+
+    /**
+     * 处理一条读数
+     *
+     * @param reading 读数
+     * @param rules   适用于该指标的规则
+     * @return 本次触发的告警信号 (通常为空)
+     */
+    public List<AnomalySignal> offer(Reading reading, List<AnomalyRule> rules) {
+        readings.incrementAndGet();
+        if (Double.isNaN(reading.getValue()) || Double.isInfinite(reading.getValue())) {
+            droppedReadings.incrementAndGet();
+            return Collections.emptyList();
+        }
+        String key = reading.streamKey();
+        MetricStream stream = streams.get(key);
+        if (stream == null) {
+            if (streams.size() >= maxStreams) {
+                droppedReadings.incrementAndGet();
+                return Collections.emptyList();
+            }
+            stream = streams.computeIfAbsent(key, k -> new MetricStream());
+        }
+
+        List<AnomalySignal> fired = null;
+        synchronized (stream) {
+            stream.lastSeen = reading.getTimestamp();
+            for (AnomalyRule rule : rules) {
+                Evaluation evaluation = evaluate(stream, rule, reading.getValue());
+                RuleState state = stream.ruleStates.computeIfAbsent(rule.getRuleKey(), k -> new RuleState());
+                if (!evaluation.violated) {
+                    if (state.active && ++state.normalStreak >= clearAfter) {
+                        state.active = false;
+                    }
+                    continue;
+                }
+                state.normalStreak = 0;
+                if (state.active || reading.getTimestamp() - state.lastFiredAt < cooldownMillis) {
+                    duplicatesSuppressed.incrementAndGet();
+                    continue;
+                }
+                if (!tryAcquire(reading.getFactoryId(), reading.getTimestamp())) {
+                    rateLimited.incrementAndGet();
+                    continue;
+                }
+                state.active = true;
+                state.lastFiredAt = reading.getTimestamp();
+                if (fired == null) {
+                    fired = new ArrayList<>(1);
+                }
+                fired.add(AnomalySignal.builder()
+                        .reading(reading)
+                        .rule(rule)
+                        .observedValue(evaluation.observed)
+                        .baselineValue(evaluation.baseline)
+                        .thresholdValue(evaluation.threshold)
+                        .deviationPercent(evaluation.deviationPercent)
+                        .zScore(evaluation.zScore)
+                        .sampleCount(stream.statistics.getCount())
+                        .build());
+            }
+            stream.statistics.add(reading.getValue());
+            stream.window.add(reading.getValue());
+        }
+        if (fired == null) {
+            return Collections.emptyList();
+        }
+        signals.addAndGet(fired.size());
+        return fired;
+    }
+
+    private Evaluation evaluate(MetricStream stream, AnomalyRule rule, double value) {
+        Evaluation result = new Evaluation();
+        OnlineStatistics statistics = stream.statistics;
+        double observed = smoothed(stream, value, rule.getSmoothing());
+        result.observed = observed;
+        if (rule.getComparison() == null || (rule.isAdaptive() && statistics.getCount() < warmupSamples)) {
+            return result;
+        }
+
+        switch (rule.getComparison()) {
+            case AnomalyRule.LESS_THAN:
+                result.threshold = rule.getThreshold();
+                result.violated = rule.getThreshold() != null && observed < rule.getThreshold();
+                break;
+            case AnomalyRule.GREATER_THAN:
+                result.threshold = rule.getThreshold();
+                result.violated = rule.getThreshold() != null && observed > rule.getThreshold();
+                break;
+            case AnomalyRule.DEVIATION_BELOW:
+            case AnomalyRule.DEVIATION_ABOVE: {
+                double baseline = statistics.getEwma();
+                result.baseline = baseline;
+                if (baseline > 0 && rule.getDeviationPercent() != null) {
+                    boolean below = AnomalyRule.DEVIATION_BELOW.equals(rule.getComparison());
+                    double deviation = (below ? baseline - observed : observed - baseline) / baseline * 100.0;
+                    result.deviationPercent = deviation;
+                    result.violated = deviation > rule.getDeviationPercent();
+                }
+                break;
+            }
+            case AnomalyRule.ZSCORE: {
+                double limit = rule.getThreshold() != null ? rule.getThreshold() : AnomalyRule.DEFAULT_ZSCORE_LIMIT;
+                double std = statistics.getEwmStdDev();
+                if (std <= 0) {
+                    std = statistics.getStdDev();
+                }
+                result.baseline = statistics.getEwma();
+                result.threshold = limit;
+                if (std > 0) {
+                    double z = (value - statistics.getEwma()) / std;
+                    result.zScore = z;
+                    result.violated = Math.abs(z) > limit;
+                }
+                break;
+            }
+            case AnomalyRule.QUANTILE_ABOVE:
+            case AnomalyRule.QUANTILE_BELOW: {
+                boolean above = AnomalyRule.QUANTILE_ABOVE.equals(rule.getComparison());
+                double q = rule.getThreshold() != null ? rule.getThreshold() : (above ? 0.99 : 0.01);
+                double bound = stream.window.quantile(q);
+                result.baseline = stream.window.quantile(0.5);
+                result.threshold = bound;
+                result.violated = above ? observed > bound : observed < bound;
+                break;
+            }
+            default:
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * 当前读数与窗口中最近 smoothing-1 个读数的均值
+     */
+    private static double smoothed(MetricStream stream, double value, int smoothing) {
+        int previous = Math.min(smoothing - 1, stream.window.size());
+        if (previous <= 0) {
+            return value;
+        }
+        return (stream.window.recentMean(previous) * previous + value) / (previous + 1);
+    }
+
+    private boolean tryAcquire(String factoryId, long timestamp) {
+        FactoryBudget budget = budgets.computeIfAbsent(factoryId != null ? factoryId : "", k -> new FactoryBudget());
+        synchronized (budget) {
+            long minute = Math.floorDiv(timestamp, MINUTE_MILLIS);
+            if (minute != budget.minute) {
+                budget.minute = minute;
+                budget.count = 0;
+            }
+            if (budget.count >= maxAlertsPerMinute) {
+                return false;
+            }
+            budget.count++;
+            return true;
+        }
+    }
+
+    // ==================== 维护 ====================
+
+    /**
+     * 清理长时间无读数的指标流 (设备下线、指标停用)
+     *
+     * @return 清理数量
+     */
+    public int evictIdle(long olderThanTimestamp) {
+        int before = streams.size();
+        streams.entrySet().removeIf(entry -> entry.getValue().lastSeen < olderThanTimestamp);
+        return before - streams.size();
+    }
+
+    /**
+     * 指标流当前统计快照 (用于排查与接口展示)
+     */
+    public Map<String, Object> describeStream(String factoryId, String source, String metricName) {
+        MetricStream stream = streams.get(streamKey(factoryId, source, metricName));
+        if (stream == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        synchronized (stream) {
+            snapshot.put("count", stream.statistics.getCount());
+            snapshot.put("mean", stream.statistics.getMean());
+            snapshot.put("stdDev", stream.statistics.getStdDev());
+            snapshot.put("ewma", stream.statistics.getEwma());
+            snapshot.put("ewmStdDev", stream.statistics.getEwmStdDev());
+            snapshot.put("min", stream.statistics.getMin());
+            snapshot.put("max", stream.statistics.getMax());
+            snapshot.put("p01", stream.window.quantile(0.01));
+            snapshot.put("p50", stream.window.quantile(0.5));
+            snapshot.put("p99", stream.window.quantile(0.99));
+        }
+        return snapshot;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("streams", streams.size());
+        stats.put("readings", readings.get());
+        stats.put("signals", signals.get());
+        stats.put("duplicatesSuppressed", duplicatesSuppressed.get());
+        stats.put("rateLimited", rateLimited.get());
+        stats.put("droppedReadings", droppedReadings.get());
+        return stats;
+    }
+
+    static String streamKey(String factoryId, String source, String metricName) {
+        return factoryId + '|' + source + '|' + metricName;
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 指标读数
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Reading {
+        private final String factoryId;
+        /** 数据源: IoT 设备ID, 或生产批次流 "production" */
+        private final String source;
+        private final String metricName;
+        private final double value;
+        /** 读数时间 (epoch 毫秒) */
+        private final long timestamp;
+        /** 关联生产批次 (可为空) */
+        private final Long batchId;
+
+        public Reading(String factoryId, String source, String metricName, double value, long timestamp) {
+            this(factoryId, source, metricName, value, timestamp, null);
+        }
+
+        String streamKey() {
+            return StreamingAnomalyDetector.streamKey(factoryId, source, metricName);
+        }
+    }
+
+    /**
+     * 告警信号
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class AnomalySignal {
+        private final Reading reading;
+        private final AnomalyRule rule;
+        /** 参与比较的值 (静态规则为平滑后的均值) */
+        private final double observedValue;
+        private final Double baselineValue;
+        private final Double thresholdValue;
+        private final Double deviationPercent;
+        private final Double zScore;
+        /** 触发时指标流已积累的样本数 */
+        private final long sampleCount;
+    }
+
+    private final class MetricStream {
+        private final OnlineStatistics statistics = new OnlineStatistics(ewmaAlpha);
+        private final SlidingQuantileWindow window = new SlidingQuantileWindow(windowSize);
+        private final Map<String, RuleState> ruleStates = new HashMap<>(4);
+        private long lastSeen;
+    }
+
+    private static final class RuleState {
+        private boolean active;
+        private int normalStreak;
+        private long lastFiredAt = Long.MIN_VALUE / 2;
+    }
+
+    private static final class FactoryBudget {
+        private long minute = Long.MIN_VALUE;
+        private int count;
+    }
+
+    private static final class Evaluation {
+        private boolean violated;
+        private double observed;
+        private Double baseline;
+        private Double threshold;
+        private Double deviationPercent;
+        private Double zScore;
+    }
+}
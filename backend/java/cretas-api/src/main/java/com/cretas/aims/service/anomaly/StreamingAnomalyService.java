@@ -0,0 +1,452 @@
+package com.cretas.aims.service.anomaly;
+
+import com.cretas.aims.entity.AlertThreshold;
+import com.cretas.aims.entity.ProductionAlert;
+import com.cretas.aims.entity.ProductionBatch;
+import com.cretas.aims.entity.iot.IotDeviceData;
+import com.cretas.aims.event.BatchCompletedEvent;
+import com.cretas.aims.event.ProductionAlertEvent;
+import com.cretas.aims.repository.AlertThresholdRepository;
+import com.cretas.aims.repository.IotDeviceDataRepository;
+import com.cretas.aims.repository.ProductionAlertRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 流式异常检测服务
+ *
+ * 替代按工厂 × 阈值规则定时轮询数据库的检测方式, 由数据到达直接驱动:
+ * - IoT 读数: MQTT 订阅收到温度/湿度/称重数据后调用 {@link #onDeviceReading}
+ * - 生产事件: 监听 {@link BatchCompletedEvent}, 取批次的良率、效率、成本等指标
+ *
+ * 规则来源为工厂启用的 {@link AlertThreshold} (按指标名匹配, 本地缓存定期刷新);
+ * IoT 指标未配置 ZSCORE 规则时使用默认的自适应 z 分数规则。
+ * 触发后在当前线程写入 ProductionAlert 并发布 {@link ProductionAlertEvent},
+ * 通知由 AlertNotificationListener 异步处理。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+@Slf4j
+@Service
+public class StreamingAnomalyService {
+
+    /** 生产批次指标流的数据源标识 */
+    public static final String PRODUCTION_SOURCE = "production";
+    /** IoT 默认自适应规则的告警类型 */
+    public static final String SENSOR_ALERT_TYPE = "SENSOR_ANOMALY";
+
+    /** 批次完成时采集的指标 (与 AnomalyDetectionServiceImpl 的指标白名单一致) */
+    private static final Map<String, Function<ProductionBatch, Number>> BATCH_METRICS = new LinkedHashMap<>();
+
+    static {
+        BATCH_METRICS.put("yield_rate", ProductionBatch::getYieldRate);
+        BATCH_METRICS.put("efficiency", ProductionBatch::getEfficiency);
+        BATCH_METRICS.put("unit_cost", ProductionBatch::getUnitCost);
+        BATCH_METRICS.put("total_cost", ProductionBatch::getTotalCost);
+        BATCH_METRICS.put("defect_quantity", ProductionBatch::getDefectQuantity);
+        BATCH_METRICS.put("actual_quantity", ProductionBatch::getActualQuantity);
+        BATCH_METRICS.put("work_duration_minutes", ProductionBatch::getWorkDurationMinutes);
+        BATCH_METRICS.put("labor_cost", ProductionBatch::getLaborCost);
+        BATCH_METRICS.put("equipment_cost", ProductionBatch::getEquipmentCost);
+        BATCH_METRICS.put("material_cost", ProductionBatch::getMaterialCost);
+    }
+
+    private final AlertThresholdRepository thresholdRepository;
+    private final ProductionAlertRepository alertRepository;
+    private final IotDeviceDataRepository iotDeviceDataRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final double ewmaAlpha;
+    private final int windowSize;
+    private final int warmupSamples;
+    private final long cooldownMillis;
+    private final int clearAfter;
+    private final int maxAlertsPerMinute;
+    private final int maxStreams;
+    private final long ruleCacheMillis;
+    private final double iotZScoreLimit;
+    private final int productionSmoothing;
+    private final long idleEvictMillis;
+
+    private final StreamingAnomalyDetector detector;
+    private final ConcurrentHashMap<String, CachedRules> ruleCache = new ConcurrentHashMap<>();
+
+    private final AtomicLong alertsRaised = new AtomicLong();
+    private final AtomicLong raiseFailures = new AtomicLong();
+    private final AtomicLong totalRaiseMicros = new AtomicLong();
+    private final AtomicLong maxRaiseMicros = new AtomicLong();
+
+    public StreamingAnomalyService(
+            AlertThresholdRepository thresholdRepository,
+            ProductionAlertRepository alertRepository,
+            IotDeviceDataRepository iotDeviceDataRepository,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            @Value("${cretas.anomaly.streaming.enabled:true}") boolean enabled,
+            @Value("${cretas.anomaly.streaming.ewma-alpha:0.1}") double ewmaAlpha,
+            @Value("${cretas.anomaly.streaming.window-size:128}") int windowSize,
+            @Value("${cretas.anomaly.streaming.warmup-samples:20}") int warmupSamples,
+            @Value("${cretas.anomaly.streaming.cooldown-seconds:600}") long cooldownSeconds,
+            @Value("${cretas.anomaly.streaming.clear-after:5}") int clearAfter,
+            @Value("${cretas.anomaly.streaming.max-alerts-per-minute:20}") int maxAlertsPerMinute,
+            @Value("${cretas.anomaly.streaming.max-streams:50000}") int maxStreams,
+            @Value("${cretas.anomaly.streaming.rule-cache-seconds:60}") long ruleCacheSeconds,
+            @Value("${cretas.anomaly.streaming.iot-zscore-limit:4.0}") double iotZScoreLimit,
+            @Value("${cretas.anomaly.streaming.production-smoothing:3}") int productionSmoothing,
+            @Value("${cretas.anomaly.streaming.idle-evict-hours:24}") long idleEvictHours) {
+        this.thresholdRepository = thresholdRepository;
+        this.alertRepository = alertRepository;
+        this.iotDeviceDataRepository = iotDeviceDataRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ewmaAlpha = ewmaAlpha;
+        this.windowSize = windowSize;
+        this.warmupSamples = warmupSamples;
+        this.cooldownMillis = cooldownSeconds * 1000L;
+        this.clearAfter = clearAfter;
+        this.maxAlertsPerMinute = maxAlertsPerMinute;
+        this.maxStreams = maxStreams;
+        this.ruleCacheMillis = ruleCacheSeconds * 1000L;
+        this.iotZScoreLimit = iotZScoreLimit;
+        this.productionSmoothing = Math.max(1, productionSmoothing);
+        this.idleEvictMillis = idleEvictHours * 3600_000L;
+        this.detector = newDetector();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ==================== 数据入口 ====================
+
+    /**
+     * IoT 设备读数入口
+     *
+     * @param factoryId  工厂ID
+     * @param deviceId   设备ID
+     * @param metricName 指标名 (temperature, humidity, weight)
+     * @param value      读数
+     */
+    public void onDeviceReading(String factoryId, String deviceId, String metricName, double value) {
+        if (!enabled) {
+            return;
+        }
+        process(new StreamingAnomalyDetector.Reading(factoryId, deviceId, metricName, value, System.currentTimeMillis()));
+    }
+
+    /**
+     * 生产批次完成: 逐项送入批次指标
+     */
+    @EventListener
+    public void onBatchCompleted(BatchCompletedEvent event) {
+        if (!enabled || event.getBatch() == null) {
+            return;
+        }
+        ProductionBatch batch = event.getBatch();
+        long timestamp = event.getCompletedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        for (Map.Entry<String, Function<ProductionBatch, Number>> metric : BATCH_METRICS.entrySet()) {
+            Number value = metric.getValue().apply(batch);
+            if (value != null) {
+                process(new StreamingAnomalyDetector.Reading(event.getFactoryId(), PRODUCTION_SOURCE,
+                        metric.getKey(), value.doubleValue(), timestamp, event.getBatchId()));
+            }
+        }
+    }
+
+    private void process(StreamingAnomalyDetector.Reading reading) {
+        try {
+            List<StreamingAnomalyDetector.AnomalySignal> signals = detector.offer(reading, rulesFor(reading));
+            for (StreamingAnomalyDetector.AnomalySignal signal : signals) {
+                raise(signal);
+            }
+        } catch (Exception e) {
+            // 检测失败不影响数据采集与批次流程
+            log.warn("流式异常检测失败: factoryId={}, source={}, metric={}, error={}",
+                    reading.getFactoryId(), reading.getSource(), reading.getMetricName(), e.getMessage());
+        }
+    }
+
+    // ==================== 规则 ====================
+
+    List<AnomalyRule> rulesFor(StreamingAnomalyDetector.Reading reading) {
+        Map<String, List<AnomalyRule>> byMetric = factoryRules(reading.getFactoryId());
+        if (PRODUCTION_SOURCE.equals(reading.getSource())) {
+            return byMetric.getOrDefault(reading.getMetricName(), Collections.emptyList());
+        }
+        return byMetric.computeIfAbsent("iot:" + reading.getMetricName(), k -> {
+            List<AnomalyRule> configured = byMetric.getOrDefault(reading.getMetricName(), Collections.emptyList());
+            List<AnomalyRule> rules = configured.stream()
+                    .map(rule -> AnomalyRule.builder()
+                            .ruleKey(rule.getRuleKey())
+                            .metricName(rule.getMetricName())
+                            .alertType(rule.getAlertType())
+                            .level(rule.getLevel())
+                            .comparison(rule.getComparison())
+                            .threshold(rule.getThreshold())
+                            .deviationPercent(rule.getDeviationPercent())
+                            .build())
+                    .collect(Collectors.toCollection(ArrayList::new));
+            if (rules.stream().noneMatch(rule -> AnomalyRule.ZSCORE.equals(rule.getComparison()))) {
+                rules.add(AnomalyRule.adaptiveZScore(reading.getMetricName(), SENSOR_ALERT_TYPE, "WARNING", iotZScoreLimit));
+            }
+            return Collections.unmodifiableList(rules);
+        });
+    }
+
+    private Map<String, List<AnomalyRule>> factoryRules(String factoryId) {
+        long now = System.currentTimeMillis();
+        CachedRules cached = ruleCache.get(factoryId);
+        if (cached == null || now - cached.loadedAt > ruleCacheMillis) {
+            List<AlertThreshold> thresholds = thresholdRepository.findByFactoryIdAndEnabled(factoryId, true);
+            Map<String, List<AnomalyRule>> byMetric = thresholds.stream()
+                    .filter(t -> t.getMetricName() != null && t.getComparison() != null)
+                    .map(t -> AnomalyRule.fromThreshold(t, productionSmoothing))
+                    .collect(Collectors.groupingBy(AnomalyRule::getMetricName, ConcurrentHashMap::new, Collectors.toList()));
+            cached = new CachedRules(now, byMetric);
+            ruleCache.put(factoryId, cached);
+        }
+        return cached.byMetric;
+    }
+
+    /**
+     * 阈值规则变更后立即失效本地缓存
+     */
+    public void invalidateRules(String factoryId) {
+        ruleCache.remove(factoryId);
+    }
+
+    // ==================== 告警 ====================
+
+    private void raise(StreamingAnomalyDetector.AnomalySignal signal) {
+        long started = System.nanoTime();
+        StreamingAnomalyDetector.Reading reading = signal.getReading();
+        AnomalyRule rule = signal.getRule();
+        boolean production = PRODUCTION_SOURCE.equals(reading.getSource());
+        try {
+            String description = buildDescription(signal);
+            ProductionAlert alert = ProductionAlert.builder()
+                    .factoryId(reading.getFactoryId())
+                    .alertType(rule.getAlertType())
+                    .level(rule.getLevel())
+                    .status("ACTIVE")
+                    .metricName(reading.getMetricName())
+                    .currentValue(signal.getObservedValue())
+                    .baselineValue(signal.getBaselineValue())
+                    .thresholdValue(signal.getThresholdValue())
+                    .deviationPercent(signal.getDeviationPercent())
+                    .batchId(reading.getBatchId())
+                    .equipmentId(production ? null : reading.getSource())
+                    .description(description)
+                    .build();
+            ProductionAlert saved = alertRepository.save(alert);
+
+            eventPublisher.publishEvent(new ProductionAlertEvent(
+                    this, saved.getId(), saved.getFactoryId(),
+                    saved.getAlertType(), saved.getLevel(), description));
+
+            long micros = (System.nanoTime() - started) / 1000;
+            alertsRaised.incrementAndGet();
+            totalRaiseMicros.addAndGet(micros);
+            maxRaiseMicros.accumulateAndGet(micros, Math::max);
+            log.info("流式检测告警: factoryId={}, source={}, metric={}, rule={}, value={}, 耗时={}μs",
+                    reading.getFactoryId(), reading.getSource(), reading.getMetricName(),
+                    rule.getRuleKey(), signal.getObservedValue(), micros);
+        } catch (Exception e) {
+            raiseFailures.incrementAndGet();
+            log.error("创建流式检测告警失败: factoryId={}, metric={}, error={}",
+                    reading.getFactoryId(), reading.getMetricName(), e.getMessage());
+        }
+    }
+
+    static String buildDescription(StreamingAnomalyDetector.AnomalySignal signal) {
+        AnomalyRule rule = signal.getRule();
+        StreamingAnomalyDetector.Reading reading = signal.getReading();
+        String label = getMetricLabel(reading.getMetricName());
+        if (!PRODUCTION_SOURCE.equals(reading.getSource())) {
+            label = "设备 " + reading.getSource() + " " + label;
+        }
+        String current = String.format("%.2f", signal.getObservedValue());
+        switch (rule.getComparison()) {
+            case AnomalyRule.LESS_THAN:
+            case AnomalyRule.GREATER_THAN:
+                return String.format("%s当前值 %s %s阈值 %.2f", label, current,
+                        AnomalyRule.LESS_THAN.equals(rule.getComparison()) ? "低于" : "高于",
+                        orZero(signal.getThresholdValue()));
+            case AnomalyRule.DEVIATION_BELOW:
+            case AnomalyRule.DEVIATION_ABOVE:
+                return String.format("%s当前值 %s %s基线 %.2f，偏差 %.1f%%（阈值 %.1f%%）", label, current,
+                        AnomalyRule.DEVIATION_BELOW.equals(rule.getComparison()) ? "低于" : "高于",
+                        orZero(signal.getBaselineValue()), orZero(signal.getDeviationPercent()),
+                        orZero(rule.getDeviationPercent()));
+            case AnomalyRule.ZSCORE:
+                return String.format("%s读数 %s 偏离近期基线 %.2f，z 分数 %.1f（上限 %.1f）", label, current,
+                        orZero(signal.getBaselineValue()), orZero(signal.getZScore()),
+                        orZero(signal.getThresholdValue()));
+            case AnomalyRule.QUANTILE_ABOVE:
+            case AnomalyRule.QUANTILE_BELOW:
+                return String.format("%s当前值 %s %s近期分位线 %.2f（中位数 %.2f）", label, current,
+                        AnomalyRule.QUANTILE_BELOW.equals(rule.getComparison()) ? "低于" : "高于",
+                        orZero(signal.getThresholdValue()), orZero(signal.getBaselineValue()));
+            default:
+                return String.format("%s异常: 当前值 %s", label, current);
+        }
+    }
+
+    private static String getMetricLabel(String metricName) {
+        if (metricName == null) return "未知指标";
+        switch (metricName) {
+            case "yield_rate": return "良率";
+            case "efficiency": return "效率";
+            case "unit_cost": return "单位成本";
+            case "total_cost": return "总成本";
+            case "defect_quantity": return "缺陷数";
+            case "actual_quantity": return "实际产量";
+            case "work_duration_minutes": return "工作时长";
+            case "labor_cost": return "人工成本";
+            case "equipment_cost": return "设备成本";
+            case "material_cost": return "原料成本";
+            case "temperature": return "温度";
+            case "humidity": return "湿度";
+            case "weight": return "称重";
+            default: return metricName;
+        }
+    }
+
+    private static double orZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    // ==================== 回放 ====================
+
+    /**
+     * 回放设备的历史读数 (iot_device_data), 使用与线上相同的规则和参数, 不落库
+     */
+    public AnomalyReplayHarness.ReplayReport replayDeviceData(String factoryId, String deviceId,
+                                                             LocalDateTime startTime, LocalDateTime endTime) {
+        List<IotDeviceData> rows = iotDeviceDataRepository.findByDeviceIdAndTimeRange(deviceId, startTime, endTime);
+        List<StreamingAnomalyDetector.Reading> readings = new ArrayList<>(rows.size());
+        for (IotDeviceData row : rows) {
+            if (!factoryId.equals(row.getFactoryId())) {
+                continue;
+            }
+            StreamingAnomalyDetector.Reading reading = toReading(row);
+            if (reading != null) {
+                readings.add(reading);
+            }
+        }
+        readings.sort(Comparator.comparingLong(StreamingAnomalyDetector.Reading::getTimestamp));
+        AnomalyReplayHarness.ReplayReport report = newReplayHarness().replay(readings);
+        log.info("异常检测回放完成: factoryId={}, deviceId={}, readings={}, signals={}, {} 条/秒",
+                factoryId, deviceId, report.getReadings(), report.getSignalCount(), report.getReadingsPerSecond());
+        return report;
+    }
+
+    /**
+     * 使用线上规则和参数构建回放工具 (每次回放使用全新的检测器状态)
+     */
+    public AnomalyReplayHarness newReplayHarness() {
+        return new AnomalyReplayHarness(this::newDetector, this::rulesFor);
+    }
+
+    private StreamingAnomalyDetector.Reading toReading(IotDeviceData row) {
+        try {
+            JsonNode root = objectMapper.readTree(row.getDataValue());
+            JsonNode data = root.has("data") ? root.get("data") : root;
+            String metricName = metricForDataType(row.getDataType());
+            if (metricName == null || !data.has(metricName) || !data.get(metricName).isNumber()) {
+                return null;
+            }
+            LocalDateTime time = row.getCollectedAt() != null ? row.getCollectedAt() : row.getReceivedAt();
+            if (time == null) {
+                return null;
+            }
+            return new StreamingAnomalyDetector.Reading(row.getFactoryId(), row.getDeviceId(), metricName,
+                    data.get(metricName).asDouble(), time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * IoT 数据类型对应的指标名 (与 MQTT 数据负载中的字段名一致)
+     */
+    public static String metricForDataType(String dataType) {
+        if (dataType == null) {
+            return null;
+        }
+        switch (dataType) {
+            case "TEMPERATURE": return "temperature";
+            case "HUMIDITY": return "humidity";
+            case "WEIGHT": return "weight";
+            default: return null;
+        }
+    }
+
+    private StreamingAnomalyDetector newDetector() {
+        return new StreamingAnomalyDetector(ewmaAlpha, windowSize, warmupSamples, cooldownMillis,
+                clearAfter, maxAlertsPerMinute, maxStreams);
+    }
+
+    // ==================== 维护与统计 ====================
+
+    /**
+     * 每小时清理长时间无读数的指标流
+     */
+    @Scheduled(fixedDelay = 3600_000L, initialDelay = 3600_000L)
+    public void evictIdleStreams() {
+        int evicted = detector.evictIdle(System.currentTimeMillis() - idleEvictMillis);
+        if (evicted > 0) {
+            log.info("清理空闲指标流: {}", evicted);
+        }
+    }
+
+    public Map<String, Object> describeStream(String factoryId, String source, String metricName) {
+        return detector.describeStream(factoryId, source, metricName);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(detector.getStats());
+        long raised = alertsRaised.get();
+        stats.put("enabled", enabled);
+        stats.put("alertsRaised", raised);
+        stats.put("raiseFailures", raiseFailures.get());
+        stats.put("avgRaiseMicros", raised > 0 ? totalRaiseMicros.get() / raised : 0);
+        stats.put("maxRaiseMicros", maxRaiseMicros.get());
+        stats.put("cachedFactories", ruleCache.size());
+        return stats;
+    }
+
+    private static final class CachedRules {
+        private final long loadedAt;
+        private final Map<String, List<AnomalyRule>> byMetric;
+
+        private CachedRules(long loadedAt, Map<String, List<AnomalyRule>> byMetric) {
+            this.loadedAt = loadedAt;
+            this.byMetric = byMetric;
+        }
+    }
+}
@@ -42,6 +42,14 @@ public class DahuaDiscoveryService {
     private final DahuaDeviceRepository dahuaDeviceRepository;
     private final DahuaClient dahuaClient;
 
+    /**
+     * HTTP 探测客户端 (共享连接池, 避免每次探测新建客户端)
+     */
+    private final OkHttpClient probeClient = new OkHttpClient.Builder()
+            .connectTimeout(HTTP_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .readTimeout(HTTP_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+
     /**
      * HTTP 探测端点
      */
@@ -180,11 +188,6 @@ public class DahuaDiscoveryService {
         String url = String.format("http://%s:%d%s", ipAddress, port, MAGIC_BOX_ENDPOINT);
 
         try {
-            OkHttpClient probeClient = new OkHttpClient.Builder()
-                    .connectTimeout(HTTP_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                    .readTimeout(HTTP_PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                    .build();
-
             Request request = new Request.Builder()
                     .url(url)
                     .get()
@@ -0,0 +1,53 @@
+package com.cretas.aims.service.export;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 内存列表分页源（汇总指标等小数据量 Sheet），游标为行下标
+ *
+ * @param <T> 行类型
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+public class ListPageSource<T> implements PageSource<T> {
+
+    private final Class<T> rowType;
+    private final List<T> rows;
+
+    public ListPageSource(Class<T> rowType, List<T> rows) {
+        this.rowType = rowType;
+        this.rows = rows;
+    }
+
+    @Override
+    public Class<T> rowType() {
+        return rowType;
+    }
+
+    @Override
+    public long count() {
+        return rows.size();
+    }
+
+    @Override
+    public List<T> nextPage(String afterKey, int limit) {
+        int from = afterKey == null ? 0 : Integer.parseInt(afterKey) + 1;
+        if (from >= rows.size()) {
+            return Collections.emptyList();
+        }
+        return rows.subList(from, Math.min(rows.size(), from + limit));
+    }
+
+    @Override
+    public String keyOf(T row) {
+        // 行对象可能重复，按引用定位下标
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i) == row) {
+                return String.valueOf(i);
+            }
+        }
+        throw new IllegalArgumentException("行不属于该数据源");
+    }
+}
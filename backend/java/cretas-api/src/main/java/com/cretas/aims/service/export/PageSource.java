@@ -0,0 +1,41 @@
+package com.cretas.aims.service.export;
+
+import java.util.List;
+
+/**
+ * 按游标分页读取导出行
+ *
+ * 游标为上一页最后一行的主键（键集分页），不使用 OFFSET，深分页代价与首页相同；
+ * 游标以字符串形式写入任务检查点，便于中断后续传。
+ *
+ * @param <T> 行类型
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+public interface PageSource<T> {
+
+    /**
+     * 行类型（决定列定义）
+     */
+    Class<T> rowType();
+
+    /**
+     * 符合条件的总行数，用于进度估算
+     */
+    long count();
+
+    /**
+     * 读取游标之后的一页
+     *
+     * @param afterKey 上一页最后一行的主键，首页为 null
+     * @param limit    页大小
+     * @return 按主键升序的行，不足 limit 表示已读完
+     */
+    List<T> nextPage(String afterKey, int limit);
+
+    /**
+     * 行主键（作为下一页游标）
+     */
+    String keyOf(T row);
+}
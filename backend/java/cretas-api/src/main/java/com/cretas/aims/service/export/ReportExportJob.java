@@ -0,0 +1,274 @@
+package com.cretas.aims.service.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 报表导出后台任务状态
+ *
+ * 状态与检查点保存在任务目录下的 job.properties：每写完一个分片文件记录
+ * (数据源序号, 游标, 已写行数, 分片数)，进程重启或失败后从最后一个完整分片之后续写。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+public class ReportExportJob {
+
+    public enum Status {
+        /** 排队中 */
+        QUEUED,
+        /** 执行中 */
+        RUNNING,
+        /** 已完成，可下载 */
+        COMPLETED,
+        /** 失败，可续传 */
+        FAILED,
+        /** 进程退出时未完成，可续传 */
+        INTERRUPTED
+    }
+
+    static final String STATE_FILE = "job.properties";
+
+    private final String jobId;
+    private final String factoryId;
+    private final String reportType;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Path dir;
+    private final LocalDateTime createdAt;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long totalRows;
+    /** 实时已写行数（含未完成分片），仅用于进度 */
+    private volatile long rowsWritten;
+    /** 已完整写出的分片累计行数 */
+    private volatile long committedRows;
+    private volatile int sourceIndex;
+    private volatile String afterKey;
+    private volatile int parts;
+    private volatile String resultFile;
+    private volatile String error;
+    private volatile LocalDateTime updatedAt;
+
+    ReportExportJob(String jobId, String factoryId, String reportType,
+                    LocalDate startDate, LocalDate endDate, Path dir) {
+        this.jobId = jobId;
+        this.factoryId = factoryId;
+        this.reportType = reportType;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.dir = dir;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = createdAt;
+    }
+
+    private ReportExportJob(Properties p, Path dir) {
+        this.jobId = p.getProperty("jobId");
+        this.factoryId = p.getProperty("factoryId");
+        this.reportType = p.getProperty("reportType");
+        this.startDate = LocalDate.parse(p.getProperty("startDate"));
+        this.endDate = LocalDate.parse(p.getProperty("endDate"));
+        this.dir = dir;
+        this.createdAt = LocalDateTime.parse(p.getProperty("createdAt"));
+        this.updatedAt = LocalDateTime.parse(p.getProperty("updatedAt"));
+        this.status = Status.valueOf(p.getProperty("status"));
+        this.totalRows = Long.parseLong(p.getProperty("totalRows", "0"));
+        this.committedRows = Long.parseLong(p.getProperty("committedRows", "0"));
+        this.rowsWritten = committedRows;
+        this.sourceIndex = Integer.parseInt(p.getProperty("sourceIndex", "0"));
+        this.afterKey = p.getProperty("afterKey");
+        this.parts = Integer.parseInt(p.getProperty("parts", "0"));
+        this.resultFile = p.getProperty("resultFile");
+        this.error = p.getProperty("error");
+    }
+
+    /**
+     * 从任务目录读取状态
+     */
+    static ReportExportJob load(Path dir) throws IOException {
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(dir.resolve(STATE_FILE))) {
+            p.load(in);
+        }
+        return new ReportExportJob(p, dir);
+    }
+
+    /**
+     * 原子写入状态文件（先写临时文件再替换）
+     */
+    synchronized void save() throws IOException {
+        updatedAt = LocalDateTime.now();
+        Properties p = new Properties();
+        p.setProperty("jobId", jobId);
+        p.setProperty("factoryId", factoryId);
+        p.setProperty("reportType", reportType);
+        p.setProperty("startDate", startDate.toString());
+        p.setProperty("endDate", endDate.toString());
+        p.setProperty("createdAt", createdAt.toString());
+        p.setProperty("updatedAt", updatedAt.toString());
+        p.setProperty("status", status.name());
+        p.setProperty("totalRows", String.valueOf(totalRows));
+        p.setProperty("committedRows", String.valueOf(committedRows));
+        p.setProperty("sourceIndex", String.valueOf(sourceIndex));
+        p.setProperty("parts", String.valueOf(parts));
+        if (afterKey != null) {
+            p.setProperty("afterKey", afterKey);
+        }
+        if (resultFile != null) {
+            p.setProperty("resultFile", resultFile);
+        }
+        if (error != null) {
+            p.setProperty("error", error);
+        }
+        Path tmp = dir.resolve(STATE_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            p.store(out, "report export job");
+        }
+        Files.move(tmp, dir.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 记录一个已完整写出的分片
+     */
+    void checkpoint(int sourceIndex, String afterKey, long committedRows) {
+        this.sourceIndex = sourceIndex;
+        this.afterKey = afterKey;
+        this.committedRows = committedRows;
+        this.rowsWritten = committedRows;
+        this.parts++;
+    }
+
+    public boolean isResumable() {
+        return status == Status.FAILED || status == Status.INTERRUPTED;
+    }
+
+    public int getProgressPercent() {
+        if (status == Status.COMPLETED) {
+            return 100;
+        }
+        if (totalRows <= 0) {
+            return 0;
+        }
+        return (int) Math.min(99, rowsWritten * 100 / totalRows);
+    }
+
+    /**
+     * 接口返回视图
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", jobId);
+        view.put("reportType", reportType);
+        view.put("startDate", startDate.toString());
+        view.put("endDate", endDate.toString());
+        view.put("status", status.name());
+        view.put("totalRows", totalRows);
+        view.put("rowsWritten", rowsWritten);
+        view.put("progress", getProgressPercent());
+        view.put("parts", parts);
+        view.put("resumable", isResumable());
+        view.put("createdAt", createdAt.toString());
+        view.put("updatedAt", updatedAt.toString());
+        if (resultFile != null) {
+            view.put("fileName", resultFile);
+        }
+        if (error != null) {
+            view.put("error", error);
+        }
+        return view;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getFactoryId() {
+        return factoryId;
+    }
+
+    public String getReportType() {
+        return reportType;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    long getCommittedRows() {
+        return committedRows;
+    }
+
+    int getSourceIndex() {
+        return sourceIndex;
+    }
+
+    String getAfterKey() {
+        return afterKey;
+    }
+
+    public int getParts() {
+        return parts;
+    }
+
+    public String getResultFile() {
+        return resultFile;
+    }
+
+    void setResultFile(String resultFile) {
+        this.resultFile = resultFile;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,615 @@
+package com.cretas.aims.service.export;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import com.cretas.aims.dto.report.ProductionBatchExportDTO;
+import com.cretas.aims.dto.report.QualityInspectionExportDTO;
+import com.cretas.aims.exception.BusinessException;
+import com.cretas.aims.exception.ResourceNotFoundException;
+import com.cretas.aims.service.ReportService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 报表流式导出服务
+ *
+ * 导出内容为汇总指标 Sheet 加明细 Sheet（生产批次、质检记录），明细按主键游标分页查询
+ * （JPQL 构造器投影，不加载托管实体），每页经 {@link RowAccessor} 转为单元格后立即交给
+ * {@link StreamingExcelWriter} 写出，堆上只保留当前一页。
+ *
+ * - 同步导出直接写入响应输出流，超过 sync-max-rows 行时拒绝并提示改用后台任务
+ * - 后台任务按 rows-per-part 行切分为多个 xlsx 分片写入任务目录，每个分片完成后记录检查点；
+ *   失败或进程重启后从最后一个完整分片之后续写，全部完成后单分片直接下载，多分片打包为 zip
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+@Slf4j
+@Service
+public class ReportExportService {
+
+    private static final String PRODUCTION_ROWS =
+            "select new com.cretas.aims.dto.report.ProductionBatchExportDTO("
+                    + "b.id, b.batchNumber, b.productName, b.plannedQuantity, b.actualQuantity, b.goodQuantity, "
+                    + "b.defectQuantity, b.unit, b.status, b.qualityStatus, b.startTime, b.endTime, "
+                    + "b.equipmentName, b.supervisorName, b.totalCost, b.unitCost, b.yieldRate, b.createdAt) "
+                    + "from ProductionBatch b ";
+    private static final String PRODUCTION_WHERE =
+            "where b.factoryId = :factoryId and b.createdAt >= :start and b.createdAt < :end ";
+
+    private static final String QUALITY_ROWS =
+            "select new com.cretas.aims.dto.report.QualityInspectionExportDTO("
+                    + "q.id, q.productionBatchId, q.inspectorId, q.inspectionDate, q.sampleSize, "
+                    + "q.passCount, q.failCount, q.passRate, q.result, q.notes) "
+                    + "from QualityInspection q ";
+    private static final String QUALITY_WHERE =
+            "where q.factoryId = :factoryId and q.inspectionDate between :start and :end ";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ReportService reportService;
+    private final int pageSize;
+    private final long syncMaxRows;
+    private final long rowsPerPart;
+    private final int maxRowsPerSheet;
+    private final Path jobRoot;
+    private final long retentionHours;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, ReportExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ReportExportService(
+            @Lazy ReportService reportService,
+            @Value("${cretas.report.export.page-size:2000}") int pageSize,
+            @Value("${cretas.report.export.sync-max-rows:200000}") long syncMaxRows,
+            @Value("${cretas.report.export.rows-per-part:500000}") long rowsPerPart,
+            @Value("${cretas.report.export.max-rows-per-sheet:1000000}") int maxRowsPerSheet,
+            @Value("${cretas.report.export.job-dir:${java.io.tmpdir}/cretas-report-export}") String jobDir,
+            @Value("${cretas.report.export.job-threads:2}") int jobThreads,
+            @Value("${cretas.report.export.retention-hours:24}") long retentionHours) {
+        this.reportService = reportService;
+        this.pageSize = pageSize;
+        this.syncMaxRows = syncMaxRows;
+        this.rowsPerPart = rowsPerPart;
+        this.maxRowsPerSheet = maxRowsPerSheet;
+        this.jobRoot = Paths.get(jobDir);
+        this.retentionHours = retentionHours;
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(jobThreads, jobThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(64), r -> {
+                    Thread t = new Thread(r, "report-export-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * 导出 Sheet：名称 + 分页数据源
+     */
+    static final class ExportSection<T> {
+        final String sheetName;
+        final PageSource<T> source;
+
+        ExportSection(String sheetName, PageSource<T> source) {
+            this.sheetName = sheetName;
+            this.source = source;
+        }
+    }
+
+    /**
+     * 汇总指标行
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MetricRow {
+        @ExcelProperty(value = "指标名称", index = 0)
+        private String name;
+        @ExcelProperty(value = "数值", index = 1)
+        private String value;
+    }
+
+    /**
+     * 导出位置：第几个 Sheet 的哪个游标之后
+     */
+    private static final class Cursor {
+        int section;
+        String afterKey;
+
+        Cursor(int section, String afterKey) {
+            this.section = section;
+            this.afterKey = afterKey;
+        }
+    }
+
+    // ==================== 同步流式导出 ====================
+
+    /**
+     * 导出的总行数（汇总 + 明细）
+     */
+    public long countRows(String factoryId, String reportType, LocalDate startDate, LocalDate endDate) {
+        return totalRows(sectionsFor(factoryId, reportType, startDate, endDate));
+    }
+
+    /**
+     * 直接写入输出流（不关闭输出流）
+     *
+     * @throws BusinessException 行数超过同步导出上限
+     */
+    public long exportTo(String factoryId, String reportType, LocalDate startDate, LocalDate endDate,
+                         OutputStream out) {
+        List<ExportSection<?>> sections = sectionsFor(factoryId, reportType, startDate, endDate);
+        long total = totalRows(sections);
+        if (total > syncMaxRows) {
+            throw new BusinessException(String.format(
+                    "导出数据量过大(%d行，上限%d行)，请使用后台导出任务", total, syncMaxRows));
+        }
+        long begin = System.currentTimeMillis();
+        long written;
+        try (StreamingExcelWriter writer = new StreamingExcelWriter(out, maxRowsPerSheet)) {
+            written = writeSections(sections, new Cursor(0, null), writer, Long.MAX_VALUE, rows -> { });
+        }
+        log.info("报表流式导出完成: factoryId={}, reportType={}, rows={}, cost={}ms",
+                factoryId, reportType, written, System.currentTimeMillis() - begin);
+        return written;
+    }
+
+    /**
+     * 从游标位置开始依次写出各 Sheet，达到 rowLimit 后停止（在页边界停止，游标指向已写出的最后一行）
+     *
+     * @return 本次写出的行数
+     */
+    long writeSections(List<ExportSection<?>> sections, Cursor cursor, StreamingExcelWriter writer,
+                       long rowLimit, LongConsumer onRows) {
+        long written = 0;
+        while (cursor.section < sections.size() && written < rowLimit) {
+            long[] sectionRows = new long[1];
+            boolean exhausted = writeSection(sections.get(cursor.section), cursor, writer, rowLimit - written,
+                    rows -> {
+                        sectionRows[0] += rows;
+                        onRows.accept(rows);
+                    });
+            written += sectionRows[0];
+            if (exhausted) {
+                cursor.section++;
+                cursor.afterKey = null;
+            }
+        }
+        return written;
+    }
+
+    private <T> boolean writeSection(ExportSection<T> section, Cursor cursor, StreamingExcelWriter writer,
+                                     long budget, LongConsumer onRows) {
+        RowAccessor<T> accessor = RowAccessor.of(section.source.rowType());
+        writer.startSheet(section.sheetName, accessor);
+        long written = 0;
+        while (written < budget) {
+            int limit = (int) Math.min(pageSize, budget - written);
+            List<T> page = section.source.nextPage(cursor.afterKey, limit);
+            // 无数据时也输出表头
+            writer.append(page, accessor);
+            if (!page.isEmpty()) {
+                cursor.afterKey = section.source.keyOf(page.get(page.size() - 1));
+                written += page.size();
+                onRows.accept(page.size());
+            }
+            if (page.size() < limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long totalRows(List<ExportSection<?>> sections) {
+        long total = 0;
+        for (ExportSection<?> section : sections) {
+            total += section.source.count();
+        }
+        return total;
+    }
+
+    // ==================== 后台导出任务 ====================
+
+    /**
+     * 提交后台导出任务
+     */
+    public ReportExportJob submitJob(String factoryId, String reportType, LocalDate startDate, LocalDate endDate) {
+        String jobId = UUID.randomUUID().toString().replace("-", "");
+        Path dir = jobRoot.resolve(jobId);
+        ReportExportJob job = new ReportExportJob(jobId, factoryId, reportType, startDate, endDate, dir);
+        try {
+            Files.createDirectories(dir);
+            job.save();
+        } catch (IOException e) {
+            throw new BusinessException("创建导出任务失败: " + e.getMessage(), e);
+        }
+        jobs.put(jobId, job);
+        schedule(job);
+        log.info("提交报表导出任务: jobId={}, factoryId={}, reportType={}, {}~{}",
+                jobId, factoryId, reportType, startDate, endDate);
+        return job;
+    }
+
+    /**
+     * 查询任务（只能访问本工厂的任务）
+     */
+    public ReportExportJob getJob(String factoryId, String jobId) {
+        ReportExportJob job = jobs.get(jobId);
+        if (job == null || !job.getFactoryId().equals(factoryId)) {
+            throw new ResourceNotFoundException("导出任务不存在: " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * 续传失败或中断的任务
+     */
+    public ReportExportJob resumeJob(String factoryId, String jobId) {
+        ReportExportJob job = getJob(factoryId, jobId);
+        synchronized (job) {
+            if (!job.isResumable()) {
+                throw new BusinessException("任务当前状态不可续传: " + job.getStatus());
+            }
+            job.setStatus(ReportExportJob.Status.QUEUED);
+            job.setError(null);
+            saveQuietly(job);
+        }
+        schedule(job);
+        return job;
+    }
+
+    /**
+     * 已完成任务的结果文件
+     */
+    public Path getResultFile(String factoryId, String jobId) {
+        ReportExportJob job = getJob(factoryId, jobId);
+        if (job.getStatus() != ReportExportJob.Status.COMPLETED || job.getResultFile() == null) {
+            throw new BusinessException("导出任务尚未完成: " + job.getStatus());
+        }
+        return job.getDir().resolve(job.getResultFile());
+    }
+
+    private void schedule(ReportExportJob job) {
+        try {
+            executor.execute(() -> runJob(job));
+        } catch (RejectedExecutionException e) {
+            job.setStatus(ReportExportJob.Status.FAILED);
+            job.setError("导出任务队列已满，请稍后续传");
+            saveQuietly(job);
+        }
+    }
+
+    void runJob(ReportExportJob job) {
+        long begin = System.currentTimeMillis();
+        try {
+            List<ExportSection<?>> sections =
+                    sectionsFor(job.getFactoryId(), job.getReportType(), job.getStartDate(), job.getEndDate());
+            job.setTotalRows(totalRows(sections));
+            job.setStatus(ReportExportJob.Status.RUNNING);
+            job.save();
+
+            Cursor cursor = new Cursor(job.getSourceIndex(), job.getAfterKey());
+            while (cursor.section < sections.size()) {
+                int partNo = job.getParts() + 1;
+                Path part = job.getDir().resolve(partName(partNo));
+                long base = job.getCommittedRows();
+                long[] live = new long[1];
+                long written;
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024);
+                     StreamingExcelWriter writer = new StreamingExcelWriter(out, maxRowsPerSheet)) {
+                    written = writeSections(sections, cursor, writer, rowsPerPart, rows -> {
+                        live[0] += rows;
+                        job.setRowsWritten(base + live[0]);
+                    });
+                }
+                if (written == 0 && partNo > 1) {
+                    // 上一分片恰好写到末尾，本分片只有空表头
+                    Files.deleteIfExists(part);
+                    break;
+                }
+                job.checkpoint(cursor.section, cursor.afterKey, base + written);
+                job.save();
+                log.debug("导出分片完成: jobId={}, part={}, rows={}", job.getJobId(), partNo, written);
+            }
+
+            job.setResultFile(assemble(job));
+            job.setStatus(ReportExportJob.Status.COMPLETED);
+            job.save();
+            log.info("报表导出任务完成: jobId={}, rows={}, parts={}, cost={}ms",
+                    job.getJobId(), job.getCommittedRows(), job.getParts(), System.currentTimeMillis() - begin);
+        } catch (Exception e) {
+            log.error("报表导出任务失败: jobId={}, committedRows={}", job.getJobId(), job.getCommittedRows(), e);
+            job.setRowsWritten(job.getCommittedRows());
+            job.setStatus(ReportExportJob.Status.FAILED);
+            job.setError(e.getMessage());
+            saveQuietly(job);
+        }
+    }
+
+    /**
+     * 单分片直接作为结果；多分片打包为 zip（xlsx 已压缩，zip 条目不再压缩）
+     */
+    private String assemble(ReportExportJob job) throws IOException {
+        String baseName = String.format("report_%s_%s_%s", job.getReportType(), job.getStartDate(), job.getEndDate());
+        if (job.getParts() <= 1) {
+            String name = baseName + ".xlsx";
+            Files.move(job.getDir().resolve(partName(1)), job.getDir().resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            return name;
+        }
+        String name = baseName + ".zip";
+        Path tmp = job.getDir().resolve(name + ".tmp");
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            zip.setLevel(java.util.zip.Deflater.NO_COMPRESSION);
+            for (int i = 1; i <= job.getParts(); i++) {
+                zip.putNextEntry(new ZipEntry(String.format("%s_part%d.xlsx", baseName, i)));
+                Files.copy(job.getDir().resolve(partName(i)), zip);
+                zip.closeEntry();
+            }
+        }
+        Files.move(tmp, job.getDir().resolve(name), StandardCopyOption.REPLACE_EXISTING);
+        for (int i = 1; i <= job.getParts(); i++) {
+            Files.deleteIfExists(job.getDir().resolve(partName(i)));
+        }
+        return name;
+    }
+
+    private static String partName(int partNo) {
+        return String.format("part-%04d.xlsx", partNo);
+    }
+
+    private void saveQuietly(ReportExportJob job) {
+        try {
+            job.save();
+        } catch (IOException e) {
+            log.warn("保存导出任务状态失败: jobId={}, error={}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 启动时加载任务目录；上次进程退出时未完成的任务标记为中断
+     */
+    @PostConstruct
+    public void loadJobs() {
+        if (!Files.isDirectory(jobRoot)) {
+            return;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(jobRoot, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                if (!Files.exists(dir.resolve(ReportExportJob.STATE_FILE))) {
+                    continue;
+                }
+                try {
+                    ReportExportJob job = ReportExportJob.load(dir);
+                    if (job.getStatus() == ReportExportJob.Status.QUEUED
+                            || job.getStatus() == ReportExportJob.Status.RUNNING) {
+                        job.setStatus(ReportExportJob.Status.INTERRUPTED);
+                        job.save();
+                    }
+                    jobs.put(job.getJobId(), job);
+                } catch (Exception e) {
+                    log.warn("读取导出任务失败: dir={}, error={}", dir, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("扫描导出任务目录失败: {}", e.getMessage());
+        }
+        if (!jobs.isEmpty()) {
+            log.info("加载报表导出任务: {} 个", jobs.size());
+        }
+    }
+
+    /**
+     * 应用就绪后自动续传中断的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        for (ReportExportJob job : jobs.values()) {
+            if (job.getStatus() == ReportExportJob.Status.INTERRUPTED) {
+                log.info("续传中断的导出任务: jobId={}, committedRows={}", job.getJobId(), job.getCommittedRows());
+                resumeJob(job.getFactoryId(), job.getJobId());
+            }
+        }
+    }
+
+    /**
+     * 清理超过保留时长的已结束任务
+     */
+    @Scheduled(fixedDelayString = "${cretas.report.export.purge-interval-ms:3600000}")
+    public void purgeExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusHours(retentionHours);
+        for (ReportExportJob job : new ArrayList<>(jobs.values())) {
+            ReportExportJob.Status status = job.getStatus();
+            boolean finished = status != ReportExportJob.Status.QUEUED && status != ReportExportJob.Status.RUNNING;
+            if (finished && job.getUpdatedAt().isBefore(threshold)) {
+                jobs.remove(job.getJobId());
+                deleteDirectory(job.getDir());
+                log.debug("清理过期导出任务: jobId={}", job.getJobId());
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                    // 下次清理重试
+                }
+            });
+        } catch (IOException ignored) {
+            // 目录已不存在
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==================== 数据源 ====================
+
+    /**
+     * 报表类型对应的导出 Sheet：汇总指标 + 明细
+     */
+    List<ExportSection<?>> sectionsFor(String factoryId, String reportType, LocalDate startDate, LocalDate endDate) {
+        List<ExportSection<?>> sections = new ArrayList<>();
+        sections.add(new ExportSection<>(reportType + "汇总",
+                new ListPageSource<>(MetricRow.class, summaryRows(factoryId, reportType, startDate, endDate))));
+        switch (reportType.toLowerCase()) {
+            case "production":
+                sections.add(new ExportSection<>("生产批次明细", productionSource(factoryId, startDate, endDate)));
+                break;
+            case "quality":
+                sections.add(new ExportSection<>("质检记录明细", qualitySource(factoryId, startDate, endDate)));
+                break;
+            case "comprehensive":
+                sections.add(new ExportSection<>("生产批次明细", productionSource(factoryId, startDate, endDate)));
+                sections.add(new ExportSection<>("质检记录明细", qualitySource(factoryId, startDate, endDate)));
+                break;
+            default:
+                // 其他报表类型只有汇总指标
+        }
+        return sections;
+    }
+
+    private List<MetricRow> summaryRows(String factoryId, String reportType, LocalDate startDate, LocalDate endDate) {
+        Map<String, Object> report = reportService.getCustomReport(factoryId, Map.of(
+                "reportType", reportType,
+                "startDate", startDate.toString(),
+                "endDate", endDate.toString()));
+        List<MetricRow> rows = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> data = (Map<String, Object>) report.get("data");
+        if (data != null) {
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                rows.add(new MetricRow(entry.getKey(), entry.getValue() != null ? entry.getValue().toString() : ""));
+            }
+        }
+        return rows;
+    }
+
+    private PageSource<ProductionBatchExportDTO> productionSource(String factoryId, LocalDate startDate,
+                                                                  LocalDate endDate) {
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+        return new PageSource<>() {
+            @Override
+            public Class<ProductionBatchExportDTO> rowType() {
+                return ProductionBatchExportDTO.class;
+            }
+
+            @Override
+            public long count() {
+                return entityManager.createQuery(
+                                "select count(b) from ProductionBatch b " + PRODUCTION_WHERE, Long.class)
+                        .setParameter("factoryId", factoryId)
+                        .setParameter("start", start)
+                        .setParameter("end", end)
+                        .getSingleResult();
+            }
+
+            @Override
+            public List<ProductionBatchExportDTO> nextPage(String afterKey, int limit) {
+                String jpql = PRODUCTION_ROWS + PRODUCTION_WHERE
+                        + (afterKey != null ? "and b.id > :afterId " : "") + "order by b.id";
+                TypedQuery<ProductionBatchExportDTO> query =
+                        entityManager.createQuery(jpql, ProductionBatchExportDTO.class)
+                                .setParameter("factoryId", factoryId)
+                                .setParameter("start", start)
+                                .setParameter("end", end)
+                                .setMaxResults(limit);
+                if (afterKey != null) {
+                    query.setParameter("afterId", Long.valueOf(afterKey));
+                }
+                return query.getResultList();
+            }
+
+            @Override
+            public String keyOf(ProductionBatchExportDTO row) {
+                return String.valueOf(row.getId());
+            }
+        };
+    }
+
+    private PageSource<QualityInspectionExportDTO> qualitySource(String factoryId, LocalDate startDate,
+                                                                 LocalDate endDate) {
+        return new PageSource<>() {
+            @Override
+            public Class<QualityInspectionExportDTO> rowType() {
+                return QualityInspectionExportDTO.class;
+            }
+
+            @Override
+            public long count() {
+                return entityManager.createQuery(
+                                "select count(q) from QualityInspection q " + QUALITY_WHERE, Long.class)
+                        .setParameter("factoryId", factoryId)
+                        .setParameter("start", startDate)
+                        .setParameter("end", endDate)
+                        .getSingleResult();
+            }
+
+            @Override
+            public List<QualityInspectionExportDTO> nextPage(String afterKey, int limit) {
+                String jpql = QUALITY_ROWS + QUALITY_WHERE
+                        + (afterKey != null ? "and q.id > :afterId " : "") + "order by q.id";
+                TypedQuery<QualityInspectionExportDTO> query =
+                        entityManager.createQuery(jpql, QualityInspectionExportDTO.class)
+                                .setParameter("factoryId", factoryId)
+                                .setParameter("start", startDate)
+                                .setParameter("end", endDate)
+                                .setMaxResults(limit);
+                if (afterKey != null) {
+                    query.setParameter("afterId", afterKey);
+                }
+                return query.getResultList();
+            }
+
+            @Override
+            public String keyOf(QualityInspectionExportDTO row) {
+                return row.getId();
+            }
+        };
+    }
+}
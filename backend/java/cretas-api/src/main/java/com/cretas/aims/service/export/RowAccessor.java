@@ -0,0 +1,247 @@
+package com.cretas.aims.service.export;
+
+import com.alibaba.excel.annotation.ExcelIgnore;
+import com.alibaba.excel.annotation.ExcelProperty;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 导出行访问器
+ *
+ * 每个行类型只解析一次列定义：按 {@link ExcelProperty#index()} 排序的字段、表头，
+ * 以及字段 getter 的 {@link MethodHandle} 和单元格转换方式，之后逐行取值不再做反射查找。
+ * 没有 {@link ExcelProperty} 注解的类导出全部实例字段。
+ *
+ * 单元格值: 数字/字符串/布尔原样输出；日期时间格式化为字符串；
+ * 枚举优先取 getDescription()，否则取 name()。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+public final class RowAccessor<T> {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private static final ClassValue<RowAccessor<?>> CACHE = new ClassValue<>() {
+        @Override
+        protected RowAccessor<?> computeValue(Class<?> type) {
+            return new RowAccessor<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final List<List<String>> head;
+    private final MethodHandle[] getters;
+    private final CellKind[] kinds;
+    /** 枚举列的 getDescription()，非枚举列或无该方法时为 null */
+    private final MethodHandle[] enumLabels;
+
+    @SuppressWarnings("unchecked")
+    public static <T> RowAccessor<T> of(Class<T> type) {
+        return (RowAccessor<T>) CACHE.get(type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RowAccessor(Class<?> type) {
+        this.type = (Class<T>) type;
+        List<Field> fields = columnFields(type);
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("导出行类型没有可导出的字段: " + type.getName());
+        }
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("无法访问导出行类型: " + type.getName(), e);
+        }
+
+        int n = fields.size();
+        List<List<String>> headers = new ArrayList<>(n);
+        this.getters = new MethodHandle[n];
+        this.kinds = new CellKind[n];
+        this.enumLabels = new MethodHandle[n];
+        for (int i = 0; i < n; i++) {
+            Field field = fields.get(i);
+            headers.add(headerOf(field));
+            kinds[i] = CellKind.of(field.getType());
+            try {
+                getters[i] = lookup.unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("无法读取字段: " + type.getName() + "." + field.getName(), e);
+            }
+            if (kinds[i] == CellKind.ENUM) {
+                enumLabels[i] = enumLabel(field.getType());
+            }
+        }
+        this.head = Collections.unmodifiableList(headers);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * EasyExcel 动态表头（每列一个表头路径）
+     */
+    public List<List<String>> head() {
+        return head;
+    }
+
+    public int columnCount() {
+        return getters.length;
+    }
+
+    /**
+     * 把一行对象转换为单元格值列表
+     */
+    public List<Object> toRow(T row) {
+        List<Object> cells = new ArrayList<>(getters.length);
+        for (int i = 0; i < getters.length; i++) {
+            cells.add(cell(i, row));
+        }
+        return cells;
+    }
+
+    /**
+     * 批量转换一页数据
+     */
+    public List<List<Object>> toRows(List<? extends T> page) {
+        List<List<Object>> rows = new ArrayList<>(page.size());
+        for (T row : page) {
+            rows.add(toRow(row));
+        }
+        return rows;
+    }
+
+    private Object cell(int column, T row) {
+        Object value;
+        try {
+            value = getters[column].invokeExact((Object) row);
+        } catch (Throwable e) {
+            throw new IllegalStateException("读取导出列失败: " + type.getSimpleName() + "#" + column, e);
+        }
+        if (value == null) {
+            return null;
+        }
+        switch (kinds[column]) {
+            case DATE_TIME:
+                return DATE_TIME.format((LocalDateTime) value);
+            case DATE:
+                return DATE.format((LocalDate) value);
+            case TEMPORAL:
+                return value.toString();
+            case ENUM:
+                return enumText(column, value);
+            default:
+                return value;
+        }
+    }
+
+    private Object enumText(int column, Object value) {
+        MethodHandle label = enumLabels[column];
+        if (label != null) {
+            try {
+                Object text = label.invokeExact(value);
+                if (text != null) {
+                    return text;
+                }
+            } catch (Throwable ignored) {
+                // 描述方法异常时退回枚举名
+            }
+        }
+        return ((Enum<?>) value).name();
+    }
+
+    private static List<Field> columnFields(Class<?> type) {
+        List<Field> annotated = new ArrayList<>();
+        List<Field> all = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            List<Field> declared = new ArrayList<>();
+            for (Field field : c.getDeclaredFields()) {
+                int mod = field.getModifiers();
+                if (Modifier.isStatic(mod) || field.isSynthetic() || field.isAnnotationPresent(ExcelIgnore.class)) {
+                    continue;
+                }
+                declared.add(field);
+                if (field.isAnnotationPresent(ExcelProperty.class)) {
+                    annotated.add(field);
+                }
+            }
+            // 父类字段排在前面
+            all.addAll(0, declared);
+        }
+        if (annotated.isEmpty()) {
+            return all;
+        }
+        List<Field> ordered = new ArrayList<>();
+        for (Field field : all) {
+            if (annotated.contains(field)) {
+                ordered.add(field);
+            }
+        }
+        // 稳定排序: 未指定 index(-1) 的列保持声明顺序并排在最后
+        ordered.sort(Comparator.comparingInt(f -> {
+            int index = f.getAnnotation(ExcelProperty.class).index();
+            return index < 0 ? Integer.MAX_VALUE : index;
+        }));
+        return ordered;
+    }
+
+    private static List<String> headerOf(Field field) {
+        ExcelProperty property = field.getAnnotation(ExcelProperty.class);
+        if (property != null && property.value().length > 0 && !property.value()[0].isEmpty()) {
+            return Arrays.asList(property.value());
+        }
+        return Collections.singletonList(field.getName());
+    }
+
+    private static MethodHandle enumLabel(Class<?> enumType) {
+        try {
+            Method method = enumType.getMethod("getDescription");
+            if (method.getReturnType() != String.class) {
+                return null;
+            }
+            return MethodHandles.publicLookup().unreflect(method)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private enum CellKind {
+        PLAIN, DATE_TIME, DATE, TEMPORAL, ENUM;
+
+        static CellKind of(Class<?> fieldType) {
+            if (fieldType == LocalDateTime.class) {
+                return DATE_TIME;
+            }
+            if (fieldType == LocalDate.class) {
+                return DATE;
+            }
+            if (TemporalAccessor.class.isAssignableFrom(fieldType)) {
+                return TEMPORAL;
+            }
+            if (fieldType.isEnum()) {
+                return ENUM;
+            }
+            return PLAIN;
+        }
+    }
+}
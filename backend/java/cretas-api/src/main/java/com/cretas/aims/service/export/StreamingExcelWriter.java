@@ -0,0 +1,135 @@
+package com.cretas.aims.service.export;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
+import com.alibaba.excel.write.style.column.SimpleColumnWidthStyleStrategy;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 流式 Excel 写入器
+ *
+ * 基于 EasyExcel 的非内存模式（SXSSF，行写出后即刷到临时文件），按页追加数据，
+ * 已写出的行不在堆上保留。单个 Sheet 达到行数上限后自动续写到 "名称(2)"、"名称(3)"...
+ * 不关闭目标输出流，由调用方负责。
+ *
+ * 非线程安全，一个实例只由一个线程使用。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-02-02
+ */
+public class StreamingExcelWriter implements Closeable {
+
+    /** xlsx 单 Sheet 最大行数 1,048,576，预留表头行 */
+    public static final int XLSX_MAX_DATA_ROWS = 1_048_575;
+
+    private final ExcelWriter excelWriter;
+    private final int maxRowsPerSheet;
+
+    private int sheetNo = 0;
+    private WriteSheet currentSheet;
+    private String baseName;
+    private List<List<String>> currentHead;
+    private int sheetPart;
+    private int rowsInSheet;
+    private long rowsWritten;
+    private boolean closed;
+
+    public StreamingExcelWriter(OutputStream out) {
+        this(out, XLSX_MAX_DATA_ROWS);
+    }
+
+    public StreamingExcelWriter(OutputStream out, int maxRowsPerSheet) {
+        if (maxRowsPerSheet <= 0 || maxRowsPerSheet > XLSX_MAX_DATA_ROWS) {
+            throw new IllegalArgumentException("maxRowsPerSheet 超出范围: " + maxRowsPerSheet);
+        }
+        this.maxRowsPerSheet = maxRowsPerSheet;
+        this.excelWriter = EasyExcel.write(out)
+                .autoCloseStream(false)
+                .inMemory(false)
+                .registerWriteHandler(new SimpleColumnWidthStyleStrategy(18))
+                .build();
+    }
+
+    /**
+     * 开始一个新的 Sheet，之后 {@link #append} 的数据写入该 Sheet
+     */
+    public void startSheet(String name, List<List<String>> head) {
+        this.baseName = name;
+        this.currentHead = head;
+        this.sheetPart = 1;
+        openSheet(name);
+    }
+
+    /**
+     * 写入一个完整的小 Sheet（如汇总指标）
+     */
+    public void writeSheet(String name, List<List<String>> head, List<List<Object>> rows) {
+        startSheet(name, head);
+        append(rows);
+    }
+
+    /**
+     * 按行类型开始 Sheet，表头取自 {@link RowAccessor}
+     */
+    public void startSheet(String name, RowAccessor<?> accessor) {
+        startSheet(name, accessor.head());
+    }
+
+    /**
+     * 追加一页对象行
+     */
+    public <T> void append(List<? extends T> page, RowAccessor<T> accessor) {
+        append(accessor.toRows(page));
+    }
+
+    /**
+     * 追加一页单元格行，超出当前 Sheet 上限的部分写入续页 Sheet
+     */
+    public void append(List<List<Object>> rows) {
+        if (currentSheet == null) {
+            throw new IllegalStateException("未调用 startSheet");
+        }
+        int from = 0;
+        while (from < rows.size()) {
+            if (rowsInSheet >= maxRowsPerSheet) {
+                sheetPart++;
+                openSheet(baseName + "(" + sheetPart + ")");
+            }
+            int to = Math.min(rows.size(), from + (maxRowsPerSheet - rowsInSheet));
+            List<List<Object>> chunk = from == 0 && to == rows.size() ? rows : rows.subList(from, to);
+            excelWriter.write(chunk, currentSheet);
+            rowsInSheet += chunk.size();
+            rowsWritten += chunk.size();
+            from = to;
+        }
+        if (rows.isEmpty() && rowsInSheet == 0) {
+            // 空 Sheet 也要输出表头
+            excelWriter.write(rows, currentSheet);
+        }
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    private void openSheet(String name) {
+        currentSheet = EasyExcel.writerSheet(sheetNo++, name).head(currentHead).build();
+        rowsInSheet = 0;
+    }
+
+    /**
+     * 完成工作簿（写出 xlsx 尾部并清理 SXSSF 临时文件）
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            excelWriter.finish();
+        }
+    }
+}
@@ -36,7 +36,10 @@ import com.cretas.aims.service.TwoStageIntentClassifier;
 import com.cretas.aims.service.SemanticRouterService;
 import com.cretas.aims.service.LongTextHandler;
 import com.cretas.aims.service.RAGRetrievalService;
+import com.cretas.aims.service.intent.IntentLayerExecutor;
+import com.cretas.aims.service.intent.IntentLayerExecutor.LayerRace;
 import com.cretas.aims.service.intent.IntentPreprocessor;
+import com.cretas.aims.service.RequestScopedEmbeddingCache;
 import com.cretas.aims.service.SemanticIntentMatcher;
 import com.cretas.aims.service.ClassifierIntentMatcher;
 import com.cretas.aims.service.IntentDisambiguationService;
@@ -66,6 +69,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -259,6 +263,27 @@ public class AIIntentServiceImpl implements AIIntentService {
                 disambiguationService != null ? "成功" : "未配置");
     }
 
+    /**
+     * 分层投机并行执行器
+     * 分类器与语义路由在请求早期并行启动，按原有顺序和置信度规则消费结果
+     */
+    private IntentLayerExecutor layerExecutor;
+
+    @Autowired(required = false)
+    public void setLayerExecutor(IntentLayerExecutor layerExecutor) {
+        this.layerExecutor = layerExecutor;
+    }
+
+    /**
+     * 请求级 Embedding 缓存，用于接收并行语义路由层已计算的向量
+     */
+    private RequestScopedEmbeddingCache requestScopedCache;
+
+    @Autowired(required = false)
+    public void setRequestScopedCache(RequestScopedEmbeddingCache requestScopedCache) {
+        this.requestScopedCache = requestScopedCache;
+    }
+
     /**
      * 是否启用查询预处理
      */
@@ -315,6 +340,11 @@ public class AIIntentServiceImpl implements AIIntentService {
      */
     private static final ThreadLocal<ClassifierResult> onnxFallbackResultHolder = new ThreadLocal<>();
 
+    /**
+     * 当前请求的并行层上下文，请求结束时取消未消费的层并清理
+     */
+    private static final ThreadLocal<LayerRace> layerRaceHolder = new ThreadLocal<>();
+
     // Wave-7c: 过滤口语填充词前缀，提升短语匹配命中率
     private static final Pattern FILLER_WORDS_PREFIX_PATTERN = Pattern.compile(
             "^(?:嗯+|呃+|额+|哦+|哎+|喂+|啊+|呀+|那个+|这个+|就是+|所以+|然后+" +
@@ -469,6 +499,17 @@ public class AIIntentServiceImpl implements AIIntentService {
     @Override
     public IntentMatchResult recognizeIntentWithConfidence(String userInput, String factoryId, int topN,
                                                            Long userId, String userRole, String sessionId) {
+        try {
+            return recognizeIntentWithLayers(userInput, factoryId, topN, userId, userRole, sessionId);
+        } finally {
+            finishLayerRace(null);
+            layerRaceHolder.remove();
+            onnxFallbackResultHolder.remove();
+        }
+    }
+
+    private IntentMatchResult recognizeIntentWithLayers(String userInput, String factoryId, int topN,
+                                                        Long userId, String userRole, String sessionId) {
         if (userInput == null || userInput.trim().isEmpty()) {
             return IntentMatchResult.empty(userInput);
         }
@@ -742,8 +783,14 @@ public class AIIntentServiceImpl implements AIIntentService {
 
         // ========== v11.5: 短语匹配优先短路 + 实体-意图冲突检测 ==========
         // 只有明确的单意图输入才走短语短路
+        Optional<String> earlyPhraseMatch = skipPhraseShortcut ? Optional.empty()
+                : knowledgeBase.matchPhrase(filterFillerWordsForPhrase(userInput), businessDomain);
+
+        // ========== 分层投机并行: 分类器 + 语义路由提前启动 ==========
+        startSpeculativeLayers(userInput, processedInput, factoryId, topN,
+                skipPhraseShortcut || earlyPhraseMatch.isPresent());
+
         if (!skipPhraseShortcut) {
-            Optional<String> earlyPhraseMatch = knowledgeBase.matchPhrase(filterFillerWordsForPhrase(userInput), businessDomain);
             if (earlyPhraseMatch.isPresent()) {
                 String matchedIntentCode = earlyPhraseMatch.get();
 
@@ -899,7 +946,7 @@ public class AIIntentServiceImpl implements AIIntentService {
         if (!oodDetected && classifierEnabled && classifierIntentMatcher != null && classifierIntentMatcher.isAvailable()
                 && !skipPhraseShortcut) {
             try {
-                Optional<ClassifierResult> classifierResult = classifierIntentMatcher.classify(processedInput);
+                Optional<ClassifierResult> classifierResult = awaitClassifierLayer(processedInput, userInput);
 
                 if (classifierResult.isPresent()) {
                     ClassifierResult result = classifierResult.get();
@@ -984,6 +1031,7 @@ public class AIIntentServiceImpl implements AIIntentService {
 
                             log.info("v16.0 CLASSIFIER_DIRECT: intent={}, confidence={}, saved LLM call",
                                     result.getIntentCode(), String.format("%.4f", result.getConfidence()));
+                            finishLayerRace(IntentLayerExecutor.LAYER_CLASSIFIER);
 
                             return attachTiming(applyNegationConversion(classifierMatchResult, enhancedResult, factoryId), startTimeMs, preprocessEndMs);
                         }
@@ -1004,6 +1052,7 @@ public class AIIntentServiceImpl implements AIIntentService {
         // ========== v35.0: OOD 兜底流程 ==========
         // OOD 输入先尝试 phrase match 挽救，否则路由到 GENERIC_AI_CHAT
         if (oodDetected) {
+            finishLayerRace(null);
             // 尝试 phrase match 挽救
             Optional<String> oodPhraseMatch = knowledgeBase.matchPhrase(
                     filterFillerWordsForPhrase(userInput), businessDomain);
@@ -1096,9 +1145,7 @@ public class AIIntentServiceImpl implements AIIntentService {
                     }
                 }
 
-                RouteDecision routeDecision = (bertHintIntents != null)
-                        ? semanticRouterService.route(factoryId, processedInput, topN, bertHintIntents)
-                        : semanticRouterService.route(factoryId, processedInput, topN);
+                RouteDecision routeDecision = awaitSemanticRouterLayer(factoryId, processedInput, topN, bertHintIntents);
 
                 if (routeDecision != null) {
                     log.info("v11.0 SemanticRouter: type={}, score={}, intent={}, latency={}ms",
@@ -1179,6 +1226,7 @@ public class AIIntentServiceImpl implements AIIntentService {
                                     routeDecision.getBestMatchIntentCode(),
                                     routeDecision.getTopScore(),
                                     estimateLLMSavings());
+                            finishLayerRace(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER);
 
                             return attachTiming(applyNegationConversion(directResult, enhancedResult, factoryId), startTimeMs, preprocessEndMs);
                         }
@@ -1228,6 +1276,7 @@ public class AIIntentServiceImpl implements AIIntentService {
                             log.info("v11.0 NEED_RERANKING completed: intent={}, finalScore={}",
                                     rerankingResult.getBestMatch().getIntentCode(),
                                     rerankingResult.getConfidence());
+                            finishLayerRace(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER);
 
                             return attachTiming(applyNegationConversion(rerankingResult, enhancedResult, factoryId), startTimeMs, preprocessEndMs);
                             } // end Wave-8 else (not reranking black hole)
@@ -1287,6 +1336,142 @@ public class AIIntentServiceImpl implements AIIntentService {
         return attachTiming(result, startTimeMs, preprocessEndMs);
     }
 
+    // ==================== 分层投机并行 ====================
+
+    /**
+     * 在请求早期并行启动分类器与语义路由
+     *
+     * 两层互不依赖，提前启动后按完成先后竞争高置信度结果；短语命中的输入通常直接短路 (由调用方复用
+     * 已算出的短语匹配结果判断)，不做投机以免浪费调用。短文本 (<=2 字) 会被 OOD 防护跳过分类器与语义路由，同样不启动。
+     */
+    private void startSpeculativeLayers(String userInput, String processedInput, String factoryId, int topN,
+                                        boolean skipSpeculation) {
+        if (layerExecutor == null || !layerExecutor.isEnabled() || skipSpeculation
+                || userInput.trim().length() <= 2) {
+            return;
+        }
+
+        LayerRace race = layerExecutor.start();
+        String input = processedInput;
+        if (classifierEnabled && classifierIntentMatcher != null && classifierIntentMatcher.isAvailable()) {
+            race.submit(IntentLayerExecutor.LAYER_CLASSIFIER, () -> classifierIntentMatcher.classify(input).orElse(null));
+        }
+        if (semanticRouterEnabled && semanticRouterService.isAvailable()) {
+            race.submit(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER, () -> {
+                try {
+                    RouteDecision decision = semanticRouterService.route(factoryId, input, topN);
+                    return new SpeculativeRoute(decision,
+                            requestScopedCache != null ? requestScopedCache.snapshot() : Collections.emptyMap());
+                } finally {
+                    // 工作线程复用，必须清理其 ThreadLocal 缓存
+                    if (requestScopedCache != null) {
+                        requestScopedCache.clear();
+                    }
+                }
+            });
+        }
+        layerRaceHolder.set(race);
+    }
+
+    /**
+     * 获取分类器结果：优先使用已并行启动的结果，否则同步调用
+     *
+     * 并行时先按完成先后竞争：语义路由先给出可直接执行的结果时分类器被取消，此处返回空，主流程直接进入语义路由分支。
+     */
+    private Optional<ClassifierResult> awaitClassifierLayer(String processedInput, String userInput) {
+        LayerRace race = layerRaceHolder.get();
+        if (race != null) {
+            race.awaitFirstConfident(layerConfidenceChecks(userInput));
+        }
+        Optional<ClassifierResult> result = race != null && race.has(IntentLayerExecutor.LAYER_CLASSIFIER)
+                ? race.await(IntentLayerExecutor.LAYER_CLASSIFIER)
+                : classifierIntentMatcher.classify(processedInput);
+        if (layerExecutor != null) {
+            result.ifPresent(r -> layerExecutor.observeConfidence(IntentLayerExecutor.LAYER_CLASSIFIER, r.getConfidence()));
+        }
+        return result;
+    }
+
+    /**
+     * 各并行层的"可直接采用"判定，与主流程的短路规则一致
+     *
+     * 分类器：高置信度 (或 BERT 优先意图 >= 0.5)，以及 OOD/OUT_OF_DOMAIN 结论都会终止后续层；
+     * 语义路由：DIRECT_EXECUTE。
+     */
+    private Map<String, Predicate<Object>> layerConfidenceChecks(String userInput) {
+        Map<String, Predicate<Object>> checks = new HashMap<>();
+        checks.put(IntentLayerExecutor.LAYER_CLASSIFIER, value -> {
+            ClassifierResult r = (ClassifierResult) value;
+            return "OUT_OF_DOMAIN".equals(r.getIntentCode())
+                    || isLikelyOOD(r, userInput)
+                    || r.getConfidence() >= classifierHighConfidenceThreshold
+                    || (matchingConfig.isBertPrimaryIntent(r.getIntentCode()) && r.getConfidence() >= 0.5);
+        });
+        checks.put(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER, value -> {
+            RouteDecision decision = ((SpeculativeRoute) value).decision;
+            return decision != null && decision.canDirectExecute();
+        });
+        return checks;
+    }
+
+    /**
+     * 获取语义路由结果
+     *
+     * 并行路由没有 BERT 候选提示，提示存在时复用其已算好的向量，在提示集合内按原规则重新打分；
+     * 预算耗尽时返回 null，由后续流程兜底。
+     */
+    private RouteDecision awaitSemanticRouterLayer(String factoryId, String processedInput, int topN,
+                                                   Set<String> bertHintIntents) {
+        LayerRace race = layerRaceHolder.get();
+        if (race != null && race.has(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER)) {
+            Optional<SpeculativeRoute> speculative = race.await(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER);
+            if (speculative.isPresent()) {
+                if (requestScopedCache != null) {
+                    speculative.get().embeddings.forEach(requestScopedCache::put);
+                }
+                if (bertHintIntents == null) {
+                    RouteDecision decision = speculative.get().decision;
+                    if (decision != null && layerExecutor != null) {
+                        layerExecutor.observeConfidence(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER, decision.getTopScore());
+                    }
+                    return decision;
+                }
+            } else if (race.remainingMs() == 0) {
+                return null;
+            }
+        }
+        RouteDecision decision = bertHintIntents != null
+                ? semanticRouterService.route(factoryId, processedInput, topN, bertHintIntents)
+                : semanticRouterService.route(factoryId, processedInput, topN);
+        if (decision != null && layerExecutor != null) {
+            layerExecutor.observeConfidence(IntentLayerExecutor.LAYER_SEMANTIC_ROUTER, decision.getTopScore());
+        }
+        return decision;
+    }
+
+    /**
+     * 结束当前请求的并行层：记录胜出层，取消其余仍在运行的层
+     */
+    private void finishLayerRace(String winner) {
+        LayerRace race = layerRaceHolder.get();
+        if (race != null) {
+            race.finish(winner);
+        }
+    }
+
+    /**
+     * 并行语义路由结果及其在工作线程中计算的向量
+     */
+    private static final class SpeculativeRoute {
+        final RouteDecision decision;
+        final Map<String, float[]> embeddings;
+
+        SpeculativeRoute(RouteDecision decision, Map<String, float[]> embeddings) {
+            this.decision = decision;
+            this.embeddings = embeddings;
+        }
+    }
+
     /**
      * 为意图匹配结果附加各阶段耗时信息
      */
@@ -9,6 +9,7 @@ import com.cretas.aims.entity.conversation.ConversationMemory.EntitySlotData;
 import com.cretas.aims.entity.conversation.ConversationMemory.MessageData;
 import com.cretas.aims.repository.conversation.ConversationMemoryRepository;
 import com.cretas.aims.service.ConversationMemoryService;
+import com.cretas.aims.service.impl.ConversationSessionStore.SessionData;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -26,6 +27,9 @@ import java.util.stream.Collectors;
  *
  * 实现对话上下文管理、实体槽位跟踪、指代消解等功能
  *
+ * 会话状态由 {@link ConversationSessionStore} 在内存中维护，单轮对话内的多次读写不再逐次访问数据库，
+ * 脏会话由热存储批量写回。
+ *
  * @author Cretas Team
  * @version 1.0.0
  * @since 2026-01-15
@@ -35,6 +39,7 @@ import java.util.stream.Collectors;
 public class ConversationMemoryServiceImpl implements ConversationMemoryService {
 
     private final ConversationMemoryRepository memoryRepository;
+    private final ConversationSessionStore sessionStore;
     private final DashScopeClient dashScopeClient;
 
     /**
@@ -102,8 +107,10 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     @Autowired
     public ConversationMemoryServiceImpl(
             ConversationMemoryRepository memoryRepository,
+            ConversationSessionStore sessionStore,
             @Autowired(required = false) DashScopeClient dashScopeClient) {
         this.memoryRepository = memoryRepository;
+        this.sessionStore = sessionStore;
         this.dashScopeClient = dashScopeClient;
     }
 
@@ -112,44 +119,46 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     public ConversationContext getOrCreateContext(String factoryId, Long userId, String sessionId) {
         log.debug("获取或创建对话上下文: factoryId={}, userId={}, sessionId={}", factoryId, userId, sessionId);
 
-        ConversationMemory memory;
-        boolean isNew = false;
-
         if (sessionId != null && !sessionId.isEmpty()) {
             // 根据 sessionId 查找
-            Optional<ConversationMemory> existingOpt = memoryRepository.findBySessionId(sessionId);
-            if (existingOpt.isPresent()) {
-                memory = existingOpt.get();
-                memory.touch();
-            } else {
-                // sessionId 不存在，创建新的
-                memory = createNewMemory(factoryId, userId, sessionId);
-                isNew = true;
+            Optional<ConversationContext> existing = touchAndBuild(sessionId);
+            if (existing.isPresent()) {
+                return existing.get();
             }
-        } else {
-            // 查找用户最近的活跃会话
-            Optional<ConversationMemory> existingOpt = memoryRepository.findLatestActiveByFactoryIdAndUserId(factoryId, userId);
-            if (existingOpt.isPresent()) {
-                memory = existingOpt.get();
-                // 检查是否过期
-                if (isSessionExpired(memory)) {
-                    // 过期，创建新会话
-                    memory.softDelete();
-                    memoryRepository.save(memory);
-                    memory = createNewMemory(factoryId, userId, null);
-                    isNew = true;
-                } else {
-                    memory.touch();
+            // sessionId 不存在，创建新的
+            return buildContext(sessionStore.insert(createNewMemory(factoryId, userId, sessionId)), true);
+        }
+
+        // 查找用户最近的活跃会话
+        Optional<String> latestSessionId = sessionStore.findLatestActive(factoryId, userId);
+        if (latestSessionId.isPresent()) {
+            String latest = latestSessionId.get();
+            // 检查是否过期
+            boolean expired = sessionStore.read(latest, this::isSessionExpired).orElse(true);
+            if (!expired) {
+                Optional<ConversationContext> existing = touchAndBuild(latest);
+                if (existing.isPresent()) {
+                    return existing.get();
                 }
             } else {
-                memory = createNewMemory(factoryId, userId, null);
-                isNew = true;
+                // 过期，创建新会话
+                sessionStore.invalidate(latest);
+                memoryRepository.softDeleteBySessionId(latest, LocalDateTime.now());
             }
         }
+        return buildContext(sessionStore.insert(createNewMemory(factoryId, userId, null)), true);
+    }
 
-        memoryRepository.save(memory);
-
-        return buildContext(memory, isNew);
+    /**
+     * 刷新会话活跃时间并构建上下文
+     */
+    private Optional<ConversationContext> touchAndBuild(String sessionId) {
+        ConversationContext[] holder = new ConversationContext[1];
+        boolean found = sessionStore.update(sessionId, memory -> {
+            memory.touch();
+            holder[0] = buildContext(memory, false);
+        });
+        return found ? Optional.of(holder[0]) : Optional.empty();
     }
 
     @Override
@@ -157,13 +166,13 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     public void updateEntitySlot(String sessionId, EntitySlot.SlotType type, EntitySlot slot) {
         log.debug("更新实体槽位: sessionId={}, type={}, slot={}", sessionId, type, slot);
 
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
+        boolean found = sessionStore.update(sessionId, memory -> putEntitySlot(memory, type, slot));
+        if (!found) {
             log.warn("会话不存在: {}", sessionId);
-            return;
         }
+    }
 
-        ConversationMemory memory = memoryOpt.get();
+    private void putEntitySlot(SessionData memory, EntitySlot.SlotType type, EntitySlot slot) {
         Map<String, EntitySlotData> slots = memory.getEntitySlots();
         if (slots == null) {
             slots = new HashMap<>();
@@ -189,26 +198,18 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
         slots.put(type.name(), slotData);
         memory.setEntitySlots(slots);
         memory.touch();
-
-        memoryRepository.save(memory);
     }
 
     @Override
     @Transactional(readOnly = true)
     public EntitySlot getEntitySlot(String sessionId, EntitySlot.SlotType type) {
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
-            return null;
-        }
-
-        ConversationMemory memory = memoryOpt.get();
-        Map<String, EntitySlotData> slots = memory.getEntitySlots();
-        if (slots == null || !slots.containsKey(type.name())) {
-            return null;
-        }
-
-        EntitySlotData slotData = slots.get(type.name());
-        return convertToEntitySlot(slotData);
+        return sessionStore.read(sessionId, memory -> {
+            Map<String, EntitySlotData> slots = memory.getEntitySlots();
+            if (slots == null || !slots.containsKey(type.name())) {
+                return null;
+            }
+            return convertToEntitySlot(slots.get(type.name()));
+        }).orElse(null);
     }
 
     @Override
@@ -220,13 +221,8 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
             return referenceText;
         }
 
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
-            return referenceText;
-        }
-
-        ConversationMemory memory = memoryOpt.get();
-        Map<String, EntitySlotData> slots = memory.getEntitySlots();
+        Map<String, EntitySlotData> slots = sessionStore.read(sessionId, memory ->
+                memory.getEntitySlots() != null ? new HashMap<>(memory.getEntitySlots()) : null).orElse(null);
         if (slots == null || slots.isEmpty()) {
             return referenceText;
         }
@@ -263,21 +259,6 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     public void addMessage(String sessionId, ConversationMessage message) {
         log.debug("添加消息: sessionId={}, role={}", sessionId, message.getRole());
 
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
-            log.warn("会话不存在: {}", sessionId);
-            return;
-        }
-
-        ConversationMemory memory = memoryOpt.get();
-
-        // 获取现有消息列表
-        List<MessageData> messages = memory.getRecentMessages();
-        if (messages == null) {
-            messages = new ArrayList<>();
-        }
-
-        // 添加新消息
         MessageData messageData = MessageData.builder()
                 .role(message.getRole().name().toLowerCase())
                 .content(message.getContent())
@@ -285,27 +266,27 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
                 .intentCode(message.getIntentCode())
                 .metadata(message.getMetadata())
                 .build();
-        messages.add(messageData);
 
-        // 滑动窗口：保留最近 windowSize * 2 条消息（用户+助手各算一条）
-        int maxMessages = windowSize * 2;
-        if (messages.size() > maxMessages) {
-            messages = new ArrayList<>(messages.subList(messages.size() - maxMessages, messages.size()));
-        }
+        boolean[] needsSummary = new boolean[1];
+        boolean found = sessionStore.update(sessionId, memory -> {
+            // 滑动窗口：保留最近 windowSize * 2 条消息（用户+助手各算一条）
+            ConversationSessionStore.appendMessage(memory, messageData, windowSize * 2);
+            memory.incrementMessageCount();
+            memory.touch();
 
-        memory.setRecentMessages(messages);
-        memory.incrementMessageCount();
-        memory.touch();
-
-        // 更新最后意图
-        if (message.getIntentCode() != null && !message.getIntentCode().isEmpty()) {
-            memory.setLastIntentCode(message.getIntentCode());
+            // 更新最后意图
+            if (message.getIntentCode() != null && !message.getIntentCode().isEmpty()) {
+                memory.setLastIntentCode(message.getIntentCode());
+            }
+            needsSummary[0] = memory.needsSummaryUpdate();
+        });
+        if (!found) {
+            log.warn("会话不存在: {}", sessionId);
+            return;
         }
 
-        memoryRepository.save(memory);
-
         // 检查是否需要更新摘要
-        if (memory.needsSummaryUpdate()) {
+        if (needsSummary[0]) {
             updateSummary(sessionId);
         }
     }
@@ -313,22 +294,18 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     @Override
     @Transactional(readOnly = true)
     public List<ConversationMessage> getRecentMessages(String sessionId, int limit) {
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        ConversationMemory memory = memoryOpt.get();
-        List<MessageData> messages = memory.getRecentMessages();
-        if (messages == null || messages.isEmpty()) {
-            return Collections.emptyList();
-        }
+        return sessionStore.read(sessionId, memory -> {
+            List<MessageData> messages = memory.getRecentMessages();
+            if (messages == null || messages.isEmpty()) {
+                return Collections.<ConversationMessage>emptyList();
+            }
 
-        // 获取最后 limit 条消息
-        int start = Math.max(0, messages.size() - limit);
-        return messages.subList(start, messages.size()).stream()
-                .map(this::convertToConversationMessage)
-                .collect(Collectors.toList());
+            // 获取最后 limit 条消息
+            int start = Math.max(0, messages.size() - limit);
+            return messages.subList(start, messages.size()).stream()
+                    .map(this::convertToConversationMessage)
+                    .collect(Collectors.toList());
+        }).orElse(Collections.emptyList());
     }
 
     @Override
@@ -336,13 +313,6 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     public void updateSummary(String sessionId) {
         log.info("更新对话摘要: sessionId={}", sessionId);
 
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
-            return;
-        }
-
-        ConversationMemory memory = memoryOpt.get();
-
         // 如果 DashScope 不可用，跳过摘要更新
         if (dashScopeClient == null || !dashScopeClient.isAvailable()) {
             log.debug("DashScope 不可用，跳过摘要更新");
@@ -350,19 +320,25 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
         }
 
         try {
-            // 构建要摘要的内容
-            StringBuilder conversationHistory = new StringBuilder();
-            List<MessageData> messages = memory.getRecentMessages();
-            if (messages != null) {
-                for (MessageData msg : messages) {
-                    String role = "user".equals(msg.getRole()) ? "用户" : "助手";
-                    conversationHistory.append(role).append(": ").append(msg.getContent()).append("\n");
+            // 构建要摘要的内容（在会话锁内取快照，LLM 调用期间不持有锁）
+            Optional<String> history = sessionStore.read(sessionId, memory -> {
+                StringBuilder conversationHistory = new StringBuilder();
+                List<MessageData> messages = memory.getRecentMessages();
+                if (messages != null) {
+                    for (MessageData msg : messages) {
+                        String role = "user".equals(msg.getRole()) ? "用户" : "助手";
+                        conversationHistory.append(role).append(": ").append(msg.getContent()).append("\n");
+                    }
                 }
-            }
 
-            // 如果已有摘要，也包含进去
-            if (memory.getConversationSummary() != null && !memory.getConversationSummary().isEmpty()) {
-                conversationHistory.insert(0, "之前的摘要: " + memory.getConversationSummary() + "\n\n最近对话:\n");
+                // 如果已有摘要，也包含进去
+                if (memory.getConversationSummary() != null && !memory.getConversationSummary().isEmpty()) {
+                    conversationHistory.insert(0, "之前的摘要: " + memory.getConversationSummary() + "\n\n最近对话:\n");
+                }
+                return conversationHistory.toString();
+            });
+            if (history.isEmpty()) {
+                return;
             }
 
             // 调用 LLM 生成摘要
@@ -370,13 +346,13 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
                     "保留关键信息（如提到的批次号、供应商、客户、时间范围等）。" +
                     "摘要应该在 100 字以内。只输出摘要内容，不要有其他说明。";
 
-            String summary = dashScopeClient.chat(systemPrompt, conversationHistory.toString());
+            String summary = dashScopeClient.chat(systemPrompt, history.get());
 
             // 更新摘要
-            memory.setConversationSummary(summary.trim());
-            memory.setSummaryUpdatedAt(LocalDateTime.now());
-
-            memoryRepository.save(memory);
+            sessionStore.update(sessionId, memory -> {
+                memory.setConversationSummary(summary.trim());
+                memory.setSummaryUpdatedAt(LocalDateTime.now());
+            });
             log.info("摘要更新完成: sessionId={}", sessionId);
 
         } catch (Exception e) {
@@ -387,12 +363,10 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     @Override
     @Transactional(readOnly = true)
     public String buildContextForLLM(String sessionId) {
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
-            return "";
-        }
+        return sessionStore.read(sessionId, this::buildContextForLLM).orElse("");
+    }
 
-        ConversationMemory memory = memoryOpt.get();
+    private String buildContextForLLM(SessionData memory) {
         StringBuilder context = new StringBuilder();
 
         // 1. 添加实体槽位信息
@@ -435,34 +409,32 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     @Transactional
     public void clearSession(String sessionId) {
         log.info("清除会话: sessionId={}", sessionId);
+        sessionStore.invalidate(sessionId);
         memoryRepository.softDeleteBySessionId(sessionId, LocalDateTime.now());
     }
 
     @Override
     @Transactional
     public void updateLastIntent(String sessionId, String intentCode) {
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        if (memoryOpt.isEmpty()) {
-            return;
-        }
-
-        ConversationMemory memory = memoryOpt.get();
-        memory.setLastIntentCode(intentCode);
-        memory.touch();
-        memoryRepository.save(memory);
+        sessionStore.update(sessionId, memory -> {
+            memory.setLastIntentCode(intentCode);
+            memory.touch();
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
     public ConversationContext getContext(String sessionId) {
-        Optional<ConversationMemory> memoryOpt = memoryRepository.findBySessionId(sessionId);
-        return memoryOpt.map(memory -> buildContext(memory, false)).orElse(null);
+        return sessionStore.read(sessionId, memory -> buildContext(memory, false)).orElse(null);
     }
 
     @Override
     @Transactional
     public int expireOldSessions(int expireMinutes) {
         LocalDateTime expireTime = LocalDateTime.now().minusMinutes(expireMinutes);
+        // 先写回内存中的活跃时间，再批量过期
+        sessionStore.flush();
+        sessionStore.evictInactiveBefore(expireTime);
         int count = memoryRepository.expireOldSessions(expireTime, LocalDateTime.now());
         if (count > 0) {
             log.info("已过期 {} 个旧会话", count);
@@ -491,7 +463,7 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     /**
      * 检查会话是否过期
      */
-    private boolean isSessionExpired(ConversationMemory memory) {
+    private boolean isSessionExpired(SessionData memory) {
         if (memory.getLastActiveAt() == null) {
             return false;
         }
@@ -501,7 +473,7 @@ public class ConversationMemoryServiceImpl implements ConversationMemoryService
     /**
      * 构建对话上下文
      */
-    private ConversationContext buildContext(ConversationMemory memory, boolean isNew) {
+    private ConversationContext buildContext(SessionData memory, boolean isNew) {
         // 转换实体槽位
         Map<EntitySlot.SlotType, EntitySlot> entitySlots = new HashMap<>();
         if (memory.getEntitySlots() != null) {
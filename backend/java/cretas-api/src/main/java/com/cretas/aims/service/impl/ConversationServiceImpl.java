@@ -17,10 +17,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Flow;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -47,6 +50,10 @@ public class ConversationServiceImpl implements ConversationService {
     private final ExpressionLearningService learningService;
     private final DashScopeClient dashScopeClient;
     private final ObjectMapper objectMapper;
+    /**
+     * 流式轮次结束时在独立事务中落库
+     */
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${cretas.ai.conversation.max-rounds:5}")
     private int maxRounds;
@@ -62,27 +69,20 @@ public class ConversationServiceImpl implements ConversationService {
             ConversationSessionRepository sessionRepository,
             AIIntentConfigRepository intentConfigRepository,
             @Autowired(required = false) ExpressionLearningService learningService,
-            @Autowired(required = false) DashScopeClient dashScopeClient) {
+            @Autowired(required = false) DashScopeClient dashScopeClient,
+            PlatformTransactionManager transactionManager) {
         this.sessionRepository = sessionRepository;
         this.intentConfigRepository = intentConfigRepository;
         this.learningService = learningService;
         this.dashScopeClient = dashScopeClient;
         this.objectMapper = new ObjectMapper();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     @Transactional
     public ConversationResponse startConversation(String factoryId, Long userId, String userInput) {
-        log.info("开始多轮对话: factory={}, user={}, input={}",
-                factoryId, userId, truncate(userInput, 50));
-
-        // 取消之前的活跃会话
-        sessionRepository.cancelActiveSessionsForUser(factoryId, userId, LocalDateTime.now());
-
-        // 创建新会话
-        ConversationSession session = ConversationSession.create(factoryId, userId, userInput);
-        session.setMaxRounds(maxRounds);
-        session.setTimeoutMinutes(timeoutMinutes);
+        ConversationSession session = createSession(factoryId, userId, userInput);
 
         // 获取可用意图列表
         List<AIIntentConfig> availableIntents = getAvailableIntents(factoryId);
@@ -90,21 +90,27 @@ public class ConversationServiceImpl implements ConversationService {
         // 调用 LLM 生成初始响应
         LlmConversationResult llmResult = callLlmForConversation(session, userInput, availableIntents);
 
-        // 更新会话
-        session.addAssistantMessage(llmResult.getMessage());
-        session.setCandidates(llmResult.getCandidates());
-        session.setLastConfidence(llmResult.getConfidence());
+        return completeRound(session, llmResult, true);
+    }
 
-        // 检查是否已经可以确定意图
-        if (llmResult.isIntentConfirmed() && llmResult.getConfidence() >= confidenceThreshold) {
-            session.complete(llmResult.getIntentCode(), llmResult.getConfidence());
-            log.info("首轮对话即确定意图: session={}, intent={}, confidence={}",
-                    session.getSessionId(), llmResult.getIntentCode(), llmResult.getConfidence());
-        }
+    @Override
+    @Transactional
+    public StreamingTurn startConversationStreaming(String factoryId, Long userId, String userInput) {
+        ConversationSession session = createSession(factoryId, userId, userInput);
+        return streamLlmRound(session, userInput, getAvailableIntents(factoryId), true);
+    }
 
-        sessionRepository.save(session);
+    /**
+     * 创建新会话（未保存）；用户之前的活跃会话在首轮落库时取消，流式首轮中途断开不影响原会话
+     */
+    private ConversationSession createSession(String factoryId, Long userId, String userInput) {
+        log.info("开始多轮对话: factory={}, user={}, input={}",
+                factoryId, userId, truncate(userInput, 50));
 
-        return buildResponse(session, llmResult);
+        ConversationSession session = ConversationSession.create(factoryId, userId, userInput);
+        session.setMaxRounds(maxRounds);
+        session.setTimeoutMinutes(timeoutMinutes);
+        return session;
     }
 
     @Override
@@ -166,8 +172,48 @@ public class ConversationServiceImpl implements ConversationService {
     public ConversationResponse continueConversation(String sessionId, String userReply) {
         log.info("继续多轮对话: session={}, reply={}", sessionId, truncate(userReply, 50));
 
-        Optional<ConversationSession> optSession = sessionRepository.findById(sessionId);
-        if (optSession.isEmpty()) {
+        ConversationSession session = sessionRepository.findById(sessionId).orElse(null);
+        ConversationResponse invalid = checkSession(sessionId, session);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        // 根据会话模式分发处理
+        if (session.isParameterCollectionMode()) {
+            return continueParameterCollection(session, userReply);
+        } else {
+            return continueIntentRecognition(session, userReply);
+        }
+    }
+
+    @Override
+    @Transactional
+    public StreamingTurn continueConversationStreaming(String sessionId, String userReply) {
+        log.info("流式继续多轮对话: session={}, reply={}", sessionId, truncate(userReply, 50));
+
+        ConversationSession session = sessionRepository.findById(sessionId).orElse(null);
+        ConversationResponse invalid = checkSession(sessionId, session);
+        if (invalid != null) {
+            return StreamingTurn.of(invalid);
+        }
+
+        // 参数收集使用结构化提取，不流式输出
+        if (session.isParameterCollectionMode()) {
+            return StreamingTurn.of(continueParameterCollection(session, userReply));
+        }
+
+        ConversationResponse immediate = beginIntentRound(session, userReply);
+        if (immediate != null) {
+            return StreamingTurn.of(immediate);
+        }
+        return streamLlmRound(session, userReply, getAvailableIntents(session.getFactoryId()), false);
+    }
+
+    /**
+     * 检查会话是否可以继续，不能继续时返回对应响应
+     */
+    private ConversationResponse checkSession(String sessionId, ConversationSession session) {
+        if (session == null) {
             log.warn("会话不存在: {}", sessionId);
             return ConversationResponse.builder()
                     .sessionId(sessionId)
@@ -177,8 +223,6 @@ public class ConversationServiceImpl implements ConversationService {
                     .build();
         }
 
-        ConversationSession session = optSession.get();
-
         // 检查会话状态
         if (session.isExpired()) {
             session.timeout();
@@ -199,13 +243,7 @@ public class ConversationServiceImpl implements ConversationService {
                     .message(getStatusMessage(session.getStatus()))
                     .build();
         }
-
-        // 根据会话模式分发处理
-        if (session.isParameterCollectionMode()) {
-            return continueParameterCollection(session, userReply);
-        } else {
-            return continueIntentRecognition(session, userReply);
-        }
+        return null;
     }
 
     /**
@@ -292,6 +330,24 @@ public class ConversationServiceImpl implements ConversationService {
      * 继续意图识别对话 (原有逻辑)
      */
     private ConversationResponse continueIntentRecognition(ConversationSession session, String userReply) {
+        ConversationResponse immediate = beginIntentRound(session, userReply);
+        if (immediate != null) {
+            return immediate;
+        }
+
+        // 获取可用意图
+        List<AIIntentConfig> availableIntents = getAvailableIntents(session.getFactoryId());
+
+        // 调用 LLM 继续对话
+        LlmConversationResult llmResult = callLlmForConversation(session, userReply, availableIntents);
+
+        return completeRound(session, llmResult, false);
+    }
+
+    /**
+     * 开始新一轮意图识别：记录用户回复，处理直接确认和最大轮次；需要调用 LLM 时返回 null
+     */
+    private ConversationResponse beginIntentRound(ConversationSession session, String userReply) {
         // 添加用户消息
         session.addUserMessage(userReply);
 
@@ -320,13 +376,17 @@ public class ConversationServiceImpl implements ConversationService {
                     .message("对话已达最大轮次，无法确定您的意图。请尝试更清晰地描述您的需求。")
                     .build();
         }
+        return null;
+    }
 
-        // 获取可用意图
-        List<AIIntentConfig> availableIntents = getAvailableIntents(session.getFactoryId());
-
-        // 调用 LLM 继续对话
-        LlmConversationResult llmResult = callLlmForConversation(session, userReply, availableIntents);
-
+    /**
+     * 根据 LLM 结果更新会话、保存并生成响应
+     *
+     * @param firstRound 是否首轮（首轮保存前取消用户之前的活跃会话，确定意图时不触发学习）
+     */
+    private ConversationResponse completeRound(ConversationSession session,
+                                               LlmConversationResult llmResult,
+                                               boolean firstRound) {
         // 更新会话
         session.addAssistantMessage(llmResult.getMessage());
         session.setCandidates(llmResult.getCandidates());
@@ -335,14 +395,23 @@ public class ConversationServiceImpl implements ConversationService {
         // 检查是否确定意图
         if (llmResult.isIntentConfirmed() && llmResult.getConfidence() >= confidenceThreshold) {
             session.complete(llmResult.getIntentCode(), llmResult.getConfidence());
-            log.info("多轮对话确定意图: session={}, round={}, intent={}, confidence={}",
-                    session.getSessionId(), session.getCurrentRound(),
-                    llmResult.getIntentCode(), llmResult.getConfidence());
-
-            // 触发学习
-            learnFromSession(session);
+            if (firstRound) {
+                log.info("首轮对话即确定意图: session={}, intent={}, confidence={}",
+                        session.getSessionId(), llmResult.getIntentCode(), llmResult.getConfidence());
+            } else {
+                log.info("多轮对话确定意图: session={}, round={}, intent={}, confidence={}",
+                        session.getSessionId(), session.getCurrentRound(),
+                        llmResult.getIntentCode(), llmResult.getConfidence());
+
+                // 触发学习
+                learnFromSession(session);
+            }
         }
 
+        if (firstRound) {
+            // 取消之前的活跃会话，与新会话在同一事务中提交
+            sessionRepository.cancelActiveSessionsForUser(session.getFactoryId(), session.getUserId(), LocalDateTime.now());
+        }
         sessionRepository.save(session);
 
         return buildResponse(session, llmResult);
@@ -470,12 +539,7 @@ public class ConversationServiceImpl implements ConversationService {
 
             // 构建系统提示词
             String systemPrompt = buildConversationSystemPrompt(relevantIntents, session);
-
-            // 构建对话历史
-            String conversationHistory = session.buildConversationHistory();
-            String userMessage = conversationHistory.isEmpty()
-                    ? userInput
-                    : conversationHistory + "用户: " + userInput;
+            String userMessage = buildLlmUserMessage(session, userInput);
 
             // R2+R4: 使用 fastModel (flash) 并记录耗时
             long t0 = System.currentTimeMillis();
@@ -494,6 +558,55 @@ public class ConversationServiceImpl implements ConversationService {
         }
     }
 
+    /**
+     * 以流式方式调用 LLM：返回 token 流和结束时的落库回调；LLM 不可用时直接完成本轮
+     */
+    private StreamingTurn streamLlmRound(ConversationSession session,
+                                         String userInput,
+                                         List<AIIntentConfig> availableIntents,
+                                         boolean firstRound) {
+        if (dashScopeClient == null || !dashScopeClient.isAvailable()) {
+            log.warn("DashScope 不可用，使用默认响应");
+            return StreamingTurn.of(completeRound(session, generateDefaultResponse(availableIntents), firstRound));
+        }
+
+        List<AIIntentConfig> relevantIntents = filterRelevantIntents(availableIntents, userInput, 25);
+        String systemPrompt = buildConversationSystemPrompt(relevantIntents, session);
+        String userMessage = buildLlmUserMessage(session, userInput);
+
+        Flow.Publisher<String> tokens;
+        try {
+            tokens = dashScopeClient.streamChatFast(systemPrompt, userMessage);
+        } catch (Exception e) {
+            log.error("LLM 流式调用创建失败: {}", e.getMessage(), e);
+            return StreamingTurn.of(completeRound(session, generateDefaultResponse(availableIntents), firstRound));
+        }
+
+        long t0 = System.currentTimeMillis();
+        return StreamingTurn.builder()
+                .tokens(tokens)
+                .finisher(fullText -> {
+                    log.info("Conv LLM 流式调用: model=flash, intents={}/{}, promptLen={}, elapsed={}ms, ok={}",
+                            relevantIntents.size(), availableIntents.size(),
+                            systemPrompt.length(), System.currentTimeMillis() - t0, fullText != null);
+                    LlmConversationResult llmResult = fullText != null
+                            ? parseLlmResponse(fullText, availableIntents)
+                            : generateDefaultResponse(availableIntents);
+                    return transactionTemplate.execute(status -> completeRound(session, llmResult, firstRound));
+                })
+                .build();
+    }
+
+    /**
+     * 拼接对话历史和本轮用户输入
+     */
+    private String buildLlmUserMessage(ConversationSession session, String userInput) {
+        String conversationHistory = session.buildConversationHistory();
+        return conversationHistory.isEmpty()
+                ? userInput
+                : conversationHistory + "用户: " + userInput;
+    }
+
     /**
      * R2: 按关键词相关性过滤意图，减少 prompt token 数
      * 从全量意图中筛选与用户输入最相关的 top-N 个
@@ -0,0 +1,607 @@
+package com.cretas.aims.service.impl;
+
+import com.cretas.aims.entity.conversation.ConversationMemory;
+import com.cretas.aims.entity.conversation.ConversationMemory.MessageData;
+import com.cretas.aims.repository.conversation.ConversationMemoryRepository;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 对话会话热存储（写回模式）
+ *
+ * 以 sessionId 为键在内存中保存会话快照 {@link SessionData}（从数据库行复制出的普通对象，不持有 JPA 实体），
+ * 同一轮对话中的多次读写都在内存完成，仅在未命中时从数据库恢复。被修改的会话标记为脏，由定时任务按批次写回：
+ * 一个批次只做一次 findAllById 和一组批量 UPDATE，多次修改合并为一次写入。
+ *
+ * 在事务内的修改先作用于本事务私有的工作副本，事务提交后才按顺序重放到共享快照上，回滚则直接丢弃，
+ * 因此一个事务方法内的多步修改对其他请求要么全部可见、要么全部不可见。
+ *
+ * 依赖网关按 sessionId 做会话亲和路由；会话按空闲时间和总数淘汰，淘汰前必须已写回。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-29
+ */
+@Slf4j
+@Component
+public class ConversationSessionStore {
+
+    private final ConversationMemoryRepository memoryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int flushBatchSize;
+    private final long idleMillis;
+    private final int maxSessions;
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    /**
+     * factoryId:userId -> 该用户最近访问的 sessionId
+     */
+    private final Map<String, String> latestByUser = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<SessionState> dirtyQueue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushBatches = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rolledBack = new AtomicLong();
+
+    public ConversationSessionStore(
+            ConversationMemoryRepository memoryRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${cretas.ai.memory.store.flush-batch-size:100}") int flushBatchSize,
+            @Value("${cretas.ai.memory.store.idle-minutes:30}") int idleMinutes,
+            @Value("${cretas.ai.memory.store.max-sessions:5000}") int maxSessions) {
+        this.memoryRepository = memoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // 写回使用独立事务，不受调用方事务回滚影响
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushBatchSize = flushBatchSize;
+        this.idleMillis = TimeUnit.MINUTES.toMillis(idleMinutes);
+        this.maxSessions = maxSessions;
+    }
+
+    // ==================== 读写 ====================
+
+    /**
+     * 在会话锁内读取
+     *
+     * @return 读取结果; 会话不存在时返回 Optional.empty()
+     */
+    public <T> Optional<T> read(String sessionId, Function<SessionData, T> reader) {
+        PendingSession pending = pendingSession(sessionId);
+        if (pending != null) {
+            return Optional.ofNullable(reader.apply(pending.working));
+        }
+        return readCommitted(sessionId, reader);
+    }
+
+    private <T> Optional<T> readCommitted(String sessionId, Function<SessionData, T> reader) {
+        while (true) {
+            SessionState state = get(sessionId);
+            if (state == null) {
+                return Optional.empty();
+            }
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.lastAccessMillis = System.currentTimeMillis();
+                return Optional.ofNullable(reader.apply(state.data));
+            }
+        }
+    }
+
+    /**
+     * 在会话锁内修改并标记为脏, 由后台批量写回
+     *
+     * 存在活动事务时修改先记录在事务私有的工作副本上, 提交后生效
+     *
+     * @return 会话是否存在
+     */
+    public boolean update(String sessionId, Consumer<SessionData> mutator) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            return updateInTransaction(sessionId, mutator);
+        }
+        return applyNow(sessionId, Collections.singletonList(mutator));
+    }
+
+    private boolean applyNow(String sessionId, List<Consumer<SessionData>> mutators) {
+        while (true) {
+            SessionState state = get(sessionId);
+            if (state == null) {
+                return false;
+            }
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                for (Consumer<SessionData> mutator : mutators) {
+                    mutator.accept(state.data);
+                }
+                markDirty(state);
+                return true;
+            }
+        }
+    }
+
+    private boolean updateInTransaction(String sessionId, Consumer<SessionData> mutator) {
+        Map<String, PendingSession> pending = pendingSessions();
+        PendingSession session = pending.get(sessionId);
+        if (session == null) {
+            Optional<SessionData> current = readCommitted(sessionId, SessionData::copy);
+            if (current.isEmpty()) {
+                return false;
+            }
+            session = new PendingSession(current.get());
+            pending.put(sessionId, session);
+        }
+        mutator.accept(session.working);
+        session.mutators.add(mutator);
+        return true;
+    }
+
+    private PendingSession pendingSession(String sessionId) {
+        if (sessionId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, PendingSession> pending = (Map<String, PendingSession>) TransactionSynchronizationManager.getResource(this);
+        return pending != null ? pending.get(sessionId) : null;
+    }
+
+    /**
+     * 当前事务的工作副本, 首次使用时注册提交/回滚回调
+     */
+    private Map<String, PendingSession> pendingSessions() {
+        @SuppressWarnings("unchecked")
+        Map<String, PendingSession> pending = (Map<String, PendingSession>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Map<String, PendingSession> created = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ConversationSessionStore.this);
+                if (status != STATUS_COMMITTED) {
+                    rolledBack.addAndGet(created.size());
+                    return;
+                }
+                // 重放到最新快照上, 不覆盖其他请求在此期间的修改
+                created.forEach((sessionId, session) -> applyNow(sessionId, session.mutators));
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 向会话消息日志追加一条消息, 仅保留最近 maxMessages 条
+     */
+    public static void appendMessage(SessionData data, MessageData message, int maxMessages) {
+        List<MessageData> messages = data.getRecentMessages();
+        if (messages == null) {
+            messages = new ArrayList<>();
+            data.setRecentMessages(messages);
+        }
+        messages.add(message);
+        if (messages.size() > maxMessages) {
+            messages.subList(0, messages.size() - maxMessages).clear();
+        }
+    }
+
+    /**
+     * 新建的会话立即插入以获得主键, 之后进入热存储 (存在活动事务时在提交后进入)
+     *
+     * @return 新会话的快照
+     */
+    public SessionData insert(ConversationMemory memory) {
+        SessionData data = SessionData.from(memoryRepository.save(memory));
+        writes.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            SessionData committed = data.copy();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache(committed);
+                }
+            });
+        } else {
+            cache(data.copy());
+        }
+        return data;
+    }
+
+    /**
+     * 用户最近的活跃会话, 优先使用本实例中最近访问的会话
+     */
+    public Optional<String> findLatestActive(String factoryId, Long userId) {
+        String sessionId = latestByUser.get(userKey(factoryId, userId));
+        if (sessionId != null && sessions.containsKey(sessionId)) {
+            hits.incrementAndGet();
+            return Optional.of(sessionId);
+        }
+        misses.incrementAndGet();
+        return memoryRepository.findLatestActiveByFactoryIdAndUserId(factoryId, userId)
+                .map(memory -> cache(SessionData.from(memory)).data.getSessionId());
+    }
+
+    /**
+     * 移除会话且不写回 (会话已被删除)
+     */
+    public void invalidate(String sessionId) {
+        SessionState state = sessions.get(sessionId);
+        if (state != null) {
+            synchronized (state) {
+                evict(state);
+            }
+        }
+    }
+
+    private SessionState get(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            return null;
+        }
+        SessionState state = sessions.get(sessionId);
+        if (state != null) {
+            hits.incrementAndGet();
+            return state;
+        }
+        misses.incrementAndGet();
+        return memoryRepository.findBySessionId(sessionId).map(memory -> cache(SessionData.from(memory))).orElse(null);
+    }
+
+    private SessionState cache(SessionData data) {
+        SessionState state = sessions.computeIfAbsent(data.getSessionId(), k -> new SessionState(data));
+        latestByUser.put(userKey(data.getFactoryId(), data.getUserId()), data.getSessionId());
+        return state;
+    }
+
+    private void markDirty(SessionState state) {
+        state.version++;
+        state.lastAccessMillis = System.currentTimeMillis();
+        latestByUser.put(userKey(state.data.getFactoryId(), state.data.getUserId()), state.data.getSessionId());
+        if (!state.dirty) {
+            state.dirty = true;
+            dirtyQueue.add(state);
+        }
+    }
+
+    private void evict(SessionState state) {
+        state.evicted = true;
+        String sessionId = state.data.getSessionId();
+        sessions.remove(sessionId, state);
+        latestByUser.remove(userKey(state.data.getFactoryId(), state.data.getUserId()), sessionId);
+        evictions.incrementAndGet();
+    }
+
+    private static String userKey(String factoryId, Long userId) {
+        return factoryId + ":" + userId;
+    }
+
+    // ==================== 写回 ====================
+
+    /**
+     * 定时写回脏会话并淘汰空闲会话
+     */
+    @Scheduled(fixedDelayString = "${cretas.ai.memory.store.flush-interval-ms:2000}")
+    public void scheduledFlush() {
+        flush();
+        evictIdle();
+    }
+
+    /**
+     * 按批次写回所有脏会话
+     *
+     * @return 写回的会话数
+     */
+    public synchronized int flush() {
+        int flushed = 0;
+        List<Snapshot> batch = new ArrayList<>(flushBatchSize);
+        SessionState state;
+        while ((state = dirtyQueue.poll()) != null) {
+            synchronized (state) {
+                if (!state.dirty || state.evicted) {
+                    continue;
+                }
+                batch.add(new Snapshot(state));
+            }
+            if (batch.size() >= flushBatchSize) {
+                flushed += writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushed += writeBatch(batch);
+        }
+        return flushed;
+    }
+
+    private int writeBatch(List<Snapshot> batch) {
+        Set<Long> persisted;
+        try {
+            persisted = transactionTemplate.execute(status -> {
+                List<Long> ids = batch.stream().map(s -> s.id).collect(Collectors.toList());
+                Map<Long, ConversationMemory> managed = new HashMap<>();
+                for (ConversationMemory memory : memoryRepository.findAllById(ids)) {
+                    managed.put(memory.getId(), memory);
+                }
+                for (Snapshot snapshot : batch) {
+                    ConversationMemory target = managed.get(snapshot.id);
+                    if (target != null) {
+                        snapshot.data.applyTo(target);
+                    }
+                }
+                return new HashSet<>(managed.keySet());
+            });
+        } catch (RuntimeException e) {
+            flushFailures.incrementAndGet();
+            log.warn("会话写回失败, 下次重试: batch={}, error={}", batch.size(), e.getMessage());
+            dirtyQueue.addAll(batch.stream().map(s -> s.state).collect(Collectors.toList()));
+            return 0;
+        }
+
+        flushBatches.incrementAndGet();
+        writes.incrementAndGet();
+        int written = 0;
+        for (Snapshot snapshot : batch) {
+            SessionState state = snapshot.state;
+            synchronized (state) {
+                if (persisted == null || !persisted.contains(snapshot.id)) {
+                    // 数据库中已被删除或过期
+                    evict(state);
+                } else if (state.version == snapshot.version) {
+                    state.dirty = false;
+                    written++;
+                } else {
+                    dirtyQueue.add(state);
+                    written++;
+                }
+            }
+        }
+        flushedRows.addAndGet(written);
+        return written;
+    }
+
+    /**
+     * 淘汰空闲会话, 并在超出容量时按最近访问时间淘汰; 只淘汰已写回的会话
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (SessionState state : sessions.values()) {
+            synchronized (state) {
+                if (!state.dirty && !state.evicted && now - state.lastAccessMillis >= idleMillis) {
+                    evict(state);
+                }
+            }
+        }
+        int overflow = sessions.size() - maxSessions;
+        if (overflow <= 0) {
+            return;
+        }
+        List<SessionState> candidates = sessions.values().stream()
+                .sorted(Comparator.comparingLong(s -> s.lastAccessMillis))
+                .collect(Collectors.toList());
+        for (SessionState state : candidates) {
+            if (overflow <= 0) {
+                break;
+            }
+            synchronized (state) {
+                if (!state.dirty && !state.evicted) {
+                    evict(state);
+                    overflow--;
+                }
+            }
+        }
+    }
+
+    /**
+     * 淘汰最后活跃时间早于阈值的会话 (配合批量过期使用)
+     */
+    public void evictInactiveBefore(LocalDateTime threshold) {
+        for (SessionState state : sessions.values()) {
+            synchronized (state) {
+                LocalDateTime lastActive = state.data.getLastActiveAt();
+                if (lastActive != null && lastActive.isBefore(threshold)) {
+                    evict(state);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int flushed = flush();
+        log.info("会话热存储关闭, 写回 {} 个会话", flushed);
+    }
+
+    // ==================== 内部结构 ====================
+
+    /**
+     * 单个会话的热状态, 所有访问都在其监视器锁内进行
+     */
+    private static final class SessionState {
+        final SessionData data;
+        long version;
+        boolean dirty;
+        boolean evicted;
+        volatile long lastAccessMillis = System.currentTimeMillis();
+
+        SessionState(SessionData data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * 事务内的工作副本及按顺序记录的修改, 提交后重放
+     */
+    private static final class PendingSession {
+        final SessionData working;
+        final List<Consumer<SessionData>> mutators = new ArrayList<>();
+
+        PendingSession(SessionData working) {
+            this.working = working;
+        }
+    }
+
+    /**
+     * 写回时的会话快照, 在会话锁内生成, 在锁外写库
+     */
+    private static final class Snapshot {
+        final SessionState state;
+        final Long id;
+        final long version;
+        final SessionData data;
+
+        Snapshot(SessionState state) {
+            this.state = state;
+            this.id = state.data.getId();
+            this.version = state.version;
+            this.data = state.data.copy();
+        }
+    }
+
+    /**
+     * 会话状态快照 (普通对象, 非 JPA 实体)
+     *
+     * 从数据库行复制而来, 集合字段各自持有副本; 写回时再复制到当次事务内加载的 {@link ConversationMemory} 上。
+     */
+    @Getter
+    @Setter
+    public static final class SessionData {
+        private Long id;
+        private String factoryId;
+        private Long userId;
+        private String sessionId;
+        private Map<String, ConversationMemory.EntitySlotData> entitySlots;
+        private List<MessageData> recentMessages;
+        private String conversationSummary;
+        private LocalDateTime summaryUpdatedAt;
+        private Map<String, Object> userPreferences;
+        private Integer messageCount;
+        private String lastIntentCode;
+        private LocalDateTime lastActiveAt;
+
+        static SessionData from(ConversationMemory m) {
+            SessionData d = new SessionData();
+            d.id = m.getId();
+            d.factoryId = m.getFactoryId();
+            d.userId = m.getUserId();
+            d.sessionId = m.getSessionId();
+            d.entitySlots = m.getEntitySlots() != null ? new HashMap<>(m.getEntitySlots()) : null;
+            d.recentMessages = m.getRecentMessages() != null ? new ArrayList<>(m.getRecentMessages()) : null;
+            d.conversationSummary = m.getConversationSummary();
+            d.summaryUpdatedAt = m.getSummaryUpdatedAt();
+            d.userPreferences = m.getUserPreferences() != null ? new HashMap<>(m.getUserPreferences()) : null;
+            d.messageCount = m.getMessageCount();
+            d.lastIntentCode = m.getLastIntentCode();
+            d.lastActiveAt = m.getLastActiveAt();
+            return d;
+        }
+
+        SessionData copy() {
+            SessionData d = new SessionData();
+            d.id = id;
+            d.factoryId = factoryId;
+            d.userId = userId;
+            d.sessionId = sessionId;
+            d.entitySlots = entitySlots != null ? new HashMap<>(entitySlots) : null;
+            d.recentMessages = recentMessages != null ? new ArrayList<>(recentMessages) : null;
+            d.conversationSummary = conversationSummary;
+            d.summaryUpdatedAt = summaryUpdatedAt;
+            d.userPreferences = userPreferences != null ? new HashMap<>(userPreferences) : null;
+            d.messageCount = messageCount;
+            d.lastIntentCode = lastIntentCode;
+            d.lastActiveAt = lastActiveAt;
+            return d;
+        }
+
+        void applyTo(ConversationMemory target) {
+            target.setEntitySlots(entitySlots);
+            target.setRecentMessages(recentMessages);
+            target.setConversationSummary(conversationSummary);
+            target.setSummaryUpdatedAt(summaryUpdatedAt);
+            target.setUserPreferences(userPreferences);
+            target.setMessageCount(messageCount);
+            target.setLastIntentCode(lastIntentCode);
+            target.setLastActiveAt(lastActiveAt);
+        }
+
+        /**
+         * 更新最后活跃时间
+         */
+        public void touch() {
+            this.lastActiveAt = LocalDateTime.now();
+        }
+
+        /**
+         * 增加消息计数
+         */
+        public void incrementMessageCount() {
+            this.messageCount = messageCount == null ? 1 : messageCount + 1;
+        }
+
+        /**
+         * 是否需要更新摘要, 规则同 {@link ConversationMemory#needsSummaryUpdate()}
+         */
+        public boolean needsSummaryUpdate() {
+            if (messageCount == null || messageCount <= 10) {
+                return false;
+            }
+            return summaryUpdatedAt == null || messageCount > 15;
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hit = hits.get();
+        long miss = misses.get();
+        stats.put("sessions", sessions.size());
+        stats.put("dirty", dirtyQueue.size());
+        stats.put("hits", hit);
+        stats.put("misses", miss);
+        stats.put("hitRate", hit + miss == 0 ? 0.0 : (double) hit / (hit + miss));
+        stats.put("dbWrites", writes.get());
+        stats.put("flushBatches", flushBatches.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("evictions", evictions.get());
+        stats.put("rolledBackSessions", rolledBack.get());
+        return stats;
+    }
+}
@@ -35,6 +35,7 @@ import com.cretas.aims.repository.UserRepository;
 import com.cretas.aims.repository.WhitelistRepository;
 import com.cretas.aims.service.MobileService;
 import com.cretas.aims.service.OssService;
+import com.cretas.aims.service.PersonnelAggregateService;
 import com.cretas.aims.service.TempTokenService;
 import com.cretas.aims.utils.JwtUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -83,6 +84,7 @@ public class MobileServiceImpl implements MobileService {
     private final TimeClockRecordRepository timeClockRecordRepository;
     private final QualityInspectionRepository qualityInspectionRepository;
     private final ProductionBatchRepository productionBatchRepository;
+    private final PersonnelAggregateService personnelAggregateService;
 
     // 设备告警相关Repository
     private final EquipmentAlertRepository equipmentAlertRepository;
@@ -356,33 +358,14 @@ public class MobileServiceImpl implements MobileService {
 
         // ========== 查询今日统计数据 (2025-11-20 新增) ==========
         LocalDate today = LocalDate.now();
-        LocalDateTime startOfDay = today.atStartOfDay();
-        LocalDateTime endOfDay = today.plusDays(1).atStartOfDay();
 
-        // 1. 今日产量（千克）- 使用quantity字段，只统计已完成的批次
-        Double todayOutputKg = productionBatchRepository
-                .findByFactoryIdAndCreatedAtBetween(factoryId, startOfDay, endOfDay)
-                .stream()
-                .filter(batch -> batch.getStatus() == ProductionBatchStatus.COMPLETED)
-                .filter(batch -> batch.getQuantity() != null)
-                .mapToDouble(batch -> batch.getQuantity().doubleValue())
-                .sum();
-
-        // 2. 总批次数
-        Long totalBatchesLong = productionBatchRepository.countByFactoryId(factoryId);
-        Integer totalBatches = totalBatchesLong != null ? totalBatchesLong.intValue() : 0;
-
-        // 3. 总工人数
-        Long totalWorkersLong = userRepository.countByFactoryId(factoryId);
-        Integer totalWorkers = totalWorkersLong != null ? totalWorkersLong.intValue() : 0;
-
-        // 4. 活跃设备数 (状态为RUNNING)
-        Long activeEquipmentLong = equipmentRepository.countByFactoryIdAndStatus(factoryId, "RUNNING");
-        Integer activeEquipment = activeEquipmentLong != null ? activeEquipmentLong.intValue() : 0;
-
-        // 5. 总设备数
-        Long totalEquipmentLong = equipmentRepository.countByFactoryId(factoryId);
-        Integer totalEquipment = totalEquipmentLong != null ? totalEquipmentLong.intValue() : 0;
+        // 今日产量（已完成批次quantity之和）、总批次、总工人、设备数在数据库端一次聚合，按工厂短时缓存
+        PersonnelAggregateService.DashboardCounts counts = personnelAggregateService.getDashboardCounts(factoryId, today);
+        Double todayOutputKg = counts.getTodayOutputKg();
+        Integer totalBatches = counts.getTotalBatches();
+        Integer totalWorkers = counts.getTotalWorkers();
+        Integer activeEquipment = counts.getActiveEquipment();
+        Integer totalEquipment = counts.getTotalEquipment();
 
         log.debug("今日统计: 产量={}kg, 批次={}, 工人={}, 设备={}/{}",
                 todayOutputKg, totalBatches, totalWorkers, activeEquipment, totalEquipment);
@@ -1050,35 +1033,15 @@ public class MobileServiceImpl implements MobileService {
     public MobileDTO.PersonnelStatistics getPersonnelStatistics(String factoryId, String startDate, String endDate) {
         log.info("获取人员统计: factoryId={}, startDate={}, endDate={}", factoryId, startDate, endDate);
 
-        // 获取工厂所有用户
-        List<User> allUsers = userRepository.findByFactoryId(factoryId);
-        int totalEmployees = allUsers.size();
-
         // 解析日期范围（如果提供）
         LocalDate start = startDate != null ? LocalDate.parse(startDate) : LocalDate.now().minusMonths(1);
         LocalDate end = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
 
-        // 转换为LocalDateTime范围
-        LocalDateTime startDateTime = start.atStartOfDay();
-        LocalDateTime endDateTime = end.plusDays(1).atStartOfDay();
-
-        // 从time_clock_record表批量查询实际考勤数据（避免N+1查询问题）
-        // 提取所有用户ID
-        List<Long> userIds = allUsers.stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
-
-        // 使用批量查询方法一次性获取所有用户的考勤记录
-        List<TimeClockRecord> allRecords = userIds.isEmpty()
-                ? new ArrayList<>()
-                : timeClockRecordRepository.findByFactoryIdAndUserIdInAndClockDateBetween(
-                        factoryId, userIds, startDateTime, endDateTime);
-
-        // 统计实际出勤人数（在日期范围内有打卡记录的人数）
-        Set<Long> presentUserIds = allRecords.stream()
-                .map(TimeClockRecord::getUserId)
-                .collect(Collectors.toSet());
-        int totalPresent = presentUserIds.size();
+        // 人数、部门数、出勤人数、总工时在数据库端聚合，不再加载全部用户和打卡记录
+        PersonnelAggregateService.PersonnelSummary summary = personnelAggregateService.getPersonnelSummary(
+                factoryId, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
+        int totalEmployees = summary.getTotalEmployees();
+        int totalPresent = summary.getPresentEmployees();
 
         // 缺勤人数
         int totalAbsent = totalEmployees - totalPresent;
@@ -1088,18 +1051,10 @@ public class MobileServiceImpl implements MobileService {
                 ? ((double) totalPresent / totalEmployees) * 100
                 : 0.0;
 
-        // 统计活跃部门数（有员工的部门）
-        long activeDepartments = allUsers.stream()
-                .map(User::getDepartment)
-                .filter(dept -> dept != null && !dept.isEmpty())
-                .distinct()
-                .count();
+        int activeDepartments = summary.getActiveDepartments();
 
-        // 计算实际总工时（分钟转小时）
-        double totalWorkMinutes = allRecords.stream()
-                .mapToDouble(record -> record.getWorkDurationMinutes() != null ? record.getWorkDurationMinutes() : 0.0)
-                .sum();
-        double totalWorkHours = totalWorkMinutes / 60.0;
+        // 总工时（分钟转小时）
+        double totalWorkHours = summary.getTotalWorkMinutes() / 60.0;
 
         // 计算平均每人工时
         double avgWorkHoursPerEmployee = totalEmployees > 0
@@ -1118,7 +1073,7 @@ public class MobileServiceImpl implements MobileService {
                 .totalPresent(totalPresent)
                 .totalAbsent(totalAbsent)
                 .avgAttendanceRate(avgAttendanceRate)
-                .activeDepartments((int) activeDepartments)
+                .activeDepartments(activeDepartments)
                 .totalWorkHours(totalWorkHours)
                 .avgWorkHoursPerEmployee(avgWorkHoursPerEmployee)
                 .expiringContractsCount((int) expiringContracts)
@@ -1137,77 +1092,34 @@ public class MobileServiceImpl implements MobileService {
         LocalDateTime startDateTime = start.atStartOfDay();
         LocalDateTime endDateTime = end.plusDays(1).atStartOfDay();
 
-        // 获取工厂所有激活用户
-        List<User> activeUsers = userRepository.findByFactoryIdAndIsActive(factoryId, true);
-
-        // 批量查询所有用户的打卡记录（避免N+1查询问题）
-        List<Long> userIds = activeUsers.stream()
-                .map(User::getId)
-                .collect(Collectors.toList());
-
-        List<TimeClockRecord> allRecords = userIds.isEmpty()
-                ? new ArrayList<>()
-                : timeClockRecordRepository.findByFactoryIdAndUserIdInAndClockDateBetween(
-                        factoryId, userIds, startDateTime, endDateTime);
-
-        // 按用户ID分组
-        Map<Long, List<TimeClockRecord>> recordsByUser = allRecords.stream()
-                .collect(Collectors.groupingBy(TimeClockRecord::getUserId));
-
         // 计算日期范围内的总天数
         long totalDays = java.time.temporal.ChronoUnit.DAYS.between(start, end) + 1;
 
-        // 计算每个用户的工时数据
-        List<MobileDTO.WorkHoursRankingItem> ranking = new ArrayList<>();
-
-        for (User user : activeUsers) {
-            // 从Map中获取用户的打卡记录（O(1)查找）
-            List<TimeClockRecord> records = recordsByUser.getOrDefault(user.getId(), List.of());
-
-            if (records.isEmpty()) {
-                continue; // 没有打卡记录的用户不参与排行
-            }
-
-            // 计算总工时（分钟转小时）
-            double totalWorkMinutes = records.stream()
-                    .mapToDouble(r -> r.getWorkDurationMinutes() != null ? r.getWorkDurationMinutes() : 0.0)
-                    .sum();
-            double totalWorkHours = totalWorkMinutes / 60.0;
-
-            // 计算总加班时长（分钟转小时）
-            double totalOvertimeMinutes = records.stream()
-                    .mapToDouble(r -> r.getOvertimeMinutes() != null ? r.getOvertimeMinutes() : 0.0)
-                    .sum();
-            double totalOvertimeHours = totalOvertimeMinutes / 60.0;
-
-            // 统计出勤天数
-            int attendanceDays = records.size();
+        // 按工人分组求和并取前N名在数据库端完成，只返回前N名的聚合行
+        List<PersonnelAggregateService.WorkHoursAggregate> top = personnelAggregateService.getWorkHoursTop(
+                factoryId, startDateTime, endDateTime, limit);
 
+        List<MobileDTO.WorkHoursRankingItem> ranking = new ArrayList<>(top.size());
+        for (PersonnelAggregateService.WorkHoursAggregate row : top) {
             // 计算出勤率
             double attendanceRate = totalDays > 0
-                    ? ((double) attendanceDays / totalDays) * 100
+                    ? ((double) row.getAttendanceDays() / totalDays) * 100
                     : 0.0;
 
             ranking.add(MobileDTO.WorkHoursRankingItem.builder()
-                    .userId(user.getId())
-                    .userName(user.getFullName() != null ? user.getFullName() : user.getUsername())
-                    .departmentId(user.getDepartment())
-                    .departmentName(user.getDepartment() != null ? user.getDepartment() : "未分配")
-                    .totalWorkHours(totalWorkHours)
-                    .totalOvertimeHours(totalOvertimeHours)
-                    .attendanceDays(attendanceDays)
+                    .userId(row.getUserId())
+                    .userName(row.getFullName() != null ? row.getFullName() : row.getUsername())
+                    .departmentId(row.getDepartment())
+                    .departmentName(row.getDepartment() != null ? row.getDepartment() : "未分配")
+                    .totalWorkHours(row.getWorkMinutes() / 60.0)
+                    .totalOvertimeHours(row.getOvertimeMinutes() / 60.0)
+                    .attendanceDays(row.getAttendanceDays())
                     .attendanceRate(attendanceRate)
                     .build());
         }
 
-        // 按总工时降序排序
-        ranking.sort((a, b) -> Double.compare(b.getTotalWorkHours(), a.getTotalWorkHours()));
-
-        // 返回前N名
-        int resultSize = Math.min(limit, ranking.size());
-        log.info("工时排行计算完成: 共{}人, 返回前{}名", ranking.size(), resultSize);
-
-        return ranking.subList(0, resultSize);
+        log.info("工时排行计算完成: 返回前{}名", ranking.size());
+        return ranking;
     }
 
     @Override
@@ -1,7 +1,5 @@
 package com.cretas.aims.service.impl;
 
-import com.alibaba.excel.EasyExcel;
-import com.alibaba.excel.write.style.column.LongestMatchColumnWidthStyleStrategy;
 import com.cretas.aims.dto.report.DashboardStatisticsDTO;
 import com.cretas.aims.dto.report.ProductionByProductDTO;
 import com.itextpdf.text.BaseColor;
@@ -24,16 +22,21 @@ import com.cretas.aims.entity.QualityInspection;
 import com.cretas.aims.entity.TimeClockRecord;
 import com.cretas.aims.entity.enums.MaterialBatchStatus;
 import com.cretas.aims.entity.enums.ProductionPlanStatus;
+import com.cretas.aims.exception.BusinessException;
 import com.cretas.aims.repository.*;
 import com.cretas.aims.service.AIAnalysisService;
+import com.cretas.aims.service.DashboardSnapshotService;
+import com.cretas.aims.service.DashboardSnapshotService.Section;
 import com.cretas.aims.service.ProcessingService;
 import com.cretas.aims.service.ReportService;
+import com.cretas.aims.service.export.ReportExportService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -41,7 +44,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 /**
  * 报表统计服务实现
@@ -68,51 +70,45 @@ public class ReportServiceImpl implements ReportService {
     private final QualityInspectionRepository qualityInspectionRepository;
     private final ShipmentRecordRepository shipmentRecordRepository;
     private final TimeClockRecordRepository timeClockRecordRepository;
+    private final DashboardSnapshotService dashboardSnapshotService;
+    private final ReportExportService reportExportService;
+
+    /**
+     * 向仪表盘快照服务注册各分区的计算函数
+     */
+    @PostConstruct
+    public void registerDashboardSections() {
+        dashboardSnapshotService.registerLoader(Section.PRODUCTION, this::getProductionStatistics);
+        dashboardSnapshotService.registerLoader(Section.INVENTORY, this::getInventoryStatistics);
+        dashboardSnapshotService.registerLoader(Section.FINANCE, this::getFinanceStatistics);
+        dashboardSnapshotService.registerLoader(Section.PERSONNEL, this::getPersonnelStatistics);
+        dashboardSnapshotService.registerLoader(Section.EQUIPMENT, this::getEquipmentStatistics);
+        dashboardSnapshotService.registerLoader(Section.QUALITY, this::getQualityStatistics);
+        dashboardSnapshotService.registerLoader(Section.TREND, this::getTrendStatistics);
+        dashboardSnapshotService.registerLoader(Section.ALERTS, this::getAlerts);
+    }
+
     @Override
-    @Cacheable(value = "dashboardStats", key = "#factoryId", unless = "#result == null")
     public DashboardStatisticsDTO getDashboardStatistics(String factoryId) {
-        log.info("获取仪表盘统计数据（实时计算）: factoryId={}", factoryId);
         long startTime = System.currentTimeMillis();
 
         try {
-            // 并行异步计算各个统计模块
-            CompletableFuture<DashboardStatisticsDTO.ProductionStatistics> productionFuture =
-                    getProductionStatisticsAsync(factoryId);
-            CompletableFuture<DashboardStatisticsDTO.InventoryStatistics> inventoryFuture =
-                    getInventoryStatisticsAsync(factoryId);
-            CompletableFuture<DashboardStatisticsDTO.FinanceStatistics> financeFuture =
-                    getFinanceStatisticsAsync(factoryId);
-            CompletableFuture<DashboardStatisticsDTO.PersonnelStatistics> personnelFuture =
-                    getPersonnelStatisticsAsync(factoryId);
-            CompletableFuture<DashboardStatisticsDTO.EquipmentStatistics> equipmentFuture =
-                    getEquipmentStatisticsAsync(factoryId);
-            CompletableFuture<DashboardStatisticsDTO.QualityStatistics> qualityFuture =
-                    getQualityStatisticsAsync(factoryId);
-            CompletableFuture<DashboardStatisticsDTO.TrendStatistics> trendFuture =
-                    getTrendStatisticsAsync(factoryId);
-            CompletableFuture<List<DashboardStatisticsDTO.AlertInfo>> alertsFuture =
-                    getAlertsAsync(factoryId);
-
-            // 等待所有异步任务完成
-            CompletableFuture.allOf(
-                    productionFuture, inventoryFuture, financeFuture, personnelFuture,
-                    equipmentFuture, qualityFuture, trendFuture, alertsFuture
-            ).join();
-
-            // 组装结果
+            // 从快照读取, 只有失效的分区才重新计算
+            DashboardSnapshotService.Snapshot snapshot = dashboardSnapshotService.getSnapshot(factoryId);
             DashboardStatisticsDTO result = DashboardStatisticsDTO.builder()
-                    .productionStats(productionFuture.join())
-                    .inventoryStats(inventoryFuture.join())
-                    .financeStats(financeFuture.join())
-                    .personnelStats(personnelFuture.join())
-                    .equipmentStats(equipmentFuture.join())
-                    .qualityStats(qualityFuture.join())
-                    .trendStats(trendFuture.join())
-                    .alerts(alertsFuture.join())
+                    .productionStats(snapshot.get(Section.PRODUCTION))
+                    .inventoryStats(snapshot.get(Section.INVENTORY))
+                    .financeStats(snapshot.get(Section.FINANCE))
+                    .personnelStats(snapshot.get(Section.PERSONNEL))
+                    .equipmentStats(snapshot.get(Section.EQUIPMENT))
+                    .qualityStats(snapshot.get(Section.QUALITY))
+                    .trendStats(snapshot.get(Section.TREND))
+                    .alerts(snapshot.get(Section.ALERTS))
+                    .freshness(buildFreshness(snapshot))
                     .build();
 
-            long endTime = System.currentTimeMillis();
-            log.info("仪表盘统计数据计算完成: factoryId={}, 耗时={}ms", factoryId, endTime - startTime);
+            log.debug("仪表盘统计数据读取完成: factoryId={}, version={}, 耗时={}ms",
+                    factoryId, snapshot.getVersion(), System.currentTimeMillis() - startTime);
 
             return result;
         } catch (Exception e) {
@@ -122,6 +118,22 @@ public class ReportServiceImpl implements ReportService {
         }
     }
 
+    private DashboardStatisticsDTO.SnapshotFreshness buildFreshness(DashboardSnapshotService.Snapshot snapshot) {
+        Map<String, DashboardStatisticsDTO.SectionFreshness> sections = new LinkedHashMap<>();
+        snapshot.getSections().forEach((section, value) -> sections.put(section.name().toLowerCase(),
+                DashboardStatisticsDTO.SectionFreshness.builder()
+                        .version(value.getVersion())
+                        .computedAt(DashboardSnapshotService.Snapshot.toDateTime(value.getComputedAtMillis()))
+                        .ageMillis(snapshot.getGeneratedAtMillis() - value.getComputedAtMillis())
+                        .build()));
+        return DashboardStatisticsDTO.SnapshotFreshness.builder()
+                .version(snapshot.getVersion())
+                .generatedAt(DashboardSnapshotService.Snapshot.toDateTime(snapshot.getGeneratedAtMillis()))
+                .oldestComputedAt(DashboardSnapshotService.Snapshot.toDateTime(snapshot.getOldestComputedAtMillis()))
+                .sections(sections)
+                .build();
+    }
+
     /**
      * 降级方法：同步串行执行
      */
@@ -139,48 +151,6 @@ public class ReportServiceImpl implements ReportService {
                 .build();
     }
 
-    // ==================== 异步方法 ====================
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<DashboardStatisticsDTO.ProductionStatistics> getProductionStatisticsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getProductionStatistics(factoryId));
-    }
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<DashboardStatisticsDTO.InventoryStatistics> getInventoryStatisticsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getInventoryStatistics(factoryId));
-    }
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<DashboardStatisticsDTO.FinanceStatistics> getFinanceStatisticsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getFinanceStatistics(factoryId));
-    }
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<DashboardStatisticsDTO.PersonnelStatistics> getPersonnelStatisticsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getPersonnelStatistics(factoryId));
-    }
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<DashboardStatisticsDTO.EquipmentStatistics> getEquipmentStatisticsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getEquipmentStatistics(factoryId));
-    }
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<DashboardStatisticsDTO.QualityStatistics> getQualityStatisticsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getQualityStatistics(factoryId));
-    }
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<DashboardStatisticsDTO.TrendStatistics> getTrendStatisticsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getTrendStatistics(factoryId));
-    }
-
-    @Async("dashboardExecutor")
-    public CompletableFuture<List<DashboardStatisticsDTO.AlertInfo>> getAlertsAsync(String factoryId) {
-        return CompletableFuture.completedFuture(getAlerts(factoryId));
-    }
-
     // ==================== 原有同步方法 ====================
 
     private DashboardStatisticsDTO.ProductionStatistics getProductionStatistics(String factoryId) {
@@ -835,48 +805,16 @@ public class ReportServiceImpl implements ReportService {
     @Override
     public byte[] exportReportToExcel(String factoryId, String reportType, Map<String, Object> parameters) {
         log.info("导出Excel报表: factoryId={}, reportType={}", factoryId, reportType);
-        try {
-            // 解析日期参数
-            LocalDate startDate = parameters.containsKey("startDate") ?
-                    LocalDate.parse((String) parameters.get("startDate")) : LocalDate.now().minusDays(30);
-            LocalDate endDate = parameters.containsKey("endDate") ?
-                    LocalDate.parse((String) parameters.get("endDate")) : LocalDate.now();
-            // 获取报表数据
-            Map<String, Object> reportData = getCustomReport(factoryId, Map.of(
-                    "reportType", reportType,
-                    "startDate", startDate.toString(),
-                    "endDate", endDate.toString()
-            ));
-            // 转换为Excel数据格式
-            List<List<Object>> excelData = new ArrayList<>();
-            // 添加标题行
-            List<Object> headerRow = new ArrayList<>();
-            headerRow.add("指标名称");
-            headerRow.add("数值");
-            excelData.add(headerRow);
-            // 添加数据行
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = (Map<String, Object>) reportData.get("data");
-            if (data != null) {
-                for (Map.Entry<String, Object> entry : data.entrySet()) {
-                    List<Object> row = new ArrayList<>();
-                    row.add(entry.getKey());
-                    row.add(entry.getValue() != null ? entry.getValue().toString() : "");
-                    excelData.add(row);
-                }
-            }
-            // 使用EasyExcel导出
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            EasyExcel.write(outputStream)
-                    .registerWriteHandler(new LongestMatchColumnWidthStyleStrategy())
-                    .sheet(reportType + "报表")
-                    .doWrite(excelData);
-            log.info("Excel导出成功: {} 行数据", excelData.size());
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            log.error("Excel导出失败: {}", e.getMessage(), e);
-            throw new RuntimeException("Excel导出失败: " + e.getMessage(), e);
-        }
+        // 解析日期参数
+        LocalDate startDate = parameters.containsKey("startDate") ?
+                LocalDate.parse((String) parameters.get("startDate")) : LocalDate.now().minusDays(30);
+        LocalDate endDate = parameters.containsKey("endDate") ?
+                LocalDate.parse((String) parameters.get("endDate")) : LocalDate.now();
+        // 与流式导出同一工作簿结构；行数受同步导出上限约束
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long rows = reportExportService.exportTo(factoryId, reportType, startDate, endDate, outputStream);
+        log.info("Excel导出成功: {} 行数据", rows);
+        return outputStream.toByteArray();
     }
     @Override
     public byte[] exportReportToPDF(String factoryId, String reportType, Map<String, Object> parameters) {
@@ -1702,13 +1640,18 @@ public class ReportServiceImpl implements ReportService {
                                     javax.servlet.http.HttpServletResponse response) {
         log.info("导出Excel报表: factoryId={}, type={}, startDate={}, endDate={}",
                 factoryId, reportType, startDate, endDate);
-        // 这里需要使用Apache POI等库来生成Excel文件
         try {
-            response.setContentType("application/vnd.ms-excel");
-            response.setHeader("Content-Disposition", "attachment; filename=report.xlsx");
-            response.getWriter().write("Excel export not yet implemented");
-        } catch (Exception e) {
-            log.error("导出Excel失败", e);
+            // 分页查询并逐页写入响应流，不在内存中拼装整个文件
+            reportExportService.exportTo(factoryId, reportType, startDate, endDate, response.getOutputStream());
+            response.flushBuffer();
+        } catch (BusinessException e) {
+            // 尚未写出数据，清除下载响应头后交给全局异常处理返回 JSON
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        } catch (java.io.IOException e) {
+            log.warn("导出Excel中断: factoryId={}, type={}, error={}", factoryId, reportType, e.getMessage());
         }
     }
     @Override
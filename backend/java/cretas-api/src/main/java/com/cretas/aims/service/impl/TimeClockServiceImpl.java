@@ -8,6 +8,7 @@ import com.cretas.aims.exception.BusinessException;
 import com.cretas.aims.exception.ResourceNotFoundException;
 import com.cretas.aims.repository.TimeClockRecordRepository;
 import com.cretas.aims.repository.UserRepository;
+import com.cretas.aims.service.AttendanceRollupService;
 import com.cretas.aims.service.TimeClockService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -39,11 +40,14 @@ public class TimeClockServiceImpl implements TimeClockService {
 
     private final TimeClockRecordRepository timeClockRecordRepository;
     private final UserRepository userRepository;
+    private final AttendanceRollupService attendanceRollupService;
 
     // Manual constructor (Lombok @RequiredArgsConstructor not working)
-    public TimeClockServiceImpl(TimeClockRecordRepository timeClockRecordRepository, UserRepository userRepository) {
+    public TimeClockServiceImpl(TimeClockRecordRepository timeClockRecordRepository, UserRepository userRepository,
+                                AttendanceRollupService attendanceRollupService) {
         this.timeClockRecordRepository = timeClockRecordRepository;
         this.userRepository = userRepository;
+        this.attendanceRollupService = attendanceRollupService;
     }
 
     // 标准上班时间（可以根据工厂设置调整）
@@ -126,6 +130,7 @@ public class TimeClockServiceImpl implements TimeClockService {
         }
         
         record = timeClockRecordRepository.save(record);
+        attendanceRollupService.onRecordChanged(factoryId, userId, today);
         log.info("上班打卡成功: recordId={}, clockInTime={}", record.getId(), record.getClockInTime());
         return record;
     }
@@ -198,6 +203,7 @@ public class TimeClockServiceImpl implements TimeClockService {
         }
 
         record = timeClockRecordRepository.save(record);
+        attendanceRollupService.onRecordChanged(factoryId, userId, record.getClockInTime().toLocalDate());
         log.info("上班打卡(带GPS)成功: recordId={}, lat={}, lng={}", record.getId(), latitude, longitude);
         return record;
     }
@@ -255,6 +261,7 @@ public class TimeClockServiceImpl implements TimeClockService {
         record.calculateWorkDuration();
         
         record = timeClockRecordRepository.save(record);
+        attendanceRollupService.onRecordChanged(factoryId, userId, today);
         log.info("下班打卡成功: recordId={}, clockOutTime={}, workDuration={}分钟", 
                 record.getId(), record.getClockOutTime(), record.getWorkDurationMinutes());
         return record;
@@ -427,6 +434,10 @@ public class TimeClockServiceImpl implements TimeClockService {
             throw new BusinessException("记录不属于该工厂");
         }
         
+        // 修改前的统计日期 (上班时间可能被改到其他日期)
+        LocalDate previousDate = existingRecord.getClockInTime() != null
+                ? existingRecord.getClockInTime().toLocalDate() : null;
+
         // 更新记录
         if (record.getClockInTime() != null) {
             existingRecord.setClockInTime(record.getClockInTime());
@@ -454,7 +465,10 @@ public class TimeClockServiceImpl implements TimeClockService {
         // 重新计算工作时长
         existingRecord.calculateWorkDuration();
 
-        return timeClockRecordRepository.save(existingRecord);
+        TimeClockRecord saved = timeClockRecordRepository.save(existingRecord);
+        attendanceRollupService.onRecordChanged(factoryId, saved.getUserId(), previousDate,
+                saved.getClockInTime() != null ? saved.getClockInTime().toLocalDate() : null);
+        return saved;
     }
 
     @Override
@@ -1,11 +1,14 @@
 package com.cretas.aims.service.impl;
 
 import com.cretas.aims.dto.TimeStatsDTO;
+import com.cretas.aims.entity.AttendanceDailyRollup;
 import com.cretas.aims.entity.TimeClockRecord;
 import com.cretas.aims.entity.User;
 import com.cretas.aims.exception.BusinessException;
+import com.cretas.aims.repository.AttendanceDailyRollupRepository;
 import com.cretas.aims.repository.TimeClockRecordRepository;
 import com.cretas.aims.repository.UserRepository;
+import com.cretas.aims.service.AttendanceRollupService;
 import com.cretas.aims.service.TimeStatsService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -23,6 +26,9 @@ import java.util.stream.Collectors;
 /**
  * 时间统计服务实现
  *
+ * 统计数据由考勤日汇总 (员工/日、部门/日、工种/日) 合并得出，不再逐条加载打卡记录；
+ * 汇总由 {@link AttendanceRollupService} 在打卡写入和重新计算时维护。
+ *
  * @author Cretas Team
  * @version 1.0.0
  * @since 2025-01-09
@@ -33,16 +39,14 @@ public class TimeStatsServiceImpl implements TimeStatsService {
     private static final Logger log = LoggerFactory.getLogger(TimeStatsServiceImpl.class);
 
     // 标准工作时长（分钟）
-    private static final int STANDARD_WORK_MINUTES = 8 * 60;
-    // 迟到阈值（早上9:00后打卡视为迟到）
-    private static final int LATE_THRESHOLD_HOUR = 9;
-    private static final int LATE_THRESHOLD_MINUTE = 0;
-    // 早退阈值（下午5:30前打卡视为早退）
-    private static final int EARLY_LEAVE_THRESHOLD_HOUR = 17;
-    private static final int EARLY_LEAVE_THRESHOLD_MINUTE = 30;
+    private static final int STANDARD_WORK_MINUTES = AttendanceRollupService.STANDARD_WORK_MINUTES;
+    private static final String DIM_DEPARTMENT = AttendanceDailyRollup.DIMENSION_DEPARTMENT;
+    private static final String DIM_WORK_TYPE = AttendanceDailyRollup.DIMENSION_WORK_TYPE;
 
     private final TimeClockRecordRepository timeClockRecordRepository;
     private final UserRepository userRepository;
+    private final AttendanceDailyRollupRepository rollupRepository;
+    private final AttendanceRollupService attendanceRollupService;
 
     @Override
     @Transactional(readOnly = true)
@@ -53,26 +57,23 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         stats.setStartDate(date);
         stats.setEndDate(date);
 
-        // 查询当日打卡记录
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
-        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, startOfDay, endOfDay);
+        // 当日汇总（按部门行合并即为全厂合计）
+        AttendanceRollupService.Totals totals = sumRange(factoryId, date, date);
 
         // 获取工厂总员工数
         long totalEmployees = userRepository.countActiveUsers(factoryId);
 
         // 计算统计数据
-        calculateStatsFromRecords(stats, records, totalEmployees);
+        calculateStatsFromTotals(stats, totals, totalEmployees);
 
         return stats;
     }
 
     /**
-     * 从打卡记录计算统计数据
+     * 从单日汇总计算统计数据
      */
-    private void calculateStatsFromRecords(TimeStatsDTO stats, List<TimeClockRecord> records, long totalEmployees) {
-        if (records.isEmpty()) {
+    private void calculateStatsFromTotals(TimeStatsDTO stats, AttendanceRollupService.Totals totals, long totalEmployees) {
+        if (totals.getRecordCount() == 0) {
             stats.setTotalHours(BigDecimal.ZERO);
             stats.setRegularHours(BigDecimal.ZERO);
             stats.setOvertimeHours(BigDecimal.ZERO);
@@ -87,119 +88,107 @@ public class TimeStatsServiceImpl implements TimeStatsService {
             return;
         }
 
-        // 计算总工时（分钟转小时）
-        BigDecimal totalMinutes = records.stream()
-                .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal totalHours = totalMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        // 工时（分钟转小时）
+        BigDecimal totalHours = toHours(totals.getTotalMinutes());
         stats.setTotalHours(totalHours);
+        stats.setRegularHours(toHours(totals.getRegularMinutes()));
+        stats.setOvertimeHours(toHours(totals.getOvertimeMinutes()));
 
-        // 计算正常工时和加班工时
-        BigDecimal regularMinutes = BigDecimal.ZERO;
-        BigDecimal overtimeMinutes = BigDecimal.ZERO;
-        for (TimeClockRecord record : records) {
-            int workMinutes = record.getWorkDurationMinutes() != null ? record.getWorkDurationMinutes() : 0;
-            if (workMinutes > STANDARD_WORK_MINUTES) {
-                regularMinutes = regularMinutes.add(BigDecimal.valueOf(STANDARD_WORK_MINUTES));
-                overtimeMinutes = overtimeMinutes.add(BigDecimal.valueOf(workMinutes - STANDARD_WORK_MINUTES));
-            } else {
-                regularMinutes = regularMinutes.add(BigDecimal.valueOf(workMinutes));
-            }
-        }
-        stats.setRegularHours(regularMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-        stats.setOvertimeHours(overtimeMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-
-        // 统计活跃员工数（去重）
-        Set<Long> activeUserIds = records.stream()
-                .map(TimeClockRecord::getUserId)
-                .collect(Collectors.toSet());
-        stats.setActiveWorkers(activeUserIds.size());
-
-        // 打卡次数
-        stats.setTotalClockIns((long) records.size());
-
-        // 统计迟到、早退次数
-        long lateCount = records.stream()
-                .filter(this::isLate)
-                .count();
-        long earlyLeaveCount = records.stream()
-                .filter(this::isEarlyLeave)
-                .count();
-        stats.setLateCount(lateCount);
-        stats.setEarlyLeaveCount(earlyLeaveCount);
+        // 活跃员工数、打卡次数、迟到/早退次数
+        int activeWorkers = (int) totals.getWorkerCount();
+        stats.setActiveWorkers(activeWorkers);
+        stats.setTotalClockIns(totals.getRecordCount());
+        stats.setLateCount(totals.getLateCount());
+        stats.setEarlyLeaveCount(totals.getEarlyLeaveCount());
 
         // 缺勤次数
-        long absentCount = Math.max(0, totalEmployees - activeUserIds.size());
-        stats.setAbsentCount(absentCount);
+        stats.setAbsentCount(Math.max(0, totalEmployees - activeWorkers));
 
         // 平均工时
-        if (!activeUserIds.isEmpty()) {
-            stats.setAverageHours(totalHours.divide(BigDecimal.valueOf(activeUserIds.size()), 2, RoundingMode.HALF_UP));
-        } else {
-            stats.setAverageHours(BigDecimal.ZERO);
-        }
+        stats.setAverageHours(divide(totalHours, activeWorkers));
 
         // 出勤率
-        if (totalEmployees > 0) {
-            BigDecimal attendanceRate = BigDecimal.valueOf(activeUserIds.size())
-                    .multiply(BigDecimal.valueOf(100))
-                    .divide(BigDecimal.valueOf(totalEmployees), 2, RoundingMode.HALF_UP);
-            stats.setAttendanceRate(attendanceRate);
-        } else {
-            stats.setAttendanceRate(BigDecimal.ZERO);
-        }
+        stats.setAttendanceRate(percent(activeWorkers, totalEmployees));
 
         // 生产效率（基于平均工时与标准工时的比率）
+        stats.setProductivity(productivity(stats.getAverageHours()));
+    }
+
+    /**
+     * 生产效率: 人均日工时 / 标准工时, 限制在0-150范围内
+     */
+    private BigDecimal productivity(BigDecimal averageDailyHours) {
         BigDecimal expectedHours = BigDecimal.valueOf(STANDARD_WORK_MINUTES).divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
-        if (expectedHours.compareTo(BigDecimal.ZERO) > 0 && stats.getAverageHours().compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal productivity = stats.getAverageHours()
+        if (expectedHours.compareTo(BigDecimal.ZERO) > 0 && averageDailyHours.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal productivity = averageDailyHours
                     .divide(expectedHours, 4, RoundingMode.HALF_UP)
                     .multiply(BigDecimal.valueOf(100));
-            // 限制在0-150范围内
             productivity = productivity.min(BigDecimal.valueOf(150)).max(BigDecimal.ZERO);
-            stats.setProductivity(productivity.setScale(2, RoundingMode.HALF_UP));
-        } else {
-            stats.setProductivity(BigDecimal.ZERO);
+            return productivity.setScale(2, RoundingMode.HALF_UP);
         }
+        return BigDecimal.ZERO;
     }
 
+    // ========== 汇总读取 ==========
+
     /**
-     * 判断是否迟到
+     * 日期范围内每日全厂合计（由部门/日汇总合并）
      */
-    private boolean isLate(TimeClockRecord record) {
-        if (record.getClockInTime() == null) {
-            return false;
+    private Map<LocalDate, AttendanceRollupService.Totals> sumByDate(String factoryId, LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, AttendanceRollupService.Totals> byDate = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByDate(factoryId, DIM_DEPARTMENT, startDate, endDate)) {
+            byDate.put((LocalDate) row[0], AttendanceRollupService.Totals.of(row, 1));
         }
-        // 检查attendanceStatus字段
-        if ("LATE".equalsIgnoreCase(record.getAttendanceStatus()) ||
-            "LATE_AND_EARLY_LEAVE".equalsIgnoreCase(record.getAttendanceStatus())) {
-            return true;
-        }
-        // 基于时间判断
-        int hour = record.getClockInTime().getHour();
-        int minute = record.getClockInTime().getMinute();
-        return hour > LATE_THRESHOLD_HOUR ||
-               (hour == LATE_THRESHOLD_HOUR && minute > LATE_THRESHOLD_MINUTE);
+        return byDate;
+    }
+
+    /**
+     * 日期范围内全厂合计（workerCount 为员工·日数）
+     */
+    private AttendanceRollupService.Totals sumRange(String factoryId, LocalDate startDate, LocalDate endDate) {
+        AttendanceRollupService.Totals totals = new AttendanceRollupService.Totals();
+        sumByDate(factoryId, startDate, endDate).values().forEach(totals::add);
+        return totals;
     }
 
     /**
-     * 判断是否早退
+     * 日期范围内按维度取值合并
      */
-    private boolean isEarlyLeave(TimeClockRecord record) {
-        if (record.getClockOutTime() == null) {
-            return false;
+    private Map<String, AttendanceRollupService.Totals> sumByKey(String factoryId, String dimension,
+                                                                  LocalDate startDate, LocalDate endDate) {
+        Map<String, AttendanceRollupService.Totals> byKey = new TreeMap<>();
+        for (Object[] row : rollupRepository.sumByKey(factoryId, dimension, startDate, endDate)) {
+            byKey.put((String) row[0], AttendanceRollupService.Totals.of(row, 1));
         }
-        // 检查attendanceStatus字段
-        if ("EARLY_LEAVE".equalsIgnoreCase(record.getAttendanceStatus()) ||
-            "LATE_AND_EARLY_LEAVE".equalsIgnoreCase(record.getAttendanceStatus())) {
-            return true;
+        return byKey;
+    }
+
+    private static Map<String, Long> toCountMap(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(row[0] != null ? row[0].toString() : AttendanceRollupService.UNASSIGNED_DEPARTMENT,
+                    ((Number) row[1]).longValue());
         }
-        // 基于时间判断
-        int hour = record.getClockOutTime().getHour();
-        int minute = record.getClockOutTime().getMinute();
-        return hour < EARLY_LEAVE_THRESHOLD_HOUR ||
-               (hour == EARLY_LEAVE_THRESHOLD_HOUR && minute < EARLY_LEAVE_THRESHOLD_MINUTE);
+        return counts;
     }
+
+    private static BigDecimal toHours(long minutes) {
+        return BigDecimal.valueOf(minutes).divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal divide(BigDecimal value, long count) {
+        return count > 0 ? value.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal percent(long part, long total) {
+        if (total <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(part)
+                .multiply(BigDecimal.valueOf(100))
+                .divide(BigDecimal.valueOf(total), 2, RoundingMode.HALF_UP);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public TimeStatsDTO getDailyStatsRange(String factoryId, LocalDate startDate, LocalDate endDate) {
@@ -212,17 +201,26 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         stats.setPeriod("range");
         stats.setStartDate(startDate);
         stats.setEndDate(endDate);
+
+        Map<LocalDate, AttendanceRollupService.Totals> byDate = sumByDate(factoryId, startDate, endDate);
+        long totalEmployees = userRepository.countActiveUsers(factoryId);
+
         // 生成每日统计列表
         List<TimeStatsDTO.DailyStats> dailyStatsList = new ArrayList<>();
+        AttendanceRollupService.Totals totals = new AttendanceRollupService.Totals();
         LocalDate currentDate = startDate;
         while (!currentDate.isAfter(endDate)) {
-            TimeStatsDTO.DailyStats dailyStats = createDailyStats(currentDate);
-            dailyStatsList.add(dailyStats);
+            AttendanceRollupService.Totals day = byDate.getOrDefault(currentDate, new AttendanceRollupService.Totals());
+            dailyStatsList.add(createDailyStats(currentDate, day, totalEmployees));
+            totals.add(day);
             currentDate = currentDate.plusDays(1);
         }
         stats.setDailyStatsList(dailyStatsList);
+
         // 汇总统计
-        calculateAggregateStats(stats, dailyStatsList);
+        long distinctWorkers = totals.getRecordCount() > 0
+                ? rollupRepository.countDistinctWorkers(factoryId, startDate, endDate) : 0;
+        calculateAggregateStats(stats, dailyStatsList, totals, distinctWorkers, totalEmployees);
         return stats;
     }
     @Override
@@ -265,63 +263,23 @@ public class TimeStatsServiceImpl implements TimeStatsService {
                 factoryId, startDate, endDate);
         TimeStatsDTO stats = getDailyStatsRange(factoryId, startDate, endDate);
 
-        // 查询日期范围内的打卡记录
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
-        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, start, end);
+        // 工种/日汇总按工种合并，参与人数取员工/日汇总去重
+        Map<String, AttendanceRollupService.Totals> byWorkType = sumByKey(factoryId, DIM_WORK_TYPE, startDate, endDate);
+        Map<String, Long> workerCounts = byWorkType.isEmpty() ? Collections.emptyMap()
+                : toCountMap(rollupRepository.countDistinctWorkersByWorkType(factoryId, startDate, endDate));
 
-        // 按workTypeName分组统计
         Map<String, TimeStatsDTO.WorkTypeStats> workTypeStatsMap = new HashMap<>();
-
-        // 按工作类型分组
-        Map<String, List<TimeClockRecord>> recordsByWorkType = records.stream()
-                .filter(r -> r.getWorkTypeName() != null && !r.getWorkTypeName().isEmpty())
-                .collect(Collectors.groupingBy(TimeClockRecord::getWorkTypeName));
-
         int typeIndex = 1;
-        for (Map.Entry<String, List<TimeClockRecord>> entry : recordsByWorkType.entrySet()) {
+        for (Map.Entry<String, AttendanceRollupService.Totals> entry : byWorkType.entrySet()) {
             String workTypeName = entry.getKey();
-            List<TimeClockRecord> typeRecords = entry.getValue();
-
-            TimeStatsDTO.WorkTypeStats typeStats = new TimeStatsDTO.WorkTypeStats();
-            typeStats.setWorkTypeId(typeIndex++);
-            typeStats.setWorkTypeName(workTypeName);
-
-            // 计算总工时
-            BigDecimal totalMinutes = typeRecords.stream()
-                    .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            typeStats.setTotalHours(totalMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-
-            // 参与人数（去重）
-            Set<Long> uniqueUsers = typeRecords.stream()
-                    .map(TimeClockRecord::getUserId)
-                    .collect(Collectors.toSet());
-            typeStats.setWorkerCount(uniqueUsers.size());
-
-            // 平均工时
-            if (!uniqueUsers.isEmpty()) {
-                typeStats.setAverageHours(typeStats.getTotalHours().divide(
-                        BigDecimal.valueOf(uniqueUsers.size()), 2, RoundingMode.HALF_UP));
-            } else {
-                typeStats.setAverageHours(BigDecimal.ZERO);
-            }
-
-            // 产出量和效率（需要从生产批次获取，暂时设置估算值）
-            typeStats.setOutput(typeStats.getTotalHours().multiply(BigDecimal.valueOf(10)));
-            if (typeStats.getTotalHours().compareTo(BigDecimal.ZERO) > 0) {
-                typeStats.setEfficiency(typeStats.getOutput().divide(typeStats.getTotalHours(), 2, RoundingMode.HALF_UP));
-            } else {
-                typeStats.setEfficiency(BigDecimal.ZERO);
-            }
-
-            workTypeStatsMap.put(workTypeName, typeStats);
+            workTypeStatsMap.put(workTypeName, createWorkTypeStats(workTypeName, typeIndex++,
+                    entry.getValue(), workerCounts.getOrDefault(workTypeName, 0L)));
         }
 
         // 如果没有工作类型数据，使用默认分类
         if (workTypeStatsMap.isEmpty()) {
-            workTypeStatsMap.put("常规工作", createDefaultWorkTypeStats("常规工作", 1, records));
+            workTypeStatsMap.put(AttendanceRollupService.DEFAULT_WORK_TYPE, createWorkTypeStats(
+                    AttendanceRollupService.DEFAULT_WORK_TYPE, 1, new AttendanceRollupService.Totals(), 0));
         }
 
         stats.setWorkTypeStats(workTypeStatsMap);
@@ -329,39 +287,27 @@ public class TimeStatsServiceImpl implements TimeStatsService {
     }
 
     /**
-     * 创建默认工作类型统计
+     * 创建工作类型统计
      */
-    private TimeStatsDTO.WorkTypeStats createDefaultWorkTypeStats(String typeName, Integer typeId, List<TimeClockRecord> records) {
+    private TimeStatsDTO.WorkTypeStats createWorkTypeStats(String typeName, Integer typeId,
+                                                           AttendanceRollupService.Totals totals, long workerCount) {
         TimeStatsDTO.WorkTypeStats stats = new TimeStatsDTO.WorkTypeStats();
         stats.setWorkTypeId(typeId);
         stats.setWorkTypeName(typeName);
+        stats.setTotalHours(toHours(totals.getTotalMinutes()));
+        stats.setWorkerCount((int) workerCount);
+        stats.setAverageHours(divide(stats.getTotalHours(), workerCount));
 
-        BigDecimal totalMinutes = records.stream()
-                .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        stats.setTotalHours(totalMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-
-        Set<Long> uniqueUsers = records.stream()
-                .map(TimeClockRecord::getUserId)
-                .collect(Collectors.toSet());
-        stats.setWorkerCount(uniqueUsers.size());
-
-        if (!uniqueUsers.isEmpty()) {
-            stats.setAverageHours(stats.getTotalHours().divide(
-                    BigDecimal.valueOf(uniqueUsers.size()), 2, RoundingMode.HALF_UP));
-        } else {
-            stats.setAverageHours(BigDecimal.ZERO);
-        }
-
+        // 产出量和效率（需要从生产批次获取，暂时设置估算值）
         stats.setOutput(stats.getTotalHours().multiply(BigDecimal.valueOf(10)));
         if (stats.getTotalHours().compareTo(BigDecimal.ZERO) > 0) {
             stats.setEfficiency(stats.getOutput().divide(stats.getTotalHours(), 2, RoundingMode.HALF_UP));
         } else {
             stats.setEfficiency(BigDecimal.ZERO);
         }
-
         return stats;
     }
+
     @Override
     @Transactional(readOnly = true)
     public TimeStatsDTO getStatsByDepartment(String factoryId, LocalDate startDate, LocalDate endDate) {
@@ -369,92 +315,32 @@ public class TimeStatsServiceImpl implements TimeStatsService {
                 factoryId, startDate, endDate);
         TimeStatsDTO stats = getDailyStatsRange(factoryId, startDate, endDate);
 
-        // 查询日期范围内的打卡记录
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
-        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, start, end);
-
-        // 获取所有用户ID
-        Set<Long> userIds = records.stream()
-                .map(TimeClockRecord::getUserId)
-                .collect(Collectors.toSet());
-
-        // 查询用户部门信息
-        Map<Long, String> userDepartmentMap = new HashMap<>();
-        if (!userIds.isEmpty()) {
-            List<User> users = userRepository.findByFactoryId(factoryId);
-            for (User user : users) {
-                if (userIds.contains(user.getId())) {
-                    String dept = user.getDepartment();
-                    userDepartmentMap.put(user.getId(), dept != null ? dept : "未分配");
-                }
-            }
-        }
-
-        // 按部门分组打卡记录
-        Map<String, List<TimeClockRecord>> recordsByDept = records.stream()
-                .collect(Collectors.groupingBy(r -> userDepartmentMap.getOrDefault(r.getUserId(), "未分配")));
+        // 部门/日汇总按部门合并，员工数取员工/日汇总去重
+        Map<String, AttendanceRollupService.Totals> byDepartment = sumByKey(factoryId, DIM_DEPARTMENT, startDate, endDate);
+        Map<String, Long> workerCounts = byDepartment.isEmpty() ? Collections.emptyMap()
+                : toCountMap(rollupRepository.countDistinctWorkersByDepartment(factoryId, startDate, endDate));
 
         // 按部门统计员工总数
-        List<Object[]> deptCounts = userRepository.countByDepartment(factoryId);
-        Map<String, Long> deptTotalEmployees = new HashMap<>();
-        for (Object[] row : deptCounts) {
-            String dept = row[0] != null ? row[0].toString() : "未分配";
-            Long count = (Long) row[1];
-            deptTotalEmployees.put(dept, count);
-        }
+        Map<String, Long> deptTotalEmployees = byDepartment.isEmpty() ? Collections.emptyMap()
+                : toCountMap(userRepository.countByDepartment(factoryId));
 
         // 计算各部门统计
         Map<String, TimeStatsDTO.DepartmentStats> departmentStatsMap = new HashMap<>();
-
-        for (Map.Entry<String, List<TimeClockRecord>> entry : recordsByDept.entrySet()) {
+        for (Map.Entry<String, AttendanceRollupService.Totals> entry : byDepartment.entrySet()) {
             String department = entry.getKey();
-            List<TimeClockRecord> deptRecords = entry.getValue();
+            AttendanceRollupService.Totals totals = entry.getValue();
+            long workerCount = workerCounts.getOrDefault(department, 0L);
 
             TimeStatsDTO.DepartmentStats deptStats = new TimeStatsDTO.DepartmentStats();
             deptStats.setDepartmentName(department);
-
-            // 计算总工时
-            BigDecimal totalMinutes = deptRecords.stream()
-                    .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            deptStats.setTotalHours(totalMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-
-            // 员工数（去重）
-            Set<Long> uniqueUsers = deptRecords.stream()
-                    .map(TimeClockRecord::getUserId)
-                    .collect(Collectors.toSet());
-            deptStats.setWorkerCount(uniqueUsers.size());
-
-            // 平均工时
-            if (!uniqueUsers.isEmpty()) {
-                deptStats.setAverageHours(deptStats.getTotalHours().divide(
-                        BigDecimal.valueOf(uniqueUsers.size()), 2, RoundingMode.HALF_UP));
-            } else {
-                deptStats.setAverageHours(BigDecimal.ZERO);
-            }
-
-            // 加班工时
-            BigDecimal overtimeMinutes = BigDecimal.ZERO;
-            for (TimeClockRecord record : deptRecords) {
-                int workMinutes = record.getWorkDurationMinutes() != null ? record.getWorkDurationMinutes() : 0;
-                if (workMinutes > STANDARD_WORK_MINUTES) {
-                    overtimeMinutes = overtimeMinutes.add(BigDecimal.valueOf(workMinutes - STANDARD_WORK_MINUTES));
-                }
-            }
-            deptStats.setOvertimeHours(overtimeMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
+            deptStats.setTotalHours(toHours(totals.getTotalMinutes()));
+            deptStats.setWorkerCount((int) workerCount);
+            deptStats.setAverageHours(divide(deptStats.getTotalHours(), workerCount));
+            deptStats.setOvertimeHours(toHours(totals.getOvertimeMinutes()));
 
             // 出勤率
-            long deptTotal = deptTotalEmployees.getOrDefault(department, (long) uniqueUsers.size());
-            if (deptTotal > 0) {
-                BigDecimal attendanceRate = BigDecimal.valueOf(uniqueUsers.size())
-                        .multiply(BigDecimal.valueOf(100))
-                        .divide(BigDecimal.valueOf(deptTotal), 2, RoundingMode.HALF_UP);
-                deptStats.setAttendanceRate(attendanceRate);
-            } else {
-                deptStats.setAttendanceRate(BigDecimal.ZERO);
-            }
+            long deptTotal = deptTotalEmployees.getOrDefault(department, workerCount);
+            deptStats.setAttendanceRate(percent(workerCount, deptTotal));
 
             departmentStatsMap.put(department, deptStats);
         }
@@ -491,24 +377,12 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         TimeStatsDTO.ProductivityAnalysis analysis = new TimeStatsDTO.ProductivityAnalysis();
         analysis.setPeriod(String.format("%s to %s", startDate, endDate));
 
-        // 查询日期范围内的打卡记录
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
-        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, start, end);
-
-        // 计算总投入工时
-        BigDecimal totalMinutes = records.stream()
-                .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal totalInputHours = totalMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        // 日期范围内合计与参与员工数
+        AttendanceRollupService.Totals totals = sumRange(factoryId, startDate, endDate);
+        BigDecimal totalInputHours = toHours(totals.getTotalMinutes());
         analysis.setTotalInputHours(totalInputHours);
-
-        // 参与员工数
-        Set<Long> uniqueUsers = records.stream()
-                .map(TimeClockRecord::getUserId)
-                .collect(Collectors.toSet());
-        int workerCount = uniqueUsers.size();
+        int workerCount = totals.getRecordCount() > 0
+                ? (int) rollupRepository.countDistinctWorkers(factoryId, startDate, endDate) : 0;
 
         // 估算产出量（基于工时的估算模型，每小时产出10单位）
         BigDecimal outputPerHourRate = BigDecimal.valueOf(10);
@@ -548,13 +422,7 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         LocalDate prevEnd = startDate.minusDays(1);
         LocalDate prevStart = prevEnd.minusDays(periodDays - 1);
 
-        List<TimeClockRecord> prevRecords = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, prevStart.atStartOfDay(), startDate.atStartOfDay());
-
-        BigDecimal prevMinutes = prevRecords.stream()
-                .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal prevHours = prevMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+        BigDecimal prevHours = toHours(sumRange(factoryId, prevStart, prevEnd).getTotalMinutes());
 
         if (prevHours.compareTo(BigDecimal.ZERO) > 0) {
             BigDecimal growthRate = totalInputHours.subtract(prevHours)
@@ -595,7 +463,7 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         }
 
         // 生成改进建议
-        List<String> improvements = generateImprovementSuggestions(analysis, records);
+        List<String> improvements = generateImprovementSuggestions(analysis, totals);
         analysis.setImprovements(improvements);
 
         return analysis;
@@ -619,7 +487,8 @@ public class TimeStatsServiceImpl implements TimeStatsService {
     /**
      * 生成改进建议
      */
-    private List<String> generateImprovementSuggestions(TimeStatsDTO.ProductivityAnalysis analysis, List<TimeClockRecord> records) {
+    private List<String> generateImprovementSuggestions(TimeStatsDTO.ProductivityAnalysis analysis,
+                                                        AttendanceRollupService.Totals totals) {
         List<String> suggestions = new ArrayList<>();
 
         // 基于效率指数
@@ -633,12 +502,12 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         }
 
         // 基于迟到/早退情况
-        long lateCount = records.stream().filter(this::isLate).count();
-        long earlyLeaveCount = records.stream().filter(this::isEarlyLeave).count();
-        if (lateCount > records.size() * 0.1) {
+        long lateCount = totals.getLateCount();
+        long earlyLeaveCount = totals.getEarlyLeaveCount();
+        if (lateCount > totals.getRecordCount() * 0.1) {
             suggestions.add("迟到率较高，建议加强考勤管理或调整上班时间");
         }
-        if (earlyLeaveCount > records.size() * 0.1) {
+        if (earlyLeaveCount > totals.getRecordCount() * 0.1) {
             suggestions.add("早退率较高，建议关注员工工作负荷和满意度");
         }
 
@@ -659,93 +528,40 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         log.info("获取员工时间统计: factoryId={}, startDate={}, endDate={}, topN={}",
                 factoryId, startDate, endDate, topN);
 
-        // 查询日期范围内的打卡记录
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
-        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, start, end);
-
-        // 按用户ID分组
-        Map<Long, List<TimeClockRecord>> recordsByUser = records.stream()
-                .collect(Collectors.groupingBy(TimeClockRecord::getUserId));
-
-        // 查询用户信息
-        Map<Long, User> userMap = new HashMap<>();
-        List<User> users = userRepository.findByFactoryId(factoryId);
-        for (User user : users) {
-            userMap.put(user.getId(), user);
-        }
+        // 员工/日汇总按员工合并（姓名、部门随汇总冗余，无需加载用户）
+        List<Object[]> rows = rollupRepository.sumByWorker(factoryId, startDate, endDate);
+        long expectedWorkDays = countWorkingDays(startDate, endDate);
 
         // 计算每个员工的统计数据
-        List<TimeStatsDTO.WorkerTimeStats> workerStatsList = new ArrayList<>();
-
-        for (Map.Entry<Long, List<TimeClockRecord>> entry : recordsByUser.entrySet()) {
-            Long userId = entry.getKey();
-            List<TimeClockRecord> userRecords = entry.getValue();
-            User user = userMap.get(userId);
-
+        List<TimeStatsDTO.WorkerTimeStats> workerStatsList = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
             TimeStatsDTO.WorkerTimeStats workerStats = new TimeStatsDTO.WorkerTimeStats();
-            workerStats.setWorkerId(userId.intValue());
-            workerStats.setWorkerName(user != null ? user.getFullName() : "员工" + userId);
-            workerStats.setDepartment(user != null ? user.getDepartment() : "未分配");
-
-            // 计算总工时
-            BigDecimal totalMinutes = userRecords.stream()
-                    .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            workerStats.setTotalHours(totalMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-
-            // 计算正常工时和加班工时
-            BigDecimal regularMinutes = BigDecimal.ZERO;
-            BigDecimal overtimeMinutes = BigDecimal.ZERO;
-            for (TimeClockRecord record : userRecords) {
-                int workMinutes = record.getWorkDurationMinutes() != null ? record.getWorkDurationMinutes() : 0;
-                if (workMinutes > STANDARD_WORK_MINUTES) {
-                    regularMinutes = regularMinutes.add(BigDecimal.valueOf(STANDARD_WORK_MINUTES));
-                    overtimeMinutes = overtimeMinutes.add(BigDecimal.valueOf(workMinutes - STANDARD_WORK_MINUTES));
-                } else {
-                    regularMinutes = regularMinutes.add(BigDecimal.valueOf(workMinutes));
-                }
-            }
-            workerStats.setRegularHours(regularMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-            workerStats.setOvertimeHours(overtimeMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
+            workerStats.setWorkerId(Integer.valueOf((String) row[0]));
+            workerStats.setWorkerName((String) row[1]);
+            workerStats.setDepartment((String) row[2]);
 
-            // 出勤天数
-            Set<LocalDate> attendanceDates = userRecords.stream()
-                    .map(TimeClockRecord::getClockDate)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet());
-            workerStats.setAttendanceDays(attendanceDates.size());
+            // 工时
+            workerStats.setTotalHours(toHours(toLong(row[5])));
+            workerStats.setRegularHours(toHours(toLong(row[6])));
+            workerStats.setOvertimeHours(toHours(toLong(row[7])));
 
-            // 迟到次数
-            int lateCount = (int) userRecords.stream().filter(this::isLate).count();
-            workerStats.setLateCount(lateCount);
+            // 出勤天数（每个员工每天一行汇总）
+            int attendanceDays = (int) toLong(row[3]);
+            workerStats.setAttendanceDays(attendanceDays);
 
-            // 早退次数
-            int earlyLeaveCount = (int) userRecords.stream().filter(this::isEarlyLeave).count();
-            workerStats.setEarlyLeaveCount(earlyLeaveCount);
+            // 迟到/早退次数
+            workerStats.setLateCount((int) toLong(row[8]));
+            workerStats.setEarlyLeaveCount((int) toLong(row[9]));
 
             // 出勤率
-            long expectedWorkDays = countWorkingDays(startDate, endDate);
             if (expectedWorkDays > 0) {
-                BigDecimal attendanceRate = BigDecimal.valueOf(attendanceDates.size())
-                        .multiply(BigDecimal.valueOf(100))
-                        .divide(BigDecimal.valueOf(expectedWorkDays), 2, RoundingMode.HALF_UP);
-                workerStats.setAttendanceRate(attendanceRate.min(BigDecimal.valueOf(100)));
+                workerStats.setAttendanceRate(percent(attendanceDays, expectedWorkDays).min(BigDecimal.valueOf(100)));
             } else {
                 workerStats.setAttendanceRate(BigDecimal.ZERO);
             }
 
             // 工作效率
-            BigDecimal expectedHours = BigDecimal.valueOf(attendanceDates.size()).multiply(BigDecimal.valueOf(8));
-            if (expectedHours.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal efficiency = workerStats.getTotalHours()
-                        .divide(expectedHours, 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100));
-                workerStats.setEfficiency(efficiency.min(BigDecimal.valueOf(150)).setScale(2, RoundingMode.HALF_UP));
-            } else {
-                workerStats.setEfficiency(BigDecimal.ZERO);
-            }
+            workerStats.setEfficiency(workerEfficiency(workerStats.getTotalHours(), attendanceDays));
 
             // 统计周期
             TimeStatsDTO.Period period = new TimeStatsDTO.Period();
@@ -768,6 +584,25 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         int limit = topN != null ? topN : workerStatsList.size();
         return workerStatsList.stream().limit(limit).collect(Collectors.toList());
     }
+
+    /**
+     * 员工工作效率: 总工时 / (出勤天数 * 8小时), 上限150
+     */
+    private BigDecimal workerEfficiency(BigDecimal totalHours, int attendanceDays) {
+        BigDecimal expectedHours = BigDecimal.valueOf(attendanceDays).multiply(BigDecimal.valueOf(8));
+        if (expectedHours.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal efficiency = totalHours
+                    .divide(expectedHours, 4, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100));
+            return efficiency.min(BigDecimal.valueOf(150)).setScale(2, RoundingMode.HALF_UP);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public TimeStatsDTO.WorkerTimeStats getWorkerTimeStatsById(String factoryId,
@@ -784,24 +619,16 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         }
         User user = userOpt.get();
 
-        // 查询日期范围内的打卡记录
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
-        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, start, end);
-
-        // 过滤出该员工的记录
-        List<TimeClockRecord> userRecords = records.stream()
-                .filter(r -> r.getUserId() != null && r.getUserId().equals(workerId.longValue()))
-                .collect(Collectors.toList());
+        // 排名相对于所有员工，个人数据取自同一份合并结果
+        TimeStatsDTO.WorkerTimeStats workerStats = getWorkerTimeStats(factoryId, startDate, endDate, null).stream()
+                .filter(ws -> ws.getWorkerId().equals(workerId))
+                .findFirst()
+                .orElse(null);
 
-        TimeStatsDTO.WorkerTimeStats workerStats = new TimeStatsDTO.WorkerTimeStats();
-        workerStats.setWorkerId(workerId);
-        workerStats.setWorkerName(user.getFullName());
-        workerStats.setDepartment(user.getDepartment());
-
-        if (userRecords.isEmpty()) {
+        if (workerStats == null) {
             // 无打卡记录
+            workerStats = new TimeStatsDTO.WorkerTimeStats();
+            workerStats.setWorkerId(workerId);
             workerStats.setTotalHours(BigDecimal.ZERO);
             workerStats.setRegularHours(BigDecimal.ZERO);
             workerStats.setOvertimeHours(BigDecimal.ZERO);
@@ -811,78 +638,15 @@ public class TimeStatsServiceImpl implements TimeStatsService {
             workerStats.setAttendanceRate(BigDecimal.ZERO);
             workerStats.setEfficiency(BigDecimal.ZERO);
             workerStats.setRanking(0);
-        } else {
-            // 计算总工时
-            BigDecimal totalMinutes = userRecords.stream()
-                    .map(r -> r.getWorkDurationMinutes() != null ? BigDecimal.valueOf(r.getWorkDurationMinutes()) : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            workerStats.setTotalHours(totalMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-
-            // 计算正常工时和加班工时
-            BigDecimal regularMinutes = BigDecimal.ZERO;
-            BigDecimal overtimeMinutes = BigDecimal.ZERO;
-            for (TimeClockRecord record : userRecords) {
-                int workMinutes = record.getWorkDurationMinutes() != null ? record.getWorkDurationMinutes() : 0;
-                if (workMinutes > STANDARD_WORK_MINUTES) {
-                    regularMinutes = regularMinutes.add(BigDecimal.valueOf(STANDARD_WORK_MINUTES));
-                    overtimeMinutes = overtimeMinutes.add(BigDecimal.valueOf(workMinutes - STANDARD_WORK_MINUTES));
-                } else {
-                    regularMinutes = regularMinutes.add(BigDecimal.valueOf(workMinutes));
-                }
-            }
-            workerStats.setRegularHours(regularMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-            workerStats.setOvertimeHours(overtimeMinutes.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP));
-
-            // 出勤天数
-            Set<LocalDate> attendanceDates = userRecords.stream()
-                    .map(TimeClockRecord::getClockDate)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet());
-            workerStats.setAttendanceDays(attendanceDates.size());
-
-            // 迟到/早退次数
-            workerStats.setLateCount((int) userRecords.stream().filter(this::isLate).count());
-            workerStats.setEarlyLeaveCount((int) userRecords.stream().filter(this::isEarlyLeave).count());
-
-            // 出勤率
-            long expectedWorkDays = countWorkingDays(startDate, endDate);
-            if (expectedWorkDays > 0) {
-                BigDecimal attendanceRate = BigDecimal.valueOf(attendanceDates.size())
-                        .multiply(BigDecimal.valueOf(100))
-                        .divide(BigDecimal.valueOf(expectedWorkDays), 2, RoundingMode.HALF_UP);
-                workerStats.setAttendanceRate(attendanceRate.min(BigDecimal.valueOf(100)));
-            } else {
-                workerStats.setAttendanceRate(BigDecimal.ZERO);
-            }
-
-            // 工作效率
-            BigDecimal expectedHours = BigDecimal.valueOf(attendanceDates.size()).multiply(BigDecimal.valueOf(8));
-            if (expectedHours.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal efficiency = workerStats.getTotalHours()
-                        .divide(expectedHours, 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100));
-                workerStats.setEfficiency(efficiency.min(BigDecimal.valueOf(150)).setScale(2, RoundingMode.HALF_UP));
-            } else {
-                workerStats.setEfficiency(BigDecimal.ZERO);
-            }
 
-            // 计算排名（相对于所有员工）
-            List<TimeStatsDTO.WorkerTimeStats> allWorkerStats = getWorkerTimeStats(factoryId, startDate, endDate, null);
-            int ranking = 1;
-            for (TimeStatsDTO.WorkerTimeStats ws : allWorkerStats) {
-                if (ws.getWorkerId().equals(workerId)) {
-                    ranking = ws.getRanking();
-                    break;
-                }
-            }
-            workerStats.setRanking(ranking);
+            // 统计周期
+            TimeStatsDTO.Period period = new TimeStatsDTO.Period();
+            period.setStartDate(startDate);
+            period.setEndDate(endDate);
+            workerStats.setPeriod(period);
         }
-
-        // 统计周期
-        TimeStatsDTO.Period period = new TimeStatsDTO.Period();
-        period.setStartDate(startDate);
-        period.setEndDate(endDate);
-        workerStats.setPeriod(period);
+        workerStats.setWorkerName(user.getFullName());
+        workerStats.setDepartment(user.getDepartment());
 
         return workerStats;
     }
@@ -979,32 +743,17 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         // 获取基础统计数据
         TimeStatsDTO stats = getDailyStatsRange(factoryId, startDate, endDate);
 
-        // 查询日期范围内的打卡记录
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
-        List<TimeClockRecord> records = timeClockRecordRepository.findByFactoryIdAndClockDateBetween(
-                factoryId, start, end);
-
         // 异常检测阈值
-        int MAX_DAILY_WORK_MINUTES = 12 * 60; // 每天最大工作12小时
-        int MIN_DAILY_WORK_MINUTES = 4 * 60;  // 每天最少工作4小时
         double LATE_RATE_THRESHOLD = 0.2;      // 迟到率阈值20%
         double ATTENDANCE_RATE_THRESHOLD = 80; // 出勤率阈值80%
 
-        // 检测异常工时记录
-        List<TimeClockRecord> abnormalWorkHours = records.stream()
-                .filter(r -> {
-                    int minutes = r.getWorkDurationMinutes() != null ? r.getWorkDurationMinutes() : 0;
-                    return minutes > MAX_DAILY_WORK_MINUTES || (minutes > 0 && minutes < MIN_DAILY_WORK_MINUTES);
-                })
-                .collect(Collectors.toList());
-
-        // 异常记录数统计
-        long abnormalCount = abnormalWorkHours.size();
+        // 异常工时记录数（超过12小时或不足4小时，写入时已计入汇总）
+        AttendanceRollupService.Totals totals = sumRange(factoryId, startDate, endDate);
+        long abnormalCount = totals.getAbnormalCount();
 
         // 迟到率异常检测
-        long lateCount = records.stream().filter(this::isLate).count();
-        double lateRate = records.isEmpty() ? 0 : (double) lateCount / records.size();
+        long lateCount = totals.getLateCount();
+        double lateRate = totals.getRecordCount() == 0 ? 0 : (double) lateCount / totals.getRecordCount();
         boolean highLateRate = lateRate > LATE_RATE_THRESHOLD;
 
         // 出勤率异常检测
@@ -1150,6 +899,9 @@ public class TimeStatsServiceImpl implements TimeStatsService {
             }
         }
 
+        // 同步清理对应的考勤汇总
+        attendanceRollupService.deleteBefore(factoryId, cutoffDate);
+
         log.info("已清理{}之前的统计数据，删除记录数: {}", cutoffDate, deletedCount);
     }
     @Override
@@ -1192,15 +944,27 @@ public class TimeStatsServiceImpl implements TimeStatsService {
             }
         }
 
+        // 提交后整日重建考勤汇总
+        attendanceRollupService.onDayRecalculated(factoryId, date);
+
         log.info("已重新计算{}的统计数据，更新记录数: {}", date, updatedCount);
     }
 
+    @Override
+    public int rebuildRollups(String factoryId, LocalDate startDate, LocalDate endDate) {
+        log.info("重建考勤汇总: factoryId={}, startDate={}, endDate={}", factoryId, startDate, endDate);
+        if (startDate.isAfter(endDate)) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        return attendanceRollupService.rebuildRange(factoryId, startDate, endDate);
+    }
+
     /**
      * 计算考勤状态
      */
     private String calculateAttendanceStatus(TimeClockRecord record) {
-        boolean late = isLate(record);
-        boolean earlyLeave = isEarlyLeave(record);
+        boolean late = AttendanceRollupService.isLate(record);
+        boolean earlyLeave = AttendanceRollupService.isEarlyLeave(record);
 
         if (late && earlyLeave) {
             return "LATE_AND_EARLY_LEAVE";
@@ -1213,47 +977,55 @@ public class TimeStatsServiceImpl implements TimeStatsService {
         }
     }
     // ========== 私有辅助方法 ==========
-    private TimeStatsDTO.DailyStats createDailyStats(LocalDate date) {
+    private TimeStatsDTO.DailyStats createDailyStats(LocalDate date, AttendanceRollupService.Totals totals,
+                                                     long totalEmployees) {
         TimeStatsDTO.DailyStats stats = new TimeStatsDTO.DailyStats();
         stats.setDate(date);
         stats.setDayOfWeek(date.getDayOfWeek().toString());
         stats.setIsWorkday(!isWeekend(date));
-        Random random = new Random(date.toEpochDay());
-        stats.setTotalHours(new BigDecimal(200 + random.nextInt(100)));
-        stats.setActiveWorkers(20 + random.nextInt(10));
-        stats.setClockIns((long)(40 + random.nextInt(20)));
-        stats.setAttendanceRate(new BigDecimal(85 + random.nextInt(15)));
+        stats.setTotalHours(toHours(totals.getTotalMinutes()));
+        stats.setActiveWorkers((int) totals.getWorkerCount());
+        stats.setClockIns(totals.getRecordCount());
+        stats.setAttendanceRate(percent(totals.getWorkerCount(), totalEmployees));
         return stats;
     }
     private boolean isWeekend(LocalDate date) {
         DayOfWeek day = date.getDayOfWeek();
         return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
     }
-    private void calculateAggregateStats(TimeStatsDTO stats, List<TimeStatsDTO.DailyStats> dailyStatsList) {
-        if (dailyStatsList.isEmpty()) {
-            return;
+    /**
+     * 汇总日期范围统计: 工时与次数为合计, 出勤率为工作日平均, 平均工时按去重员工计算
+     */
+    private void calculateAggregateStats(TimeStatsDTO stats, List<TimeStatsDTO.DailyStats> dailyStatsList,
+                                         AttendanceRollupService.Totals totals, long distinctWorkers,
+                                         long totalEmployees) {
+        BigDecimal totalHours = toHours(totals.getTotalMinutes());
+        stats.setTotalHours(totalHours);
+        stats.setRegularHours(toHours(totals.getRegularMinutes()));
+        stats.setOvertimeHours(toHours(totals.getOvertimeMinutes()));
+        stats.setActiveWorkers((int) distinctWorkers);
+        stats.setTotalClockIns(totals.getRecordCount());
+        stats.setLateCount(totals.getLateCount());
+        stats.setEarlyLeaveCount(totals.getEarlyLeaveCount());
+        stats.setAverageHours(divide(totalHours, distinctWorkers));
+
+        List<TimeStatsDTO.DailyStats> workdays = dailyStatsList.stream()
+                .filter(d -> Boolean.TRUE.equals(d.getIsWorkday()))
+                .collect(Collectors.toList());
+        if (workdays.isEmpty()) {
+            workdays = dailyStatsList;
         }
-        BigDecimal totalHours = BigDecimal.ZERO;
-        int totalActiveWorkers = 0;
-        long totalClockIns = 0;
         BigDecimal totalAttendanceRate = BigDecimal.ZERO;
-        for (TimeStatsDTO.DailyStats daily : dailyStatsList) {
-            totalHours = totalHours.add(daily.getTotalHours());
-            totalActiveWorkers += daily.getActiveWorkers();
-            totalClockIns += daily.getClockIns();
+        long absentCount = 0;
+        for (TimeStatsDTO.DailyStats daily : workdays) {
             totalAttendanceRate = totalAttendanceRate.add(daily.getAttendanceRate());
+            absentCount += Math.max(0, totalEmployees - daily.getActiveWorkers());
         }
-        stats.setTotalHours(totalHours);
-        stats.setActiveWorkers(totalActiveWorkers / dailyStatsList.size());
-        stats.setTotalClockIns(totalClockIns);
-        BigDecimal avgAttendanceRate = totalAttendanceRate.divide(
-                new BigDecimal(dailyStatsList.size()), 2, RoundingMode.HALF_UP);
-        stats.setAttendanceRate(avgAttendanceRate);
-        // 模拟其他统计数据
-        stats.setRegularHours(totalHours.multiply(new BigDecimal("0.85")));
-        stats.setOvertimeHours(totalHours.multiply(new BigDecimal("0.15")));
-        stats.setAverageHours(totalHours.divide(new BigDecimal(totalActiveWorkers), 2, RoundingMode.HALF_UP));
-        stats.setProductivity(new BigDecimal("88.5"));
+        stats.setAttendanceRate(divide(totalAttendanceRate, workdays.size()));
+        stats.setAbsentCount(absentCount);
+
+        // 生产效率按人均日工时计算（workerCount 合计即员工·日数）
+        stats.setProductivity(productivity(divide(totalHours, totals.getWorkerCount())));
     }
     private TimeStatsDTO.WorkTypeStats createMockWorkTypeStats(String typeName, Integer typeId) {
         TimeStatsDTO.WorkTypeStats stats = new TimeStatsDTO.WorkTypeStats();
@@ -0,0 +1,353 @@
+package com.cretas.aims.service.intent;
+
+import com.cretas.aims.config.PythonClassifierConfig;
+import com.cretas.aims.dto.ClassifierResult;
+import com.cretas.aims.service.EmbeddingClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内意图分类器
+ *
+ * 在 JVM 内对 GTE Embedding 运行 {@link IntentClassifierHead}, 替代对 Python 分类器服务的 HTTP 调用。
+ * Python 侧只负责离线训练并导出 intent_head_v{N}.json, 本类定期扫描模型目录, 发现更高版本后原子替换,
+ * 正在进行的推理继续使用旧模型直至完成。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-27
+ */
+@Slf4j
+@Service
+public class InProcessIntentClassifier {
+
+    private static final Pattern VERSION_FILE = Pattern.compile("intent_head_v(\\d+)\\.json");
+
+    /**
+     * classpath 中的默认模型
+     */
+    private static final String CLASSPATH_MODEL = "config/intent_head.json";
+
+    private final EmbeddingClient embeddingClient;
+    private final PythonClassifierConfig config;
+
+    private final AtomicReference<LoadedModel> current = new AtomicReference<>();
+
+    private final AtomicLong classifications = new AtomicLong();
+    private final AtomicLong embeddingNanos = new AtomicLong();
+    private final AtomicLong inferenceNanos = new AtomicLong();
+    private final AtomicLong swaps = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+
+    public InProcessIntentClassifier(EmbeddingClient embeddingClient, PythonClassifierConfig config) {
+        this.embeddingClient = embeddingClient;
+        this.config = config;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!config.isLocalMode()) {
+            log.info("进程内意图分类器未启用 (mode={})", config.getMode());
+            return;
+        }
+        checkForUpdate();
+        if (current.get() == null) {
+            loadFromClasspath();
+        }
+        if (current.get() == null) {
+            log.warn("未找到意图分类头模型 (目录: {}), remoteFallback={}", config.getModelDir(), config.isRemoteFallback());
+        }
+    }
+
+    /**
+     * 定期扫描模型目录, 发现新版本后热替换
+     */
+    @Scheduled(fixedDelayString = "${python-classifier.model-poll-interval:60000}")
+    public void checkForUpdate() {
+        if (!config.isLocalMode()) {
+            return;
+        }
+        Path latest = findLatestModel(Paths.get(config.getModelDir()));
+        if (latest == null) {
+            return;
+        }
+        LoadedModel loaded = current.get();
+        try {
+            long modified = Files.getLastModifiedTime(latest).toMillis();
+            if (loaded != null && latest.toString().equals(loaded.source) && loaded.sourceModified == modified) {
+                return;
+            }
+            loadModel(latest);
+        } catch (IOException | IllegalStateException e) {
+            loadFailures.incrementAndGet();
+            log.error("意图分类头热加载失败, 继续使用当前版本 {}: {}",
+                    loaded != null ? loaded.head.getVersion() : "无", e.getMessage());
+        }
+    }
+
+    /**
+     * 加载指定模型文件并替换当前模型
+     *
+     * @param path 模型文件
+     * @return 新模型版本
+     * @throws IOException 文件读取或校验失败, 此时当前模型保持不变
+     */
+    public String loadModel(Path path) throws IOException {
+        IntentClassifierHead head;
+        try (InputStream in = Files.newInputStream(path)) {
+            head = IntentClassifierHead.read(in);
+        }
+        swap(head, path.toString(), Files.getLastModifiedTime(path).toMillis());
+        return head.getVersion();
+    }
+
+    /**
+     * 直接替换为已构建的分类头 (离线评测与测试使用)
+     */
+    public void install(IntentClassifierHead head) {
+        swap(head, "memory", System.currentTimeMillis());
+    }
+
+    private void swap(IntentClassifierHead head, String source, long modified) {
+        int dim = embeddingClient.isAvailable() ? embeddingClient.getDimension() : head.getEmbeddingDim();
+        if (dim != head.getEmbeddingDim()) {
+            throw new IllegalStateException("分类头输入维度 " + head.getEmbeddingDim()
+                    + " 与 Embedding 模型维度 " + dim + " 不一致");
+        }
+        LoadedModel previous = current.getAndSet(new LoadedModel(head, source, modified, LocalDateTime.now()));
+        swaps.incrementAndGet();
+        log.info("意图分类头已加载: version={}, labels={}, precision={}, params={}KB, source={}{}",
+                head.getVersion(), head.getNumLabels(), head.getPrecision(), head.getParameterBytes() / 1024, source,
+                previous != null ? " (替换 " + previous.head.getVersion() + ")" : "");
+    }
+
+    private void loadFromClasspath() {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(CLASSPATH_MODEL)) {
+            if (in != null) {
+                swap(IntentClassifierHead.read(in), "classpath:" + CLASSPATH_MODEL, 0L);
+            }
+        } catch (Exception e) {
+            loadFailures.incrementAndGet();
+            log.warn("classpath 意图分类头加载失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在目录中查找版本号最大的 intent_head_v{N}.json
+     */
+    static Path findLatestModel(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return null;
+        }
+        Path latest = null;
+        long latestVersion = -1;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "intent_head_v*.json")) {
+            for (Path path : stream) {
+                Matcher m = VERSION_FILE.matcher(path.getFileName().toString());
+                if (m.matches() && Long.parseLong(m.group(1)) > latestVersion) {
+                    latestVersion = Long.parseLong(m.group(1));
+                    latest = path;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("扫描模型目录失败 {}: {}", dir, e.getMessage());
+        }
+        return latest;
+    }
+
+    // ==================== 推理 ====================
+
+    /**
+     * 模型已加载且 Embedding 服务可用
+     */
+    public boolean isReady() {
+        return current.get() != null && embeddingClient.isAvailable();
+    }
+
+    /**
+     * 单条分类
+     *
+     * @return 分类结果, 模型未就绪或输入为空时返回 Optional.empty()
+     */
+    public Optional<ClassifierResult> classify(String text, int topK, double minConfidence) {
+        LoadedModel model = current.get();
+        if (model == null || text == null || text.trim().isEmpty() || !embeddingClient.isAvailable()) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        float[] embedding = embeddingClient.encode(text.trim());
+        long encoded = System.nanoTime();
+        ClassifierResult result = infer(model.head, embedding, topK, minConfidence);
+        long end = System.nanoTime();
+
+        record(encoded - start, end - encoded, 1);
+        result.setLatencyMs((end - start) / 1_000_000);
+        return Optional.of(result);
+    }
+
+    /**
+     * 对已有向量分类 (跳过 Embedding 调用)
+     */
+    public Optional<ClassifierResult> classifyEmbedding(float[] embedding, int topK, double minConfidence) {
+        LoadedModel model = current.get();
+        if (model == null) {
+            return Optional.empty();
+        }
+        return Optional.of(infer(model.head, embedding, topK, minConfidence));
+    }
+
+    /**
+     * 指定意图的概率
+     *
+     * @return 概率, 模型未就绪或意图不在标签集中返回 -1
+     */
+    public double confidenceFor(String text, String intentCode) {
+        LoadedModel model = current.get();
+        if (model == null || text == null || !embeddingClient.isAvailable()) {
+            return -1;
+        }
+        int index = model.head.getLabels().indexOf(intentCode);
+        if (index < 0) {
+            return -1;
+        }
+        float[] logits = model.head.logits(embeddingClient.encode(text.trim()));
+        return model.head.probabilities(logits)[index];
+    }
+
+    static ClassifierResult infer(IntentClassifierHead head, float[] embedding, int topK, double minConfidence) {
+        float[] logits = head.logits(embedding);
+        double[] probs = head.probabilities(logits);
+
+        int k = Math.max(1, Math.min(topK, probs.length));
+        int[] top = topIndices(probs, Math.max(k, 2));
+
+        double entropy = 0.0;
+        float maxLogit = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < probs.length; i++) {
+            entropy -= probs[i] * Math.log(probs[i] + 1e-10);
+            maxLogit = Math.max(maxLogit, logits[i]);
+        }
+
+        ClassifierResult result = new ClassifierResult();
+        result.setIntentCode(head.getLabels().get(top[0]));
+        result.setConfidence(probs[top[0]]);
+        result.setEntropy(entropy);
+        result.setMargin(top.length > 1 ? probs[top[0]] - probs[top[1]] : probs[top[0]]);
+        result.setMaxLogit((double) maxLogit);
+
+        List<ClassifierResult.PredictionEntry> predictions = new ArrayList<>(k);
+        for (int r = 0; r < k && r < top.length; r++) {
+            if (r > 0 && probs[top[r]] < minConfidence) {
+                break;
+            }
+            ClassifierResult.PredictionEntry entry = new ClassifierResult.PredictionEntry();
+            entry.setIntent(head.getLabels().get(top[r]));
+            entry.setConfidence(probs[top[r]]);
+            entry.setRank(r + 1);
+            predictions.add(entry);
+        }
+        result.setPredictions(predictions);
+        return result;
+    }
+
+    /**
+     * 部分选择 Top-K 下标, 按概率降序
+     */
+    private static int[] topIndices(double[] values, int k) {
+        k = Math.min(k, values.length);
+        int[] top = new int[k];
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (size < k) {
+                int j = size++;
+                while (j > 0 && values[top[j - 1]] < values[i]) {
+                    top[j] = top[j - 1];
+                    j--;
+                }
+                top[j] = i;
+            } else if (values[i] > values[top[k - 1]]) {
+                int j = k - 1;
+                while (j > 0 && values[top[j - 1]] < values[i]) {
+                    top[j] = top[j - 1];
+                    j--;
+                }
+                top[j] = i;
+            }
+        }
+        return top;
+    }
+
+    private void record(long encodeNanos, long inferNanos, int count) {
+        classifications.addAndGet(count);
+        embeddingNanos.addAndGet(encodeNanos);
+        inferenceNanos.addAndGet(inferNanos);
+    }
+
+    // ==================== 状态 ====================
+
+    /**
+     * 当前模型
+     */
+    public Optional<IntentClassifierHead> getCurrentHead() {
+        LoadedModel model = current.get();
+        return model != null ? Optional.of(model.head) : Optional.empty();
+    }
+
+    /**
+     * 模型与推理统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        LoadedModel model = current.get();
+        stats.put("ready", isReady());
+        if (model != null) {
+            stats.put("version", model.head.getVersion());
+            stats.put("precision", model.head.getPrecision());
+            stats.put("numLabels", model.head.getNumLabels());
+            stats.put("embeddingDim", model.head.getEmbeddingDim());
+            stats.put("parameterBytes", model.head.getParameterBytes());
+            stats.put("source", model.source);
+            stats.put("loadedAt", model.loadedAt.toString());
+        }
+        long count = classifications.get();
+        stats.put("classifications", count);
+        stats.put("avgEmbeddingMicros", count == 0 ? 0 : embeddingNanos.get() / count / 1000);
+        stats.put("avgInferenceMicros", count == 0 ? 0 : inferenceNanos.get() / count / 1000);
+        stats.put("swaps", swaps.get());
+        stats.put("loadFailures", loadFailures.get());
+        return stats;
+    }
+
+    private static final class LoadedModel {
+        final IntentClassifierHead head;
+        final String source;
+        final long sourceModified;
+        final LocalDateTime loadedAt;
+
+        LoadedModel(IntentClassifierHead head, String source, long sourceModified, LocalDateTime loadedAt) {
+            this.head = head;
+            this.source = source;
+            this.sourceModified = sourceModified;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
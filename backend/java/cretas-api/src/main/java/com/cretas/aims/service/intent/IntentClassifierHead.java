@@ -0,0 +1,349 @@
+package com.cretas.aims.service.intent;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 进程内意图分类头 (GTE Embedding → Dense 层 → Softmax)
+ *
+ * 由 Python 离线训练后导出为 JSON 模型文件, 加载后不可变, 可在多线程间共享。
+ * 支持单层线性 (Softmax 回归) 与多层 MLP, 每层权重可为 float32 或 int8 (逐行对称量化)。
+ *
+ * <p>模型文件格式:</p>
+ * <pre>
+ * {
+ *   "format": "intent-head",
+ *   "version": "v3",
+ *   "embedding_dim": 768,
+ *   "temperature": 1.5,
+ *   "labels": ["MATERIAL_BATCH_QUERY", ...],
+ *   "layers": [
+ *     {"in": 768, "out": 256, "activation": "relu", "dtype": "int8",
+ *      "weights": [...], "scales": [...], "bias": [...]},
+ *     {"in": 256, "out": 185, "activation": "none", "dtype": "float32",
+ *      "weights": [...], "bias": [...]}
+ *   ]
+ * }
+ * </pre>
+ * weights 为按行展开的 [out x in] 矩阵; int8 层第 r 行的真实权重为 weights[r*in+k] * scales[r]。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-27
+ */
+@Getter
+public final class IntentClassifierHead {
+
+    public static final String FORMAT = "intent-head";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String version;
+    private final int embeddingDim;
+    private final double temperature;
+    private final List<String> labels;
+    private final List<Layer> layers;
+
+    public IntentClassifierHead(String version, double temperature, List<String> labels, List<Layer> layers) {
+        if (layers.isEmpty()) {
+            throw new IllegalArgumentException("分类头至少需要一层");
+        }
+        for (int i = 1; i < layers.size(); i++) {
+            if (layers.get(i).in != layers.get(i - 1).out) {
+                throw new IllegalArgumentException("第 " + i + " 层输入维度与上一层输出不一致");
+            }
+        }
+        Layer last = layers.get(layers.size() - 1);
+        if (last.out != labels.size()) {
+            throw new IllegalArgumentException("输出维度 " + last.out + " 与标签数 " + labels.size() + " 不一致");
+        }
+        this.version = version;
+        this.temperature = temperature > 0 ? temperature : 1.0;
+        this.labels = Collections.unmodifiableList(new ArrayList<>(labels));
+        this.layers = Collections.unmodifiableList(new ArrayList<>(layers));
+        this.embeddingDim = layers.get(0).in;
+    }
+
+    // ==================== 推理 ====================
+
+    /**
+     * 计算原始 logits (未经温度缩放)
+     *
+     * @param embedding 输入向量, 长度必须等于 embeddingDim
+     * @return logits, 长度等于标签数
+     */
+    public float[] logits(float[] embedding) {
+        if (embedding == null || embedding.length != embeddingDim) {
+            throw new IllegalArgumentException("向量维度不匹配: 期望 " + embeddingDim + ", 实际 "
+                    + (embedding == null ? "null" : embedding.length));
+        }
+        float[] x = embedding;
+        for (Layer layer : layers) {
+            x = layer.forward(x);
+        }
+        return x;
+    }
+
+    /**
+     * 带温度缩放的 Softmax 概率
+     */
+    public double[] probabilities(float[] logits) {
+        double[] result = new double[logits.length];
+        double max = Double.NEGATIVE_INFINITY;
+        for (float v : logits) {
+            max = Math.max(max, v);
+        }
+        double sum = 0.0;
+        for (int i = 0; i < logits.length; i++) {
+            result[i] = Math.exp((logits[i] - max) / temperature);
+            sum += result[i];
+        }
+        for (int i = 0; i < result.length; i++) {
+            result[i] /= sum;
+        }
+        return result;
+    }
+
+    public int getNumLabels() {
+        return labels.size();
+    }
+
+    /**
+     * 模型参数字节数 (用于监控量化收益)
+     */
+    public long getParameterBytes() {
+        long bytes = 0;
+        for (Layer layer : layers) {
+            bytes += layer.parameterBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 任一层为 int8 即视为量化模型
+     */
+    public String getPrecision() {
+        boolean int8 = false;
+        boolean fp32 = false;
+        for (Layer layer : layers) {
+            if (layer.quantized != null) {
+                int8 = true;
+            } else {
+                fp32 = true;
+            }
+        }
+        return int8 && fp32 ? "mixed" : int8 ? "int8" : "float32";
+    }
+
+    // ==================== 加载 ====================
+
+    /**
+     * 从 JSON 模型文件解析
+     *
+     * @throws IOException 文件格式错误或维度不一致时抛出
+     */
+    public static IntentClassifierHead read(InputStream in) throws IOException {
+        JsonNode root = MAPPER.readTree(in);
+        if (root == null || !FORMAT.equals(root.path("format").asText())) {
+            throw new IOException("不是有效的意图分类头模型文件 (format != " + FORMAT + ")");
+        }
+
+        List<String> labels = new ArrayList<>();
+        for (JsonNode label : root.path("labels")) {
+            labels.add(label.asText());
+        }
+
+        List<Layer> layers = new ArrayList<>();
+        JsonNode layerNodes = root.path("layers");
+        for (int i = 0; i < layerNodes.size(); i++) {
+            layers.add(readLayer(layerNodes.get(i), i));
+        }
+
+        try {
+            IntentClassifierHead head = new IntentClassifierHead(root.path("version").asText("unknown"),
+                    root.path("temperature").asDouble(1.0), labels, layers);
+            int declaredDim = root.path("embedding_dim").asInt(head.embeddingDim);
+            if (declaredDim != head.embeddingDim) {
+                throw new IOException("embedding_dim=" + declaredDim + " 与首层输入维度 " + head.embeddingDim + " 不一致");
+            }
+            return head;
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static Layer readLayer(JsonNode node, int index) throws IOException {
+        int in = node.path("in").asInt();
+        int out = node.path("out").asInt();
+        if (in <= 0 || out <= 0) {
+            throw new IOException("第 " + index + " 层缺少 in/out");
+        }
+        Activation activation = Activation.of(node.path("activation").asText("none"));
+        float[] bias = readFloats(node.path("bias"), out, "第 " + index + " 层 bias");
+        JsonNode weights = node.path("weights");
+        if (weights.size() != in * out) {
+            throw new IOException("第 " + index + " 层权重数量 " + weights.size() + " != " + in + "x" + out);
+        }
+
+        String dtype = node.path("dtype").asText("float32");
+        if ("int8".equalsIgnoreCase(dtype)) {
+            byte[] q = new byte[in * out];
+            for (int i = 0; i < q.length; i++) {
+                int v = weights.get(i).asInt();
+                if (v < -127 || v > 127) {
+                    throw new IOException("第 " + index + " 层 int8 权重越界: " + v);
+                }
+                q[i] = (byte) v;
+            }
+            float[] scales = readFloats(node.path("scales"), out, "第 " + index + " 层 scales");
+            return Layer.int8(in, out, q, scales, bias, activation);
+        }
+        if (!"float32".equalsIgnoreCase(dtype)) {
+            throw new IOException("不支持的权重类型: " + dtype);
+        }
+        return Layer.float32(in, out, readFloats(weights, in * out, "第 " + index + " 层 weights"), bias, activation);
+    }
+
+    private static float[] readFloats(JsonNode array, int expected, String name) throws IOException {
+        if (array.size() != expected) {
+            throw new IOException(name + " 长度 " + array.size() + " != " + expected);
+        }
+        float[] values = new float[expected];
+        for (int i = 0; i < expected; i++) {
+            values[i] = (float) array.get(i).asDouble();
+        }
+        return values;
+    }
+
+    // ==================== 层定义 ====================
+
+    /**
+     * 激活函数
+     */
+    public enum Activation {
+        NONE, RELU, TANH;
+
+        static Activation of(String name) {
+            switch (name.toLowerCase()) {
+                case "relu":
+                    return RELU;
+                case "tanh":
+                    return TANH;
+                case "none":
+                case "linear":
+                case "":
+                    return NONE;
+                default:
+                    throw new IllegalArgumentException("不支持的激活函数: " + name);
+            }
+        }
+    }
+
+    /**
+     * 全连接层, 权重按行展开 [out x in]
+     */
+    public static final class Layer {
+        private final int in;
+        private final int out;
+        private final float[] weights;
+        private final byte[] quantized;
+        private final float[] scales;
+        private final float[] bias;
+        private final Activation activation;
+
+        private Layer(int in, int out, float[] weights, byte[] quantized, float[] scales,
+                      float[] bias, Activation activation) {
+            this.in = in;
+            this.out = out;
+            this.weights = weights;
+            this.quantized = quantized;
+            this.scales = scales;
+            this.bias = bias;
+            this.activation = activation;
+        }
+
+        public static Layer float32(int in, int out, float[] weights, float[] bias, Activation activation) {
+            return new Layer(in, out, weights, null, null, bias, activation);
+        }
+
+        public static Layer int8(int in, int out, byte[] weights, float[] scales, float[] bias, Activation activation) {
+            return new Layer(in, out, null, weights, scales, bias, activation);
+        }
+
+        /**
+         * 将 float32 层按行对称量化为 int8 (scale = max|w| / 127)
+         */
+        public static Layer quantize(int in, int out, float[] weights, float[] bias, Activation activation) {
+            byte[] q = new byte[in * out];
+            float[] scales = new float[out];
+            for (int r = 0; r < out; r++) {
+                int base = r * in;
+                float maxAbs = 0f;
+                for (int k = 0; k < in; k++) {
+                    maxAbs = Math.max(maxAbs, Math.abs(weights[base + k]));
+                }
+                float scale = maxAbs == 0f ? 1f : maxAbs / 127f;
+                scales[r] = scale;
+                for (int k = 0; k < in; k++) {
+                    q[base + k] = (byte) Math.round(weights[base + k] / scale);
+                }
+            }
+            return int8(in, out, q, scales, bias, activation);
+        }
+
+        public int getIn() {
+            return in;
+        }
+
+        public int getOut() {
+            return out;
+        }
+
+        float[] forward(float[] x) {
+            float[] y = new float[out];
+            if (quantized != null) {
+                for (int r = 0; r < out; r++) {
+                    int base = r * in;
+                    float acc = 0f;
+                    for (int k = 0; k < in; k++) {
+                        acc += quantized[base + k] * x[k];
+                    }
+                    y[r] = activate(acc * scales[r] + bias[r]);
+                }
+            } else {
+                for (int r = 0; r < out; r++) {
+                    int base = r * in;
+                    float acc = 0f;
+                    for (int k = 0; k < in; k++) {
+                        acc += weights[base + k] * x[k];
+                    }
+                    y[r] = activate(acc + bias[r]);
+                }
+            }
+            return y;
+        }
+
+        private float activate(float v) {
+            switch (activation) {
+                case RELU:
+                    return v > 0f ? v : 0f;
+                case TANH:
+                    return (float) Math.tanh(v);
+                default:
+                    return v;
+            }
+        }
+
+        long parameterBytes() {
+            long w = quantized != null ? quantized.length + 4L * scales.length : 4L * weights.length;
+            return w + 4L * bias.length;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.cretas.aims.service.intent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 意图识别分层投机执行器
+ *
+ * 意图识别中相互独立的远程层 (分类器、语义路由等) 在请求开始时并行启动, 由
+ * {@link LayerRace#awaitFirstConfident(Map)} 按完成先后检查置信度, 第一个高置信度结果胜出,
+ * 其余仍在运行的层随即取消; 主流程随后按原有顺序与规则消费已收集的结果。
+ * 整个请求共享一个延迟预算, 超出预算的层视为未命中。
+ *
+ * 每层记录启动、完成、超时、取消、胜出次数及延迟/置信度分布, 供阈值调优使用。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-28
+ */
+@Slf4j
+@Component
+public class IntentLayerExecutor {
+
+    public static final String LAYER_CLASSIFIER = "CLASSIFIER";
+    public static final String LAYER_SEMANTIC_ROUTER = "SEMANTIC_ROUTER";
+
+    /**
+     * 延迟分桶上界 (毫秒), 最后一桶为溢出
+     */
+    private static final long[] LATENCY_BUCKETS_MS = {10, 25, 50, 100, 250, 500, 1000, 2000, 5000};
+
+    private final boolean enabled;
+    private final long budgetMs;
+    private final ThreadPoolExecutor pool;
+    private final Map<String, LayerStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong races = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    public IntentLayerExecutor(
+            @Value("${ai.intent.parallel.enabled:true}") boolean enabled,
+            @Value("${ai.intent.parallel.budget-ms:3000}") long budgetMs,
+            @Value("${ai.intent.parallel.threads:16}") int threads,
+            @Value("${ai.intent.parallel.queue-capacity:64}") int queueCapacity) {
+        this.enabled = enabled;
+        this.budgetMs = budgetMs;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "intent-layer-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+        log.info("意图分层并行执行器: enabled={}, budget={}ms, threads={}, queue={}",
+                enabled, budgetMs, threads, queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 为一次意图识别请求创建执行上下文
+     */
+    public LayerRace start() {
+        races.incrementAndGet();
+        return new LayerRace(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+    }
+
+    /**
+     * 记录某层结果的置信度分布 (0.1 一档)
+     */
+    public void observeConfidence(String layer, double confidence) {
+        int bucket = (int) Math.min(9, Math.max(0, Math.floor(confidence * 10)));
+        statsFor(layer).confidence.incrementAndGet(bucket);
+    }
+
+    private LayerStats statsFor(String layer) {
+        return stats.computeIfAbsent(layer, k -> new LayerStats());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // ==================== 单次请求上下文 ====================
+
+    /**
+     * 一次请求内的并行层集合, 非线程安全, 仅由请求线程使用
+     */
+    public final class LayerRace {
+
+        private final long deadlineNanos;
+        private final Map<String, Layer<?>> layers = new LinkedHashMap<>();
+        // 工作线程完成后写入层名称, 请求线程据此按完成顺序消费
+        private final BlockingQueue<String> completions = new LinkedBlockingQueue<>();
+        private boolean raced;
+        private boolean finished;
+
+        private LayerRace(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * 投机启动一层; 线程池已满时降级为在 {@link #await} 时同步执行
+         */
+        public <T> void submit(String name, Supplier<T> task) {
+            LayerStats s = statsFor(name);
+            Layer<T> layer = new Layer<>(task, s);
+            layers.put(name, layer);
+            s.started.incrementAndGet();
+            try {
+                layer.future = pool.submit(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        return task.get();
+                    } finally {
+                        layer.elapsedNanos = System.nanoTime() - start;
+                        completions.offer(name);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                s.inline.incrementAndGet();
+            }
+        }
+
+        public boolean has(String name) {
+            return layers.containsKey(name);
+        }
+
+        /**
+         * 剩余预算 (毫秒)
+         */
+        public long remainingMs() {
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+        }
+
+        /**
+         * 在剩余预算内等待某层结果
+         *
+         * @return 层结果; 未提交、超时、异常或结果为 null 时返回 Optional.empty()
+         */
+        @SuppressWarnings("unchecked")
+        public <T> Optional<T> await(String name) {
+            Layer<T> layer = (Layer<T>) layers.get(name);
+            if (layer == null || layer.consumed) {
+                return Optional.empty();
+            }
+            layer.consumed = true;
+            if (layer.resolved) {
+                return Optional.ofNullable(layer.value);
+            }
+            LayerStats s = layer.stats;
+
+            if (layer.future == null) {
+                long start = System.nanoTime();
+                try {
+                    T value = layer.task.get();
+                    layer.elapsedNanos = System.nanoTime() - start;
+                    s.record(layer.elapsedNanos);
+                    return Optional.ofNullable(value);
+                } catch (RuntimeException e) {
+                    s.failed.incrementAndGet();
+                    log.warn("意图层 {} 执行失败: {}", name, e.getMessage());
+                    return Optional.empty();
+                }
+            }
+
+            return Optional.ofNullable(resolve(name, layer));
+        }
+
+        /**
+         * 按完成先后等待各层, 第一个通过置信度判定的层胜出, 其余仍在运行的层立即取消
+         *
+         * 未通过判定的结果会保留, 之后 {@link #await(String)} 直接返回而不再等待;
+         * 每个请求只竞争一次, 预算耗尽时停止等待, 剩余层由 await 按超时处理。
+         *
+         * @param confident 各层结果的置信度判定 (入参非 null), 未列出的层不参与竞争
+         * @return 胜出层名称; 没有层通过判定时返回 Optional.empty()
+         */
+        public Optional<String> awaitFirstConfident(Map<String, Predicate<Object>> confident) {
+            if (raced) {
+                return Optional.empty();
+            }
+            raced = true;
+            Set<String> pending = new HashSet<>();
+            layers.forEach((name, layer) -> {
+                if (confident.containsKey(name) && layer.future != null && !layer.consumed) {
+                    pending.add(name);
+                }
+            });
+            while (!pending.isEmpty()) {
+                String name;
+                try {
+                    name = completions.poll(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Optional.empty();
+                }
+                if (name == null) {
+                    return Optional.empty();
+                }
+                if (!pending.remove(name)) {
+                    continue;
+                }
+                Object value = resolve(name, layers.get(name));
+                if (value != null && confident.get(name).test(value)) {
+                    cancelOthers(name);
+                    return Optional.of(name);
+                }
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * 取消胜出层以外尚未完成的层, 被取消的层之后 await 返回 Optional.empty()
+         */
+        private void cancelOthers(String winner) {
+            layers.forEach((name, layer) -> {
+                if (name.equals(winner) || layer.consumed || layer.resolved) {
+                    return;
+                }
+                if (layer.future == null) {
+                    layer.consumed = true;
+                } else if (!layer.future.isDone() && layer.future.cancel(true)) {
+                    layer.consumed = true;
+                    layer.stats.cancelled.incrementAndGet();
+                }
+            });
+        }
+
+        /**
+         * 在剩余预算内取回已并行提交的层结果并记录统计, 失败或超时返回 null
+         */
+        private <T> T resolve(String name, Layer<T> layer) {
+            LayerStats s = layer.stats;
+            layer.resolved = true;
+            try {
+                long waitNanos = Math.max(0, deadlineNanos - System.nanoTime());
+                T value = layer.future.get(waitNanos, TimeUnit.NANOSECONDS);
+                s.record(layer.elapsedNanos);
+                layer.value = value;
+                return value;
+            } catch (TimeoutException e) {
+                layer.future.cancel(true);
+                s.timeouts.incrementAndGet();
+                budgetExhausted.incrementAndGet();
+                log.info("意图层 {} 超出延迟预算 {}ms, 视为未命中", name, budgetMs);
+            } catch (ExecutionException e) {
+                s.failed.incrementAndGet();
+                log.warn("意图层 {} 执行失败: {}", name, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (CancellationException e) {
+                s.cancelled.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                layer.future.cancel(true);
+            }
+            return null;
+        }
+
+        /**
+         * 结束本次请求: 记录胜出层并取消其余仍在运行的层
+         *
+         * @param winner 最终采用结果的层, 非并行层胜出时传 null
+         */
+        public void finish(String winner) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (winner != null && layers.containsKey(winner)) {
+                layers.get(winner).stats.wins.incrementAndGet();
+            }
+            for (Layer<?> layer : layers.values()) {
+                if (layer.consumed || layer.future == null) {
+                    continue;
+                }
+                if (layer.resolved || layer.future.isDone()) {
+                    layer.stats.unused.incrementAndGet();
+                } else if (layer.future.cancel(true)) {
+                    layer.stats.cancelled.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static final class Layer<T> {
+        final Supplier<T> task;
+        final LayerStats stats;
+        Future<T> future;
+        volatile long elapsedNanos;
+        boolean consumed;
+        boolean resolved;
+        T value;
+
+        Layer(Supplier<T> task, LayerStats stats) {
+            this.task = task;
+            this.stats = stats;
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    private static final class LayerStats {
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong unused = new AtomicLong();
+        final AtomicLong inline = new AtomicLong();
+        final AtomicLong wins = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+        final AtomicLongArray confidence = new AtomicLongArray(10);
+
+        void record(long nanos) {
+            completed.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_MS.length && ms > LATENCY_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            latency.incrementAndGet(bucket);
+        }
+
+        long percentileMs(double p) {
+            long total = 0;
+            for (int i = 0; i < latency.length(); i++) {
+                total += latency.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int i = 0; i < latency.length(); i++) {
+                seen += latency.get(i);
+                if (seen >= rank) {
+                    return i < LATENCY_BUCKETS_MS.length ? LATENCY_BUCKETS_MS[i] : TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+                }
+            }
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        Map<String, Object> toMap(long races) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            long done = completed.get();
+            m.put("started", started.get());
+            m.put("completed", done);
+            m.put("failed", failed.get());
+            m.put("timeouts", timeouts.get());
+            m.put("cancelled", cancelled.get());
+            m.put("unused", unused.get());
+            m.put("inline", inline.get());
+            m.put("wins", wins.get());
+            m.put("winRate", races == 0 ? 0.0 : (double) wins.get() / races);
+            m.put("avgLatencyMs", done == 0 ? 0.0 : totalNanos.get() / 1_000_000.0 / done);
+            m.put("p50LatencyMs", percentileMs(0.50));
+            m.put("p95LatencyMs", percentileMs(0.95));
+            m.put("maxLatencyMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            long[] hist = new long[confidence.length()];
+            for (int i = 0; i < hist.length; i++) {
+                hist[i] = confidence.get(i);
+            }
+            m.put("confidenceHistogram", hist);
+            return m;
+        }
+    }
+
+    /**
+     * 各层延迟、胜出率与取消统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long total = races.get();
+        result.put("enabled", enabled);
+        result.put("budgetMs", budgetMs);
+        result.put("requests", total);
+        result.put("budgetExhausted", budgetExhausted.get());
+        result.put("activeThreads", pool.getActiveCount());
+        result.put("queued", pool.getQueue().size());
+        Map<String, Object> layerStats = new LinkedHashMap<>();
+        stats.forEach((name, s) -> layerStats.put(name, s.toMap(total)));
+        result.put("layers", layerStats);
+        return result;
+    }
+}
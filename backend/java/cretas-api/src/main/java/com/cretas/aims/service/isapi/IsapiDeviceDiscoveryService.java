@@ -1,5 +1,8 @@
 package com.cretas.aims.service.isapi;
 
+import com.cretas.aims.client.discovery.AsyncDiscoveryEngine;
+import com.cretas.aims.client.discovery.AsyncDiscoveryEngine.DiscoveryScan;
+import com.cretas.aims.client.discovery.AsyncDiscoveryEngine.ScanOptions;
 import com.cretas.aims.dto.isapi.DeviceDiscoveryRequest;
 import com.cretas.aims.dto.isapi.DiscoveredDeviceDTO;
 import lombok.extern.slf4j.Slf4j;
@@ -11,11 +14,9 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,6 +32,7 @@ import java.util.regex.Pattern;
 public class IsapiDeviceDiscoveryService {
 
     private final OkHttpClient httpClient;
+    private final AsyncDiscoveryEngine discoveryEngine;
 
     // 设备识别常量
     private static final String MANUFACTURER_HIKVISION = "HIKVISION";
@@ -58,8 +60,10 @@ public class IsapiDeviceDiscoveryService {
     private static final Pattern PATTERN_MAC_ADDRESS = Pattern.compile("<macAddress>([^<]+)</macAddress>");
 
     public IsapiDeviceDiscoveryService(
-            @Qualifier("isapiHttpClient") OkHttpClient httpClient) {
+            @Qualifier("isapiHttpClient") OkHttpClient httpClient,
+            AsyncDiscoveryEngine discoveryEngine) {
         this.httpClient = httpClient;
+        this.discoveryEngine = discoveryEngine;
     }
 
     /**
@@ -106,43 +110,53 @@ public class IsapiDeviceDiscoveryService {
 
         log.info("解析得到 {} 个 IP 地址", ipList.size());
 
-        // 创建线程池
-        ExecutorService executor = Executors.newFixedThreadPool(maxConcurrent);
+        // 端口探测与 HTTP 探测流水线执行: 端口一旦连通立即探测
         int timeoutMs = timeout * 1000;
+        List<DiscoveredDeviceDTO> devices = discoveryEngine.scanAndWait(
+                ipList, ports, scanOptions(timeoutMs, maxConcurrent), this::probeDevice,
+                scanBudgetMs(ipList.size(), ports.size(), timeoutMs));
 
-        try {
-            // 第一阶段: 并发 Ping 检测在线主机
-            List<String> onlineHosts = pingHosts(executor, ipList, timeoutMs);
-            log.info("Ping 检测完成, {} 个主机在线", onlineHosts.size());
-
-            if (onlineHosts.isEmpty()) {
-                return Collections.emptyList();
-            }
+        // 去重：同一 IP 只保留优先级最高的设备（ISAPI > 其他）
+        List<DiscoveredDeviceDTO> result = deduplicateDevices(devices);
 
-            // 第二阶段: 对在线主机扫描指定端口
-            Map<String, List<Integer>> hostOpenPorts = scanPorts(executor, onlineHosts, ports, timeoutMs);
-            log.info("端口扫描完成, {} 个主机有开放端口", hostOpenPorts.size());
+        long elapsed = System.currentTimeMillis() - startTime;
+        log.info("设备发现完成: 扫描 {} 个IP, 发现 {} 个设备, 耗时 {}ms",
+                ipList.size(), result.size(), elapsed);
 
-            // 第三阶段: 对开放端口进行 HTTP 探测
-            List<DiscoveredDeviceDTO> devices = probeDevices(executor, hostOpenPorts, timeoutMs);
+        return result;
+    }
 
-            long elapsed = System.currentTimeMillis() - startTime;
-            log.info("设备发现完成: 扫描 {} 个IP, 发现 {} 个设备, 耗时 {}ms",
-                    ipList.size(), devices.size(), elapsed);
+    /**
+     * 流式扫描网段, 每发现一个设备立即回调
+     *
+     * @param request 发现请求参数
+     * @param onFound 发现回调 (在探测线程中执行, 同一 IP 的多个端口可能各回调一次)
+     * @return 扫描句柄, 可查询进度、等待完成或取消
+     */
+    public DiscoveryScan<DiscoveredDeviceDTO> discoverDevicesStreaming(DeviceDiscoveryRequest request,
+                                                                      Consumer<DiscoveredDeviceDTO> onFound) {
+        List<String> ipList = parseCIDR(request.getNetworkCIDR());
+        log.info("开始流式设备发现: network={}, {} 个IP, ports={}",
+                request.getNetworkCIDR(), ipList.size(), request.getPorts());
+        return discoveryEngine.scan(ipList, request.getPorts(),
+                scanOptions(request.getTimeout() * 1000, request.getMaxConcurrent()),
+                this::probeDevice, onFound);
+    }
 
-            return devices;
+    /**
+     * 扫描参数: 连接超时沿用原先端口扫描的 2 秒上限, maxConcurrent 约束 HTTP 探测并发
+     */
+    private ScanOptions scanOptions(int timeoutMs, int maxConcurrent) {
+        return ScanOptions.defaults()
+                .connectTimeoutMs(Math.min(timeoutMs, 2000))
+                .maxConcurrentProbes(maxConcurrent);
+    }
 
-        } finally {
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
+    /**
+     * 整体扫描时间上限: 连接阶段按限速估算, 再加上 HTTP 探测时间
+     */
+    private long scanBudgetMs(int hostCount, int portCount, int timeoutMs) {
+        return Math.max(timeoutMs, 2000L) + (long) hostCount * portCount / 2 + 15_000L;
     }
 
     /**
@@ -224,172 +238,7 @@ public class IsapiDeviceDiscoveryService {
      * 解析 CIDR 获取 IP 列表
      */
     private List<String> parseCIDR(String cidr) {
-        List<String> ipList = new ArrayList<>();
-
-        try {
-            if (cidr == null || !cidr.contains("/")) {
-                log.warn("无效的 CIDR 格式: {}", cidr);
-                return ipList;
-            }
-
-            String[] parts = cidr.split("/");
-            String baseIp = parts[0];
-            int prefixLength = Integer.parseInt(parts[1]);
-
-            // 验证前缀长度
-            if (prefixLength < 16 || prefixLength > 30) {
-                log.warn("CIDR 前缀长度超出范围 (16-30): {}", prefixLength);
-                return ipList;
-            }
-
-            // 计算子网掩码和主机数
-            int hostBits = 32 - prefixLength;
-            int hostCount = (1 << hostBits) - 2; // 排除网络地址和广播地址
-
-            // 解析基础 IP
-            String[] octets = baseIp.split("\\.");
-            if (octets.length != 4) {
-                log.warn("无效的 IP 地址: {}", baseIp);
-                return ipList;
-            }
-
-            long baseIpLong = 0;
-            for (int i = 0; i < 4; i++) {
-                baseIpLong = (baseIpLong << 8) | Integer.parseInt(octets[i]);
-            }
-
-            // 计算网络地址
-            long mask = 0xFFFFFFFFL << hostBits;
-            long networkAddress = baseIpLong & mask;
-
-            // 生成有效主机 IP 列表
-            for (int i = 1; i <= hostCount; i++) {
-                long hostIp = networkAddress + i;
-                String ip = String.format("%d.%d.%d.%d",
-                        (hostIp >> 24) & 0xFF,
-                        (hostIp >> 16) & 0xFF,
-                        (hostIp >> 8) & 0xFF,
-                        hostIp & 0xFF);
-                ipList.add(ip);
-            }
-
-            log.debug("CIDR {} 解析得到 {} 个 IP", cidr, ipList.size());
-
-        } catch (Exception e) {
-            log.error("解析 CIDR 失败: {}", cidr, e);
-        }
-
-        return ipList;
-    }
-
-    /**
-     * 并发 Ping 检测主机在线状态
-     */
-    private List<String> pingHosts(ExecutorService executor, List<String> ipList, int timeoutMs) {
-        List<Future<String>> futures = new ArrayList<>();
-
-        for (String ip : ipList) {
-            futures.add(executor.submit(() -> {
-                try {
-                    InetAddress address = InetAddress.getByName(ip);
-                    if (address.isReachable(Math.min(timeoutMs, 3000))) {
-                        return ip;
-                    }
-                } catch (Exception e) {
-                    log.trace("Ping {} 失败: {}", ip, e.getMessage());
-                }
-                return null;
-            }));
-        }
-
-        List<String> onlineHosts = new ArrayList<>();
-        for (Future<String> future : futures) {
-            try {
-                String ip = future.get(timeoutMs + 1000, TimeUnit.MILLISECONDS);
-                if (ip != null) {
-                    onlineHosts.add(ip);
-                }
-            } catch (Exception e) {
-                // 忽略超时和其他异常
-            }
-        }
-
-        return onlineHosts;
-    }
-
-    /**
-     * 扫描端口开放情况
-     */
-    private Map<String, List<Integer>> scanPorts(ExecutorService executor,
-                                                  List<String> hosts,
-                                                  List<Integer> ports,
-                                                  int timeoutMs) {
-        Map<String, List<Integer>> result = new ConcurrentHashMap<>();
-        List<Future<?>> futures = new ArrayList<>();
-
-        for (String host : hosts) {
-            for (Integer port : ports) {
-                futures.add(executor.submit(() -> {
-                    if (isPortOpen(host, port, Math.min(timeoutMs, 2000))) {
-                        result.computeIfAbsent(host, k -> new CopyOnWriteArrayList<>()).add(port);
-                    }
-                }));
-            }
-        }
-
-        // 等待所有任务完成
-        for (Future<?> future : futures) {
-            try {
-                future.get(timeoutMs + 1000, TimeUnit.MILLISECONDS);
-            } catch (Exception e) {
-                // 忽略
-            }
-        }
-
-        return result;
-    }
-
-    /**
-     * 检测端口是否开放
-     */
-    private boolean isPortOpen(String host, int port, int timeoutMs) {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), timeoutMs);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    /**
-     * 对开放端口的主机进行 HTTP 探测
-     */
-    private List<DiscoveredDeviceDTO> probeDevices(ExecutorService executor,
-                                                   Map<String, List<Integer>> hostOpenPorts,
-                                                   int timeoutMs) {
-        List<Future<DiscoveredDeviceDTO>> futures = new ArrayList<>();
-
-        for (Map.Entry<String, List<Integer>> entry : hostOpenPorts.entrySet()) {
-            String host = entry.getKey();
-            for (Integer port : entry.getValue()) {
-                futures.add(executor.submit(() -> probeDevice(host, port)));
-            }
-        }
-
-        List<DiscoveredDeviceDTO> devices = new ArrayList<>();
-        for (Future<DiscoveredDeviceDTO> future : futures) {
-            try {
-                DiscoveredDeviceDTO device = future.get(timeoutMs + 2000, TimeUnit.MILLISECONDS);
-                if (device != null) {
-                    devices.add(device);
-                }
-            } catch (Exception e) {
-                // 忽略探测失败的情况
-            }
-        }
-
-        // 去重：同一 IP 只保留优先级最高的设备（ISAPI > 其他）
-        return deduplicateDevices(devices);
+        return AsyncDiscoveryEngine.expandCidr(cidr);
     }
 
     /**
@@ -722,17 +571,8 @@ public class IsapiDeviceDiscoveryService {
      */
     public List<DiscoveredDeviceDTO> scanSingleHost(String ip) {
         List<Integer> ports = List.of(80, 443, 554, 8080, 8000, 8443, 37777);
-        List<DiscoveredDeviceDTO> devices = new ArrayList<>();
-
-        for (Integer port : ports) {
-            if (isPortOpen(ip, port, 2000)) {
-                DiscoveredDeviceDTO device = probeDevice(ip, port);
-                if (device != null) {
-                    devices.add(device);
-                }
-            }
-        }
-
+        List<DiscoveredDeviceDTO> devices = discoveryEngine.scanAndWait(
+                List.of(ip), ports, scanOptions(2000, ports.size()), this::probeDevice, 30_000L);
         return deduplicateDevices(devices);
     }
 
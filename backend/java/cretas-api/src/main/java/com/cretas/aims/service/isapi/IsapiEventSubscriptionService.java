@@ -1,5 +1,6 @@
 package com.cretas.aims.service.isapi;
 
+import com.cretas.aims.client.isapi.AlertStreamSubscription;
 import com.cretas.aims.client.isapi.IsapiClient;
 import com.cretas.aims.config.IsapiConfig;
 import com.cretas.aims.dto.isapi.IsapiEventDTO;
@@ -10,7 +11,6 @@ import com.cretas.aims.repository.isapi.IsapiDeviceRepository;
 import com.cretas.aims.repository.isapi.IsapiEventLogRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.Call;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
@@ -51,8 +51,8 @@ public class IsapiEventSubscriptionService {
     @Autowired(required = false)
     private AutoLabelRecognitionService labelRecognitionService;
 
-    // 活动的订阅连接 (deviceId -> Call)
-    private final Map<String, Call> activeSubscriptions = new ConcurrentHashMap<>();
+    // 活动的订阅连接 (deviceId -> subscription)
+    private final Map<String, AlertStreamSubscription> activeSubscriptions = new ConcurrentHashMap<>();
 
     // 重连计数
     private final Map<String, Integer> reconnectCounts = new ConcurrentHashMap<>();
@@ -85,11 +85,11 @@ public class IsapiEventSubscriptionService {
 
         log.info("开始订阅设备告警: {} - {}", device.getDeviceName(), device.getIpAddress());
 
-        Call call = isapiClient.subscribeAlertStream(device, event -> {
+        AlertStreamSubscription subscription = isapiClient.openAlertStream(device, event -> {
             handleEvent(device, event);
         });
 
-        activeSubscriptions.put(deviceId, call);
+        activeSubscriptions.put(deviceId, subscription);
 
         // 更新设备订阅状态
         device.setAlertSubscribed(true);
@@ -100,9 +100,9 @@ public class IsapiEventSubscriptionService {
      * 取消订阅
      */
     public void unsubscribeDevice(String deviceId) {
-        Call call = activeSubscriptions.remove(deviceId);
-        if (call != null) {
-            call.cancel();
+        AlertStreamSubscription subscription = activeSubscriptions.remove(deviceId);
+        if (subscription != null) {
+            subscription.cancel();
             log.info("已取消设备订阅: {}", deviceId);
         }
 
@@ -1,6 +1,7 @@
 package com.cretas.aims.service.mqtt;
 
 import com.cretas.aims.service.IotDataService;
+import com.cretas.aims.service.anomaly.StreamingAnomalyService;
 import com.cretas.aims.websocket.EquipmentMonitoringHandler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -38,6 +39,7 @@ public class MqttSubscriber {
     private final ObjectMapper objectMapper;
     private final EquipmentMonitoringHandler equipmentMonitoringHandler;
     private final IotDataService iotDataService;
+    private final StreamingAnomalyService streamingAnomalyService;
 
     // 主题解析正则: cretas/{factoryId}/device/{deviceId}/{messageType}
     private static final Pattern TOPIC_PATTERN = Pattern.compile(
@@ -151,6 +153,7 @@ public class MqttSubscriber {
 
         // 3. 如果稳定，记录日志（未来可触发自动入库流程）
         if (stable) {
+            streamingAnomalyService.onDeviceReading(factoryId, deviceId, "weight", weight);
             log.info("称重稳定，可触发自动入库: device={}, weight={}{}", deviceId, weight, unit);
             // TODO: 未来可调用 MaterialBatchService.autoInbound()
         }
@@ -172,6 +175,9 @@ public class MqttSubscriber {
 
         // 2. 检查温度阈值告警 (冷链超过 -18°C 或常温超过 25°C)
         iotDataService.checkTemperatureThreshold(factoryId, deviceId, temperature);
+
+        // 3. 流式异常检测 (相对设备自身基线的突变)
+        streamingAnomalyService.onDeviceReading(factoryId, deviceId, "temperature", temperature);
     }
 
     /**
@@ -190,6 +196,9 @@ public class MqttSubscriber {
 
         // 2. 检查湿度阈值告警 (仓库湿度范围 40%-70%)
         iotDataService.checkHumidityThreshold(factoryId, deviceId, humidity);
+
+        // 3. 流式异常检测
+        streamingAnomalyService.onDeviceReading(factoryId, deviceId, "humidity", humidity);
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.cretas.aims.service.smartbi;
 
+import com.cretas.aims.dto.smartbi.BatchForecastResult;
 import com.cretas.aims.dto.smartbi.ForecastResult;
 import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
 
@@ -11,7 +12,8 @@ import java.time.LocalDate;
  * 提供 SmartBI 系统中基于统计方法的时间序列预测能力，包括：
  * - 销售预测：基于历史销售数据预测未来销售额
  * - 通用指标预测：支持多种业务指标的预测
- * - 多算法支持：移动平均、线性趋势、指数平滑
+ * - 多算法支持：移动平均、线性趋势、指数平滑、Holt-Winters、ARIMA、Croston
+ * - 批量预测：按 产品 × 区域 拆分序列并行预测
  *
  * 所有预测结果包含置信区间，帮助用户评估预测的可靠性。
  *
@@ -66,4 +68,18 @@ public interface ForecastService {
      * @return 预测结果
      */
     ForecastResult forecastWithAlgorithm(String factoryId, String metricType, LocalDate startDate, LocalDate endDate, int forecastDays, ForecastAlgorithm algorithm);
+
+    /**
+     * 批量预测 产品 × 区域 销售额
+     *
+     * 每个产品在每个区域的日销售额构成一条序列，逐条自动选择模型（按回测误差）。
+     * 适用于补货计划等需要成千上万条序列同时预测的场景，始终使用原生预测引擎。
+     *
+     * @param factoryId    工厂ID
+     * @param startDate    历史数据开始日期
+     * @param endDate      历史数据结束日期
+     * @param forecastDays 预测天数
+     * @return 各序列预测结果及吞吐统计
+     */
+    BatchForecastResult forecastBatch(String factoryId, LocalDate startDate, LocalDate endDate, int forecastDays);
 }
@@ -0,0 +1,132 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+
+/**
+ * 简化 ARIMA(p, d, 0) 模型
+ *
+ * - 差分阶数 d ∈ {0, 1}: 滞后 1 阶自相关不低于 {@link #UNIT_ROOT_AUTOCORRELATION} 时视为非平稳, 取 d=1
+ *   (差分均值即漂移项)
+ * - 自回归阶数 p ∈ [0, 3]: 由 Levinson-Durbin 递推求解 Yule-Walker 方程, 按 AIC 选择
+ *
+ * 不含滑动平均项与季节项, 季节性由 Holt-Winters 覆盖。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+public class ArimaModel implements ForecastModel {
+
+    private static final int MAX_AR_ORDER = 3;
+    private static final int MIN_LENGTH = 10;
+    static final double UNIT_ROOT_AUTOCORRELATION = 0.9;
+
+    @Override
+    public String name() {
+        return "ARIMA";
+    }
+
+    @Override
+    public ForecastAlgorithm algorithm() {
+        return ForecastAlgorithm.ARIMA;
+    }
+
+    @Override
+    public boolean applicable(double[] history, int period) {
+        return history.length >= MIN_LENGTH;
+    }
+
+    @Override
+    public ModelForecast fit(double[] y, int period, int horizon) {
+        int d = lag1Autocorrelation(y) >= UNIT_ROOT_AUTOCORRELATION ? 1 : 0;
+        double[] z = d == 1 ? SeriesMath.difference(y) : y;
+        int n = z.length;
+        double mu = SeriesMath.mean(z, 0, n);
+
+        int maxOrder = Math.min(MAX_AR_ORDER, n / 4);
+        double[] acov = new double[maxOrder + 1];
+        for (int lag = 0; lag <= maxOrder; lag++) {
+            double sum = 0.0;
+            for (int t = lag; t < n; t++) {
+                sum += (z[t] - mu) * (z[t - lag] - mu);
+            }
+            acov[lag] = sum / n;
+        }
+
+        // Levinson-Durbin: 逐阶求解 AR 系数, 同时得到各阶的新息方差
+        double[] phi = new double[maxOrder + 1];
+        double[] prev = new double[maxOrder + 1];
+        double[] bestPhi = new double[0];
+        double sigma2 = acov[0];
+        double bestSigma2 = sigma2;
+        double bestAic = aic(n, sigma2, 0);
+        for (int k = 1; k <= maxOrder && sigma2 > 0; k++) {
+            double num = acov[k];
+            for (int j = 1; j < k; j++) {
+                num -= prev[j] * acov[k - j];
+            }
+            double reflection = num / sigma2;
+            phi[k] = reflection;
+            for (int j = 1; j < k; j++) {
+                phi[j] = prev[j] - reflection * prev[k - j];
+            }
+            sigma2 *= (1 - reflection * reflection);
+            System.arraycopy(phi, 0, prev, 0, k + 1);
+
+            double candidate = aic(n, sigma2, k);
+            if (candidate < bestAic) {
+                bestAic = candidate;
+                bestSigma2 = sigma2;
+                bestPhi = new double[k];
+                System.arraycopy(phi, 1, bestPhi, 0, k);
+            }
+        }
+
+        int p = bestPhi.length;
+        double[] buffer = new double[p + horizon];
+        for (int j = 0; j < p; j++) {
+            buffer[j] = z[n - p + j] - mu;
+        }
+        double[] mean = new double[horizon];
+        double last = y[y.length - 1];
+        for (int h = 0; h < horizon; h++) {
+            double x = 0.0;
+            for (int j = 0; j < p; j++) {
+                x += bestPhi[j] * buffer[p + h - 1 - j];
+            }
+            buffer[p + h] = x;
+            double value = x + mu;
+            if (d == 1) {
+                last += value;
+                mean[h] = last;
+            } else {
+                mean[h] = value;
+            }
+        }
+
+        StringBuilder parameters = new StringBuilder()
+                .append("p=").append(p).append(", d=").append(d);
+        for (int j = 0; j < p; j++) {
+            parameters.append(String.format(", phi%d=%.3f", j + 1, bestPhi[j]));
+        }
+        return new ModelForecast(name(), algorithm(), mean, Math.sqrt(Math.max(bestSigma2, 0.0)), parameters.toString());
+    }
+
+    private static double lag1Autocorrelation(double[] y) {
+        double mean = SeriesMath.mean(y, 0, y.length);
+        double numerator = 0.0;
+        double denominator = 0.0;
+        for (int t = 0; t < y.length; t++) {
+            double dev = y[t] - mean;
+            denominator += dev * dev;
+            if (t > 0) {
+                numerator += dev * (y[t - 1] - mean);
+            }
+        }
+        return denominator > 0 ? numerator / denominator : 0.0;
+    }
+
+    private static double aic(int n, double sigma2, int order) {
+        return n * Math.log(Math.max(sigma2, 1e-12)) + 2.0 * (order + 1);
+    }
+}
@@ -0,0 +1,114 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+
+/**
+ * 基准模型: 移动平均与线性趋势
+ *
+ * 作为自动选择的兜底候选, 序列过短或其他模型均不适用时使用。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+final class BaselineModels {
+
+    private BaselineModels() {
+    }
+
+    /**
+     * 最近 window 个观测的平均值
+     */
+    static class MovingAverage implements ForecastModel {
+
+        private final int window;
+
+        MovingAverage(int window) {
+            this.window = window;
+        }
+
+        @Override
+        public String name() {
+            return "MOVING_AVERAGE";
+        }
+
+        @Override
+        public ForecastAlgorithm algorithm() {
+            return ForecastAlgorithm.MOVING_AVERAGE;
+        }
+
+        @Override
+        public boolean applicable(double[] history, int period) {
+            return history.length >= 1;
+        }
+
+        @Override
+        public ModelForecast fit(double[] y, int period, int horizon) {
+            int n = y.length;
+            int w = Math.max(1, Math.min(window, n));
+            double sse = 0.0;
+            int count = 0;
+            double rolling = 0.0;
+            for (int t = 0; t < n; t++) {
+                if (t >= w) {
+                    double error = y[t] - rolling / w;
+                    sse += error * error;
+                    count++;
+                    rolling -= y[t - w];
+                }
+                rolling += y[t];
+            }
+            double std = count > 0 ? Math.sqrt(sse / count) : Math.sqrt(SeriesMath.variance(y));
+            return new ModelForecast(name(), algorithm(), SeriesMath.filled(horizon, rolling / w), std, "window=" + w);
+        }
+    }
+
+    /**
+     * 最小二乘线性趋势
+     */
+    static class LinearTrend implements ForecastModel {
+
+        @Override
+        public String name() {
+            return "LINEAR_TREND";
+        }
+
+        @Override
+        public ForecastAlgorithm algorithm() {
+            return ForecastAlgorithm.LINEAR_TREND;
+        }
+
+        @Override
+        public boolean applicable(double[] history, int period) {
+            return history.length >= 3;
+        }
+
+        @Override
+        public ModelForecast fit(double[] y, int period, int horizon) {
+            int n = y.length;
+            double meanX = (n - 1) / 2.0;
+            double meanY = SeriesMath.mean(y, 0, n);
+            double sxy = 0.0;
+            double sxx = 0.0;
+            for (int t = 0; t < n; t++) {
+                double dx = t - meanX;
+                sxy += dx * (y[t] - meanY);
+                sxx += dx * dx;
+            }
+            double slope = sxx > 0 ? sxy / sxx : 0.0;
+            double intercept = meanY - slope * meanX;
+
+            double sse = 0.0;
+            for (int t = 0; t < n; t++) {
+                double error = y[t] - (intercept + slope * t);
+                sse += error * error;
+            }
+            double[] mean = new double[horizon];
+            for (int h = 0; h < horizon; h++) {
+                mean[h] = intercept + slope * (n + h);
+            }
+            return new ModelForecast(name(), algorithm(), mean, Math.sqrt(sse / Math.max(1, n - 2)),
+                    String.format("slope=%.4f, intercept=%.4f", slope, intercept));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+
+/**
+ * Croston 间歇需求模型 (SBA 偏差修正)
+ *
+ * 分别对非零需求量 z 与需求间隔 p 做指数平滑, 预测值为 (1 - α/2) · z / p。
+ * 仅当零值占比不低于 {@link #MIN_ZERO_FRACTION} 且至少有两次非零需求时适用。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+public class CrostonModel implements ForecastModel {
+
+    static final double MIN_ZERO_FRACTION = 0.3;
+
+    private static final double[] ALPHA_GRID = {0.05, 0.1, 0.15, 0.2, 0.3, 0.4};
+
+    @Override
+    public String name() {
+        return "CROSTON_SBA";
+    }
+
+    @Override
+    public ForecastAlgorithm algorithm() {
+        return ForecastAlgorithm.CROSTON;
+    }
+
+    @Override
+    public boolean applicable(double[] history, int period) {
+        int nonZero = 0;
+        for (double value : history) {
+            if (value < 0) {
+                return false;
+            }
+            if (value > 0) {
+                nonZero++;
+            }
+        }
+        return nonZero >= 2 && SeriesMath.zeroFraction(history) >= MIN_ZERO_FRACTION;
+    }
+
+    @Override
+    public ModelForecast fit(double[] y, int period, int horizon) {
+        double bestSse = Double.MAX_VALUE;
+        double bestAlpha = ALPHA_GRID[0];
+        double bestRate = 0.0;
+        for (double alpha : ALPHA_GRID) {
+            double[] result = run(y, alpha);
+            if (result[0] < bestSse) {
+                bestSse = result[0];
+                bestAlpha = alpha;
+                bestRate = result[1];
+            }
+        }
+        double forecast = (1 - bestAlpha / 2) * bestRate;
+        return new ModelForecast(name(), algorithm(), SeriesMath.filled(horizon, forecast),
+                Math.sqrt(bestSse / y.length), String.format("alpha=%.2f", bestAlpha));
+    }
+
+    /**
+     * @return [一步预测误差平方和, 末期需求率 z/p]
+     */
+    private static double[] run(double[] y, double alpha) {
+        int first = 0;
+        while (first < y.length && y[first] <= 0) {
+            first++;
+        }
+        double size = y[first];
+        double interval = first + 1;
+        int sinceLast = 1;
+        double sse = 0.0;
+        for (int t = first + 1; t < y.length; t++) {
+            double error = y[t] - size / interval;
+            sse += error * error;
+            if (y[t] > 0) {
+                size += alpha * (y[t] - size);
+                interval += alpha * (sinceLast - interval);
+                sinceLast = 1;
+            } else {
+                sinceLast++;
+            }
+        }
+        return new double[]{sse, size / interval};
+    }
+}
@@ -0,0 +1,203 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+
+/**
+ * 指数平滑模型 (Holt / Holt-Winters)
+ *
+ * - NONE: Holt 线性趋势 (beta=0 时退化为简单指数平滑)
+ * - ADDITIVE: 加法季节性 y = (l + b) + s
+ * - MULTIPLICATIVE: 乘法季节性 y = (l + b) * s, 仅适用于全正序列
+ *
+ * 平滑系数通过两级网格搜索 (粗网格 + 最优点邻域细化) 最小化一步预测误差平方和确定,
+ * 每组参数只在 double[] 上做一次线性扫描, 季节分量缓冲区在所有参数组合间复用。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+public class ExponentialSmoothingModel implements ForecastModel {
+
+    public enum Seasonality {
+        NONE, ADDITIVE, MULTIPLICATIVE
+    }
+
+    private static final double[] ALPHA_GRID = {0.1, 0.3, 0.5, 0.8};
+    private static final double[] BETA_GRID = {0.0, 0.05, 0.2};
+    private static final double[] GAMMA_GRID = {0.05, 0.2, 0.5};
+    private static final double[] NO_GAMMA = {0.0};
+    /** 细化阶段的邻域半径 (相对粗网格步长) */
+    private static final double ALPHA_STEP = 0.1;
+    private static final double BETA_STEP = 0.025;
+    private static final double GAMMA_STEP = 0.1;
+    private static final double EPSILON = 1e-9;
+
+    private final Seasonality seasonality;
+
+    public ExponentialSmoothingModel(Seasonality seasonality) {
+        this.seasonality = seasonality;
+    }
+
+    @Override
+    public String name() {
+        switch (seasonality) {
+            case ADDITIVE:
+                return "HOLT_WINTERS_ADDITIVE";
+            case MULTIPLICATIVE:
+                return "HOLT_WINTERS_MULTIPLICATIVE";
+            default:
+                return "HOLT_LINEAR";
+        }
+    }
+
+    @Override
+    public ForecastAlgorithm algorithm() {
+        return seasonality == Seasonality.NONE ? ForecastAlgorithm.EXPONENTIAL_SMOOTHING : ForecastAlgorithm.HOLT_WINTERS;
+    }
+
+    @Override
+    public boolean applicable(double[] history, int period) {
+        if (seasonality == Seasonality.NONE) {
+            return history.length >= 4;
+        }
+        if (period < 2 || history.length < 2 * period) {
+            return false;
+        }
+        return seasonality == Seasonality.ADDITIVE || SeriesMath.allPositive(history);
+    }
+
+    @Override
+    public ModelForecast fit(double[] y, int period, int horizon) {
+        int m = seasonality == Seasonality.NONE ? 1 : period;
+        double[] season = new double[m];
+        double[] gammas = seasonality == Seasonality.NONE ? NO_GAMMA : GAMMA_GRID;
+
+        double[] best = {Double.MAX_VALUE, ALPHA_GRID[0], 0.0, 0.0};
+        search(y, m, season, ALPHA_GRID, BETA_GRID, gammas, best);
+        search(y, m, season,
+                neighbours(best[1], ALPHA_STEP, 0.01, 0.99),
+                neighbours(best[2], BETA_STEP, 0.0, 0.5),
+                seasonality == Seasonality.NONE ? NO_GAMMA : neighbours(best[3], GAMMA_STEP, 0.01, 0.99),
+                best);
+        double bestSse = best[0];
+        double bestAlpha = best[1];
+        double bestBeta = best[2];
+        double bestGamma = best[3];
+
+        double[] state = new double[2];
+        run(y, m, bestAlpha, bestBeta, bestGamma, season, state);
+        double level = state[0];
+        double trend = state[1];
+        double[] mean = new double[horizon];
+        for (int h = 1; h <= horizon; h++) {
+            double base = level + h * trend;
+            double s = season[(y.length + h - 1) % m];
+            switch (seasonality) {
+                case ADDITIVE:
+                    mean[h - 1] = base + s;
+                    break;
+                case MULTIPLICATIVE:
+                    mean[h - 1] = base * s;
+                    break;
+                default:
+                    mean[h - 1] = base;
+            }
+        }
+
+        String parameters = seasonality == Seasonality.NONE
+                ? String.format("alpha=%.2f, beta=%.2f", bestAlpha, bestBeta)
+                : String.format("alpha=%.2f, beta=%.2f, gamma=%.2f, period=%d", bestAlpha, bestBeta, bestGamma, m);
+        return new ModelForecast(name(), algorithm(), mean, Math.sqrt(bestSse / y.length), parameters);
+    }
+
+    /**
+     * 遍历参数组合, 更新 best = [sse, alpha, beta, gamma]
+     */
+    private void search(double[] y, int m, double[] season,
+                        double[] alphas, double[] betas, double[] gammas, double[] best) {
+        for (double alpha : alphas) {
+            for (double beta : betas) {
+                for (double gamma : gammas) {
+                    double sse = run(y, m, alpha, beta, gamma, season, null);
+                    if (sse < best[0]) {
+                        best[0] = sse;
+                        best[1] = alpha;
+                        best[2] = beta;
+                        best[3] = gamma;
+                    }
+                }
+            }
+        }
+    }
+
+    private static double[] neighbours(double center, double step, double min, double max) {
+        return new double[]{
+                Math.max(min, center - step),
+                center,
+                Math.min(max, center + step)
+        };
+    }
+
+    /**
+     * 以给定平滑系数扫描一遍序列, 返回一步预测误差平方和
+     *
+     * @param season 季节分量缓冲区 (扫描结束后为末期季节分量)
+     * @param state  非空时写入末期 [level, trend]
+     */
+    private double run(double[] y, int m, double alpha, double beta, double gamma, double[] season, double[] state) {
+        double level;
+        double trend;
+        if (seasonality == Seasonality.NONE) {
+            level = y[0];
+            trend = 0.0;
+            season[0] = 0.0;
+        } else {
+            double first = SeriesMath.mean(y, 0, m);
+            double second = SeriesMath.mean(y, m, 2 * m);
+            level = first;
+            trend = (second - first) / m;
+            for (int i = 0; i < m; i++) {
+                season[i] = seasonality == Seasonality.ADDITIVE
+                        ? y[i] - first
+                        : y[i] / Math.max(first, EPSILON);
+            }
+        }
+
+        double sse = 0.0;
+        int idx = 0;
+        for (int t = 0; t < y.length; t++) {
+            double s = season[idx];
+            double base = level + trend;
+            double value = y[t];
+            double newLevel;
+            double error;
+            switch (seasonality) {
+                case ADDITIVE:
+                    error = value - (base + s);
+                    newLevel = alpha * (value - s) + (1 - alpha) * base;
+                    season[idx] = gamma * (value - newLevel) + (1 - gamma) * s;
+                    break;
+                case MULTIPLICATIVE:
+                    error = value - base * s;
+                    newLevel = alpha * (value / Math.max(s, EPSILON)) + (1 - alpha) * base;
+                    season[idx] = gamma * (value / Math.max(newLevel, EPSILON)) + (1 - gamma) * s;
+                    break;
+                default:
+                    error = value - base;
+                    newLevel = alpha * value + (1 - alpha) * base;
+            }
+            trend = beta * (newLevel - level) + (1 - beta) * trend;
+            level = newLevel;
+            sse += error * error;
+            if (++idx == m) {
+                idx = 0;
+            }
+        }
+
+        if (state != null) {
+            state[0] = level;
+            state[1] = trend;
+        }
+        return sse;
+    }
+}
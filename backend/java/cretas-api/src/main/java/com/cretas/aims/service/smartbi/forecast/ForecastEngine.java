@@ -0,0 +1,263 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 原生时间序列预测引擎
+ *
+ * 候选模型: 移动平均、线性趋势、Holt 线性、Holt-Winters (加法/乘法)、ARIMA(p,d,0)、Croston。
+ * 自动选择 (AUTO) 时对适用模型做留出回测: 留出最后 H 个点 (H = min(预测步数, n/4)),
+ * 以 MAE 最小者为胜出模型, 再用全量序列重新拟合。
+ * 指定算法时仅在该算法对应的模型间回测 (如 Holt-Winters 的加法/乘法季节性)。
+ *
+ * 置信区间为 mean ± 1.96·σ·√h, σ 为拟合残差标准差; 非负序列下界截断为 0。
+ * 置信度由回测 sMAPE 换算: clamp(100 - sMAPE, 30, 95)。
+ *
+ * 批量预测在专用 ForkJoinPool 上按序列二分并行, 单条序列内部串行。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+@Slf4j
+@Component
+public class ForecastEngine {
+
+    private static final double Z_95 = 1.96;
+    private static final double MIN_CONFIDENCE = 30.0;
+    private static final double MAX_CONFIDENCE = 95.0;
+    private static final int MIN_TRAIN_LENGTH = 8;
+    private static final int MOVING_AVERAGE_WINDOW = 7;
+    /** 单个 ForkJoin 任务直接处理的序列数 */
+    private static final int BATCH_GRAIN = 32;
+
+    @Value("${smartbi.forecast.native.parallelism:0}")
+    private int parallelism;
+
+    private final List<ForecastModel> models;
+    private final ForecastModel fallback;
+    private ForkJoinPool pool;
+
+    public ForecastEngine() {
+        this.fallback = new BaselineModels.MovingAverage(MOVING_AVERAGE_WINDOW);
+        List<ForecastModel> list = new ArrayList<>();
+        list.add(fallback);
+        list.add(new BaselineModels.LinearTrend());
+        list.add(new ExponentialSmoothingModel(ExponentialSmoothingModel.Seasonality.NONE));
+        list.add(new ExponentialSmoothingModel(ExponentialSmoothingModel.Seasonality.ADDITIVE));
+        list.add(new ExponentialSmoothingModel(ExponentialSmoothingModel.Seasonality.MULTIPLICATIVE));
+        list.add(new ArimaModel());
+        list.add(new CrostonModel());
+        this.models = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 非 Spring 场景 (测试、离线基准) 使用
+     */
+    public ForecastEngine(int parallelism) {
+        this();
+        this.parallelism = parallelism;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads);
+        log.info("原生预测引擎已初始化: parallelism={}, models={}", threads, models.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public List<ForecastModel> getModels() {
+        return models;
+    }
+
+    // ==================== 单序列预测 ====================
+
+    /**
+     * 预测单条序列
+     *
+     * @param history   历史序列 (按时间升序)
+     * @param period    季节周期 (日数据通常为 7)
+     * @param horizon   预测步数
+     * @param algorithm 预测算法, null 或 AUTO 表示自动选择
+     */
+    public SeriesForecast forecast(double[] history, int period, int horizon, ForecastAlgorithm algorithm) {
+        List<ForecastModel> candidates = candidates(history, period, algorithm);
+        ForecastModel chosen = candidates.get(0);
+        double mae = Double.NaN;
+        double smape = Double.NaN;
+
+        int holdout = Math.min(horizon, history.length / 4);
+        int trainLength = history.length - holdout;
+        if (holdout >= 1 && trainLength >= MIN_TRAIN_LENGTH) {
+            double[] train = SeriesMath.head(history, trainLength);
+            double bestMae = Double.MAX_VALUE;
+            for (ForecastModel model : candidates) {
+                if (!model.applicable(train, period)) {
+                    continue;
+                }
+                double[] predicted = model.fit(train, period, holdout).getMean();
+                double candidateMae = 0.0;
+                double candidateSmape = 0.0;
+                for (int i = 0; i < holdout; i++) {
+                    double actual = history[trainLength + i];
+                    double error = Math.abs(actual - predicted[i]);
+                    candidateMae += error;
+                    double denominator = Math.abs(actual) + Math.abs(predicted[i]);
+                    candidateSmape += denominator > 0 ? 2.0 * error / denominator : 0.0;
+                }
+                candidateMae /= holdout;
+                if (candidateMae < bestMae) {
+                    bestMae = candidateMae;
+                    chosen = model;
+                    mae = candidateMae;
+                    smape = candidateSmape / holdout * 100.0;
+                }
+            }
+        }
+
+        ModelForecast fitted = chosen.fit(history, period, horizon);
+        return toSeriesForecast(fitted, history, mae, smape);
+    }
+
+    private List<ForecastModel> candidates(double[] history, int period, ForecastAlgorithm algorithm) {
+        List<ForecastModel> result = new ArrayList<>(models.size());
+        boolean auto = algorithm == null || algorithm == ForecastAlgorithm.AUTO;
+        for (ForecastModel model : models) {
+            if ((auto || model.algorithm() == algorithm) && model.applicable(history, period)) {
+                result.add(model);
+            }
+        }
+        if (result.isEmpty()) {
+            result.add(fallback);
+        }
+        return result;
+    }
+
+    private SeriesForecast toSeriesForecast(ModelForecast fitted, double[] history, double mae, double smape) {
+        double[] mean = fitted.getMean();
+        int horizon = mean.length;
+        boolean nonNegative = true;
+        for (double value : history) {
+            if (value < 0) {
+                nonNegative = false;
+                break;
+            }
+        }
+
+        double[] lower = new double[horizon];
+        double[] upper = new double[horizon];
+        for (int h = 0; h < horizon; h++) {
+            if (nonNegative && mean[h] < 0) {
+                mean[h] = 0.0;
+            }
+            double width = Z_95 * fitted.getResidualStd() * Math.sqrt(h + 1);
+            lower[h] = nonNegative ? Math.max(0.0, mean[h] - width) : mean[h] - width;
+            upper[h] = mean[h] + width;
+        }
+
+        SeriesForecast result = new SeriesForecast();
+        result.setAlgorithm(fitted.getAlgorithm());
+        result.setModel(fitted.getModel());
+        result.setParameters(fitted.getParameters());
+        result.setMean(mean);
+        result.setLower(lower);
+        result.setUpper(upper);
+        result.setBacktestMae(mae);
+        result.setBacktestSmape(smape);
+        result.setConfidence(confidence(smape, fitted.getResidualStd(), history));
+        result.setHistoryLength(history.length);
+        return result;
+    }
+
+    /**
+     * 有回测时由 sMAPE 换算, 否则退化为 1 - 残差变异系数
+     */
+    private static double confidence(double smape, double residualStd, double[] history) {
+        double raw;
+        if (!Double.isNaN(smape)) {
+            raw = 100.0 - smape;
+        } else {
+            double mean = Math.abs(SeriesMath.mean(history, 0, history.length));
+            raw = mean > 0 ? (1.0 - Math.min(1.0, residualStd / mean)) * 100.0 : 50.0;
+        }
+        return Math.max(MIN_CONFIDENCE, Math.min(MAX_CONFIDENCE, raw));
+    }
+
+    // ==================== 批量预测 ====================
+
+    /**
+     * 批量预测多条序列, 结果顺序与输入迭代顺序一致
+     *
+     * @param series  分组键 -> 历史序列
+     * @param period  季节周期
+     * @param horizon 预测步数
+     */
+    public List<SeriesForecast> forecastBatch(Map<String, double[]> series, int period, int horizon) {
+        String[] keys = series.keySet().toArray(new String[0]);
+        double[][] histories = new double[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            histories[i] = series.get(keys[i]);
+        }
+        SeriesForecast[] results = new SeriesForecast[keys.length];
+        pool.invoke(new BatchTask(keys, histories, results, period, horizon, 0, keys.length));
+        return Arrays.asList(results);
+    }
+
+    private class BatchTask extends RecursiveAction {
+
+        private final String[] keys;
+        private final double[][] histories;
+        private final SeriesForecast[] results;
+        private final int period;
+        private final int horizon;
+        private final int from;
+        private final int to;
+
+        BatchTask(String[] keys, double[][] histories, SeriesForecast[] results,
+                  int period, int horizon, int from, int to) {
+            this.keys = keys;
+            this.histories = histories;
+            this.results = results;
+            this.period = period;
+            this.horizon = horizon;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_GRAIN) {
+                for (int i = from; i < to; i++) {
+                    SeriesForecast forecast = forecast(histories[i], period, horizon, ForecastAlgorithm.AUTO);
+                    forecast.setKey(keys[i]);
+                    results[i] = forecast;
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(keys, histories, results, period, horizon, from, mid),
+                    new BatchTask(keys, histories, results, period, horizon, mid, to));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+
+/**
+ * 时间序列预测模型
+ *
+ * 实现类无状态, 可在多个线程间共享; 参数拟合与预测全部基于 double[] 原始数组。
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+public interface ForecastModel {
+
+    /**
+     * 模型名称 (用于结果说明与统计)
+     */
+    String name();
+
+    /**
+     * 对应的预测算法
+     */
+    ForecastAlgorithm algorithm();
+
+    /**
+     * 数据是否满足模型要求 (长度、取值特征)
+     *
+     * @param history 历史序列
+     * @param period  季节周期
+     */
+    boolean applicable(double[] history, int period);
+
+    /**
+     * 拟合参数并预测
+     *
+     * @param history 历史序列
+     * @param period  季节周期
+     * @param horizon 预测步数
+     */
+    ModelForecast fit(double[] history, int period, int horizon);
+}
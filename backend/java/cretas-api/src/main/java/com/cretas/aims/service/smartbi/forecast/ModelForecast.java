@@ -0,0 +1,32 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+import lombok.Getter;
+
+/**
+ * 单个模型的拟合与预测结果
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+@Getter
+public class ModelForecast {
+
+    private final String model;
+    private final ForecastAlgorithm algorithm;
+    /** 点预测 */
+    private final double[] mean;
+    /** 一步预测残差标准差, 用于置信区间 */
+    private final double residualStd;
+    /** 拟合得到的参数说明, 如 "alpha=0.3, beta=0.05" */
+    private final String parameters;
+
+    public ModelForecast(String model, ForecastAlgorithm algorithm, double[] mean, double residualStd, String parameters) {
+        this.model = model;
+        this.algorithm = algorithm;
+        this.mean = mean;
+        this.residualStd = residualStd;
+        this.parameters = parameters;
+    }
+}
@@ -0,0 +1,32 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+import lombok.Data;
+
+/**
+ * 单条序列的预测结果 (原生预测引擎输出)
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+@Data
+public class SeriesForecast {
+
+    /** 序列标识 (批量预测时为分组键) */
+    private String key;
+    private ForecastAlgorithm algorithm;
+    /** 具体模型, 如 HOLT_WINTERS_ADDITIVE */
+    private String model;
+    private String parameters;
+    private double[] mean;
+    private double[] lower;
+    private double[] upper;
+    /** 回测平均绝对误差, 未回测时为 NaN */
+    private double backtestMae = Double.NaN;
+    /** 回测对称平均绝对百分比误差 (0-200), 未回测时为 NaN */
+    private double backtestSmape = Double.NaN;
+    /** 置信度 (30-95) */
+    private double confidence;
+    private int historyLength;
+}
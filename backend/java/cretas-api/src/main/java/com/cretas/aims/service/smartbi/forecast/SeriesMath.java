@@ -0,0 +1,74 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+/**
+ * 预测模型共用的原始数组运算
+ *
+ * @author Cretas Team
+ * @version 1.0.0
+ * @since 2026-01-19
+ */
+final class SeriesMath {
+
+    private SeriesMath() {
+    }
+
+    static double mean(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return to > from ? sum / (to - from) : 0.0;
+    }
+
+    static double variance(double[] values) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+        double mean = mean(values, 0, values.length);
+        double sum = 0;
+        for (double value : values) {
+            double d = value - mean;
+            sum += d * d;
+        }
+        return sum / (values.length - 1);
+    }
+
+    static boolean allPositive(double[] values) {
+        for (double value : values) {
+            if (value <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static double zeroFraction(double[] values) {
+        int zeros = 0;
+        for (double value : values) {
+            if (value == 0) {
+                zeros++;
+            }
+        }
+        return values.length > 0 ? (double) zeros / values.length : 0.0;
+    }
+
+    static double[] difference(double[] values) {
+        double[] diff = new double[Math.max(0, values.length - 1)];
+        for (int i = 1; i < values.length; i++) {
+            diff[i - 1] = values[i] - values[i - 1];
+        }
+        return diff;
+    }
+
+    static double[] head(double[] values, int length) {
+        double[] copy = new double[length];
+        System.arraycopy(values, 0, copy, 0, length);
+        return copy;
+    }
+
+    static double[] filled(int length, double value) {
+        double[] result = new double[length];
+        java.util.Arrays.fill(result, value);
+        return result;
+    }
+}
@@ -2,6 +2,7 @@ package com.cretas.aims.service.smartbi.impl;
 
 import com.cretas.aims.client.PythonSmartBIClient;
 import com.cretas.aims.config.smartbi.PythonSmartBIConfig;
+import com.cretas.aims.dto.smartbi.BatchForecastResult;
 import com.cretas.aims.dto.smartbi.ForecastPoint;
 import com.cretas.aims.dto.smartbi.ForecastResult;
 import com.cretas.aims.entity.smartbi.SmartBiSalesData;
@@ -9,28 +10,37 @@ import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
 import com.cretas.aims.repository.smartbi.SmartBiSalesDataRepository;
 import com.cretas.aims.service.smartbi.ForecastService;
 import com.cretas.aims.service.smartbi.MetricCalculatorService;
+import com.cretas.aims.service.smartbi.forecast.ForecastEngine;
+import com.cretas.aims.service.smartbi.forecast.SeriesForecast;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * 预测服务实现
  *
- * 实现 SmartBI 系统中基于统计方法的时间序列预测，包括：
- * - 移动平均法：计算最近 N 个周期的平均值
- * - 线性趋势法：基于最小二乘法的线性回归
- * - 指数平滑法：对近期数据赋予更高权重
+ * 优先使用 Python SmartBI 服务 (Prophet / ARIMA 等模型) 进行预测;
+ * Python 服务未启用、不可用、调用失败或返回空结果时, 使用进程内原生预测引擎 {@link ForecastEngine}:
+ * - Holt-Winters 指数平滑 (加法/乘法季节性)
+ * - ARIMA(p,d,0)
+ * - Croston 间歇需求
+ * - 移动平均 / 线性趋势基准
+ * 自动选择时按留出回测误差选择模型。配置 smartbi.forecast.prefer-native=true 时直接使用原生引擎,
+ * HOLT_WINTERS / ARIMA / CROSTON 算法始终由原生引擎处理。
  *
- * 所有计算使用 BigDecimal 确保精度，默认保留 2 位小数。
+ * 批量预测 (产品 × 区域) 只走原生引擎, 多条序列在 ForkJoin 线程池上并行。
  *
  * @author Cretas Team
  * @version 1.0.0
@@ -43,29 +53,44 @@ public class ForecastServiceImpl implements ForecastService {
 
     private final SmartBiSalesDataRepository salesDataRepository;
 
+    private final ForecastEngine forecastEngine;
+
     @Autowired
     private PythonSmartBIClient pythonClient;
 
     @Autowired
     private PythonSmartBIConfig pythonConfig;
 
+    /**
+     * 跳过 Python 服务, 直接使用原生预测引擎
+     */
+    @Value("${smartbi.forecast.prefer-native:false}")
+    private boolean preferNative;
+
+    /**
+     * 日数据季节周期 (周)
+     */
+    @Value("${smartbi.forecast.native.seasonal-period:7}")
+    private int seasonalPeriod;
+
+    /**
+     * 批量预测单次最多序列数 (按历史销售额降序截取)
+     */
+    @Value("${smartbi.forecast.native.max-batch-series:20000}")
+    private int maxBatchSeries;
+
     // 计算精度配置
     private static final int SCALE = 6;
     private static final int DISPLAY_SCALE = 2;
     private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
 
-    // 移动平均窗口大小
-    private static final int MOVING_AVERAGE_WINDOW = 7;
-
-    // 指数平滑系数 (0-1，越大对近期数据越敏感)
-    private static final BigDecimal SMOOTHING_ALPHA = new BigDecimal("0.3");
-
-    // 置信区间系数 (95% 置信区间约为 1.96 倍标准差)
-    private static final BigDecimal CONFIDENCE_MULTIPLIER = new BigDecimal("1.96");
-
     // 最小历史数据点数
     private static final int MIN_DATA_POINTS = 7;
 
+    // 仅原生引擎支持的算法
+    private static final Set<ForecastAlgorithm> NATIVE_ONLY_ALGORITHMS = EnumSet.of(
+            ForecastAlgorithm.HOLT_WINTERS, ForecastAlgorithm.ARIMA, ForecastAlgorithm.CROSTON);
+
     // ==================== 公开接口实现 ====================
 
     @Override
@@ -74,33 +99,141 @@ public class ForecastServiceImpl implements ForecastService {
         log.info("预测销售额: factoryId={}, startDate={}, endDate={}, forecastDays={}",
                 factoryId, startDate, endDate, forecastDays);
 
-        // 使用 Python 服务进行预测（无 Java fallback）
-        return forecastSalesWithPython(factoryId, startDate, endDate, forecastDays);
+        if (!preferNative && pythonReady()) {
+            ForecastResult result = forecastSalesWithPython(factoryId, startDate, endDate, forecastDays);
+            if (result != null) {
+                return result;
+            }
+        }
+        return forecastNative(factoryId, MetricCalculatorService.SALES_AMOUNT, startDate, endDate,
+                forecastDays, ForecastAlgorithm.AUTO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ForecastResult forecastMetric(String factoryId, String metricType,
+                                          LocalDate startDate, LocalDate endDate, int forecastDays) {
+        log.info("预测指标: factoryId={}, metricType={}, startDate={}, endDate={}, forecastDays={}",
+                factoryId, metricType, startDate, endDate, forecastDays);
+        return forecastWithAlgorithm(factoryId, metricType, startDate, endDate, forecastDays, ForecastAlgorithm.AUTO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ForecastResult forecastWithAlgorithm(String factoryId, String metricType,
+                                                 LocalDate startDate, LocalDate endDate,
+                                                 int forecastDays, ForecastAlgorithm algorithm) {
+        log.info("使用算法预测: factoryId={}, metricType={}, algorithm={}, forecastDays={}",
+                factoryId, metricType, algorithm, forecastDays);
+
+        ForecastAlgorithm requested = algorithm != null ? algorithm : ForecastAlgorithm.AUTO;
+        if (!preferNative && !NATIVE_ONLY_ALGORITHMS.contains(requested) && pythonReady()) {
+            ForecastResult result = forecastMetricWithPython(factoryId, metricType, startDate, endDate,
+                    forecastDays, requested.name());
+            if (result != null) {
+                return result;
+            }
+        }
+        return forecastNative(factoryId, metricType, startDate, endDate, forecastDays, requested);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BatchForecastResult forecastBatch(String factoryId, LocalDate startDate, LocalDate endDate, int forecastDays) {
+        log.info("批量预测: factoryId={}, startDate={}, endDate={}, forecastDays={}",
+                factoryId, startDate, endDate, forecastDays);
+
+        List<SmartBiSalesData> salesData = salesDataRepository
+                .findByFactoryIdAndOrderDateBetween(factoryId, startDate, endDate);
+
+        // 按 产品 × 区域 聚合为稠密日序列 (无销售的日期记 0)
+        int days = (int) ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        Map<String, double[]> series = new LinkedHashMap<>();
+        Map<String, String> productNames = new HashMap<>();
+        Map<String, Double> totals = new HashMap<>();
+        for (SmartBiSalesData row : salesData) {
+            if (row.getOrderDate() == null || row.getAmount() == null) {
+                continue;
+            }
+            String key = seriesKey(row.getProductId(), row.getRegion());
+            double amount = row.getAmount().doubleValue();
+            series.computeIfAbsent(key, k -> new double[days])[(int) ChronoUnit.DAYS.between(startDate, row.getOrderDate())] += amount;
+            totals.merge(key, amount, Double::sum);
+            if (row.getProductName() != null) {
+                productNames.putIfAbsent(key, row.getProductName());
+            }
+        }
+
+        if (series.size() > maxBatchSeries) {
+            log.warn("批量预测序列数 {} 超过上限 {}, 按历史销售额截取", series.size(), maxBatchSeries);
+            Set<String> kept = totals.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .limit(maxBatchSeries)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            series.keySet().retainAll(kept);
+        }
+
+        long started = System.nanoTime();
+        List<SeriesForecast> forecasts = forecastEngine.forecastBatch(series, seasonalPeriod, forecastDays);
+        long elapsedNanos = System.nanoTime() - started;
+
+        List<BatchForecastResult.SeriesItem> items = new ArrayList<>(forecasts.size());
+        Map<String, Integer> modelUsage = new TreeMap<>();
+        for (SeriesForecast forecast : forecasts) {
+            String[] parts = forecast.getKey().split("\\|", 2);
+            items.add(BatchForecastResult.SeriesItem.builder()
+                    .seriesKey(forecast.getKey())
+                    .productId(parts[0].isEmpty() ? null : parts[0])
+                    .productName(productNames.get(forecast.getKey()))
+                    .region(parts.length > 1 && !parts[1].isEmpty() ? parts[1] : null)
+                    .algorithm(forecast.getAlgorithm())
+                    .model(forecast.getModel())
+                    .confidence(toDisplay(forecast.getConfidence()))
+                    .backtestSmape(Double.isNaN(forecast.getBacktestSmape()) ? null : toDisplay(forecast.getBacktestSmape()))
+                    .forecastPoints(toForecastPoints(forecast, endDate))
+                    .build());
+            modelUsage.merge(forecast.getModel(), 1, Integer::sum);
+        }
+
+        long seriesPerSecond = elapsedNanos > 0 ? Math.round(forecasts.size() * 1e9 / elapsedNanos) : 0;
+        log.info("批量预测完成: series={}, elapsedMs={}, seriesPerSecond={}, models={}",
+                forecasts.size(), elapsedNanos / 1_000_000, seriesPerSecond, modelUsage);
+
+        return BatchForecastResult.builder()
+                .items(items)
+                .seriesCount(items.size())
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .seriesPerSecond(seriesPerSecond)
+                .modelUsage(modelUsage)
+                .periodDescription(String.format("%s 至 %s",
+                        startDate.format(DateTimeFormatter.ISO_LOCAL_DATE),
+                        endDate.plusDays(forecastDays).format(DateTimeFormatter.ISO_LOCAL_DATE)))
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // ==================== Python 服务 ====================
+
+    private boolean pythonReady() {
+        if (!pythonConfig.isEnabled()) {
+            log.debug("Python SmartBI 服务未启用, 使用原生预测引擎");
+            return false;
+        }
+        if (!pythonClient.isAvailable()) {
+            log.warn("Python SmartBI 服务不可用 ({}), 使用原生预测引擎", pythonConfig.getUrl());
+            return false;
+        }
+        return true;
     }
 
     /**
      * 使用 Python 服务进行销售预测
      *
-     * Python 服务使用先进的机器学习模型（如 Prophet, ARIMA）进行预测。
-     * 不再有 Java fallback，Python 服务必须可用。
-     *
-     * @param factoryId    工厂ID
-     * @param startDate    开始日期
-     * @param endDate      结束日期
-     * @param forecastDays 预测天数
-     * @return 预测结果
-     * @throws RuntimeException 如果 Python 服务不可用或失败
+     * @return 预测结果; 调用失败或返回空结果时为 null, 由调用方转原生引擎
      */
     private ForecastResult forecastSalesWithPython(String factoryId, LocalDate startDate,
                                                     LocalDate endDate, int forecastDays) {
-        if (!pythonConfig.isEnabled()) {
-            throw new RuntimeException("Python SmartBI 服务未启用。预测功能完全依赖 Python 服务 (端口 8083)。");
-        }
-
-        if (!pythonClient.isAvailable()) {
-            throw new RuntimeException("Python SmartBI 服务不可用。请检查服务是否在 " + pythonConfig.getUrl() + " 运行。");
-        }
-
         log.info("使用 Python SmartBI 服务进行销售预测: factoryId={}", factoryId);
         try {
             ForecastResult result = pythonClient.forecastSales(factoryId, startDate, endDate, forecastDays);
@@ -111,44 +244,21 @@ public class ForecastServiceImpl implements ForecastService {
                 return result;
             }
 
-            // Python 返回空结果，返回空预测结果
-            log.warn("Python SmartBI 销售预测返回空结果");
-            return buildEmptyForecastResult(MetricCalculatorService.SALES_AMOUNT, ForecastAlgorithm.AUTO, startDate, endDate);
-        } catch (java.io.IOException e) {
-            throw new RuntimeException("Python SmartBI 销售预测失败: " + e.getMessage(), e);
+            log.warn("Python SmartBI 销售预测返回空结果, 使用原生预测引擎");
+        } catch (java.io.IOException | RuntimeException e) {
+            log.warn("Python SmartBI 销售预测失败, 使用原生预测引擎: {}", e.getMessage());
         }
+        return null;
     }
 
     /**
      * 使用 Python 服务进行通用指标预测
      *
-     * Python 服务支持高级预测算法，如：
-     * - Prophet: Facebook 时间序列预测
-     * - ARIMA: 自回归积分滑动平均
-     * - LSTM: 长短期记忆网络
-     *
-     * 不再有 Java fallback，Python 服务必须可用。
-     *
-     * @param factoryId    工厂ID
-     * @param metricType   指标类型
-     * @param startDate    开始日期
-     * @param endDate      结束日期
-     * @param forecastDays 预测天数
-     * @param algorithm    预测算法
-     * @return 预测结果
-     * @throws RuntimeException 如果 Python 服务不可用或失败
+     * @return 预测结果; 调用失败或返回空结果时为 null, 由调用方转原生引擎
      */
     private ForecastResult forecastMetricWithPython(String factoryId, String metricType,
                                                      LocalDate startDate, LocalDate endDate,
                                                      int forecastDays, String algorithm) {
-        if (!pythonConfig.isEnabled()) {
-            throw new RuntimeException("Python SmartBI 服务未启用。预测功能完全依赖 Python 服务 (端口 8083)。");
-        }
-
-        if (!pythonClient.isAvailable()) {
-            throw new RuntimeException("Python SmartBI 服务不可用。请检查服务是否在 " + pythonConfig.getUrl() + " 运行。");
-        }
-
         log.info("使用 Python SmartBI 服务进行指标预测: factoryId={}, metricType={}, algorithm={}",
                 factoryId, metricType, algorithm);
         try {
@@ -161,52 +271,21 @@ public class ForecastServiceImpl implements ForecastService {
                 return result;
             }
 
-            // Python 返回空结果，返回空预测结果
-            log.warn("Python SmartBI 指标预测返回空结果");
-            try {
-                ForecastAlgorithm alg = ForecastAlgorithm.valueOf(algorithm);
-                return buildEmptyForecastResult(metricType, alg, startDate, endDate);
-            } catch (IllegalArgumentException ex) {
-                return buildEmptyForecastResult(metricType, ForecastAlgorithm.AUTO, startDate, endDate);
-            }
-        } catch (java.io.IOException e) {
-            throw new RuntimeException("Python SmartBI 指标预测失败: " + e.getMessage(), e);
+            log.warn("Python SmartBI 指标预测返回空结果, 使用原生预测引擎");
+        } catch (java.io.IOException | RuntimeException e) {
+            log.warn("Python SmartBI 指标预测失败, 使用原生预测引擎: {}", e.getMessage());
         }
+        return null;
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public ForecastResult forecastMetric(String factoryId, String metricType,
-                                          LocalDate startDate, LocalDate endDate, int forecastDays) {
-        log.info("预测指标: factoryId={}, metricType={}, startDate={}, endDate={}, forecastDays={}",
-                factoryId, metricType, startDate, endDate, forecastDays);
-        return forecastWithAlgorithm(factoryId, metricType, startDate, endDate, forecastDays, ForecastAlgorithm.AUTO);
-    }
-
-    @Override
-    @Transactional(readOnly = true)
-    public ForecastResult forecastWithAlgorithm(String factoryId, String metricType,
-                                                 LocalDate startDate, LocalDate endDate,
-                                                 int forecastDays, ForecastAlgorithm algorithm) {
-        log.info("使用算法预测: factoryId={}, metricType={}, algorithm={}, forecastDays={}",
-                factoryId, metricType, algorithm, forecastDays);
-
-        // 使用 Python 服务进行预测（无 Java fallback）
-        return forecastMetricWithPython(factoryId, metricType, startDate, endDate,
-                forecastDays, algorithm != null ? algorithm.name() : "AUTO");
-    }
+    // ==================== 原生预测 ====================
 
     /**
-     * 以下为 Java 统计方法的辅助代码，仅在 Python 返回空结果时用于生成空预测结果。
-     * 注意：不再作为 fallback 使用，Python 服务必须可用。
+     * 使用原生预测引擎预测单个指标
      */
-    @SuppressWarnings("unused")
-    private ForecastResult _legacyForecastWithAlgorithm(String factoryId, String metricType,
-                                                         LocalDate startDate, LocalDate endDate,
-                                                         int forecastDays, ForecastAlgorithm algorithm) {
-        log.info("使用 Java 统计方法进行预测: factoryId={}, metricType={}", factoryId, metricType);
-
-        // 获取历史数据
+    private ForecastResult forecastNative(String factoryId, String metricType,
+                                          LocalDate startDate, LocalDate endDate,
+                                          int forecastDays, ForecastAlgorithm algorithm) {
         Map<LocalDate, BigDecimal> historicalData = getHistoricalData(factoryId, metricType, startDate, endDate);
 
         if (historicalData.size() < MIN_DATA_POINTS) {
@@ -214,73 +293,66 @@ public class ForecastServiceImpl implements ForecastService {
             return buildEmptyForecastResult(metricType, algorithm, startDate, endDate);
         }
 
-        // 自动选择算法
-        ForecastAlgorithm selectedAlgorithm = algorithm == ForecastAlgorithm.AUTO
-                ? selectBestAlgorithm(historicalData)
-                : algorithm;
-
-        // 执行预测
-        List<ForecastPoint> forecastPoints = new ArrayList<>();
-
-        // 添加历史数据点
-        historicalData.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> forecastPoints.add(ForecastPoint.ofHistorical(entry.getKey(), entry.getValue())));
-
-        // 计算预测值
-        List<BigDecimal> historicalValues = historicalData.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toList());
-
-        BigDecimal standardDeviation = calculateStandardDeviation(historicalValues);
-        LocalDate lastDate = endDate;
-
-        for (int i = 1; i <= forecastDays; i++) {
-            LocalDate forecastDate = lastDate.plusDays(i);
-            BigDecimal predictedValue = predictValue(historicalValues, selectedAlgorithm, i);
-
-            // 计算置信区间 (随预测距离扩大)
-            BigDecimal intervalWidth = standardDeviation
-                    .multiply(CONFIDENCE_MULTIPLIER)
-                    .multiply(new BigDecimal(Math.sqrt(i)));
-
-            BigDecimal lowerBound = predictedValue.subtract(intervalWidth).max(BigDecimal.ZERO);
-            BigDecimal upperBound = predictedValue.add(intervalWidth);
-
-            forecastPoints.add(ForecastPoint.of(
-                    forecastDate,
-                    predictedValue.setScale(DISPLAY_SCALE, ROUNDING_MODE),
-                    lowerBound.setScale(DISPLAY_SCALE, ROUNDING_MODE),
-                    upperBound.setScale(DISPLAY_SCALE, ROUNDING_MODE)
-            ));
-
-            // 更新历史值用于滚动预测
-            historicalValues.add(predictedValue);
+        // 汇总类指标无数据的日期记 0; 均值类指标只使用有数据的日期
+        boolean additive = !MetricCalculatorService.AVG_ORDER_VALUE.equals(metricType);
+        LocalDate firstDate = historicalData.keySet().iterator().next();
+        double[] history;
+        if (additive) {
+            history = new double[(int) ChronoUnit.DAYS.between(firstDate, endDate) + 1];
+            for (Map.Entry<LocalDate, BigDecimal> entry : historicalData.entrySet()) {
+                history[(int) ChronoUnit.DAYS.between(firstDate, entry.getKey())] = entry.getValue().doubleValue();
+            }
+        } else {
+            history = historicalData.values().stream().mapToDouble(BigDecimal::doubleValue).toArray();
         }
 
-        // 计算置信度
-        BigDecimal confidence = calculateConfidence(historicalValues, standardDeviation);
+        SeriesForecast forecast = forecastEngine.forecast(history, seasonalPeriod, forecastDays, algorithm);
 
-        // 计算趋势和增长率
+        List<ForecastPoint> forecastPoints = new ArrayList<>();
+        historicalData.forEach((date, value) -> forecastPoints.add(ForecastPoint.ofHistorical(date, value)));
+        forecastPoints.addAll(toForecastPoints(forecast, endDate));
+
+        BigDecimal confidence = toDisplay(forecast.getConfidence());
         String trend = calculateTrend(forecastPoints);
         BigDecimal growthRate = calculateGrowthRate(forecastPoints);
 
         String periodDescription = String.format("%s 至 %s",
                 startDate.format(DateTimeFormatter.ISO_LOCAL_DATE),
-                lastDate.plusDays(forecastDays).format(DateTimeFormatter.ISO_LOCAL_DATE));
+                endDate.plusDays(forecastDays).format(DateTimeFormatter.ISO_LOCAL_DATE));
 
-        ForecastResult result = ForecastResult.of(forecastPoints, selectedAlgorithm, confidence, metricType, periodDescription);
+        ForecastResult result = ForecastResult.of(forecastPoints, forecast.getAlgorithm(), confidence, metricType, periodDescription);
         result.setTrend(trend);
         result.setGrowthRate(growthRate);
-        result.setDescription(generateDescription(selectedAlgorithm, confidence, trend, growthRate));
+        result.setDescription(generateDescription(forecast.getAlgorithm(), confidence, trend, growthRate));
 
-        log.info("预测完成: 算法={}, 置信度={}%, 趋势={}, 增长率={}%",
-                selectedAlgorithm, confidence, trend, growthRate);
+        log.info("原生预测完成: 模型={}, 参数=[{}], 置信度={}%, 趋势={}, 增长率={}%",
+                forecast.getModel(), forecast.getParameters(), confidence, trend, growthRate);
 
         return result;
     }
 
+    private List<ForecastPoint> toForecastPoints(SeriesForecast forecast, LocalDate lastDate) {
+        double[] mean = forecast.getMean();
+        List<ForecastPoint> points = new ArrayList<>(mean.length);
+        for (int i = 0; i < mean.length; i++) {
+            points.add(ForecastPoint.of(
+                    lastDate.plusDays(i + 1),
+                    toDisplay(mean[i]),
+                    toDisplay(forecast.getLower()[i]),
+                    toDisplay(forecast.getUpper()[i])
+            ));
+        }
+        return points;
+    }
+
+    private static BigDecimal toDisplay(double value) {
+        return BigDecimal.valueOf(value).setScale(DISPLAY_SCALE, ROUNDING_MODE);
+    }
+
+    private static String seriesKey(String productId, String region) {
+        return (productId != null ? productId : "") + "|" + (region != null ? region : "");
+    }
+
     // ==================== 数据获取 ====================
 
     /**
@@ -352,236 +424,7 @@ public class ForecastServiceImpl implements ForecastService {
         return dailyData;
     }
 
-    // ==================== 算法选择 ====================
-
-    /**
-     * 自动选择最佳预测算法
-     */
-    private ForecastAlgorithm selectBestAlgorithm(Map<LocalDate, BigDecimal> historicalData) {
-        List<BigDecimal> values = new ArrayList<>(historicalData.values());
-
-        // 计算趋势强度
-        BigDecimal trendStrength = calculateTrendStrength(values);
-
-        // 计算数据波动性
-        BigDecimal volatility = calculateVolatility(values);
-
-        log.debug("数据分析: 趋势强度={}, 波动性={}", trendStrength, volatility);
-
-        // 决策逻辑
-        if (trendStrength.abs().compareTo(new BigDecimal("0.3")) > 0) {
-            // 有明显趋势，使用线性趋势法
-            return ForecastAlgorithm.LINEAR_TREND;
-        } else if (volatility.compareTo(new BigDecimal("0.2")) > 0) {
-            // 波动较大，使用指数平滑
-            return ForecastAlgorithm.EXPONENTIAL_SMOOTHING;
-        } else {
-            // 数据平稳，使用移动平均
-            return ForecastAlgorithm.MOVING_AVERAGE;
-        }
-    }
-
-    // ==================== 预测算法实现 ====================
-
-    /**
-     * 根据选定算法计算预测值
-     */
-    private BigDecimal predictValue(List<BigDecimal> historicalValues, ForecastAlgorithm algorithm, int step) {
-        switch (algorithm) {
-            case MOVING_AVERAGE:
-                return predictByMovingAverage(historicalValues);
-            case LINEAR_TREND:
-                return predictByLinearTrend(historicalValues, step);
-            case EXPONENTIAL_SMOOTHING:
-                return predictByExponentialSmoothing(historicalValues);
-            default:
-                return predictByMovingAverage(historicalValues);
-        }
-    }
-
-    /**
-     * 移动平均预测
-     */
-    private BigDecimal predictByMovingAverage(List<BigDecimal> values) {
-        int windowSize = Math.min(MOVING_AVERAGE_WINDOW, values.size());
-        List<BigDecimal> recentValues = values.subList(values.size() - windowSize, values.size());
-
-        BigDecimal sum = recentValues.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
-        return sum.divide(new BigDecimal(windowSize), SCALE, ROUNDING_MODE);
-    }
-
-    /**
-     * 线性趋势预测 (最小二乘法)
-     */
-    private BigDecimal predictByLinearTrend(List<BigDecimal> values, int futureStep) {
-        int n = values.size();
-
-        // 计算 x 和 y 的均值
-        BigDecimal sumX = BigDecimal.ZERO;
-        BigDecimal sumY = BigDecimal.ZERO;
-        BigDecimal sumXY = BigDecimal.ZERO;
-        BigDecimal sumX2 = BigDecimal.ZERO;
-
-        for (int i = 0; i < n; i++) {
-            BigDecimal x = new BigDecimal(i + 1);
-            BigDecimal y = values.get(i);
-
-            sumX = sumX.add(x);
-            sumY = sumY.add(y);
-            sumXY = sumXY.add(x.multiply(y));
-            sumX2 = sumX2.add(x.multiply(x));
-        }
-
-        BigDecimal nDecimal = new BigDecimal(n);
-
-        // 计算斜率 b = (n*sumXY - sumX*sumY) / (n*sumX2 - sumX^2)
-        BigDecimal numerator = nDecimal.multiply(sumXY).subtract(sumX.multiply(sumY));
-        BigDecimal denominator = nDecimal.multiply(sumX2).subtract(sumX.multiply(sumX));
-
-        if (denominator.compareTo(BigDecimal.ZERO) == 0) {
-            // 无法计算斜率，返回平均值
-            return sumY.divide(nDecimal, SCALE, ROUNDING_MODE);
-        }
-
-        BigDecimal slope = numerator.divide(denominator, SCALE, ROUNDING_MODE);
-
-        // 计算截距 a = (sumY - b*sumX) / n
-        BigDecimal intercept = sumY.subtract(slope.multiply(sumX)).divide(nDecimal, SCALE, ROUNDING_MODE);
-
-        // 预测值 y = a + b*x，其中 x = n + futureStep
-        BigDecimal futureX = new BigDecimal(n + futureStep);
-        return intercept.add(slope.multiply(futureX));
-    }
-
-    /**
-     * 指数平滑预测
-     */
-    private BigDecimal predictByExponentialSmoothing(List<BigDecimal> values) {
-        if (values.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal smoothedValue = values.get(0);
-        BigDecimal oneMinusAlpha = BigDecimal.ONE.subtract(SMOOTHING_ALPHA);
-
-        for (int i = 1; i < values.size(); i++) {
-            // S_t = alpha * Y_t + (1 - alpha) * S_{t-1}
-            smoothedValue = SMOOTHING_ALPHA.multiply(values.get(i))
-                    .add(oneMinusAlpha.multiply(smoothedValue));
-        }
-
-        return smoothedValue.setScale(SCALE, ROUNDING_MODE);
-    }
-
-    // ==================== 统计计算辅助方法 ====================
-
-    /**
-     * 计算标准差
-     */
-    private BigDecimal calculateStandardDeviation(List<BigDecimal> values) {
-        if (values.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal mean = values.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(values.size()), SCALE, ROUNDING_MODE);
-
-        BigDecimal sumSquaredDiff = values.stream()
-                .map(v -> v.subtract(mean).pow(2))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal variance = sumSquaredDiff.divide(new BigDecimal(values.size()), SCALE, ROUNDING_MODE);
-
-        return BigDecimal.valueOf(Math.sqrt(variance.doubleValue())).setScale(SCALE, ROUNDING_MODE);
-    }
-
-    /**
-     * 计算趋势强度 (相关系数)
-     */
-    private BigDecimal calculateTrendStrength(List<BigDecimal> values) {
-        int n = values.size();
-        if (n < 2) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal sumX = BigDecimal.ZERO;
-        BigDecimal sumY = BigDecimal.ZERO;
-        BigDecimal sumXY = BigDecimal.ZERO;
-        BigDecimal sumX2 = BigDecimal.ZERO;
-        BigDecimal sumY2 = BigDecimal.ZERO;
-
-        for (int i = 0; i < n; i++) {
-            BigDecimal x = new BigDecimal(i + 1);
-            BigDecimal y = values.get(i);
-
-            sumX = sumX.add(x);
-            sumY = sumY.add(y);
-            sumXY = sumXY.add(x.multiply(y));
-            sumX2 = sumX2.add(x.multiply(x));
-            sumY2 = sumY2.add(y.multiply(y));
-        }
-
-        BigDecimal nDecimal = new BigDecimal(n);
-        BigDecimal numerator = nDecimal.multiply(sumXY).subtract(sumX.multiply(sumY));
-        BigDecimal denomX = nDecimal.multiply(sumX2).subtract(sumX.multiply(sumX));
-        BigDecimal denomY = nDecimal.multiply(sumY2).subtract(sumY.multiply(sumY));
-
-        BigDecimal denominator = BigDecimal.valueOf(Math.sqrt(denomX.multiply(denomY).doubleValue()));
-
-        if (denominator.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO;
-        }
-
-        return numerator.divide(denominator, SCALE, ROUNDING_MODE);
-    }
-
-    /**
-     * 计算波动性 (变异系数)
-     */
-    private BigDecimal calculateVolatility(List<BigDecimal> values) {
-        if (values.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal mean = values.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(values.size()), SCALE, ROUNDING_MODE);
-
-        if (mean.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal stdDev = calculateStandardDeviation(values);
-        return stdDev.divide(mean.abs(), SCALE, ROUNDING_MODE);
-    }
-
-    /**
-     * 计算置信度
-     */
-    private BigDecimal calculateConfidence(List<BigDecimal> values, BigDecimal standardDeviation) {
-        if (values.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal mean = values.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(values.size()), SCALE, ROUNDING_MODE);
-
-        if (mean.compareTo(BigDecimal.ZERO) == 0) {
-            return new BigDecimal("50");
-        }
-
-        // 基于变异系数计算置信度
-        BigDecimal cv = standardDeviation.divide(mean.abs(), SCALE, ROUNDING_MODE);
-
-        // 变异系数越小，置信度越高
-        BigDecimal confidence = BigDecimal.ONE.subtract(cv.min(BigDecimal.ONE))
-                .multiply(new BigDecimal("100"))
-                .setScale(DISPLAY_SCALE, ROUNDING_MODE);
-
-        return confidence.max(new BigDecimal("30")).min(new BigDecimal("95"));
-    }
+    // ==================== 结果描述 ====================
 
     /**
      * 计算趋势方向
@@ -0,0 +1,40 @@
+-- ============================================
+-- 考勤日汇总表
+-- 由打卡记录增量维护的 员工/日、部门/日、工种/日 预聚合，工时统计直接合并使用
+-- 上线后调用 POST /api/mobile/{factoryId}/time-stats/rollups/rebuild 回填历史数据
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS attendance_daily_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    factory_id VARCHAR(50) NOT NULL,
+    rollup_date DATE NOT NULL,
+
+    -- 维度: WORKER / DEPARTMENT / WORK_TYPE
+    dimension VARCHAR(20) NOT NULL,
+    dimension_key VARCHAR(100) NOT NULL,
+    dimension_label VARCHAR(100),
+
+    -- WORKER 行的分组属性
+    department VARCHAR(100),
+    work_type VARCHAR(100),
+
+    -- 度量
+    record_count BIGINT NOT NULL DEFAULT 0,
+    worker_count BIGINT NOT NULL DEFAULT 0,
+    total_minutes BIGINT NOT NULL DEFAULT 0,
+    regular_minutes BIGINT NOT NULL DEFAULT 0,
+    overtime_minutes BIGINT NOT NULL DEFAULT 0,
+    late_count BIGINT NOT NULL DEFAULT 0,
+    early_leave_count BIGINT NOT NULL DEFAULT 0,
+    abnormal_count BIGINT NOT NULL DEFAULT 0,
+
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT uk_adr_dimension UNIQUE (factory_id, rollup_date, dimension, dimension_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_adr_factory_dim_date
+    ON attendance_daily_rollups (factory_id, dimension, rollup_date);
+CREATE INDEX IF NOT EXISTS idx_adr_factory_date_dept
+    ON attendance_daily_rollups (factory_id, rollup_date, department);
@@ -0,0 +1,14 @@
+-- ============================================
+-- 仪表盘快照增量查询索引
+-- DashboardSnapshotService 定时按 updated_at 查询各统计来源表的变更工厂，避免全表扫描
+-- ============================================
+
+CREATE INDEX IF NOT EXISTS idx_production_plans_updated_at ON production_plans (updated_at);
+CREATE INDEX IF NOT EXISTS idx_production_batches_updated_at ON production_batches (updated_at);
+CREATE INDEX IF NOT EXISTS idx_material_batches_updated_at ON material_batches (updated_at);
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users (updated_at);
+CREATE INDEX IF NOT EXISTS idx_factory_equipment_updated_at ON factory_equipment (updated_at);
+CREATE INDEX IF NOT EXISTS idx_quality_inspections_updated_at ON quality_inspections (updated_at);
+CREATE INDEX IF NOT EXISTS idx_shipment_records_updated_at ON shipment_records (updated_at);
+CREATE INDEX IF NOT EXISTS idx_customers_updated_at ON customers (updated_at);
+CREATE INDEX IF NOT EXISTS idx_suppliers_updated_at ON suppliers (updated_at);
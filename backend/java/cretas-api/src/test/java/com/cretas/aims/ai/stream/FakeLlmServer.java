@@ -0,0 +1,255 @@
+package com.cretas.aims.ai.stream;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地 OpenAI 兼容流式 Chat Completion 桩服务器
+ * 单线程 NIO 实现, 每个请求按固定间隔逐个推送 data: chunk, 最后推送 [DONE] 并关闭连接;
+ * 统计在推送完成前被客户端关闭的连接数, 用于验证断开后上游调用被中止。
+ */
+class FakeLlmServer implements AutoCloseable {
+
+    private static final byte[] RESPONSE_HEAD = ("HTTP/1.1 200 OK\r\n"
+            + "Content-Type: text/event-stream\r\n"
+            + "Cache-Control: no-cache\r\n"
+            + "Connection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    private final int tokensPerStream;
+    private final long intervalNanos;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final List<Stream> streams = new ArrayList<>();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger disconnected = new AtomicInteger();
+    private volatile boolean running = true;
+
+    FakeLlmServer(int tokensPerStream, long intervalMillis) throws IOException {
+        this.tokensPerStream = tokensPerStream;
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::loop, "fake-llm-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.socket().getLocalPort();
+    }
+
+    static String token(int index) {
+        return "t" + index + " ";
+    }
+
+    static String expectedText(int tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            sb.append(token(i));
+        }
+        return sb.toString();
+    }
+
+    int getAcceptedCount() {
+        return accepted.get();
+    }
+
+    int getFinishedCount() {
+        return finished.get();
+    }
+
+    /**
+     * 推送完成前被客户端关闭的连接数
+     */
+    int getDisconnectedCount() {
+        return disconnected.get();
+    }
+
+    private static byte[] chunk(String content) {
+        return ("data: {\"id\":\"fake\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content
+                + "\"}}]}\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void loop() {
+        ByteBuffer readBuffer = ByteBuffer.allocate(8192);
+        while (running) {
+            try {
+                selector.select(2);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        SocketChannel channel;
+                        while ((channel = server.accept()) != null) {
+                            channel.configureBlocking(false);
+                            Stream stream = new Stream(channel);
+                            channel.register(selector, SelectionKey.OP_READ, stream);
+                            accepted.incrementAndGet();
+                        }
+                    } else if (key.isReadable()) {
+                        Stream stream = (Stream) key.attachment();
+                        readBuffer.clear();
+                        int n;
+                        try {
+                            n = stream.channel.read(readBuffer);
+                        } catch (IOException e) {
+                            n = -1;
+                        }
+                        if (n < 0) {
+                            stream.close(true);
+                            continue;
+                        }
+                        stream.onRequestBytes(new String(readBuffer.array(), 0, n, StandardCharsets.ISO_8859_1));
+                    }
+                }
+                pump();
+            } catch (IOException e) {
+                // 个别连接失败不影响桩服务器
+            }
+        }
+    }
+
+    /**
+     * 给到期的流推送下一个 chunk
+     */
+    private void pump() {
+        long now = System.nanoTime();
+        Iterator<Stream> it = streams.iterator();
+        while (it.hasNext()) {
+            Stream stream = it.next();
+            if (stream.closed) {
+                it.remove();
+                continue;
+            }
+            if (stream.pending != null && !stream.flush()) {
+                continue;
+            }
+            if (stream.done) {
+                finished.incrementAndGet();
+                stream.close(false);
+                it.remove();
+                continue;
+            }
+            if (now < stream.nextAt) {
+                continue;
+            }
+            if (stream.sent < tokensPerStream) {
+                stream.pending = ByteBuffer.wrap(chunk(token(stream.sent++)));
+                stream.nextAt = now + intervalNanos;
+            } else {
+                stream.pending = ByteBuffer.wrap("data: [DONE]\n\n".getBytes(StandardCharsets.ISO_8859_1));
+                stream.done = true;
+            }
+            stream.flush();
+        }
+    }
+
+    private final class Stream {
+        private final SocketChannel channel;
+        private final StringBuilder request = new StringBuilder();
+        private int contentLength = -1;
+        private boolean responding;
+        private ByteBuffer pending;
+        private int sent;
+        private long nextAt;
+        private boolean done;
+        private boolean closed;
+
+        private Stream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void onRequestBytes(String data) {
+            if (responding) {
+                return;
+            }
+            request.append(data);
+            int headerEnd = request.indexOf("\r\n\r\n");
+            if (headerEnd < 0) {
+                return;
+            }
+            if (contentLength < 0) {
+                contentLength = 0;
+                for (String line : request.substring(0, headerEnd).split("\r\n")) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+            }
+            if (request.length() - headerEnd - 4 >= contentLength) {
+                responding = true;
+                pending = ByteBuffer.wrap(RESPONSE_HEAD);
+                nextAt = System.nanoTime() + intervalNanos;
+                streams.add(this);
+                flush();
+            }
+        }
+
+        /**
+         * 写出待发送数据，全部写完返回 true
+         */
+        private boolean flush() {
+            try {
+                channel.write(pending);
+            } catch (IOException e) {
+                close(true);
+                return false;
+            }
+            if (pending.hasRemaining()) {
+                return false;
+            }
+            pending = null;
+            return true;
+        }
+
+        private void close(boolean byClient) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (byClient && responding) {
+                disconnected.incrementAndGet();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        server.close();
+    }
+}
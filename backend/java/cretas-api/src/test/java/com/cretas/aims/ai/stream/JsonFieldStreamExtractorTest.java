@@ -0,0 +1,54 @@
+package com.cretas.aims.ai.stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 流式 JSON 字段提取测试
+ *
+ * @author Cretas Team
+ * @since 2026-01-30
+ */
+@DisplayName("JsonFieldStreamExtractor - 流式 JSON 字段提取测试")
+class JsonFieldStreamExtractorTest {
+
+    private static final String JSON = "```json\n{\"is_confirmed\": false, \"intent_code\": \"message\", "
+            + "\"message\" : \"请问您要查询\\\"库存\\\"还是\\n出库？\\u4f60好\", \"confidence\": 0.4}\n```";
+    private static final String MESSAGE = "请问您要查询\"库存\"还是\n出库？你好";
+
+    private static String feedInPieces(String text, int pieceLength) {
+        JsonFieldStreamExtractor extractor = new JsonFieldStreamExtractor("message");
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < text.length(); i += pieceLength) {
+            out.append(extractor.feed(text.substring(i, Math.min(text.length(), i + pieceLength))));
+        }
+        assertThat(extractor.isDone()).isTrue();
+        return out.toString();
+    }
+
+    @Test
+    @DisplayName("UT-SSE-010: 任意切分位置都能完整还原字段值")
+    void testAnySplit() {
+        for (int piece = 1; piece <= JSON.length(); piece++) {
+            assertThat(feedInPieces(JSON, piece)).as("piece=%d", piece).isEqualTo(MESSAGE);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-SSE-011: 同名字符串值和非字符串字段不产生内容")
+    void testIgnoresNonKeyAndNonString() {
+        JsonFieldStreamExtractor extractor = new JsonFieldStreamExtractor("message");
+        assertThat(extractor.feed("{\"code\": \"message\", \"message\": 42, \"other\": \"x\"}")).isEmpty();
+        assertThat(extractor.isDone()).isFalse();
+    }
+
+    @Test
+    @DisplayName("UT-SSE-012: 值结束后忽略后续内容")
+    void testStopsAfterValue() {
+        JsonFieldStreamExtractor extractor = new JsonFieldStreamExtractor("message");
+        assertThat(extractor.feed("{\"message\":\"好的\"")).isEqualTo("好的");
+        assertThat(extractor.feed(", \"reasoning\": {\"message\": \"内部\"}}")).isEmpty();
+    }
+}
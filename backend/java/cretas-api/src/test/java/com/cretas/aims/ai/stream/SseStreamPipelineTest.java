@@ -0,0 +1,343 @@
+package com.cretas.aims.ai.stream;
+
+import com.cretas.aims.ai.client.DashScopeClient;
+import com.cretas.aims.ai.dto.ChatCompletionRequest;
+import com.cretas.aims.config.DashScopeConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SSE 流式推送管线测试
+ * 使用本地流式 LLM 桩服务器, 经 DashScopeClient.streamChat 的真实 HTTP 链路
+ *
+ * @author Cretas Team
+ * @since 2026-01-30
+ */
+@DisplayName("SseStreamPipeline - 非阻塞流式推送测试")
+class SseStreamPipelineTest {
+
+    private ExecutorService httpExecutor;
+    private HttpClient streamingHttpClient;
+    private SseStreamPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        httpExecutor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "test-stream-http");
+            t.setDaemon(true);
+            return t;
+        });
+        streamingHttpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpExecutor)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+        httpExecutor.shutdownNow();
+    }
+
+    private DashScopeClient client(FakeLlmServer server) {
+        DashScopeConfig config = new DashScopeConfig();
+        config.setEnabled(true);
+        config.setApiKey("test-key");
+        config.setBaseUrl(server.getBaseUrl());
+        return new DashScopeClient(config, new OkHttpClient(), streamingHttpClient, new ObjectMapper());
+    }
+
+    private static ChatCompletionRequest request() {
+        return ChatCompletionRequest.simple("fake-model", "system", "hello");
+    }
+
+    /**
+     * 流结束后发送 done 并结束会话
+     */
+    private static TokenStreamHandler completingHandler(SseStreamSession session, CountDownLatch latch,
+                                                        List<String> fullTexts) {
+        return new TokenStreamHandler() {
+            @Override
+            public String onToken(String token) {
+                return token;
+            }
+
+            @Override
+            public void onComplete(String fullText) {
+                fullTexts.add(fullText);
+                session.send("done", "ok");
+                session.complete();
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error, String partialText) {
+                session.send("error", String.valueOf(error.getMessage()));
+                session.complete();
+                latch.countDown();
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("UT-SSE-001: 1000 个并发流全部完整送达, 线程数不随流数量增长")
+    void testThousandConcurrentStreams() throws Exception {
+        int sessions = 1000;
+        int tokens = 20;
+        pipeline = new SseStreamPipeline(4, 64, 60_000, 60_000);
+
+        try (FakeLlmServer server = new FakeLlmServer(tokens, 20)) {
+            DashScopeClient client = client(server);
+            int baselineThreads = Thread.activeCount();
+            AtomicInteger peakThreads = new AtomicInteger(baselineThreads);
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(
+                    () -> peakThreads.accumulateAndGet(Thread.activeCount(), Math::max), 0, 10, TimeUnit.MILLISECONDS);
+
+            CountDownLatch latch = new CountDownLatch(sessions);
+            List<String> fullTexts = new CopyOnWriteArrayList<>();
+            List<RecordingEmitter> emitters = new ArrayList<>();
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < sessions; i++) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                SseStreamSession session = pipeline.open(emitter);
+                session.send("processing", "start");
+                session.stream(client.streamChat(request()), completingHandler(session, latch, fullTexts));
+            }
+
+            assertThat(latch.await(60, TimeUnit.SECONDS)).isTrue();
+            long elapsed = System.currentTimeMillis() - start;
+            sampler.shutdownNow();
+
+            String expected = FakeLlmServer.expectedText(tokens);
+            assertThat(fullTexts).hasSize(sessions).allMatch(expected::equals);
+            for (RecordingEmitter emitter : emitters) {
+                assertThat(emitter.completed).isTrue();
+                assertThat(emitter.names().get(0)).isEqualTo("processing");
+                assertThat(emitter.names().get(emitter.names().size() - 1)).isEqualTo("done");
+                assertThat(emitter.deltaText()).isEqualTo(expected);
+            }
+            assertThat(server.getFinishedCount()).isEqualTo(sessions);
+            assertThat(pipeline.getActiveSessions()).isZero();
+            assertThat(pipeline.getStatistics().get("completed")).isEqualTo((long) sessions);
+            // 4 个工作线程 + 心跳 + HttpClient 选择器与回调线程 + 桩服务器, 与流数量无关
+            assertThat(peakThreads.get() - baselineThreads).isLessThan(20);
+            // 每个流单独推送约 400ms, 并发推送不应被线程数串行化
+            assertThat(elapsed).isLessThan(20_000);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-SSE-002: 客户端断开后取消上游调用并关闭连接")
+    void testClientDisconnectCancelsUpstream() throws Exception {
+        int sessions = 50;
+        pipeline = new SseStreamPipeline(2, 16, 60_000, 60_000);
+
+        try (FakeLlmServer server = new FakeLlmServer(1000, 20)) {
+            DashScopeClient client = client(server);
+            AtomicInteger completedStreams = new AtomicInteger();
+            List<RecordingEmitter> emitters = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                SseStreamSession session = pipeline.open(emitter);
+                session.stream(client.streamChat(request()), new TokenStreamHandler() {
+                    @Override
+                    public String onToken(String token) {
+                        return token;
+                    }
+
+                    @Override
+                    public void onComplete(String fullText) {
+                        completedStreams.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(Throwable error, String partialText) {
+                        completedStreams.incrementAndGet();
+                    }
+                });
+            }
+
+            awaitCondition(() -> emitters.stream().allMatch(e -> !e.deltaText().isEmpty()), 10_000);
+            emitters.forEach(RecordingEmitter::disconnect);
+
+            awaitCondition(() -> server.getDisconnectedCount() == sessions, 10_000);
+            assertThat(server.getDisconnectedCount()).isEqualTo(sessions);
+            assertThat(server.getFinishedCount()).isZero();
+            assertThat(completedStreams.get()).isZero();
+            assertThat(pipeline.getActiveSessions()).isZero();
+            Map<String, Object> stats = pipeline.getStatistics();
+            assertThat(stats.get("aborted")).isEqualTo((long) sessions);
+            assertThat(stats.get("upstreamCancelled")).isEqualTo((long) sessions);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-SSE-003: 写出失败视为断开, 取消上游")
+    void testWriteFailureCancelsUpstream() throws Exception {
+        pipeline = new SseStreamPipeline(1, 16, 60_000, 60_000);
+
+        try (FakeLlmServer server = new FakeLlmServer(1000, 10)) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            SseStreamSession session = pipeline.open(emitter);
+            session.stream(client(server).streamChat(request()), completingHandler(session, new CountDownLatch(1),
+                    new ArrayList<>()));
+
+            awaitCondition(() -> !emitter.deltaText().isEmpty(), 5_000);
+            emitter.failWrites = true;
+
+            awaitCondition(() -> server.getDisconnectedCount() == 1, 5_000);
+            assertThat(server.getDisconnectedCount()).isEqualTo(1);
+            assertThat(session.isClosed()).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("UT-SSE-004: 客户端写出慢时合并 token, 内容完整")
+    void testSlowClientCoalescesTokens() throws Exception {
+        int tokens = 200;
+        pipeline = new SseStreamPipeline(1, 32, 60_000, 60_000);
+
+        try (FakeLlmServer server = new FakeLlmServer(tokens, 1)) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitter.writeDelayMillis = 20;
+            SseStreamSession session = pipeline.open(emitter);
+            CountDownLatch latch = new CountDownLatch(1);
+            List<String> fullTexts = new CopyOnWriteArrayList<>();
+            session.stream(client(server).streamChat(request()), completingHandler(session, latch, fullTexts));
+
+            assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+            awaitCondition(() -> emitter.completed, 5_000);
+
+            String expected = FakeLlmServer.expectedText(tokens);
+            assertThat(fullTexts).containsExactly(expected);
+            assertThat(emitter.deltaText()).isEqualTo(expected);
+            assertThat(emitter.names().stream().filter("delta"::equals).count()).isLessThan(tokens / 2);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-SSE-005: 空闲会话发送心跳注释, 断开后不再发送")
+    void testHeartbeat() throws Exception {
+        pipeline = new SseStreamPipeline(1, 16, 50, 60_000);
+        RecordingEmitter emitter = new RecordingEmitter();
+        pipeline.open(emitter);
+
+        awaitCondition(() -> emitter.comments.get() >= 2, 5_000);
+        assertThat(emitter.comments.get()).isGreaterThanOrEqualTo(2);
+
+        emitter.disconnect();
+        int comments = emitter.comments.get();
+        Thread.sleep(200);
+        assertThat(emitter.comments.get()).isEqualTo(comments);
+    }
+
+    private static void awaitCondition(java.util.function.BooleanSupplier condition, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 记录写出事件的 SseEmitter, 可模拟客户端断开和写失败
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> names = new CopyOnWriteArrayList<>();
+        private final StringBuilder delta = new StringBuilder();
+        private final AtomicInteger comments = new AtomicInteger();
+        private volatile Runnable completionCallback;
+        private volatile boolean completed;
+        private volatile boolean failWrites;
+        private volatile long writeDelayMillis;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failWrites) {
+                throw new IOException("Broken pipe");
+            }
+            if (writeDelayMillis > 0) {
+                try {
+                    Thread.sleep(writeDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Set<ResponseBodyEmitter.DataWithMediaType> parts = builder.build();
+            List<Object> data = new ArrayList<>();
+            for (ResponseBodyEmitter.DataWithMediaType part : parts) {
+                data.add(part.getData());
+            }
+            String head = String.valueOf(data.get(0));
+            if (head.startsWith(":")) {
+                comments.incrementAndGet();
+                return;
+            }
+            String name = head.substring("event:".length(), head.indexOf('\n'));
+            names.add(name);
+            if ("delta".equals(name)) {
+                synchronized (delta) {
+                    delta.append(((Map<?, ?>) data.get(1)).get("content"));
+                }
+            }
+        }
+
+        @Override
+        public synchronized void onCompletion(Runnable callback) {
+            this.completionCallback = callback;
+            super.onCompletion(callback);
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        /**
+         * 模拟容器在客户端断开时触发的完成回调
+         */
+        void disconnect() {
+            completionCallback.run();
+        }
+
+        List<String> names() {
+            return names;
+        }
+
+        String deltaText() {
+            synchronized (delta) {
+                return delta.toString();
+            }
+        }
+    }
+}
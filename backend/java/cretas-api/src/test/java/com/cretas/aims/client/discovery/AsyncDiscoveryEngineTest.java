@@ -0,0 +1,145 @@
+package com.cretas.aims.client.discovery;
+
+import com.cretas.aims.client.discovery.AsyncDiscoveryEngine.DiscoveryScan;
+import com.cretas.aims.client.discovery.AsyncDiscoveryEngine.ScanOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 异步设备发现引擎测试
+ * 使用本地监听端口模拟网段中的设备
+ *
+ * @author Cretas Team
+ * @since 2026-01-08
+ */
+@DisplayName("AsyncDiscoveryEngine - 非阻塞设备发现测试")
+class AsyncDiscoveryEngineTest {
+
+    private final List<ServerSocket> listeners = new ArrayList<>();
+    private AsyncDiscoveryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new AsyncDiscoveryEngine(8, 1024, 20_000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.shutdown();
+        for (ServerSocket listener : listeners) {
+            listener.close();
+        }
+    }
+
+    private int listen() throws IOException {
+        ServerSocket socket = new ServerSocket(0, 512, InetAddress.getByName("127.0.0.1"));
+        listeners.add(socket);
+        return socket.getLocalPort();
+    }
+
+    private int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    @DisplayName("UT-DSC-001: 解析 CIDR")
+    void testExpandCidr() {
+        assertThat(AsyncDiscoveryEngine.expandCidr("192.168.1.0/24")).hasSize(254)
+                .startsWith("192.168.1.1").endsWith("192.168.1.254");
+        assertThat(AsyncDiscoveryEngine.expandCidr("10.0.0.0/22")).hasSize(1022);
+        assertThat(AsyncDiscoveryEngine.expandCidr("10.0.0.0/8")).isEmpty();
+        assertThat(AsyncDiscoveryEngine.expandCidr("bad")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("UT-DSC-002: 仅对开放端口执行探测并流式回调")
+    void testOpenPortsProbedAndStreamed() throws Exception {
+        int open1 = listen();
+        int open2 = listen();
+        int closed = closedPort();
+        List<String> streamed = new CopyOnWriteArrayList<>();
+
+        DiscoveryScan<String> scan = engine.scan(List.of("127.0.0.1"), List.of(open1, closed, open2),
+                ScanOptions.defaults().connectTimeoutMs(1000),
+                (host, port) -> host + ":" + port, streamed::add);
+        List<String> results = scan.getCompletion().get(10, TimeUnit.SECONDS);
+
+        assertThat(results).containsExactlyInAnyOrder("127.0.0.1:" + open1, "127.0.0.1:" + open2);
+        assertThat(streamed).containsExactlyInAnyOrderElementsOf(results);
+        assertThat(scan.getProgress().get("attempted")).isEqualTo(3L);
+        assertThat(scan.getProgress().get("openPorts")).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("UT-DSC-003: 探测返回 null 的端口不计入结果")
+    void testProberFilters() throws Exception {
+        int open = listen();
+        List<String> results = engine.scanAndWait(List.of("127.0.0.1"), List.of(open),
+                ScanOptions.defaults(), (host, port) -> null, 10_000);
+        assertThat(results).isEmpty();
+    }
+
+    @Test
+    @DisplayName("UT-DSC-004: 整个 /24 回环网段多端口扫描")
+    void testLoopbackSubnetScan() throws Exception {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ports.add(listen());
+        }
+        ports.add(closedPort());
+        List<String> hosts = AsyncDiscoveryEngine.expandCidr("127.0.0.0/24");
+
+        List<String> results = engine.scanAndWait(hosts, ports,
+                ScanOptions.defaults().connectTimeoutMs(500).maxConcurrentProbes(4),
+                (host, port) -> host + ":" + port, 30_000);
+
+        // 监听只绑定 127.0.0.1, 其余地址立即被拒绝
+        assertThat(results).hasSize(4).allMatch(r -> r.startsWith("127.0.0.1:"));
+    }
+
+    @Test
+    @DisplayName("UT-DSC-005: 令牌桶限制连接速率")
+    void testRateLimit() throws Exception {
+        int open = listen();
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            ports.add(open);
+        }
+
+        long start = System.nanoTime();
+        engine.scanAndWait(List.of("127.0.0.1"), ports, ScanOptions.defaults().connectsPerSecond(100),
+                (host, port) -> port, 10_000);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 突发容量 10 个, 其余 50 个按 100/s 发放, 至少约 500ms
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("UT-DSC-006: 取消扫描")
+    void testCancel() throws Exception {
+        List<String> hosts = AsyncDiscoveryEngine.expandCidr("127.0.0.0/16");
+        DiscoveryScan<String> scan = engine.scan(hosts, List.of(closedPort()),
+                ScanOptions.defaults().connectsPerSecond(1000), (h, p) -> h, r -> { });
+
+        Thread.sleep(100);
+        scan.cancel();
+
+        assertThat(scan.getCompletion().get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat((Long) scan.getProgress().get("attempted")).isLessThan(hosts.size());
+    }
+}
@@ -0,0 +1,152 @@
+package com.cretas.aims.client.isapi;
+
+import com.cretas.aims.config.IsapiConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ISAPI alertStream 多路复用读取器测试
+ * 使用本地 multipart 桩服务器模拟设备
+ *
+ * @author Cretas Team
+ * @since 2026-01-05
+ */
+@DisplayName("IsapiAlertStreamReader - alertStream 多路复用读取测试")
+class IsapiAlertStreamReaderTest {
+
+    private IsapiConfig config;
+    private IsapiAlertStreamReader reader;
+
+    @BeforeEach
+    void setUp() {
+        config = new IsapiConfig();
+        config.setConnectionTimeout(5);
+        config.setHeartbeatInterval(30);
+        config.setRetryCount(3);
+        config.setRetryDelay(100);
+        config.setAlertMaxBackoffMs(1000);
+        config.setAlertDispatchThreads(4);
+        config.setAlertDispatchQueueCapacity(100_000);
+        config.setAlertMaxPartBytes(64 * 1024);
+        reader = new IsapiAlertStreamReader(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reader.shutdown();
+    }
+
+    private IsapiAlertStreamReader.StreamTarget target(String deviceId, int port) {
+        return IsapiAlertStreamReader.StreamTarget.builder()
+                .deviceId(deviceId)
+                .factoryId("F001")
+                .host("127.0.0.1")
+                .port(port)
+                .path(IsapiConfig.Endpoints.ALERT_STREAM)
+                .build();
+    }
+
+    @Test
+    @DisplayName("UT-ISA-090: chunked 告警流解析并附加设备信息")
+    void testChunkedStream() throws Exception {
+        try (MultipartStubServer server = new MultipartStubServer(10, true)) {
+            List<Map<String, Object>> events = new ArrayList<>();
+            CountDownLatch latch = new CountDownLatch(10);
+
+            reader.subscribe(target("D1", server.getPort()), event -> {
+                events.add(event);
+                latch.countDown();
+            });
+
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(events).allSatisfy(e -> {
+                assertThat(e.get("deviceId")).isEqualTo("D1");
+                assertThat(e.get("factoryId")).isEqualTo("F001");
+                assertThat(e.get("eventType")).isEqualTo("VMD");
+            });
+            // 同一设备事件保持顺序
+            assertThat(events.get(0).get("channelID")).isEqualTo(1);
+            assertThat(events.get(9).get("channelID")).isEqualTo(10);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-ISA-091: 1000 路并发告警流, 线程数与流数量无关")
+    void testThousandStreams() throws Exception {
+        int streams = 1000;
+        int eventsPerStream = 20;
+        try (MultipartStubServer server = new MultipartStubServer(eventsPerStream, false)) {
+            CountDownLatch latch = new CountDownLatch(streams * eventsPerStream);
+            Map<String, AtomicInteger> perDevice = new ConcurrentHashMap<>();
+
+            for (int i = 0; i < streams; i++) {
+                String deviceId = "D" + i;
+                reader.subscribe(target(deviceId, server.getPort()), event -> {
+                    perDevice.computeIfAbsent(deviceId, k -> new AtomicInteger()).incrementAndGet();
+                    latch.countDown();
+                });
+            }
+
+            assertThat(latch.await(60, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(perDevice).hasSize(streams);
+            assertThat(perDevice.values()).allSatisfy(c -> assertThat(c.get()).isEqualTo(eventsPerStream));
+            assertThat(reader.getConnectionCount()).isEqualTo(streams);
+
+            Map<String, Object> stats = reader.getStats();
+            assertThat(stats.get("eventsDropped")).isEqualTo(0L);
+            // selector + 分发线程 + 重连调度线程
+            assertThat((Integer) stats.get("threadsStarted")).isLessThanOrEqualTo(config.getAlertDispatchThreads() + 2);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-ISA-092: 连接失败按退避重试后上报错误事件")
+    void testReconnectThenReportError() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        CountDownLatch errorLatch = new CountDownLatch(1);
+        List<Map<String, Object>> events = new ArrayList<>();
+        reader.subscribe(target("D-offline", closedPort), event -> {
+            events.add(event);
+            errorLatch.countDown();
+        });
+
+        assertThat(errorLatch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(events.get(0).get("error")).isEqualTo(true);
+        assertThat(events.get(0).get("deviceId")).isEqualTo("D-offline");
+        assertThat((Long) reader.getStats().get("reconnects")).isEqualTo(3L);
+        assertThat(reader.getConnectionCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("UT-ISA-093: 取消订阅后不再分发事件")
+    void testCancel() throws Exception {
+        try (MultipartStubServer server = new MultipartStubServer(1, false)) {
+            CountDownLatch latch = new CountDownLatch(1);
+            AlertStreamSubscription subscription = reader.subscribe(target("D1", server.getPort()), e -> latch.countDown());
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+
+            subscription.cancel();
+
+            assertThat(subscription.isCanceled()).isTrue();
+            assertThat(reader.getConnectionCount()).isZero();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.cretas.aims.client.isapi;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * alertStream multipart 增量解码器单元测试
+ *
+ * @author Cretas Team
+ * @since 2026-01-05
+ */
+@DisplayName("MultipartAlertDecoder - alertStream 字节级解码测试")
+class MultipartAlertDecoderTest {
+
+    private final IsapiAlertStaxParser parser = new IsapiAlertStaxParser();
+
+    @Test
+    @DisplayName("UT-ISA-080: 整块输入解析全部事件")
+    void testFeedWholeBody() {
+        List<Map<String, Object>> events = new ArrayList<>();
+        MultipartAlertDecoder decoder = new MultipartAlertDecoder(
+                MultipartStubServer.BOUNDARY, 64 * 1024, parser, events::add);
+
+        byte[] body = MultipartStubServer.multipartBody(5);
+        decoder.feed(body, 0, body.length);
+
+        assertThat(events).hasSize(5);
+        assertThat(events.get(0).get("eventType")).isEqualTo("VMD");
+        assertThat(events.get(0).get("eventState")).isEqualTo("active");
+        assertThat(events.get(4).get("channelID")).isEqualTo(5);
+        assertThat(events.get(0).get("dateTime")).isNotNull();
+        assertThat(events.get(0).get("isHeartbeat")).isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("UT-ISA-081: 逐字节输入, 分隔符跨读取块")
+    void testFeedByteByByte() {
+        List<Map<String, Object>> events = new ArrayList<>();
+        MultipartAlertDecoder decoder = new MultipartAlertDecoder(
+                MultipartStubServer.BOUNDARY, 64 * 1024, parser, events::add);
+
+        byte[] body = MultipartStubServer.multipartBody(3);
+        for (int i = 0; i < body.length; i++) {
+            decoder.feed(body, i, 1);
+        }
+
+        assertThat(events).hasSize(3);
+        assertThat(decoder.getParseErrors()).isZero();
+    }
+
+    @Test
+    @DisplayName("UT-ISA-082: 与 DOM 解析结果一致")
+    void testStaxMatchesDom() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<EventNotificationAlert version=\"2.0\">"
+                + "<ipAddress>192.168.1.64</ipAddress><portNo>80</portNo><channelID>1</channelID>"
+                + "<dateTime>2026-01-05T10:00:00+08:00</dateTime><eventType>fielddetection</eventType>"
+                + "<eventState>active</eventState><eventDescription>fielddetection alarm</eventDescription>"
+                + "<DetectionRegionList><DetectionRegionEntry><regionID>1</regionID>"
+                + "<sensitivityLevel>50</sensitivityLevel><RegionCoordinatesList>"
+                + "<RegionCoordinates><positionX>100</positionX><positionY>200</positionY></RegionCoordinates>"
+                + "<RegionCoordinates><positionX>300</positionX><positionY>400</positionY></RegionCoordinates>"
+                + "</RegionCoordinatesList></DetectionRegionEntry></DetectionRegionList>"
+                + "</EventNotificationAlert>";
+
+        Map<String, Object> dom = new IsapiXmlParser().parseEventAlert(xml);
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        Map<String, Object> stax = parser.parse(bytes, 0, bytes.length);
+
+        assertThat(stax).isEqualTo(dom);
+    }
+
+    @Test
+    @DisplayName("UT-ISA-083: 心跳事件识别")
+    void testHeartbeat() throws Exception {
+        byte[] bytes = MultipartStubServer.alertXml(1, "videoloss", "inactive").getBytes(StandardCharsets.UTF_8);
+
+        Map<String, Object> event = parser.parse(bytes, 0, bytes.length);
+
+        assertThat(event.get("isHeartbeat")).isEqualTo(true);
+    }
+
+    @Test
+    @DisplayName("UT-ISA-084: 超大分段与图片分段被跳过")
+    void testOversizedAndBinaryPartsSkipped() {
+        List<Map<String, Object>> events = new ArrayList<>();
+        MultipartAlertDecoder decoder = new MultipartAlertDecoder(
+                MultipartStubServer.BOUNDARY, 1024, parser, events::add);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("--boundary\r\nContent-Type: image/jpeg\r\n\r\n").append("x".repeat(5000)).append("\r\n");
+        sb.append("--boundary\r\nContent-Type: image/jpeg\r\n\r\n").append("y".repeat(100)).append("\r\n");
+        byte[] prefix = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] body = MultipartStubServer.multipartBody(2);
+        decoder.feed(prefix, 0, prefix.length);
+        decoder.feed(body, 0, body.length);
+
+        assertThat(events).hasSize(2);
+        assertThat(decoder.getOversizedParts()).isEqualTo(1);
+    }
+}
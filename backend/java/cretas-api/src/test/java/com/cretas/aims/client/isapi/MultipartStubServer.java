@@ -0,0 +1,169 @@
+package com.cretas.aims.client.isapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地 alertStream 桩服务器
+ * 单线程 NIO 实现, 每个连接返回固定数量的 multipart 告警事件后保持连接打开,
+ * 用于模拟大量海康设备同时推送告警。
+ */
+class MultipartStubServer implements AutoCloseable {
+
+    static final String BOUNDARY = "boundary";
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final byte[] response;
+    private final AtomicInteger accepted = new AtomicInteger();
+    private volatile boolean running = true;
+
+    MultipartStubServer(int eventsPerStream, boolean chunked) throws IOException {
+        this.response = buildResponse(eventsPerStream, chunked);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0), 2048);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.thread = new Thread(this::loop, "multipart-stub-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    int getAcceptedCount() {
+        return accepted.get();
+    }
+
+    static String alertXml(int channel, String eventType, String state) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+                + "<EventNotificationAlert version=\"2.0\" xmlns=\"http://www.hikvision.com/ver20/XMLSchema\">\r\n"
+                + "<ipAddress>127.0.0.1</ipAddress>\r\n"
+                + "<portNo>80</portNo>\r\n"
+                + "<protocol>HTTP</protocol>\r\n"
+                + "<macAddress>44:19:b6:00:00:01</macAddress>\r\n"
+                + "<channelID>" + channel + "</channelID>\r\n"
+                + "<dateTime>2026-01-05T10:00:00+08:00</dateTime>\r\n"
+                + "<activePostCount>1</activePostCount>\r\n"
+                + "<eventType>" + eventType + "</eventType>\r\n"
+                + "<eventState>" + state + "</eventState>\r\n"
+                + "<eventDescription>Motion alarm</eventDescription>\r\n"
+                + "</EventNotificationAlert>\r\n";
+    }
+
+    static byte[] multipartBody(int events) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < events; i++) {
+            String xml = alertXml(i + 1, "VMD", "active");
+            sb.append("--").append(BOUNDARY).append("\r\n")
+                    .append("Content-Type: application/xml; charset=\"UTF-8\"\r\n")
+                    .append("Content-Length: ").append(xml.length()).append("\r\n\r\n")
+                    .append(xml);
+        }
+        // 结尾的分隔符使最后一个事件成为完整分段
+        sb.append("--").append(BOUNDARY).append("\r\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] buildResponse(int events, boolean chunked) {
+        byte[] body = multipartBody(events);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String head = "HTTP/1.1 200 OK\r\n"
+                + "Content-Type: multipart/mixed; boundary=" + BOUNDARY + "\r\n"
+                + (chunked ? "Transfer-Encoding: chunked\r\n" : "")
+                + "Connection: keep-alive\r\n\r\n";
+        out.writeBytes(head.getBytes(StandardCharsets.ISO_8859_1));
+        if (!chunked) {
+            out.writeBytes(body);
+        } else {
+            // 使用较小且不对齐的 chunk, 让分隔符跨 chunk
+            for (int i = 0; i < body.length; i += 37) {
+                int n = Math.min(37, body.length - i);
+                out.writeBytes((Integer.toHexString(n) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.write(body, i, n);
+                out.writeBytes("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void loop() {
+        ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+        while (running) {
+            try {
+                selector.select(200);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        SocketChannel channel;
+                        while ((channel = server.accept()) != null) {
+                            channel.configureBlocking(false);
+                            channel.register(selector, SelectionKey.OP_READ, new StringBuilder());
+                            accepted.incrementAndGet();
+                        }
+                    } else if (key.isReadable()) {
+                        SocketChannel channel = (SocketChannel) key.channel();
+                        readBuffer.clear();
+                        int n = channel.read(readBuffer);
+                        if (n < 0) {
+                            key.cancel();
+                            channel.close();
+                            continue;
+                        }
+                        if (!(key.attachment() instanceof StringBuilder)) {
+                            continue;
+                        }
+                        StringBuilder request = (StringBuilder) key.attachment();
+                        request.append(new String(readBuffer.array(), 0, n, StandardCharsets.ISO_8859_1));
+                        if (request.indexOf("\r\n\r\n") >= 0) {
+                            key.attach(ByteBuffer.wrap(response));
+                            key.interestOps(SelectionKey.OP_WRITE | SelectionKey.OP_READ);
+                        }
+                    } else if (key.isWritable()) {
+                        ByteBuffer out = (ByteBuffer) key.attachment();
+                        ((SocketChannel) key.channel()).write(out);
+                        if (!out.hasRemaining()) {
+                            key.interestOps(SelectionKey.OP_READ);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // 个别连接失败不影响桩服务器
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        server.close();
+    }
+}
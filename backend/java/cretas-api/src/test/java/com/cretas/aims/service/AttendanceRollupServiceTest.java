@@ -0,0 +1,276 @@
+package com.cretas.aims.service;
+
+import com.cretas.aims.entity.AttendanceDailyRollup;
+import com.cretas.aims.entity.TimeClockRecord;
+import com.cretas.aims.entity.User;
+import com.cretas.aims.repository.AttendanceDailyRollupRepository;
+import com.cretas.aims.repository.TimeClockRecordRepository;
+import com.cretas.aims.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 考勤日汇总维护服务测试
+ *
+ * 汇总表由内存列表模拟, 校验整日构建的度量, 以及打卡修正 (换部门、删除、改日期) 后
+ * 员工行和部门/工种行与原始记录保持一致。
+ *
+ * @author Cretas Team
+ * @since 2026-01-29
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("AttendanceRollupService - 考勤日汇总维护测试")
+class AttendanceRollupServiceTest {
+
+    private static final String FACTORY_ID = "F001";
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 20);
+
+    @Mock
+    private AttendanceDailyRollupRepository rollupRepository;
+
+    @Mock
+    private TimeClockRecordRepository timeClockRecordRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AttendanceRollupService service;
+
+    /** 模拟的汇总表 */
+    private final List<AttendanceDailyRollup> table = new ArrayList<>();
+    /** 模拟的打卡记录, 按 (用户, 日期) 存放 */
+    private final Map<String, List<TimeClockRecord>> records = new HashMap<>();
+    private final Map<Long, User> users = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new AttendanceRollupService(rollupRepository, timeClockRecordRepository, userRepository,
+                transactionManager, 2);
+
+        when(userRepository.findById(anyLong())).thenAnswer(inv -> Optional.ofNullable(users.get(inv.<Long>getArgument(0))));
+        when(timeClockRecordRepository.findByFactoryIdAndUserIdAndClockDateBetween(eq(FACTORY_ID), anyLong(), any(), any()))
+                .thenAnswer(inv -> records.getOrDefault(key(inv.getArgument(1), inv.<LocalDateTime>getArgument(2).toLocalDate()),
+                        Collections.emptyList()));
+
+        when(rollupRepository.findByFactoryIdAndRollupDateAndDimensionAndDimensionKey(
+                eq(FACTORY_ID), any(), anyString(), anyString()))
+                .thenAnswer(inv -> table.stream()
+                        .filter(r -> r.getRollupDate().equals(inv.getArgument(1))
+                                && r.getDimension().equals(inv.getArgument(2))
+                                && r.getDimensionKey().equals(inv.getArgument(3)))
+                        .findFirst());
+        when(rollupRepository.save(any(AttendanceDailyRollup.class))).thenAnswer(inv -> {
+            AttendanceDailyRollup row = inv.getArgument(0);
+            if (table.stream().noneMatch(r -> r == row)) {
+                table.add(row);
+            }
+            return row;
+        });
+        doAnswer(inv -> table.remove(inv.<AttendanceDailyRollup>getArgument(0)))
+                .when(rollupRepository).delete(any(AttendanceDailyRollup.class));
+        when(rollupRepository.sumWorkersByDepartment(eq(FACTORY_ID), any(), anyString()))
+                .thenAnswer(inv -> sumWorkers(inv.getArgument(1),
+                        r -> r.getDepartment().equals(inv.getArgument(2))));
+        when(rollupRepository.sumWorkersByWorkType(eq(FACTORY_ID), any(), anyString()))
+                .thenAnswer(inv -> sumWorkers(inv.getArgument(1),
+                        r -> r.getWorkType().equals(inv.getArgument(2))));
+    }
+
+    // ==================== 度量计算 ====================
+
+    @Test
+    @DisplayName("UT-ARS-001: 整日构建拆分正常/加班工时并统计迟到、早退和异常")
+    void buildDayComputesMeasures() {
+        users.put(1L, user(1L, "张三", "加工部", "切割工"));
+        users.put(2L, user(2L, "李四", "加工部", null));
+        when(userRepository.findAllById(any())).thenReturn(new ArrayList<>(users.values()));
+
+        List<TimeClockRecord> dayRecords = List.of(
+                // 10 小时, 迟到
+                record(1L, DAY, LocalTime.of(9, 15), LocalTime.of(19, 15), 600, null),
+                // 3 小时, 早退 (异常: 不足4小时)
+                record(2L, DAY, LocalTime.of(8, 0), LocalTime.of(11, 0), 180, null),
+                // 13 小时 (异常: 超过12小时)
+                record(2L, DAY, LocalTime.of(6, 0), LocalTime.of(19, 0), 780, null));
+
+        List<AttendanceDailyRollup> rows = service.buildDay(FACTORY_ID, DAY, dayRecords);
+
+        AttendanceDailyRollup zhang = find(rows, AttendanceDailyRollup.DIMENSION_WORKER, "1");
+        assertThat(zhang.getDimensionLabel()).isEqualTo("张三");
+        assertThat(zhang.getWorkType()).isEqualTo("切割工");
+        assertThat(zhang.getTotalMinutes()).isEqualTo(600L);
+        assertThat(zhang.getRegularMinutes()).isEqualTo(480L);
+        assertThat(zhang.getOvertimeMinutes()).isEqualTo(120L);
+        assertThat(zhang.getLateCount()).isEqualTo(1L);
+        assertThat(zhang.getEarlyLeaveCount()).isZero();
+
+        AttendanceDailyRollup li = find(rows, AttendanceDailyRollup.DIMENSION_WORKER, "2");
+        assertThat(li.getWorkType()).isEqualTo(AttendanceRollupService.DEFAULT_WORK_TYPE);
+        assertThat(li.getRecordCount()).isEqualTo(2L);
+        assertThat(li.getRegularMinutes()).isEqualTo(180L + 480L);
+        assertThat(li.getOvertimeMinutes()).isEqualTo(300L);
+        assertThat(li.getEarlyLeaveCount()).isEqualTo(1L);
+        assertThat(li.getAbnormalCount()).isEqualTo(2L);
+
+        AttendanceDailyRollup dept = find(rows, AttendanceDailyRollup.DIMENSION_DEPARTMENT, "加工部");
+        assertThat(dept.getWorkerCount()).isEqualTo(2L);
+        assertThat(dept.getRecordCount()).isEqualTo(3L);
+        assertThat(dept.getTotalMinutes()).isEqualTo(1560L);
+        assertThat(find(rows, AttendanceDailyRollup.DIMENSION_WORK_TYPE, "切割工").getWorkerCount()).isEqualTo(1L);
+        assertThat(rows).hasSize(2 + 1 + 2);
+    }
+
+    // ==================== 增量维护 ====================
+
+    @Test
+    @DisplayName("UT-ARS-002: 员工换部门后刷新同时更新新旧部门行, 旧部门无人时删除")
+    void refreshMovesWorkerBetweenDepartments() {
+        users.put(1L, user(1L, "张三", "加工部", "切割工"));
+        users.put(2L, user(2L, "李四", "加工部", "切割工"));
+        records.put(key(1L, DAY), List.of(record(1L, DAY, LocalTime.of(8, 0), LocalTime.of(17, 30), 570, null)));
+        records.put(key(2L, DAY), List.of(record(2L, DAY, LocalTime.of(8, 0), LocalTime.of(16, 0), 480, null)));
+        service.onRecordChanged(FACTORY_ID, 1L, DAY);
+        service.onRecordChanged(FACTORY_ID, 2L, DAY);
+
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_DEPARTMENT, "加工部").getWorkerCount()).isEqualTo(2L);
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_DEPARTMENT, "加工部").getTotalMinutes()).isEqualTo(1050L);
+
+        users.get(2L).setDepartment("包装部");
+        service.refreshWorkerDay(FACTORY_ID, 2L, DAY);
+
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_DEPARTMENT, "加工部").getWorkerCount()).isEqualTo(1L);
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_DEPARTMENT, "加工部").getTotalMinutes()).isEqualTo(570L);
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_DEPARTMENT, "包装部").getTotalMinutes()).isEqualTo(480L);
+
+        users.get(1L).setDepartment("包装部");
+        service.refreshWorkerDay(FACTORY_ID, 1L, DAY);
+
+        assertThat(table).noneMatch(r -> "加工部".equals(r.getDimensionKey()));
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_DEPARTMENT, "包装部").getWorkerCount()).isEqualTo(2L);
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_WORK_TYPE, "切割工").getTotalMinutes()).isEqualTo(1050L);
+    }
+
+    @Test
+    @DisplayName("UT-ARS-003: 打卡改到其他日期后新旧两天的汇总都与原始记录一致")
+    void editToAnotherDateRefreshesBothDays() {
+        LocalDate nextDay = DAY.plusDays(1);
+        users.put(1L, user(1L, "张三", "加工部", null));
+        TimeClockRecord record = record(1L, DAY, LocalTime.of(8, 0), LocalTime.of(18, 0), 600, null);
+        records.put(key(1L, DAY), List.of(record));
+        service.onRecordChanged(FACTORY_ID, 1L, DAY);
+        assertThat(find(table, AttendanceDailyRollup.DIMENSION_WORKER, "1").getOvertimeMinutes()).isEqualTo(120L);
+
+        // 修正为次日, 工时改为 7 小时
+        records.remove(key(1L, DAY));
+        TimeClockRecord moved = record(1L, nextDay, LocalTime.of(8, 0), LocalTime.of(15, 0), 420, null);
+        records.put(key(1L, nextDay), List.of(moved));
+        service.onRecordChanged(FACTORY_ID, 1L, DAY, nextDay);
+
+        assertThat(table).noneMatch(r -> r.getRollupDate().equals(DAY));
+        AttendanceDailyRollup worker = table.stream()
+                .filter(r -> r.getRollupDate().equals(nextDay) && r.getDimension().equals(AttendanceDailyRollup.DIMENSION_WORKER))
+                .findFirst().orElseThrow();
+        assertThat(worker.getTotalMinutes()).isEqualTo(420L);
+        assertThat(worker.getOvertimeMinutes()).isZero();
+        assertThat(worker.getEarlyLeaveCount()).isEqualTo(1L);
+        assertThat(table).filteredOn(r -> r.getDimension().equals(AttendanceDailyRollup.DIMENSION_DEPARTMENT))
+                .singleElement()
+                .satisfies(r -> assertThat(r.getTotalMinutes()).isEqualTo(420L));
+    }
+
+    @Test
+    @DisplayName("UT-ARS-004: 汇总刷新失败不向打卡调用方抛出并计入失败数")
+    void refreshFailureIsContained() {
+        when(timeClockRecordRepository.findByFactoryIdAndUserIdAndClockDateBetween(anyString(), anyLong(), any(), any()))
+                .thenThrow(new IllegalStateException("db down"));
+
+        service.onRecordChanged(FACTORY_ID, 1L, DAY);
+
+        assertThat(service.getStats()).containsEntry("failures", 1L);
+        verify(rollupRepository, never()).save(any());
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private List<Object[]> sumWorkers(LocalDate date, Predicate<AttendanceDailyRollup> filter) {
+        long[] sums = new long[8];
+        table.stream()
+                .filter(r -> r.getRollupDate().equals(date) && r.getDimension().equals(AttendanceDailyRollup.DIMENSION_WORKER))
+                .filter(filter)
+                .forEach(r -> {
+                    sums[0]++;
+                    sums[1] += r.getRecordCount();
+                    sums[2] += r.getTotalMinutes();
+                    sums[3] += r.getRegularMinutes();
+                    sums[4] += r.getOvertimeMinutes();
+                    sums[5] += r.getLateCount();
+                    sums[6] += r.getEarlyLeaveCount();
+                    sums[7] += r.getAbnormalCount();
+                });
+        Object[] row = new Object[8];
+        for (int i = 0; i < 8; i++) {
+            row[i] = i == 0 || sums[0] > 0 ? (Object) sums[i] : null;
+        }
+        return Collections.singletonList(row);
+    }
+
+    private static AttendanceDailyRollup find(List<AttendanceDailyRollup> rows, String dimension, String key) {
+        return rows.stream()
+                .filter(r -> r.getDimension().equals(dimension) && Objects.equals(r.getDimensionKey(), key))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("missing rollup " + dimension + "/" + key));
+    }
+
+    private static String key(Long userId, LocalDate date) {
+        return userId + "@" + date;
+    }
+
+    private static User user(Long id, String name, String department, String position) {
+        User user = new User();
+        user.setId(id);
+        user.setFullName(name);
+        user.setDepartment(department);
+        user.setPosition(position);
+        return user;
+    }
+
+    private static TimeClockRecord record(Long userId, LocalDate date, LocalTime in, LocalTime out,
+                                          int minutes, String attendanceStatus) {
+        return TimeClockRecord.builder()
+                .factoryId(FACTORY_ID)
+                .userId(userId)
+                .clockDate(date)
+                .clockInTime(date.atTime(in))
+                .clockOutTime(date.atTime(out))
+                .workDurationMinutes(minutes)
+                .attendanceStatus(attendanceStatus)
+                .build();
+    }
+}
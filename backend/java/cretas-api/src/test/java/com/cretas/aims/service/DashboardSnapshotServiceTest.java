@@ -0,0 +1,268 @@
+package com.cretas.aims.service;
+
+import com.cretas.aims.entity.FactoryEquipment;
+import com.cretas.aims.entity.MaterialBatch;
+import com.cretas.aims.service.DashboardSnapshotService.Section;
+import com.cretas.aims.service.DashboardSnapshotService.Snapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 仪表盘快照服务测试
+ *
+ * 分区计算函数用计数器代替, 时钟可手动推进, 校验快照命中、按分区作废、
+ * 事务提交后生效、计算期间写入、过期与跨天、并发单次计算以及后台刷新。
+ *
+ * @author Cretas Team
+ * @since 2026-01-30
+ */
+@DisplayName("DashboardSnapshotService - 仪表盘快照测试")
+class DashboardSnapshotServiceTest {
+
+    private static final String FACTORY_ID = "F001";
+    private static final String OTHER_FACTORY_ID = "F002";
+
+    private MutableClock clock;
+    private DashboardSnapshotService service;
+    private final Map<Section, AtomicInteger> loadCounts = new EnumMap<>(Section.class);
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(LocalDateTime.of(2026, 1, 30, 10, 0));
+        service = new DashboardSnapshotService(300, 10, 60, 120, clock);
+        for (Section section : Section.values()) {
+            AtomicInteger counter = new AtomicInteger();
+            loadCounts.put(section, counter);
+            service.registerLoader(section, factoryId -> factoryId + ":" + section + ":" + counter.incrementAndGet());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private int totalLoads() {
+        return loadCounts.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    private static MaterialBatch materialBatch(String factoryId) {
+        MaterialBatch batch = new MaterialBatch();
+        batch.setFactoryId(factoryId);
+        return batch;
+    }
+
+    @Test
+    @DisplayName("UT-DSS-001: 快照新鲜时重复读取不再计算")
+    void testFreshSnapshotIsServedWithoutLoading() {
+        Snapshot first = service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads()).isEqualTo(Section.values().length);
+        assertThat((String) first.get(Section.FINANCE)).isEqualTo("F001:FINANCE:1");
+
+        for (int i = 0; i < 100; i++) {
+            Snapshot again = service.getSnapshot(FACTORY_ID);
+            assertThat(again.getVersion()).isEqualTo(first.getVersion());
+        }
+        assertThat(totalLoads()).isEqualTo(Section.values().length);
+        assertThat(service.getStatistics().get("hits")).isEqualTo(800L);
+    }
+
+    @Test
+    @DisplayName("UT-DSS-002: 实体写入只重算受影响分区，其他工厂不受影响")
+    void testEntityChangeInvalidatesOnlyAffectedSections() {
+        Snapshot before = service.getSnapshot(FACTORY_ID);
+        service.getSnapshot(OTHER_FACTORY_ID);
+        int loadsBefore = totalLoads();
+
+        service.onEntityChanged(materialBatch(FACTORY_ID));
+        Snapshot after = service.getSnapshot(FACTORY_ID);
+        service.getSnapshot(OTHER_FACTORY_ID);
+
+        assertThat(totalLoads() - loadsBefore).isEqualTo(2);
+        assertThat((String) after.get(Section.INVENTORY)).endsWith(":3");
+        assertThat((String) after.get(Section.ALERTS)).endsWith(":3");
+        assertThat((String) after.get(Section.PRODUCTION)).isEqualTo(before.get(Section.PRODUCTION));
+        assertThat(after.getVersion()).isGreaterThan(before.getVersion());
+        assertThat(after.getSections().get(Section.PRODUCTION).getVersion())
+                .isEqualTo(before.getSections().get(Section.PRODUCTION).getVersion());
+    }
+
+    @Test
+    @DisplayName("UT-DSS-003: 事务内写入在提交后才作废，回滚不作废")
+    void testInvalidationWaitsForCommit() {
+        service.getSnapshot(FACTORY_ID);
+        int loadsBefore = totalLoads();
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.onEntityChanged(materialBatch(FACTORY_ID));
+        service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads()).isEqualTo(loadsBefore);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // 回滚: 不触发 afterCommit
+        service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads()).isEqualTo(loadsBefore);
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads()).isEqualTo(loadsBefore + 2);
+    }
+
+    @Test
+    @DisplayName("UT-DSS-004: 计算期间发生的写入使结果保持失效")
+    void testWriteDuringComputeKeepsSectionStale() {
+        AtomicInteger equipmentLoads = new AtomicInteger();
+        service.registerLoader(Section.EQUIPMENT, factoryId -> {
+            if (equipmentLoads.incrementAndGet() == 1) {
+                FactoryEquipment equipment = new FactoryEquipment();
+                equipment.setFactoryId(factoryId);
+                service.onEntityChanged(equipment);
+            }
+            return equipmentLoads.get();
+        });
+
+        Snapshot first = service.getSnapshot(FACTORY_ID);
+        assertThat((Integer) first.get(Section.EQUIPMENT)).isEqualTo(1);
+
+        Snapshot second = service.getSnapshot(FACTORY_ID);
+        assertThat((Integer) second.get(Section.EQUIPMENT)).isEqualTo(2);
+        service.getSnapshot(FACTORY_ID);
+        assertThat(equipmentLoads.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("UT-DSS-005: 超过最大存活时间或跨天后重新计算")
+    void testMaxAgeAndDayRollover() {
+        service.getSnapshot(FACTORY_ID);
+        clock.advance(Duration.ofSeconds(299));
+        service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads()).isEqualTo(8);
+
+        clock.advance(Duration.ofSeconds(2));
+        service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads()).isEqualTo(16);
+
+        clock.set(LocalDateTime.of(2026, 1, 30, 23, 59, 59));
+        service.getSnapshot(FACTORY_ID);
+        clock.advance(Duration.ofSeconds(2));
+        int loadsBefore = totalLoads();
+        service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads() - loadsBefore).isEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("UT-DSS-006: 并发打开仪表盘时同一分区只计算一次")
+    void testConcurrentReadsLoadOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger trendLoads = new AtomicInteger();
+        service.registerLoader(Section.TREND, factoryId -> {
+            trendLoads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "trend";
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Snapshot>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(pool.submit(() -> service.getSnapshot(FACTORY_ID)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Snapshot> future : futures) {
+                assertThat((String) future.get(5, TimeUnit.SECONDS).get(Section.TREND)).isEqualTo("trend");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(trendLoads.get()).isEqualTo(1);
+        assertThat(loadCounts.get(Section.PRODUCTION).get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("UT-DSS-007: 后台预刷新活跃工厂的失效分区并清理长期未访问的工厂")
+    void testBackgroundRefreshAndEviction() {
+        service.getSnapshot(FACTORY_ID);
+        service.invalidate(FACTORY_ID, Section.QUALITY);
+        service.maintain();
+        assertThat(loadCounts.get(Section.QUALITY).get()).isEqualTo(2);
+        assertThat(service.getStatistics().get("backgroundLoads")).isEqualTo(1L);
+
+        // 请求直接命中后台刷新的结果
+        int loadsBefore = totalLoads();
+        service.getSnapshot(FACTORY_ID);
+        assertThat(totalLoads()).isEqualTo(loadsBefore);
+
+        // 超过活跃窗口不再预刷新, 超过空闲窗口被清理
+        clock.advance(Duration.ofMinutes(11));
+        service.maintain();
+        assertThat(totalLoads()).isEqualTo(loadsBefore);
+        clock.advance(Duration.ofMinutes(50));
+        service.maintain();
+        assertThat(service.getStatistics().get("factories")).isEqualTo(0);
+    }
+
+    /**
+     * 可手动推进的时钟
+     */
+    private static final class MutableClock extends Clock {
+        private final ZoneId zone = ZoneId.systemDefault();
+        private volatile Instant now;
+
+        private MutableClock(LocalDateTime start) {
+            set(start);
+        }
+
+        private void set(LocalDateTime time) {
+            now = time.atZone(zone).toInstant();
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.cretas.aims.service;
+
+import com.cretas.aims.entity.PayrollRecord;
+import com.cretas.aims.entity.PieceRateRule;
+import com.cretas.aims.entity.User;
+import com.cretas.aims.entity.WorkerDailyEfficiency;
+import com.cretas.aims.repository.PayrollRecordRepository;
+import com.cretas.aims.repository.PieceRateRuleRepository;
+import com.cretas.aims.repository.UserRepository;
+import com.cretas.aims.repository.WorkerDailyEfficiencyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 工资单批量生成引擎测试
+ *
+ * 合成工厂数据 (效率记录/规则/工人) 由内存 mock 提供, 校验批量结果与逐个生成一致,
+ * 断点续跑, 以及 500/2000/10000 工人规模下的查询次数对比。
+ *
+ * @author Cretas Team
+ * @since 2026-01-29
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("PayrollBatchEngine - 工资单批量生成引擎测试")
+class PayrollBatchEngineTest {
+
+    private static final String FACTORY_ID = "F001";
+    private static final LocalDate PERIOD_START = LocalDate.of(2026, 1, 1);
+    private static final LocalDate PERIOD_END = LocalDate.of(2026, 1, 31);
+    private static final String[] STAGES = {"SLICING", "PACKAGING", "FREEZING"};
+
+    @Mock
+    private PayrollRecordRepository payrollRecordRepository;
+    @Mock
+    private PieceRateRuleRepository pieceRateRuleRepository;
+    @Mock
+    private WorkerDailyEfficiencyRepository efficiencyRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PayrollBatchEngine engine;
+
+    /** 合成数据 */
+    private final List<WorkerDailyEfficiency> rows = new ArrayList<>();
+    private final Map<Long, User> users = new HashMap<>();
+    private final List<PieceRateRule> rules = new ArrayList<>();
+    /** 已写入的工资记录 (模拟 payroll_records 表) */
+    private final List<PayrollRecord> written = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger queryCount = new AtomicInteger();
+    /** 工厂本周期已有工资记录的平均效率 (avgEfficiencyByPeriod 返回值) */
+    private volatile BigDecimal periodBaseline;
+
+    @BeforeEach
+    void setUp() {
+        engine = new PayrollBatchEngine(payrollRecordRepository, pieceRateRuleRepository,
+                efficiencyRepository, userRepository, jdbcTemplate, transactionManager, 200, 4, 100);
+        rules.add(rule(11L, "SLICING", 10, "0.50", "0.60"));
+        rules.add(rule(12L, "PACKAGING", 5, "0.30", "0.40"));
+        rules.add(rule(13L, null, 0, "0.20", null));
+        rules.sort((a, b) -> b.getPriority() - a.getPriority());
+        stubRepositories();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    private static PieceRateRule rule(Long id, String stage, int priority, String rate1, String rate2) {
+        return PieceRateRule.builder()
+                .id(id).factoryId(FACTORY_ID).processStageType(stage).name("规则" + id)
+                .tier1Threshold(rate2 != null ? 300 : 0).tier1Rate(new BigDecimal(rate1))
+                .tier2Threshold(rate2 != null ? 100000 : null).tier2Rate(rate2 != null ? new BigDecimal(rate2) : null)
+                .priority(priority)
+                .build();
+    }
+
+    private void generateFactory(int workerCount, long seed) {
+        Random random = new Random(seed);
+        for (long w = 1; w <= workerCount; w++) {
+            User user = new User();
+            user.setId(w);
+            user.setFullName("工人" + w);
+            if (w % 7 != 0) {
+                user.setMonthlySalary(new BigDecimal(2000 + random.nextInt(2000)));
+            }
+            if (w % 5 != 0) {
+                user.setHourlyRate(new BigDecimal(15 + random.nextInt(10)));
+            }
+            users.put(w, user);
+            int days = 5 + random.nextInt(20);
+            for (int d = 0; d < days; d++) {
+                rows.add(WorkerDailyEfficiency.builder()
+                        .factoryId(FACTORY_ID)
+                        .workerId(w)
+                        .workDate(PERIOD_START.plusDays(d))
+                        .processStageType(random.nextInt(10) == 0 ? null : STAGES[random.nextInt(STAGES.length)])
+                        .totalPieceCount(w % 11 == 0 ? 0 : 20 + random.nextInt(80))
+                        .effectiveWorkMinutes(420 + random.nextInt(150))
+                        .build());
+            }
+        }
+    }
+
+    private void stubRepositories() {
+        when(efficiencyRepository.aggregateByWorkerAndStage(eq(FACTORY_ID), any(), any())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            Map<List<Object>, long[]> groups = new LinkedHashMap<>();
+            for (WorkerDailyEfficiency e : rows) {
+                long[] sums = groups.computeIfAbsent(java.util.Arrays.asList(e.getWorkerId(), e.getProcessStageType()),
+                        k -> new long[3]);
+                sums[0]++;
+                sums[1] += e.getTotalPieceCount();
+                sums[2] += e.getEffectiveWorkMinutes();
+            }
+            List<Object[]> result = new ArrayList<>();
+            groups.forEach((k, v) -> result.add(new Object[]{k.get(0), k.get(1), v[0], v[1], v[2]}));
+            return result;
+        });
+        when(efficiencyRepository.findByWorkerAndDateRange(eq(FACTORY_ID), anyLong(), any(), any())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            Long workerId = inv.getArgument(1);
+            return rows.stream().filter(e -> e.getWorkerId().equals(workerId)).collect(Collectors.toList());
+        });
+        when(payrollRecordRepository.findWorkerEfficienciesByPeriod(eq(FACTORY_ID), any(), any())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            synchronized (written) {
+                return written.stream()
+                        .map(p -> new Object[]{p.getWorkerId(), p.getAverageEfficiency()})
+                        .collect(Collectors.toList());
+            }
+        });
+        when(payrollRecordRepository.existsByFactoryIdAndWorkerIdAndPeriodStartAndPeriodEnd(
+                eq(FACTORY_ID), anyLong(), any(), any())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            return false;
+        });
+        when(payrollRecordRepository.avgEfficiencyByPeriod(eq(FACTORY_ID), any(), any())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            return periodBaseline;
+        });
+        when(payrollRecordRepository.save(any(PayrollRecord.class))).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            PayrollRecord p = inv.getArgument(0);
+            p.calculateTotalWage();
+            return p;
+        });
+        when(pieceRateRuleRepository.findEffectiveRules(eq(FACTORY_ID), any())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            return rules;
+        });
+        when(pieceRateRuleRepository.findEffectiveRulesByProcessStage(eq(FACTORY_ID), anyString(), any())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            String stage = inv.getArgument(1);
+            return rules.stream().filter(r -> stage.equals(r.getProcessStageType())).collect(Collectors.toList());
+        });
+        when(userRepository.findById(anyLong())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            return Optional.ofNullable(users.get((Long) inv.getArgument(0)));
+        });
+        when(userRepository.findAllById(anyIterable())).thenAnswer(inv -> {
+            queryCount.incrementAndGet();
+            List<User> found = new ArrayList<>();
+            for (Long id : (Iterable<Long>) inv.getArgument(0)) {
+                if (users.containsKey(id)) {
+                    found.add(users.get(id));
+                }
+            }
+            return found;
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(inv -> {
+                    queryCount.incrementAndGet();
+                    Collection<PayrollRecord> batch = inv.getArgument(1);
+                    written.addAll(batch);
+                    return new int[][]{};
+                });
+    }
+
+    private WageCalculationService legacyService() {
+        return new WageCalculationService(pieceRateRuleRepository, payrollRecordRepository,
+                efficiencyRepository, userRepository, engine);
+    }
+
+    @Test
+    @DisplayName("UT-PBE-001: 批量结果与逐个生成工资单逐字段一致")
+    void testMatchesPerWorkerGeneration() {
+        generateFactory(300, 42L);
+        users.remove(299L);
+        periodBaseline = new BigDecimal("55.00");
+
+        PayrollBatchEngine.BatchResult result = engine.run(FACTORY_ID, PERIOD_START, PERIOD_END);
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.getTotalWorkers()).isEqualTo(300);
+        assertThat(result.getGenerated()).isEqualTo(299);
+        assertThat(result.getMissingWorkers()).isEqualTo(1);
+        assertThat(result.getPartitions()).isEqualTo(2);
+        assertThat(written).hasSize(299);
+
+        WageCalculationService service = legacyService();
+        for (PayrollRecord batch : new ArrayList<>(written)) {
+            PayrollRecord single = service.generatePayroll(FACTORY_ID, batch.getWorkerId(), PERIOD_START, PERIOD_END);
+            assertThat(batch)
+                    .usingRecursiveComparison()
+                    .ignoringFields("createdAt", "updatedAt")
+                    .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                    .isEqualTo(single);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-PBE-002: 分区失败后重新执行只补齐缺失工人, 结果与一次完成一致")
+    void testCheckpointRestart() {
+        generateFactory(1000, 7L);
+
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(inv -> {
+            if (calls.incrementAndGet() == 3) {
+                throw new IllegalStateException("connection reset");
+            }
+            written.addAll(inv.<Collection<PayrollRecord>>getArgument(1));
+            return new int[][]{};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        PayrollBatchEngine.BatchResult first = engine.run(FACTORY_ID, PERIOD_START, PERIOD_END);
+        assertThat(first.isComplete()).isFalse();
+        assertThat(first.getFailedPartitions()).isEqualTo(1);
+        assertThat(written).hasSize(800);
+
+        PayrollBatchEngine.BatchResult second = engine.run(FACTORY_ID, PERIOD_START, PERIOD_END);
+        assertThat(second.isComplete()).isTrue();
+        assertThat(second.getSkippedWorkers()).isEqualTo(800);
+        assertThat(second.getGenerated()).isEqualTo(200);
+        assertThat(written).hasSize(1000);
+        assertThat(written.stream().map(PayrollRecord::getWorkerId).distinct().count()).isEqualTo(1000);
+
+        // 与一次性完整生成的结果一致 (评级基准同为本周期已有工资记录的平均效率)
+        Map<Long, PayrollRecord> resumed = written.stream()
+                .collect(Collectors.toMap(PayrollRecord::getWorkerId, p -> p));
+        written.clear();
+        doAnswer(inv -> {
+            written.addAll(inv.<Collection<PayrollRecord>>getArgument(1));
+            return new int[][]{};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        engine.run(FACTORY_ID, PERIOD_START, PERIOD_END);
+        for (PayrollRecord p : written) {
+            PayrollRecord r = resumed.get(p.getWorkerId());
+            assertThat(r.getTotalWage()).isEqualByComparingTo(p.getTotalWage());
+            assertThat(r.getEfficiencyRating()).isEqualTo(p.getEfficiencyRating());
+        }
+
+        // 全部完成后再次执行不写库
+        int before = calls.get();
+        PayrollBatchEngine.BatchResult third = engine.run(FACTORY_ID, PERIOD_START, PERIOD_END);
+        assertThat(third.getGenerated()).isZero();
+        assertThat(third.getSkippedWorkers()).isEqualTo(1000);
+        assertThat(calls.get()).isEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("UT-PBE-003: 规则匹配与主要工序选择")
+    void testRuleResolution() {
+        assertThat(PayrollBatchEngine.resolveRule(rules, "PACKAGING").getId()).isEqualTo(12L);
+        assertThat(PayrollBatchEngine.resolveRule(rules, "THAWING").getId()).isEqualTo(11L);
+        assertThat(PayrollBatchEngine.resolveRule(rules, null).getId()).isEqualTo(11L);
+        assertThat(PayrollBatchEngine.resolveRule(Collections.emptyList(), "SLICING")).isNull();
+
+        PayrollBatchEngine.WorkerPeriodAggregate aggregate = new PayrollBatchEngine.WorkerPeriodAggregate();
+        aggregate.add("SLICING", 3, 300, 1440);
+        aggregate.add("PACKAGING", 3, 200, 1440);
+        aggregate.add(null, 5, 100, 2400);
+        assertThat(aggregate.mainProcessStage()).isEqualTo("PACKAGING");
+        assertThat(aggregate.getRecordCount()).isEqualTo(11);
+        assertThat(aggregate.averageEfficiency()).isEqualByComparingTo("6.82");
+
+        assertThat(PayrollBatchEngine.determineEfficiencyRating(new BigDecimal("72"), null)).isEqualTo("A");
+        assertThat(PayrollBatchEngine.determineEfficiencyRating(new BigDecimal("47"), BigDecimal.ZERO)).isEqualTo("D");
+    }
+
+    @Test
+    @DisplayName("UT-PBE-004: 同一周期并发执行被拒绝")
+    void testConcurrentRunRejected() throws Exception {
+        generateFactory(10, 3L);
+        java.util.concurrent.CountDownLatch entered = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        doAnswer(inv -> {
+            entered.countDown();
+            release.await();
+            return Collections.emptyList();
+        }).when(payrollRecordRepository).findWorkerEfficienciesByPeriod(eq(FACTORY_ID), any(), any());
+
+        Thread t = new Thread(() -> engine.run(FACTORY_ID, PERIOD_START, PERIOD_END));
+        t.start();
+        entered.await();
+        try {
+            assertThatThrownBy(() -> engine.run(FACTORY_ID, PERIOD_START, PERIOD_END))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            release.countDown();
+            t.join();
+        }
+    }
+
+    @Test
+    @DisplayName("UT-PBE-005: 500/2000/10000 工人规模查询次数对比")
+    void testBenchmark() {
+        for (int workers : new int[]{500, 2000, 10000}) {
+            rows.clear();
+            users.clear();
+            written.clear();
+            generateFactory(workers, workers);
+
+            // 逐个生成 (原实现: 每个工人 exists + 用户 + 效率 + 规则 + 平均效率 + save)
+            WageCalculationService service = legacyService();
+            queryCount.set(0);
+            for (long w = 1; w <= workers; w++) {
+                service.generatePayroll(FACTORY_ID, w, PERIOD_START, PERIOD_END);
+            }
+            int legacyQueries = queryCount.get();
+
+            queryCount.set(0);
+            PayrollBatchEngine.BatchResult result = engine.run(FACTORY_ID, PERIOD_START, PERIOD_END);
+            int batchQueries = queryCount.get();
+
+            assertThat(result.getGenerated()).isEqualTo(workers);
+            assertThat(legacyQueries).isGreaterThanOrEqualTo(workers * 5);
+            // 集合加载查询次数: 聚合 + 断点 + 规则 + 评级基准 + 每1000工人一次用户查询 + 每分区一次批量写入
+            int expected = 4 + (workers + 999) / 1000 + (workers + 199) / 200;
+            assertThat(batchQueries).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-PBE-006: 同一工人同一周期, 单个生成与批量生成结果一致 (评级基准取工厂已有工资记录)")
+    void testSingleAndBatchUseSameBaseline() {
+        User user = new User();
+        user.setId(1L);
+        user.setFullName("工人1");
+        user.setMonthlySalary(new BigDecimal("3100"));
+        user.setHourlyRate(new BigDecimal("20"));
+        users.put(1L, user);
+        for (int d = 0; d < 10; d++) {
+            rows.add(WorkerDailyEfficiency.builder()
+                    .factoryId(FACTORY_ID).workerId(1L).workDate(PERIOD_START.plusDays(d))
+                    .processStageType("SLICING").totalPieceCount(540).effectiveWorkMinutes(540)
+                    .build());
+        }
+        // 个人效率 60 件/小时, 工厂已有工资记录平均 50 件/小时 -> 120% 评级 A
+        periodBaseline = new BigDecimal("50.00");
+
+        PayrollRecord single = legacyService().generatePayroll(FACTORY_ID, 1L, PERIOD_START, PERIOD_END);
+        engine.run(FACTORY_ID, PERIOD_START, PERIOD_END);
+
+        assertThat(written).hasSize(1);
+        assertThat(single.getEfficiencyRating()).isEqualTo("A");
+        assertThat(written.get(0))
+                .usingRecursiveComparison()
+                .ignoringFields("createdAt", "updatedAt")
+                .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(single);
+    }
+}
@@ -0,0 +1,318 @@
+package com.cretas.aims.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 人员与工时聚合查询测试
+ *
+ * 使用内嵌 H2 (MySQL 模式) 建最小表结构并生成 100 / 20000 名工人的打卡数据,
+ * 校验数据库端聚合与逐条计算一致、窗口函数排行与堆选择一致、按工厂缓存,
+ * 以及工人规模增长 200 倍时返回行数与缓存命中响应时间保持不变。
+ *
+ * @author Cretas Team
+ * @since 2026-02-02
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("PersonnelAggregateService - 人员与工时聚合查询测试")
+class PersonnelAggregateServiceTest {
+
+    private static final String SMALL_FACTORY = "F100";
+    private static final String LARGE_FACTORY = "F20K";
+    private static final LocalDate RANGE_START = LocalDate.of(2026, 1, 1);
+    private static final int RANGE_DAYS = 10;
+    private static final LocalDateTime START = RANGE_START.atStartOfDay();
+    private static final LocalDateTime END = RANGE_START.plusDays(RANGE_DAYS).atStartOfDay();
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private PersonnelAggregateService service;
+
+    /** 小工厂的合成数据, 用于逐条计算期望值 */
+    private final List<UserRow> smallUsers = new ArrayList<>();
+    private final List<ClockRow> smallRecords = new ArrayList<>();
+
+    @BeforeAll
+    void createDatabase() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:personnel_aggregate;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, factory_id VARCHAR(50) NOT NULL, " +
+                "username VARCHAR(50), full_name VARCHAR(50), department VARCHAR(50), is_active BOOLEAN NOT NULL, " +
+                "deleted_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE time_clock_records (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "factory_id VARCHAR(50) NOT NULL, user_id BIGINT NOT NULL, clock_date DATE NOT NULL, " +
+                "clock_in_time TIMESTAMP, work_duration INT, deleted_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE INDEX idx_tcr_factory_clock_in ON time_clock_records (factory_id, clock_in_time)");
+        jdbcTemplate.execute("CREATE TABLE production_batches (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "factory_id VARCHAR(50) NOT NULL, quantity DECIMAL(10, 2) NOT NULL, status VARCHAR(20) NOT NULL, " +
+                "created_at TIMESTAMP NOT NULL, deleted_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE factory_equipment (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "factory_id VARCHAR(50) NOT NULL, status VARCHAR(20) NOT NULL, deleted_at TIMESTAMP)");
+
+        generateFactory(SMALL_FACTORY, 1, 100, 11L, smallUsers, smallRecords);
+        generateFactory(LARGE_FACTORY, 1_000_001, 20_000, 12L, null, null);
+    }
+
+    @AfterAll
+    void dropDatabase() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = new PersonnelAggregateService(jdbcTemplate, 30, 1000, 100);
+    }
+
+    /**
+     * 生成工厂数据: 每 13 人 1 名离职, 每 17 人 1 名已删除, 每 11 人 1 名无部门;
+     * 范围内每天约 80% 出勤, 另有范围外、已删除以及其他工厂 ID 的干扰记录
+     */
+    private void generateFactory(String factoryId, long firstUserId, int workers, long seed,
+                                 List<UserRow> userSink, List<ClockRow> recordSink) {
+        Random random = new Random(seed);
+        List<Object[]> users = new ArrayList<>(workers);
+        List<Object[]> records = new ArrayList<>(workers * RANGE_DAYS);
+        for (int w = 0; w < workers; w++) {
+            long userId = firstUserId + w;
+            boolean active = w % 13 != 5;
+            boolean deleted = w % 17 == 3;
+            String department = w % 11 == 0 ? null : "D" + (w % 7);
+            String fullName = w % 19 == 0 ? null : "工人" + w;
+            users.add(new Object[]{userId, factoryId, "u" + userId, fullName, department, active,
+                    deleted ? Timestamp.valueOf(START) : null});
+            if (userSink != null) {
+                userSink.add(new UserRow(userId, fullName, "u" + userId, department, active, deleted));
+            }
+            for (int d = -1; d <= RANGE_DAYS; d++) {
+                if (random.nextInt(10) >= 8) {
+                    continue;
+                }
+                LocalDateTime clockIn = RANGE_START.plusDays(d).atTime(8, random.nextInt(60));
+                Integer minutes = random.nextInt(20) == 0 ? null : 300 + random.nextInt(400);
+                boolean recordDeleted = random.nextInt(50) == 0;
+                records.add(new Object[]{factoryId, userId, clockIn.toLocalDate(), Timestamp.valueOf(clockIn),
+                        minutes, recordDeleted ? Timestamp.valueOf(clockIn) : null});
+                if (recordSink != null) {
+                    recordSink.add(new ClockRow(userId, clockIn, minutes, recordDeleted));
+                }
+            }
+            // 同一用户ID 挂在其他工厂下的记录不应计入
+            if (w % 23 == 0) {
+                records.add(new Object[]{"OTHER", userId, RANGE_START, Timestamp.valueOf(START.plusHours(9)), 600, null});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, factory_id, username, full_name, department, is_active, " +
+                "deleted_at) VALUES (?, ?, ?, ?, ?, ?, ?)", users);
+        jdbcTemplate.batchUpdate("INSERT INTO time_clock_records (factory_id, user_id, clock_date, clock_in_time, " +
+                "work_duration, deleted_at) VALUES (?, ?, ?, ?, ?, ?)", records);
+    }
+
+    // ==================== 正确性 ====================
+
+    @Test
+    @DisplayName("人员统计与逐条计算一致")
+    void summaryMatchesRecordByRecordComputation() {
+        Set<Long> factoryUsers = smallUsers.stream().filter(u -> !u.deleted).map(u -> u.id).collect(Collectors.toSet());
+        List<ClockRow> inRange = smallRecords.stream()
+                .filter(r -> !r.deleted && factoryUsers.contains(r.userId))
+                .filter(r -> !r.clockIn.isBefore(START) && r.clockIn.isBefore(END))
+                .collect(Collectors.toList());
+        long expectedMinutes = inRange.stream().mapToLong(r -> r.minutes != null ? r.minutes : 0).sum();
+        Set<Long> present = inRange.stream().map(r -> r.userId).collect(Collectors.toSet());
+        long departments = smallUsers.stream().filter(u -> !u.deleted && u.department != null)
+                .map(u -> u.department).distinct().count();
+
+        PersonnelAggregateService.PersonnelSummary summary = service.getPersonnelSummary(SMALL_FACTORY, START, END);
+
+        assertThat(summary.getTotalEmployees()).isEqualTo(factoryUsers.size());
+        assertThat(summary.getPresentEmployees()).isEqualTo(present.size());
+        assertThat(summary.getActiveDepartments()).isEqualTo((int) departments);
+        assertThat(summary.getTotalWorkMinutes()).isEqualTo(expectedMinutes);
+    }
+
+    @Test
+    @DisplayName("工时排行与逐条计算一致 (仅在职工人, 同工时按用户ID)")
+    void rankingMatchesRecordByRecordComputation() {
+        Map<Long, UserRow> activeUsers = new HashMap<>();
+        smallUsers.stream().filter(u -> u.active && !u.deleted).forEach(u -> activeUsers.put(u.id, u));
+        Map<Long, long[]> perUser = new HashMap<>();
+        for (ClockRow r : smallRecords) {
+            if (r.deleted || !activeUsers.containsKey(r.userId) || r.clockIn.isBefore(START) || !r.clockIn.isBefore(END)) {
+                continue;
+            }
+            long[] acc = perUser.computeIfAbsent(r.userId, k -> new long[3]);
+            int minutes = r.minutes != null ? r.minutes : 0;
+            acc[0] += minutes;
+            acc[1] += Math.max(0, minutes - PersonnelAggregateService.STANDARD_WORK_MINUTES);
+            acc[2]++;
+        }
+        List<Long> expectedOrder = perUser.keySet().stream()
+                .sorted(Comparator.<Long>comparingLong(id -> perUser.get(id)[0]).reversed().thenComparing(id -> id))
+                .limit(10)
+                .collect(Collectors.toList());
+
+        List<PersonnelAggregateService.WorkHoursAggregate> top = service.getWorkHoursTop(SMALL_FACTORY, START, END, 10);
+
+        assertThat(top).extracting(PersonnelAggregateService.WorkHoursAggregate::getUserId)
+                .containsExactlyElementsOf(expectedOrder);
+        for (PersonnelAggregateService.WorkHoursAggregate row : top) {
+            long[] acc = perUser.get(row.getUserId());
+            UserRow user = activeUsers.get(row.getUserId());
+            assertThat(row.getWorkMinutes()).isEqualTo(acc[0]);
+            assertThat(row.getOvertimeMinutes()).isEqualTo(acc[1]);
+            assertThat(row.getAttendanceDays()).isEqualTo((int) acc[2]);
+            assertThat(row.getFullName()).isEqualTo(user.fullName);
+            assertThat(row.getDepartment()).isEqualTo(user.department);
+        }
+    }
+
+    @Test
+    @DisplayName("窗口函数排行与小顶堆选择结果一致")
+    void windowRankingMatchesHeapSelection() {
+        List<PersonnelAggregateService.WorkHoursAggregate> window = service.queryTop(LARGE_FACTORY, START, END, 50);
+        List<PersonnelAggregateService.WorkHoursAggregate> heap = service.queryTopByHeap(LARGE_FACTORY, START, END, 50);
+
+        assertThat(window).hasSize(50);
+        assertThat(heap).extracting(PersonnelAggregateService.WorkHoursAggregate::getUserId)
+                .containsExactlyElementsOf(window.stream()
+                        .map(PersonnelAggregateService.WorkHoursAggregate::getUserId).collect(Collectors.toList()));
+        assertThat(heap).extracting(PersonnelAggregateService.WorkHoursAggregate::getWorkMinutes)
+                .isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    @DisplayName("首页计数: 今日已完成批次产量与设备数")
+    void dashboardCounts() {
+        LocalDate day = LocalDate.of(2026, 1, 5);
+        LocalDateTime noon = day.atTime(12, 0);
+        List<Object[]> batches = new ArrayList<>();
+        batches.add(new Object[]{"FDASH", "120.50", "COMPLETED", Timestamp.valueOf(noon), null});
+        batches.add(new Object[]{"FDASH", "80.00", "COMPLETED", Timestamp.valueOf(noon.plusHours(3)), null});
+        batches.add(new Object[]{"FDASH", "999.00", "IN_PROGRESS", Timestamp.valueOf(noon), null});
+        batches.add(new Object[]{"FDASH", "999.00", "COMPLETED", Timestamp.valueOf(noon.minusDays(1)), null});
+        batches.add(new Object[]{"FDASH", "999.00", "COMPLETED", Timestamp.valueOf(noon), Timestamp.valueOf(noon)});
+        jdbcTemplate.batchUpdate("INSERT INTO production_batches (factory_id, quantity, status, created_at, deleted_at) " +
+                "VALUES (?, ?, ?, ?, ?)", batches);
+        jdbcTemplate.update("INSERT INTO factory_equipment (factory_id, status) VALUES ('FDASH', 'RUNNING'), " +
+                "('FDASH', 'RUNNING'), ('FDASH', 'IDLE'), ('OTHER', 'RUNNING')");
+        jdbcTemplate.update("INSERT INTO users (id, factory_id, username, is_active) VALUES (9000001, 'FDASH', 'd1', TRUE)");
+
+        PersonnelAggregateService.DashboardCounts counts = service.getDashboardCounts("FDASH", day);
+
+        assertThat(counts.getTodayOutputKg()).isEqualTo(200.5);
+        assertThat(counts.getTotalBatches()).isEqualTo(4);
+        assertThat(counts.getTotalWorkers()).isEqualTo(1);
+        assertThat(counts.getActiveEquipment()).isEqualTo(2);
+        assertThat(counts.getTotalEquipment()).isEqualTo(3);
+    }
+
+    // ==================== 缓存 ====================
+
+    @Test
+    @DisplayName("按工厂缓存: 命中不查库, 不同 limit 共用排行, 作废后重新查询")
+    void resultsAreCachedPerFactory() {
+        service.getPersonnelSummary(SMALL_FACTORY, START, END);
+        service.getWorkHoursTop(SMALL_FACTORY, START, END, 10);
+        long afterFirst = service.getQueryCount();
+
+        service.getPersonnelSummary(SMALL_FACTORY, START, END);
+        List<PersonnelAggregateService.WorkHoursAggregate> top5 = service.getWorkHoursTop(SMALL_FACTORY, START, END, 5);
+        List<PersonnelAggregateService.WorkHoursAggregate> top10 = service.getWorkHoursTop(SMALL_FACTORY, START, END, 10);
+        assertThat(service.getQueryCount()).isEqualTo(afterFirst);
+        assertThat(top10.subList(0, 5)).extracting(PersonnelAggregateService.WorkHoursAggregate::getUserId)
+                .containsExactlyElementsOf(top5.stream()
+                        .map(PersonnelAggregateService.WorkHoursAggregate::getUserId).collect(Collectors.toList()));
+
+        // 其他工厂的作废不影响本工厂
+        service.invalidate(LARGE_FACTORY);
+        service.getPersonnelSummary(SMALL_FACTORY, START, END);
+        assertThat(service.getQueryCount()).isEqualTo(afterFirst);
+
+        service.invalidate(SMALL_FACTORY);
+        service.getPersonnelSummary(SMALL_FACTORY, START, END);
+        assertThat(service.getQueryCount()).isEqualTo(afterFirst + 1);
+    }
+
+    // ==================== 规模 ====================
+
+    @Test
+    @DisplayName("100 → 20000 名工人: 返回行数与数据库查询次数不变, 缓存命中不再查库")
+    void responseCostStaysFlatAsWorkforceGrows() {
+        int limit = 20;
+        Map<String, Long> coldQueries = new HashMap<>();
+        for (String factoryId : new String[]{SMALL_FACTORY, LARGE_FACTORY}) {
+            long before = service.getQueryCount();
+            service.getPersonnelSummary(factoryId, START, END);
+            List<PersonnelAggregateService.WorkHoursAggregate> top = service.getWorkHoursTop(factoryId, START, END, limit);
+            long afterCold = service.getQueryCount();
+            assertThat(top).hasSize(limit);
+            coldQueries.put(factoryId, afterCold - before);
+
+            for (int i = 0; i < 2000; i++) {
+                service.getPersonnelSummary(factoryId, START, END);
+                assertThat(service.getWorkHoursTop(factoryId, START, END, limit)).hasSize(limit);
+            }
+            // 缓存命中只复制前 limit 行, 与工人数无关
+            assertThat(service.getQueryCount()).isEqualTo(afterCold);
+        }
+
+        // 未命中时在数据库端聚合, 查询次数与工人数无关, 不会退化为逐行拉取
+        assertThat(coldQueries.get(LARGE_FACTORY)).isEqualTo(coldQueries.get(SMALL_FACTORY)).isEqualTo(2L);
+    }
+
+    // ==================== 合成数据 ====================
+
+    private static class UserRow {
+        final long id;
+        final String fullName;
+        final String username;
+        final String department;
+        final boolean active;
+        final boolean deleted;
+
+        UserRow(long id, String fullName, String username, String department, boolean active, boolean deleted) {
+            this.id = id;
+            this.fullName = fullName;
+            this.username = username;
+            this.department = department;
+            this.active = active;
+            this.deleted = deleted;
+        }
+    }
+
+    private static class ClockRow {
+        final long userId;
+        final LocalDateTime clockIn;
+        final Integer minutes;
+        final boolean deleted;
+
+        ClockRow(long userId, LocalDateTime clockIn, Integer minutes, boolean deleted) {
+            this.userId = userId;
+            this.clockIn = clockIn;
+            this.minutes = minutes;
+            this.deleted = deleted;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.cretas.aims.service.anomaly;
+
+import com.cretas.aims.entity.AlertThreshold;
+import com.cretas.aims.entity.ProductionAlert;
+import com.cretas.aims.entity.ProductionBatch;
+import com.cretas.aims.event.BatchCompletedEvent;
+import com.cretas.aims.event.ProductionAlertEvent;
+import com.cretas.aims.repository.AlertThresholdRepository;
+import com.cretas.aims.repository.IotDeviceDataRepository;
+import com.cretas.aims.repository.ProductionAlertRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 流式异常检测测试
+ *
+ * 覆盖在线统计量的正确性、静态/自适应规则、告警去重与限流, 回放吞吐,
+ * 以及服务层由阈值配置生成规则并写入告警、发布 ProductionAlertEvent。
+ *
+ * @author Cretas Team
+ * @since 2026-01-29
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("StreamingAnomalyDetector - 流式异常检测测试")
+class StreamingAnomalyDetectorTest {
+
+    private static final String FACTORY_ID = "F001";
+    private static final long T0 = 1_767_225_600_000L;
+
+    @Mock
+    private AlertThresholdRepository thresholdRepository;
+
+    @Mock
+    private ProductionAlertRepository alertRepository;
+
+    @Mock
+    private IotDeviceDataRepository iotDeviceDataRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // ==================== 在线统计 ====================
+
+    @Test
+    @DisplayName("UT-SAD-001: Welford 均值/方差与批量计算一致, 滑动窗口分位数只覆盖最近 N 个读数")
+    void onlineStatisticsMatchBatchComputation() {
+        Random random = new Random(7);
+        OnlineStatistics statistics = new OnlineStatistics(0.1);
+        SlidingQuantileWindow window = new SlidingQuantileWindow(50);
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 100 + random.nextGaussian() * 5;
+            statistics.add(values[i]);
+            window.add(values[i]);
+        }
+
+        double mean = Arrays.stream(values).average().orElse(0);
+        double variance = Arrays.stream(values).map(v -> (v - mean) * (v - mean)).sum() / (values.length - 1);
+        assertThat(statistics.getMean()).isCloseTo(mean, within(1e-9));
+        assertThat(statistics.getVariance()).isCloseTo(variance, within(1e-6));
+        assertThat(statistics.getEwma()).isCloseTo(100, within(5.0));
+        assertThat(statistics.getEwmStdDev()).isBetween(2.0, 8.0);
+
+        double[] last = Arrays.copyOfRange(values, values.length - 50, values.length);
+        Arrays.sort(last);
+        assertThat(window.size()).isEqualTo(50);
+        assertThat(window.quantile(0)).isEqualTo(last[0]);
+        assertThat(window.quantile(1)).isEqualTo(last[49]);
+        assertThat(window.quantile(0.5)).isCloseTo((last[24] + last[25]) / 2, within(1e-9));
+        assertThat(window.recentMean(3)).isCloseTo(
+                (values[999] + values[998] + values[997]) / 3, within(1e-9));
+    }
+
+    // ==================== 规则与抑制 ====================
+
+    @Test
+    @DisplayName("UT-SAD-002: 静态阈值持续违规只告警一次, 恢复正常并过冷却期后重新告警")
+    void staticRuleDeduplicatesUntilCleared() {
+        StreamingAnomalyDetector detector = new StreamingAnomalyDetector(0.1, 32, 5, 60_000, 3, 100, 1000);
+        List<AnomalyRule> rules = Collections.singletonList(AnomalyRule.builder()
+                .ruleKey("threshold-1").metricName("temperature").alertType("TEMP_HIGH").level("WARNING")
+                .comparison(AnomalyRule.GREATER_THAN).threshold(25.0).build());
+
+        int fired = 0;
+        long t = T0;
+        for (int i = 0; i < 10; i++) {
+            fired += detector.offer(reading("D1", "temperature", 30, t += 1000), rules).size();
+        }
+        assertThat(fired).isEqualTo(1);
+        assertThat(detector.getStats()).containsEntry("duplicatesSuppressed", 9L);
+
+        // 3 个正常读数后重新布防, 但仍在冷却期内
+        for (int i = 0; i < 3; i++) {
+            detector.offer(reading("D1", "temperature", 20, t += 1000), rules);
+        }
+        assertThat(detector.offer(reading("D1", "temperature", 30, t += 1000), rules)).isEmpty();
+        for (int i = 0; i < 3; i++) {
+            detector.offer(reading("D1", "temperature", 20, t += 1000), rules);
+        }
+        assertThat(detector.offer(reading("D1", "temperature", 31, t + 120_000), rules)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("UT-SAD-003: 自适应 z 分数在预热后识别突变, 基线随缓慢漂移自适应")
+    void adaptiveZScoreDetectsSpikesNotDrift() {
+        StreamingAnomalyDetector detector = new StreamingAnomalyDetector(0.05, 64, 30, 0, 1, 100, 1000);
+        List<AnomalyRule> rules = Collections.singletonList(
+                AnomalyRule.adaptiveZScore("temperature", "SENSOR_ANOMALY", "WARNING", 5.0));
+        Random random = new Random(11);
+
+        // 预热期内即使出现极端值也不触发
+        assertThat(detector.offer(reading("D0", "temperature", 20, T0), rules)).isEmpty();
+        assertThat(detector.offer(reading("D0", "temperature", 500, T0 + 1000), rules)).isEmpty();
+
+        List<StreamingAnomalyDetector.AnomalySignal> signals = new ArrayList<>();
+        long t = T0;
+        for (int i = 1; i <= 2000; i++) {
+            // 缓慢漂移 -18 → -8
+            double value = -18 + i * 0.005 + random.nextGaussian() * 0.3;
+            if (i == 1500) {
+                value += 8;
+            }
+            signals.addAll(detector.offer(reading("D1", "temperature", value, t += 1000), rules));
+        }
+
+        assertThat(signals).hasSize(1);
+        StreamingAnomalyDetector.AnomalySignal spike = signals.get(0);
+        assertThat(spike.getReading().getTimestamp()).isEqualTo(T0 + 1500 * 1000L);
+        assertThat(spike.getZScore()).isGreaterThan(5.0);
+        assertThat(spike.getBaselineValue()).isCloseTo(-18 + 1500 * 0.005, within(1.0));
+    }
+
+    @Test
+    @DisplayName("UT-SAD-004: 同一工厂每分钟告警数受限, 不同工厂互不影响")
+    void rateLimitsPerFactory() {
+        StreamingAnomalyDetector detector = new StreamingAnomalyDetector(0.1, 32, 5, 0, 1, 3, 1000);
+        List<AnomalyRule> rules = Collections.singletonList(AnomalyRule.builder()
+                .ruleKey("threshold-1").metricName("humidity").alertType("HUMIDITY_HIGH").level("WARNING")
+                .comparison(AnomalyRule.GREATER_THAN).threshold(70.0).build());
+
+        int fired = 0;
+        for (int device = 0; device < 10; device++) {
+            fired += detector.offer(reading("D" + device, "humidity", 90, T0 + device), rules).size();
+        }
+        int otherFactory = detector.offer(new StreamingAnomalyDetector.Reading(
+                "F002", "D0", "humidity", 90, T0), rules).size();
+        int nextMinute = detector.offer(reading("D99", "humidity", 90, T0 + 60_000), rules).size();
+
+        assertThat(fired).isEqualTo(3);
+        assertThat(otherFactory).isEqualTo(1);
+        assertThat(nextMinute).isEqualTo(1);
+        assertThat(detector.getStats()).containsEntry("rateLimited", 7L);
+    }
+
+    // ==================== 回放 ====================
+
+    @Test
+    @DisplayName("UT-SAD-005: 回放 20 万条录制读数, 找出注入的突变")
+    void replayHarnessFindsInjectedSpikes() {
+        Random random = new Random(3);
+        List<StreamingAnomalyDetector.Reading> recorded = new ArrayList<>();
+        int devices = 200;
+        for (int i = 0; i < 1000; i++) {
+            for (int d = 0; d < devices; d++) {
+                double value = 4 + d * 0.01 + random.nextGaussian() * 0.2;
+                if (i == 600 && d % 20 == 0) {
+                    value += 5;
+                }
+                recorded.add(reading("D" + d, "temperature", value, T0 + i * 5000L + d));
+            }
+        }
+        List<AnomalyRule> rules = Collections.singletonList(
+                AnomalyRule.adaptiveZScore("temperature", "SENSOR_ANOMALY", "WARNING", 6.0));
+        AnomalyReplayHarness harness = new AnomalyReplayHarness(
+                () -> new StreamingAnomalyDetector(0.05, 128, 50, 600_000, 5, 1000, 10_000),
+                r -> rules);
+
+        AnomalyReplayHarness.ReplayReport report = harness.replay(recorded);
+
+        assertThat(report.getReadings()).isEqualTo(200_000);
+        assertThat(report.getSignalCount()).isEqualTo(10);
+        assertThat(report.getSignals()).allSatisfy(signal ->
+                assertThat(signal.getReading().getTimestamp()).isBetween(T0 + 600 * 5000L, T0 + 600 * 5000L + devices));
+        assertThat(report.getP99LatencyMicros()).isLessThan(1000);
+    }
+
+    // ==================== 服务层 ====================
+
+    @Test
+    @DisplayName("UT-SAD-006: 批次完成事件按阈值配置检测, 写入告警并发布 ProductionAlertEvent")
+    void serviceRaisesAlertFromBatchEvent() {
+        StreamingAnomalyService service = newService();
+        when(thresholdRepository.findByFactoryIdAndEnabled(FACTORY_ID, true)).thenReturn(List.of(
+                AlertThreshold.builder().id(9L).factoryId(FACTORY_ID).metricName("yield_rate")
+                        .alertType("YIELD_DROP").level("CRITICAL").comparison("LESS_THAN").staticThreshold(90.0).build()));
+        when(alertRepository.save(any(ProductionAlert.class))).thenAnswer(inv -> {
+            ProductionAlert alert = inv.getArgument(0);
+            alert.setId(501L);
+            return alert;
+        });
+
+        // 最近 3 个批次均值: (95 + 88 + 80) / 3 = 87.67 < 90
+        service.onBatchCompleted(batchEvent(1L, "95"));
+        service.onBatchCompleted(batchEvent(2L, "88"));
+        verify(alertRepository, never()).save(any());
+        service.onBatchCompleted(batchEvent(3L, "80"));
+
+        ArgumentCaptor<ProductionAlert> alert = ArgumentCaptor.forClass(ProductionAlert.class);
+        verify(alertRepository).save(alert.capture());
+        assertThat(alert.getValue().getAlertType()).isEqualTo("YIELD_DROP");
+        assertThat(alert.getValue().getBatchId()).isEqualTo(3L);
+        assertThat(alert.getValue().getCurrentValue()).isCloseTo(87.67, within(0.01));
+        assertThat(alert.getValue().getDescription()).contains("良率").contains("低于阈值 90.00");
+
+        ArgumentCaptor<ProductionAlertEvent> event = ArgumentCaptor.forClass(ProductionAlertEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getAlertId()).isEqualTo(501L);
+        assertThat(event.getValue().getLevel()).isEqualTo("CRITICAL");
+        verify(thresholdRepository, times(1)).findByFactoryIdAndEnabled(FACTORY_ID, true);
+    }
+
+    @Test
+    @DisplayName("UT-SAD-007: IoT 指标未配置 z 分数规则时追加默认自适应规则")
+    void serviceAddsDefaultZScoreRuleForDevices() {
+        StreamingAnomalyService service = newService();
+        when(thresholdRepository.findByFactoryIdAndEnabled(FACTORY_ID, true)).thenReturn(List.of(
+                AlertThreshold.builder().id(3L).factoryId(FACTORY_ID).metricName("temperature")
+                        .alertType("TEMP_HIGH").level("WARNING").comparison("GREATER_THAN").staticThreshold(-18.0).build()));
+
+        List<AnomalyRule> deviceRules = service.rulesFor(reading("D1", "temperature", -20, T0));
+        List<AnomalyRule> productionRules = service.rulesFor(new StreamingAnomalyDetector.Reading(
+                FACTORY_ID, StreamingAnomalyService.PRODUCTION_SOURCE, "yield_rate", 95, T0));
+
+        assertThat(deviceRules).extracting(AnomalyRule::getComparison)
+                .containsExactly(AnomalyRule.GREATER_THAN, AnomalyRule.ZSCORE);
+        assertThat(deviceRules.get(0).getSmoothing()).isEqualTo(1);
+        assertThat(productionRules).isEmpty();
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private StreamingAnomalyService newService() {
+        return new StreamingAnomalyService(thresholdRepository, alertRepository, iotDeviceDataRepository,
+                eventPublisher, new ObjectMapper(), true, 0.1, 64, 20, 600, 5, 20, 1000, 60, 4.0, 3, 24);
+    }
+
+    private static StreamingAnomalyDetector.Reading reading(String deviceId, String metric, double value, long timestamp) {
+        return new StreamingAnomalyDetector.Reading(FACTORY_ID, deviceId, metric, value, timestamp);
+    }
+
+    private BatchCompletedEvent batchEvent(Long batchId, String yieldRate) {
+        ProductionBatch batch = new ProductionBatch();
+        batch.setId(batchId);
+        batch.setFactoryId(FACTORY_ID);
+        batch.setYieldRate(new BigDecimal(yieldRate));
+        batch.setEndTime(LocalDateTime.of(2026, 1, 20, 10, 0).plusHours(batchId));
+        return new BatchCompletedEvent(this, batch);
+    }
+}
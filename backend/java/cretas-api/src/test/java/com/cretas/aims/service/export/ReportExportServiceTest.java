@@ -0,0 +1,376 @@
+package com.cretas.aims.service.export;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelReader;
+import com.alibaba.excel.annotation.ExcelIgnore;
+import com.alibaba.excel.annotation.ExcelProperty;
+import com.cretas.aims.entity.enums.ProductionBatchStatus;
+import com.cretas.aims.exception.BusinessException;
+import com.cretas.aims.service.export.ReportExportService.ExportSection;
+import com.cretas.aims.service.export.ReportExportService.MetricRow;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongPredicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 报表流式导出测试
+ *
+ * 数据源用内存生成的行代替数据库分页查询，校验列定义缓存、Sheet 行数上限续页、
+ * 同步导出上限、后台任务失败后按分片续传不重不漏；1M 行吞吐与堆峰值基准默认跳过，
+ * 以 -DargLine=-Dexport.benchmark=true 运行。
+ *
+ * @author Cretas Team
+ * @since 2026-02-02
+ */
+@Slf4j
+@DisplayName("ReportExportService - 报表流式导出测试")
+class ReportExportServiceTest {
+
+    private static final String FACTORY_ID = "F001";
+    private static final LocalDate START = LocalDate.of(2026, 1, 1);
+    private static final LocalDate END = LocalDate.of(2026, 1, 31);
+
+    @TempDir
+    Path jobDir;
+
+    private final Map<String, List<ExportSection<?>>> sectionsByType = new HashMap<>();
+    private ReportExportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService(1_000, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private ReportExportService newService(long syncMaxRows, long rowsPerPart) {
+        return new ReportExportService(null, 40, syncMaxRows, rowsPerPart, 1_000, jobDir.toString(), 1, 24) {
+            @Override
+            List<ExportSection<?>> sectionsFor(String factoryId, String reportType, LocalDate s, LocalDate e) {
+                return sectionsByType.get(reportType);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("列定义按 index 排序并缓存，枚举取描述，日期格式化")
+    void rowAccessorResolvesColumnsOnce() {
+        RowAccessor<DetailRow> accessor = RowAccessor.of(DetailRow.class);
+
+        assertThat(RowAccessor.of(DetailRow.class)).isSameAs(accessor);
+        assertThat(accessor.head()).extracting(h -> h.get(0))
+                .containsExactly("ID", "名称", "状态", "数量", "时间");
+
+        DetailRow row = new DetailRow(7L, "批次7", ProductionBatchStatus.COMPLETED,
+                new BigDecimal("12.50"), LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+        assertThat(accessor.toRow(row))
+                .containsExactly(7L, "批次7", "已完成", new BigDecimal("12.50"), "2026-01-02 03:04:05");
+    }
+
+    @Test
+    @DisplayName("无注解的类导出全部实例字段")
+    void rowAccessorFallsBackToAllFields() {
+        RowAccessor<PlainRow> accessor = RowAccessor.of(PlainRow.class);
+
+        assertThat(accessor.head()).extracting(h -> h.get(0)).containsExactly("code", "count");
+        assertThat(accessor.toRow(new PlainRow("A", 3))).containsExactly("A", 3);
+    }
+
+    @Test
+    @DisplayName("单 Sheet 达到行数上限后续写到新 Sheet")
+    void writerRollsOverToNextSheet() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowAccessor<DetailRow> accessor = RowAccessor.of(DetailRow.class);
+        try (StreamingExcelWriter writer = new StreamingExcelWriter(out, 10)) {
+            writer.startSheet("明细", accessor);
+            writer.append(rows(1, 7), accessor);
+            writer.append(rows(8, 25), accessor);
+            assertThat(writer.getRowsWritten()).isEqualTo(25);
+        }
+
+        List<List<Map<Integer, String>>> sheets = readSheets(out.toByteArray());
+        assertThat(sheets).hasSize(3);
+        assertThat(sheets).extracting(List::size).containsExactly(10, 10, 5);
+        assertThat(sheets.get(2).get(4).get(0)).isEqualTo("25");
+    }
+
+    @Test
+    @DisplayName("同步导出写出汇总和全部明细，空明细仍输出表头")
+    void syncExportWritesAllSections() throws IOException {
+        sectionsByType.put("production", List.of(
+                summary(),
+                new ExportSection<>("明细", new GeneratedSource(95, null)),
+                new ExportSection<>("空明细", new GeneratedSource(0, null))));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = service.exportTo(FACTORY_ID, "production", START, END, out);
+
+        assertThat(rows).isEqualTo(97);
+        List<List<Map<Integer, String>>> sheets = readSheets(out.toByteArray());
+        assertThat(sheets).extracting(List::size).containsExactly(2, 95, 0);
+    }
+
+    @Test
+    @DisplayName("超过同步上限时拒绝并提示使用后台任务")
+    void syncExportRejectsLargeReports() {
+        sectionsByType.put("production", List.of(new ExportSection<>("明细", new GeneratedSource(1_001, null))));
+
+        assertThatThrownBy(() -> service.exportTo(FACTORY_ID, "production", START, END, OutputStream.nullOutputStream()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("后台导出任务");
+    }
+
+    @Test
+    @DisplayName("任务失败后从最后一个完整分片续传，结果不重不漏")
+    void failedJobResumesFromLastPart() throws Exception {
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        sectionsByType.put("production", List.of(
+                summary(),
+                new ExportSection<>("明细", new GeneratedSource(350, id -> id == 250 && failOnce.getAndSet(false)))));
+
+        ReportExportJob job = service.submitJob(FACTORY_ID, "production", START, END);
+        awaitStatus(job, ReportExportJob.Status.FAILED);
+        assertThat(job.getParts()).isEqualTo(2);
+        assertThat(job.getCommittedRows()).isEqualTo(200);
+        assertThat(job.isResumable()).isTrue();
+
+        service.resumeJob(FACTORY_ID, job.getJobId());
+        awaitStatus(job, ReportExportJob.Status.COMPLETED);
+
+        assertThat(job.getCommittedRows()).isEqualTo(352);
+        assertThat(job.getProgressPercent()).isEqualTo(100);
+        Path result = service.getResultFile(FACTORY_ID, job.getJobId());
+        assertThat(result.getFileName().toString()).endsWith(".zip");
+
+        List<String> ids = new ArrayList<>();
+        int parts = 0;
+        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(result))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                parts++;
+                for (List<Map<Integer, String>> sheet : readSheets(zip.readAllBytes())) {
+                    for (Map<Integer, String> row : sheet) {
+                        ids.add(row.get(0));
+                    }
+                }
+            }
+        }
+        assertThat(parts).isEqualTo(4);
+        List<String> expected = new ArrayList<>(List.of("产量", "良品率"));
+        for (int i = 1; i <= 350; i++) {
+            expected.add(String.valueOf(i));
+        }
+        assertThat(ids).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("重启后加载任务目录，未完成任务标记为中断并可续传")
+    void restartMarksRunningJobsInterrupted() throws Exception {
+        sectionsByType.put("production", List.of(new ExportSection<>("明细", new GeneratedSource(150, null))));
+        ReportExportJob job = service.submitJob(FACTORY_ID, "production", START, END);
+        awaitStatus(job, ReportExportJob.Status.COMPLETED);
+        assertThat(job.getResultFile()).endsWith(".zip");
+
+        // 模拟进程在第一个分片后退出
+        ReportExportJob stale = ReportExportJob.load(job.getDir());
+        stale.setStatus(ReportExportJob.Status.RUNNING);
+        stale.save();
+
+        ReportExportService restarted = newService(1_000, 100);
+        try {
+            restarted.loadJobs();
+            ReportExportJob reloaded = restarted.getJob(FACTORY_ID, job.getJobId());
+            assertThat(reloaded.getStatus()).isEqualTo(ReportExportJob.Status.INTERRUPTED);
+            assertThat(reloaded.isResumable()).isTrue();
+            assertThatThrownBy(() -> restarted.getJob("F999", job.getJobId()))
+                    .hasMessageContaining("导出任务不存在");
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "export.benchmark", matches = "true")
+    @DisplayName("基准: 1M 行导出吞吐与堆峰值")
+    void benchmarkMillionRows() throws IOException {
+        int total = 1_000_000;
+        ReportExportService bench = new ReportExportService(null, 2_000, total, total, 1_000_000,
+                jobDir.toString(), 1, 24) {
+            @Override
+            List<ExportSection<?>> sectionsFor(String factoryId, String reportType, LocalDate s, LocalDate e) {
+                return List.of(new ExportSection<>("明细", new GeneratedSource(total, null)));
+            }
+        };
+        Path file = jobDir.resolve("bench.xlsx");
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long begin = System.nanoTime();
+        long rows;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            rows = bench.exportTo(FACTORY_ID, "production", START, END, out);
+        } finally {
+            bench.shutdown();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        long peak = heapPools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+
+        log.info("export benchmark: rows={}, time={}s, rows/sec={}, peakHeap={}MB, file={}MB",
+                rows, String.format("%.1f", seconds), Math.round(rows / seconds), peak >> 20, Files.size(file) >> 20);
+        assertThat(rows).isEqualTo(total);
+    }
+
+    // ==================== 测试数据 ====================
+
+    private static ExportSection<MetricRow> summary() {
+        return new ExportSection<>("汇总", new ListPageSource<>(MetricRow.class,
+                List.of(new MetricRow("产量", "1200"), new MetricRow("良品率", "98.5"))));
+    }
+
+    private static List<DetailRow> rows(long from, long to) {
+        List<DetailRow> rows = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            rows.add(DetailRow.of(id));
+        }
+        return rows;
+    }
+
+    private static List<List<Map<Integer, String>>> readSheets(byte[] xlsx) {
+        List<List<Map<Integer, String>>> sheets = new ArrayList<>();
+        int count;
+        try (ExcelReader reader = EasyExcel.read(new ByteArrayInputStream(xlsx)).build()) {
+            count = reader.excelExecutor().sheetList().size();
+        }
+        for (int i = 0; i < count; i++) {
+            InputStream in = new ByteArrayInputStream(xlsx);
+            List<Map<Integer, String>> rows = EasyExcel.read(in).sheet(i).headRowNumber(1).doReadSync();
+            sheets.add(rows);
+        }
+        return sheets;
+    }
+
+    private static void awaitStatus(ReportExportJob job, ReportExportJob.Status status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (job.getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(job.getStatus()).isEqualTo(status);
+    }
+
+    /**
+     * 按 id 1..total 生成行的分页源，可在读取指定 id 所在页时失败一次
+     */
+    private static final class GeneratedSource implements PageSource<DetailRow> {
+        private final long total;
+        private final LongPredicate failAt;
+
+        GeneratedSource(long total, LongPredicate failAt) {
+            this.total = total;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public Class<DetailRow> rowType() {
+            return DetailRow.class;
+        }
+
+        @Override
+        public long count() {
+            return total;
+        }
+
+        @Override
+        public List<DetailRow> nextPage(String afterKey, int limit) {
+            long from = afterKey == null ? 1 : Long.parseLong(afterKey) + 1;
+            long to = Math.min(total, from + limit - 1);
+            if (failAt != null) {
+                for (long id = from; id <= to; id++) {
+                    if (failAt.test(id)) {
+                        throw new IllegalStateException("模拟数据库连接中断");
+                    }
+                }
+            }
+            return rows(from, to);
+        }
+
+        @Override
+        public String keyOf(DetailRow row) {
+            return String.valueOf(row.id);
+        }
+    }
+
+    static class DetailRow {
+        @ExcelProperty(value = "ID", index = 0)
+        private Long id;
+        @ExcelProperty(value = "时间", index = 4)
+        private LocalDateTime time;
+        @ExcelProperty(value = "名称", index = 1)
+        private String name;
+        @ExcelProperty(value = "数量", index = 3)
+        private BigDecimal quantity;
+        @ExcelProperty(value = "状态", index = 2)
+        private ProductionBatchStatus status;
+        @ExcelIgnore
+        private String internal = "x";
+
+        DetailRow(Long id, String name, ProductionBatchStatus status, BigDecimal quantity, LocalDateTime time) {
+            this.id = id;
+            this.name = name;
+            this.status = status;
+            this.quantity = quantity;
+            this.time = time;
+        }
+
+        static DetailRow of(long id) {
+            return new DetailRow(id, "批次" + id, ProductionBatchStatus.values()[(int) (id % 7)],
+                    BigDecimal.valueOf(id % 1000, 1), LocalDateTime.of(2026, 1, 1, 0, 0).plusMinutes(id));
+        }
+    }
+
+    static class PlainRow {
+        private static final String IGNORED = "static";
+        private String code;
+        private int count;
+
+        PlainRow(String code, int count) {
+            this.code = code;
+            this.count = count;
+        }
+    }
+}
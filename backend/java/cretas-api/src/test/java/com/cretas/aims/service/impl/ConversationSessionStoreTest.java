@@ -0,0 +1,260 @@
+package com.cretas.aims.service.impl;
+
+import com.cretas.aims.ai.client.DashScopeClient;
+import com.cretas.aims.dto.conversation.ConversationContext;
+import com.cretas.aims.dto.conversation.ConversationMessage;
+import com.cretas.aims.dto.conversation.EntitySlot;
+import com.cretas.aims.entity.conversation.ConversationMemory;
+import com.cretas.aims.repository.conversation.ConversationMemoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 对话会话热存储测试
+ *
+ * @author Cretas Team
+ * @since 2026-01-29
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ConversationSessionStore - 会话写回存储测试")
+class ConversationSessionStoreTest {
+
+    private static final String SESSION_ID = "5f0c8a52-1d7e-4a55-9a52-9f1f3c2b7e01";
+
+    @Mock
+    private ConversationMemoryRepository memoryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DashScopeClient dashScopeClient;
+
+    private ConversationSessionStore store;
+    private ConversationMemoryServiceImpl service;
+    private ConversationMemory row;
+
+    @BeforeEach
+    void setUp() {
+        store = new ConversationSessionStore(memoryRepository, transactionManager, 100, 30, 100);
+        service = new ConversationMemoryServiceImpl(memoryRepository, store, dashScopeClient);
+        ReflectionTestUtils.setField(service, "windowSize", 6);
+        ReflectionTestUtils.setField(service, "expireMinutes", 60);
+
+        row = ConversationMemory.builder()
+                .id(1L)
+                .factoryId("F001")
+                .userId(7L)
+                .sessionId(SESSION_ID)
+                .messageCount(0)
+                .lastActiveAt(LocalDateTime.now())
+                .entitySlots(new HashMap<>())
+                .recentMessages(new ArrayList<>())
+                .build();
+        when(memoryRepository.findBySessionId(SESSION_ID)).thenAnswer(inv -> Optional.of(copyOf(row)));
+        when(memoryRepository.findAllById(anyIterable())).thenAnswer(inv -> Collections.singletonList(row));
+    }
+
+    private static ConversationMemory copyOf(ConversationMemory m) {
+        return ConversationMemory.builder()
+                .id(m.getId())
+                .factoryId(m.getFactoryId())
+                .userId(m.getUserId())
+                .sessionId(m.getSessionId())
+                .messageCount(m.getMessageCount())
+                .lastActiveAt(m.getLastActiveAt())
+                .lastIntentCode(m.getLastIntentCode())
+                .conversationSummary(m.getConversationSummary())
+                .entitySlots(m.getEntitySlots() != null ? new HashMap<>(m.getEntitySlots()) : null)
+                .recentMessages(m.getRecentMessages() != null ? new ArrayList<>(m.getRecentMessages()) : null)
+                .build();
+    }
+
+    private void playTurn(String userText, String reply) {
+        service.getOrCreateContext("F001", 7L, SESSION_ID);
+        service.resolveReference(SESSION_ID, "这批货的质检结果");
+        service.updateEntitySlot(SESSION_ID, EntitySlot.SlotType.BATCH, EntitySlot.builder()
+                .type(EntitySlot.SlotType.BATCH).id("B-1").name("MB-20260129-001").build());
+        service.addMessage(SESSION_ID, ConversationMessage.user(userText));
+        service.updateLastIntent(SESSION_ID, "QUALITY_CHECK_QUERY");
+        service.addMessage(SESSION_ID, ConversationMessage.assistant(reply, "QUALITY_CHECK_QUERY"));
+        service.buildContextForLLM(SESSION_ID);
+    }
+
+    /**
+     * 模拟一个事务: 执行完成后按给定状态触发事务同步回调
+     */
+    private void inTransaction(Runnable work, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(s -> s.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.unbindResourceIfPossible(store);
+        }
+    }
+
+    @Test
+    @DisplayName("UT-CMS-001: 单轮对话只读库一次, 写回合并为一次批量写")
+    void testTurnCoalescesIntoSingleWrite() {
+        playTurn("这批货的质检结果", "合格");
+
+        verify(memoryRepository, times(1)).findBySessionId(SESSION_ID);
+        verify(memoryRepository, never()).save(any());
+        verify(memoryRepository, never()).findAllById(anyIterable());
+
+        assertThat(store.flush()).isEqualTo(1);
+        verify(memoryRepository, times(1)).findAllById(anyIterable());
+        assertThat(row.getRecentMessages()).hasSize(2);
+        assertThat(row.getMessageCount()).isEqualTo(2);
+        assertThat(row.getLastIntentCode()).isEqualTo("QUALITY_CHECK_QUERY");
+        assertThat(row.getEntitySlots()).containsKey("BATCH");
+
+        // 无新修改时不再写库
+        assertThat(store.flush()).isZero();
+        verify(memoryRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    @DisplayName("UT-CMS-002: 消息日志按窗口截断, 读取与数据库一致")
+    void testMessageWindow() {
+        for (int i = 0; i < 10; i++) {
+            playTurn("问题" + i, "回答" + i);
+        }
+        List<ConversationMessage> recent = service.getRecentMessages(SESSION_ID, 100);
+        assertThat(recent).hasSize(12);
+        assertThat(recent.get(recent.size() - 1).getContent()).isEqualTo("回答9");
+
+        store.flush();
+        assertThat(row.getRecentMessages()).hasSize(12);
+        assertThat(row.getMessageCount()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("UT-CMS-003: 写回失败保留脏状态, 下次重试")
+    void testFlushFailureRetries() {
+        service.updateLastIntent(SESSION_ID, "MATERIAL_BATCH_QUERY");
+        when(memoryRepository.findAllById(anyIterable())).thenThrow(new IllegalStateException("db down"));
+        assertThat(store.flush()).isZero();
+        assertThat(store.getStats().get("flushFailures")).isEqualTo(1L);
+
+        doAnswer(inv -> Collections.singletonList(row)).when(memoryRepository).findAllById(anyIterable());
+        assertThat(store.flush()).isEqualTo(1);
+        assertThat(row.getLastIntentCode()).isEqualTo("MATERIAL_BATCH_QUERY");
+    }
+
+    @Test
+    @DisplayName("UT-CMS-004: 淘汰只针对已写回会话, 淘汰后从数据库恢复")
+    void testEvictionAndRecovery() {
+        // 空闲阈值为 0: 已写回的会话无论访问时间如何都会被淘汰, 与时钟精度无关
+        store = new ConversationSessionStore(memoryRepository, transactionManager, 100, 0, 100);
+        service = new ConversationMemoryServiceImpl(memoryRepository, store, dashScopeClient);
+        ReflectionTestUtils.setField(service, "windowSize", 6);
+
+        service.updateLastIntent(SESSION_ID, "SHIPMENT_QUERY");
+        store.evictIdle();
+        assertThat(store.getStats().get("sessions")).isEqualTo(1);
+
+        store.flush();
+        store.evictIdle();
+        assertThat(store.getStats().get("sessions")).isEqualTo(0);
+
+        ConversationContext context = service.getContext(SESSION_ID);
+        assertThat(context.getLastIntentCode()).isEqualTo("SHIPMENT_QUERY");
+        verify(memoryRepository, times(2)).findBySessionId(SESSION_ID);
+    }
+
+    @Test
+    @DisplayName("UT-CMS-005: 摘要在锁外生成并随下次写回落库")
+    void testSummaryUpdate() {
+        when(dashScopeClient.isAvailable()).thenReturn(true);
+        when(dashScopeClient.chat(anyString(), anyString())).thenReturn(" 用户查询批次 MB-20260129-001 质检 ");
+
+        service.getOrCreateContext("F001", 7L, SESSION_ID);
+        service.updateSummary(SESSION_ID);
+        assertThat(service.buildContextForLLM(SESSION_ID)).contains("用户查询批次 MB-20260129-001 质检");
+
+        store.flush();
+        assertThat(row.getConversationSummary()).isEqualTo("用户查询批次 MB-20260129-001 质检");
+        assertThat(row.getSummaryUpdatedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("UT-CMS-006: 数据库中已删除的会话在写回时移出热存储")
+    void testDeletedRowEvictedOnFlush() {
+        service.updateLastIntent(SESSION_ID, "X");
+        when(memoryRepository.findAllById(anyIterable())).thenReturn(Collections.emptyList());
+        store.flush();
+        assertThat(store.getStats().get("sessions")).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("UT-CMS-007: 事务内的修改提交后才生效, 回滚则丢弃")
+    void testTransactionalUpdatesPublishedOnCommitOnly() {
+        service.getContext(SESSION_ID);
+
+        inTransaction(() -> {
+            service.updateLastIntent(SESSION_ID, "ROLLED_BACK");
+            service.addMessage(SESSION_ID, ConversationMessage.user("这条不会保留"));
+            // 同一事务内可见
+            assertThat(service.getContext(SESSION_ID).getLastIntentCode()).isEqualTo("ROLLED_BACK");
+        }, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(service.getContext(SESSION_ID).getLastIntentCode()).isNull();
+        assertThat(service.getRecentMessages(SESSION_ID, 10)).isEmpty();
+        assertThat(store.flush()).isZero();
+        assertThat(store.getStats().get("rolledBackSessions")).isEqualTo(1L);
+
+        inTransaction(() -> {
+            service.updateLastIntent(SESSION_ID, "COMMITTED");
+            // 提交前不进入写回队列
+            assertThat(store.flush()).isZero();
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(service.getContext(SESSION_ID).getLastIntentCode()).isEqualTo("COMMITTED");
+        assertThat(store.flush()).isEqualTo(1);
+        assertThat(row.getLastIntentCode()).isEqualTo("COMMITTED");
+    }
+
+    @Test
+    @DisplayName("UT-CMS-008: 热存储保存快照而非数据库加载的实体")
+    void testCachesSnapshotNotEntity() {
+        ConversationMemory loaded = copyOf(row);
+        when(memoryRepository.findBySessionId(SESSION_ID)).thenReturn(Optional.of(loaded));
+
+        service.updateLastIntent(SESSION_ID, "SHIPMENT_QUERY");
+        loaded.setLastIntentCode("CHANGED_ON_ENTITY");
+        loaded.getRecentMessages().add(ConversationMemory.MessageData.builder().role("user").content("x").build());
+
+        ConversationContext context = service.getContext(SESSION_ID);
+        assertThat(context.getLastIntentCode()).isEqualTo("SHIPMENT_QUERY");
+        assertThat(service.getRecentMessages(SESSION_ID, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,303 @@
+package com.cretas.aims.service.intent;
+
+import com.cretas.aims.config.PythonClassifierConfig;
+import com.cretas.aims.dto.ClassifierResult;
+import com.cretas.aims.service.EmbeddingClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 进程内意图分类头测试
+ *
+ * 以 config/training_data.json 为评测集, 用确定性的字符 bigram 哈希向量代替 GTE Embedding,
+ * 在测试内训练 Softmax 头后对比 float32 与 int8 两种精度的准确率和单次推理延迟。
+ *
+ * @author Cretas Team
+ * @since 2026-01-27
+ */
+@DisplayName("InProcessIntentClassifier - 进程内意图分类头测试")
+class InProcessIntentClassifierTest {
+
+    private static final int DIM = 256;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static List<String> texts;
+    private static List<Integer> targets;
+    private static List<String> labels;
+    private static float[] trainedWeights;
+    private static float[] trainedBias;
+
+    @BeforeAll
+    static void loadTrainingData() throws Exception {
+        texts = new ArrayList<>();
+        targets = new ArrayList<>();
+        try (InputStream in = InProcessIntentClassifierTest.class.getClassLoader()
+                .getResourceAsStream("config/training_data.json")) {
+            for (JsonNode sample : MAPPER.readTree(in).path("samples")) {
+                texts.add(sample.path("text").asText());
+                targets.add(sample.path("level").asInt() - 1);
+            }
+        }
+        labels = Arrays.asList("L1", "L2", "L3", "L4", "L5");
+        train();
+    }
+
+    /**
+     * 字符 bigram 哈希向量, L2 归一化
+     */
+    private static float[] embed(String text) {
+        float[] v = new float[DIM];
+        String padded = "^" + text + "$";
+        for (int i = 0; i + 1 < padded.length(); i++) {
+            int h = (padded.charAt(i) * 31 + padded.charAt(i + 1)) & 0x7fffffff;
+            v[h % DIM] += 1f;
+        }
+        double norm = 0;
+        for (float x : v) {
+            norm += x * x;
+        }
+        float inv = (float) (1.0 / Math.sqrt(Math.max(norm, 1e-9)));
+        for (int i = 0; i < DIM; i++) {
+            v[i] *= inv;
+        }
+        return v;
+    }
+
+    /**
+     * 全批量梯度下降训练 Softmax 回归 (模拟 Python 离线训练产物)
+     */
+    private static void train() {
+        int classes = labels.size();
+        trainedWeights = new float[classes * DIM];
+        trainedBias = new float[classes];
+        List<float[]> xs = new ArrayList<>();
+        for (String text : texts) {
+            xs.add(embed(text));
+        }
+        IntentClassifierHead probe;
+        for (int epoch = 0; epoch < 300; epoch++) {
+            probe = linearHead("train", false);
+            float[] gw = new float[trainedWeights.length];
+            float[] gb = new float[classes];
+            for (int n = 0; n < xs.size(); n++) {
+                double[] p = probe.probabilities(probe.logits(xs.get(n)));
+                for (int c = 0; c < classes; c++) {
+                    float g = (float) (p[c] - (targets.get(n) == c ? 1 : 0));
+                    gb[c] += g;
+                    for (int k = 0; k < DIM; k++) {
+                        gw[c * DIM + k] += g * xs.get(n)[k];
+                    }
+                }
+            }
+            for (int i = 0; i < gw.length; i++) {
+                trainedWeights[i] -= 2f * gw[i] / xs.size();
+            }
+            for (int c = 0; c < classes; c++) {
+                trainedBias[c] -= 2f * gb[c] / xs.size();
+            }
+        }
+    }
+
+    private static IntentClassifierHead linearHead(String version, boolean int8) {
+        IntentClassifierHead.Layer layer = int8
+                ? IntentClassifierHead.Layer.quantize(DIM, labels.size(), trainedWeights, trainedBias,
+                        IntentClassifierHead.Activation.NONE)
+                : IntentClassifierHead.Layer.float32(DIM, labels.size(), trainedWeights, trainedBias,
+                        IntentClassifierHead.Activation.NONE);
+        return new IntentClassifierHead(version, 1.0, labels, List.of(layer));
+    }
+
+    private static String modelJson(String version, boolean int8) throws Exception {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("format", IntentClassifierHead.FORMAT);
+        root.put("version", version);
+        root.put("embedding_dim", DIM);
+        root.put("temperature", 1.0);
+        labels.forEach(root.putArray("labels")::add);
+        ObjectNode layer = root.putArray("layers").addObject();
+        layer.put("in", DIM);
+        layer.put("out", labels.size());
+        layer.put("activation", "none");
+        layer.put("dtype", int8 ? "int8" : "float32");
+        ArrayNode weights = layer.putArray("weights");
+        ArrayNode bias = layer.putArray("bias");
+        for (float b : trainedBias) {
+            bias.add(b);
+        }
+        if (int8) {
+            ArrayNode scales = layer.putArray("scales");
+            for (int r = 0; r < labels.size(); r++) {
+                float maxAbs = 0f;
+                for (int k = 0; k < DIM; k++) {
+                    maxAbs = Math.max(maxAbs, Math.abs(trainedWeights[r * DIM + k]));
+                }
+                float scale = maxAbs / 127f;
+                scales.add(scale);
+                for (int k = 0; k < DIM; k++) {
+                    weights.add(Math.round(trainedWeights[r * DIM + k] / scale));
+                }
+            }
+        } else {
+            for (float w : trainedWeights) {
+                weights.add(w);
+            }
+        }
+        return MAPPER.writeValueAsString(root);
+    }
+
+    private static double accuracy(IntentClassifierHead head) {
+        int correct = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            ClassifierResult r = InProcessIntentClassifier.infer(head, embed(texts.get(i)), 1, 0.0);
+            if (r.getIntentCode().equals(labels.get(targets.get(i)))) {
+                correct++;
+            }
+        }
+        return (double) correct / texts.size();
+    }
+
+    private static EmbeddingClient stubEmbedding() {
+        return new EmbeddingClient() {
+            @Override
+            public float[] encode(String text) {
+                return embed(text);
+            }
+
+            @Override
+            public List<float[]> encodeBatch(List<String> batch) {
+                List<float[]> out = new ArrayList<>();
+                batch.forEach(t -> out.add(embed(t)));
+                return out;
+            }
+
+            @Override
+            public double computeSimilarity(String text1, String text2) {
+                return 0;
+            }
+
+            @Override
+            public List<SimilarityResult> findSimilar(String query, List<String> candidates, double threshold, int topK) {
+                return List.of();
+            }
+
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public int getDimension() {
+                return DIM;
+            }
+
+            @Override
+            public String getModelName() {
+                return "bigram-hash";
+            }
+        };
+    }
+
+    private static InProcessIntentClassifier classifier(Path modelDir) {
+        PythonClassifierConfig config = new PythonClassifierConfig();
+        config.setModelDir(modelDir.toString());
+        return new InProcessIntentClassifier(stubEmbedding(), config);
+    }
+
+    @Test
+    @DisplayName("UT-ICL-001: JSON 模型加载后与内存模型输出一致")
+    void testJsonRoundTrip() throws Exception {
+        IntentClassifierHead memory = linearHead("v1", false);
+        IntentClassifierHead loaded = IntentClassifierHead.read(
+                new ByteArrayInputStream(modelJson("v1", false).getBytes(StandardCharsets.UTF_8)));
+
+        float[] x = embed(texts.get(0));
+        assertThat(loaded.logits(x)).containsExactly(memory.logits(x));
+        assertThat(loaded.getPrecision()).isEqualTo("float32");
+        assertThat(loaded.getLabels()).isEqualTo(labels);
+    }
+
+    @Test
+    @DisplayName("UT-ICL-002: training_data.json 上 float32 与 int8 准确率及参数体积对比")
+    void testAccuracyAndSize() throws Exception {
+        IntentClassifierHead fp32 = linearHead("fp32", false);
+        IntentClassifierHead int8 = IntentClassifierHead.read(
+                new ByteArrayInputStream(modelJson("int8", true).getBytes(StandardCharsets.UTF_8)));
+
+        double fp32Acc = accuracy(fp32);
+        double int8Acc = accuracy(int8);
+
+        assertThat(int8.getPrecision()).isEqualTo("int8");
+        assertThat(fp32Acc).isGreaterThan(0.8);
+        assertThat(int8Acc).isGreaterThanOrEqualTo(fp32Acc - 0.02);
+        assertThat(int8.getParameterBytes()).isLessThan(fp32.getParameterBytes() / 3);
+    }
+
+    @Test
+    @DisplayName("UT-ICL-003: 模型目录出现新版本后热替换, 损坏文件不影响当前版本")
+    void testHotSwap(@TempDir Path dir) throws Exception {
+        Files.writeString(dir.resolve("intent_head_v1.json"), modelJson("v1", false));
+        InProcessIntentClassifier classifier = classifier(dir);
+        classifier.init();
+        assertThat(classifier.getCurrentHead()).get().extracting(IntentClassifierHead::getVersion).isEqualTo("v1");
+
+        Files.writeString(dir.resolve("intent_head_v2.json"), modelJson("v2", true));
+        Files.writeString(dir.resolve("intent_head_v10.json.tmp"), "partial");
+        classifier.checkForUpdate();
+        assertThat(classifier.getCurrentHead()).get().extracting(IntentClassifierHead::getVersion).isEqualTo("v2");
+
+        Files.writeString(dir.resolve("intent_head_v3.json"), "{\"format\":\"intent-head\",\"layers\":[]}");
+        classifier.checkForUpdate();
+        assertThat(classifier.getCurrentHead()).get().extracting(IntentClassifierHead::getVersion).isEqualTo("v2");
+        assertThat(classifier.getStats().get("loadFailures")).isEqualTo(1L);
+        assertThat(classifier.isReady()).isTrue();
+    }
+
+    @Test
+    @DisplayName("UT-ICL-004: 单条分类输出 Top-K、margin 与熵, 与 confidenceFor 一致")
+    void testClassifyOutput(@TempDir Path dir) throws Exception {
+        InProcessIntentClassifier classifier = classifier(dir);
+        classifier.install(linearHead("v1", false));
+
+        assertThat(classifier.classify(" ", 3, 0.0)).isEmpty();
+        ClassifierResult first = classifier.classify(texts.get(0), 3, 0.0).orElseThrow();
+        assertThat(first.getPredictions()).hasSize(3).extracting(ClassifierResult.PredictionEntry::getRank)
+                .containsExactly(1, 2, 3);
+        assertThat(first.getMargin()).isBetween(0.0, 1.0);
+        assertThat(first.getEntropy()).isPositive();
+        assertThat(classifier.confidenceFor(texts.get(0), first.getIntentCode()))
+                .isCloseTo(first.getConfidence(), within(1e-9));
+    }
+
+    @Test
+    @DisplayName("UT-ICL-005: 维度不一致的模型被拒绝")
+    void testRejectsBadModel() {
+        assertThatThrownBy(() -> IntentClassifierHead.read(new ByteArrayInputStream(
+                "{\"format\":\"other\"}".getBytes(StandardCharsets.UTF_8))))
+                .hasMessageContaining("format");
+        IntentClassifierHead.Layer hidden = IntentClassifierHead.Layer.float32(DIM, 8, new float[DIM * 8],
+                new float[8], IntentClassifierHead.Activation.RELU);
+        IntentClassifierHead.Layer output = IntentClassifierHead.Layer.float32(16, labels.size(),
+                new float[16 * labels.size()], new float[labels.size()], IntentClassifierHead.Activation.NONE);
+        assertThatThrownBy(() -> new IntentClassifierHead("bad", 1.0, labels, List.of(hidden, output)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
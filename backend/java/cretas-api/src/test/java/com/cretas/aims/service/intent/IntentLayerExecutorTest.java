@@ -0,0 +1,210 @@
+package com.cretas.aims.service.intent;
+
+import com.cretas.aims.service.intent.IntentLayerExecutor.LayerRace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 意图分层投机执行器测试
+ *
+ * @author Cretas Team
+ * @since 2026-01-28
+ */
+@DisplayName("IntentLayerExecutor - 意图分层并行执行测试")
+class IntentLayerExecutorTest {
+
+    private IntentLayerExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private static String sleepThen(long ms, String value) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> layerStats(String layer) {
+        return (Map<String, Object>) ((Map<String, Object>) executor.getStats().get("layers")).get(layer);
+    }
+
+    @Test
+    @DisplayName("UT-ILE-001: 两层并行执行, 总耗时取决于最慢层而非之和")
+    void testLayersRunInParallel() {
+        executor = new IntentLayerExecutor(true, 5000, 4, 16);
+        long start = System.nanoTime();
+        LayerRace race = executor.start();
+        race.submit("A", () -> sleepThen(300, "a"));
+        race.submit("B", () -> sleepThen(300, "b"));
+
+        Optional<String> a = race.await("A");
+        Optional<String> b = race.await("B");
+        race.finish("A");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(a).contains("a");
+        assertThat(b).contains("b");
+        assertThat(elapsedMs).isLessThan(550);
+        assertThat(layerStats("A").get("wins")).isEqualTo(1L);
+        assertThat(layerStats("B").get("wins")).isEqualTo(0L);
+    }
+
+    @Test
+    @DisplayName("UT-ILE-002: 高置信度短路后取消其余层")
+    void testShortCircuitCancelsRemaining() throws Exception {
+        executor = new IntentLayerExecutor(true, 5000, 4, 16);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean completed = new AtomicBoolean();
+        LayerRace race = executor.start();
+        race.submit("FAST", () -> "hit");
+        race.submit("SLOW", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(5000);
+                completed.set(true);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        });
+
+        assertThat(race.<String>await("FAST")).contains("hit");
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+        race.finish("FAST");
+
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed.get()).isFalse();
+        assertThat(layerStats("SLOW").get("cancelled")).isEqualTo(1L);
+        assertThat(executor.getStats().get("requests")).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("UT-ILE-003: 超出延迟预算的层视为未命中")
+    void testBudgetExceeded() {
+        executor = new IntentLayerExecutor(true, 100, 4, 16);
+        LayerRace race = executor.start();
+        race.submit("SLOW", () -> sleepThen(2000, "late"));
+
+        long start = System.nanoTime();
+        Optional<String> result = race.await("SLOW");
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        race.finish(null);
+
+        assertThat(result).isEmpty();
+        assertThat(waitedMs).isLessThan(1000);
+        assertThat(layerStats("SLOW").get("timeouts")).isEqualTo(1L);
+        assertThat(executor.getStats().get("budgetExhausted")).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("UT-ILE-004: 线程池满时降级为同步执行, 异常不外抛")
+    void testInlineFallbackAndFailure() {
+        executor = new IntentLayerExecutor(true, 5000, 1, 1);
+        LayerRace blocker = executor.start();
+        blocker.submit("BLOCK1", () -> sleepThen(500, "x"));
+        blocker.submit("BLOCK2", () -> sleepThen(500, "y"));
+
+        LayerRace race = executor.start();
+        race.submit("INLINE", () -> "sync");
+        race.submit("BROKEN", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThat(race.<String>await("INLINE")).contains("sync");
+        assertThat(race.await("BROKEN")).isEmpty();
+        assertThat(layerStats("INLINE").get("inline")).isEqualTo(1L);
+        assertThat(layerStats("BROKEN").get("failed")).isEqualTo(1L);
+        blocker.finish(null);
+        race.finish("INLINE");
+    }
+
+    @Test
+    @DisplayName("UT-ILE-005: 置信度与延迟分布统计")
+    void testHistograms() {
+        executor = new IntentLayerExecutor(true, 5000, 2, 8);
+        for (int i = 0; i < 10; i++) {
+            LayerRace race = executor.start();
+            race.submit("CLASSIFIER", () -> "ok");
+            race.await("CLASSIFIER");
+            executor.observeConfidence("CLASSIFIER", i / 10.0 + 0.05);
+            race.finish(i % 2 == 0 ? "CLASSIFIER" : null);
+        }
+
+        Map<String, Object> stats = layerStats("CLASSIFIER");
+        assertThat((long[]) stats.get("confidenceHistogram")).containsOnly(1L);
+        assertThat(stats.get("completed")).isEqualTo(10L);
+        assertThat((double) stats.get("winRate")).isEqualTo(0.5);
+        assertThat((long) stats.get("p95LatencyMs")).isLessThanOrEqualTo(10L);
+    }
+
+    @Test
+    @DisplayName("UT-ILE-006: 按完成顺序竞争, 先完成的高置信度层胜出并取消较慢层")
+    void testFirstConfidentWins() throws Exception {
+        executor = new IntentLayerExecutor(true, 5000, 4, 16);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        LayerRace race = executor.start();
+        // 先提交的慢层不应阻塞后提交的快层
+        race.submit("SLOW", () -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        });
+        race.submit("FAST", () -> sleepThen(50, "hit"));
+        Predicate<Object> always = v -> true;
+
+        long start = System.nanoTime();
+        Optional<String> winner = race.awaitFirstConfident(Map.of("SLOW", always, "FAST", always));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(winner).contains("FAST");
+        assertThat(waitedMs).isLessThan(1000);
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(race.await("SLOW")).isEmpty();
+        assertThat(race.<String>await("FAST")).contains("hit");
+        race.finish("FAST");
+        assertThat(layerStats("SLOW").get("cancelled")).isEqualTo(1L);
+        assertThat(layerStats("FAST").get("wins")).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("UT-ILE-007: 低置信度结果保留并继续等待下一层")
+    void testLowConfidenceKeepsWaiting() {
+        executor = new IntentLayerExecutor(true, 5000, 4, 16);
+        LayerRace race = executor.start();
+        race.submit("A", () -> sleepThen(20, "low"));
+        race.submit("B", () -> sleepThen(200, "high"));
+        Predicate<Object> isHigh = "high"::equals;
+
+        Optional<String> winner = race.awaitFirstConfident(Map.of("A", isHigh, "B", isHigh));
+
+        assertThat(winner).contains("B");
+        assertThat(race.<String>await("A")).contains("low");
+        assertThat(race.<String>await("B")).contains("high");
+        // 每个请求只竞争一次
+        assertThat(race.awaitFirstConfident(Map.of("A", isHigh))).isEmpty();
+        race.finish("B");
+        assertThat(layerStats("A").get("completed")).isEqualTo(1L);
+        assertThat(layerStats("A").get("cancelled")).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,326 @@
+package com.cretas.aims.service.smartbi.forecast;
+
+import com.cretas.aims.client.PythonSmartBIClient;
+import com.cretas.aims.config.smartbi.PythonSmartBIConfig;
+import com.cretas.aims.dto.smartbi.BatchForecastResult;
+import com.cretas.aims.dto.smartbi.ForecastResult;
+import com.cretas.aims.entity.smartbi.SmartBiSalesData;
+import com.cretas.aims.entity.smartbi.enums.ForecastAlgorithm;
+import com.cretas.aims.repository.smartbi.SmartBiSalesDataRepository;
+import com.cretas.aims.service.smartbi.MetricCalculatorService;
+import com.cretas.aims.service.smartbi.impl.ForecastServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 原生预测引擎测试
+ *
+ * 覆盖 Holt-Winters / ARIMA / Croston 在合成序列上的拟合效果、按回测自动选模、
+ * 置信区间、批量并行与串行结果一致、1 万条序列吞吐基准,
+ * 以及 Python 服务不可用时 ForecastServiceImpl 降级到原生引擎。
+ *
+ * @author Cretas Team
+ * @since 2026-01-19
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ForecastEngine - 原生预测引擎测试")
+class ForecastEngineTest {
+
+    private static final int PERIOD = 7;
+    private static final double[] WEEKLY = {0.8, 0.9, 1.0, 1.0, 1.1, 1.35, 0.85};
+
+    @Mock
+    private SmartBiSalesDataRepository salesDataRepository;
+
+    @Mock
+    private PythonSmartBIClient pythonClient;
+
+    @Mock
+    private PythonSmartBIConfig pythonConfig;
+
+    private final ForecastEngine engine = new ForecastEngine(4);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    // ==================== 模型 ====================
+
+    @Test
+    @DisplayName("UT-FCE-001: Holt-Winters 拟合带趋势的周季节序列")
+    void holtWintersTracksSeasonalSeries() {
+        int n = 84;
+        int horizon = 14;
+        double[] all = seasonal(n + horizon, 0.02, new Random(1));
+        double[] history = copy(all, n);
+
+        for (ExponentialSmoothingModel.Seasonality seasonality : new ExponentialSmoothingModel.Seasonality[]{
+                ExponentialSmoothingModel.Seasonality.ADDITIVE, ExponentialSmoothingModel.Seasonality.MULTIPLICATIVE}) {
+            ExponentialSmoothingModel model = new ExponentialSmoothingModel(seasonality);
+            assertThat(model.applicable(history, PERIOD)).isTrue();
+            double[] mean = model.fit(history, PERIOD, horizon).getMean();
+            assertThat(mape(all, n, mean)).as(seasonality.name()).isLessThan(5.0);
+        }
+
+        // 非季节 Holt 无法刻画周内波动
+        double[] flat = new ExponentialSmoothingModel(ExponentialSmoothingModel.Seasonality.NONE)
+                .fit(history, PERIOD, horizon).getMean();
+        assertThat(mape(all, n, flat)).isGreaterThan(8.0);
+    }
+
+    @Test
+    @DisplayName("UT-FCE-002: 乘法季节性要求序列全正, 季节模型要求至少两个周期")
+    void seasonalApplicability() {
+        double[] withZero = seasonal(28, 0.0, new Random(2));
+        withZero[5] = 0;
+        assertThat(new ExponentialSmoothingModel(ExponentialSmoothingModel.Seasonality.MULTIPLICATIVE)
+                .applicable(withZero, PERIOD)).isFalse();
+        assertThat(new ExponentialSmoothingModel(ExponentialSmoothingModel.Seasonality.ADDITIVE)
+                .applicable(withZero, PERIOD)).isTrue();
+        assertThat(new ExponentialSmoothingModel(ExponentialSmoothingModel.Seasonality.ADDITIVE)
+                .applicable(copy(withZero, 13), PERIOD)).isFalse();
+    }
+
+    @Test
+    @DisplayName("UT-FCE-003: ARIMA 对 AR(1) 序列向均值回归, 对随机游走取一阶差分")
+    void arimaMeanReversionAndDifferencing() {
+        Random random = new Random(3);
+        double[] ar = new double[300];
+        double x = 0;
+        for (int t = 0; t < ar.length; t++) {
+            x = 0.7 * x + random.nextGaussian();
+            ar[t] = 50 + x;
+        }
+        ar[ar.length - 1] = 56;
+
+        ModelForecast fitted = new ArimaModel().fit(ar, PERIOD, 20);
+        assertThat(fitted.getParameters()).contains("d=0").contains("phi1=");
+        double[] mean = fitted.getMean();
+        assertThat(mean[0]).isBetween(51.5, 55.5);
+        assertThat(mean[19]).isCloseTo(50.0, within(1.0));
+        assertThat(fitted.getResidualStd()).isCloseTo(1.0, within(0.2));
+
+        double[] walk = new double[300];
+        double level = 100;
+        for (int t = 0; t < walk.length; t++) {
+            level += 0.5 + random.nextGaussian();
+            walk[t] = level;
+        }
+        ModelForecast drift = new ArimaModel().fit(walk, PERIOD, 10);
+        assertThat(drift.getParameters()).contains("d=1");
+        assertThat(drift.getMean()[9] - walk[walk.length - 1]).isBetween(0.0, 12.0);
+    }
+
+    @Test
+    @DisplayName("UT-FCE-004: Croston 对间歇需求给出平均需求率")
+    void crostonIntermittentDemand() {
+        double[] demand = intermittent(120, new Random(4));
+        CrostonModel model = new CrostonModel();
+        assertThat(model.applicable(demand, PERIOD)).isTrue();
+        assertThat(model.applicable(seasonal(60, 0.0, new Random(4)), PERIOD)).isFalse();
+
+        double[] mean = model.fit(demand, PERIOD, 7).getMean();
+        // 真实需求率 = 0.25 * 10
+        assertThat(mean[0]).isBetween(1.5, 3.5);
+        assertThat(mean).containsOnly(mean[0]);
+    }
+
+    // ==================== 引擎 ====================
+
+    @Test
+    @DisplayName("UT-FCE-005: AUTO 按回测误差选模, 指定算法只在该算法内选择")
+    void autoSelectionByBacktest() {
+        double[] history = seasonal(84, 0.02, new Random(5));
+
+        SeriesForecast auto = engine.forecast(history, PERIOD, 14, ForecastAlgorithm.AUTO);
+        assertThat(auto.getAlgorithm()).isEqualTo(ForecastAlgorithm.HOLT_WINTERS);
+        assertThat(auto.getBacktestSmape()).isLessThan(5.0);
+        assertThat(auto.getConfidence()).isBetween(90.0, 95.0);
+
+        SeriesForecast arima = engine.forecast(history, PERIOD, 14, ForecastAlgorithm.ARIMA);
+        assertThat(arima.getModel()).isEqualTo("ARIMA");
+        assertThat(arima.getBacktestMae()).isGreaterThan(auto.getBacktestMae());
+
+        // 不适用时退化为移动平均
+        SeriesForecast croston = engine.forecast(history, PERIOD, 14, ForecastAlgorithm.CROSTON);
+        assertThat(croston.getAlgorithm()).isEqualTo(ForecastAlgorithm.MOVING_AVERAGE);
+    }
+
+    @Test
+    @DisplayName("UT-FCE-006: 置信区间随步长扩大, 非负序列下界不小于 0")
+    void intervalsWidenAndClampAtZero() {
+        SeriesForecast forecast = engine.forecast(intermittent(90, new Random(6)), PERIOD, 10, ForecastAlgorithm.AUTO);
+
+        double[] lower = forecast.getLower();
+        double[] upper = forecast.getUpper();
+        for (int h = 0; h < 10; h++) {
+            assertThat(lower[h]).isGreaterThanOrEqualTo(0.0);
+            assertThat(forecast.getMean()[h]).isBetween(lower[h], upper[h]);
+        }
+        assertThat(upper[9] - forecast.getMean()[9]).isGreaterThan(upper[0] - forecast.getMean()[0]);
+    }
+
+    @Test
+    @DisplayName("UT-FCE-007: 批量并行结果与逐条串行一致, 保持输入顺序")
+    void batchMatchesSequential() {
+        Map<String, double[]> series = mixedSeries(300, 90, new Random(7));
+
+        List<SeriesForecast> batch = engine.forecastBatch(series, PERIOD, 14);
+
+        assertThat(batch).hasSize(300);
+        int i = 0;
+        for (Map.Entry<String, double[]> entry : series.entrySet()) {
+            SeriesForecast parallel = batch.get(i++);
+            SeriesForecast sequential = engine.forecast(entry.getValue(), PERIOD, 14, ForecastAlgorithm.AUTO);
+            assertThat(parallel.getKey()).isEqualTo(entry.getKey());
+            assertThat(parallel.getModel()).isEqualTo(sequential.getModel());
+            assertThat(parallel.getMean()).containsExactly(sequential.getMean());
+        }
+    }
+
+    @Test
+    @DisplayName("UT-FCE-008: 1 万条混合序列批量预测, 间歇与季节序列各自选中对应模型")
+    void forecastTenThousandSeries() {
+        Map<String, double[]> series = mixedSeries(10_000, 90, new Random(8));
+
+        List<SeriesForecast> forecasts = engine.forecastBatch(series, PERIOD, 14);
+
+        Map<String, Integer> usage = new LinkedHashMap<>();
+        forecasts.forEach(f -> usage.merge(f.getModel(), 1, Integer::sum));
+
+        assertThat(forecasts).hasSize(10_000).doesNotContainNull();
+        assertThat(usage).containsKeys("CROSTON_SBA");
+        assertThat(usage.keySet()).anyMatch(m -> m.startsWith("HOLT_WINTERS"));
+    }
+
+    // ==================== 服务降级 ====================
+
+    @Test
+    @DisplayName("UT-FCE-009: Python 服务不可用时使用原生引擎, 批量按 产品 × 区域 拆分序列")
+    void serviceFallsBackToNativeEngine() throws Exception {
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        LocalDate end = start.plusDays(55);
+        List<SmartBiSalesData> rows = new ArrayList<>();
+        double[] values = seasonal(56, 0.0, new Random(10));
+        for (int d = 0; d < 56; d++) {
+            rows.add(sale(start.plusDays(d), "P1", "华东", values[d]));
+            if (d % 5 == 0) {
+                rows.add(sale(start.plusDays(d), "P2", "华南", 30));
+            }
+        }
+        when(salesDataRepository.findByFactoryIdAndOrderDateBetween(eq("F001"), any(), any())).thenReturn(rows);
+        when(pythonConfig.isEnabled()).thenReturn(true);
+        when(pythonClient.isAvailable()).thenReturn(false);
+
+        ForecastServiceImpl service = new ForecastServiceImpl(salesDataRepository, engine);
+        ReflectionTestUtils.setField(service, "pythonClient", pythonClient);
+        ReflectionTestUtils.setField(service, "pythonConfig", pythonConfig);
+        ReflectionTestUtils.setField(service, "seasonalPeriod", PERIOD);
+        ReflectionTestUtils.setField(service, "maxBatchSeries", 100);
+
+        ForecastResult result = service.forecastMetric("F001", MetricCalculatorService.ORDER_COUNT, start, end, 7);
+        assertThat(result.getForecastPointCount()).isEqualTo(7);
+        assertThat(result.getHistoricalPointCount()).isEqualTo(56);
+        assertThat(result.getConfidence()).isGreaterThanOrEqualTo(new BigDecimal("30"));
+
+        BatchForecastResult batch = service.forecastBatch("F001", start, end, 7);
+        assertThat(batch.getSeriesCount()).isEqualTo(2);
+        assertThat(batch.getItems()).extracting(BatchForecastResult.SeriesItem::getSeriesKey)
+                .containsExactly("P1|华东", "P2|华南");
+        assertThat(batch.getModelUsage().values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(2);
+        assertThat(batch.getItems().get(1).getForecastPoints())
+                .allSatisfy(p -> assertThat(p.getLowerBound()).isGreaterThanOrEqualTo(BigDecimal.ZERO));
+        assertThat(batch.getItems().get(0).getForecastPoints()).hasSize(7);
+        assertThat(batch.getItems().get(0).getForecastPoints().get(0).getDate()).isEqualTo(end.plusDays(1));
+        verify(pythonClient, never()).forecastMetric(any(), any(), any(), any(), anyInt(), any());
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static double[] seasonal(int n, double noise, Random random) {
+        double[] y = new double[n];
+        for (int t = 0; t < n; t++) {
+            y[t] = (100 + 0.5 * t) * WEEKLY[t % PERIOD] * (1 + noise * random.nextGaussian());
+        }
+        return y;
+    }
+
+    private static double[] intermittent(int n, Random random) {
+        double[] y = new double[n];
+        for (int t = 0; t < n; t++) {
+            y[t] = random.nextDouble() < 0.25 ? 10 + 2 * random.nextGaussian() : 0;
+        }
+        return y;
+    }
+
+    private static Map<String, double[]> mixedSeries(int count, int n, Random random) {
+        Map<String, double[]> series = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            double[] y;
+            switch (i % 3) {
+                case 0:
+                    y = seasonal(n, 0.05, random);
+                    break;
+                case 1:
+                    y = intermittent(n, random);
+                    break;
+                default:
+                    y = new double[n];
+                    double level = 50;
+                    for (int t = 0; t < n; t++) {
+                        level += random.nextGaussian();
+                        y[t] = Math.max(0, level);
+                    }
+            }
+            series.put("P" + i + "|R" + (i % 7), y);
+        }
+        return series;
+    }
+
+    private static double mape(double[] actual, int offset, double[] predicted) {
+        double sum = 0;
+        for (int h = 0; h < predicted.length; h++) {
+            sum += Math.abs(actual[offset + h] - predicted[h]) / Math.abs(actual[offset + h]);
+        }
+        return sum / predicted.length * 100;
+    }
+
+    private static double[] copy(double[] values, int length) {
+        double[] result = new double[length];
+        System.arraycopy(values, 0, result, 0, length);
+        return result;
+    }
+
+    private static SmartBiSalesData sale(LocalDate date, String productId, String region, double amount) {
+        SmartBiSalesData row = new SmartBiSalesData();
+        row.setFactoryId("F001");
+        row.setOrderDate(date);
+        row.setProductId(productId);
+        row.setProductName(productId + "-name");
+        row.setRegion(region);
+        row.setAmount(BigDecimal.valueOf(amount));
+        return row;
+    }
+}
@@ -0,0 +1,164 @@
+#!/usr/bin/env python3
+"""
+Train an intent classification head over GTE embeddings and export it for
+the in-process Java classifier (InProcessIntentClassifier).
+
+The Java backend loads the highest intent_head_v{N}.json from
+python-classifier.model-dir and hot-swaps it, so this script only has to
+write a new version file; no service restart is required.
+
+Usage:
+    cd scripts/finetune
+    python train_intent_head.py --version 3 --hidden 256 --int8 \
+        --output ../../backend/java/cretas-api/config/intent_head
+
+Input:  data/merged_training_data.jsonl  ({"text": "...", "label": "INTENT_CODE"})
+Output: <output>/intent_head_v{N}.json
+"""
+
+import argparse
+import json
+import random
+import time
+from pathlib import Path
+
+import numpy as np
+import torch
+from sentence_transformers import SentenceTransformer
+
+DEFAULT_DATA = Path(__file__).parent / "data" / "merged_training_data.jsonl"
+DEFAULT_EMBEDDING_MODEL = "thenlper/gte-base-zh"  # Must match embedding-service (768-dim)
+
+
+def load_samples(path):
+    texts, labels = [], []
+    with open(path, encoding="utf-8") as f:
+        for line in f:
+            line = line.strip()
+            if not line:
+                continue
+            record = json.loads(line)
+            text = record.get("text", "").strip()
+            label = record.get("label", "").strip()
+            if text and label:
+                texts.append(text)
+                labels.append(label)
+    return texts, labels
+
+
+def build_head(dim, hidden, num_labels):
+    if hidden > 0:
+        return torch.nn.Sequential(
+            torch.nn.Linear(dim, hidden), torch.nn.ReLU(), torch.nn.Linear(hidden, num_labels))
+    return torch.nn.Sequential(torch.nn.Linear(dim, num_labels))
+
+
+def train(x, y, hidden, epochs, lr, weight_decay):
+    head = build_head(x.shape[1], hidden, int(y.max()) + 1)
+    optimizer = torch.optim.AdamW(head.parameters(), lr=lr, weight_decay=weight_decay)
+    loss_fn = torch.nn.CrossEntropyLoss(label_smoothing=0.05)
+    for epoch in range(epochs):
+        perm = torch.randperm(len(x))
+        total = 0.0
+        for i in range(0, len(x), 256):
+            idx = perm[i:i + 256]
+            optimizer.zero_grad()
+            loss = loss_fn(head(x[idx]), y[idx])
+            loss.backward()
+            optimizer.step()
+            total += loss.item() * len(idx)
+        if (epoch + 1) % 10 == 0:
+            print(f"  epoch {epoch + 1}/{epochs} loss={total / len(x):.4f}")
+    return head
+
+
+def export_layer(linear, activation, int8):
+    w = linear.weight.detach().numpy().astype(np.float32)  # [out, in]
+    layer = {
+        "in": int(w.shape[1]),
+        "out": int(w.shape[0]),
+        "activation": activation,
+        "bias": linear.bias.detach().numpy().astype(np.float32).tolist(),
+    }
+    if int8:
+        # Per-row symmetric quantization, must match IntentClassifierHead.Layer.quantize
+        scales = np.abs(w).max(axis=1) / 127.0
+        scales[scales == 0] = 1.0
+        layer["dtype"] = "int8"
+        layer["scales"] = scales.tolist()
+        layer["weights"] = np.round(w / scales[:, None]).astype(np.int8).flatten().tolist()
+    else:
+        layer["dtype"] = "float32"
+        layer["weights"] = w.flatten().tolist()
+    return layer
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Train GTE intent head for in-process Java inference")
+    parser.add_argument("--data", default=str(DEFAULT_DATA))
+    parser.add_argument("--embedding-model", default=DEFAULT_EMBEDDING_MODEL)
+    parser.add_argument("--version", type=int, required=True)
+    parser.add_argument("--output", required=True, help="python-classifier.model-dir of the Java service")
+    parser.add_argument("--hidden", type=int, default=0, help="0 = linear softmax head")
+    parser.add_argument("--epochs", type=int, default=60)
+    parser.add_argument("--lr", type=float, default=1e-3)
+    parser.add_argument("--weight-decay", type=float, default=1e-4)
+    parser.add_argument("--temperature", type=float, default=1.5)
+    parser.add_argument("--int8", action="store_true", help="quantize weights to int8")
+    parser.add_argument("--val-ratio", type=float, default=0.1)
+    args = parser.parse_args()
+
+    random.seed(42)
+    torch.manual_seed(42)
+
+    texts, labels = load_samples(args.data)
+    label_list = sorted(set(labels))
+    label_index = {label: i for i, label in enumerate(label_list)}
+    print(f"Loaded {len(texts)} samples, {len(label_list)} intents from {args.data}")
+
+    encoder = SentenceTransformer(args.embedding_model)
+    start = time.time()
+    embeddings = encoder.encode(texts, batch_size=128, normalize_embeddings=True, show_progress_bar=True)
+    print(f"Encoded in {time.time() - start:.1f}s, dim={embeddings.shape[1]}")
+
+    order = list(range(len(texts)))
+    random.shuffle(order)
+    split = int(len(order) * (1 - args.val_ratio))
+    x = torch.tensor(embeddings, dtype=torch.float32)
+    y = torch.tensor([label_index[label] for label in labels])
+    train_idx, val_idx = order[:split], order[split:]
+
+    head = train(x[train_idx], y[train_idx], args.hidden, args.epochs, args.lr, args.weight_decay)
+    head.eval()
+    with torch.no_grad():
+        val_acc = (head(x[val_idx]).argmax(dim=1) == y[val_idx]).float().mean().item() if val_idx else 0.0
+    print(f"Validation accuracy: {val_acc:.4f}")
+
+    linears = [m for m in head if isinstance(m, torch.nn.Linear)]
+    layers = [export_layer(m, "relu" if i < len(linears) - 1 else "none", args.int8)
+              for i, m in enumerate(linears)]
+    model = {
+        "format": "intent-head",
+        "version": f"v{args.version}",
+        "embedding_dim": int(embeddings.shape[1]),
+        "embedding_model": args.embedding_model,
+        "temperature": args.temperature,
+        "labels": label_list,
+        "layers": layers,
+        "trained_samples": len(train_idx),
+        "validation_accuracy": round(val_acc, 4),
+        "trained_at": time.strftime("%Y-%m-%dT%H:%M:%S"),
+    }
+
+    out_dir = Path(args.output)
+    out_dir.mkdir(parents=True, exist_ok=True)
+    target = out_dir / f"intent_head_v{args.version}.json"
+    # Write to a temp name first so the Java poller never sees a partial file
+    tmp = out_dir / f"{target.name}.tmp"
+    tmp.write_text(json.dumps(model, ensure_ascii=False), encoding="utf-8")
+    tmp.replace(target)
+    print(f"Exported {target} ({target.stat().st_size / 1024:.0f} KB)")
+
+
+if __name__ == "__main__":
+    main()